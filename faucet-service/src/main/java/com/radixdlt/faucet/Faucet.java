@@ -60,10 +60,16 @@ public class Faucet {
 	private static final String FAUCET_TOKEN_RRI_ENV_NAME    = "FAUCET_TOKEN_RRI";
 	private static final String FAUCET_RATE_ENV_NAME         = "FAUCET_RATE";
 	private static final String FAUCET_AMOUNT_ENV_NAME       = "FAUCET_AMOUNT";
+	private static final String FAUCET_BATCH_WINDOW_ENV_NAME = "FAUCET_BATCH_WINDOW_MS";
+	private static final String FAUCET_BATCH_SIZE_ENV_NAME   = "FAUCET_BATCH_SIZE";
+	private static final String FAUCET_BATCH_TIMEOUT_ENV_NAME = "FAUCET_BATCH_TIMEOUT_MS";
 
 	private static final double     DEFAULT_RATE     = 0.5; // 1 every 2 seconds
 	private static final BigDecimal DEFAULT_AMOUNT   = BigDecimal.valueOf(10); // 10 rads/request
 	private static final int        DEFAULT_API_PORT = 8079;
+	private static final long       DEFAULT_BATCH_WINDOW_MS = 500L; // Combine requests received within 500ms
+	private static final int        DEFAULT_BATCH_SIZE = 50; // Max requests per atom
+	private static final long       DEFAULT_BATCH_TIMEOUT_MS = 60_000L; // Tell recipients if an atom takes over a minute
 
 	private static void logVersion() {
 		String branch  = "unknown-branch";
@@ -151,13 +157,30 @@ public class Faucet {
 		final String faucetAmountString = System.getenv(FAUCET_AMOUNT_ENV_NAME);
 		final BigDecimal leakAmount = (faucetAmountString == null) ? DEFAULT_AMOUNT : new BigDecimal(faucetAmountString);
 
+		// Faucet batching
+		final String batchWindowString = System.getenv(FAUCET_BATCH_WINDOW_ENV_NAME);
+		final long batchWindowMs = (batchWindowString == null) ? DEFAULT_BATCH_WINDOW_MS : Long.parseLong(batchWindowString);
+		final String batchSizeString = System.getenv(FAUCET_BATCH_SIZE_ENV_NAME);
+		final int batchSize = (batchSizeString == null) ? DEFAULT_BATCH_SIZE : Integer.parseInt(batchSizeString);
+		final String batchTimeoutString = System.getenv(FAUCET_BATCH_TIMEOUT_ENV_NAME);
+		final long batchTimeoutMs = (batchTimeoutString == null) ? DEFAULT_BATCH_TIMEOUT_MS : Long.parseLong(batchTimeoutString);
+
 		log.info("Faucet starting on port {}, granting {} {} at max rate {}/second", apiPort, leakAmount, tokenRRI, rate);
 
 		final RadixApplicationAPI api = RadixApplicationAPI.create(config, faucetIdentity);
 
 		syncToHead(api);
 
-		FaucetHandler faucet = new FaucetHandler(api, tokenRRI, leakAmount, rateLimiter);
+		FaucetHandler faucet = new FaucetHandler(
+			api,
+			tokenRRI,
+			leakAmount,
+			rateLimiter,
+			batchWindowMs,
+			batchSize,
+			batchTimeoutMs,
+			Schedulers.computation()
+		);
 		final Observable<Pair<RadixAddress, EUID>> apiSource = APITokenRequestSource.create(apiPort).requestSource();
 		final Observable<Pair<RadixAddress, EUID>> ledgerSource = LedgerTokenRequestSource.create(api).requestSource();
 
@@ -34,8 +34,16 @@ import com.radixdlt.identifiers.EUID;
 import com.radixdlt.identifiers.RRI;
 
 import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiFunction;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -43,31 +51,85 @@ import org.apache.logging.log4j.Logger;
 import com.radixdlt.utils.Pair;
 import com.radixdlt.utils.RadixConstants;
 
+import io.reactivex.Completable;
 import io.reactivex.Observable;
+import io.reactivex.Scheduler;
 import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.disposables.Disposable;
 
 /**
  * A service which sends tokens to whoever sends it a message through
  * a Radix Universe.
+ * <p>
+ * Requests received within a short window are combined into a single atom
+ * with one transfer and message per request.  Every transfer spends the
+ * faucet's token particles, so only one atom is in flight at a time, and
+ * requests received while it is being committed are combined into the next.
+ * An atom which has no result within the batch timeout may still be committed,
+ * so its recipients are told that it is taking longer and the next atom waits
+ * for its final status.
+ * <p>
+ * Each request is guarded by a unique id mutex, so a single request which was
+ * already processed, such as on a ledger replay or by another faucet, fails
+ * the whole atom.  Requests processed by this faucet are therefore left out
+ * of later batches, and when a batch fails its requests are retried in an
+ * atom each, so that only the failing request is refused.
  */
 final class FaucetHandler {
 	private static final Logger log = LogManager.getLogger();
 
 	private static final String UNIQUE_TX_PREFIX = "faucet-tx-";
+	private static final int MAX_PROCESSED_REQUESTS = 16384;
 
 	private final RadixApplicationAPI api;
 	private final RRI tokenRRI;
 	private final BigDecimal amountToSend;
 	private final RateLimiter rateLimiter;
+	private final long batchWindowMs;
+	private final int maxBatchSize;
+	private final long batchTimeoutMs;
+	private final Scheduler scheduler;
+
+	private final AtomicLong startTime = new AtomicLong();
+	private final AtomicLong totalSent = new AtomicLong();
+	private final AtomicLong totalAtoms = new AtomicLong();
+	// Action IDs of recent requests whose mutex was used by this faucet
+	private final Set<EUID> processedRequests = Collections.synchronizedSet(Collections.newSetFromMap(
+		new LinkedHashMap<EUID, Boolean>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<EUID, Boolean> eldest) {
+				return size() > MAX_PROCESSED_REQUESTS;
+			}
+		}
+	));
 
 	private Disposable disposable;
 
-	FaucetHandler(RadixApplicationAPI api, RRI tokenRRI, BigDecimal amountToSend, RateLimiter rateLimiter) {
+	FaucetHandler(
+		RadixApplicationAPI api,
+		RRI tokenRRI,
+		BigDecimal amountToSend,
+		RateLimiter rateLimiter,
+		long batchWindowMs,
+		int maxBatchSize,
+		long batchTimeoutMs,
+		Scheduler scheduler
+	) {
+		if (batchWindowMs <= 0L || maxBatchSize <= 0 || batchTimeoutMs <= 0L) {
+			throw new IllegalArgumentException(String.format(
+				"Invalid batch window %s, size %s or timeout %s", batchWindowMs, maxBatchSize, batchTimeoutMs
+			));
+		}
 		this.tokenRRI = Objects.requireNonNull(tokenRRI);
 		this.api = Objects.requireNonNull(api);
 		this.amountToSend = Objects.requireNonNull(amountToSend);
 		this.rateLimiter = Objects.requireNonNull(rateLimiter);
+		this.batchWindowMs = batchWindowMs;
+		this.maxBatchSize = maxBatchSize;
+		this.batchTimeoutMs = batchTimeoutMs;
+		this.scheduler = Objects.requireNonNull(scheduler);
 	}
 
 	/**
@@ -75,9 +137,10 @@ final class FaucetHandler {
 	 */
 	void run(Observable<Pair<RadixAddress, EUID>> requestSource) {
 		if (this.disposable == null) {
-			log.info("Faucet token: {}", this.tokenRRI);
+			log.info("Faucet token: {}, batch window {}ms, max batch size {}", this.tokenRRI, this.batchWindowMs, this.maxBatchSize);
 
 			final AtomicReference<BigDecimal> currentFaucetBalance = new AtomicReference<>(BigDecimal.ZERO);
+			this.startTime.set(System.currentTimeMillis());
 
 			// Print out current balance of faucet
 			Disposable d1 = this.api.observeBalance(this.tokenRRI)
@@ -88,8 +151,11 @@ final class FaucetHandler {
 
 			Disposable d2 = requestSource
 				.doOnNext(p -> log.info("Request {} from: {}", p.getSecond(), p.getFirst())) // Print out all messages
+				.buffer(this.batchWindowMs, TimeUnit.MILLISECONDS, this.scheduler, this.maxBatchSize)
+				.filter(batch -> !batch.isEmpty())
+				.concatMapCompletable(this::leakFaucet)
 				.subscribe(
-					p -> this.leakFaucet(p.getFirst(), p.getSecond()),
+					() -> log.info("Request source completed"),
 					e -> log.error("Error while processing messages", e)
 				);
 
@@ -108,75 +174,163 @@ final class FaucetHandler {
 	}
 
 	/**
-	 * Send tokens from this account to an address.
+	 * Send tokens from this account to a batch of addresses in a single atom,
+	 * falling back to an atom per address if it fails.
+	 * The returned {@link Completable} completes when the atoms have been
+	 * committed or have failed, and never signals an error.
 	 *
-	 * @param recipient the intended recipient of the tokens
-	 * @param actionId the mutex to use to ensure that the transaction is
-	 * 		not processed more than once if multiple faucets exist in a network
+	 * @param requests the intended recipients of the tokens, together with
+	 * 		the mutex to use to ensure that each request is not processed
+	 * 		more than once if multiple faucets exist in a network
 	 */
-	private void leakFaucet(RadixAddress recipient, EUID actionId) {
+	private Completable leakFaucet(List<Pair<RadixAddress, EUID>> requests) {
 		try {
-		RRI mutexAcquire = RRI.of(api.getAddress(), UNIQUE_TX_PREFIX + actionId);
-
-		if (!this.rateLimiter.tryAcquire()) {
-			log.info("Rate limiting requests from {}", recipient);
-			Transaction hastyMsg = this.api.createTransaction();
-			hastyMsg.stage(SendMessageAction.create(
-				api.getAddress(),
-				recipient,
-				String.format("Don't be hasty! Only %s requests per minute accepted.", this.rateLimiter.getRate() * 60.0)
-					.getBytes(RadixConstants.STANDARD_CHARSET),
-				true
-			));
-			hastyMsg.stage(PutUniqueIdAction.create(mutexAcquire));
-			hastyMsg.commitAndPush().toObservable().subscribe(
-				saa -> log.debug("Rate limit {} for {}: {}", recipient, actionId, saa),
-				e -> log.error("Could not send rate limit message", e)
-			);
-			return;
+			// Duplicate action IDs within an atom would conflict, so only the first is kept
+			final Map<EUID, RadixAddress> granted = new LinkedHashMap<>();
+			final Map<EUID, RadixAddress> limited = new LinkedHashMap<>();
+			for (Pair<RadixAddress, EUID> request : requests) {
+				final EUID actionId = request.getSecond();
+				if (granted.containsKey(actionId) || limited.containsKey(actionId)) {
+					log.info("Ignoring duplicate request {} from {}", actionId, request.getFirst());
+				} else if (this.processedRequests.contains(actionId)) {
+					log.info("Ignoring request {} from {} which was already processed", actionId, request.getFirst());
+				} else if (this.rateLimiter.tryAcquire()) {
+					granted.put(actionId, request.getFirst());
+				} else {
+					log.info("Rate limiting requests from {}", request.getFirst());
+					limited.put(actionId, request.getFirst());
+				}
+			}
+
+			if (!limited.isEmpty()) {
+				final String hastyMessage = String.format(
+					"Don't be hasty! Only %s requests per minute accepted.", this.rateLimiter.getRate() * 60.0
+				);
+				sendMessages(limited, (recipient, actionId) -> hastyMessage).toObservable()
+					.doOnComplete(() -> this.processedRequests.addAll(limited.keySet()))
+					.subscribe(
+						saa -> log.debug("Rate limit {}: {}", limited, saa),
+						e -> log.error("Could not send rate limit message", e)
+					);
+			}
+
+			if (granted.isEmpty()) {
+				return Completable.complete();
+			} else if (granted.size() == 1) {
+				return sendTokensOrNotify(granted);
+			}
+
+			return sendTokens(granted)
+				.onErrorResumeNext(e -> {
+					log.info("Error sending tokens to {} recipients, retrying each separately", granted.size(), e);
+					return Observable.fromIterable(granted.entrySet())
+						.concatMapCompletable(request -> sendTokensOrNotify(Collections.singletonMap(request.getKey(), request.getValue())));
+				})
+				.onErrorComplete();
+		} catch (Exception e) {
+			log.error("While sending tokens", e);
+			return Completable.complete();
 		}
+	}
 
-		log.info("Sending tokens to {}", recipient);
-		long start = System.currentTimeMillis();
-		Transaction transaction = this.api.createTransaction();
-		transaction.stage(TransferTokensAction.create(tokenRRI, api.getAddress(), recipient, amountToSend));
-		transaction.stage(
-			SendMessageAction.create(
-				api.getAddress(),
-				recipient,
-				messageBytes("Sent you %s %s", amountToSend, tokenRRI.getName()),
-				true
-			)
-		);
-		transaction.stage(PutUniqueIdAction.create(mutexAcquire));
-		long now1 = System.currentTimeMillis() - start;
-		log.info("Built transaction in {}ms", now1);
-		Result result = transaction.commitAndPush();
-		long now2 = System.currentTimeMillis() - start;
-		log.info("Transaction pushed in {}ms", now2);
-		result.toCompletable().subscribe(
-			() -> log.info("Sent tokens to {}", recipient),
-			e -> {
+	// Sends tokens, telling the recipients if that fails
+	private Completable sendTokensOrNotify(Map<EUID, RadixAddress> granted) {
+		return sendTokens(granted)
+			.doOnError(e -> {
 				log.info("Error sending tokens", e);
-				Transaction sentRadsMsg = this.api.createTransaction();
-				sentRadsMsg.stage(
+				sendMessages(granted, (recipient, actionId) -> String.format("Could not send you any (Reason: %s)", e.getMessage()))
+					.toObservable()
+					.doOnComplete(() -> this.processedRequests.addAll(granted.keySet()))
+					.subscribe(
+						saa -> log.debug("Send tokens error message to {}: {}", granted, saa),
+						ex -> log.error("Count not send tokens error message", ex)
+					);
+			})
+			.onErrorComplete();
+	}
+
+	// Sends tokens in a single atom, telling the recipients if no result is received in time
+	private Completable sendTokens(Map<EUID, RadixAddress> granted) {
+		return Completable.defer(() -> {
+			log.info("Sending tokens to {} recipients", granted.size());
+			final long start = System.currentTimeMillis();
+			final Transaction transaction = this.api.createTransaction();
+			granted.forEach((actionId, recipient) -> {
+				transaction.stage(TransferTokensAction.create(tokenRRI, api.getAddress(), recipient, amountToSend));
+				transaction.stage(
 					SendMessageAction.create(
 						api.getAddress(),
 						recipient,
-						messageBytes("Could not send you any (Reason: %s)", e.getMessage()),
+						messageBytes("Sent you %s %s", amountToSend, tokenRRI.getName()),
 						true
 					)
 				);
-				sentRadsMsg.stage(PutUniqueIdAction.create(mutexAcquire));
-				sentRadsMsg.commitAndPush().toObservable().subscribe(
-					saa -> log.debug("Send tokens error message to {} for {}: {}", recipient, actionId, saa),
-					ex -> log.error("Count not send tokens error message", ex)
-				);
-			}
+				transaction.stage(PutUniqueIdAction.create(mutex(actionId)));
+			});
+			log.info("Built transaction in {}ms", System.currentTimeMillis() - start);
+			final Result result = transaction.commitAndPush();
+			log.info("Transaction pushed in {}ms", System.currentTimeMillis() - start);
+			// The atom may still be committed after the timeout, and spends the same particles as the next one,
+			// so its final status is always awaited
+			final Completable status = result.toCompletable().cache();
+			return status
+				.timeout(this.batchTimeoutMs, TimeUnit.MILLISECONDS, this.scheduler, Completable.defer(() -> {
+					log.warn("No result for tokens sent to {} within {}ms, waiting for final status", granted.values(), this.batchTimeoutMs);
+					notifyPending(granted);
+					return status;
+				}))
+				.doOnComplete(() -> {
+					this.processedRequests.addAll(granted.keySet());
+					logSent(granted, System.currentTimeMillis() - start);
+				});
+		});
+	}
+
+	// Tells recipients that their tokens are pending, without using their mutexes, which the pending atom holds
+	private void notifyPending(Map<EUID, RadixAddress> granted) {
+		final String pendingMessage = String.format(
+			"Sending you %s %s is taking longer than expected, you will get another message when it completes",
+			amountToSend, tokenRRI.getName()
 		);
-		} catch (Exception e) {
-			log.error("While sending tokens", e);
-		}
+		sendMessages(granted, (recipient, actionId) -> pendingMessage, false).toObservable()
+			.subscribe(
+				saa -> log.debug("Pending message to {}: {}", granted, saa),
+				e -> log.error("Could not send pending message", e)
+			);
+	}
+
+	private Result sendMessages(Map<EUID, RadixAddress> recipients, BiFunction<RadixAddress, EUID, String> message) {
+		return sendMessages(recipients, message, true);
+	}
+
+	private Result sendMessages(Map<EUID, RadixAddress> recipients, BiFunction<RadixAddress, EUID, String> message, boolean useMutex) {
+		final Transaction transaction = this.api.createTransaction();
+		recipients.forEach((actionId, recipient) -> {
+			transaction.stage(
+				SendMessageAction.create(
+					api.getAddress(),
+					recipient,
+					message.apply(recipient, actionId).getBytes(RadixConstants.STANDARD_CHARSET),
+					true
+				)
+			);
+			if (useMutex) {
+				transaction.stage(PutUniqueIdAction.create(mutex(actionId)));
+			}
+		});
+		return transaction.commitAndPush();
+	}
+
+	private RRI mutex(EUID actionId) {
+		return RRI.of(api.getAddress(), UNIQUE_TX_PREFIX + actionId);
+	}
+
+	private void logSent(Map<EUID, RadixAddress> recipients, long elapsedMs) {
+		final long sent = this.totalSent.addAndGet(recipients.size());
+		final long atoms = this.totalAtoms.incrementAndGet();
+		final double elapsedSeconds = Math.max(1L, System.currentTimeMillis() - this.startTime.get()) / 1000.0;
+		log.info("Sent tokens to {} in {}ms, total {} requests in {} atoms, {} requests/s",
+			recipients.values(), elapsedMs, sent, atoms, String.format("%.2f", sent / elapsedSeconds));
 	}
 
 	private static byte[] messageBytes(String fmt, Object... args) {
@@ -24,6 +24,7 @@ package com.radixdlt.faucet;
 
 import java.math.BigDecimal;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.After;
 import org.junit.Before;
@@ -47,11 +48,15 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import io.reactivex.Completable;
 import io.reactivex.Observable;
+import io.reactivex.schedulers.TestScheduler;
+import io.reactivex.subjects.CompletableSubject;
+import io.reactivex.subjects.PublishSubject;
 
 public class FaucetHandlerTest {
 
@@ -65,6 +70,7 @@ public class FaucetHandlerTest {
 	private Transaction transaction;
 	private Result result;
 	private RateLimiter rateLimiter;
+	private TestScheduler scheduler;
 
 	@Before
 	public void setup() {
@@ -76,8 +82,9 @@ public class FaucetHandlerTest {
 		this.transaction = mock(Transaction.class);
 		this.result = mock(Result.class);
 		this.rateLimiter = mock(RateLimiter.class);
+		this.scheduler = new TestScheduler();
 
-		this.handler = new FaucetHandler(this.api, this.tokenRRI, BigDecimal.valueOf(1), this.rateLimiter);
+		this.handler = new FaucetHandler(this.api, this.tokenRRI, BigDecimal.valueOf(1), this.rateLimiter, 100L, 10, 1000L, this.scheduler);
 
 		when(this.api.getAddress()).thenReturn(this.from);
 		when(this.api.observeBalance(any())).thenReturn(Observable.just(BigDecimal.valueOf(1)));
@@ -138,6 +145,117 @@ public class FaucetHandlerTest {
 		verifyNoMoreInteractions(this.transaction);
 	}
 
+	@Test
+	public void testRequestsInWindowAreBatched() {
+		when(this.result.toCompletable()).thenReturn(Completable.complete());
+		when(this.rateLimiter.tryAcquire()).thenReturn(true);
+		PublishSubject<Pair<RadixAddress, EUID>> requests = PublishSubject.create();
+		this.handler.run(requests);
+
+		requests.onNext(Pair.of(this.to, this.actionId));
+		requests.onNext(Pair.of(this.from, randomEuid()));
+		// Duplicate request ignored
+		requests.onNext(Pair.of(this.to, this.actionId));
+		this.scheduler.advanceTimeBy(100L, TimeUnit.MILLISECONDS);
+
+		verify(this.api, times(1)).createTransaction();
+		verify(this.transaction, times(2)).stage(any(TransferTokensAction.class));
+		verify(this.transaction, times(2)).stage(any(SendMessageAction.class));
+		verify(this.transaction, times(2)).stage(any(PutUniqueIdAction.class));
+		verify(this.transaction, times(1)).commitAndPush();
+		verifyNoMoreInteractions(this.transaction);
+	}
+
+	@Test
+	public void testNextBatchWaitsForCommit() {
+		CompletableSubject committed = CompletableSubject.create();
+		when(this.result.toCompletable()).thenReturn(committed);
+		when(this.rateLimiter.tryAcquire()).thenReturn(true);
+		PublishSubject<Pair<RadixAddress, EUID>> requests = PublishSubject.create();
+		this.handler.run(requests);
+
+		requests.onNext(Pair.of(this.to, this.actionId));
+		this.scheduler.advanceTimeBy(100L, TimeUnit.MILLISECONDS);
+		requests.onNext(Pair.of(this.to, randomEuid()));
+		this.scheduler.advanceTimeBy(100L, TimeUnit.MILLISECONDS);
+
+		verify(this.transaction, times(1)).commitAndPush();
+
+		committed.onComplete();
+
+		verify(this.transaction, times(2)).commitAndPush();
+	}
+
+	@Test
+	public void testFailedBatchIsRetriedPerRequest() {
+		when(this.result.toObservable()).thenReturn(Observable.empty());
+		when(this.result.toCompletable()).thenReturn(
+			Completable.error(new Exception("mutex already used")),
+			Completable.error(new Exception("mutex already used")),
+			Completable.complete()
+		);
+		when(this.rateLimiter.tryAcquire()).thenReturn(true);
+		PublishSubject<Pair<RadixAddress, EUID>> requests = PublishSubject.create();
+		this.handler.run(requests);
+
+		requests.onNext(Pair.of(this.to, this.actionId));
+		requests.onNext(Pair.of(this.from, randomEuid()));
+		this.scheduler.advanceTimeBy(100L, TimeUnit.MILLISECONDS);
+
+		// Batch, first request alone and its error message, second request alone
+		verify(this.transaction, times(4)).commitAndPush();
+		verify(this.transaction, times(4)).stage(any(TransferTokensAction.class));
+		verify(this.transaction, times(5)).stage(any(SendMessageAction.class));
+		verify(this.transaction, times(5)).stage(any(PutUniqueIdAction.class));
+		verifyNoMoreInteractions(this.transaction);
+	}
+
+	@Test
+	public void testProcessedRequestIsIgnored() {
+		when(this.result.toCompletable()).thenReturn(Completable.complete());
+		when(this.rateLimiter.tryAcquire()).thenReturn(true);
+		PublishSubject<Pair<RadixAddress, EUID>> requests = PublishSubject.create();
+		this.handler.run(requests);
+
+		requests.onNext(Pair.of(this.to, this.actionId));
+		this.scheduler.advanceTimeBy(100L, TimeUnit.MILLISECONDS);
+		requests.onNext(Pair.of(this.to, this.actionId));
+		this.scheduler.advanceTimeBy(100L, TimeUnit.MILLISECONDS);
+
+		verify(this.transaction, times(1)).commitAndPush();
+	}
+
+	@Test
+	public void testNextBatchWaitsForTimedOutAtom() {
+		CompletableSubject committed = CompletableSubject.create();
+		when(this.result.toObservable()).thenReturn(Observable.empty());
+		when(this.result.toCompletable()).thenReturn(committed);
+		when(this.rateLimiter.tryAcquire()).thenReturn(true);
+		PublishSubject<Pair<RadixAddress, EUID>> requests = PublishSubject.create();
+		this.handler.run(requests);
+
+		requests.onNext(Pair.of(this.to, this.actionId));
+		requests.onNext(Pair.of(this.from, randomEuid()));
+		this.scheduler.advanceTimeBy(100L, TimeUnit.MILLISECONDS);
+		requests.onNext(Pair.of(this.to, randomEuid()));
+		this.scheduler.advanceTimeBy(100L, TimeUnit.MILLISECONDS);
+
+		verify(this.transaction, times(1)).commitAndPush();
+
+		this.scheduler.advanceTimeBy(1000L, TimeUnit.MILLISECONDS);
+
+		// Recipients of the timed out batch are told without using their mutexes, and the next batch waits
+		verify(this.transaction, times(2)).commitAndPush();
+		verify(this.transaction, times(4)).stage(any(SendMessageAction.class));
+		verify(this.transaction, times(2)).stage(any(PutUniqueIdAction.class));
+
+		committed.onComplete();
+
+		// Timed out batch is not retried
+		verify(this.transaction, times(3)).commitAndPush();
+		verify(this.transaction, times(3)).stage(any(TransferTokensAction.class));
+	}
+
 	private EUID randomEuid() {
 		byte[] value = new byte[EUID.BYTES];
 		this.random.nextBytes(value);
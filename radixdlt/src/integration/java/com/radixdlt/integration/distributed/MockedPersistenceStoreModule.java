@@ -22,7 +22,9 @@ import com.radixdlt.consensus.bft.PersistentVertexStore;
 import com.radixdlt.consensus.bft.VerifiedVertexStoreState;
 import com.radixdlt.consensus.safety.PersistentSafetyStateStore;
 import com.radixdlt.consensus.safety.SafetyState;
-import com.sleepycat.je.Transaction;
+import com.radixdlt.store.LedgerTransaction;
+import com.radixdlt.store.berkeley.SerializedVertexStoreState;
+import java.util.Optional;
 
 public class MockedPersistenceStoreModule extends AbstractModule {
 
@@ -52,8 +54,13 @@ public class MockedPersistenceStoreModule extends AbstractModule {
 		}
 
 		@Override
-		public void save(Transaction tx, VerifiedVertexStoreState vertexStoreState) {
+		public void save(LedgerTransaction tx, VerifiedVertexStoreState vertexStoreState) {
 			// Nothing to do here
 		}
+
+		@Override
+		public Optional<SerializedVertexStoreState> loadLastVertexStoreState() {
+			return Optional.empty();
+		}
 	}
 }
@@ -63,15 +63,19 @@ import com.radixdlt.integration.distributed.MockedStateComputerModule;
 import com.radixdlt.integration.distributed.MockedSyncServiceModule;
 import com.radixdlt.counters.SystemCounters;
 import com.radixdlt.crypto.ECKeyPair;
+import com.radixdlt.crypto.exception.PrivateKeyException;
+import com.radixdlt.crypto.exception.PublicKeyException;
 import com.radixdlt.identifiers.EUID;
 import com.radixdlt.network.TimeSupplier;
 import com.radixdlt.utils.UInt256;
 
 import io.reactivex.rxjava3.schedulers.Timed;
 import java.io.PrintStream;
+import java.time.Duration;
 import java.util.Comparator;
 import java.util.Objects;
 import java.util.Random;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.LongFunction;
 import java.util.function.Predicate;
@@ -81,6 +85,11 @@ import java.util.stream.Stream;
 /**
  * A deterministic test where each event that occurs in the network
  * is emitted and processed synchronously by the caller.
+ * <p>
+ * Messages, pacemaker timeouts and scheduled events are ordered by virtual
+ * arrival time, so that {@link #runForVirtualTime(Duration)} runs as fast as
+ * messages can be processed.  Nodes read wall-clock time unless
+ * {@link Builder#virtualTime()} is used to give them the virtual clock of the network.
  */
 public final class DeterministicTest {
 	private final DeterministicNodes nodes;
@@ -90,19 +99,30 @@ public final class DeterministicTest {
 		ImmutableList<BFTNode> nodes,
 		MessageSelector messageSelector,
 		MessageMutator messageMutator,
+		long networkLatency,
+		boolean virtualTime,
 		Module baseModule,
 		Module overrideModule
 	) {
 		this.network = new DeterministicNetwork(
 			nodes,
 			messageSelector,
-			messageMutator
+			messageMutator,
+			networkLatency
 		);
 
+		final TimeSupplier timeSupplier = virtualTime ? network::currentTime : System::currentTimeMillis;
+		final Module timeModule = new AbstractModule() {
+			@Override
+			public void configure() {
+				bind(TimeSupplier.class).toInstance(timeSupplier);
+			}
+		};
+
 		this.nodes = new DeterministicNodes(
 			nodes,
 			this.network::createSender,
-			baseModule,
+			Modules.combine(timeModule, baseModule),
 			overrideModule
 		);
 	}
@@ -113,7 +133,10 @@ public final class DeterministicTest {
 			LEDGER_AND_EPOCHS_AND_SYNC
 		}
 
-		private ImmutableList<BFTNode> nodes = ImmutableList.of(BFTNode.create(ECKeyPair.generateNew().getPublicKey()));
+		private int numNodes = 1;
+		private Long seed = null;
+		private long networkLatency = DeterministicNetwork.DEFAULT_LATENCY;
+		private boolean virtualTime = false;
 		private MessageSelector messageSelector = MessageSelector.firstSelector();
 		private MessageMutator messageMutator = MessageMutator.nothing();
 		private long pacemakerTimeout = 1000L;
@@ -127,11 +150,50 @@ public final class DeterministicTest {
 		}
 
 		public Builder numNodes(int numNodes) {
-			this.nodes = Stream.generate(ECKeyPair::generateNew)
-				.limit(numNodes)
-				.sorted(Comparator.<ECKeyPair, EUID>comparing(k -> k.getPublicKey().euid()).reversed())
-				.map(kp -> BFTNode.create(kp.getPublicKey()))
-				.collect(ImmutableList.toImmutableList());
+			if (numNodes <= 0) {
+				throw new IllegalArgumentException("Number of nodes must be positive: " + numNodes);
+			}
+			this.numNodes = numNodes;
+			return this;
+		}
+
+		/**
+		 * Seeds node keys and the random number generator used by nodes, so that runs
+		 * with the same seed and configuration process exactly the same messages at
+		 * the same virtual times.  Note that a random {@link MessageSelector} should be
+		 * seeded separately.
+		 *
+		 * @param seed the seed to use
+		 * @return the current builder
+		 */
+		public Builder seed(long seed) {
+			this.seed = seed;
+			return this;
+		}
+
+		/**
+		 * Sets the latency of messages between different nodes in virtual milliseconds.
+		 *
+		 * @param networkLatency the latency of messages between nodes
+		 * @return the current builder
+		 */
+		public Builder networkLatency(long networkLatency) {
+			if (networkLatency < 0) {
+				throw new IllegalArgumentException("Network latency must not be negative: " + networkLatency);
+			}
+			this.networkLatency = networkLatency;
+			return this;
+		}
+
+		/**
+		 * Has all nodes read time from the virtual clock of the network rather than
+		 * the wall clock, so that timestamps seen by nodes are independent of how
+		 * long message processing takes.
+		 *
+		 * @return the current builder
+		 */
+		public Builder virtualTime() {
+			this.virtualTime = true;
 			return this;
 		}
 
@@ -185,9 +247,16 @@ public final class DeterministicTest {
 		}
 
 		public DeterministicTest build() {
+			final Random random = this.seed == null ? new Random(123456) : new Random(this.seed);
+			final ImmutableList<BFTNode> nodes = Stream.generate(() -> this.seed == null ? ECKeyPair.generateNew() : keyPairFrom(random))
+				.limit(this.numNodes)
+				.sorted(Comparator.<ECKeyPair, EUID>comparing(k -> k.getPublicKey().euid()).reversed())
+				.map(kp -> BFTNode.create(kp.getPublicKey()))
+				.collect(ImmutableList.toImmutableList());
+
 			LongFunction<BFTValidatorSet> validatorSetMapping = epochNodeWeightMapping == null
-				? epoch -> completeEqualWeightValidatorSet(this.nodes)
-				: epoch -> partialMixedWeightValidatorSet(epoch, this.nodes, this.epochNodeWeightMapping);
+				? epoch -> completeEqualWeightValidatorSet(nodes)
+				: epoch -> partialMixedWeightValidatorSet(epoch, nodes, this.epochNodeWeightMapping);
 
 			ImmutableList.Builder<Module> modules = ImmutableList.builder();
 			modules.add(new AbstractModule() {
@@ -198,8 +267,7 @@ public final class DeterministicTest {
 					bindConstant().annotatedWith(PacemakerRate.class).to(2.0);
 					// Use constant timeout for now
 					bindConstant().annotatedWith(PacemakerMaxExponent.class).to(0);
-					bind(TimeSupplier.class).toInstance(System::currentTimeMillis);
-					bind(Random.class).toInstance(new Random(123456));
+					bind(Random.class).toInstance(random);
 				}
 			});
 			modules.add(new ConsensusModule());
@@ -251,14 +319,26 @@ public final class DeterministicTest {
 				modules.add(new MockedStateComputerWithEpochsModule(epochHighView, epochToValidatorSetMapping));
 			}
 			return new DeterministicTest(
-				this.nodes,
+				nodes,
 				this.messageSelector,
 				this.messageMutator,
+				this.networkLatency,
+				this.virtualTime,
 				Modules.combine(modules.build()),
 				overrideModule
 			);
 		}
 
+		private static ECKeyPair keyPairFrom(Random random) {
+			final byte[] privateKey = new byte[ECKeyPair.BYTES];
+			random.nextBytes(privateKey);
+			try {
+				return ECKeyPair.fromPrivateKey(privateKey);
+			} catch (PrivateKeyException | PublicKeyException e) {
+				throw new IllegalStateException("Error while generating key pair", e);
+			}
+		}
+
 		private static BFTValidatorSet completeEqualWeightValidatorSet(ImmutableList<BFTNode> nodes) {
 			return BFTValidatorSet.from(
 				nodes.stream()
@@ -328,6 +408,17 @@ public final class DeterministicTest {
 		return this;
 	}
 
+	/**
+	 * Processes messages until the specified amount of virtual time has passed.
+	 * This runs as fast as messages can be processed, independent of wall-clock time.
+	 *
+	 * @param duration the amount of virtual time to run for
+	 * @return this test
+	 */
+	public DeterministicTest runForVirtualTime(Duration duration) {
+		return runUntil(hasReachedTime(duration));
+	}
+
 	public DeterministicTest runUntil(Predicate<Timed<ControlledMessage>> stopPredicate) {
 		this.nodes.start();
 
@@ -364,6 +455,18 @@ public final class DeterministicTest {
 	}
 
 
+	/**
+	 * Returns a predicate that stops processing messages once the specified amount
+	 * of virtual time has passed.
+	 *
+	 * @param duration the amount of virtual time to process messages for
+	 * @return a predicate that returns true once the specified virtual time has passed
+	 */
+	public static Predicate<Timed<ControlledMessage>> hasReachedTime(Duration duration) {
+		final long maxTime = duration.toMillis();
+		return timedMsg -> timedMsg.time(TimeUnit.MILLISECONDS) > maxTime;
+	}
+
 	/**
 	 * Returns a predicate that stops processing messages after a specified number of views.
 	 *
@@ -390,6 +493,13 @@ public final class DeterministicTest {
 		return this.nodes.numNodes();
 	}
 
+	/**
+	 * @return the current virtual time of the test in milliseconds
+	 */
+	public long currentTime() {
+		return this.network.currentTime();
+	}
+
 	// Debugging aid for messages
 	public void dumpMessages(PrintStream out) {
 		this.network.dumpMessages(out);
@@ -0,0 +1,89 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.integration.distributed.deterministic.tests.consensus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.environment.deterministic.network.MessageSelector;
+import com.radixdlt.integration.distributed.deterministic.DeterministicTest;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+/**
+ * Runs consensus for long periods of virtual time, which elapse as fast
+ * as messages can be processed rather than in wall-clock time.
+ */
+public class VirtualTimeLivenessTest {
+	private static final long SEED = 1234567L;
+	private static final long LATENCY = 50L;
+
+	private static DeterministicTest run(int numNodes, Duration duration) {
+		return DeterministicTest.builder()
+			.numNodes(numNodes)
+			.seed(SEED)
+			.networkLatency(LATENCY)
+			.virtualTime()
+			.messageSelector(MessageSelector.randomSelector(new Random(SEED)))
+			.build()
+			.runForVirtualTime(duration);
+	}
+
+	private static List<List<Long>> counters(DeterministicTest test) {
+		return IntStream.range(0, test.numNodes())
+			.mapToObj(test::getSystemCounters)
+			.map(c -> List.of(
+				c.get(CounterType.BFT_PROCESSED),
+				c.get(CounterType.BFT_PROPOSALS_MADE),
+				c.get(CounterType.BFT_VOTE_QUORUMS),
+				c.get(CounterType.BFT_TIMEOUT)
+			))
+			.collect(Collectors.toList());
+	}
+
+	@Test
+	public void when_run_10_nodes_for_an_hour_of_virtual_time__then_consensus_is_live_without_timeouts() {
+		final Duration duration = Duration.ofHours(1);
+		DeterministicTest test = run(10, duration);
+
+		assertThat(test.currentTime()).isGreaterThanOrEqualTo(duration.toMillis());
+		// Each view requires at least a proposal and a vote, each with one message latency
+		final long minimumViews = duration.toMillis() / (4 * LATENCY);
+		for (int nodeIndex = 0; nodeIndex < test.numNodes(); nodeIndex++) {
+			SystemCounters counters = test.getSystemCounters(nodeIndex);
+			assertThat(counters.get(CounterType.BFT_PROCESSED)).isGreaterThan(minimumViews);
+			assertThat(counters.get(CounterType.BFT_TIMEOUT)).isZero();
+		}
+	}
+
+	@Test
+	public void when_run_twice_with_the_same_seed__then_results_are_identical() {
+		final Duration duration = Duration.ofMinutes(10);
+
+		DeterministicTest first = run(7, duration);
+		DeterministicTest second = run(7, duration);
+
+		assertThat(second.currentTime()).isEqualTo(first.currentTime());
+		assertThat(counters(second)).isEqualTo(counters(first));
+	}
+}
@@ -84,6 +84,7 @@ import com.radixdlt.integration.distributed.simulation.application.BFTValidatorS
 import com.radixdlt.integration.distributed.simulation.application.EpochsNodeSelector;
 import com.radixdlt.integration.distributed.simulation.application.IncrementalBytes;
 import com.radixdlt.integration.distributed.simulation.application.CommittedChecker;
+import com.radixdlt.integration.distributed.simulation.application.ConsensusBenchmark;
 import com.radixdlt.integration.distributed.simulation.application.NodeSelector;
 import com.radixdlt.integration.distributed.simulation.application.RadixEngineValidatorRegistrator;
 import com.radixdlt.integration.distributed.simulation.application.RadixEngineValidatorRegistratorAndUnregistrator;
@@ -119,6 +120,11 @@ import com.radixdlt.utils.UInt256;
 import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.core.Single;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
 import java.util.Iterator;
@@ -132,16 +138,26 @@ import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 /**
- * High level BFT Simulation Test Runner
+ * High level BFT Simulation Test Runner.
+ * <p>
+ * Nodes, network delays and timeouts run on RxJava and executor threads in
+ * wall-clock time, so a test runs for as long as its configured duration.
+ * Scenarios which need long or reproducible runs of consensus should use
+ * {@link com.radixdlt.integration.distributed.deterministic.DeterministicTest}
+ * instead, which can run on a seeded virtual clock (see {@code DeterministicTest.Builder#virtualTime()}).
  */
 public class SimulationTest {
+	private static final Logger log = LogManager.getLogger();
 	private static final ECKeyPair UNIVERSE_KEY = ECKeyPair.generateNew();
 	private static final RadixAddress UNIVERSE_ADDRESS = new RadixAddress((byte) 0, UNIVERSE_KEY.getPublicKey());
 	private static final RRI NATIVE_TOKEN = RRI.of(UNIVERSE_ADDRESS, TokenDefinitionUtils.getNativeTokenShortCode());
 	private static final String ENVIRONMENT_VAR_NAME = "TEST_DURATION"; // Same as used by regression test suite
 	private static final Duration DEFAULT_TEST_DURATION = Duration.ofSeconds(30);
+	private static final String BENCHMARK_OUTPUT_VAR_NAME = "TEST_BENCHMARK_OUTPUT_DIR";
 
 	private static final Hasher hasher = Sha256Hasher.withDefaultSerialization();
 
@@ -156,6 +172,7 @@ public class SimulationTest {
 	private final Module baseNodeModule;
 	private final Module overrideModule;
 	private final Map<ECKeyPair, Module> byzantineNodeModules;
+	private final ConsensusBenchmark benchmark;
 
 	private SimulationTest(
 		ImmutableList<ECKeyPair> nodes,
@@ -164,7 +181,8 @@ public class SimulationTest {
 		Module overrideModule,
 		Map<ECKeyPair, Module> byzantineNodeModules,
 		ImmutableMap<String, TestInvariant> checks,
-		ImmutableSet<SimulationNetworkActor> runners
+		ImmutableSet<SimulationNetworkActor> runners,
+		ConsensusBenchmark benchmark
 	) {
 		this.nodes = nodes;
 		this.simulationNetwork = simulationNetwork;
@@ -173,6 +191,7 @@ public class SimulationTest {
 		this.byzantineNodeModules = byzantineNodeModules;
 		this.checks = checks;
 		this.runners = runners;
+		this.benchmark = benchmark;
 	}
 
 	public static class Builder {
@@ -255,6 +274,7 @@ public class SimulationTest {
 		private Module networkModule;
 		private Module overrideModule = null;
 		private Function<ImmutableList<ECKeyPair>, ImmutableMap<ECKeyPair, Module>> byzantineModuleCreator = i -> ImmutableMap.of();
+		private ConsensusBenchmark benchmark = null;
 		// TODO: Fix pacemaker so can Default 1 so can debug in IDE, possibly from properties at some point
 		// TODO: Specifically, simulation test with engine, epochs and mempool gets stuck on a single validator
 		private final int minValidators = 2;
@@ -446,6 +466,40 @@ public class SimulationTest {
 			return this;
 		}
 
+		/**
+		 * Submits {@code commandsPerSecond} commands per second to the mempools of the validators
+		 * and measures commit throughput and latency, views per second and network messages
+		 * per commit. Results are available from {@link TestResults#getBenchmarkResults()}, and are
+		 * also written as JSON to the directory named by the {@code TEST_BENCHMARK_OUTPUT_DIR}
+		 * environment variable if set.
+		 *
+		 * @param benchmarkName name of the benchmark, used as check name and output file name
+		 * @param commandsPerSecond number of commands to submit per second, at most 1000
+		 * @return this builder
+		 */
+		public Builder addMempoolBenchmark(String benchmarkName, int commandsPerSecond) {
+			if (commandsPerSecond <= 0 || commandsPerSecond > 1000) {
+				throw new IllegalArgumentException("Commands per second must be between 1 and 1000: " + commandsPerSecond);
+			}
+			final long periodMs = 1000L / commandsPerSecond;
+			NodeSelector nodeSelector = this.ledgerType.hasEpochs ? new EpochsNodeSelector() : new BFTValidatorSetNodeSelector();
+			LocalMempoolPeriodicSubmittor submittor = new LocalMempoolPeriodicSubmittor(
+				new IncrementalBytes(),
+				nodeSelector,
+				periodMs,
+				periodMs
+			);
+			ConsensusBenchmark consensusBenchmark = new ConsensusBenchmark(
+				benchmarkName,
+				submittor.issuedCommands().map(Pair::getFirst),
+				nodeEvents
+			);
+			this.benchmark = consensusBenchmark;
+			this.runnableBuilder.add(nodes -> submittor::run);
+			this.checksBuilder.put(benchmarkName, nodes -> consensusBenchmark);
+			return this;
+		}
+
 		public Builder addRadixEngineValidatorRegisterUnregisterMempoolSubmissions() {
 			this.runnableBuilder.add(nodes -> {
 				RadixEngineValidatorRegistratorAndUnregistrator randomValidatorSubmittor
@@ -726,7 +780,8 @@ public class SimulationTest {
 				overrideModule,
 				byzantineModuleCreator.apply(this.nodes),
 				checks,
-				runners
+				runners,
+				benchmark
 			);
 		}
 	}
@@ -769,13 +824,16 @@ public class SimulationTest {
 	public static class TestResults {
 		private final Map<String, Optional<TestInvariantError>> checkResults;
 		private final RunningNetwork network;
+		private final ConsensusBenchmark.Results benchmarkResults;
 
 		private TestResults(
 			Map<String, Optional<TestInvariantError>> checkResults,
-			RunningNetwork network
+			RunningNetwork network,
+			ConsensusBenchmark.Results benchmarkResults
 		) {
 			this.checkResults = checkResults;
 			this.network = network;
+			this.benchmarkResults = benchmarkResults;
 		}
 
 		public Map<String, Optional<TestInvariantError>> getCheckResults() {
@@ -785,6 +843,10 @@ public class SimulationTest {
 		public RunningNetwork getNetwork() {
 			return network;
 		}
+
+		public Optional<ConsensusBenchmark.Results> getBenchmarkResults() {
+			return Optional.ofNullable(benchmarkResults);
+		}
 	}
 
 	/**
@@ -811,7 +873,7 @@ public class SimulationTest {
 
 	/**
 	 * Runs the test for a given time. Returns either once the duration has passed or if a check has failed.
-	 * Returns a map from the check name to the result.
+	 * Returns a map from the check name to the result.  Note that the duration is wall-clock time.
 	 *
 	 * @param duration duration to run test for
 	 * @return test results
@@ -830,7 +892,28 @@ public class SimulationTest {
 			.doFinally(bftNetwork::stop)
 			.blockingStream()
 			.collect(Collectors.toMap(Pair::getFirst, Pair::getSecond));
-		return new TestResults(checkResults, runningNetwork);
+
+		ConsensusBenchmark.Results benchmarkResults = null;
+		if (this.benchmark != null) {
+			benchmarkResults = this.benchmark.results();
+			log.info("Benchmark results: {}", benchmarkResults);
+			writeBenchmarkResults(benchmarkResults);
+		}
+		return new TestResults(checkResults, runningNetwork, benchmarkResults);
+	}
+
+	private static void writeBenchmarkResults(ConsensusBenchmark.Results results) {
+		String outputDir = System.getenv(BENCHMARK_OUTPUT_VAR_NAME);
+		if (outputDir == null || outputDir.isBlank()) {
+			return;
+		}
+		Path outputFile = Paths.get(outputDir, String.format("%s-%d.json", results.getName(), results.getNumNodes()));
+		try {
+			Files.createDirectories(outputFile.getParent());
+			Files.write(outputFile, results.toJson().toString(2).getBytes(StandardCharsets.UTF_8));
+		} catch (IOException e) {
+			log.warn("Unable to write benchmark results to {}", outputFile, e);
+		}
 	}
 
 	private static <T> Iterator<T> repeatLast(Iterable<T> iterable) {
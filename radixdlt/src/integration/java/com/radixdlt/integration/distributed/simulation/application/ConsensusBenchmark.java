@@ -0,0 +1,390 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.integration.distributed.simulation.application;
+
+import com.radixdlt.DefaultSerialization;
+import com.radixdlt.consensus.BFTConfiguration;
+import com.radixdlt.consensus.Command;
+import com.radixdlt.consensus.ConsensusEvent;
+import com.radixdlt.consensus.Proposal;
+import com.radixdlt.consensus.Sha256Hasher;
+import com.radixdlt.consensus.Vote;
+import com.radixdlt.consensus.bft.BFTCommittedUpdate;
+import com.radixdlt.consensus.bft.BFTHighQCUpdate;
+import com.radixdlt.consensus.bft.BFTNode;
+import com.radixdlt.consensus.bft.PreparedVertex;
+import com.radixdlt.environment.rx.RemoteEvent;
+import com.radixdlt.integration.distributed.simulation.TestInvariant;
+import com.radixdlt.integration.distributed.simulation.invariants.consensus.NodeEvents;
+import com.radixdlt.integration.distributed.simulation.network.SimulationNetwork.MessageInTransit;
+import com.radixdlt.integration.distributed.simulation.network.SimulationNodes.RunningNetwork;
+import com.radixdlt.middleware2.network.CompactConsensusEventCodec;
+import com.radixdlt.middleware2.network.ConsensusEventMessage;
+import com.radixdlt.serialization.DsonOutput.Output;
+import io.reactivex.rxjava3.core.Observable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONObject;
+
+/**
+ * Measures consensus throughput and latency of a running simulation under the
+ * mempool load of a {@link LocalMempoolPeriodicSubmittor}.
+ * <p>
+ * This is run as a check which never fails, so that measurement covers the whole
+ * run of the test. Results are available via {@link #results()} once the test
+ * has finished.
+ * <p>
+ * Sent messages are only recorded while the test runs, and are serialized to
+ * measure their size when the results are computed, so that serialization does
+ * not compete with the nodes being measured.  As simulated nodes exchange
+ * proposals and votes as objects, the size of their compact wire form is
+ * measured by passing each one through the {@link CompactConsensusEventCodec}s
+ * of the sender and receiver.
+ */
+public final class ConsensusBenchmark implements TestInvariant {
+	private final String name;
+	private final Observable<Command> submittedCommands;
+	private final NodeEvents nodeEvents;
+
+	private final Map<Command, Long> submitTimes = new ConcurrentHashMap<>();
+	private final Set<Command> committedCommands = ConcurrentHashMap.newKeySet();
+	private final List<Long> commitLatenciesMs = Collections.synchronizedList(new ArrayList<>());
+	private final AtomicLong committedVertices = new AtomicLong();
+	private final AtomicLong highQCUpdates = new AtomicLong();
+	private final AtomicLong messages = new AtomicLong();
+	// Messages sent and not yet measured, in order of sending
+	private final Queue<MessageInTransit> unmeasuredMessages = new ConcurrentLinkedQueue<>();
+
+	// Message sizes, guarded by this
+	private final Map<BFTNode, CompactConsensusEventCodec> codecs = new HashMap<>();
+	// Message classes which can't be serialized, and hence are not included in message bytes
+	private final Set<Class<?>> unsizedClasses = new HashSet<>();
+	private long messageBytes;
+	private long unsizedMessages;
+	private long consensusMessageBytes;
+	private long compactConsensusMessageBytes;
+
+	private volatile int numNodes;
+	private volatile BFTConfiguration initialConfiguration;
+	private volatile long startNanos;
+
+	public ConsensusBenchmark(String name, Observable<Command> submittedCommands, NodeEvents nodeEvents) {
+		this.name = Objects.requireNonNull(name);
+		this.submittedCommands = Objects.requireNonNull(submittedCommands);
+		this.nodeEvents = Objects.requireNonNull(nodeEvents);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public Observable<TestInvariantError> check(RunningNetwork network) {
+		this.numNodes = network.getNodes().size();
+		this.initialConfiguration = network.bftConfiguration();
+		this.startNanos = System.nanoTime();
+		this.nodeEvents.addListener((node, update) -> onCommitted(update), BFTCommittedUpdate.class);
+		this.nodeEvents.addListener((node, update) -> highQCUpdates.incrementAndGet(), BFTHighQCUpdate.class);
+
+		Observable<Object> submissions = this.submittedCommands
+			.doOnNext(command -> submitTimes.putIfAbsent(command, System.nanoTime()))
+			.cast(Object.class);
+		Observable<Object> sentMessages = network.getUnderlyingNetwork().sentMessages()
+			.doOnNext(this::onMessage)
+			.cast(Object.class);
+
+		return Observable.merge(submissions, sentMessages)
+			.ignoreElements()
+			.toObservable();
+	}
+
+	private void onCommitted(BFTCommittedUpdate update) {
+		final long now = System.nanoTime();
+		this.committedVertices.addAndGet(update.getCommitted().size());
+		update.getCommitted().stream()
+			.flatMap(PreparedVertex::getCommands)
+			.forEach(command -> {
+				Long submitted = this.submitTimes.get(command);
+				if (submitted != null && this.committedCommands.add(command)) {
+					this.commitLatenciesMs.add(TimeUnit.NANOSECONDS.toMillis(now - submitted));
+				}
+			});
+	}
+
+	private void onMessage(MessageInTransit message) {
+		this.messages.incrementAndGet();
+		this.unmeasuredMessages.add(message);
+	}
+
+	private void measureMessages() {
+		// Broadcast messages share their content, which is only serialized once
+		final Map<Object, Integer> sizes = new IdentityHashMap<>();
+		MessageInTransit message;
+		while ((message = this.unmeasuredMessages.poll()) != null) {
+			Object content = message.getContent();
+			if (content instanceof RemoteEvent) {
+				content = ((RemoteEvent<?>) content).getEvent();
+			}
+			final Integer size = this.unsizedClasses.contains(content.getClass()) ? null : sizes.computeIfAbsent(content, this::size);
+			if (size == null) {
+				this.unsizedMessages += 1;
+				continue;
+			}
+			this.messageBytes += size;
+			if ((content instanceof Proposal || content instanceof Vote) && !message.getSender().equals(message.getReceiver())) {
+				this.consensusMessageBytes += size;
+				this.compactConsensusMessageBytes += compactSize((ConsensusEvent) content, message.getSender(), message.getReceiver());
+			}
+		}
+	}
+
+	// Returns null for messages which can't be serialized
+	private Integer size(Object content) {
+		try {
+			return DefaultSerialization.getInstance().toDson(content, Output.WIRE).length;
+		} catch (IllegalArgumentException | IllegalStateException e) {
+			this.unsizedClasses.add(content.getClass());
+			return null;
+		}
+	}
+
+	private int compactSize(ConsensusEvent event, BFTNode sender, BFTNode receiver) {
+		final ConsensusEventMessage compact = codec(sender).encode(0, event, receiver);
+		// Decoded in order of sending, so that the receiver knows the QCs the sender expects it to
+		codec(receiver).decode(compact, sender);
+		return DefaultSerialization.getInstance().toDson(compact, Output.WIRE).length;
+	}
+
+	private CompactConsensusEventCodec codec(BFTNode node) {
+		return this.codecs.computeIfAbsent(node, n -> {
+			final CompactConsensusEventCodec codec = new CompactConsensusEventCodec(Sha256Hasher.withDefaultSerialization());
+			final BFTConfiguration configuration = this.initialConfiguration;
+			codec.addValidatorSet(configuration.getVertexStoreState().getRootHeader().getEpoch(), configuration.getValidatorSet());
+			return codec;
+		});
+	}
+
+	/**
+	 * Computes the results measured so far.
+	 *
+	 * @return the benchmark results
+	 */
+	public synchronized Results results() {
+		final long elapsedMs = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.startNanos));
+		measureMessages();
+		final List<Long> latencies;
+		synchronized (this.commitLatenciesMs) {
+			latencies = new ArrayList<>(this.commitLatenciesMs);
+		}
+		Collections.sort(latencies);
+		final int nodes = Math.max(1, this.numNodes);
+		return new Results(
+			this.name,
+			this.numNodes,
+			elapsedMs,
+			this.submitTimes.size(),
+			this.committedCommands.size(),
+			this.committedVertices.get() / nodes,
+			this.highQCUpdates.get() / nodes,
+			this.messages.get(),
+			this.messageBytes,
+			this.unsizedMessages,
+			this.consensusMessageBytes,
+			this.compactConsensusMessageBytes,
+			percentile(latencies, 50),
+			percentile(latencies, 90),
+			percentile(latencies, 99),
+			latencies.isEmpty() ? 0L : latencies.get(latencies.size() - 1)
+		);
+	}
+
+	private static long percentile(List<Long> sorted, int percentile) {
+		if (sorted.isEmpty()) {
+			return 0L;
+		}
+		int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+		return sorted.get(Math.max(0, index));
+	}
+
+	/**
+	 * Results of a benchmark run.
+	 */
+	public static final class Results {
+		private final String name;
+		private final int numNodes;
+		private final long elapsedMs;
+		private final long submittedCommands;
+		private final long committedCommands;
+		private final long committedVertices;
+		private final long views;
+		private final long messages;
+		private final long messageBytes;
+		private final long unsizedMessages;
+		private final long consensusMessageBytes;
+		private final long compactConsensusMessageBytes;
+		private final long latencyP50Ms;
+		private final long latencyP90Ms;
+		private final long latencyP99Ms;
+		private final long latencyMaxMs;
+
+		private Results(
+			String name,
+			int numNodes,
+			long elapsedMs,
+			long submittedCommands,
+			long committedCommands,
+			long committedVertices,
+			long views,
+			long messages,
+			long messageBytes,
+			long unsizedMessages,
+			long consensusMessageBytes,
+			long compactConsensusMessageBytes,
+			long latencyP50Ms,
+			long latencyP90Ms,
+			long latencyP99Ms,
+			long latencyMaxMs
+		) {
+			this.name = name;
+			this.numNodes = numNodes;
+			this.elapsedMs = elapsedMs;
+			this.submittedCommands = submittedCommands;
+			this.committedCommands = committedCommands;
+			this.committedVertices = committedVertices;
+			this.views = views;
+			this.messages = messages;
+			this.messageBytes = messageBytes;
+			this.unsizedMessages = unsizedMessages;
+			this.consensusMessageBytes = consensusMessageBytes;
+			this.compactConsensusMessageBytes = compactConsensusMessageBytes;
+			this.latencyP50Ms = latencyP50Ms;
+			this.latencyP90Ms = latencyP90Ms;
+			this.latencyP99Ms = latencyP99Ms;
+			this.latencyMaxMs = latencyMaxMs;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public int getNumNodes() {
+			return numNodes;
+		}
+
+		public long getCommittedCommands() {
+			return committedCommands;
+		}
+
+		public double getCommittedCommandsPerSecond() {
+			return perSecond(committedCommands);
+		}
+
+		public double getViewsPerSecond() {
+			return perSecond(views);
+		}
+
+		/**
+		 * @return the average number of messages sent per committed vertex
+		 */
+		public double getMessagesPerCommit() {
+			return committedVertices == 0 ? 0.0 : (double) messages / committedVertices;
+		}
+
+		/**
+		 * @return the average number of serialized message bytes sent per committed vertex
+		 */
+		public double getBytesPerCommit() {
+			return committedVertices == 0 ? 0.0 : (double) messageBytes / committedVertices;
+		}
+
+		/**
+		 * @return the average number of serialized proposal and vote bytes sent per view
+		 */
+		public double getConsensusBytesPerView() {
+			return views == 0 ? 0.0 : (double) consensusMessageBytes / views;
+		}
+
+		/**
+		 * @return the average number of proposal and vote bytes per view if sent in compact form
+		 */
+		public double getCompactConsensusBytesPerView() {
+			return views == 0 ? 0.0 : (double) compactConsensusMessageBytes / views;
+		}
+
+		public long getLatencyP50Ms() {
+			return latencyP50Ms;
+		}
+
+		public long getLatencyP90Ms() {
+			return latencyP90Ms;
+		}
+
+		public long getLatencyP99Ms() {
+			return latencyP99Ms;
+		}
+
+		private double perSecond(long count) {
+			return count * 1000.0 / elapsedMs;
+		}
+
+		public JSONObject toJson() {
+			JSONObject latency = new JSONObject()
+				.put("p50", latencyP50Ms)
+				.put("p90", latencyP90Ms)
+				.put("p99", latencyP99Ms)
+				.put("max", latencyMaxMs);
+			return new JSONObject()
+				.put("name", name)
+				.put("nodes", numNodes)
+				.put("elapsed_ms", elapsedMs)
+				.put("submitted_commands", submittedCommands)
+				.put("committed_commands", committedCommands)
+				.put("committed_commands_per_second", getCommittedCommandsPerSecond())
+				.put("committed_vertices", committedVertices)
+				.put("views", views)
+				.put("views_per_second", getViewsPerSecond())
+				.put("messages", messages)
+				.put("message_bytes", messageBytes)
+				.put("unsized_messages", unsizedMessages)
+				.put("messages_per_commit", getMessagesPerCommit())
+				.put("bytes_per_commit", getBytesPerCommit())
+				.put("consensus_message_bytes", consensusMessageBytes)
+				.put("compact_consensus_message_bytes", compactConsensusMessageBytes)
+				.put("consensus_bytes_per_view", getConsensusBytesPerView())
+				.put("compact_consensus_bytes_per_view", getCompactConsensusBytesPerView())
+				.put("commit_latency_ms", latency);
+		}
+
+		@Override
+		public String toString() {
+			return toJson().toString();
+		}
+	}
+}
@@ -36,11 +36,26 @@ public class LocalMempoolPeriodicSubmittor {
 	private final PublishSubject<Pair<Command, BFTNode>> commands;
 	private final CommandGenerator commandGenerator;
 	private final NodeSelector nodeSelector;
+	private final long initialDelayMs;
+	private final long periodMs;
 
 	public LocalMempoolPeriodicSubmittor(CommandGenerator commandGenerator, NodeSelector nodeSelector) {
+		this(commandGenerator, nodeSelector, 1000L, 10000L);
+	}
+
+	/**
+	 * Creates a submittor which submits one command every {@code periodMs} milliseconds,
+	 * starting after {@code initialDelayMs} milliseconds.
+	 */
+	public LocalMempoolPeriodicSubmittor(CommandGenerator commandGenerator, NodeSelector nodeSelector, long initialDelayMs, long periodMs) {
+		if (periodMs <= 0) {
+			throw new IllegalArgumentException("Period must be positive: " + periodMs);
+		}
 		this.commands = PublishSubject.create();
 		this.commandGenerator = commandGenerator;
 		this.nodeSelector = nodeSelector;
+		this.initialDelayMs = initialDelayMs;
+		this.periodMs = periodMs;
 	}
 
 	private void act(RunningNetwork network, Command command, BFTNode node) {
@@ -58,7 +73,7 @@ public class LocalMempoolPeriodicSubmittor {
 	}
 
 	public void run(RunningNetwork network) {
-		Observable.interval(1, 10, TimeUnit.SECONDS)
+		Observable.interval(initialDelayMs, periodMs, TimeUnit.MILLISECONDS)
 			.map(i -> commandGenerator.nextCommand())
 			.flatMapSingle(cmd -> nodeSelector.nextNode(network).map(node -> Pair.of(cmd, node)))
 			.doOnNext(p -> this.act(network, p.getFirst(), p.getSecond()))
@@ -223,6 +223,16 @@ public class SimulationNetwork {
 		}
 	}
 
+	/**
+	 * Retrieves all messages sent by any node, before any latency, ordering or
+	 * dropping is applied by the configured {@link ChannelCommunication}.
+	 *
+	 * @return an observable of sent messages
+	 */
+	public Observable<MessageInTransit> sentMessages() {
+		return receivedMessages;
+	}
+
 	public SimulatedNetworkImpl getNetwork(BFTNode forNode) {
 		return receivers.computeIfAbsent(forNode, SimulatedNetworkImpl::new);
 	}
@@ -0,0 +1,89 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.integration.distributed.simulation.tests.consensus_ledger_localmempool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.radixdlt.integration.distributed.simulation.NetworkLatencies;
+import com.radixdlt.integration.distributed.simulation.NetworkOrdering;
+import com.radixdlt.integration.distributed.simulation.SimulationTest;
+import com.radixdlt.integration.distributed.simulation.SimulationTest.Builder;
+import com.radixdlt.integration.distributed.simulation.SimulationTest.TestResults;
+import com.radixdlt.integration.distributed.simulation.application.ConsensusBenchmark;
+import java.util.Collection;
+import java.util.List;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Measures consensus throughput and commit latency under constant mempool load
+ * for increasing validator set sizes. This is not part of {@code integrationTest},
+ * and is run with {@code ./gradlew benchmarkTest}. Set the {@code TEST_BENCHMARK_OUTPUT_DIR}
+ * environment variable to keep the JSON results of each run.
+ */
+@RunWith(Parameterized.class)
+public class MempoolThroughputBenchmarkTest {
+	private static final Logger logger = LogManager.getLogger();
+
+	@Parameters
+	public static Collection<Object[]> numNodes() {
+		return List.of(new Object[][] {
+			{4}, {16}, {64}, {128}
+		});
+	}
+
+	private final Builder bftTestBuilder;
+
+	public MempoolThroughputBenchmarkTest(int numNodes) {
+		this.bftTestBuilder = SimulationTest.builder()
+			.numNodes(numNodes)
+			.networkModules(
+				NetworkOrdering.inOrder(),
+				NetworkLatencies.fixed()
+			)
+			.pacemakerTimeout(Math.max(1000, numNodes * 50L))
+			.ledgerAndMempool()
+			.checkConsensusSafety("safety")
+			.addMempoolBenchmark("mempool-throughput", 100);
+	}
+
+	@Test
+	public void mempool_throughput_benchmark() {
+		SimulationTest simulationTest = bftTestBuilder.build();
+
+		TestResults results = simulationTest.run();
+		assertThat(results.getCheckResults()).allSatisfy((name, error) -> assertThat(error).isNotPresent());
+
+		ConsensusBenchmark.Results benchmarkResults = results.getBenchmarkResults().orElseThrow();
+		logger.info("{} nodes: {} commands/s, {} views/s, p50={}ms p99={}ms, {} messages/commit, {} consensus bytes/view ({} compact)",
+			benchmarkResults.getNumNodes(),
+			benchmarkResults.getCommittedCommandsPerSecond(),
+			benchmarkResults.getViewsPerSecond(),
+			benchmarkResults.getLatencyP50Ms(),
+			benchmarkResults.getLatencyP99Ms(),
+			benchmarkResults.getMessagesPerCommit(),
+			benchmarkResults.getConsensusBytesPerView(),
+			benchmarkResults.getCompactConsensusBytesPerView()
+		);
+		assertThat(benchmarkResults.getCommittedCommands()).isPositive();
+	}
+}
@@ -18,6 +18,7 @@
 package com.radixdlt.network.transport.tcp;
 
 import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
@@ -138,6 +139,41 @@ public class NettyTCPTransportRTTTest {
 		}
 	}
 
+	@Test
+	public void testThroughput() throws InterruptedException, ExecutionException, IOException {
+		final int runCount = 500_000;
+		final int messageSize = 1024;
+		// Maximum number of sends not yet completed
+		final int window = 4096;
+
+		final CountDownLatch received = new CountDownLatch(runCount);
+		this.transport1.start(message -> { });
+		this.transport2.start(message -> received.countDown());
+
+		try (TransportControl control1 = this.transport1.control()) {
+			this.obc1 = control1.open(this.transport2.localMetadata()).get();
+
+			final Semaphore inFlight = new Semaphore(window);
+			final byte[] data = new byte[messageSize];
+			final long start = System.nanoTime();
+			for (int i = 0; i < runCount; ++i) {
+				inFlight.acquire();
+				obc1.send(data).whenComplete((result, e) -> inFlight.release());
+			}
+			if (!received.await(60, TimeUnit.SECONDS)) {
+				throw new IllegalStateException("Only received " + (runCount - received.getCount()) + " of " + runCount + " messages");
+			}
+			final double seconds = (System.nanoTime() - start) / 1e9;
+			System.out.format("Messages = %s, size = %s, elapsed = %.3f seconds%n", runCount, messageSize, seconds);
+			System.out.format("Throughput = %.0f messages/s, %.1f MiB/s%n",
+				runCount / seconds, runCount * (double) messageSize / seconds / (1024.0 * 1024.0));
+		} finally {
+			if (this.obc1 != null) {
+				this.obc1.close();
+			}
+		}
+	}
+
 	private void outboundReceiver(InboundMessage message) {
 		this.obc2.send(message.message());
 	}
@@ -179,6 +215,21 @@ public class NettyTCPTransportRTTTest {
 			public boolean debugData(boolean defaultValue) {
 				return false;
 			}
+
+			@Override
+			public int workerThreads(int defaultValue) {
+				return defaultValue;
+			}
+
+			@Override
+			public boolean nativeTransport(boolean defaultValue) {
+				return defaultValue;
+			}
+
+			@Override
+			public int flushBatchSize(int defaultValue) {
+				return defaultValue;
+			}
 		};
 		Module systemCounterModule = new AbstractModule() {
 			@Override
@@ -179,6 +179,21 @@ public class NettyTCPTransportTest {
 			public boolean debugData(boolean defaultValue) {
 				return false;
 			}
+
+			@Override
+			public int workerThreads(int defaultValue) {
+				return defaultValue;
+			}
+
+			@Override
+			public boolean nativeTransport(boolean defaultValue) {
+				return defaultValue;
+			}
+
+			@Override
+			public int flushBatchSize(int defaultValue) {
+				return defaultValue;
+			}
 		};
 		Module systemCounterModule = new AbstractModule() {
 			@Override
@@ -23,7 +23,7 @@ import com.radixdlt.store.LedgerEntry;
 import com.radixdlt.store.LedgerSearchMode;
 import com.radixdlt.store.SearchCursor;
 import com.radixdlt.store.StoreIndex;
-import com.sleepycat.je.Transaction;
+import com.radixdlt.store.LedgerTransaction;
 import org.junit.Assert;
 import org.junit.Test;
 import org.radix.integration.RadixTestWithStores;
@@ -41,7 +41,7 @@ public class BerkeleySearchCursorTests extends RadixTestWithStores {
 
 		List<LedgerEntry> ledgerEntries = ledgerEntryGenerator.createLedgerEntries(identity, 1);
 		StoreIndex uniqueIndex = new StoreIndex(PREFIX, ledgerEntries.get(0).getAID().getBytes());
-		Transaction tx = getStore().createTransaction();
+		LedgerTransaction tx = getStore().createTransaction();
 		try {
 			getStore().store(tx, ledgerEntries.get(0), ImmutableSet.of(uniqueIndex), ImmutableSet.of());
 			tx.commit();
@@ -65,7 +65,7 @@ public class BerkeleySearchCursorTests extends RadixTestWithStores {
 		List<LedgerEntry> ledgerEntries = ledgerEntryGenerator.createLedgerEntries(2);
 		StoreIndex uniqueIndex = new StoreIndex(PREFIX, ledgerEntries.get(0).getAID().getBytes());
 
-		Transaction tx = getStore().createTransaction();
+		LedgerTransaction tx = getStore().createTransaction();
 		try {
 			getStore().store(tx, ledgerEntries.get(0), ImmutableSet.of(uniqueIndex), ImmutableSet.of());
 			tx.commit();
@@ -89,7 +89,7 @@ public class BerkeleySearchCursorTests extends RadixTestWithStores {
 		StoreIndex index = new StoreIndex(PREFIX, identity.euid().toByteArray());
 		List<LedgerEntry> ledgerEntries = ledgerEntryGenerator.createLedgerEntries(identity, 2);
 
-		Transaction tx = getStore().createTransaction();
+		LedgerTransaction tx = getStore().createTransaction();
 		try {
 			for (LedgerEntry ledgerEntry : ledgerEntries) {
 				StoreIndex uniqueIndex = new StoreIndex(PREFIX, ledgerEntry.getAID().getBytes());
@@ -120,7 +120,7 @@ public class BerkeleySearchCursorTests extends RadixTestWithStores {
 		StoreIndex index = new StoreIndex(PREFIX, identity.euid().toByteArray());
 		List<LedgerEntry> ledgerEntries = ledgerEntryGenerator.createLedgerEntries(identity, 2);
 
-		Transaction tx = getStore().createTransaction();
+		LedgerTransaction tx = getStore().createTransaction();
 		try {
 			for (LedgerEntry ledgerEntry : ledgerEntries) {
 				StoreIndex uniqueIndex = new StoreIndex(PREFIX, ledgerEntry.getAID().getBytes());
@@ -151,7 +151,7 @@ public class BerkeleySearchCursorTests extends RadixTestWithStores {
 		StoreIndex index = new StoreIndex(PREFIX, identity.euid().toByteArray());
 		List<LedgerEntry> ledgerEntries = ledgerEntryGenerator.createLedgerEntries(identity, 2);
 
-		Transaction tx = getStore().createTransaction();
+		LedgerTransaction tx = getStore().createTransaction();
 		try {
 			for (LedgerEntry ledgerEntry : ledgerEntries) {
 				StoreIndex uniqueIndex = new StoreIndex(PREFIX, ledgerEntry.getAID().getBytes());
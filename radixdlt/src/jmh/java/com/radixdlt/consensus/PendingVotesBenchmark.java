@@ -0,0 +1,82 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.consensus;
+
+import com.google.common.collect.ImmutableList;
+import com.radixdlt.consensus.bft.BFTNode;
+import com.radixdlt.consensus.bft.BFTValidator;
+import com.radixdlt.consensus.bft.BFTValidatorSet;
+import com.radixdlt.consensus.bft.VerifiedVertex;
+import com.radixdlt.consensus.bft.View;
+import com.radixdlt.crypto.ECDSASignature;
+import com.radixdlt.crypto.ECKeyPair;
+import com.radixdlt.crypto.HashUtils;
+import com.radixdlt.crypto.Hasher;
+import com.radixdlt.utils.UInt256;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link PendingVotes#insertVote(Vote, BFTValidatorSet)} when the
+ * next leader collects votes from every validator for one proposal.
+ */
+@State(Scope.Thread)
+public class PendingVotesBenchmark {
+	@Param({ "4", "16", "64", "128" })
+	int validators;
+
+	private final Hasher hasher = Sha256Hasher.withDefaultSerialization();
+	private BFTValidatorSet validatorSet;
+	private ImmutableList<Vote> votes;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		final ImmutableList<BFTNode> nodes = Stream.generate(() -> BFTNode.create(ECKeyPair.generateNew().getPublicKey()))
+			.limit(this.validators)
+			.collect(ImmutableList.toImmutableList());
+		this.validatorSet = BFTValidatorSet.from(nodes.stream().map(node -> BFTValidator.from(node, UInt256.ONE)));
+
+		final LedgerHeader ledgerHeader = LedgerHeader.genesis(HashUtils.zero256(), null);
+		final VerifiedVertex genesisVertex = new VerifiedVertex(UnverifiedVertex.createGenesis(ledgerHeader), HashUtils.zero256());
+		final HighQC highQC = HighQC.from(QuorumCertificate.ofGenesis(genesisVertex, ledgerHeader));
+		final BFTHeader parent = BFTHeader.ofGenesisAncestor(ledgerHeader);
+		final BFTHeader proposed = new BFTHeader(View.of(1), HashUtils.random256(), ledgerHeader);
+		final TimestampedVoteData voteData = new TimestampedVoteData(new VoteData(proposed, parent, null), 1L);
+		this.votes = nodes.stream()
+			.map(node -> new Vote(node, voteData, new ECDSASignature(), highQC, Optional.empty()))
+			.collect(ImmutableList.toImmutableList());
+	}
+
+	/**
+	 * Inserts votes from all validators, the last of which forms a quorum certificate.
+	 */
+	@Benchmark
+	public void insertVotesToQuorum(Blackhole bh) {
+		final PendingVotes pendingVotes = new PendingVotes(this.hasher);
+		for (Vote vote : this.votes) {
+			bh.consume(pendingVotes.insertVote(vote, this.validatorSet));
+		}
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.consensus;
+
+import com.google.common.hash.HashCode;
+import com.radixdlt.consensus.bft.View;
+import com.radixdlt.crypto.HashUtils;
+import com.radixdlt.crypto.Hasher;
+import com.radixdlt.ledger.AccumulatorState;
+import java.util.Random;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures {@link Sha256Hasher} on the objects hashed for every vote and command,
+ * which includes serialization of the object.
+ */
+@State(Scope.Thread)
+public class Sha256HasherBenchmark {
+	@Param({ "32", "1024", "65536" })
+	int commandSize;
+
+	private final Hasher hasher = Sha256Hasher.withDefaultSerialization();
+	private VoteData voteData;
+	private Command command;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		final LedgerHeader parentHeader = LedgerHeader.create(1L, View.of(10), new AccumulatorState(100L, HashUtils.random256()), 1000L);
+		final LedgerHeader proposedHeader = LedgerHeader.create(1L, View.of(11), new AccumulatorState(101L, HashUtils.random256()), 1001L);
+		final LedgerHeader committedHeader = LedgerHeader.create(1L, View.of(9), new AccumulatorState(99L, HashUtils.random256()), 999L);
+		this.voteData = new VoteData(
+			new BFTHeader(View.of(11), HashUtils.random256(), proposedHeader),
+			new BFTHeader(View.of(10), HashUtils.random256(), parentHeader),
+			new BFTHeader(View.of(9), HashUtils.random256(), committedHeader)
+		);
+
+		final byte[] payload = new byte[this.commandSize];
+		new Random(1234L).nextBytes(payload);
+		this.command = new Command(payload);
+	}
+
+	@Benchmark
+	public HashCode hashVoteData() {
+		return this.hasher.hash(this.voteData);
+	}
+
+	@Benchmark
+	public HashCode hashCommand() {
+		return this.hasher.hash(this.command);
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.consensus.bft;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import com.radixdlt.consensus.BFTHeader;
+import com.radixdlt.consensus.Command;
+import com.radixdlt.consensus.HighQC;
+import com.radixdlt.consensus.Ledger;
+import com.radixdlt.consensus.LedgerHeader;
+import com.radixdlt.consensus.QuorumCertificate;
+import com.radixdlt.consensus.Sha256Hasher;
+import com.radixdlt.consensus.TimestampedECDSASignatures;
+import com.radixdlt.consensus.UnverifiedVertex;
+import com.radixdlt.consensus.VoteData;
+import com.radixdlt.crypto.HashUtils;
+import com.radixdlt.crypto.Hasher;
+import com.radixdlt.ledger.AccumulatorState;
+import java.util.LinkedList;
+import java.util.Optional;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures vertex insertion and path lookup in {@link VertexStore} for
+ * uncommitted chains of increasing depth.
+ * <p>
+ * The ledger is a trivial stand-in which prepares every vertex with the same
+ * header, so that only the cost of the store itself is measured.
+ */
+@State(Scope.Thread)
+public class VertexStoreBenchmark {
+	private static final LedgerHeader HEADER = LedgerHeader.create(
+		0, View.genesis(), new AccumulatorState(0, HashUtils.zero256()), 0
+	);
+
+	@Param({ "10", "100", "1000" })
+	int depth;
+
+	private final Hasher hasher = Sha256Hasher.withDefaultSerialization();
+	private final Ledger ledger = (previous, vertex) ->
+		Optional.of(new PreparedVertex(vertex, HEADER, ImmutableList.of(), ImmutableMap.of(), 1L));
+
+	private VerifiedVertex genesisVertex;
+	private QuorumCertificate rootQC;
+	private ImmutableList<VerifiedVertex> chain;
+	private VertexStore populatedStore;
+	private HashCode tipId;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		this.genesisVertex = new VerifiedVertex(UnverifiedVertex.createGenesis(HEADER), HashUtils.zero256());
+		this.rootQC = QuorumCertificate.ofGenesis(this.genesisVertex, HEADER);
+
+		final ImmutableList.Builder<VerifiedVertex> builder = ImmutableList.builder();
+		BFTHeader grandParent = new BFTHeader(View.genesis(), this.genesisVertex.getId(), HEADER);
+		BFTHeader parent = grandParent;
+		for (int i = 0; i < this.depth; i++) {
+			final QuorumCertificate qc = parent.getView().isGenesis()
+				? this.rootQC
+				: new QuorumCertificate(new VoteData(parent, grandParent, null), new TimestampedECDSASignatures());
+			final View view = parent.getView().next();
+			final UnverifiedVertex rawVertex = UnverifiedVertex.createVertex(qc, view, new Command(new byte[] {(byte) i}));
+			final VerifiedVertex vertex = new VerifiedVertex(rawVertex, this.hasher.hash(rawVertex));
+			builder.add(vertex);
+			grandParent = parent;
+			parent = new BFTHeader(view, vertex.getId(), HEADER);
+		}
+		this.chain = builder.build();
+		this.tipId = parent.getVertexId();
+
+		this.populatedStore = createStore();
+		this.chain.forEach(this.populatedStore::insertVertex);
+	}
+
+	private VertexStore createStore() {
+		return VertexStore.create(
+			VerifiedVertexStoreState.create(HighQC.from(this.rootQC), this.genesisVertex, Optional.empty()),
+			this.ledger,
+			update -> { },
+			update -> { },
+			update -> { },
+			update -> { }
+		);
+	}
+
+	/**
+	 * Inserts a whole uncommitted chain into an empty store, one vertex at a time.
+	 */
+	@Benchmark
+	public VertexStore insertChain() {
+		final VertexStore store = createStore();
+		this.chain.forEach(store::insertVertex);
+		return store;
+	}
+
+	/**
+	 * Looks up the path from the root to the tip of the chain, as done for every
+	 * inserted vertex.
+	 */
+	@Benchmark
+	public LinkedList<PreparedVertex> getPathFromRoot() {
+		return this.populatedStore.getPathFromRoot(this.tipId);
+	}
+}
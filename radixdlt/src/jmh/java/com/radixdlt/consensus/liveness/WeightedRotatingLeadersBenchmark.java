@@ -0,0 +1,82 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.consensus.liveness;
+
+import com.radixdlt.consensus.bft.BFTNode;
+import com.radixdlt.consensus.bft.BFTValidator;
+import com.radixdlt.consensus.bft.BFTValidatorSet;
+import com.radixdlt.consensus.bft.View;
+import com.radixdlt.crypto.ECKeyPair;
+import com.radixdlt.utils.UInt256;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures leader election in {@link WeightedRotatingLeaders} with validators of
+ * differing power, configured as in the consensus modules.
+ */
+@State(Scope.Thread)
+public class WeightedRotatingLeadersBenchmark {
+	private static final int CACHE_SIZE = 10;
+	private static final long PAST_VIEW = 500L;
+
+	@Param({ "4", "16", "64", "128" })
+	int validators;
+
+	private WeightedRotatingLeaders proposerElection;
+	private long view;
+
+	@Setup(Level.Iteration)
+	public void setup() {
+		final BFTValidatorSet validatorSet = BFTValidatorSet.from(
+			IntStream.range(0, this.validators)
+				.mapToObj(i -> BFTValidator.from(BFTNode.create(ECKeyPair.generateNew().getPublicKey()), UInt256.from(i + 1L)))
+		);
+		this.proposerElection = new WeightedRotatingLeaders(
+			validatorSet,
+			Comparator.comparing(v -> v.getNode().getKey().euid()),
+			CACHE_SIZE
+		);
+		this.view = 2 * PAST_VIEW;
+		this.proposerElection.getProposer(View.of(this.view));
+	}
+
+	/**
+	 * Computes the proposer of the next view, as done every view by consensus.
+	 */
+	@Benchmark
+	public BFTNode nextView() {
+		this.view += 1;
+		return this.proposerElection.getProposer(View.of(this.view));
+	}
+
+	/**
+	 * Computes the proposer of a view which is no longer cached, which requires
+	 * recomputing weights from the start.
+	 */
+	@Benchmark
+	public BFTNode pastView() {
+		return this.proposerElection.getProposer(View.of(PAST_VIEW));
+	}
+}
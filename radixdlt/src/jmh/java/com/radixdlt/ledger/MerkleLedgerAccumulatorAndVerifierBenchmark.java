@@ -0,0 +1,72 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.ledger;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.radixdlt.consensus.Sha256Hasher;
+import com.radixdlt.crypto.HashUtils;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures accumulation and verification of command hashes in
+ * {@link MerkleLedgerAccumulatorAndVerifier}, to compare with
+ * {@link SimpleLedgerAccumulatorAndVerifierBenchmark}.
+ */
+@State(Scope.Thread)
+public class MerkleLedgerAccumulatorAndVerifierBenchmark {
+	@Param({ "1", "10", "100", "1000", "10000" })
+	int commands;
+
+	private final MerkleLedgerAccumulatorAndVerifier accumulator =
+		new MerkleLedgerAccumulatorAndVerifier(Sha256Hasher.withDefaultSerialization());
+	private AccumulatorState start;
+	private AccumulatorState tail;
+	private ImmutableList<HashCode> hashes;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		this.start = new AccumulatorState(0, HashUtils.zero256());
+		this.hashes = Stream.generate(HashUtils::random256)
+			.limit(this.commands)
+			.collect(ImmutableList.toImmutableList());
+		AccumulatorState state = this.start;
+		for (HashCode hash : this.hashes) {
+			state = this.accumulator.accumulate(state, hash);
+		}
+		this.tail = state;
+	}
+
+	@Benchmark
+	public boolean verify() {
+		return this.accumulator.verify(this.start, this.hashes, this.tail);
+	}
+
+	@Benchmark
+	public Optional<ImmutableList<HashCode>> verifyAndGetExtension() {
+		return this.accumulator.verifyAndGetExtension(this.start, this.hashes, Function.identity(), this.tail);
+	}
+}
@@ -0,0 +1,145 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.ledger;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import com.radixdlt.consensus.BFTHeader;
+import com.radixdlt.consensus.Command;
+import com.radixdlt.consensus.LedgerHeader;
+import com.radixdlt.consensus.QuorumCertificate;
+import com.radixdlt.consensus.Sha256Hasher;
+import com.radixdlt.consensus.TimestampedECDSASignatures;
+import com.radixdlt.consensus.UnverifiedVertex;
+import com.radixdlt.consensus.VerifiedLedgerHeaderAndProof;
+import com.radixdlt.consensus.VoteData;
+import com.radixdlt.consensus.bft.PreparedVertex;
+import com.radixdlt.consensus.bft.VerifiedVertex;
+import com.radixdlt.consensus.bft.VerifiedVertexStoreState;
+import com.radixdlt.consensus.bft.View;
+import com.radixdlt.counters.SystemCountersImpl;
+import com.radixdlt.crypto.HashUtils;
+import com.radixdlt.crypto.Hasher;
+import com.radixdlt.ledger.StateComputerLedger.PreparedCommand;
+import com.radixdlt.ledger.StateComputerLedger.StateComputer;
+import com.radixdlt.ledger.StateComputerLedger.StateComputerResult;
+import com.radixdlt.mempool.EmptyMempool;
+import java.util.LinkedList;
+import java.util.Optional;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures {@link StateComputerLedger#prepare(LinkedList, VerifiedVertex)} on top of
+ * uncommitted chains of increasing depth, one command per vertex.
+ * <p>
+ * The state computer is a trivial stand-in which accepts every command, so that
+ * only the cost of re-verifying the uncommitted chain and accumulating is measured.
+ */
+@State(Scope.Thread)
+public class StateComputerLedgerBenchmark {
+	@Param({ "1", "10", "100" })
+	int depth;
+
+	private final Hasher hasher = Sha256Hasher.withDefaultSerialization();
+	private StateComputerLedger ledger;
+	private LinkedList<PreparedVertex> previous;
+	private VerifiedVertex nextVertex;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		final LedgerHeader genesisHeader = LedgerHeader.genesis(HashUtils.zero256(), null);
+		final UnverifiedVertex genesis = UnverifiedVertex.createGenesis(genesisHeader);
+		final VerifiedVertex genesisVertex = new VerifiedVertex(genesis, this.hasher.hash(genesis));
+		final QuorumCertificate genesisQC = QuorumCertificate.ofGenesis(genesisVertex, genesisHeader);
+		final SimpleLedgerAccumulatorAndVerifier accumulator = new SimpleLedgerAccumulatorAndVerifier(this.hasher);
+
+		this.ledger = new StateComputerLedger(
+			System::currentTimeMillis,
+			VerifiedLedgerHeaderAndProof.genesis(HashUtils.zero256(), null),
+			new VerifiedLedgerHeaderAndProof.OrderByEpochAndVersionComparator(),
+			new EmptyMempool(),
+			new AcceptAllStateComputer(this.hasher),
+			update -> { },
+			accumulator,
+			accumulator,
+			new SystemCountersImpl(),
+			this.hasher
+		);
+
+		this.previous = new LinkedList<>();
+		QuorumCertificate qc = genesisQC;
+		BFTHeader grandParent = genesisQC.getProposed();
+		for (int i = 0; i <= this.depth; i++) {
+			final UnverifiedVertex rawVertex = UnverifiedVertex.createVertex(qc, View.of(i + 1L), new Command(new byte[] {(byte) i}));
+			final VerifiedVertex vertex = new VerifiedVertex(rawVertex, this.hasher.hash(rawVertex));
+			if (i == this.depth) {
+				this.nextVertex = vertex;
+				break;
+			}
+			final PreparedVertex prepared = this.ledger.prepare(this.previous, vertex).orElseThrow();
+			this.previous.add(prepared);
+			final BFTHeader parent = new BFTHeader(prepared.getView(), prepared.getId(), prepared.getLedgerHeader());
+			qc = new QuorumCertificate(new VoteData(parent, grandParent, null), new TimestampedECDSASignatures());
+			grandParent = parent;
+		}
+	}
+
+	@Benchmark
+	public Optional<PreparedVertex> prepare() {
+		return this.ledger.prepare(this.previous, this.nextVertex);
+	}
+
+	private static final class AcceptAllStateComputer implements StateComputer {
+		private final Hasher hasher;
+
+		AcceptAllStateComputer(Hasher hasher) {
+			this.hasher = hasher;
+		}
+
+		@Override
+		public StateComputerResult prepare(ImmutableList<PreparedCommand> previous, Command next, long epoch, View view, long timestamp) {
+			if (next == null) {
+				return new StateComputerResult(ImmutableList.of(), ImmutableMap.of());
+			}
+			final HashCode hash = this.hasher.hash(next);
+			final PreparedCommand prepared = new PreparedCommand() {
+				@Override
+				public Command command() {
+					return next;
+				}
+
+				@Override
+				public HashCode hash() {
+					return hash;
+				}
+			};
+			return new StateComputerResult(ImmutableList.of(prepared), ImmutableMap.of());
+		}
+
+		@Override
+		public void commit(VerifiedCommandsAndProof verifiedCommandsAndProof, VerifiedVertexStoreState vertexStoreState) {
+			// Nothing to do, only prepare is measured
+		}
+	}
+}
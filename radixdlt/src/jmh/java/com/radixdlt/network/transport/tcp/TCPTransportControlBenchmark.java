@@ -0,0 +1,125 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.network.transport.tcp;
+
+import static org.mockito.Mockito.mock;
+
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.network.transport.StaticTransportMetadata;
+import com.radixdlt.network.transport.TransportMetadata;
+import com.radixdlt.network.transport.TransportOutboundConnection;
+import com.radixdlt.network.transport.tcp.TCPTransportControlImpl.TCPConnectionHandlerChannelInbound;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.socket.SocketChannel;
+import java.lang.reflect.Proxy;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Measures contention when many threads look up outbound connections to
+ * a large number of connected peers, as happens for every sent message.
+ * <p>
+ * Channels are lightweight proxies, so that the benchmark measures the
+ * connection registry rather than mocking overhead.
+ */
+public class TCPTransportControlBenchmark {
+	@State(Scope.Benchmark)
+	public static class ConnectedPeers {
+		@Param({ "100", "500" })
+		int peerCount;
+
+		TCPConnectionHandlerChannelInbound handler;
+		TransportMetadata[] metadata;
+		TCPTransportOutboundConnectionFactory outboundFactory;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			this.handler = new TCPConnectionHandlerChannelInbound(this.peerCount, mock(SystemCounters.class));
+			final TransportOutboundConnection connection = mock(TransportOutboundConnection.class);
+			this.outboundFactory = (channel, endpointMetadata) -> connection;
+			this.metadata = new TransportMetadata[this.peerCount];
+			for (int i = 0; i < this.peerCount; i++) {
+				String host = String.format("10.0.%s.%s", i / 256, i % 256);
+				InetSocketAddress address = new InetSocketAddress(host, 30000);
+				SocketChannel channel = socketChannel(address);
+				this.handler.channelActive(context(channel));
+				this.metadata[i] = StaticTransportMetadata.of(
+					TCPConstants.METADATA_HOST, host,
+					TCPConstants.METADATA_PORT, "30000"
+				);
+			}
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public CompletableFuture<TransportOutboundConnection> findActiveChannel1Thread(ConnectedPeers state) {
+		return find(state);
+	}
+
+	@Benchmark
+	@Threads(8)
+	public CompletableFuture<TransportOutboundConnection> findActiveChannel8Threads(ConnectedPeers state) {
+		return find(state);
+	}
+
+	private static CompletableFuture<TransportOutboundConnection> find(ConnectedPeers state) {
+		TransportMetadata metadata = state.metadata[ThreadLocalRandom.current().nextInt(state.metadata.length)];
+		// Transport is only used when no connection exists, which is never the case here
+		return state.handler.findOrCreateActiveChannel(metadata, null, state.outboundFactory);
+	}
+
+	private static SocketChannel socketChannel(InetSocketAddress address) {
+		return (SocketChannel) Proxy.newProxyInstance(
+			SocketChannel.class.getClassLoader(),
+			new Class<?>[] { SocketChannel.class },
+			(proxy, method, args) -> {
+				switch (method.getName()) {
+					case "isActive":
+					case "isOpen":
+						return Boolean.TRUE;
+					case "remoteAddress":
+					case "localAddress":
+						return address;
+					case "hashCode":
+						return System.identityHashCode(proxy);
+					case "equals":
+						return proxy == args[0];
+					default:
+						return null;
+				}
+			}
+		);
+	}
+
+	private static ChannelHandlerContext context(SocketChannel channel) {
+		return (ChannelHandlerContext) Proxy.newProxyInstance(
+			ChannelHandlerContext.class.getClassLoader(),
+			new Class<?>[] { ChannelHandlerContext.class },
+			(proxy, method, args) -> "channel".equals(method.getName()) ? channel : null
+		);
+	}
+}
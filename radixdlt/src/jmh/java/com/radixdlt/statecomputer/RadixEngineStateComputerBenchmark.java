@@ -0,0 +1,224 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.statecomputer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.TypeLiteral;
+import com.google.inject.name.Names;
+import com.radixdlt.DefaultSerialization;
+import com.radixdlt.NoFeeModule;
+import com.radixdlt.RadixEngineModule;
+import com.radixdlt.RadixEngineValidatorComputersModule;
+import com.radixdlt.atommodel.Atom;
+import com.radixdlt.atommodel.AtomAlreadySignedException;
+import com.radixdlt.atommodel.tokens.TokenDefinitionUtils;
+import com.radixdlt.atommodel.validators.RegisteredValidatorParticle;
+import com.radixdlt.atommodel.validators.UnregisteredValidatorParticle;
+import com.radixdlt.consensus.BFTHeader;
+import com.radixdlt.consensus.Command;
+import com.radixdlt.consensus.LedgerHeader;
+import com.radixdlt.consensus.Sha256Hasher;
+import com.radixdlt.consensus.TimestampedECDSASignatures;
+import com.radixdlt.consensus.VerifiedLedgerHeaderAndProof;
+import com.radixdlt.consensus.bft.BFTNode;
+import com.radixdlt.consensus.bft.BFTValidator;
+import com.radixdlt.consensus.bft.BFTValidatorSet;
+import com.radixdlt.consensus.bft.VerifiedVertexStoreState;
+import com.radixdlt.consensus.bft.View;
+import com.radixdlt.constraintmachine.Spin;
+import com.radixdlt.crypto.ECKeyPair;
+import com.radixdlt.crypto.HashUtils;
+import com.radixdlt.crypto.Hasher;
+import com.radixdlt.fees.NativeToken;
+import com.radixdlt.identifiers.RRI;
+import com.radixdlt.identifiers.RadixAddress;
+import com.radixdlt.ledger.AccumulatorState;
+import com.radixdlt.ledger.StateComputerLedger.PreparedCommand;
+import com.radixdlt.ledger.StateComputerLedger.StateComputerResult;
+import com.radixdlt.ledger.VerifiedCommandsAndProof;
+import com.radixdlt.middleware.ParticleGroup;
+import com.radixdlt.middleware2.ClientAtom;
+import com.radixdlt.middleware2.LedgerAtom;
+import com.radixdlt.middleware2.store.RadixEngineAtomicCommitManager;
+import com.radixdlt.serialization.DsonOutput.Output;
+import com.radixdlt.serialization.Serialization;
+import com.radixdlt.store.EngineStore;
+import com.radixdlt.store.InMemoryEngineStore;
+import com.radixdlt.utils.UInt256;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures preparing and committing commands through a {@link RadixEngineStateComputer}
+ * backed by an in-memory engine store.
+ */
+public class RadixEngineStateComputerBenchmark {
+	private static final Hasher HASHER = Sha256Hasher.withDefaultSerialization();
+	private static final long EPOCH = 0L;
+
+	private static RadixEngineStateComputer createStateComputer() {
+		final ECKeyPair universeKey = ECKeyPair.generateNew();
+		final RRI nativeToken = RRI.of(new RadixAddress((byte) 0, universeKey.getPublicKey()), TokenDefinitionUtils.getNativeTokenShortCode());
+		final BFTValidatorSet validatorSet = BFTValidatorSet.from(
+			Stream.of(BFTValidator.from(BFTNode.create(universeKey.getPublicKey()), UInt256.ONE))
+		);
+		return Guice.createInjector(
+			new RadixEngineModule(),
+			new RadixEngineValidatorComputersModule(),
+			new NoFeeModule(),
+			new AbstractModule() {
+				@Override
+				protected void configure() {
+					bind(Serialization.class).toInstance(DefaultSerialization.getInstance());
+					bind(Hasher.class).toInstance(HASHER);
+					bind(BFTValidatorSet.class).toInstance(validatorSet);
+					bind(new TypeLiteral<EngineStore<LedgerAtom>>() { }).toInstance(new InMemoryEngineStore<>());
+					bind(RadixEngineAtomicCommitManager.class).toInstance(new NoOpCommitManager());
+					bindConstant().annotatedWith(Names.named("magic")).to(0);
+					bindConstant().annotatedWith(MinValidators.class).to(1);
+					bindConstant().annotatedWith(MaxValidators.class).to(100);
+					bind(RRI.class).annotatedWith(NativeToken.class).toInstance(nativeToken);
+					bind(View.class).annotatedWith(EpochCeilingView.class).toInstance(View.of(Long.MAX_VALUE));
+				}
+			}
+		).getInstance(RadixEngineStateComputer.class);
+	}
+
+	private static Command registerValidatorCommand() throws AtomAlreadySignedException {
+		final ECKeyPair keyPair = ECKeyPair.generateNew();
+		final RadixAddress address = new RadixAddress((byte) 0, keyPair.getPublicKey());
+		final ParticleGroup particleGroup = ParticleGroup.builder()
+			.addParticle(new UnregisteredValidatorParticle(address, 0), Spin.DOWN)
+			.addParticle(new RegisteredValidatorParticle(address, ImmutableSet.of(), 1), Spin.UP)
+			.build();
+		final Atom atom = new Atom();
+		atom.addParticleGroup(particleGroup);
+		atom.sign(keyPair, HASHER);
+		final ClientAtom clientAtom = ClientAtom.convertFromApiAtom(atom, HASHER);
+		return new Command(DefaultSerialization.getInstance().toDson(clientAtom, Output.ALL));
+	}
+
+	@State(Scope.Thread)
+	public static class PrepareState {
+		@Param({ "0", "10", "100" })
+		int previousCommands;
+
+		RadixEngineStateComputer stateComputer;
+		ImmutableList<PreparedCommand> previous;
+		Command userCommand;
+		View nextView;
+
+		@Setup(Level.Trial)
+		public void setup() throws AtomAlreadySignedException {
+			this.stateComputer = createStateComputer();
+			final ImmutableList.Builder<PreparedCommand> builder = ImmutableList.builder();
+			for (int i = 1; i <= this.previousCommands; i++) {
+				// Each prepared system update depends on the previous one
+				final StateComputerResult result = this.stateComputer.prepare(builder.build(), null, EPOCH, View.of(i), i);
+				builder.addAll(result.getSuccessfulCommands());
+			}
+			this.previous = builder.build();
+			this.nextView = View.of(this.previousCommands + 1L);
+			this.userCommand = registerValidatorCommand();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class CommitState {
+		RadixEngineStateComputer stateComputer;
+		long view;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.stateComputer = createStateComputer();
+			this.view = 0L;
+		}
+	}
+
+	/**
+	 * Prepares the system update of the next view on top of uncommitted previous commands.
+	 */
+	@Benchmark
+	public StateComputerResult prepareSystemUpdate(PrepareState state) {
+		return state.stateComputer.prepare(state.previous, null, EPOCH, state.nextView, state.nextView.number());
+	}
+
+	/**
+	 * Prepares the system update of the next view and a signed user command on top
+	 * of uncommitted previous commands.
+	 */
+	@Benchmark
+	public StateComputerResult prepareUserCommand(PrepareState state) {
+		return state.stateComputer.prepare(state.previous, state.userCommand, EPOCH, state.nextView, state.nextView.number());
+	}
+
+	/**
+	 * Prepares and commits the system update of the next view, as done for every
+	 * committed vertex.
+	 */
+	@Benchmark
+	public void prepareAndCommit(CommitState state) {
+		state.view += 1;
+		final View view = View.of(state.view);
+		final StateComputerResult result = state.stateComputer.prepare(ImmutableList.of(), null, EPOCH, view, state.view);
+		final ImmutableList<Command> commands = result.getSuccessfulCommands().stream()
+			.map(PreparedCommand::command)
+			.collect(ImmutableList.toImmutableList());
+		final LedgerHeader ledgerHeader = LedgerHeader.create(EPOCH, view, new AccumulatorState(state.view, HashUtils.zero256()), state.view);
+		final BFTHeader header = BFTHeader.ofGenesisAncestor(ledgerHeader);
+		final VerifiedLedgerHeaderAndProof proof = new VerifiedLedgerHeaderAndProof(
+			header,
+			header,
+			0,
+			HashUtils.zero256(),
+			ledgerHeader,
+			new TimestampedECDSASignatures()
+		);
+		state.stateComputer.commit(new VerifiedCommandsAndProof(commands, proof), null);
+	}
+
+	private static final class NoOpCommitManager implements RadixEngineAtomicCommitManager {
+		@Override
+		public void startTransaction() {
+			// Nothing to do, engine store is in memory
+		}
+
+		@Override
+		public void commitTransaction() {
+			// Nothing to do, engine store is in memory
+		}
+
+		@Override
+		public void abortTransaction() {
+			// Nothing to do, engine store is in memory
+		}
+
+		@Override
+		public void save(VerifiedVertexStoreState vertexStoreState) {
+			// Nothing to do, vertex store is not persisted
+		}
+	}
+}
@@ -0,0 +1,215 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.store;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.MoreFiles;
+import com.google.common.io.RecursiveDeleteOption;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.radixdlt.DefaultSerialization;
+import com.radixdlt.consensus.HighQC;
+import com.radixdlt.consensus.LedgerHeader;
+import com.radixdlt.consensus.QuorumCertificate;
+import com.radixdlt.consensus.UnverifiedVertex;
+import com.radixdlt.consensus.bft.PersistentVertexStore;
+import com.radixdlt.consensus.bft.VerifiedVertex;
+import com.radixdlt.consensus.bft.VerifiedVertexStoreState;
+import com.radixdlt.crypto.HashUtils;
+import com.radixdlt.counters.SystemCountersImpl;
+import com.radixdlt.identifiers.AID;
+import com.radixdlt.properties.RuntimeProperties;
+import com.radixdlt.store.appendlog.AppendLogLedgerEntryStore;
+import com.radixdlt.store.berkeley.BerkeleyLedgerEntryStore;
+import com.radixdlt.store.berkeley.NextCommittedLimitReachedException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.radix.database.DatabaseEnvironment;
+
+/**
+ * Compares {@link BerkeleyLedgerEntryStore} with {@link AppendLogLedgerEntryStore} on
+ * throughput of committing transactions of ledger entries with their indices and the vertex
+ * store state, of saving the vertex store state alone as on each vertex insertion and high
+ * QC update, and of reading committed entries as when serving sync requests.  The disk usage
+ * of each store, including the vertex store states saved, is printed at the end of each trial:
+ * <pre>
+ *    $ gradle jmh -P jmhInclude=LedgerEntryStoreBenchmark
+ * </pre>
+ */
+public class LedgerEntryStoreBenchmark {
+	private static final int ENTRIES_PER_TRANSACTION = 100;
+	private static final int ENTRY_SIZE = 1024;
+	private static final int PRELOADED_ENTRIES = 100_000;
+	private static final int SYNC_BATCH_SIZE = ENTRIES_PER_TRANSACTION;
+	private static final long SEGMENT_SIZE = 16L * 1024L * 1024L;
+	// Vertex insertions and high QC updates saved between commits
+	private static final int VERTEX_STORE_SAVES_PER_TRANSACTION = 3;
+
+	private static final byte SPIN_PREFIX = 2;
+	private static final byte ADDRESS_PREFIX = 3;
+	private static final byte PARTICLE_CLASS_PREFIX = 4;
+	private static final int ADDRESSES = 1_000;
+	private static final int PARTICLE_CLASSES = 8;
+
+	@State(Scope.Benchmark)
+	public static class StoreState {
+		@Param({ "berkeley", "append_log" })
+		String store;
+
+		final Random random = new Random(1234L);
+		Path directory;
+		DatabaseEnvironment dbEnv;
+		LedgerEntryStore ledgerStore;
+		PersistentVertexStore vertexStore;
+		long nextStateVersion;
+		long vertexStoreSaves;
+
+		@Setup(Level.Trial)
+		public void setup() throws IOException {
+			this.directory = Files.createTempDirectory("ledger-store-benchmark");
+			if ("berkeley".equals(this.store)) {
+				RuntimeProperties properties = new RuntimeProperties(new JSONObject(), null);
+				properties.set("db.location", this.directory.toString());
+				this.dbEnv = new DatabaseEnvironment(properties);
+				final BerkeleyLedgerEntryStore berkeleyStore = new BerkeleyLedgerEntryStore(
+					DefaultSerialization.getInstance(), this.dbEnv, new SystemCountersImpl()
+				);
+				this.ledgerStore = berkeleyStore;
+				this.vertexStore = berkeleyStore;
+			} else {
+				final AppendLogLedgerEntryStore appendLogStore = new AppendLogLedgerEntryStore(
+					this.directory,
+					DefaultSerialization.getInstance(),
+					new SystemCountersImpl(),
+					SEGMENT_SIZE,
+					MoreExecutors.newDirectExecutorService()
+				);
+				this.ledgerStore = appendLogStore;
+				this.vertexStore = appendLogStore;
+			}
+			while (this.nextStateVersion < PRELOADED_ENTRIES) {
+				for (int i = 0; i < VERTEX_STORE_SAVES_PER_TRANSACTION; i++) {
+					saveVertexStoreState();
+				}
+				commitTransaction();
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws IOException {
+			this.ledgerStore.close();
+			if (this.dbEnv != null) {
+				this.dbEnv.stop();
+			}
+			final long bytes;
+			try (Stream<Path> files = Files.walk(this.directory)) {
+				bytes = files.filter(Files::isRegularFile).mapToLong(StoreState::size).sum();
+			}
+			System.out.printf(
+				"%n%s store uses %s bytes on disk for %s ledger entries and %s vertex store saves%n",
+				this.store, bytes, this.nextStateVersion, this.vertexStoreSaves
+			);
+			MoreFiles.deleteRecursively(this.directory, RecursiveDeleteOption.ALLOW_INSECURE);
+		}
+
+		private static long size(Path file) {
+			try {
+				return Files.size(file);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		// Commits a transaction of entries sharing a proof version, as committed by the ledger
+		void commitTransaction() {
+			final long proofVersion = this.nextStateVersion + ENTRIES_PER_TRANSACTION - 1;
+			final LedgerTransaction tx = this.ledgerStore.createTransaction();
+			for (int i = 0; i < ENTRIES_PER_TRANSACTION; i++) {
+				final AID aid = AID.from(randomBytes(AID.BYTES));
+				final LedgerEntry entry = new LedgerEntry(randomBytes(ENTRY_SIZE), this.nextStateVersion, proofVersion, aid);
+				final ImmutableSet<StoreIndex> uniqueIndices = ImmutableSet.of(new StoreIndex(SPIN_PREFIX, randomBytes(AID.BYTES)));
+				final int address = this.random.nextInt(ADDRESSES);
+				final ImmutableSet<StoreIndex> duplicateIndices = ImmutableSet.of(
+					new StoreIndex(ADDRESS_PREFIX, new byte[] { (byte) address, (byte) (address >> 8) }),
+					new StoreIndex(PARTICLE_CLASS_PREFIX, new byte[] { (byte) this.random.nextInt(PARTICLE_CLASSES) })
+				);
+				if (!this.ledgerStore.store(tx, entry, uniqueIndices, duplicateIndices).isSuccess()) {
+					throw new IllegalStateException("Conflicting ledger entry " + entry.getAID());
+				}
+				this.nextStateVersion += 1;
+			}
+			this.vertexStore.save(tx, vertexStoreState());
+			tx.commit();
+			this.vertexStoreSaves += 1;
+		}
+
+		void saveVertexStoreState() {
+			this.vertexStore.save(vertexStoreState());
+			this.vertexStoreSaves += 1;
+		}
+
+		// A vertex store state holding only a root, distinct for each save
+		private VerifiedVertexStoreState vertexStoreState() {
+			final LedgerHeader header = LedgerHeader.genesis(HashUtils.random256(), null);
+			final VerifiedVertex root = new VerifiedVertex(UnverifiedVertex.createGenesis(header), HashUtils.random256());
+			final QuorumCertificate rootQC = QuorumCertificate.ofGenesis(root, header);
+			return VerifiedVertexStoreState.create(HighQC.from(rootQC), root, Optional.empty());
+		}
+
+		private byte[] randomBytes(int length) {
+			final byte[] bytes = new byte[length];
+			this.random.nextBytes(bytes);
+			return bytes;
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ENTRIES_PER_TRANSACTION)
+	public long commit(StoreState state) {
+		state.commitTransaction();
+		return state.nextStateVersion;
+	}
+
+	@Benchmark
+	public long saveVertexStoreState(StoreState state) {
+		state.saveVertexStoreState();
+		return state.vertexStoreSaves;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(SYNC_BATCH_SIZE)
+	public ImmutableList<LedgerEntry> syncRead(StoreState state) throws NextCommittedLimitReachedException {
+		// Read all entries of a random preloaded transaction
+		final long stateVersion = (long) state.random.nextInt(PRELOADED_ENTRIES / ENTRIES_PER_TRANSACTION) * ENTRIES_PER_TRANSACTION - 1;
+		return state.ledgerStore.getNextCommittedLedgerEntries(stateVersion, SYNC_BATCH_SIZE);
+	}
+}
@@ -0,0 +1,144 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package org.radix.benchmark;
+
+import com.google.common.collect.ImmutableSet;
+import com.radixdlt.environment.EventDispatcher;
+import com.radixdlt.environment.disruptor.DisruptorEnvironment;
+import com.radixdlt.environment.disruptor.DisruptorEventLoop;
+import com.radixdlt.environment.rx.RxEnvironment;
+import com.radixdlt.utils.ThreadFactories;
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Compares throughput of delivering events from a dispatcher to a processor
+ * running on a single consumer thread for {@link RxEnvironment}, with processing
+ * via {@code observeOn} as in {@code EpochManagerRunner}, and {@link DisruptorEnvironment}.
+ * <p>
+ * Allocation rates are reported by the GC profiler, which is enabled by default:
+ * <pre>
+ *    $ gradle jmh -P jmhInclude=EnvironmentBenchmark
+ * </pre>
+ */
+public class EnvironmentBenchmark {
+	private static final int EVENTS_PER_INVOCATION = 10_000;
+
+	/**
+	 * Event class for benchmarking, pre-allocated so that only the
+	 * environment under test allocates.
+	 */
+	public static final class BenchmarkEvent {
+	}
+
+	@State(Scope.Benchmark)
+	public static class RxState {
+		final BenchmarkEvent event = new BenchmarkEvent();
+		final AtomicLong processed = new AtomicLong();
+		ScheduledExecutorService ses;
+		ExecutorService consumer;
+		Disposable disposable;
+		EventDispatcher<BenchmarkEvent> dispatcher;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.ses = Executors.newSingleThreadScheduledExecutor(ThreadFactories.daemonThreads("BenchmarkTimeouts"));
+			this.consumer = Executors.newSingleThreadExecutor(ThreadFactories.daemonThreads("BenchmarkConsumer"));
+			RxEnvironment environment = new RxEnvironment(ImmutableSet.of(BenchmarkEvent.class), this.ses, ImmutableSet.of());
+			this.disposable = environment.getObservable(BenchmarkEvent.class)
+				.observeOn(Schedulers.from(this.consumer))
+				.subscribe(e -> this.processed.lazySet(this.processed.get() + 1));
+			this.dispatcher = environment.getDispatcher(BenchmarkEvent.class);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws InterruptedException {
+			this.disposable.dispose();
+			this.consumer.shutdown();
+			this.ses.shutdown();
+			this.consumer.awaitTermination(10L, TimeUnit.SECONDS);
+		}
+	}
+
+	@State(Scope.Benchmark)
+	public static class DisruptorState {
+		@Param({ "1024", "16384" })
+		int bufferSize;
+
+		final BenchmarkEvent event = new BenchmarkEvent();
+		final AtomicLong processed = new AtomicLong();
+		ScheduledExecutorService ses;
+		DisruptorEventLoop eventLoop;
+		EventDispatcher<BenchmarkEvent> dispatcher;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.ses = Executors.newSingleThreadScheduledExecutor(ThreadFactories.daemonThreads("BenchmarkTimeouts"));
+			this.eventLoop = new DisruptorEventLoop(this.bufferSize, ThreadFactories.daemonThreads("BenchmarkConsumer"), Throwable::printStackTrace);
+			ImmutableSet<Class<?>> eventClasses = ImmutableSet.of(BenchmarkEvent.class);
+			RxEnvironment rxEnvironment = new RxEnvironment(eventClasses, this.ses, ImmutableSet.of());
+			DisruptorEnvironment environment = new DisruptorEnvironment(eventClasses, ImmutableSet.of(), rxEnvironment, this.eventLoop, this.ses);
+			environment.setProcessor(BenchmarkEvent.class, e -> this.processed.lazySet(this.processed.get() + 1));
+			this.dispatcher = environment.getDispatcher(BenchmarkEvent.class);
+			this.eventLoop.start();
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			this.eventLoop.shutdown();
+			this.ses.shutdown();
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS_PER_INVOCATION)
+	public long rxEnvironment(RxState state) {
+		return dispatchAndWait(state.dispatcher, state.event, state.processed);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(EVENTS_PER_INVOCATION)
+	public long disruptorEnvironment(DisruptorState state) {
+		return dispatchAndWait(state.dispatcher, state.event, state.processed);
+	}
+
+	private static long dispatchAndWait(EventDispatcher<BenchmarkEvent> dispatcher, BenchmarkEvent event, AtomicLong processed) {
+		final long target = processed.get() + EVENTS_PER_INVOCATION;
+		for (int i = 0; i < EVENTS_PER_INVOCATION; i++) {
+			dispatcher.dispatch(event);
+		}
+		long current;
+		while ((current = processed.get()) < target) {
+			Thread.onSpinWait();
+		}
+		return current;
+	}
+}
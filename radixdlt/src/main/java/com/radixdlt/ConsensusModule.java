@@ -70,8 +70,8 @@ import com.radixdlt.environment.ScheduledEventDispatcher;
 import com.radixdlt.network.TimeSupplier;
 import com.radixdlt.store.LastProof;
 import com.radixdlt.sync.LocalSyncRequest;
+import com.radixdlt.sync.PeerPerformanceTracker;
 import java.util.Comparator;
-import java.util.Random;
 
 /**
  * Module responsible for running BFT validator logic
@@ -94,7 +94,8 @@ public final class ConsensusModule extends AbstractModule {
 		HashVerifier verifier,
 		EventDispatcher<ViewQuorumReached> viewQuorumReachedEventDispatcher,
 		EventDispatcher<NoVote> noVoteEventDispatcher,
-		RemoteEventDispatcher<Vote> voteDispatcher
+		RemoteEventDispatcher<Vote> voteDispatcher,
+		SystemCounters counters
 	) {
 		return (
 			self,
@@ -110,6 +111,7 @@ public final class ConsensusModule extends AbstractModule {
 				.self(self)
 				.hasher(hasher)
 				.verifier(verifier)
+				.counters(counters)
 				.voteDispatcher(voteDispatcher)
 				.safetyRules(safetyRules)
 				.pacemaker(pacemaker)
@@ -229,7 +231,7 @@ public final class ConsensusModule extends AbstractModule {
 		EventDispatcher<LocalSyncRequest> syncLedgerRequestSender,
 		ScheduledEventDispatcher<VertexRequestTimeout> timeoutDispatcher,
 		@LastProof VerifiedLedgerHeaderAndProof ledgerLastProof, // Use this instead of configuration.getRoot()
-		Random random,
+		PeerPerformanceTracker peerPerformance,
 		@BFTSyncPatienceMillis int bftSyncPatienceMillis,
 		SystemCounters counters
 	) {
@@ -242,7 +244,7 @@ public final class ConsensusModule extends AbstractModule {
 			syncLedgerRequestSender,
 			timeoutDispatcher,
 			ledgerLastProof,
-			random,
+			peerPerformance,
 			bftSyncPatienceMillis,
 			counters
 		);
@@ -20,12 +20,34 @@ package com.radixdlt;
 import com.google.inject.AbstractModule;
 import com.google.inject.Scopes;
 import com.google.inject.multibindings.MapBinder;
+import com.radixdlt.consensus.DisruptorEpochManagerRunner;
 import com.radixdlt.consensus.EpochManagerRunner;
 
 public class ConsensusRunnerModule extends AbstractModule {
+	private final boolean useDisruptor;
+
+	public ConsensusRunnerModule() {
+		this(false);
+	}
+
+	/**
+	 * Creates a new consensus runner module.
+	 *
+	 * @param useDisruptor {@code true} if consensus events should be processed by
+	 *	a {@link DisruptorEpochManagerRunner}, in which case {@link RxEnvironmentModule}
+	 *	must also be configured to use the disruptor
+	 */
+	public ConsensusRunnerModule(boolean useDisruptor) {
+		this.useDisruptor = useDisruptor;
+	}
+
 	@Override
 	public void configure() {
 		MapBinder<String, ModuleRunner> moduleRunners = MapBinder.newMapBinder(binder(), String.class, ModuleRunner.class);
-		moduleRunners.addBinding("consensus").to(EpochManagerRunner.class).in(Scopes.SINGLETON);
+		if (this.useDisruptor) {
+			moduleRunners.addBinding("consensus").to(DisruptorEpochManagerRunner.class).in(Scopes.SINGLETON);
+		} else {
+			moduleRunners.addBinding("consensus").to(EpochManagerRunner.class).in(Scopes.SINGLETON);
+		}
 	}
 }
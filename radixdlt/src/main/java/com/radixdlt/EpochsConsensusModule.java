@@ -71,8 +71,8 @@ import com.radixdlt.environment.ScheduledEventDispatcher;
 import com.radixdlt.network.TimeSupplier;
 import com.radixdlt.store.LastEpochProof;
 import com.radixdlt.sync.LocalSyncRequest;
+import com.radixdlt.sync.PeerPerformanceTracker;
 import java.util.Comparator;
-import java.util.Random;
 
 /**
  * Module which allows for consensus to have multiple epochs
@@ -223,7 +223,7 @@ public class EpochsConsensusModule extends AbstractModule {
 		@Self BFTNode self,
 		EventDispatcher<LocalSyncRequest> syncLedgerRequestSender,
 		ScheduledEventDispatcher<VertexRequestTimeout> timeoutDispatcher,
-		Random random,
+		PeerPerformanceTracker peerPerformance,
 		@BFTSyncPatienceMillis int bftSyncPatienceMillis,
 		SystemCounters counters
 	) {
@@ -236,7 +236,7 @@ public class EpochsConsensusModule extends AbstractModule {
 			syncLedgerRequestSender,
 			timeoutDispatcher,
 			configuration.getVertexStoreState().getRootHeader(),
-			random,
+			peerPerformance,
 			bftSyncPatienceMillis,
 			counters
 		);
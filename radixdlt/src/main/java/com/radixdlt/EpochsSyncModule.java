@@ -41,6 +41,7 @@ import com.radixdlt.ledger.VerifiedCommandsAndProof;
 import com.radixdlt.sync.LocalSyncRequest;
 import com.radixdlt.sync.LocalSyncServiceAccumulatorProcessor;
 import com.radixdlt.sync.LocalSyncServiceAccumulatorProcessor.SyncInProgress;
+import com.radixdlt.sync.PeerPerformanceTracker;
 import com.radixdlt.sync.RemoteSyncResponseValidatorSetVerifier;
 import com.radixdlt.sync.RemoteSyncResponseValidatorSetVerifier.InvalidValidatorSetSender;
 import com.radixdlt.sync.RemoteSyncResponseValidatorSetVerifier.VerifiedValidatorSetSender;
@@ -117,7 +118,8 @@ public class EpochsSyncModule extends AbstractModule {
 		RemoteEventDispatcher<DtoLedgerHeaderAndProof> requestDispatcher,
 		ScheduledEventDispatcher<SyncInProgress> syncTimeoutScheduler,
 		@SyncPatienceMillis int syncPatienceMillis,
-		SystemCounters systemCounters
+		SystemCounters systemCounters,
+		PeerPerformanceTracker peerPerformance
 	) {
 		return epochChange ->
 			new LocalSyncServiceAccumulatorProcessor(
@@ -126,7 +128,8 @@ public class EpochsSyncModule extends AbstractModule {
 				accumulatorComparator,
 				epochChange.getGenesisHeader(),
 				syncPatienceMillis,
-				systemCounters
+				systemCounters,
+				peerPerformance
 			);
 	}
 }
@@ -33,6 +33,7 @@ import com.radixdlt.environment.ProcessOnDispatch;
 import com.radixdlt.ledger.AccumulatorState;
 import com.radixdlt.ledger.LedgerAccumulator;
 import com.radixdlt.ledger.LedgerAccumulatorVerifier;
+import com.radixdlt.ledger.MerkleLedgerAccumulatorAndVerifier;
 import com.radixdlt.ledger.SimpleLedgerAccumulatorAndVerifier;
 import com.radixdlt.ledger.StateComputerLedger;
 import com.radixdlt.ledger.VerifiedCommandsAndProof;
@@ -44,12 +45,34 @@ import java.util.Comparator;
  * Module which manages ledger state and synchronization of updates to ledger state
  */
 public class LedgerModule extends AbstractModule {
+	private final boolean merkleAccumulator;
+
+	public LedgerModule() {
+		this(false);
+	}
+
+	/**
+	 * Creates a ledger module with the specified accumulator.
+	 * Note that all nodes must use the same accumulator.
+	 *
+	 * @param merkleAccumulator {@code true} to use {@link MerkleLedgerAccumulatorAndVerifier},
+	 * 	{@code false} to use {@link SimpleLedgerAccumulatorAndVerifier}
+	 */
+	public LedgerModule(boolean merkleAccumulator) {
+		this.merkleAccumulator = merkleAccumulator;
+	}
+
 	@Override
 	protected void configure() {
 		bind(Ledger.class).to(StateComputerLedger.class);
 		bind(new TypeLiteral<Comparator<VerifiedLedgerHeaderAndProof>>() { }).to(OrderByEpochAndVersionComparator.class).in(Scopes.SINGLETON);
-		bind(LedgerAccumulator.class).to(SimpleLedgerAccumulatorAndVerifier.class);
-		bind(LedgerAccumulatorVerifier.class).to(SimpleLedgerAccumulatorAndVerifier.class);
+		if (merkleAccumulator) {
+			bind(LedgerAccumulator.class).to(MerkleLedgerAccumulatorAndVerifier.class);
+			bind(LedgerAccumulatorVerifier.class).to(MerkleLedgerAccumulatorAndVerifier.class);
+		} else {
+			bind(LedgerAccumulator.class).to(SimpleLedgerAccumulatorAndVerifier.class);
+			bind(LedgerAccumulatorVerifier.class).to(SimpleLedgerAccumulatorAndVerifier.class);
+		}
 		bind(StateComputerLedger.class).in(Scopes.SINGLETON);
 	}
 
@@ -21,6 +21,7 @@ import com.google.common.util.concurrent.RateLimiter;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Scopes;
+import com.google.inject.Singleton;
 import com.google.inject.multibindings.ProvidesIntoSet;
 import com.radixdlt.consensus.BFTEventsRx;
 import com.radixdlt.consensus.SyncEpochsRPCRx;
@@ -28,15 +29,19 @@ import com.radixdlt.consensus.SyncVerticesRPCRx;
 import com.radixdlt.consensus.Vote;
 import com.radixdlt.consensus.sync.GetVerticesRequest;
 import com.radixdlt.consensus.sync.VertexStoreBFTSyncRequestProcessor.SyncVerticesResponseSender;
+import com.radixdlt.consensus.epoch.EpochChange;
 import com.radixdlt.consensus.epoch.EpochManager.SyncEpochsRPCSender;
 import com.radixdlt.consensus.liveness.ProposalBroadcaster;
+import com.radixdlt.crypto.Hasher;
 import com.radixdlt.environment.RemoteEventDispatcher;
 import com.radixdlt.environment.rx.RemoteEvent;
 import com.radixdlt.environment.rx.RxRemoteDispatcher;
+import com.radixdlt.epochs.EpochChangeManager.EpochsLedgerUpdateSender;
 import com.radixdlt.ledger.DtoCommandsAndProof;
 import com.radixdlt.ledger.DtoLedgerHeaderAndProof;
 import com.radixdlt.mempool.MempoolNetworkRx;
 import com.radixdlt.mempool.MempoolNetworkTx;
+import com.radixdlt.middleware2.network.CompactConsensusEventCodec;
 import com.radixdlt.middleware2.network.GetVerticesErrorRateLimit;
 import com.radixdlt.middleware2.network.MessageCentralBFTNetwork;
 import com.radixdlt.middleware2.network.MessageCentralLedgerSync;
@@ -48,6 +53,21 @@ import io.reactivex.rxjava3.core.Observable;
  * Network related module
  */
 public final class NetworkModule extends AbstractModule {
+	private final boolean compactConsensusEvents;
+
+	public NetworkModule() {
+		this(true);
+	}
+
+	/**
+	 * Creates a new network module.
+	 *
+	 * @param compactConsensusEvents {@code true} if proposals and votes should be sent in compact form,
+	 *	{@code false} to send them in full for nodes which cannot decode compact events
+	 */
+	public NetworkModule(boolean compactConsensusEvents) {
+		this.compactConsensusEvents = compactConsensusEvents;
+	}
 
 	@Override
 	protected void configure() {
@@ -72,6 +92,21 @@ public final class NetworkModule extends AbstractModule {
 		bind(BFTEventsRx.class).to(MessageCentralBFTNetwork.class);
 	}
 
+	@Provides
+	@Singleton
+	private CompactConsensusEventCodec compactConsensusEventCodec(Hasher hasher, EpochChange initialEpoch) {
+		CompactConsensusEventCodec codec = new CompactConsensusEventCodec(hasher, this.compactConsensusEvents);
+		codec.addValidatorSet(initialEpoch.getEpoch(), initialEpoch.getBFTConfiguration().getValidatorSet());
+		return codec;
+	}
+
+	@ProvidesIntoSet
+	private EpochsLedgerUpdateSender compactConsensusEventCodecUpdater(CompactConsensusEventCodec codec) {
+		return update -> update.getEpochChange().ifPresent(
+			epochChange -> codec.addValidatorSet(epochChange.getEpoch(), epochChange.getBFTConfiguration().getValidatorSet())
+		);
+	}
+
 	@ProvidesIntoSet
 	private RxRemoteDispatcher<?> syncRequestDispatcher(MessageCentralBFTNetwork bftNetwork) {
 		return RxRemoteDispatcher.create(Vote.class, bftNetwork.voteDispatcher());
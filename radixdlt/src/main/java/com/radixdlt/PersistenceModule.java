@@ -30,23 +30,52 @@ import com.radixdlt.counters.SystemCounters;
 import com.radixdlt.counters.SystemCounters.CounterType;
 import com.radixdlt.environment.EventProcessor;
 import com.radixdlt.environment.ProcessOnDispatch;
+import com.radixdlt.middleware2.store.LedgerPruner;
 import com.radixdlt.properties.RuntimeProperties;
 import com.radixdlt.store.LedgerEntryStore;
 import com.radixdlt.store.LedgerEntryStoreView;
+import com.radixdlt.store.appendlog.AppendLogLedgerEntryStore;
 import com.radixdlt.store.berkeley.BerkeleySafetyStateStore;
 import com.radixdlt.store.berkeley.BerkeleyLedgerEntryStore;
+import com.radixdlt.serialization.Serialization;
+import com.radixdlt.utils.ThreadFactories;
+import java.util.concurrent.Executors;
 import org.radix.database.DatabaseEnvironment;
 
 /**
  * Module which manages persistent storage
  */
 public class PersistenceModule extends AbstractModule {
+	private static final String LEDGER_LOG_DIRECTORY_NAME = "ledger_log";
+
+	private final boolean appendLogLedger;
+
+	public PersistenceModule() {
+		this(false);
+	}
+
+	/**
+	 * Creates a persistence module with the specified ledger entry store.
+	 *
+	 * @param appendLogLedger {@code true} to store ledger entries and vertex store state in an
+	 * 	{@link AppendLogLedgerEntryStore}, {@code false} to use {@link BerkeleyLedgerEntryStore}
+	 */
+	public PersistenceModule(boolean appendLogLedger) {
+		this.appendLogLedger = appendLogLedger;
+	}
+
 	@Override
 	protected void configure() {
 		// TODO: should be singletons?
-		bind(LedgerEntryStore.class).to(BerkeleyLedgerEntryStore.class).in(Scopes.SINGLETON);
-		bind(LedgerEntryStoreView.class).to(BerkeleyLedgerEntryStore.class);
-		bind(PersistentVertexStore.class).to(BerkeleyLedgerEntryStore.class);
+		if (this.appendLogLedger) {
+			bind(LedgerEntryStore.class).to(AppendLogLedgerEntryStore.class);
+			bind(LedgerEntryStoreView.class).to(AppendLogLedgerEntryStore.class);
+			bind(PersistentVertexStore.class).to(AppendLogLedgerEntryStore.class);
+		} else {
+			bind(LedgerEntryStore.class).to(BerkeleyLedgerEntryStore.class).in(Scopes.SINGLETON);
+			bind(LedgerEntryStoreView.class).to(BerkeleyLedgerEntryStore.class);
+			bind(PersistentVertexStore.class).to(BerkeleyLedgerEntryStore.class);
+		}
 		bind(PersistentSafetyStateStore.class).to(BerkeleySafetyStateStore.class);
 		bind(BerkeleySafetyStateStore.class).in(Scopes.SINGLETON);
 	}
@@ -57,6 +86,36 @@ public class PersistenceModule extends AbstractModule {
 		return new DatabaseEnvironment(properties);
 	}
 
+	@Provides
+	@Singleton
+	private AppendLogLedgerEntryStore appendLogLedgerEntryStore(
+		DatabaseEnvironment dbEnv,
+		Serialization serialization,
+		SystemCounters systemCounters,
+		RuntimeProperties properties
+	) {
+		return new AppendLogLedgerEntryStore(
+			dbEnv.getEnvironment().getHome().toPath().resolve(LEDGER_LOG_DIRECTORY_NAME),
+			serialization,
+			systemCounters,
+			properties.get("db.ledger_log.segment_size", 64L * 1024L * 1024L),
+			Executors.newSingleThreadExecutor(ThreadFactories.daemonThreads("LedgerLogCompaction"))
+		);
+	}
+
+	@Provides
+	@Singleton
+	private LedgerPruner ledgerPruner(BerkeleyLedgerEntryStore store, SystemCounters systemCounters, RuntimeProperties properties) {
+		return new LedgerPruner(
+			store,
+			systemCounters,
+			Executors.newSingleThreadScheduledExecutor(ThreadFactories.daemonThreads("LedgerPruner")),
+			properties.get("ledger.pruning.horizon", 1_000_000L),
+			properties.get("ledger.pruning.segment_size", 100_000L),
+			properties.get("ledger.pruning.interval_ms", 60_000L)
+		);
+	}
+
 	@ProvidesIntoSet
 	@ProcessOnDispatch
 	public EventProcessor<BFTHighQCUpdate> persistQC(
@@ -17,6 +17,7 @@
 
 package com.radixdlt;
 
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
@@ -49,12 +50,34 @@ import com.radixdlt.serialization.Serialization;
 import com.radixdlt.store.CMStore;
 import com.radixdlt.store.EngineStore;
 import com.radixdlt.ledger.StateComputerLedger.StateComputer;
+import com.radixdlt.utils.ThreadFactories;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.function.UnaryOperator;
 
 /**
  * Module which manages execution of commands
  */
 public class RadixEngineModule extends AbstractModule {
+	private final int commitWorkers;
+
+	public RadixEngineModule() {
+		this(1);
+	}
+
+	/**
+	 * Creates a radix engine module decoding committed atoms on the specified
+	 * number of threads.
+	 *
+	 * @param commitWorkers number of threads decoding committed atoms, or 1 to decode on the committing thread
+	 */
+	public RadixEngineModule(int commitWorkers) {
+		if (commitWorkers < 1) {
+			throw new IllegalArgumentException("commitWorkers must be positive: " + commitWorkers);
+		}
+		this.commitWorkers = commitWorkers;
+	}
+
 	@Override
 	protected void configure() {
 		bind(StateComputer.class).to(RadixEngineStateComputer.class);
@@ -70,13 +93,17 @@ public class RadixEngineModule extends AbstractModule {
 		ValidatorSetBuilder validatorSetBuilder,
 		Hasher hasher
 	) {
+		final Executor commitExecutor = commitWorkers > 1
+			? Executors.newFixedThreadPool(commitWorkers, ThreadFactories.daemonThreads("LedgerCommit-%d"))
+			: MoreExecutors.directExecutor();
 		return RadixEngineStateComputer.create(
 			serialization,
 			radixEngine,
 			atomicCommitManager,
 			epochCeilingView,
 			validatorSetBuilder,
-			hasher
+			hasher,
+			commitExecutor
 		);
 	}
 
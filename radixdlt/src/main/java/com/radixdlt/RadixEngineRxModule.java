@@ -17,6 +17,7 @@
 
 package com.radixdlt;
 
+import com.google.common.collect.ImmutableList;
 import com.google.inject.AbstractModule;
 import com.radixdlt.api.CommittedAtomsRx;
 import com.radixdlt.statecomputer.RadixEngineStateComputer.CommittedAtomSender;
@@ -26,7 +27,8 @@ import com.radixdlt.utils.SenderToRx;
 public class RadixEngineRxModule extends AbstractModule {
 	@Override
 	protected void configure() {
-		SenderToRx<CommittedAtomWithResult, CommittedAtomWithResult> committedAtoms = new SenderToRx<>(c -> c);
+		SenderToRx<ImmutableList<CommittedAtomWithResult>, ImmutableList<CommittedAtomWithResult>> committedAtoms =
+			new SenderToRx<>(c -> c);
 		bind(CommittedAtomSender.class).toInstance(committedAtoms::send);
 		bind(CommittedAtomsRx.class).toInstance(committedAtoms::rx);
 	}
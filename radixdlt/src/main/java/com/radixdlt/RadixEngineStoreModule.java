@@ -26,14 +26,18 @@ import com.radixdlt.consensus.Command;
 import com.radixdlt.consensus.bft.PersistentVertexStore;
 import com.radixdlt.constraintmachine.Particle;
 import com.radixdlt.constraintmachine.Spin;
+import com.radixdlt.counters.SystemCounters;
 import com.radixdlt.crypto.Hasher;
 import com.radixdlt.ledger.VerifiedCommandsAndProof;
 import com.radixdlt.middleware2.ClientAtom;
 import com.radixdlt.middleware2.LedgerAtom;
+import com.radixdlt.middleware2.store.CommittedAtomCache;
+import com.radixdlt.middleware2.store.CommittedAtomsPublisher;
 import com.radixdlt.middleware2.store.CommittedAtomsStore;
 import com.radixdlt.middleware2.store.CommittedAtomsStore.AtomIndexer;
 import com.radixdlt.middleware2.store.EngineAtomIndices;
 import com.radixdlt.middleware2.store.RadixEngineAtomicCommitManager;
+import com.radixdlt.properties.RuntimeProperties;
 import com.radixdlt.serialization.DeserializeException;
 import com.radixdlt.serialization.Serialization;
 import com.radixdlt.statecomputer.ClientAtomToBinaryConverter;
@@ -44,7 +48,9 @@ import com.radixdlt.store.EngineStore;
 import com.radixdlt.store.LedgerEntryStore;
 import com.radixdlt.store.berkeley.NextCommittedLimitReachedException;
 import com.radixdlt.sync.CommittedReader;
+import com.radixdlt.utils.ThreadFactories;
 
+import java.util.concurrent.Executors;
 import java.util.function.BiFunction;
 
 public class RadixEngineStoreModule extends AbstractModule {
@@ -94,23 +100,52 @@ public class RadixEngineStoreModule extends AbstractModule {
 
 	@Provides
 	@Singleton
-	private CommittedAtomsStore committedAtomsStore(
+	private CommittedAtomCache committedAtomCache(
+		RuntimeProperties properties,
+		CommandToBinaryConverter commandToBinaryConverter,
+		ClientAtomToBinaryConverter clientAtomToBinaryConverter,
+		SystemCounters counters
+	) {
+		final long maxBytes = properties.get("db.atom_cache_size", 32L * 1024L * 1024L);
+		return new CommittedAtomCache(maxBytes, commandToBinaryConverter, clientAtomToBinaryConverter, counters);
+	}
+
+	@Provides
+	@Singleton
+	private CommittedAtomsPublisher committedAtomsPublisher(
+		RuntimeProperties properties,
 		CommittedAtomSender committedAtomSender,
+		SystemCounters counters
+	) {
+		return new CommittedAtomsPublisher(
+			committedAtomSender,
+			counters,
+			Executors.newSingleThreadExecutor(ThreadFactories.daemonThreads("CommittedAtomsPublisher")),
+			properties.get("ledger.publish.queue_size", 1024)
+		);
+	}
+
+	@Provides
+	@Singleton
+	private CommittedAtomsStore committedAtomsStore(
+		CommittedAtomsPublisher committedAtomsPublisher,
 		LedgerEntryStore store,
 		PersistentVertexStore persistentVertexStore,
 		CommandToBinaryConverter commandToBinaryConverter,
 		ClientAtomToBinaryConverter clientAtomToBinaryConverter,
+		CommittedAtomCache atomCache,
 		AtomIndexer atomIndexer,
 		Serialization serialization,
 		Hasher hasher,
 		VerifiedCommandsAndProof genesisCheckpoint
 	) throws NextCommittedLimitReachedException, DeserializeException {
 		final CommittedAtomsStore atomsStore = new CommittedAtomsStore(
-			committedAtomSender,
+			committedAtomsPublisher,
 			store,
 			persistentVertexStore,
 			commandToBinaryConverter,
 			clientAtomToBinaryConverter,
+			atomCache,
 			atomIndexer,
 			serialization,
 			hasher
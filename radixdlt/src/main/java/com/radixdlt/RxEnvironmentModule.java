@@ -34,6 +34,8 @@ import com.radixdlt.consensus.liveness.ScheduledLocalTimeout;
 import com.radixdlt.consensus.sync.GetVerticesRequest;
 import com.radixdlt.consensus.sync.VertexRequestTimeout;
 import com.radixdlt.environment.Environment;
+import com.radixdlt.environment.disruptor.DisruptorEnvironment;
+import com.radixdlt.environment.disruptor.DisruptorEventLoop;
 import com.radixdlt.environment.rx.RxEnvironment;
 import com.radixdlt.environment.rx.RxRemoteDispatcher;
 import com.radixdlt.sync.LocalSyncRequest;
@@ -43,25 +45,65 @@ import io.reactivex.rxjava3.core.Observable;
 import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 /**
- * Environment utilizing RxJava
+ * Environment utilizing RxJava, optionally with consensus events processed
+ * through a {@link DisruptorEnvironment}.
  */
 public class RxEnvironmentModule extends AbstractModule {
+	private static final int DISRUPTOR_BUFFER_SIZE = 1 << 14;
+	private static final Logger log = LogManager.getLogger();
+
+	private final boolean useDisruptor;
+
+	public RxEnvironmentModule() {
+		this(false);
+	}
+
+	/**
+	 * Creates a new environment module.
+	 *
+	 * @param useDisruptor {@code true} if local consensus events should be delivered
+	 *	through a {@link DisruptorEventLoop} rather than an RxJava subject
+	 */
+	public RxEnvironmentModule(boolean useDisruptor) {
+		this.useDisruptor = useDisruptor;
+	}
 
 	@Override
 	public void configure() {
 		ScheduledExecutorService ses = Executors.newSingleThreadScheduledExecutor(ThreadFactories.daemonThreads("TimeoutSender"));
-		bind(Environment.class).to(RxEnvironment.class);
 		bind(ScheduledExecutorService.class).toInstance(ses);
+		if (this.useDisruptor) {
+			bind(Environment.class).to(DisruptorEnvironment.class);
+			install(new AbstractModule() {
+				@Provides
+				@Singleton
+				private DisruptorEventLoop disruptorEventLoop() {
+					return new DisruptorEventLoop(DISRUPTOR_BUFFER_SIZE, ThreadFactories.daemonThreads("ConsensusRunner"), e -> {
+						log.error("Unexpected exception occurred", e);
+						System.exit(-1);
+					});
+				}
+
+				@Provides
+				@Singleton
+				private DisruptorEnvironment disruptorEnvironment(
+					RxEnvironment rxEnvironment,
+					DisruptorEventLoop eventLoop,
+					ScheduledExecutorService ses
+				) {
+					return new DisruptorEnvironment(localEventClasses(), sharedEventClasses(), rxEnvironment, eventLoop, ses);
+				}
+			});
+		} else {
+			bind(Environment.class).to(RxEnvironment.class);
+		}
 	}
 
-	@Provides
-	@Singleton
-	private RxEnvironment rxEnvironment(
-		ScheduledExecutorService ses,
-		Set<RxRemoteDispatcher<?>> dispatchers
-	) {
+	private static ImmutableSet<Class<?>> localEventClasses() {
 		Builder<Class<?>> eventClasses = ImmutableSet.builder();
 		eventClasses.add(
 			ScheduledLocalTimeout.class,
@@ -78,9 +120,22 @@ public class RxEnvironmentModule extends AbstractModule {
 			ViewUpdate.class,
 			EpochViewUpdate.class
 		);
+		return eventClasses.build();
+	}
 
+	// Consensus events which are also observed outside of consensus, by the SystemInfoRunner
+	private static ImmutableSet<Class<?>> sharedEventClasses() {
+		return ImmutableSet.of(EpochViewUpdate.class);
+	}
+
+	@Provides
+	@Singleton
+	private RxEnvironment rxEnvironment(
+		ScheduledExecutorService ses,
+		Set<RxRemoteDispatcher<?>> dispatchers
+	) {
 		return new RxEnvironment(
-			eventClasses.build(),
+			localEventClasses(),
 			ses,
 			dispatchers
 		);
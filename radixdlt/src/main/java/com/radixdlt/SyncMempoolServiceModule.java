@@ -21,6 +21,7 @@ import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Scopes;
 import com.google.inject.Singleton;
+import com.radixdlt.counters.SystemCounters;
 import com.radixdlt.crypto.Hasher;
 import com.radixdlt.engine.RadixEngine;
 import com.radixdlt.mempool.Mempool;
@@ -29,7 +30,10 @@ import com.radixdlt.mempool.SubmissionControl;
 import com.radixdlt.mempool.SubmissionControlImpl;
 import com.radixdlt.mempool.SubmissionControlImpl.SubmissionControlSender;
 import com.radixdlt.middleware2.LedgerAtom;
+import com.radixdlt.properties.RuntimeProperties;
 import com.radixdlt.serialization.Serialization;
+import com.radixdlt.utils.ThreadFactories;
+import java.util.concurrent.Executors;
 
 /**
  * Module which manages synchronization of mempool atoms across of nodes
@@ -48,14 +52,23 @@ public class SyncMempoolServiceModule extends AbstractModule {
 		RadixEngine<LedgerAtom> radixEngine,
 		Serialization serialization,
 		SubmissionControlSender submissionControlSender,
-		Hasher hasher
+		Hasher hasher,
+		SystemCounters counters,
+		RuntimeProperties properties
 	) {
+		final int workers = Math.max(1, properties.get("mempool.admission.workers", Runtime.getRuntime().availableProcessors()));
+		final int maxQueued = properties.get("mempool.admission.queue_size", 10000);
+		final int batchSize = properties.get("mempool.admission.batch_size", 64);
 		return new SubmissionControlImpl(
 			mempool,
 			radixEngine,
 			serialization,
 			submissionControlSender,
-			hasher
+			hasher,
+			counters,
+			Executors.newFixedThreadPool(workers, ThreadFactories.daemonThreads("MempoolAdmission-%d")),
+			maxQueued,
+			batchSize
 		);
 	}
 }
@@ -44,12 +44,16 @@ import com.radixdlt.sync.RemoteSyncResponseValidatorSetVerifier.InvalidValidator
 import com.radixdlt.sync.RemoteSyncResponseValidatorSetVerifier.VerifiedValidatorSetSender;
 import com.radixdlt.sync.RemoteSyncServiceProcessor;
 import com.radixdlt.sync.LocalSyncServiceAccumulatorProcessor;
+import com.radixdlt.sync.PeerPerformanceTracker;
+import com.radixdlt.sync.PeerPerformanceTracker.RequestType;
 
 /**
  * Module which manages synchronization of committed atoms across of nodes
  */
 public class SyncServiceModule extends AbstractModule {
-	private static final int BATCH_SIZE = 100;
+	// Large responses are chunked by the network layer, so this only
+	// bounds the number of commands read per request
+	private static final int BATCH_SIZE = 1000;
 
 	@Override
 	public void configure() {
@@ -68,25 +72,36 @@ public class SyncServiceModule extends AbstractModule {
 	}
 
 	@Provides
-	private InvalidSignaturesSender invalidSignaturesSender(SystemCounters counters) {
-		return resp -> counters.increment(CounterType.SYNC_INVALID_COMMANDS_RECEIVED);
+	private InvalidSignaturesSender invalidSignaturesSender(SystemCounters counters, PeerPerformanceTracker peerPerformance) {
+		return resp -> {
+			counters.increment(CounterType.SYNC_INVALID_COMMANDS_RECEIVED);
+			peerPerformance.requestFailed(RequestType.LEDGER_SYNC, resp.getSender());
+		};
 	}
 
 	@Provides
-	private InvalidValidatorSetSender invalidValidatorSetSender(SystemCounters counters) {
-		return resp -> counters.increment(CounterType.SYNC_INVALID_COMMANDS_RECEIVED);
+	private InvalidValidatorSetSender invalidValidatorSetSender(SystemCounters counters, PeerPerformanceTracker peerPerformance) {
+		return resp -> {
+			counters.increment(CounterType.SYNC_INVALID_COMMANDS_RECEIVED);
+			peerPerformance.requestFailed(RequestType.LEDGER_SYNC, resp.getSender());
+		};
 	}
 
 	@Provides
-	private InvalidAccumulatorSender invalidAccumulatorSender(SystemCounters counters) {
-		return resp -> counters.increment(CounterType.SYNC_INVALID_COMMANDS_RECEIVED);
+	private InvalidAccumulatorSender invalidAccumulatorSender(SystemCounters counters, PeerPerformanceTracker peerPerformance) {
+		return resp -> {
+			counters.increment(CounterType.SYNC_INVALID_COMMANDS_RECEIVED);
+			peerPerformance.requestFailed(RequestType.LEDGER_SYNC, resp.getSender());
+		};
 	}
 
 	@Provides
 	private VerifiedAccumulatorSender verifiedSyncedCommandsSender(
-		EventDispatcher<VerifiedCommandsAndProof> syncCommandsDispatcher
+		EventDispatcher<VerifiedCommandsAndProof> syncCommandsDispatcher,
+		PeerPerformanceTracker peerPerformance
 	) {
 		return resp -> {
+			peerPerformance.responseReceived(RequestType.LEDGER_SYNC, resp.getSender());
 			DtoCommandsAndProof commandsAndProof = resp.getCommandsAndProof();
 			// TODO: Stateful ledger header verification:
 			// TODO: -verify rootHash matches
@@ -17,6 +17,7 @@
 
 package com.radixdlt.api;
 
+import com.google.common.collect.ImmutableList;
 import com.radixdlt.statecomputer.RadixEngineStateComputer.CommittedAtomWithResult;
 import io.reactivex.rxjava3.core.Observable;
 
@@ -25,9 +26,11 @@ import io.reactivex.rxjava3.core.Observable;
  */
 public interface CommittedAtomsRx {
 	/**
-	 * Retrieve a never ending stream of committed atoms
+	 * Retrieve a never ending stream of committed atoms, one batch per committed transaction.
+	 * Batches are delivered on a publishing thread with a bounded backlog, beyond which
+	 * batches are dropped, so subscribers should process them promptly.
 	 *
-	 * @return hot observable of committed commands and it's result
+	 * @return hot observable of batches of committed commands and their results
 	 */
-	Observable<CommittedAtomWithResult> committedAtoms();
+	Observable<ImmutableList<CommittedAtomWithResult>> committedAtoms();
 }
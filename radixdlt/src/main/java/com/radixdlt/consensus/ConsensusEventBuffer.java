@@ -0,0 +1,297 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.consensus;
+
+import com.radixdlt.consensus.bft.BFTNode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A bounded buffer of {@link ConsensusEvent}s grouped by an ordered key
+ * (e.g. epoch or view) for events which cannot be processed yet.
+ * <p>
+ * The buffer is bounded in three ways, and eviction is deterministic:
+ * <ul>
+ *     <li>Number of distinct keys: a new key above all existing keys is rejected when
+ *     full, otherwise the highest key is evicted to make room.</li>
+ *     <li>Number of events per author per key: the oldest event from that author for
+ *     that key is evicted.</li>
+ *     <li>Total estimated size in bytes: the newest event of the highest key is evicted
+ *     until the buffer fits again.</li>
+ * </ul>
+ * Events further in the future are evicted first as they are the least likely to be
+ * needed soon, and the most likely to be spam.
+ * <p>
+ * This class is NOT thread-safe.
+ *
+ * @param <K> the key type events are grouped by
+ */
+@NotThreadSafe
+public final class ConsensusEventBuffer<K extends Comparable<K>> {
+	private static final class Entry {
+		private final ConsensusEvent event;
+		private final int size;
+
+		private Entry(ConsensusEvent event, int size) {
+			this.event = event;
+			this.size = size;
+		}
+	}
+
+	private final int maxKeys;
+	private final int maxEventsPerAuthor;
+	private final long maxBytes;
+	private final ToIntFunction<ConsensusEvent> sizeEstimator;
+	private final TreeMap<K, List<Entry>> buffer = new TreeMap<>();
+
+	private int count;
+	private long bytes;
+	private long evicted;
+
+	/**
+	 * Creates a new buffer with the given bounds.
+	 *
+	 * @param maxKeys maximum number of distinct keys buffered
+	 * @param maxEventsPerAuthor maximum number of events buffered for any author per key
+	 * @param maxBytes maximum total estimated size of all buffered events
+	 * @param sizeEstimator function to estimate the size in bytes of an event
+	 */
+	public ConsensusEventBuffer(int maxKeys, int maxEventsPerAuthor, long maxBytes, ToIntFunction<ConsensusEvent> sizeEstimator) {
+		if (maxKeys <= 0 || maxEventsPerAuthor <= 0 || maxBytes <= 0) {
+			throw new IllegalArgumentException(
+				String.format("Bounds must be positive: keys %s, per author %s, bytes %s", maxKeys, maxEventsPerAuthor, maxBytes)
+			);
+		}
+		this.maxKeys = maxKeys;
+		this.maxEventsPerAuthor = maxEventsPerAuthor;
+		this.maxBytes = maxBytes;
+		this.sizeEstimator = Objects.requireNonNull(sizeEstimator);
+	}
+
+	/**
+	 * Creates a new buffer with the given bounds using {@link ConsensusEvents#estimateSize(ConsensusEvent)}
+	 * to estimate event sizes.
+	 *
+	 * @param maxKeys maximum number of distinct keys buffered
+	 * @param maxEventsPerAuthor maximum number of events buffered for any author per key
+	 * @param maxBytes maximum total estimated size of all buffered events
+	 */
+	public ConsensusEventBuffer(int maxKeys, int maxEventsPerAuthor, long maxBytes) {
+		this(maxKeys, maxEventsPerAuthor, maxBytes, ConsensusEvents::estimateSize);
+	}
+
+	/**
+	 * Adds an event to the buffer under the given key, evicting other events
+	 * if required to keep the buffer within its bounds.
+	 *
+	 * @param key the key to buffer the event under
+	 * @param event the event to buffer
+	 * @return {@code true} if the event is buffered, {@code false} if it was rejected
+	 * 	or is already buffered
+	 */
+	public boolean add(K key, ConsensusEvent event) {
+		List<Entry> entries = this.buffer.get(key);
+		if (entries == null) {
+			if (this.buffer.size() >= this.maxKeys) {
+				K highestKey = this.buffer.lastKey();
+				if (key.compareTo(highestKey) > 0) {
+					this.evicted += 1;
+					return false;
+				}
+				evictKey(highestKey);
+			}
+			entries = new ArrayList<>();
+			this.buffer.put(key, entries);
+		} else if (containsEvent(entries, event)) {
+			return false;
+		}
+
+		evictOldestFromAuthorIfFull(entries, event.getAuthor());
+
+		final Entry entry = new Entry(event, this.sizeEstimator.applyAsInt(event));
+		entries.add(entry);
+		this.count += 1;
+		this.bytes += entry.size;
+
+		while (this.bytes > this.maxBytes) {
+			Map.Entry<K, List<Entry>> highest = this.buffer.lastEntry();
+			List<Entry> highestEntries = highest.getValue();
+			Entry removed = highestEntries.remove(highestEntries.size() - 1);
+			if (highestEntries.isEmpty()) {
+				this.buffer.remove(highest.getKey());
+			}
+			this.count -= 1;
+			this.bytes -= removed.size;
+			this.evicted += 1;
+			if (removed == entry) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Removes and returns all events buffered under the given key in the order they were added.
+	 *
+	 * @param key the key to remove events for
+	 * @return the removed events, or an empty list if none
+	 */
+	public List<ConsensusEvent> remove(K key) {
+		List<Entry> entries = this.buffer.remove(key);
+		if (entries == null) {
+			return Collections.emptyList();
+		}
+		List<ConsensusEvent> events = new ArrayList<>(entries.size());
+		for (Entry entry : entries) {
+			this.count -= 1;
+			this.bytes -= entry.size;
+			events.add(entry.event);
+		}
+		return events;
+	}
+
+	/**
+	 * Removes all events buffered under the given key and any lower key.
+	 *
+	 * @param key the highest key to remove, inclusive
+	 */
+	public void removeUpTo(K key) {
+		removeKeys(this.buffer.headMap(key, true));
+	}
+
+	/**
+	 * Removes all events buffered under any key strictly lower than the given key.
+	 *
+	 * @param key the lowest key to retain
+	 */
+	public void removeBelow(K key) {
+		removeKeys(this.buffer.headMap(key, false));
+	}
+
+	/**
+	 * Removes and returns all events matching the given predicate, in key order
+	 * and then in the order they were added.
+	 *
+	 * @param predicate the predicate to match events with
+	 * @return the removed events, or an empty list if none
+	 */
+	public List<ConsensusEvent> removeIf(Predicate<ConsensusEvent> predicate) {
+		List<ConsensusEvent> removed = new ArrayList<>();
+		Iterator<List<Entry>> keyIterator = this.buffer.values().iterator();
+		while (keyIterator.hasNext()) {
+			List<Entry> entries = keyIterator.next();
+			Iterator<Entry> entryIterator = entries.iterator();
+			while (entryIterator.hasNext()) {
+				Entry entry = entryIterator.next();
+				if (predicate.test(entry.event)) {
+					entryIterator.remove();
+					this.count -= 1;
+					this.bytes -= entry.size;
+					removed.add(entry.event);
+				}
+			}
+			if (entries.isEmpty()) {
+				keyIterator.remove();
+			}
+		}
+		return removed;
+	}
+
+	/**
+	 * @return the number of events currently buffered
+	 */
+	public int size() {
+		return this.count;
+	}
+
+	/**
+	 * @return the total estimated size in bytes of the events currently buffered
+	 */
+	public long bytes() {
+		return this.bytes;
+	}
+
+	/**
+	 * @return the total number of events evicted or rejected due to the bounds of this buffer
+	 */
+	public long evicted() {
+		return this.evicted;
+	}
+
+	private void removeKeys(Map<K, List<Entry>> toRemove) {
+		for (List<Entry> entries : toRemove.values()) {
+			for (Entry entry : entries) {
+				this.count -= 1;
+				this.bytes -= entry.size;
+			}
+		}
+		toRemove.clear();
+	}
+
+	private void evictKey(K key) {
+		List<Entry> entries = this.buffer.remove(key);
+		for (Entry entry : entries) {
+			this.count -= 1;
+			this.bytes -= entry.size;
+			this.evicted += 1;
+		}
+	}
+
+	private void evictOldestFromAuthorIfFull(List<Entry> entries, BFTNode author) {
+		int authorCount = 0;
+		int oldestIndex = -1;
+		for (int i = 0; i < entries.size(); i++) {
+			if (entries.get(i).event.getAuthor().equals(author)) {
+				if (oldestIndex < 0) {
+					oldestIndex = i;
+				}
+				authorCount += 1;
+			}
+		}
+		if (authorCount >= this.maxEventsPerAuthor) {
+			Entry removed = entries.remove(oldestIndex);
+			this.count -= 1;
+			this.bytes -= removed.size;
+			this.evicted += 1;
+		}
+	}
+
+	private static boolean containsEvent(List<Entry> entries, ConsensusEvent event) {
+		for (Entry entry : entries) {
+			if (entry.event.equals(event)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s{keys=%s events=%s bytes=%s evicted=%s}",
+			getClass().getSimpleName(), this.buffer.size(), this.count, this.bytes, this.evicted);
+	}
+}
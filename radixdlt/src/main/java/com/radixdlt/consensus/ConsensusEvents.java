@@ -0,0 +1,71 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.consensus;
+
+/**
+ * Utility methods for {@link ConsensusEvent}s.
+ */
+public final class ConsensusEvents {
+	// Rough serialized sizes, based on DSON encodings of the respective objects.
+	// These are used for memory accounting only, and do not need to be exact.
+	private static final int EVENT_OVERHEAD_BYTES = 256;
+	private static final int QC_OVERHEAD_BYTES = 768;
+	private static final int SIGNATURE_BYTES = 192;
+
+	private ConsensusEvents() {
+		throw new IllegalStateException("Cannot instantiate.");
+	}
+
+	/**
+	 * Cheaply estimates the serialized size of a consensus event without serializing it.
+	 * The estimate is dominated by the number of signatures carried in the
+	 * event's {@link HighQC} and, for proposals, the size of the command.
+	 *
+	 * @param event the event to estimate the size of
+	 * @return the estimated size in bytes
+	 */
+	public static int estimateSize(ConsensusEvent event) {
+		int size = EVENT_OVERHEAD_BYTES + estimateSize(event.highQC());
+		if (event instanceof Proposal) {
+			final UnverifiedVertex vertex = ((Proposal) event).getVertex();
+			size += estimateSize(vertex.getQC());
+			final Command command = vertex.getCommand();
+			if (command != null) {
+				size += command.getPayload().length;
+			}
+		} else if (event instanceof Vote) {
+			size += SIGNATURE_BYTES;
+		}
+		return size;
+	}
+
+	private static int estimateSize(HighQC highQC) {
+		int size = estimateSize(highQC.highestQC());
+		if (highQC.highestCommittedQC() != highQC.highestQC()) {
+			size += estimateSize(highQC.highestCommittedQC());
+		}
+		size += highQC.highestTC()
+			.map(tc -> QC_OVERHEAD_BYTES + tc.getTimestampedSignatures().count() * SIGNATURE_BYTES)
+			.orElse(0);
+		return size;
+	}
+
+	private static int estimateSize(QuorumCertificate qc) {
+		return QC_OVERHEAD_BYTES + qc.getTimestampedSignatures().count() * SIGNATURE_BYTES;
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.consensus;
+
+import com.radixdlt.ModuleRunner;
+import com.radixdlt.consensus.bft.BFTInsertUpdate;
+import com.radixdlt.consensus.bft.BFTRebuildUpdate;
+import com.radixdlt.consensus.epoch.EpochManager;
+import com.radixdlt.consensus.epoch.EpochViewUpdate;
+import com.radixdlt.consensus.liveness.PacemakerRx;
+import com.radixdlt.consensus.sync.GetVerticesRequest;
+import com.radixdlt.consensus.sync.VertexRequestTimeout;
+import com.radixdlt.environment.EventProcessor;
+import com.radixdlt.environment.disruptor.DisruptorEnvironment;
+import com.radixdlt.environment.disruptor.DisruptorEventLoop;
+import com.radixdlt.environment.rx.RemoteEvent;
+import com.radixdlt.epochs.EpochsLedgerUpdate;
+
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.disposables.CompositeDisposable;
+import java.util.Objects;
+
+import javax.inject.Inject;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Subscription Manager (Start/Stop) to the processing of Consensus events under
+ * a single BFT Consensus node instance, where all events are processed by the
+ * single consumer of a {@link DisruptorEventLoop}.
+ * <p>
+ * Local events are delivered directly to the event loop by the {@link DisruptorEnvironment},
+ * while network and timeout events are published to the event loop on the thread
+ * that receives them, without any intermediate queueing.
+ */
+public final class DisruptorEpochManagerRunner implements ModuleRunner {
+	private static final Logger log = LogManager.getLogger();
+	private final Object lock = new Object();
+	private final DisruptorEnvironment environment;
+	private final DisruptorEventLoop eventLoop;
+	private final EpochManager epochManager;
+
+	private final Observable<EpochsLedgerUpdate> ledgerUpdates;
+	private final Observable<RemoteEvent<GetVerticesRequest>> verticesRequests;
+	private final BFTEventsRx networkRx;
+	private final PacemakerRx pacemakerRx;
+	private final SyncVerticesRPCRx rpcRx;
+	private final SyncEpochsRPCRx epochsRPCRx;
+
+	private final EventProcessor<BFTInsertUpdate> bftUpdateProcessor;
+	private final EventProcessor<BFTRebuildUpdate> bftRebuildProcessor;
+	private final EventProcessor<VertexRequestTimeout> vertexRequestTimeoutEventProcessor;
+	private final EventProcessor<EpochViewUpdate> epochViewUpdateEventProcessor;
+	private final EventProcessor<RemoteEvent<GetVerticesRequest>> verticesRequestProcessor;
+
+	private CompositeDisposable disposable;
+
+	@Inject
+	public DisruptorEpochManagerRunner(
+		DisruptorEnvironment environment,
+		Observable<EpochsLedgerUpdate> ledgerUpdates,
+		EventProcessor<BFTInsertUpdate> bftUpdateProcessor,
+		EventProcessor<BFTRebuildUpdate> bftRebuildProcessor,
+		EventProcessor<VertexRequestTimeout> vertexRequestTimeoutEventProcessor,
+		EventProcessor<EpochViewUpdate> epochViewUpdateEventProcessor,
+		Observable<RemoteEvent<GetVerticesRequest>> verticesRequests,
+		BFTEventsRx networkRx,
+		PacemakerRx pacemakerRx,
+		SyncVerticesRPCRx rpcRx,
+		SyncEpochsRPCRx epochsRPCRx,
+		EpochManager epochManager
+	) {
+		this.environment = Objects.requireNonNull(environment);
+		this.eventLoop = environment.eventLoop();
+		this.epochManager = Objects.requireNonNull(epochManager);
+		this.ledgerUpdates = Objects.requireNonNull(ledgerUpdates);
+		this.verticesRequests = Objects.requireNonNull(verticesRequests);
+		this.networkRx = Objects.requireNonNull(networkRx);
+		this.pacemakerRx = Objects.requireNonNull(pacemakerRx);
+		this.rpcRx = Objects.requireNonNull(rpcRx);
+		this.epochsRPCRx = Objects.requireNonNull(epochsRPCRx);
+		this.bftUpdateProcessor = Objects.requireNonNull(bftUpdateProcessor);
+		this.bftRebuildProcessor = Objects.requireNonNull(bftRebuildProcessor);
+		this.vertexRequestTimeoutEventProcessor = Objects.requireNonNull(vertexRequestTimeoutEventProcessor);
+		this.epochViewUpdateEventProcessor = Objects.requireNonNull(epochViewUpdateEventProcessor);
+		this.verticesRequestProcessor = req -> epochManager.localGetVerticesRequestRemoteEventProcessor().process(req.getOrigin(), req.getEvent());
+	}
+
+	private <T> void publishTo(CompositeDisposable d, Observable<T> events, EventProcessor<T> processor) {
+		d.add(events.subscribe(e -> eventLoop.publish(processor, e), this::onError));
+	}
+
+	private void onError(Throwable e) {
+		// TODO: Implement better error handling especially against Byzantine nodes.
+		// TODO: Exit process for now.
+		log.error("Unexpected exception occurred", e);
+		System.exit(-1);
+	}
+
+	/**
+	 * Starts processing events. This call is idempotent in that multiple
+	 * calls will not affect execution, only one event handling stream will ever
+	 * occur.
+	 */
+	@Override
+	public void start() {
+		boolean started = false;
+		synchronized (lock) {
+			if (disposable == null) {
+				// Register processors first so that events emitted while starting reach the event loop
+				this.environment.setProcessor(BFTInsertUpdate.class, bftUpdateProcessor);
+				this.environment.setProcessor(BFTRebuildUpdate.class, bftRebuildProcessor);
+				this.environment.setProcessor(VertexRequestTimeout.class, vertexRequestTimeoutEventProcessor);
+				this.environment.setProcessor(EpochViewUpdate.class, epochViewUpdateEventProcessor);
+
+				this.eventLoop.start();
+				this.eventLoop.execute(epochManager::start);
+
+				final CompositeDisposable d = new CompositeDisposable();
+				publishTo(d, ledgerUpdates, epochManager::processLedgerUpdate);
+				publishTo(d, pacemakerRx.localTimeouts(), epochManager::processLocalTimeout);
+				publishTo(d, networkRx.bftEvents(), epochManager::processConsensusEvent);
+				publishTo(d, verticesRequests, verticesRequestProcessor);
+				publishTo(d, rpcRx.responses(), epochManager::processGetVerticesResponse);
+				publishTo(d, rpcRx.errorResponses(), epochManager::processGetVerticesErrorResponse);
+				publishTo(d, epochsRPCRx.epochRequests(), epochManager::processGetEpochRequest);
+				publishTo(d, epochsRPCRx.epochResponses(), epochManager::processGetEpochResponse);
+				disposable = d;
+				started = true;
+			}
+		}
+		if (started) {
+			log.info("Consensus started");
+		}
+	}
+
+	/**
+	 * Stop processing events.
+	 */
+	@Override
+	public void stop() {
+		boolean stopped = false;
+		synchronized (lock) {
+			if (disposable != null) {
+				disposable.dispose();
+				disposable = null;
+				this.environment.setProcessor(BFTInsertUpdate.class, null);
+				this.environment.setProcessor(BFTRebuildUpdate.class, null);
+				this.environment.setProcessor(VertexRequestTimeout.class, null);
+				this.environment.setProcessor(EpochViewUpdate.class, null);
+				stopped = true;
+			}
+		}
+		if (stopped) {
+			log.info("Consensus stopped");
+		}
+	}
+
+	/**
+	 * Terminate and stop all threads.
+	 * The runner cannot be restarted once this method is called.
+	 */
+	public void shutdown() {
+		synchronized (lock) {
+			stop();
+			this.eventLoop.shutdown();
+		}
+	}
+}
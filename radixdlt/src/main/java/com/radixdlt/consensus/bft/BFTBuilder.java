@@ -22,6 +22,7 @@ import com.radixdlt.consensus.HashVerifier;
 import com.radixdlt.consensus.PendingVotes;
 import com.radixdlt.consensus.Vote;
 import com.radixdlt.consensus.safety.SafetyRules;
+import com.radixdlt.counters.SystemCounters;
 import com.radixdlt.crypto.Hasher;
 import com.radixdlt.consensus.liveness.Pacemaker;
 import com.radixdlt.environment.EventDispatcher;
@@ -49,6 +50,7 @@ public final class BFTBuilder {
 	private ViewUpdate viewUpdate;
 	private RemoteEventDispatcher<Vote> voteDispatcher;
 	private SafetyRules safetyRules;
+	private SystemCounters counters;
 
 	private BFTBuilder() {
 		// Just making this inaccessible
@@ -78,6 +80,11 @@ public final class BFTBuilder {
 		return this;
 	}
 
+	public BFTBuilder counters(SystemCounters counters) {
+		this.counters = counters;
+		return this;
+	}
+
 	public BFTBuilder hasher(Hasher hasher) {
 		this.hasher = hasher;
 		return this;
@@ -141,7 +148,8 @@ public final class BFTBuilder {
 		BFTEventPreprocessor preprocessor = new BFTEventPreprocessor(
 			reducer,
 			bftSyncer,
-			viewUpdate
+			viewUpdate,
+			counters
 		);
 
 		return new BFTEventVerifier(
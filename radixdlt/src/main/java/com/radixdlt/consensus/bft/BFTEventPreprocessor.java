@@ -21,18 +21,15 @@ import com.google.common.hash.HashCode;
 import com.radixdlt.consensus.BFTEventProcessor;
 import com.radixdlt.consensus.Proposal;
 import com.radixdlt.consensus.ConsensusEvent;
+import com.radixdlt.consensus.ConsensusEventBuffer;
 import com.radixdlt.consensus.HighQC;
 import com.radixdlt.consensus.Vote;
 import com.radixdlt.consensus.bft.BFTSyncer.SyncResult;
 
 import com.radixdlt.consensus.liveness.ScheduledLocalTimeout;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Map;
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
 import java.util.Objects;
-import java.util.Set;
 import java.util.function.Consumer;
 
 import org.apache.logging.log4j.LogManager;
@@ -48,25 +45,39 @@ import org.apache.logging.log4j.Logger;
  * A lot of the queue logic could be done more "cleanly" and functionally using
  * lambdas and Functions but the performance impact is too great.
  *
+ * Events waiting for a future view or for sync are held in bounded buffers
+ * keyed by view so that a lagging node, or a byzantine peer sending events
+ * far in the future, cannot cause unbounded memory growth.
+ *
  * This class is NOT thread-safe.
  */
 public final class BFTEventPreprocessor implements BFTEventProcessor {
 	private static final Logger log = LogManager.getLogger();
 
+	// Bounds on events buffered for future views and for sync
+	private static final int MAX_BUFFERED_VIEWS = 100;
+	private static final int MAX_BUFFERED_EVENTS_PER_AUTHOR = 4;
+	private static final long MAX_BUFFERED_BYTES = 16L * 1024L * 1024L;
+
 	private final BFTEventProcessor forwardTo;
 	private final BFTSyncer bftSyncer;
-	private final Set<ConsensusEvent> syncingEvents = new HashSet<>();
-	private final Map<View, List<ConsensusEvent>> viewQueues = new HashMap<>();
+	private final SystemCounters counters;
+	private final ConsensusEventBuffer<View> syncingEvents =
+		new ConsensusEventBuffer<>(MAX_BUFFERED_VIEWS, MAX_BUFFERED_EVENTS_PER_AUTHOR, MAX_BUFFERED_BYTES);
+	private final ConsensusEventBuffer<View> viewQueues =
+		new ConsensusEventBuffer<>(MAX_BUFFERED_VIEWS, MAX_BUFFERED_EVENTS_PER_AUTHOR, MAX_BUFFERED_BYTES);
 	private ViewUpdate latestViewUpdate;
 
 	public BFTEventPreprocessor(
 		BFTEventProcessor forwardTo,
 		BFTSyncer bftSyncer,
-		ViewUpdate initialViewUpdate
+		ViewUpdate initialViewUpdate,
+		SystemCounters counters
 	) {
 		this.bftSyncer = Objects.requireNonNull(bftSyncer);
 		this.forwardTo = forwardTo;
 		this.latestViewUpdate = Objects.requireNonNull(initialViewUpdate);
+		this.counters = Objects.requireNonNull(counters);
 	}
 
 	@Override
@@ -78,14 +89,21 @@ public final class BFTEventPreprocessor implements BFTEventProcessor {
 		if (viewUpdate.getCurrentView().gt(previousView)) {
 			this.latestViewUpdate = viewUpdate;
 			forwardTo.processViewUpdate(viewUpdate);
-			viewQueues.getOrDefault(viewUpdate.getCurrentView(), new LinkedList<>())
+			viewQueues.remove(viewUpdate.getCurrentView())
 					.forEach(this::processViewCachedEvent);
-			viewQueues.keySet().removeIf(v -> v.lte(viewUpdate.getCurrentView()));
+			viewQueues.removeUpTo(viewUpdate.getCurrentView());
 
-			syncingEvents.removeIf(e -> e.getView().lt(viewUpdate.getCurrentView()));
+			syncingEvents.removeBelow(viewUpdate.getCurrentView());
+			updateBufferCounters();
 		}
 	}
 
+	private void updateBufferCounters() {
+		counters.set(CounterType.BFT_PREPROCESSOR_BUFFERED_EVENTS, (long) syncingEvents.size() + viewQueues.size());
+		counters.set(CounterType.BFT_PREPROCESSOR_BUFFERED_BYTES, syncingEvents.bytes() + viewQueues.bytes());
+		counters.set(CounterType.BFT_PREPROCESSOR_EVICTED_EVENTS, syncingEvents.evicted() + viewQueues.evicted());
+	}
+
 	private void processViewCachedEvent(ConsensusEvent event) {
 		if (event instanceof Proposal) {
 			log.trace("Processing cached proposal {}", event);
@@ -103,11 +121,9 @@ public final class BFTEventPreprocessor implements BFTEventProcessor {
 		HashCode vertexId = update.getInserted().getId();
 		log.trace("LOCAL_SYNC: {}", vertexId);
 
-		syncingEvents.stream()
-			.filter(e -> e.highQC().highestQC().getProposed().getVertexId().equals(vertexId))
+		syncingEvents.removeIf(e -> e.highQC().highestQC().getProposed().getVertexId().equals(vertexId))
 			.forEach(this::processQueuedConsensusEvent);
-
-		syncingEvents.removeIf(e -> e.highQC().highestQC().getProposed().getVertexId().equals(vertexId));
+		updateBufferCounters();
 
 		forwardTo.processBFTUpdate(update);
 	}
@@ -116,12 +132,10 @@ public final class BFTEventPreprocessor implements BFTEventProcessor {
 	public void processBFTRebuildUpdate(BFTRebuildUpdate rebuildUpdate) {
 		rebuildUpdate.getVertexStoreState().getVertices().forEach(v -> {
 			HashCode vertexId = v.getId();
-			syncingEvents.stream()
-				.filter(e -> e.highQC().highestQC().getProposed().getVertexId().equals(vertexId))
+			syncingEvents.removeIf(e -> e.highQC().highestQC().getProposed().getVertexId().equals(vertexId))
 				.forEach(this::processQueuedConsensusEvent);
-
-			syncingEvents.removeIf(e -> e.highQC().highestQC().getProposed().getVertexId().equals(vertexId));
 		});
+		updateBufferCounters();
 	}
 
 	@Override
@@ -129,7 +143,8 @@ public final class BFTEventPreprocessor implements BFTEventProcessor {
 		log.trace("Vote: PreProcessing {}", vote);
 		if (!processVoteInternal(vote)) {
 			log.debug("Vote: Queuing {}, waiting for Sync", vote);
-			syncingEvents.add(vote);
+			syncingEvents.add(vote.getView(), vote);
+			updateBufferCounters();
 		}
 	}
 
@@ -138,7 +153,8 @@ public final class BFTEventPreprocessor implements BFTEventProcessor {
 		log.trace("Proposal: PreProcessing {}", proposal);
 		if (!processProposalInternal(proposal)) {
 			log.debug("Proposal: Queuing {}, waiting for Sync", proposal);
-			syncingEvents.add(proposal);
+			syncingEvents.add(proposal.getView(), proposal);
+			updateBufferCounters();
 		}
 	}
 
@@ -207,8 +223,8 @@ public final class BFTEventPreprocessor implements BFTEventProcessor {
 			processFn.accept(event);
 		} else if (latestViewUpdate.getCurrentView().lt(event.getView())) {
 			log.trace("Caching {}, current view is {}", event, latestViewUpdate.getCurrentView());
-			viewQueues.putIfAbsent(event.getView(), new LinkedList<>());
-			viewQueues.get(event.getView()).add(event);
+			viewQueues.add(event.getView(), event);
+			updateBufferCounters();
 		} else {
 			log.debug("Ignoring {} for past view", event);
 		}
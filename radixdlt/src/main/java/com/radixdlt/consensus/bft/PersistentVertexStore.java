@@ -17,7 +17,9 @@
 
 package com.radixdlt.consensus.bft;
 
-import com.sleepycat.je.Transaction;
+import com.radixdlt.store.LedgerTransaction;
+import com.radixdlt.store.berkeley.SerializedVertexStoreState;
+import java.util.Optional;
 
 /**
  * Store which saves the Vertex Store State for recovery
@@ -25,5 +27,12 @@ import com.sleepycat.je.Transaction;
  */
 public interface PersistentVertexStore {
 	void save(VerifiedVertexStoreState vertexStoreState);
-	void save(Transaction transaction, VerifiedVertexStoreState vertexStoreState);
+	void save(LedgerTransaction transaction, VerifiedVertexStoreState vertexStoreState);
+
+	/**
+	 * Retrieves the most recently saved vertex store state.
+	 *
+	 * @return the last vertex store state, or empty if none was saved
+	 */
+	Optional<SerializedVertexStoreState> loadLastVertexStoreState();
 }
@@ -23,6 +23,7 @@ import com.radixdlt.consensus.BFTConfiguration;
 import com.radixdlt.consensus.BFTEventProcessor;
 import com.radixdlt.consensus.BFTFactory;
 import com.radixdlt.consensus.ConsensusEvent;
+import com.radixdlt.consensus.ConsensusEventBuffer;
 import com.radixdlt.consensus.HashSigner;
 import com.radixdlt.consensus.HighQC;
 import com.radixdlt.consensus.bft.BFTRebuildUpdate;
@@ -57,6 +58,7 @@ import com.radixdlt.consensus.sync.GetVerticesRequest;
 import com.radixdlt.consensus.sync.VertexRequestTimeout;
 import com.radixdlt.counters.SystemCounters;
 import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.counters.SystemCounters.HistogramType;
 import com.radixdlt.environment.EventDispatcher;
 import com.radixdlt.crypto.Hasher;
 import com.radixdlt.environment.EventProcessor;
@@ -65,13 +67,9 @@ import com.radixdlt.epochs.EpochsLedgerUpdate;
 import com.radixdlt.ledger.LedgerUpdate;
 import com.radixdlt.ledger.LedgerUpdateProcessor;
 import com.radixdlt.sync.LocalSyncRequest;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import javax.annotation.concurrent.NotThreadSafe;
@@ -110,6 +108,13 @@ public final class EpochManager {
 	}
 
 	private static final Logger log = LogManager.getLogger();
+
+	// Bounds on consensus events queued for future epochs.  Only events for the
+	// next epoch are likely to be useful, so these are kept tight.
+	private static final int MAX_QUEUED_EPOCHS = 4;
+	private static final int MAX_QUEUED_EVENTS_PER_AUTHOR = 4;
+	private static final long MAX_QUEUED_BYTES = 8L * 1024L * 1024L;
+
 	private final BFTNode self;
 	private final SyncEpochsRPCSender epochsRPCSender;
 	private final PacemakerFactory pacemakerFactory;
@@ -121,7 +126,7 @@ public final class EpochManager {
 	private final HashSigner signer;
 	private final PacemakerTimeoutCalculator timeoutCalculator;
 	private final SystemCounters counters;
-	private final Map<Long, List<ConsensusEvent>> queuedEvents;
+	private final ConsensusEventBuffer<Long> queuedEvents;
 	private final BFTFactory bftFactory;
 	private final EventDispatcher<LocalSyncRequest> localSyncRequestProcessor;
 	private final PacemakerStateFactory pacemakerStateFactory;
@@ -198,7 +203,7 @@ public final class EpochManager {
 		this.counters = Objects.requireNonNull(counters);
 		this.pacemakerStateFactory = Objects.requireNonNull(pacemakerStateFactory);
 		this.persistentSafetyStateStore = Objects.requireNonNull(persistentSafetyStateStore);
-		this.queuedEvents = new HashMap<>();
+		this.queuedEvents = new ConsensusEventBuffer<>(MAX_QUEUED_EPOCHS, MAX_QUEUED_EVENTS_PER_AUTHOR, MAX_QUEUED_BYTES);
 	}
 
 	private void updateEpochState() {
@@ -314,13 +319,20 @@ public final class EpochManager {
 		this.updateEpochState();
 		this.bftEventProcessor.start();
 
-		// Execute any queued up consensus events
-		final List<ConsensusEvent> queuedEventsForEpoch = queuedEvents.getOrDefault(epochChange.getEpoch(), Collections.emptyList());
+		// Execute any queued up consensus events, dropping any for epochs which are now stale
+		final List<ConsensusEvent> queuedEventsForEpoch = queuedEvents.remove(epochChange.getEpoch());
+		queuedEvents.removeUpTo(epochChange.getEpoch());
+		updateQueuedEventCounters();
+
 		View highView = queuedEventsForEpoch.stream().map(ConsensusEvent::getView).max(Comparator.naturalOrder()).orElse(View.genesis());
 		queuedEventsForEpoch.stream().filter(e -> e.getView().equals(highView))
 			.forEach(this::processConsensusEventInternal);
+	}
 
-		queuedEvents.remove(epochChange.getEpoch());
+	private void updateQueuedEventCounters() {
+		counters.set(CounterType.EPOCH_MANAGER_BUFFERED_EVENTS, queuedEvents.size());
+		counters.set(CounterType.EPOCH_MANAGER_BUFFERED_BYTES, queuedEvents.bytes());
+		counters.set(CounterType.EPOCH_MANAGER_EVICTED_EVENTS, queuedEvents.evicted());
 	}
 
 	private void logEpochChange(EpochChange epochChange, String message) {
@@ -388,6 +400,7 @@ public final class EpochManager {
 	private void processConsensusEventInternal(ConsensusEvent consensusEvent) {
 		this.counters.increment(CounterType.BFT_CONSENSUS_EVENTS);
 
+		final long start = System.nanoTime();
 		if (consensusEvent instanceof Proposal) {
 			bftEventProcessor.processProposal((Proposal) consensusEvent);
 		} else if (consensusEvent instanceof Vote) {
@@ -395,6 +408,7 @@ public final class EpochManager {
 		} else {
 			throw new IllegalStateException("Unknown consensus event: " + consensusEvent);
 		}
+		this.counters.record(HistogramType.LATENCY_BFT_CONSENSUS_EVENT, (System.nanoTime() - start + 500L) / 1000L);
 	}
 
 	public void processConsensusEvent(ConsensusEvent consensusEvent) {
@@ -404,9 +418,11 @@ public final class EpochManager {
 			);
 
 			// queue higher epoch events for later processing
-			// TODO: need to clear this by some rule (e.g. timeout or max size) or else memory leak attack possible
-			queuedEvents.computeIfAbsent(consensusEvent.getEpoch(), e -> new ArrayList<>()).add(consensusEvent);
-			counters.increment(CounterType.EPOCH_MANAGER_QUEUED_CONSENSUS_EVENTS);
+			// buffer is bounded, so a flood of future events will evict rather than grow
+			if (queuedEvents.add(consensusEvent.getEpoch(), consensusEvent)) {
+				counters.increment(CounterType.EPOCH_MANAGER_QUEUED_CONSENSUS_EVENTS);
+			}
+			updateQueuedEventCounters();
 
 			// Send request for higher epoch proof
 			epochsRPCSender.sendGetEpochRequest(consensusEvent.getAuthor(), this.currentEpoch());
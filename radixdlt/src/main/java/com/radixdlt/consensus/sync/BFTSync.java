@@ -46,6 +46,8 @@ import com.radixdlt.environment.ScheduledEventDispatcher;
 import com.radixdlt.ledger.LedgerUpdate;
 import com.radixdlt.ledger.LedgerUpdateProcessor;
 import com.radixdlt.sync.LocalSyncRequest;
+import com.radixdlt.sync.PeerPerformanceTracker;
+import com.radixdlt.sync.PeerPerformanceTracker.RequestType;
 import com.radixdlt.utils.Pair;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -57,7 +59,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
-import java.util.Random;
 import java.util.TreeMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -79,6 +80,7 @@ public final class BFTSync implements BFTSyncResponseProcessor, BFTSyncer, Ledge
 	private static class SyncRequestState {
 		private final ImmutableList<BFTNode> authors;
 		private final List<HashCode> syncIds = new ArrayList<>();
+		private BFTNode requestedNode;
 
 		SyncRequestState(ImmutableList<BFTNode> authors) {
 			this.authors = Objects.requireNonNull(authors);
@@ -129,7 +131,7 @@ public final class BFTSync implements BFTSyncResponseProcessor, BFTSyncer, Ledge
 	private final RemoteEventDispatcher<GetVerticesRequest> requestSender;
 	private final EventDispatcher<LocalSyncRequest> localSyncRequestProcessor;
 	private final ScheduledEventDispatcher<VertexRequestTimeout> timeoutDispatcher;
-	private final Random random;
+	private final PeerPerformanceTracker peerPerformance;
 	private final int bftSyncPatienceMillis;
 	private final SystemCounters systemCounters;
 	private VerifiedLedgerHeaderAndProof currentLedgerHeader;
@@ -143,7 +145,7 @@ public final class BFTSync implements BFTSyncResponseProcessor, BFTSyncer, Ledge
 		EventDispatcher<LocalSyncRequest> localSyncRequestProcessor,
 		ScheduledEventDispatcher<VertexRequestTimeout> timeoutDispatcher,
 		VerifiedLedgerHeaderAndProof currentLedgerHeader,
-		Random random,
+		PeerPerformanceTracker peerPerformance,
 		int bftSyncPatienceMillis,
 		SystemCounters systemCounters
 	) {
@@ -155,7 +157,7 @@ public final class BFTSync implements BFTSyncResponseProcessor, BFTSyncer, Ledge
 		this.localSyncRequestProcessor = Objects.requireNonNull(localSyncRequestProcessor);
 		this.timeoutDispatcher = Objects.requireNonNull(timeoutDispatcher);
 		this.currentLedgerHeader = Objects.requireNonNull(currentLedgerHeader);
-		this.random = random;
+		this.peerPerformance = Objects.requireNonNull(peerPerformance);
 		this.bftSyncPatienceMillis = bftSyncPatienceMillis;
 		this.systemCounters = Objects.requireNonNull(systemCounters);
 	}
@@ -280,6 +282,7 @@ public final class BFTSync implements BFTSyncResponseProcessor, BFTSyncer, Ledge
 		if (syncRequestState == null) {
 			return;
 		}
+		this.peerPerformance.requestTimedOut(RequestType.BFT_SYNC, syncRequestState.requestedNode);
 
 		var authors = syncRequestState.authors.stream()
 			.filter(author -> !author.equals(self)).collect(ImmutableList.toImmutableList());
@@ -295,22 +298,20 @@ public final class BFTSync implements BFTSyncResponseProcessor, BFTSyncer, Ledge
 		for (var syncId : syncIds) {
 			systemCounters.increment(CounterType.BFT_SYNC_REQUEST_TIMEOUTS);
 			SyncState syncState = syncing.remove(syncId);
-			syncToQC(syncState.highQC, randomFrom(authors));
+			syncToQC(syncState.highQC, this.peerPerformance.select(authors));
 		}
 	}
 
-	private <T> T randomFrom(List<T> elements) {
-		int nextIndex = random.nextInt(elements.size());
-		return elements.get(nextIndex);
-	}
-
 	private void sendBFTSyncRequest(HashCode vertexId, int count, ImmutableList<BFTNode> authors, HashCode syncId) {
 		GetVerticesRequest request = new GetVerticesRequest(vertexId, count);
 		SyncRequestState syncRequestState = bftSyncing.getOrDefault(request, new SyncRequestState(authors));
 		if (syncRequestState.syncIds.isEmpty()) {
 			VertexRequestTimeout scheduledTimeout = VertexRequestTimeout.create(request);
 			this.timeoutDispatcher.dispatch(scheduledTimeout, bftSyncPatienceMillis);
-			this.requestSender.dispatch(authors.get(0), request);
+			// The first author is known to have the vertices, so is always tried first
+			syncRequestState.requestedNode = authors.get(0);
+			this.peerPerformance.requestSent(RequestType.BFT_SYNC, syncRequestState.requestedNode);
+			this.requestSender.dispatch(syncRequestState.requestedNode, request);
 			this.bftSyncing.put(request, syncRequestState);
 		}
 		syncRequestState.syncIds.add(syncId);
@@ -401,6 +402,10 @@ public final class BFTSync implements BFTSyncResponseProcessor, BFTSyncer, Ledge
 		// TODO: check response
 
 		log.debug("SYNC_VERTICES: Received GetVerticesErrorResponse: {} highQC: {}", response, vertexStore.highQC());
+		// Error responses do not identify the request, so only credit peers with a request outstanding
+		if (this.bftSyncing.values().stream().anyMatch(s -> response.getSender().equals(s.requestedNode))) {
+			this.peerPerformance.responseReceived(RequestType.BFT_SYNC, response.getSender());
+		}
 
 		if (response.highQC().highestQC().getView().compareTo(vertexStore.highQC().highestQC().getView()) > 0) {
 			// error response indicates that the node has moved on from last sync so try and sync to a new sync
@@ -421,6 +426,10 @@ public final class BFTSync implements BFTSyncResponseProcessor, BFTSyncer, Ledge
 		GetVerticesRequest requestInfo = new GetVerticesRequest(firstVertex.getId(), response.getVertices().size());
 		SyncRequestState syncRequestState = bftSyncing.remove(requestInfo);
 		if (syncRequestState != null) {
+			// Only credit the peer the matching request was sent to
+			if (response.getSender().equals(syncRequestState.requestedNode)) {
+				this.peerPerformance.responseReceived(RequestType.BFT_SYNC, response.getSender());
+			}
 			for (HashCode syncTo : syncRequestState.syncIds) {
 				SyncState syncState = syncing.get(syncTo);
 				if (syncState == null) {
@@ -0,0 +1,159 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.counters;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A thread-safe histogram of non-negative values with logarithmically sized buckets.
+ * <p>
+ * Each power of two is split into {@code 2^SUB_BUCKET_BITS} linear sub-buckets, so any
+ * recorded value is reported with a relative error of at most {@code 1/2^SUB_BUCKET_BITS}.
+ * Recording a value does not allocate and takes no locks.
+ * <p>
+ * Reads are not atomic with respect to concurrent writes, and so percentiles may be
+ * very slightly inconsistent with counts while values are being recorded.
+ */
+public final class LogHistogram {
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int SUB_BUCKET_MASK = SUB_BUCKETS - 1;
+	// Highest exponent for a positive long is 62
+	private static final int BUCKETS = (Long.SIZE - 1 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+	/**
+	 * Records a value.  Negative values are recorded as zero.
+	 *
+	 * @param value the value to record
+	 */
+	public void record(long value) {
+		final long v = Math.max(0L, value);
+		this.buckets.incrementAndGet(bucketIndex(v));
+		this.count.increment();
+		this.sum.add(v);
+		this.max.accumulate(v);
+	}
+
+	/**
+	 * @return the number of values recorded
+	 */
+	public long count() {
+		return this.count.sum();
+	}
+
+	/**
+	 * @return the sum of all values recorded
+	 */
+	public long sum() {
+		return this.sum.sum();
+	}
+
+	/**
+	 * @return the largest value recorded, or zero if no values recorded
+	 */
+	public long max() {
+		return this.max.get();
+	}
+
+	/**
+	 * Returns an upper bound for the specified percentile of recorded values.
+	 * The value returned is the highest value in the bucket containing the percentile,
+	 * capped at the highest value recorded.
+	 *
+	 * @param percentile the percentile to return, between 0.0 and 1.0 inclusive
+	 * @return the value at the specified percentile, or zero if no values recorded
+	 */
+	public long percentile(double percentile) {
+		if (percentile < 0.0 || percentile > 1.0) {
+			throw new IllegalArgumentException("Percentile must be between 0.0 and 1.0: " + percentile);
+		}
+		long total = 0L;
+		for (int i = 0; i < BUCKETS; ++i) {
+			total += this.buckets.get(i);
+		}
+		if (total == 0L) {
+			return 0L;
+		}
+		final long rank = Math.max(1L, (long) Math.ceil(percentile * total));
+		long seen = 0L;
+		for (int i = 0; i < BUCKETS; ++i) {
+			seen += this.buckets.get(i);
+			if (seen >= rank) {
+				return Math.min(bucketUpperBound(i), max());
+			}
+		}
+		return max();
+	}
+
+	/**
+	 * @return the number of buckets in this histogram
+	 */
+	public int bucketCount() {
+		return BUCKETS;
+	}
+
+	/**
+	 * Returns the number of values recorded in the specified bucket.
+	 *
+	 * @param index the bucket index, between zero and {@link #bucketCount()} exclusive
+	 * @return the number of values recorded in the bucket
+	 */
+	public long bucketValue(int index) {
+		return this.buckets.get(index);
+	}
+
+	/**
+	 * Returns the highest value, inclusive, that is recorded in the specified bucket.
+	 *
+	 * @param index the bucket index, between zero and {@link #bucketCount()} exclusive
+	 * @return the highest value that the bucket records
+	 */
+	public static long bucketUpperBound(int index) {
+		final int group = index >>> SUB_BUCKET_BITS;
+		final int subBucket = index & SUB_BUCKET_MASK;
+		if (group == 0) {
+			return subBucket;
+		}
+		final int shift = group - 1;
+		final long lower = ((long) (SUB_BUCKETS + subBucket)) << shift;
+		return lower + (1L << shift) - 1L;
+	}
+
+	static int bucketIndex(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		final int shift = exponent - SUB_BUCKET_BITS;
+		final int group = shift + 1;
+		return (group << SUB_BUCKET_BITS) + (int) ((value >>> shift) & SUB_BUCKET_MASK);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[count=%s, max=%s, p50=%s, p99=%s]",
+			getClass().getSimpleName(), count(), max(), percentile(0.5), percentile(0.99));
+	}
+}
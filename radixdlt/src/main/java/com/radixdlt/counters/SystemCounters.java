@@ -27,10 +27,27 @@ public interface SystemCounters {
 	enum CounterType {
 		// Please keep these sorted
 
-		BFT_CONSENSUS_EVENTS("bft.consensus_events"),
+		/** Number of websocket clients disconnected for not keeping up with outbound messages. */
+		API_WEBSOCKET_DROPPED_CLIENTS("api.websocket.dropped_clients"),
+		/** Number of outbound websocket messages discarded because a client's queue was full. */
+		API_WEBSOCKET_DROPPED_MESSAGES("api.websocket.dropped_messages"),
+		/** Number of websocket clients disconnected for sending requests faster than they are processed. */
+		API_WEBSOCKET_FLOODING_CLIENTS("api.websocket.flooding_clients"),
+		/** Number of websocket requests waiting to be processed by the worker pool. */
+		API_WEBSOCKET_PENDING_REQUESTS("api.websocket.pending_requests"),
+		/** Number of outbound websocket messages queued across all clients. */
+		API_WEBSOCKET_QUEUED_MESSAGES("api.websocket.queued_messages"),
+
+		BFT_CONSENSUS_EVENTS("bft.consensus_events", Kind.STRIPED),
 		BFT_INDIRECT_PARENT("bft.indirect_parent"),
 		BFT_PROCESSED("bft.processed"),
 		BFT_PROPOSALS_MADE("bft.proposals_made"),
+		/** Number of consensus events buffered in the preprocessor, waiting for a view or sync. */
+		BFT_PREPROCESSOR_BUFFERED_EVENTS("bft.preprocessor.buffered_events"),
+		/** Estimated size in bytes of consensus events buffered in the preprocessor. */
+		BFT_PREPROCESSOR_BUFFERED_BYTES("bft.preprocessor.buffered_bytes"),
+		/** Number of consensus events evicted from or rejected by full preprocessor buffers. */
+		BFT_PREPROCESSOR_EVICTED_EVENTS("bft.preprocessor.evicted_events"),
 		/** Number of proposals rejected. */
 		BFT_REJECTED("bft.rejected"),
 		/** Number of times a view-timeout message was broadcast. */
@@ -50,90 +67,212 @@ public interface SystemCounters {
 
 		// Count of database accesses
 		COUNT_BDB_ADDRESS_BOOK("count.bdb.address_book"),
-		COUNT_BDB_LEDGER_COMMIT("count.bdb.ledger.commit"),
-		COUNT_BDB_LEDGER_CREATE_TX("count.bdb.ledger.create_tx"),
-		COUNT_BDB_LEDGER_CONTAINS("count.bdb.ledger.contains"),
-		COUNT_BDB_LEDGER_CONTAINS_TX("count.bdb.ledger.contains_tx"),
-		COUNT_BDB_LEDGER_ENTRIES("count.bdb.ledger.entries"),
-		COUNT_BDB_LEDGER_GET("count.bdb.ledger.get"),
-		COUNT_BDB_LEDGER_GET_FIRST("count.bdb.ledger.get_first"),
-		COUNT_BDB_LEDGER_GET_LAST("count.bdb.ledger.get_last"),
-		COUNT_BDB_LEDGER_GET_NEXT("count.bdb.ledger.get_next"),
-		COUNT_BDB_LEDGER_GET_PREV("count.bdb.ledger.get_prev"),
-		COUNT_BDB_LEDGER_STORE("count.bdb.ledger.store"),
-		COUNT_BDB_LEDGER_LAST_COMMITTED("count.bdb.ledger.last_committed"),
-		COUNT_BDB_LEDGER_LAST_VERTEX("count.bdb.ledger.last_vertex"),
-		COUNT_BDB_LEDGER_SAVE("count.bdb.ledger.save"),
-		COUNT_BDB_LEDGER_SAVE_TX("count.bdb.ledger.save_tx"),
-		COUNT_BDB_LEDGER_SEARCH("count.bdb.ledger.search"),
-		COUNT_BDB_LEDGER_TOTAL("count.bdb.ledger.total"),
+		COUNT_BDB_LEDGER_COMMIT("count.bdb.ledger.commit", Kind.STRIPED),
+		COUNT_BDB_LEDGER_CREATE_TX("count.bdb.ledger.create_tx", Kind.STRIPED),
+		COUNT_BDB_LEDGER_CONTAINS("count.bdb.ledger.contains", Kind.STRIPED),
+		COUNT_BDB_LEDGER_CONTAINS_TX("count.bdb.ledger.contains_tx", Kind.STRIPED),
+		COUNT_BDB_LEDGER_ENTRIES("count.bdb.ledger.entries", Kind.STRIPED),
+		COUNT_BDB_LEDGER_GET("count.bdb.ledger.get", Kind.STRIPED),
+		COUNT_BDB_LEDGER_GET_FIRST("count.bdb.ledger.get_first", Kind.STRIPED),
+		COUNT_BDB_LEDGER_GET_LAST("count.bdb.ledger.get_last", Kind.STRIPED),
+		COUNT_BDB_LEDGER_GET_NEXT("count.bdb.ledger.get_next", Kind.STRIPED),
+		COUNT_BDB_LEDGER_GET_PREV("count.bdb.ledger.get_prev", Kind.STRIPED),
+		/** Number of ledger entry reads served from cold storage. */
+		COUNT_BDB_LEDGER_GET_PRUNED("count.bdb.ledger.get_pruned", Kind.STRIPED),
+		COUNT_BDB_LEDGER_PRUNE("count.bdb.ledger.prune"),
+		COUNT_BDB_LEDGER_STORE("count.bdb.ledger.store", Kind.STRIPED),
+		COUNT_BDB_LEDGER_LAST_COMMITTED("count.bdb.ledger.last_committed", Kind.STRIPED),
+		COUNT_BDB_LEDGER_LAST_VERTEX("count.bdb.ledger.last_vertex", Kind.STRIPED),
+		COUNT_BDB_LEDGER_SAVE("count.bdb.ledger.save", Kind.STRIPED),
+		COUNT_BDB_LEDGER_SAVE_TX("count.bdb.ledger.save_tx", Kind.STRIPED),
+		COUNT_BDB_LEDGER_SEARCH("count.bdb.ledger.search", Kind.STRIPED),
+		COUNT_BDB_LEDGER_TOTAL("count.bdb.ledger.total", Kind.STRIPED),
 		COUNT_BDB_SAFETY_STATE("count.bdb.safety_state"),
+		/** Number of transactions committed to the append-only ledger log. */
+		COUNT_LOG_LEDGER_COMMIT("count.log.ledger.commit", Kind.STRIPED),
 
 		// Total elapsed time for database access, in microseconds
 		ELAPSED_BDB_ADDRESS_BOOK("elapsed.bdb.address_book"),
-		ELAPSED_BDB_LEDGER_COMMIT("elapsed.bdb.ledger.commit"),
-		ELAPSED_BDB_LEDGER_CREATE_TX("elapsed.bdb.ledger.create_tx"),
-		ELAPSED_BDB_LEDGER_CONTAINS("elapsed.bdb.ledger.contains"),
-		ELAPSED_BDB_LEDGER_CONTAINS_TX("elapsed.bdb.ledger.contains_tx"),
-		ELAPSED_BDB_LEDGER_ENTRIES("elapsed.bdb.ledger.entries"),
-		ELAPSED_BDB_LEDGER_GET("elapsed.bdb.ledger.get"),
-		ELAPSED_BDB_LEDGER_GET_FIRST("elapsed.bdb.ledger.get_first"),
-		ELAPSED_BDB_LEDGER_GET_LAST("elapsed.bdb.ledger.get_last"),
-		ELAPSED_BDB_LEDGER_GET_NEXT("elapsed.bdb.ledger.get_next"),
-		ELAPSED_BDB_LEDGER_GET_PREV("elapsed.bdb.ledger.get_prev"),
-		ELAPSED_BDB_LEDGER_STORE("elapsed.bdb.ledger.store"),
-		ELAPSED_BDB_LEDGER_LAST_COMMITTED("elapsed.bdb.ledger.last_committed"),
-		ELAPSED_BDB_LEDGER_LAST_VERTEX("elapsed.bdb.ledger.last_vertex"),
-		ELAPSED_BDB_LEDGER_SAVE("elapsed.bdb.ledger.save"),
-		ELAPSED_BDB_LEDGER_SAVE_TX("elapsed.bdb.ledger.save_tx"),
-		ELAPSED_BDB_LEDGER_SEARCH("elapsed.bdb.ledger.search"),
-		ELAPSED_BDB_LEDGER_TOTAL("elapsed.bdb.ledger.total"),
+		ELAPSED_BDB_LEDGER_COMMIT("elapsed.bdb.ledger.commit", Kind.STRIPED),
+		ELAPSED_BDB_LEDGER_CREATE_TX("elapsed.bdb.ledger.create_tx", Kind.STRIPED),
+		ELAPSED_BDB_LEDGER_CONTAINS("elapsed.bdb.ledger.contains", Kind.STRIPED),
+		ELAPSED_BDB_LEDGER_CONTAINS_TX("elapsed.bdb.ledger.contains_tx", Kind.STRIPED),
+		ELAPSED_BDB_LEDGER_ENTRIES("elapsed.bdb.ledger.entries", Kind.STRIPED),
+		ELAPSED_BDB_LEDGER_GET("elapsed.bdb.ledger.get", Kind.STRIPED),
+		ELAPSED_BDB_LEDGER_GET_FIRST("elapsed.bdb.ledger.get_first", Kind.STRIPED),
+		ELAPSED_BDB_LEDGER_GET_LAST("elapsed.bdb.ledger.get_last", Kind.STRIPED),
+		ELAPSED_BDB_LEDGER_GET_NEXT("elapsed.bdb.ledger.get_next", Kind.STRIPED),
+		ELAPSED_BDB_LEDGER_GET_PREV("elapsed.bdb.ledger.get_prev", Kind.STRIPED),
+		ELAPSED_BDB_LEDGER_PRUNE("elapsed.bdb.ledger.prune"),
+		ELAPSED_BDB_LEDGER_STORE("elapsed.bdb.ledger.store", Kind.STRIPED),
+		ELAPSED_BDB_LEDGER_LAST_COMMITTED("elapsed.bdb.ledger.last_committed", Kind.STRIPED),
+		ELAPSED_BDB_LEDGER_LAST_VERTEX("elapsed.bdb.ledger.last_vertex", Kind.STRIPED),
+		ELAPSED_BDB_LEDGER_SAVE("elapsed.bdb.ledger.save", Kind.STRIPED),
+		ELAPSED_BDB_LEDGER_SAVE_TX("elapsed.bdb.ledger.save_tx", Kind.STRIPED),
+		ELAPSED_BDB_LEDGER_SEARCH("elapsed.bdb.ledger.search", Kind.STRIPED),
+		ELAPSED_BDB_LEDGER_TOTAL("elapsed.bdb.ledger.total", Kind.STRIPED),
 		ELAPSED_BDB_SAFETY_STATE("elapsed.bdb.safety_state"),
+		ELAPSED_LOG_LEDGER_COMMIT("elapsed.log.ledger.commit", Kind.STRIPED),
 
 		PERSISTENCE_VERTEX_STORE_SAVES("persistence.vertex_store_saves"),
 		PERSISTENCE_SAFETY_STORE_SAVES("persistence.safety_store_saves"),
+		/** Number of address book writes replaced by a later write before being persisted. */
+		PERSISTENCE_ADDRESS_BOOK_WRITES_COALESCED("persistence.address_book_writes_coalesced"),
 
 		EPOCH_MANAGER_QUEUED_CONSENSUS_EVENTS("epoch_manager.queued_consensus_events"),
+		/** Number of consensus events currently buffered for future epochs. */
+		EPOCH_MANAGER_BUFFERED_EVENTS("epoch_manager.buffered_events"),
+		/** Estimated size in bytes of consensus events currently buffered for future epochs. */
+		EPOCH_MANAGER_BUFFERED_BYTES("epoch_manager.buffered_bytes"),
+		/** Number of future epoch consensus events evicted from or rejected by a full buffer. */
+		EPOCH_MANAGER_EVICTED_EVENTS("epoch_manager.evicted_events"),
 
-		HASHED_BYTES("hashed.bytes"),
+		HASHED_BYTES("hashed.bytes", Kind.STRIPED),
 
 		LEDGER_PROCESSED("ledger.processed"),
 		LEDGER_STATE_VERSION("ledger.state_version"),
 		LEDGER_SYNC_COMMANDS_PROCESSED("ledger.sync_commands_processed"),
 		LEDGER_BFT_COMMANDS_PROCESSED("ledger.bft_commands_processed"),
+		/** Number of decoded atom lookups satisfied by the committed atom cache. */
+		LEDGER_ATOM_CACHE_HITS("ledger.atom_cache.hits", Kind.STRIPED),
+		/** Number of decoded atom lookups that required decoding a ledger entry. */
+		LEDGER_ATOM_CACHE_MISSES("ledger.atom_cache.misses", Kind.STRIPED),
+		/** Number of atoms evicted from the committed atom cache to stay within its memory budget. */
+		LEDGER_ATOM_CACHE_EVICTIONS("ledger.atom_cache.evictions"),
+		/** Number of atoms currently in the committed atom cache. */
+		LEDGER_ATOM_CACHE_ENTRIES("ledger.atom_cache.entries"),
+		/** Estimated size in bytes of atoms currently in the committed atom cache. */
+		LEDGER_ATOM_CACHE_BYTES("ledger.atom_cache.bytes"),
+		/** State version up to which committed entries have been moved to cold storage. */
+		LEDGER_PRUNED_STATE_VERSION("ledger.pruned_state_version"),
+		/** Number of bytes appended to the append-only ledger log. */
+		LEDGER_LOG_BYTES_WRITTEN("ledger.log.bytes_written", Kind.STRIPED),
+		/** Number of key run merges of the append-only ledger log. */
+		LEDGER_LOG_COMPACTIONS("ledger.log.compactions"),
+		/** Number of committed atom batches waiting to be published or being processed by subscribers. */
+		LEDGER_PUBLISH_QUEUE_SIZE("ledger.publish.queue_size"),
+		/** Number of committed atom batches published. */
+		LEDGER_PUBLISH_BATCHES("ledger.publish.batches"),
+		/** Number of committed atoms published. */
+		LEDGER_PUBLISH_ATOMS("ledger.publish.atoms"),
+		/** Number of committed atom batches merged into a later batch because the publishing backlog was full. */
+		LEDGER_PUBLISH_MERGED_BATCHES("ledger.publish.merged_batches"),
 
 		SYNC_LAST_READ_MILLIS("sync.last_read_millis"),
 		SYNC_INVALID_COMMANDS_RECEIVED("sync.invalid_commands_received"),
 		SYNC_PROCESSED("sync.processed"),
+		/** Number of ledger sync requests that received no response within the sync patience. */
+		SYNC_REQUEST_TIMEOUTS("sync.request_timeouts"),
 		SYNC_TARGET_STATE_VERSION("sync.target_state_version"),
 		SYNC_TARGET_CURRENT_DIFF("sync.target_current_diff"),
+		/** Number of sync response chunks sent. */
+		SYNC_RESPONSE_CHUNKS_SENT("sync.response_chunks.sent"),
+		/** Number of sync response chunks received. */
+		SYNC_RESPONSE_CHUNKS_RECEIVED("sync.response_chunks.received"),
+		/** Number of partially received chunked sync responses dropped. */
+		SYNC_RESPONSE_CHUNKS_STREAMS_DROPPED("sync.response_chunks.streams_dropped"),
 
+		/** Number of submissions ignored because an atom with the same AID was already admitted or being admitted. */
+		MEMPOOL_ADMISSION_DUPLICATES("mempool.admission.duplicates", Kind.STRIPED),
+		/** Number of network submissions waiting to be validated. */
+		MEMPOOL_ADMISSION_QUEUED("mempool.admission.queued"),
+		/** Number of submissions rejected as malformed, invalid, or because the intake queue or mempool was full. */
+		MEMPOOL_ADMISSION_REJECTED("mempool.admission.rejected", Kind.STRIPED),
 		MEMPOOL_COUNT("mempool.count"),
 		MEMPOOL_MAXCOUNT("mempool.maxcount"),
+		/** Number of command hashes announced to peers. */
+		MEMPOOL_GOSSIP_ANNOUNCED("mempool.gossip.announced"),
+		/** Number of commands fetched from peers in response to announcements. */
+		MEMPOOL_GOSSIP_FETCHED("mempool.gossip.fetched"),
+		/** Number of unanswered fetches retried from another peer that announced the same command. */
+		MEMPOOL_GOSSIP_FETCH_RETRIES("mempool.gossip.fetch_retries"),
+		/** Number of received commands ignored because they were not requested from the sending peer. */
+		MEMPOOL_GOSSIP_UNSOLICITED("mempool.gossip.unsolicited"),
+		/** Number of announced or received commands ignored because they were already known. */
+		MEMPOOL_GOSSIP_DUPLICATES_SUPPRESSED("mempool.gossip.duplicates_suppressed"),
+		/** Command payload bytes not received because announced commands were already known. */
+		MEMPOOL_GOSSIP_BYTES_SAVED("mempool.gossip.bytes_saved"),
 
 		MESSAGES_INBOUND_BADSIGNATURE("messages.inbound.badsignature"),
-		MESSAGES_INBOUND_DISCARDED("messages.inbound.discarded"),
+		MESSAGES_INBOUND_DISCARDED("messages.inbound.discarded", Kind.STRIPED),
 		MESSAGES_INBOUND_PENDING("messages.inbound.pending"),
-		MESSAGES_INBOUND_PROCESSED("messages.inbound.processed"),
-		MESSAGES_INBOUND_RECEIVED("messages.inbound.received"),
-		MESSAGES_OUTBOUND_ABORTED("messages.outbound.aborted"),
+		MESSAGES_INBOUND_PROCESSED("messages.inbound.processed", Kind.STRIPED),
+		MESSAGES_INBOUND_RECEIVED("messages.inbound.received", Kind.STRIPED),
+		/** Number of system messages with unchanged, previously verified system information. */
+		MESSAGES_INBOUND_SYSTEM_VERIFICATIONS_AVOIDED("messages.inbound.system_verifications_avoided", Kind.STRIPED),
+		MESSAGES_OUTBOUND_ABORTED("messages.outbound.aborted", Kind.STRIPED),
 		MESSAGES_OUTBOUND_PENDING("messages.outbound.pending"),
-		MESSAGES_OUTBOUND_PROCESSED("messages.outbound.processed"),
-		MESSAGES_OUTBOUND_SENT("messages.outbound.sent"),
+		MESSAGES_OUTBOUND_PROCESSED("messages.outbound.processed", Kind.STRIPED),
+		MESSAGES_OUTBOUND_SENT("messages.outbound.sent", Kind.STRIPED),
 
 		NETWORKING_TCP_OPENED("networking.tcp.opened"),
 		NETWORKING_TCP_CLOSED("networking.tcp.closed"),
-		NETWORKING_SENT_BYTES("networking.sent_bytes"),
-		NETWORKING_RECEIVED_BYTES("networking.received_bytes"),
+		NETWORKING_SENT_BYTES("networking.sent_bytes", Kind.STRIPED),
+		NETWORKING_RECEIVED_BYTES("networking.received_bytes", Kind.STRIPED),
 
 		NETWORKING_DROPPED_ERROR_RESPONSES("networking.dropped_error_responses"),
 
-		SIGNATURES_SIGNED("signatures.signed"),
-		SIGNATURES_VERIFIED("signatures.verified");
+		SIGNATURES_SIGNED("signatures.signed", Kind.STRIPED),
+		SIGNATURES_VERIFIED("signatures.verified", Kind.STRIPED);
+
+		/**
+		 * How a counter is stored.
+		 */
+		public enum Kind {
+			/** Counter is stored in a single atomic value. Suitable for gauges and infrequently updated counters. */
+			ATOMIC,
+			/**
+			 * Counter is striped across multiple cells to reduce contention.
+			 * Suitable for frequently incremented counters updated from many threads.
+			 */
+			STRIPED
+		}
 
 		private final String jsonPath;
+		private final Kind kind;
 
 		CounterType(String jsonPath) {
+			this(jsonPath, Kind.ATOMIC);
+		}
+
+		CounterType(String jsonPath, Kind kind) {
+			this.jsonPath = jsonPath;
+			this.kind = kind;
+		}
+
+		public String jsonPath() {
+			return this.jsonPath;
+		}
+
+		public Kind kind() {
+			return this.kind;
+		}
+	}
+
+	/**
+	 * Histograms of latencies, all recorded in microseconds.
+	 */
+	enum HistogramType {
+		// Please keep these sorted
+
+		/** Latency of all ledger database operations. */
+		LATENCY_BDB_LEDGER("latency.bdb.ledger"),
+		/** Latency of ledger database transaction commits. */
+		LATENCY_BDB_LEDGER_COMMIT("latency.bdb.ledger_commit"),
+		/** Time taken to process a single consensus event. */
+		LATENCY_BFT_CONSENSUS_EVENT("latency.bft.consensus_event"),
+		/** Time taken to commit a batch of commands to the ledger. */
+		LATENCY_LEDGER_COMMIT("latency.ledger.commit"),
+		/** Time taken from submission until an atom is added to the mempool. */
+		LATENCY_MEMPOOL_ADMISSION("latency.mempool.admission"),
+		/** Time taken to dispatch a received message to listeners. */
+		LATENCY_MESSAGES_INBOUND_PROCESS("latency.messages.inbound_process"),
+		/** Time taken to serialize and hand off a message to the transport. */
+		LATENCY_MESSAGES_OUTBOUND_SEND("latency.messages.outbound_send");
+
+		private final String jsonPath;
+
+		HistogramType(String jsonPath) {
 			this.jsonPath = jsonPath;
 		}
 
@@ -144,18 +283,22 @@ public interface SystemCounters {
 
 	/**
 	 * Increments the specified counter, returning the new value.
+	 * Note that for {@link CounterType.Kind#STRIPED} counters the new value
+	 * is not computed, as that would read all stripes, and -1 is returned.
 	 *
 	 * @param counterType The counter to increment
-	 * @return The new incremented value
+	 * @return The new incremented value, or -1 for striped counters
 	 */
 	long increment(CounterType counterType);
 
 	/**
 	 * Increments the specified counter by the specified amount,
 	 * returning the new value.
+	 * As for {@link #increment(CounterType)}, -1 is returned for
+	 * {@link CounterType.Kind#STRIPED} counters.
 	 *
 	 * @param counterType The counter to increment
-	 * @return The new incremented value
+	 * @return The new incremented value, or -1 for striped counters
 	 */
 	long add(CounterType counterType, long amount);
 
@@ -176,6 +319,22 @@ public interface SystemCounters {
 	 */
 	long get(CounterType counterType);
 
+	/**
+	 * Records a value in the specified histogram.
+	 *
+	 * @param histogramType The histogram to record the value in
+	 * @param value The value to record, in microseconds
+	 */
+	void record(HistogramType histogramType, long value);
+
+	/**
+	 * Returns the specified histogram.
+	 *
+	 * @param histogramType The histogram to return
+	 * @return The histogram
+	 */
+	LogHistogram histogram(HistogramType histogramType);
+
 	/**
 	 * Set a group of values.  Values are updates in such
 	 * a way as to prevent read-tearing when {@link #toMap()}
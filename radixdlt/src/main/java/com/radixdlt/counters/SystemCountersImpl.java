@@ -21,14 +21,28 @@ import java.time.Instant;
 import java.util.EnumMap;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import com.google.common.collect.Maps;
 
 /**
  * Event counting utility class.
+ * <p>
+ * Counters of {@link CounterType.Kind#STRIPED} kind are backed by a {@link LongAdder}
+ * to reduce contention for frequently updated counters, all other counters are
+ * backed by an {@link AtomicLong}.  Striped counters are only summed when read,
+ * so updating them does not return the new value.
  */
 public final class SystemCountersImpl implements SystemCounters {
-	private final EnumMap<CounterType, AtomicLong> counters;
+	private static final CounterType[] COUNTER_TYPES = CounterType.values();
+	private static final HistogramType[] HISTOGRAM_TYPES = HistogramType.values();
+
+	// Indexed by ordinal, only one of atomic/striped is non-null for each counter
+	private final AtomicLong[] atomicCounters;
+	private final LongAdder[] stripedCounters;
+	private final String[][] counterPaths;
+	private final EnumMap<HistogramType, LogHistogram> histograms;
+	private final String[][] histogramPaths;
 	private final long start;
 	private final String since;
 	private final Object lock = new Object();
@@ -38,10 +52,23 @@ public final class SystemCountersImpl implements SystemCounters {
 	}
 
 	public SystemCountersImpl(long startTime) {
-		this.counters = new EnumMap<>(CounterType.class);
-		// Pre-populate the map here so that there is no need to mutate the structure
-		for (CounterType ct : CounterType.values()) {
-			this.counters.put(ct, new AtomicLong(0));
+		// Pre-populate here so that there is no need to mutate the structure
+		this.atomicCounters = new AtomicLong[COUNTER_TYPES.length];
+		this.stripedCounters = new LongAdder[COUNTER_TYPES.length];
+		this.counterPaths = new String[COUNTER_TYPES.length][];
+		for (CounterType ct : COUNTER_TYPES) {
+			if (ct.kind() == CounterType.Kind.STRIPED) {
+				this.stripedCounters[ct.ordinal()] = new LongAdder();
+			} else {
+				this.atomicCounters[ct.ordinal()] = new AtomicLong(0);
+			}
+			this.counterPaths[ct.ordinal()] = makePath(ct.jsonPath());
+		}
+		this.histograms = new EnumMap<>(HistogramType.class);
+		this.histogramPaths = new String[HISTOGRAM_TYPES.length][];
+		for (HistogramType ht : HISTOGRAM_TYPES) {
+			this.histograms.put(ht, new LogHistogram());
+			this.histogramPaths[ht.ordinal()] = makePath(ht.jsonPath());
 		}
 		this.start = startTime;
 		this.since = Instant.ofEpochMilli(startTime).toString();
@@ -49,22 +76,53 @@ public final class SystemCountersImpl implements SystemCounters {
 
 	@Override
 	public long increment(CounterType counterType) {
-		return this.counters.get(counterType).incrementAndGet();
+		final LongAdder striped = this.stripedCounters[counterType.ordinal()];
+		if (striped != null) {
+			striped.increment();
+			return -1L;
+		}
+		return this.atomicCounters[counterType.ordinal()].incrementAndGet();
 	}
 
 	@Override
 	public long add(CounterType counterType, long amount) {
-		return this.counters.get(counterType).addAndGet(amount);
+		final LongAdder striped = this.stripedCounters[counterType.ordinal()];
+		if (striped != null) {
+			striped.add(amount);
+			return -1L;
+		}
+		return this.atomicCounters[counterType.ordinal()].addAndGet(amount);
 	}
 
 	@Override
 	public long set(CounterType counterType, long value) {
-		return this.counters.get(counterType).getAndSet(value);
+		final LongAdder striped = this.stripedCounters[counterType.ordinal()];
+		if (striped != null) {
+			// Not atomic, but striped counters are not expected to be set concurrently
+			final long previous = striped.sumThenReset();
+			striped.add(value);
+			return previous;
+		}
+		return this.atomicCounters[counterType.ordinal()].getAndSet(value);
 	}
 
 	@Override
 	public long get(CounterType counterType) {
-		return this.counters.get(counterType).get();
+		final LongAdder striped = this.stripedCounters[counterType.ordinal()];
+		if (striped != null) {
+			return striped.sum();
+		}
+		return this.atomicCounters[counterType.ordinal()].get();
+	}
+
+	@Override
+	public void record(HistogramType histogramType, long value) {
+		this.histograms.get(histogramType).record(value);
+	}
+
+	@Override
+	public LogHistogram histogram(HistogramType histogramType) {
+		return this.histograms.get(histogramType);
 	}
 
 	@Override
@@ -73,7 +131,7 @@ public final class SystemCountersImpl implements SystemCounters {
 		// Lost updates are still possible
 		synchronized (this.lock) {
 			for (Map.Entry<CounterType, Long> e : newValues.entrySet()) {
-				this.counters.get(e.getKey()).set(e.getValue());
+				set(e.getKey(), e.getValue());
 			}
 		}
 	}
@@ -82,11 +140,14 @@ public final class SystemCountersImpl implements SystemCounters {
 	public Map<String, Object> toMap() {
 		Map<String, Object> output = Maps.newTreeMap();
 		synchronized (this.lock) {
-			for (CounterType counter : CounterType.values()) {
+			for (CounterType counter : COUNTER_TYPES) {
 				long value = get(counter);
-				addValue(output, makePath(counter), value);
+				addValue(output, this.counterPaths[counter.ordinal()], value);
 			}
 		}
+		for (HistogramType histogramType : HISTOGRAM_TYPES) {
+			addValue(output, this.histogramPaths[histogramType.ordinal()], histogramValues(this.histograms.get(histogramType)));
+		}
 		@SuppressWarnings("unchecked")
 		Map<String, Object> time = (Map<String, Object>) output.computeIfAbsent("time", k -> Maps.newTreeMap());
 		time.put("since", since);
@@ -94,7 +155,18 @@ public final class SystemCountersImpl implements SystemCounters {
 		return output;
 	}
 
-	private void addValue(Map<String, Object> values, String[] path, long value) {
+	private Map<String, Object> histogramValues(LogHistogram histogram) {
+		Map<String, Object> values = Maps.newTreeMap();
+		values.put("count", histogram.count());
+		values.put("sum", histogram.sum());
+		values.put("max", histogram.max());
+		values.put("p50", histogram.percentile(0.5));
+		values.put("p99", histogram.percentile(0.99));
+		values.put("p999", histogram.percentile(0.999));
+		return values;
+	}
+
+	private void addValue(Map<String, Object> values, String[] path, Object value) {
 		for (int i = 0; i < path.length - 1; ++i) {
 			@SuppressWarnings("unchecked")
 			// Needs exhaustive testing to ensure correctness.
@@ -102,11 +174,11 @@ public final class SystemCountersImpl implements SystemCounters {
 			Map<String, Object> newValues = (Map<String, Object>) values.computeIfAbsent(path[i], k -> Maps.newTreeMap());
 			values = newValues;
 		}
-		values.put(path[path.length - 1], Long.valueOf(value));
+		values.put(path[path.length - 1], value);
 	}
 
-	private String[] makePath(CounterType counter) {
-		return counter.jsonPath().split("\\.");
+	private static String[] makePath(String jsonPath) {
+		return jsonPath.split("\\.");
 	}
 
 	@Override
@@ -0,0 +1,143 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.environment.disruptor;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.radixdlt.environment.Environment;
+import com.radixdlt.environment.EventDispatcher;
+import com.radixdlt.environment.EventProcessor;
+import com.radixdlt.environment.RemoteEventDispatcher;
+import com.radixdlt.environment.ScheduledEventDispatcher;
+import com.radixdlt.environment.rx.RxEnvironment;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Environment which delivers events to processors registered with
+ * {@link #setProcessor(Class, EventProcessor)} through a {@link DisruptorEventLoop}.
+ * <p>
+ * Events of classes without a registered processor are passed through to an
+ * underlying {@link RxEnvironment}.  Events with a processor are only passed
+ * through as well if their class is one of the shared event classes, which are
+ * also observed outside of consensus, so that other events avoid the cost of the
+ * Rx subject.
+ */
+public final class DisruptorEnvironment implements Environment {
+	private final RxEnvironment rxEnvironment;
+	private final DisruptorEventLoop eventLoop;
+	private final ScheduledExecutorService executorService;
+	private final ImmutableMap<Class<?>, Sink<?>> sinks;
+
+	private final class Sink<T> implements EventDispatcher<T> {
+		private final EventDispatcher<T> rxDispatcher;
+		private final boolean shared;
+		private volatile EventProcessor<T> processor;
+
+		Sink(Class<T> eventClass, boolean shared) {
+			this.rxDispatcher = rxEnvironment.getDispatcher(eventClass);
+			this.shared = shared;
+		}
+
+		@Override
+		public void dispatch(T event) {
+			final EventProcessor<T> p = this.processor;
+			if (p != null) {
+				eventLoop.publish(p, event);
+			}
+			if (p == null || this.shared) {
+				this.rxDispatcher.dispatch(event);
+			}
+		}
+	}
+
+	/**
+	 * Creates a new environment.
+	 *
+	 * @param localEventClasses the event classes which can be dispatched
+	 * @param sharedEventClasses the event classes which are also passed through to
+	 * 	{@code rxEnvironment} when processed on the event loop
+	 * @param rxEnvironment the environment to pass events through to
+	 * @param eventLoop the event loop to process events on
+	 * @param executorService the executor for scheduled events
+	 */
+	public DisruptorEnvironment(
+		ImmutableSet<Class<?>> localEventClasses,
+		ImmutableSet<Class<?>> sharedEventClasses,
+		RxEnvironment rxEnvironment,
+		DisruptorEventLoop eventLoop,
+		ScheduledExecutorService executorService
+	) {
+		this.rxEnvironment = Objects.requireNonNull(rxEnvironment);
+		this.eventLoop = Objects.requireNonNull(eventLoop);
+		this.executorService = Objects.requireNonNull(executorService);
+		this.sinks = localEventClasses.stream()
+			.collect(ImmutableMap.toImmutableMap(c -> c, c -> createSink(c, sharedEventClasses.contains(c))));
+	}
+
+	private <T> Sink<T> createSink(Class<T> eventClass, boolean shared) {
+		return new Sink<>(eventClass, shared);
+	}
+
+	private <T> Sink<T> getSink(Class<T> eventClass) {
+		@SuppressWarnings("unchecked")
+		Sink<T> sink = (Sink<T>) sinks.get(eventClass);
+
+		if (sink == null) {
+			throw new IllegalStateException("DisruptorEnvironment does not support event class: " + eventClass);
+		}
+
+		return sink;
+	}
+
+	/**
+	 * Sets the processor which will process events of the specified class on the
+	 * event loop thread, or clears it if {@code processor} is {@code null}.
+	 *
+	 * @param eventClass the event class
+	 * @param processor the processor, or {@code null} to pass events to the underlying environment
+	 * @param <T> the event class
+	 */
+	public <T> void setProcessor(Class<T> eventClass, EventProcessor<T> processor) {
+		getSink(eventClass).processor = processor;
+	}
+
+	/**
+	 * @return the event loop used to process events
+	 */
+	public DisruptorEventLoop eventLoop() {
+		return this.eventLoop;
+	}
+
+	@Override
+	public <T> EventDispatcher<T> getDispatcher(Class<T> eventClass) {
+		return getSink(eventClass);
+	}
+
+	@Override
+	public <T> ScheduledEventDispatcher<T> getScheduledDispatcher(Class<T> eventClass) {
+		final Sink<T> sink = getSink(eventClass);
+		return (e, millis) -> executorService.schedule(() -> sink.dispatch(e), millis, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public <T> RemoteEventDispatcher<T> getRemoteDispatcher(Class<T> eventClass) {
+		return rxEnvironment.getRemoteDispatcher(eventClass);
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.environment.disruptor;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventTranslatorTwoArg;
+import com.lmax.disruptor.ExceptionHandler;
+import com.lmax.disruptor.RingBuffer;
+import com.radixdlt.environment.EventProcessor;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
+
+/**
+ * An event loop which processes events on a single consumer thread from a
+ * pre-allocated multi-producer ring buffer.
+ * <p>
+ * Events published from any thread other than the consumer thread are placed
+ * in the ring buffer, blocking the publisher if the ring buffer is full.
+ * Events published from the consumer thread itself, for example events dispatched
+ * by a processor, are queued locally and processed as soon as the current event
+ * has been processed, so that the consumer can never block waiting for itself.
+ */
+public final class DisruptorEventLoop {
+	private static final EventTranslatorTwoArg<Slot, EventProcessor<Object>, Object> TRANSLATOR = (slot, sequence, processor, event) -> {
+		slot.processor = processor;
+		slot.event = event;
+	};
+	private static final EventProcessor<Runnable> RUNNABLE_PROCESSOR = Runnable::run;
+
+	private static final class Slot {
+		private EventProcessor<Object> processor;
+		private Object event;
+	}
+
+	private final RingBuffer<Slot> ringBuffer;
+	private final BatchEventProcessor<Slot> batchEventProcessor;
+	private final Thread consumerThread;
+	// Only accessed from consumer thread, holds alternating processor, event pairs
+	private final ArrayDeque<Object> localEvents = new ArrayDeque<>();
+	private final Object lock = new Object();
+	private boolean started = false;
+
+	/**
+	 * Creates a new event loop.
+	 *
+	 * @param bufferSize the size of the ring buffer, must be a power of two
+	 * @param threadFactory factory used to create the consumer thread
+	 * @param errorHandler handler for exceptions thrown by event processors
+	 */
+	public DisruptorEventLoop(int bufferSize, ThreadFactory threadFactory, Consumer<Throwable> errorHandler) {
+		if (bufferSize <= 0 || Integer.bitCount(bufferSize) != 1) {
+			throw new IllegalArgumentException("Buffer size must be a positive power of two: " + bufferSize);
+		}
+		Objects.requireNonNull(errorHandler);
+		this.ringBuffer = RingBuffer.createMultiProducer(Slot::new, bufferSize, new BlockingWaitStrategy());
+		this.batchEventProcessor = new BatchEventProcessor<>(this.ringBuffer, this.ringBuffer.newBarrier(), this.handler());
+		this.batchEventProcessor.setExceptionHandler(exceptionHandler(errorHandler));
+		this.ringBuffer.addGatingSequences(this.batchEventProcessor.getSequence());
+		this.consumerThread = threadFactory.newThread(this.batchEventProcessor);
+	}
+
+	private EventHandler<Slot> handler() {
+		return (slot, sequence, endOfBatch) -> {
+			final EventProcessor<Object> processor = slot.processor;
+			final Object event = slot.event;
+			// Clear slot first so that events are not retained if the processor throws
+			slot.processor = null;
+			slot.event = null;
+			processor.process(event);
+			processLocalEvents();
+		};
+	}
+
+	@SuppressWarnings("unchecked")
+	private void processLocalEvents() {
+		while (!this.localEvents.isEmpty()) {
+			final EventProcessor<Object> processor = (EventProcessor<Object>) this.localEvents.pollFirst();
+			final Object event = this.localEvents.pollFirst();
+			processor.process(event);
+		}
+	}
+
+	private ExceptionHandler<Slot> exceptionHandler(Consumer<Throwable> errorHandler) {
+		return new ExceptionHandler<>() {
+			@Override
+			public void handleEventException(Throwable ex, long sequence, Slot slot) {
+				localEvents.clear();
+				errorHandler.accept(ex);
+			}
+
+			@Override
+			public void handleOnStartException(Throwable ex) {
+				errorHandler.accept(ex);
+			}
+
+			@Override
+			public void handleOnShutdownException(Throwable ex) {
+				errorHandler.accept(ex);
+			}
+		};
+	}
+
+	/**
+	 * Starts the consumer thread.  This call is idempotent.
+	 */
+	public void start() {
+		synchronized (this.lock) {
+			if (!this.started) {
+				this.started = true;
+				this.consumerThread.start();
+			}
+		}
+	}
+
+	/**
+	 * Stops the consumer thread, waiting for it to exit.  Events remaining
+	 * in the ring buffer are not processed.  The loop cannot be restarted.
+	 */
+	public void shutdown() {
+		synchronized (this.lock) {
+			if (!this.started) {
+				return;
+			}
+			this.batchEventProcessor.halt();
+		}
+		if (Thread.currentThread() != this.consumerThread) {
+			try {
+				this.consumerThread.join(10_000L);
+			} catch (InterruptedException e) {
+				// Not handling this here
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Publishes an event to be processed by the specified processor on the consumer thread.
+	 *
+	 * @param processor the processor for the event
+	 * @param event the event to process
+	 * @param <T> the event class
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> void publish(EventProcessor<T> processor, T event) {
+		if (Thread.currentThread() == this.consumerThread) {
+			this.localEvents.addLast(processor);
+			this.localEvents.addLast(event);
+		} else {
+			this.ringBuffer.publishEvent(TRANSLATOR, (EventProcessor<Object>) processor, event);
+		}
+	}
+
+	/**
+	 * Runs the specified task on the consumer thread.
+	 *
+	 * @param task the task to run
+	 */
+	public void execute(Runnable task) {
+		publish(RUNNABLE_PROCESSOR, task);
+	}
+
+	/**
+	 * @return the number of events currently waiting in the ring buffer
+	 */
+	public long pending() {
+		return this.ringBuffer.getBufferSize() - this.ringBuffer.remainingCapacity();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[%s size=%s pending=%s]",
+			getClass().getSimpleName(), this.consumerThread.getName(), this.ringBuffer.getBufferSize(), pending());
+	}
+}
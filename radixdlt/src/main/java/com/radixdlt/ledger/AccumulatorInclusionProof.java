@@ -0,0 +1,115 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.ledger;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.radixdlt.serialization.DsonOutput;
+import com.radixdlt.serialization.DsonOutput.Output;
+import com.radixdlt.serialization.SerializerConstants;
+import com.radixdlt.serialization.SerializerDummy;
+import com.radixdlt.serialization.SerializerId2;
+import java.util.Objects;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * Proof that the command at a certain version is included in the
+ * {@link MerkleLedgerAccumulatorAndVerifier} state at a later version.
+ */
+@Immutable
+@SerializerId2("ledger.accumulator_inclusion_proof")
+public final class AccumulatorInclusionProof {
+	@JsonProperty(SerializerConstants.SERIALIZER_NAME)
+	@DsonOutput(value = {Output.API, Output.WIRE, Output.PERSIST})
+	SerializerDummy serializer = SerializerDummy.DUMMY;
+
+	@JsonProperty("state_version")
+	@DsonOutput(Output.ALL)
+	private final long stateVersion;
+
+	@JsonProperty("version")
+	@DsonOutput(Output.ALL)
+	private final long version;
+
+	@JsonProperty("siblings")
+	@DsonOutput(Output.ALL)
+	private final ImmutableList<HashCode> siblings;
+
+	@JsonCreator
+	public AccumulatorInclusionProof(
+		@JsonProperty("state_version") long stateVersion,
+		@JsonProperty("version") long version,
+		@JsonProperty("siblings") ImmutableList<HashCode> siblings
+	) {
+		this.stateVersion = stateVersion;
+		this.version = version;
+		this.siblings = siblings == null ? ImmutableList.of() : siblings;
+	}
+
+	/**
+	 * Retrieves the version of the state the command is included in.
+	 *
+	 * @return the state version
+	 */
+	public long getStateVersion() {
+		return stateVersion;
+	}
+
+	/**
+	 * Retrieves the version of the command proven to be included.
+	 *
+	 * @return the command version
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Retrieves the hashes of the siblings on the path from the command to its subtree root, lowest first.
+	 *
+	 * @return the sibling hashes
+	 */
+	public ImmutableList<HashCode> getSiblings() {
+		return siblings;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(stateVersion, version, siblings);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof AccumulatorInclusionProof)) {
+			return false;
+		}
+
+		AccumulatorInclusionProof other = (AccumulatorInclusionProof) o;
+		return this.stateVersion == other.stateVersion
+			&& this.version == other.version
+			&& Objects.equals(this.siblings, other.siblings);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s{stateVersion=%s version=%s siblings=%s}",
+			this.getClass().getSimpleName(), this.stateVersion, this.version, this.siblings.size());
+	}
+}
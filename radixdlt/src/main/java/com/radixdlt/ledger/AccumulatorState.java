@@ -19,6 +19,7 @@ package com.radixdlt.ledger;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
 import com.google.common.hash.HashCode;
 import com.radixdlt.serialization.DsonOutput;
 import com.radixdlt.serialization.DsonOutput.Output;
@@ -28,6 +29,12 @@ import com.radixdlt.serialization.SerializerId2;
 import java.util.Objects;
 import javax.annotation.concurrent.Immutable;
 
+/**
+ * State of a ledger accumulator after a certain number of commands.
+ * <p>
+ * Accumulators which need more than the accumulator hash to extend a state,
+ * such as {@link MerkleLedgerAccumulatorAndVerifier}, keep that in the frontier.
+ */
 @Immutable
 @SerializerId2("ledger.accumulator_state")
 public final class AccumulatorState {
@@ -43,13 +50,24 @@ public final class AccumulatorState {
 	@DsonOutput(Output.ALL)
 	private final HashCode accumulatorHash;
 
+	@JsonProperty("frontier")
+	@DsonOutput(Output.ALL)
+	private final ImmutableList<HashCode> frontier;
+
+	public AccumulatorState(long stateVersion, HashCode accumulatorHash) {
+		this(stateVersion, accumulatorHash, null);
+	}
+
 	@JsonCreator
 	public AccumulatorState(
 		@JsonProperty("state_version") long stateVersion,
-		@JsonProperty("accumulator_hash") HashCode accumulatorHash
+		@JsonProperty("accumulator_hash") HashCode accumulatorHash,
+		@JsonProperty("frontier") ImmutableList<HashCode> frontier
 	) {
 		this.stateVersion = stateVersion;
 		this.accumulatorHash = Objects.requireNonNull(accumulatorHash);
+		// Empty frontier is not serialized so that states without one hash as before
+		this.frontier = frontier == null || frontier.isEmpty() ? null : frontier;
 	}
 
 	public long getStateVersion() {
@@ -60,9 +78,18 @@ public final class AccumulatorState {
 		return accumulatorHash;
 	}
 
+	/**
+	 * Retrieves the accumulator specific frontier of this state, if any.
+	 *
+	 * @return the frontier, empty if there is none
+	 */
+	public ImmutableList<HashCode> getFrontier() {
+		return frontier == null ? ImmutableList.of() : frontier;
+	}
+
 	@Override
 	public int hashCode() {
-		return Objects.hash(stateVersion, accumulatorHash);
+		return Objects.hash(stateVersion, accumulatorHash, frontier);
 	}
 
 	@Override
@@ -73,7 +100,8 @@ public final class AccumulatorState {
 
 		AccumulatorState other = (AccumulatorState) o;
 		return this.stateVersion == other.stateVersion
-			&& Objects.equals(this.accumulatorHash, other.accumulatorHash);
+			&& Objects.equals(this.accumulatorHash, other.accumulatorHash)
+			&& Objects.equals(this.frontier, other.frontier);
 	}
 
 	@Override
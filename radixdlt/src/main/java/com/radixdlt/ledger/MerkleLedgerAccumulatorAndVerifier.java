@@ -0,0 +1,289 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.ledger;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.inject.Inject;
+import com.radixdlt.crypto.Hasher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Append-only Merkle tree accumulator and verifier.
+ * <p>
+ * The leaves of the tree are the genesis accumulator hash, followed by the hash of each
+ * command, so a state at version {@code v} has {@code v + 1} leaves.  The roots of the
+ * perfect subtrees making up the tree, largest first, are kept as the frontier of the
+ * {@link AccumulatorState}, and the accumulator hash is the hash of these roots.
+ * A genesis state without a frontier is therefore its own single leaf.
+ * <p>
+ * As subtrees of new leaves can be hashed independently of each other, large batches
+ * of commands are verified in parallel, and a compact proof of inclusion of a command
+ * in a state can be produced with {@link #proveInclusion(List, long)}.
+ */
+@ThreadSafe
+public class MerkleLedgerAccumulatorAndVerifier implements LedgerAccumulator, LedgerAccumulatorVerifier {
+	// Minimum number of hashes in a batch before work is split across threads
+	private static final int PARALLEL_THRESHOLD = 256;
+
+	private static final byte NODE_PREFIX = 1;
+	private static final byte PEAK_PREFIX = 2;
+
+	private static final class Peak {
+		private final long start;
+		private final int level;
+		private final int index;
+
+		Peak(long start, int level, int index) {
+			this.start = start;
+			this.level = level;
+			this.index = index;
+		}
+	}
+
+	private final Hasher hasher;
+
+	@Inject
+	public MerkleLedgerAccumulatorAndVerifier(Hasher hasher) {
+		this.hasher = Objects.requireNonNull(hasher);
+	}
+
+	@Override
+	public AccumulatorState accumulate(AccumulatorState parent, HashCode hash) {
+		List<HashCode> frontier = new ArrayList<>(frontierOf(parent));
+		long leafCount = parent.getStateVersion() + 1;
+		if (frontier.size() != Long.bitCount(leafCount)) {
+			throw new IllegalArgumentException(String.format("Parent %s does not have a valid frontier", parent));
+		}
+		appendSubtree(frontier, leafCount, hash, 0);
+		return toState(parent.getStateVersion() + 1, frontier);
+	}
+
+	@Override
+	public boolean verify(AccumulatorState start, ImmutableList<HashCode> hashes, AccumulatorState end) {
+		if (hashes.isEmpty()) {
+			return Objects.equals(start, end);
+		}
+		if (!isConsistent(start)) {
+			return false;
+		}
+		return Objects.equals(appendAll(start, hashes), end);
+	}
+
+	@Override
+	public <T> Optional<ImmutableList<T>> verifyAndGetExtension(
+		AccumulatorState current,
+		ImmutableList<T> commands,
+		Function<T, HashCode> hashCodeMapper,
+		AccumulatorState tail
+	) {
+		if (tail.getStateVersion() < current.getStateVersion()) {
+			throw new IllegalArgumentException(String.format("Tail %s is has lower state version than current %s", tail, current));
+		}
+
+		final long firstVersion = tail.getStateVersion() - commands.size() + 1;
+		if (current.getStateVersion() + 1 < firstVersion) {
+			// Missing versions
+			return Optional.empty();
+		}
+
+		if (commands.isEmpty()) {
+			return Objects.equals(current, tail) ? Optional.of(ImmutableList.of()) : Optional.empty();
+		}
+
+		final int startIndex = (int) (current.getStateVersion() + 1 - firstVersion);
+		final ImmutableList<T> extension = commands.subList(startIndex, commands.size());
+		final ImmutableList<HashCode> hashes = extension.size() < PARALLEL_THRESHOLD
+			? extension.stream().map(hashCodeMapper).collect(ImmutableList.toImmutableList())
+			: extension.parallelStream().map(hashCodeMapper).collect(ImmutableList.toImmutableList());
+		if (!verify(current, hashes, tail)) {
+			// Does not extend
+			return Optional.empty();
+		}
+
+		return Optional.of(extension);
+	}
+
+	/**
+	 * Produces a proof that the leaf at the specified version is included in the state
+	 * with the specified leaves.
+	 *
+	 * @param leaves all leaves of the state, starting with the genesis accumulator hash
+	 * @param version the version of the leaf to prove inclusion of
+	 * @return a proof which can be checked with {@link #verifyInclusion(AccumulatorState, HashCode, AccumulatorInclusionProof)}
+	 */
+	public AccumulatorInclusionProof proveInclusion(List<HashCode> leaves, long version) {
+		final long leafCount = leaves.size();
+		if (version < 0 || version >= leafCount) {
+			throw new IllegalArgumentException(String.format("Version %s not in state with %s leaves", version, leafCount));
+		}
+		final Peak peak = findPeak(leafCount, version);
+		final int peakStart = (int) peak.start;
+
+		ImmutableList.Builder<HashCode> siblings = ImmutableList.builder();
+		HashCode[] level = leaves.subList(peakStart, peakStart + (1 << peak.level)).toArray(new HashCode[0]);
+		int index = (int) (version - peakStart);
+		while (level.length > 1) {
+			siblings.add(level[index ^ 1]);
+			level = parentLevel(level);
+			index >>>= 1;
+		}
+		return new AccumulatorInclusionProof(leafCount - 1, version, siblings.build());
+	}
+
+	/**
+	 * Checks a proof that the specified leaf is included in the specified state.
+	 *
+	 * @param state the state the leaf should be included in, which must include its frontier
+	 * @param leaf the hash of the command at the proof's version
+	 * @param proof the proof of inclusion
+	 * @return {@code true} if the leaf is included in the state, {@code false} otherwise
+	 */
+	public boolean verifyInclusion(AccumulatorState state, HashCode leaf, AccumulatorInclusionProof proof) {
+		final long leafCount = state.getStateVersion() + 1;
+		if (proof.getStateVersion() != state.getStateVersion()
+			|| proof.getVersion() < 0
+			|| proof.getVersion() >= leafCount
+			|| !isConsistent(state)) {
+			return false;
+		}
+		final Peak peak = findPeak(leafCount, proof.getVersion());
+		if (proof.getSiblings().size() != peak.level) {
+			return false;
+		}
+		HashCode hash = leaf;
+		long index = proof.getVersion() - peak.start;
+		for (HashCode sibling : proof.getSiblings()) {
+			hash = (index & 1L) == 0L ? node(hash, sibling) : node(sibling, hash);
+			index >>>= 1;
+		}
+		return hash.equals(frontierOf(state).get(peak.index));
+	}
+
+	// Returns true if the frontier matches the accumulator hash and state version
+	private boolean isConsistent(AccumulatorState state) {
+		ImmutableList<HashCode> frontier = frontierOf(state);
+		return frontier.size() == Long.bitCount(state.getStateVersion() + 1)
+			&& bag(frontier).equals(state.getAccumulatorHash());
+	}
+
+	private AccumulatorState appendAll(AccumulatorState start, List<HashCode> hashes) {
+		List<HashCode> frontier = new ArrayList<>(frontierOf(start));
+		long leafCount = start.getStateVersion() + 1;
+		int offset = 0;
+		while (offset < hashes.size()) {
+			// Largest perfect subtree aligned at the current position which fits the remaining hashes
+			int remaining = hashes.size() - offset;
+			int level = Math.min(Long.numberOfTrailingZeros(leafCount), 31 - Integer.numberOfLeadingZeros(remaining));
+			int size = 1 << level;
+			HashCode root = subtreeRoot(hashes.subList(offset, offset + size));
+			leafCount = appendSubtree(frontier, leafCount, root, level);
+			offset += size;
+		}
+		return toState(leafCount - 1, frontier);
+	}
+
+	// Appends a perfect subtree with 2^level leaves, returning the new leaf count
+	private long appendSubtree(List<HashCode> frontier, long leafCount, HashCode root, int level) {
+		HashCode peak = root;
+		long bits = leafCount >>> level;
+		while ((bits & 1L) == 1L) {
+			peak = node(frontier.remove(frontier.size() - 1), peak);
+			bits >>>= 1;
+		}
+		frontier.add(peak);
+		return leafCount + (1L << level);
+	}
+
+	private HashCode subtreeRoot(List<HashCode> leaves) {
+		HashCode[] level = leaves.toArray(new HashCode[0]);
+		while (level.length > 1) {
+			level = parentLevel(level);
+		}
+		return level[0];
+	}
+
+	private HashCode[] parentLevel(HashCode[] level) {
+		final HashCode[] parents = new HashCode[level.length / 2];
+		IntStream indices = IntStream.range(0, parents.length);
+		if (parents.length >= PARALLEL_THRESHOLD) {
+			indices = indices.parallel();
+		}
+		indices.forEach(i -> parents[i] = node(level[2 * i], level[2 * i + 1]));
+		return parents;
+	}
+
+	// Finds the peak, that is the frontier subtree, containing the specified leaf
+	private static Peak findPeak(long leafCount, long leaf) {
+		long start = 0;
+		int index = 0;
+		for (int level = 63 - Long.numberOfLeadingZeros(leafCount); level >= 0; level--) {
+			long size = 1L << level;
+			if ((leafCount & size) != 0) {
+				if (leaf < start + size) {
+					return new Peak(start, level, index);
+				}
+				start += size;
+				index += 1;
+			}
+		}
+		throw new IllegalStateException(String.format("Leaf %s not found in %s leaves", leaf, leafCount));
+	}
+
+	private AccumulatorState toState(long stateVersion, List<HashCode> frontier) {
+		ImmutableList<HashCode> peaks = ImmutableList.copyOf(frontier);
+		return new AccumulatorState(stateVersion, bag(peaks), peaks);
+	}
+
+	private static ImmutableList<HashCode> frontierOf(AccumulatorState state) {
+		ImmutableList<HashCode> frontier = state.getFrontier();
+		if (frontier.isEmpty() && state.getStateVersion() == 0L) {
+			return ImmutableList.of(state.getAccumulatorHash());
+		}
+		return frontier;
+	}
+
+	private HashCode bag(List<HashCode> peaks) {
+		if (peaks.isEmpty()) {
+			throw new IllegalArgumentException("No peaks");
+		}
+		HashCode hash = peaks.get(peaks.size() - 1);
+		for (int i = peaks.size() - 2; i >= 0; i--) {
+			hash = combine(PEAK_PREFIX, peaks.get(i), hash);
+		}
+		return hash;
+	}
+
+	private HashCode node(HashCode left, HashCode right) {
+		return combine(NODE_PREFIX, left, right);
+	}
+
+	private HashCode combine(byte prefix, HashCode left, HashCode right) {
+		byte[] concat = new byte[1 + 32 * 2];
+		concat[0] = prefix;
+		System.arraycopy(left.asBytes(), 0, concat, 1, 32);
+		System.arraycopy(right.asBytes(), 0, concat, 33, 32);
+		return hasher.hashBytes(concat);
+	}
+}
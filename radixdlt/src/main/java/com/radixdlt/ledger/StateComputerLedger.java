@@ -33,6 +33,7 @@ import com.radixdlt.consensus.bft.View;
 import com.radixdlt.consensus.liveness.NextCommandGenerator;
 import com.radixdlt.counters.SystemCounters;
 import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.counters.SystemCounters.HistogramType;
 import com.google.common.hash.HashCode;
 import com.radixdlt.crypto.Hasher;
 import com.radixdlt.environment.EventProcessor;
@@ -44,7 +45,9 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * Synchronizes execution
@@ -107,6 +110,9 @@ public final class StateComputerLedger implements Ledger, NextCommandGenerator {
 	private final LedgerAccumulatorVerifier verifier;
 	private final Hasher hasher;
 	private final Object lock = new Object();
+	// Ledger updates are sent in commit order under this lock, outside of the commit lock
+	private final Object publishLock = new Object();
+	private final Queue<LedgerUpdate> pendingLedgerUpdates = new ConcurrentLinkedQueue<>();
 	private final TimeSupplier timeSupplier;
 
 	private VerifiedLedgerHeaderAndProof currentLedgerHeader;
@@ -267,15 +273,26 @@ public final class StateComputerLedger implements Ledger, NextCommandGenerator {
 			);
 
 			// persist
+			final long start = System.nanoTime();
 			this.stateComputer.commit(commandsToStore, vertexStoreState);
+			this.counters.record(HistogramType.LATENCY_LEDGER_COMMIT, (System.nanoTime() - start + 500L) / 1000L);
 
-			// TODO: move all of the following to post-persist event handling
 			this.currentLedgerHeader = nextHeader;
 			this.counters.set(CounterType.LEDGER_STATE_VERSION, this.currentLedgerHeader.getStateVersion());
+			// Remove from mempool before releasing the lock, so committed commands are never proposed again
+			commands.forEach(cmd -> this.mempool.removeCommitted(hasher.hash(cmd)));
+			this.pendingLedgerUpdates.add(new BaseLedgerUpdate(commandsToStore));
+		}
+
+		publishLedgerUpdates();
+	}
 
-			verifiedExtension.get().forEach(cmd -> this.mempool.removeCommitted(hasher.hash(cmd)));
-			BaseLedgerUpdate ledgerUpdate = new BaseLedgerUpdate(commandsToStore);
-			ledgerUpdateSender.sendLedgerUpdate(ledgerUpdate);
+	private void publishLedgerUpdates() {
+		synchronized (publishLock) {
+			LedgerUpdate ledgerUpdate;
+			while ((ledgerUpdate = this.pendingLedgerUpdates.poll()) != null) {
+				ledgerUpdateSender.sendLedgerUpdate(ledgerUpdate);
+			}
 		}
 	}
 }
@@ -42,6 +42,11 @@ public class EmptyMempool implements Mempool {
 		// No-op
 	}
 
+	@Override
+	public boolean contains(HashCode cmdHash) {
+		return false;
+	}
+
 	@Override
 	public List<Command> getCommands(int count, Set<HashCode> seen) {
 		return Collections.emptyList();
@@ -79,6 +79,13 @@ public final class LocalMempool implements Mempool {
 		removeCommitted(cmdHash);
 	}
 
+	@Override
+	public boolean contains(HashCode cmdHash) {
+		synchronized (this.lock) {
+			return this.data.containsKey(cmdHash);
+		}
+	}
+
 	@Override
 	public List<Command> getCommands(int count, Set<HashCode> seen) {
 		synchronized (this.lock) {
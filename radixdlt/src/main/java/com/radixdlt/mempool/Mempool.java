@@ -55,6 +55,14 @@ public interface Mempool {
 	 */
 	void removeRejected(HashCode cmdHash);
 
+	/**
+	 * Check whether the local mempool holds the referenced atom.
+	 *
+	 * @param cmdHash The hash of the command to check
+	 * @return {@code true} if the command is in the mempool
+	 */
+	boolean contains(HashCode cmdHash);
+
 	/**
 	 * Retrieve a list of atoms from the local mempool for processing by
 	 * consensus.
@@ -65,6 +65,11 @@ public class SharedMempool implements Mempool {
 		updateCounts();
 	}
 
+	@Override
+	public boolean contains(HashCode cmdHash) {
+		return this.localMempool.contains(cmdHash);
+	}
+
 	@Override
 	public List<Command> getCommands(int count, Set<HashCode> seen) {
 		return this.localMempool.getCommands(count, seen);
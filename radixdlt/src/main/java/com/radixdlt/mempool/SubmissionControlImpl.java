@@ -17,16 +17,30 @@
 
 package com.radixdlt.mempool;
 
+import com.google.common.hash.HashCode;
 import com.radixdlt.consensus.Command;
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.counters.SystemCounters.HistogramType;
 import com.radixdlt.crypto.Hasher;
 import com.radixdlt.engine.RadixEngineException;
+import com.radixdlt.identifiers.AID;
 import com.radixdlt.middleware2.ClientAtom;
 import com.radixdlt.middleware2.LedgerAtom;
 import com.radixdlt.middleware2.converters.AtomConversionException;
 import com.radixdlt.serialization.DeserializeException;
 import com.radixdlt.serialization.DsonOutput.Output;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.Consumer;
+import javax.annotation.concurrent.GuardedBy;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -36,6 +50,20 @@ import com.radixdlt.atommodel.Atom;
 import com.radixdlt.engine.RadixEngine;
 import com.radixdlt.serialization.Serialization;
 
+/**
+ * Validates submitted atoms and adds them to the mempool.
+ * <p>
+ * Commands received from the network are placed on a bounded intake queue and
+ * validated in batches by workers on the supplied executor, so that the network
+ * receiver is not held up by signature checks.  Atoms submitted directly are
+ * validated on the calling thread so that failures can be reported to the caller.
+ * <p>
+ * In both cases, atoms which are already in the mempool, or with an AID that is currently
+ * being validated, are rejected as duplicates before any validation is performed.  Commands
+ * received from the network are first checked by the hash of their payload, so that commands
+ * already in the mempool or being validated are rejected without being decoded.  Atoms
+ * which have left the mempool, such as after being evicted, may be submitted again.
+ */
 public class SubmissionControlImpl implements SubmissionControl {
 	private static final Logger log = LogManager.getLogger();
 
@@ -44,50 +72,162 @@ public class SubmissionControlImpl implements SubmissionControl {
 		void sendRadixEngineFailure(ClientAtom clientAtom, RadixEngineException e);
 	}
 
+	private static final class QueuedCommand {
+		private final Command command;
+		private final long submittedNanos;
+
+		QueuedCommand(Command command, long submittedNanos) {
+			this.command = command;
+			this.submittedNanos = submittedNanos;
+		}
+	}
+
 	private final Mempool mempool;
 	private final RadixEngine<LedgerAtom> radixEngine;
 	private final Serialization serialization;
 	private final SubmissionControlSender submissionControlSender;
 	private final Hasher hasher;
+	private final SystemCounters counters;
+	private final Executor admissionExecutor;
+	private final int batchSize;
+	private final BlockingQueue<QueuedCommand> intake;
+
+	private final Object inFlightLock = new Object();
+	// AIDs of atoms being validated
+	@GuardedBy("inFlightLock")
+	private final Set<AID> inFlight = new HashSet<>();
+	// Hashes of commands received from the network being validated
+	@GuardedBy("inFlightLock")
+	private final Set<HashCode> inFlightCommands = new HashSet<>();
 
 	public SubmissionControlImpl(
 		Mempool mempool,
 		RadixEngine<LedgerAtom> radixEngine,
 		Serialization serialization,
 		SubmissionControlSender submissionControlSender,
-		Hasher hasher
+		Hasher hasher,
+		SystemCounters counters,
+		Executor admissionExecutor,
+		int maxQueuedCommands,
+		int batchSize
 	) {
+		if (maxQueuedCommands <= 0) {
+			throw new IllegalArgumentException("mempool.admission.queue_size must be positive: " + maxQueuedCommands);
+		}
+		if (batchSize <= 0) {
+			throw new IllegalArgumentException("mempool.admission.batch_size must be positive: " + batchSize);
+		}
 		this.mempool = Objects.requireNonNull(mempool);
 		this.radixEngine = Objects.requireNonNull(radixEngine);
 		this.serialization = Objects.requireNonNull(serialization);
 		this.submissionControlSender = Objects.requireNonNull(submissionControlSender);
 		this.hasher = hasher;
+		this.counters = Objects.requireNonNull(counters);
+		this.admissionExecutor = Objects.requireNonNull(admissionExecutor);
+		this.batchSize = batchSize;
+		this.intake = new ArrayBlockingQueue<>(maxQueuedCommands);
 	}
 
+	/**
+	 * Queues a command received from the network for validation.
+	 * Validation failures are logged rather than thrown.
+	 *
+	 * @throws MempoolFullException if the intake queue is full
+	 */
 	@Override
 	public void submitCommand(Command command) throws MempoolRejectedException, MempoolFullException, MempoolDuplicateException {
-		ClientAtom clientAtom = command.map(payload -> {
-			try {
-				return serialization.fromDson(payload, ClientAtom.class);
-			} catch (DeserializeException e) {
-				return null;
-			}
-		});
-		if (clientAtom == null) {
-			//TODO: use of base class looks inconsistent (all other cases have dedicated exceptions)
-			//TODO: create dedicated MempoolBadAtomException?
-			throw new MempoolRejectedException(command, "Bad atom");
+		if (!this.intake.offer(new QueuedCommand(command, System.nanoTime()))) {
+			this.counters.increment(CounterType.MEMPOOL_ADMISSION_REJECTED);
+			throw new MempoolFullException(command, String.format("Admission queue full: %s items", this.intake.size()));
+		}
+		this.counters.set(CounterType.MEMPOOL_ADMISSION_QUEUED, this.intake.size());
+		try {
+			this.admissionExecutor.execute(this::processQueuedCommands);
+		} catch (RejectedExecutionException e) {
+			// Shutting down, queued commands will not be processed
+			log.debug("Admission executor rejected command {}", command);
 		}
-		submitAtom(clientAtom);
 	}
 
 	@Override
 	public void submitAtom(ClientAtom atom) throws MempoolFullException, MempoolDuplicateException {
+		admit(atom, null, System.nanoTime());
+	}
+
+	@Override
+	public void submitAtom(JSONObject atomJson, Consumer<ClientAtom> deserialisationCallback) throws MempoolFullException, MempoolDuplicateException {
+		final long start = System.nanoTime();
+		final Atom rawAtom = this.serialization.fromJsonObject(atomJson, Atom.class);
+		final ClientAtom atom = ClientAtom.convertFromApiAtom(rawAtom, hasher);
+		deserialisationCallback.accept(atom);
+		admit(atom, null, start);
+	}
+
+	private void processQueuedCommands() {
+		final List<QueuedCommand> batch = new ArrayList<>(this.batchSize);
+		this.intake.drainTo(batch, this.batchSize);
+		if (batch.isEmpty()) {
+			return;
+		}
+		this.counters.set(CounterType.MEMPOOL_ADMISSION_QUEUED, this.intake.size());
+		for (QueuedCommand queued : batch) {
+			try {
+				admitCommand(queued);
+			} catch (MempoolRejectedException ex) {
+				log.info("Mempool rejected command {}: {}", queued.command, ex.getMessage());
+			} catch (RuntimeException ex) {
+				this.counters.increment(CounterType.MEMPOOL_ADMISSION_REJECTED);
+				log.error(String.format("Error while admitting command %s", queued.command), ex);
+			}
+		}
+	}
+
+	private void admitCommand(QueuedCommand queued) throws MempoolRejectedException {
+		final Command command = queued.command;
+		// Commands relayed by other nodes have the same payload as the mempool command
+		final HashCode commandHash = this.hasher.hash(command);
+		if (this.mempool.contains(commandHash)) {
+			this.counters.increment(CounterType.MEMPOOL_ADMISSION_DUPLICATES);
+			throw new MempoolDuplicateException(command, String.format("Command %s already in mempool", commandHash));
+		}
+		if (!markInFlight(commandHash)) {
+			this.counters.increment(CounterType.MEMPOOL_ADMISSION_DUPLICATES);
+			throw new MempoolDuplicateException(command, String.format("Command %s already being admitted", commandHash));
+		}
 		try {
+			ClientAtom clientAtom = command.map(payload -> {
+				try {
+					return serialization.fromDson(payload, ClientAtom.class);
+				} catch (DeserializeException e) {
+					return null;
+				}
+			});
+			if (clientAtom == null) {
+				this.counters.increment(CounterType.MEMPOOL_ADMISSION_REJECTED);
+				//TODO: use of base class looks inconsistent (all other cases have dedicated exceptions)
+				//TODO: create dedicated MempoolBadAtomException?
+				throw new MempoolRejectedException(command, "Bad atom");
+			}
+			admit(clientAtom, command, queued.submittedNanos);
+		} finally {
+			unmarkInFlight(commandHash);
+		}
+	}
+
+	private void admit(ClientAtom atom, Command command, long startNanos) throws MempoolFullException, MempoolDuplicateException {
+		final AID aid = atom.getAID();
+		if (!markInFlight(aid)) {
+			this.counters.increment(CounterType.MEMPOOL_ADMISSION_DUPLICATES);
+			throw new MempoolDuplicateException(command, String.format("Atom %s already being admitted", aid));
+		}
+		try {
+			final Command mempoolCommand = new Command(serialization.toDson(atom, Output.ALL));
+			if (this.mempool.contains(this.hasher.hash(mempoolCommand))) {
+				throw new MempoolDuplicateException(command, String.format("Atom %s already in mempool", aid));
+			}
 			this.radixEngine.staticCheck(atom);
-			byte[] payload = serialization.toDson(atom, Output.ALL);
-			Command command = new Command(payload);
-			this.mempool.add(command);
+			this.mempool.add(mempoolCommand);
+			this.counters.record(HistogramType.LATENCY_MEMPOOL_ADMISSION, (System.nanoTime() - startNanos + 500L) / 1000L);
 		} catch (RadixEngineException e) {
 			log.info(
 				"Rejecting atom {} with error '{}' at '{}' with message '{}'.",
@@ -96,16 +236,49 @@ public class SubmissionControlImpl implements SubmissionControl {
 				e.getDataPointer(),
 				e.getMessage()
 			);
+			this.counters.increment(CounterType.MEMPOOL_ADMISSION_REJECTED);
 			this.submissionControlSender.sendRadixEngineFailure(atom, e);
+		} catch (MempoolFullException e) {
+			this.counters.increment(CounterType.MEMPOOL_ADMISSION_REJECTED);
+			throw e;
+		} catch (MempoolDuplicateException e) {
+			this.counters.increment(CounterType.MEMPOOL_ADMISSION_DUPLICATES);
+			throw e;
+		} finally {
+			// Once admitted, the atom is found in the mempool instead
+			unmarkInFlight(aid);
 		}
 	}
 
-	@Override
-	public void submitAtom(JSONObject atomJson, Consumer<ClientAtom> deserialisationCallback) throws MempoolFullException, MempoolDuplicateException {
-		final Atom rawAtom = this.serialization.fromJsonObject(atomJson, Atom.class);
-		final ClientAtom atom = ClientAtom.convertFromApiAtom(rawAtom, hasher);
-		deserialisationCallback.accept(atom);
-		submitAtom(atom);
+	// Returns false if an atom with the AID is already being validated
+	private boolean markInFlight(AID aid) {
+		if (aid == null) {
+			return true;
+		}
+		synchronized (this.inFlightLock) {
+			return this.inFlight.add(aid);
+		}
+	}
+
+	private void unmarkInFlight(AID aid) {
+		if (aid != null) {
+			synchronized (this.inFlightLock) {
+				this.inFlight.remove(aid);
+			}
+		}
+	}
+
+	// Returns false if a command with the hash is already being validated
+	private boolean markInFlight(HashCode commandHash) {
+		synchronized (this.inFlightLock) {
+			return this.inFlightCommands.add(commandHash);
+		}
+	}
+
+	private void unmarkInFlight(HashCode commandHash) {
+		synchronized (this.inFlightLock) {
+			this.inFlightCommands.remove(commandHash);
+		}
 	}
 
 	@Override
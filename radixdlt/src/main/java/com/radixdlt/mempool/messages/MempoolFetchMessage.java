@@ -0,0 +1,76 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.mempool.messages;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.radixdlt.serialization.DsonOutput;
+import com.radixdlt.serialization.DsonOutput.Output;
+import com.radixdlt.serialization.SerializerId2;
+import java.util.Objects;
+import org.radix.network.messaging.Message;
+
+/**
+ * Requests the commands with the specified hashes, previously announced by the receiver.
+ */
+@SerializerId2("message.mempool.fetch")
+public final class MempoolFetchMessage extends Message {
+	@JsonProperty("hashes")
+	@DsonOutput(Output.ALL)
+	private final ImmutableList<HashCode> hashes;
+
+	MempoolFetchMessage() {
+		// Serializer only
+		super(0);
+		this.hashes = null;
+	}
+
+	public MempoolFetchMessage(int magic, ImmutableList<HashCode> hashes) {
+		super(magic);
+		this.hashes = Objects.requireNonNull(hashes);
+	}
+
+	public ImmutableList<HashCode> hashes() {
+		return hashes == null ? ImmutableList.of() : hashes;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[%s]", getClass().getSimpleName(), hashes == null ? 0 : hashes.size());
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		MempoolFetchMessage that = (MempoolFetchMessage) o;
+		return Objects.equals(hashes, that.hashes)
+				&& Objects.equals(getTimestamp(), that.getTimestamp())
+				&& Objects.equals(getMagic(), that.getMagic());
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(hashes, getTimestamp(), getMagic());
+	}
+}
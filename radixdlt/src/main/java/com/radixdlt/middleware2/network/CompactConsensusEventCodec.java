@@ -0,0 +1,472 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.middleware2.network;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.HashCode;
+import com.radixdlt.consensus.ConsensusEvent;
+import com.radixdlt.consensus.HighQC;
+import com.radixdlt.consensus.Proposal;
+import com.radixdlt.consensus.QuorumCertificate;
+import com.radixdlt.consensus.TimestampedECDSASignature;
+import com.radixdlt.consensus.TimestampedECDSASignatures;
+import com.radixdlt.consensus.UnverifiedVertex;
+import com.radixdlt.consensus.Vote;
+import com.radixdlt.consensus.VoteData;
+import com.radixdlt.consensus.bft.BFTNode;
+import com.radixdlt.consensus.bft.BFTValidator;
+import com.radixdlt.consensus.bft.BFTValidatorSet;
+import com.radixdlt.consensus.bft.View;
+import com.radixdlt.crypto.ECDSASignature;
+import com.radixdlt.crypto.Hasher;
+import com.radixdlt.crypto.exception.PublicKeyException;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.subjects.PublishSubject;
+import io.reactivex.rxjava3.subjects.Subject;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Encodes proposals and votes into their compact wire forms for a specific peer
+ * and decodes them back again.
+ * <p>
+ * Signers of a quorum certificate are encoded as a bitmap over the validators of
+ * the certificate's epoch ordered by key, with the weight of each signature restored
+ * from the power of the validator. A quorum certificate is referenced by hash only if
+ * it was recently received from the same peer, as the peer then holds it in its bounded
+ * cache of recently seen certificates regardless of which messages were lost on the way.
+ * Certificates of epochs with unknown validators are sent in full.
+ * <p>
+ * Events received with certificates of an epoch after the latest epoch with known
+ * validators are held back until the validators of that epoch are known, and then
+ * emitted by {@link #deferredEvents()}, so that they can still be queued for the next
+ * epoch by a receiver which has yet to process the epoch change.
+ * <p>
+ * Compact encoding can be disabled, in which case events are sent in full so that nodes
+ * which cannot decode compact events can still take part in consensus.  Both forms are
+ * always decoded.
+ */
+public final class CompactConsensusEventCodec {
+	private static final Logger log = LogManager.getLogger();
+
+	// Validator sets of the current and previous epoch are needed around epoch changes
+	private static final int KNOWN_EPOCHS = 2;
+	// QCs received from a peer which may be referenced when sending to that peer
+	private static final int REFERENCEABLE_QCS = 8;
+	// QCs which references from any peer are resolved against, must be well above REFERENCEABLE_QCS
+	private static final int SEEN_QCS = 256;
+	// Events of future epochs held back until their validators are known
+	private static final int DEFERRED_EVENTS = 256;
+
+	private final Hasher hasher;
+	private final boolean compact;
+	private final Object lock = new Object();
+	private final Map<Long, ImmutableList<BFTValidator>> validatorsByEpoch = new LinkedHashMap<>();
+	private final Map<BFTNode, Map<HashCode, Boolean>> receivedQCs = new HashMap<>();
+	private final Map<HashCode, QuorumCertificate> seenQCs = lruMap(SEEN_QCS);
+	private final Map<QuorumCertificate, HashCode> seenHashes = lruMap(SEEN_QCS);
+	private final Deque<DeferredEvent> deferred = new ArrayDeque<>();
+	private final Subject<ConsensusEvent> deferredEvents = PublishSubject.<ConsensusEvent>create().toSerialized();
+
+	public CompactConsensusEventCodec(Hasher hasher) {
+		this(hasher, true);
+	}
+
+	/**
+	 * Creates a new codec.
+	 *
+	 * @param hasher the hasher for quorum certificate references
+	 * @param compact {@code true} if events should be encoded compactly, {@code false} to send them in full
+	 */
+	public CompactConsensusEventCodec(Hasher hasher, boolean compact) {
+		this.hasher = Objects.requireNonNull(hasher);
+		this.compact = compact;
+	}
+
+	/**
+	 * Makes the validators of an epoch known, so that quorum certificates of that
+	 * epoch can be encoded and decoded with a bitmap of signers.
+	 *
+	 * @param epoch the epoch
+	 * @param validatorSet the validators of the epoch
+	 */
+	public void addValidatorSet(long epoch, BFTValidatorSet validatorSet) {
+		final ImmutableList<BFTValidator> validators = validatorSet.getValidators().stream()
+			.sorted(Comparator.comparing(v -> v.getNode().getKey().euid()))
+			.collect(ImmutableList.toImmutableList());
+
+		final List<ConsensusEvent> resolved = new ArrayList<>();
+		synchronized (lock) {
+			this.validatorsByEpoch.put(epoch, validators);
+			while (this.validatorsByEpoch.size() > KNOWN_EPOCHS) {
+				final long oldest = this.validatorsByEpoch.keySet().stream().mapToLong(Long::longValue).min().getAsLong();
+				this.validatorsByEpoch.remove(oldest);
+			}
+
+			final Set<BFTNode> nodes = new HashSet<>();
+			this.validatorsByEpoch.values().forEach(vs -> vs.forEach(v -> nodes.add(v.getNode())));
+			this.receivedQCs.keySet().retainAll(nodes);
+
+			final List<DeferredEvent> ready = new ArrayList<>();
+			final Iterator<DeferredEvent> i = this.deferred.iterator();
+			while (i.hasNext()) {
+				final DeferredEvent deferredEvent = i.next();
+				if (deferredEvent.epoch <= epoch) {
+					i.remove();
+					if (deferredEvent.epoch == epoch) {
+						ready.add(deferredEvent);
+					}
+				}
+			}
+			// May be deferred again if referencing an even later epoch
+			ready.forEach(d -> decodeOrDefer(d.message, d.sender).ifPresent(resolved::add));
+		}
+		resolved.forEach(this.deferredEvents::onNext);
+	}
+
+	/**
+	 * Retrieves events which were received before the validators of their epoch were
+	 * known, as they are decoded once the validators are added.
+	 *
+	 * @return an observable of deferred events
+	 */
+	public Observable<ConsensusEvent> deferredEvents() {
+		return this.deferredEvents;
+	}
+
+	/**
+	 * Encodes a proposal or vote for sending to the specified recipient.
+	 *
+	 * @param magic the magic of the universe
+	 * @param event the proposal or vote to encode
+	 * @param recipient the node the message will be sent to
+	 * @return the message to send
+	 */
+	public ConsensusEventMessage encode(int magic, ConsensusEvent event, BFTNode recipient) {
+		if (event instanceof Proposal) {
+			final Proposal proposal = (Proposal) event;
+			if (!this.compact) {
+				return new ConsensusEventMessage(magic, proposal);
+			}
+			synchronized (lock) {
+				return new ConsensusEventMessage(magic, encodeProposal(proposal, recipient));
+			}
+		} else if (event instanceof Vote) {
+			final Vote vote = (Vote) event;
+			if (!this.compact) {
+				return new ConsensusEventMessage(magic, vote);
+			}
+			synchronized (lock) {
+				return new ConsensusEventMessage(magic, encodeVote(vote, recipient));
+			}
+		} else {
+			throw new IllegalArgumentException("Unknown consensus event: " + event);
+		}
+	}
+
+	/**
+	 * Decodes a received message into a proposal or vote.
+	 *
+	 * @param message the message received
+	 * @param sender the node the message was received from
+	 * @return the decoded event, or empty if the message references unknown
+	 * 	quorum certificates or validators, or has been deferred until the
+	 * 	validators of a future epoch are known
+	 */
+	public Optional<ConsensusEvent> decode(ConsensusEventMessage message, BFTNode sender) {
+		synchronized (lock) {
+			return decodeOrDefer(message, sender);
+		}
+	}
+
+	private Optional<ConsensusEvent> decodeOrDefer(ConsensusEventMessage message, BFTNode sender) {
+		final OptionalLong futureEpoch = futureEpochOf(message);
+		if (futureEpoch.isPresent()) {
+			if (this.deferred.size() >= DEFERRED_EVENTS) {
+				final DeferredEvent dropped = this.deferred.removeFirst();
+				log.warn("Too many events of future epochs, dropping event of epoch {} from {}", dropped.epoch, dropped.sender);
+			}
+			this.deferred.addLast(new DeferredEvent(futureEpoch.getAsLong(), message, sender));
+			return Optional.empty();
+		}
+
+		if (message.getCompactProposal().isPresent()) {
+			return decodeProposal(message.getCompactProposal().get(), sender);
+		} else if (message.getCompactVote().isPresent()) {
+			return decodeVote(message.getCompactVote().get(), sender);
+		} else {
+			return Optional.of(message.getConsensusMessage());
+		}
+	}
+
+	private OptionalLong futureEpochOf(ConsensusEventMessage message) {
+		final Stream<CompactQuorumCertificate> qcs;
+		if (message.getCompactProposal().isPresent()) {
+			final CompactProposal proposal = message.getCompactProposal().get();
+			qcs = Stream.concat(Stream.of(proposal.getQC()), proposal.getCommittedQC().stream());
+		} else if (message.getCompactVote().isPresent()) {
+			final CompactVote vote = message.getCompactVote().get();
+			qcs = Stream.concat(Stream.of(vote.getHighestQC()), vote.getCommittedQC().stream());
+		} else {
+			return OptionalLong.empty();
+		}
+		final long latestKnownEpoch = this.validatorsByEpoch.keySet().stream().mapToLong(Long::longValue).max().orElse(Long.MIN_VALUE);
+		return qcs
+			.flatMap(qc -> qc.getVoteData().stream())
+			.mapToLong(CompactConsensusEventCodec::epochOf)
+			.filter(epoch -> epoch > latestKnownEpoch)
+			.max();
+	}
+
+	private CompactProposal encodeProposal(Proposal proposal, BFTNode recipient) {
+		final UnverifiedVertex vertex = proposal.getVertex();
+		final CompactQuorumCertificate qc = encodeQC(vertex.getQC(), recipient);
+		final QuorumCertificate committedQC = proposal.highQC().highestCommittedQC();
+		return new CompactProposal(
+			vertex.getView().number(),
+			vertex.getCommand(),
+			qc,
+			committedQC.equals(vertex.getQC()) ? null : encodeQC(committedQC, recipient),
+			proposal.getAuthor().getKey().getBytes(),
+			proposal.getSignature(),
+			proposal.highQC().highestTC().orElse(null)
+		);
+	}
+
+	private Optional<ConsensusEvent> decodeProposal(CompactProposal compact, BFTNode sender) {
+		final Optional<QuorumCertificate> qc = decodeQC(compact.getQC(), sender);
+		if (!qc.isPresent()) {
+			return Optional.empty();
+		}
+		final Optional<QuorumCertificate> committedQC = compact.getCommittedQC().isPresent()
+			? decodeQC(compact.getCommittedQC().get(), sender)
+			: qc;
+		if (!committedQC.isPresent()) {
+			return Optional.empty();
+		}
+		return author(compact.getAuthor(), sender).map(author -> new Proposal(
+			new UnverifiedVertex(qc.get(), View.of(compact.getView()), compact.getCommand()),
+			committedQC.get(),
+			author,
+			compact.getSignature(),
+			compact.getHighestTC()
+		));
+	}
+
+	private CompactVote encodeVote(Vote vote, BFTNode recipient) {
+		final HighQC highQC = vote.highQC();
+		final CompactQuorumCertificate highestQC = encodeQC(highQC.highestQC(), recipient);
+		final QuorumCertificate committedQC = highQC.highestCommittedQC();
+		return new CompactVote(
+			vote.getAuthor().getKey().getBytes(),
+			vote.getTimestampedVoteData(),
+			vote.getSignature(),
+			vote.getTimeoutSignature().orElse(null),
+			highestQC,
+			committedQC.equals(highQC.highestQC()) ? null : encodeQC(committedQC, recipient),
+			highQC.highestTC().orElse(null)
+		);
+	}
+
+	private Optional<ConsensusEvent> decodeVote(CompactVote compact, BFTNode sender) {
+		final Optional<QuorumCertificate> highestQC = decodeQC(compact.getHighestQC(), sender);
+		if (!highestQC.isPresent()) {
+			return Optional.empty();
+		}
+		final Optional<QuorumCertificate> committedQC = compact.getCommittedQC().isPresent()
+			? decodeQC(compact.getCommittedQC().get(), sender)
+			: highestQC;
+		if (!committedQC.isPresent()) {
+			return Optional.empty();
+		}
+		final HighQC highQC = HighQC.from(highestQC.get(), committedQC.get(), compact.getHighestTC());
+		return author(compact.getAuthor(), sender).map(author -> new Vote(
+			author,
+			compact.getVoteData(),
+			compact.getSignature(),
+			highQC,
+			compact.getTimeoutSignature()
+		));
+	}
+
+	private CompactQuorumCertificate encodeQC(QuorumCertificate qc, BFTNode recipient) {
+		final HashCode hash = hashOf(qc);
+		// Only QCs the recipient has sent to us are known to be held by the recipient,
+		// QCs we have sent may have been lost or reordered on the way
+		if (receivedFrom(recipient).containsKey(hash)) {
+			return CompactQuorumCertificate.reference(hash);
+		}
+
+		final Map<BFTNode, TimestampedECDSASignature> signatures = qc.getTimestampedSignatures().getSignatures();
+		final ImmutableList<BFTValidator> validators = this.validatorsByEpoch.get(epochOf(qc.getVoteData()));
+		if (validators == null || signatures.isEmpty()) {
+			// Genesis QCs are sent in full, so the first proposal of an epoch can be
+			// decoded by nodes which have yet to process the epoch change
+			return CompactQuorumCertificate.full(qc);
+		}
+
+		final byte[] signers = new byte[bitmapLength(validators.size())];
+		final ImmutableList.Builder<Long> timestamps = ImmutableList.builder();
+		final ImmutableList.Builder<ECDSASignature> signatureList = ImmutableList.builder();
+		int count = 0;
+		for (int i = 0; i < validators.size(); i++) {
+			final BFTValidator validator = validators.get(i);
+			final TimestampedECDSASignature signature = signatures.get(validator.getNode());
+			if (signature != null) {
+				if (!signature.weight().equals(validator.getPower())) {
+					return CompactQuorumCertificate.full(qc);
+				}
+				signers[i / Byte.SIZE] |= 1 << (i % Byte.SIZE);
+				timestamps.add(signature.timestamp());
+				signatureList.add(signature.signature());
+				count += 1;
+			}
+		}
+		if (count != signatures.size()) {
+			// Signed by nodes outside of the validator set
+			return CompactQuorumCertificate.full(qc);
+		}
+		return CompactQuorumCertificate.withSigners(qc.getVoteData(), signers, timestamps.build(), signatureList.build());
+	}
+
+	private Optional<QuorumCertificate> decodeQC(CompactQuorumCertificate compact, BFTNode sender) {
+		final Optional<QuorumCertificate> qc;
+		if (compact.getQC().isPresent()) {
+			qc = compact.getQC();
+		} else if (compact.getVoteData().isPresent()) {
+			qc = fromSigners(compact.getVoteData().get(), compact);
+		} else {
+			final HashCode hash = compact.getHash().orElseThrow(() -> new IllegalStateException("No hash in reference"));
+			qc = Optional.ofNullable(this.seenQCs.get(hash));
+			if (!qc.isPresent()) {
+				log.warn("Unknown QC {} referenced by {}", hash, sender);
+			}
+		}
+		qc.ifPresent(q -> receivedFrom(sender).put(hashOf(q), Boolean.TRUE));
+		return qc;
+	}
+
+	private Optional<QuorumCertificate> fromSigners(VoteData voteData, CompactQuorumCertificate compact) {
+		final long epoch = epochOf(voteData);
+		final ImmutableList<BFTValidator> validators = this.validatorsByEpoch.get(epoch);
+		if (validators == null) {
+			log.warn("Unknown validators of epoch {} for QC {}", epoch, compact);
+			return Optional.empty();
+		}
+
+		final byte[] signers = compact.getSigners();
+		final ImmutableList<Long> timestamps = compact.getTimestamps();
+		final ImmutableList<ECDSASignature> signatures = compact.getSignatures();
+		if (signers.length != bitmapLength(validators.size()) || timestamps.size() != signatures.size()) {
+			log.warn("Malformed signers for {} validators in QC {}", validators.size(), compact);
+			return Optional.empty();
+		}
+
+		final ImmutableMap.Builder<BFTNode, TimestampedECDSASignature> builder = ImmutableMap.builder();
+		int next = 0;
+		for (int i = 0; i < validators.size(); i++) {
+			if ((signers[i / Byte.SIZE] & (1 << (i % Byte.SIZE))) != 0) {
+				if (next >= timestamps.size()) {
+					log.warn("Missing signatures for {} validators in QC {}", validators.size(), compact);
+					return Optional.empty();
+				}
+				final BFTValidator validator = validators.get(i);
+				builder.put(
+					validator.getNode(),
+					TimestampedECDSASignature.from(timestamps.get(next), validator.getPower(), signatures.get(next))
+				);
+				next += 1;
+			}
+		}
+		if (next != timestamps.size()) {
+			log.warn("Extra signatures for {} validators in QC {}", validators.size(), compact);
+			return Optional.empty();
+		}
+		return Optional.of(new QuorumCertificate(voteData, new TimestampedECDSASignatures(builder.build())));
+	}
+
+	private Optional<BFTNode> author(byte[] author, BFTNode sender) {
+		try {
+			return Optional.of(BFTNode.fromPublicKeyBytes(author));
+		} catch (PublicKeyException e) {
+			log.warn("Invalid author in consensus event from {}", sender, e);
+			return Optional.empty();
+		}
+	}
+
+	private Map<HashCode, Boolean> receivedFrom(BFTNode node) {
+		return this.receivedQCs.computeIfAbsent(node, n -> lruMap(REFERENCEABLE_QCS));
+	}
+
+	private HashCode hashOf(QuorumCertificate qc) {
+		HashCode hash = this.seenHashes.get(qc);
+		if (hash == null) {
+			hash = this.hasher.hash(qc);
+			this.seenHashes.put(qc, hash);
+		}
+		this.seenQCs.put(hash, qc);
+		return hash;
+	}
+
+	private static final class DeferredEvent {
+		private final long epoch;
+		private final ConsensusEventMessage message;
+		private final BFTNode sender;
+
+		private DeferredEvent(long epoch, ConsensusEventMessage message, BFTNode sender) {
+			this.epoch = epoch;
+			this.message = message;
+			this.sender = sender;
+		}
+	}
+
+	private static long epochOf(VoteData voteData) {
+		return voteData.getProposed().getLedgerHeader().getEpoch();
+	}
+
+	private static int bitmapLength(int validators) {
+		return (validators + Byte.SIZE - 1) / Byte.SIZE;
+	}
+
+	private static <K, V> Map<K, V> lruMap(int maxSize) {
+		return new LinkedHashMap<K, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				return size() > maxSize;
+			}
+		};
+	}
+}
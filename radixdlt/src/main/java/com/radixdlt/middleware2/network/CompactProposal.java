@@ -0,0 +1,147 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.middleware2.network;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.radixdlt.consensus.Command;
+import com.radixdlt.consensus.Proposal;
+import com.radixdlt.consensus.TimeoutCertificate;
+import com.radixdlt.crypto.ECDSASignature;
+import com.radixdlt.serialization.DsonOutput;
+import com.radixdlt.serialization.DsonOutput.Output;
+import com.radixdlt.serialization.SerializerConstants;
+import com.radixdlt.serialization.SerializerDummy;
+import com.radixdlt.serialization.SerializerId2;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Wire representation of a {@link Proposal} with compact quorum certificates.
+ * The committed QC is omitted if it is the same as the QC of the vertex.
+ */
+@SerializerId2("consensus.compact_proposal")
+public final class CompactProposal {
+	@JsonProperty(SerializerConstants.SERIALIZER_NAME)
+	@DsonOutput(Output.ALL)
+	SerializerDummy serializer = SerializerDummy.DUMMY;
+
+	@JsonProperty("view")
+	@DsonOutput(Output.ALL)
+	private final long view;
+
+	@JsonProperty("command")
+	@DsonOutput(Output.ALL)
+	private final Command command;
+
+	@JsonProperty("qc")
+	@DsonOutput(Output.ALL)
+	private final CompactQuorumCertificate qc;
+
+	@JsonProperty("committed_qc")
+	@DsonOutput(Output.ALL)
+	private final CompactQuorumCertificate committedQC;
+
+	@JsonProperty("author")
+	@DsonOutput(Output.ALL)
+	private final byte[] author;
+
+	@JsonProperty("signature")
+	@DsonOutput(Output.ALL)
+	private final ECDSASignature signature;
+
+	@JsonProperty("highest_tc")
+	@DsonOutput(Output.ALL)
+	private final TimeoutCertificate highestTC;
+
+	@JsonCreator
+	CompactProposal(
+		@JsonProperty("view") long view,
+		@JsonProperty("command") Command command,
+		@JsonProperty("qc") CompactQuorumCertificate qc,
+		@JsonProperty("committed_qc") CompactQuorumCertificate committedQC,
+		@JsonProperty("author") byte[] author,
+		@JsonProperty("signature") ECDSASignature signature,
+		@JsonProperty("highest_tc") TimeoutCertificate highestTC
+	) {
+		this.view = view;
+		this.command = command;
+		this.qc = Objects.requireNonNull(qc);
+		this.committedQC = committedQC;
+		this.author = Objects.requireNonNull(author);
+		this.signature = Objects.requireNonNull(signature);
+		this.highestTC = highestTC;
+	}
+
+	long getView() {
+		return view;
+	}
+
+	Command getCommand() {
+		return command;
+	}
+
+	CompactQuorumCertificate getQC() {
+		return qc;
+	}
+
+	Optional<CompactQuorumCertificate> getCommittedQC() {
+		return Optional.ofNullable(committedQC);
+	}
+
+	byte[] getAuthor() {
+		return author;
+	}
+
+	ECDSASignature getSignature() {
+		return signature;
+	}
+
+	Optional<TimeoutCertificate> getHighestTC() {
+		return Optional.ofNullable(highestTC);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s{view=%s qc=%s committedQC=%s}", getClass().getSimpleName(), view, qc, committedQC);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(view, command, qc, committedQC, Arrays.hashCode(author), signature, highestTC);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		if (o instanceof CompactProposal) {
+			CompactProposal that = (CompactProposal) o;
+			return this.view == that.view
+				&& Objects.equals(this.command, that.command)
+				&& Objects.equals(this.qc, that.qc)
+				&& Objects.equals(this.committedQC, that.committedQC)
+				&& Arrays.equals(this.author, that.author)
+				&& Objects.equals(this.signature, that.signature)
+				&& Objects.equals(this.highestTC, that.highestTC);
+		}
+		return false;
+	}
+}
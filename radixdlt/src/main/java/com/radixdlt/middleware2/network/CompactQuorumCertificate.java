@@ -0,0 +1,167 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.middleware2.network;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.radixdlt.consensus.QuorumCertificate;
+import com.radixdlt.consensus.VoteData;
+import com.radixdlt.crypto.ECDSASignature;
+import com.radixdlt.serialization.DsonOutput;
+import com.radixdlt.serialization.DsonOutput.Output;
+import com.radixdlt.serialization.SerializerConstants;
+import com.radixdlt.serialization.SerializerDummy;
+import com.radixdlt.serialization.SerializerId2;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Wire representation of a {@link QuorumCertificate} in one of three forms:
+ * <ul>
+ *     <li>a reference by hash to a QC the recipient already has</li>
+ *     <li>vote data with a bitmap of signers over the validators of the QC's epoch,
+ *     ordered by key, and the timestamp and signature of each signer</li>
+ *     <li>the full QC, if the validators of the QC's epoch are unknown</li>
+ * </ul>
+ */
+@SerializerId2("consensus.compact_qc")
+public final class CompactQuorumCertificate {
+	@JsonProperty(SerializerConstants.SERIALIZER_NAME)
+	@DsonOutput(Output.ALL)
+	SerializerDummy serializer = SerializerDummy.DUMMY;
+
+	@JsonProperty("hash")
+	@DsonOutput(Output.ALL)
+	private final HashCode hash;
+
+	@JsonProperty("qc")
+	@DsonOutput(Output.ALL)
+	private final QuorumCertificate qc;
+
+	@JsonProperty("vote_data")
+	@DsonOutput(Output.ALL)
+	private final VoteData voteData;
+
+	@JsonProperty("signers")
+	@DsonOutput(Output.ALL)
+	private final byte[] signers;
+
+	@JsonProperty("timestamps")
+	@DsonOutput(Output.ALL)
+	private final ImmutableList<Long> timestamps;
+
+	@JsonProperty("signatures")
+	@DsonOutput(Output.ALL)
+	private final ImmutableList<ECDSASignature> signatures;
+
+	@JsonCreator
+	private CompactQuorumCertificate(
+		@JsonProperty("hash") HashCode hash,
+		@JsonProperty("qc") QuorumCertificate qc,
+		@JsonProperty("vote_data") VoteData voteData,
+		@JsonProperty("signers") byte[] signers,
+		@JsonProperty("timestamps") ImmutableList<Long> timestamps,
+		@JsonProperty("signatures") ImmutableList<ECDSASignature> signatures
+	) {
+		this.hash = hash;
+		this.qc = qc;
+		this.voteData = voteData;
+		this.signers = signers;
+		this.timestamps = timestamps;
+		this.signatures = signatures;
+	}
+
+	static CompactQuorumCertificate reference(HashCode hash) {
+		return new CompactQuorumCertificate(Objects.requireNonNull(hash), null, null, null, null, null);
+	}
+
+	static CompactQuorumCertificate full(QuorumCertificate qc) {
+		return new CompactQuorumCertificate(null, Objects.requireNonNull(qc), null, null, null, null);
+	}
+
+	static CompactQuorumCertificate withSigners(
+		VoteData voteData,
+		byte[] signers,
+		ImmutableList<Long> timestamps,
+		ImmutableList<ECDSASignature> signatures
+	) {
+		return new CompactQuorumCertificate(
+			null,
+			null,
+			Objects.requireNonNull(voteData),
+			Objects.requireNonNull(signers),
+			Objects.requireNonNull(timestamps),
+			Objects.requireNonNull(signatures)
+		);
+	}
+
+	Optional<HashCode> getHash() {
+		return Optional.ofNullable(hash);
+	}
+
+	Optional<QuorumCertificate> getQC() {
+		return Optional.ofNullable(qc);
+	}
+
+	Optional<VoteData> getVoteData() {
+		return Optional.ofNullable(voteData);
+	}
+
+	byte[] getSigners() {
+		return signers == null ? new byte[0] : signers;
+	}
+
+	ImmutableList<Long> getTimestamps() {
+		return timestamps == null ? ImmutableList.of() : timestamps;
+	}
+
+	ImmutableList<ECDSASignature> getSignatures() {
+		return signatures == null ? ImmutableList.of() : signatures;
+	}
+
+	@Override
+	public String toString() {
+		final String form = qc != null ? "full" : (voteData != null ? "signers" : "reference " + hash);
+		return String.format("%s{%s}", getClass().getSimpleName(), form);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(hash, qc, voteData, Arrays.hashCode(signers), timestamps, signatures);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		if (o instanceof CompactQuorumCertificate) {
+			CompactQuorumCertificate that = (CompactQuorumCertificate) o;
+			return Objects.equals(this.hash, that.hash)
+				&& Objects.equals(this.qc, that.qc)
+				&& Objects.equals(this.voteData, that.voteData)
+				&& Arrays.equals(this.signers, that.signers)
+				&& Objects.equals(this.timestamps, that.timestamps)
+				&& Objects.equals(this.signatures, that.signatures);
+		}
+		return false;
+	}
+}
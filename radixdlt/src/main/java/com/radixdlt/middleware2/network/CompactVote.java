@@ -0,0 +1,147 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.middleware2.network;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.radixdlt.consensus.TimeoutCertificate;
+import com.radixdlt.consensus.TimestampedVoteData;
+import com.radixdlt.consensus.Vote;
+import com.radixdlt.crypto.ECDSASignature;
+import com.radixdlt.serialization.DsonOutput;
+import com.radixdlt.serialization.DsonOutput.Output;
+import com.radixdlt.serialization.SerializerConstants;
+import com.radixdlt.serialization.SerializerDummy;
+import com.radixdlt.serialization.SerializerId2;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Wire representation of a {@link Vote} with compact quorum certificates.
+ * The committed QC is omitted if it is the same as the highest QC.
+ */
+@SerializerId2("consensus.compact_vote")
+public final class CompactVote {
+	@JsonProperty(SerializerConstants.SERIALIZER_NAME)
+	@DsonOutput(Output.ALL)
+	SerializerDummy serializer = SerializerDummy.DUMMY;
+
+	@JsonProperty("author")
+	@DsonOutput(Output.ALL)
+	private final byte[] author;
+
+	@JsonProperty("vote_data")
+	@DsonOutput(Output.ALL)
+	private final TimestampedVoteData voteData;
+
+	@JsonProperty("signature")
+	@DsonOutput(Output.ALL)
+	private final ECDSASignature signature;
+
+	@JsonProperty("timeout_signature")
+	@DsonOutput(Output.ALL)
+	private final ECDSASignature timeoutSignature;
+
+	@JsonProperty("highest_qc")
+	@DsonOutput(Output.ALL)
+	private final CompactQuorumCertificate highestQC;
+
+	@JsonProperty("committed_qc")
+	@DsonOutput(Output.ALL)
+	private final CompactQuorumCertificate committedQC;
+
+	@JsonProperty("highest_tc")
+	@DsonOutput(Output.ALL)
+	private final TimeoutCertificate highestTC;
+
+	@JsonCreator
+	CompactVote(
+		@JsonProperty("author") byte[] author,
+		@JsonProperty("vote_data") TimestampedVoteData voteData,
+		@JsonProperty("signature") ECDSASignature signature,
+		@JsonProperty("timeout_signature") ECDSASignature timeoutSignature,
+		@JsonProperty("highest_qc") CompactQuorumCertificate highestQC,
+		@JsonProperty("committed_qc") CompactQuorumCertificate committedQC,
+		@JsonProperty("highest_tc") TimeoutCertificate highestTC
+	) {
+		this.author = Objects.requireNonNull(author);
+		this.voteData = Objects.requireNonNull(voteData);
+		this.signature = Objects.requireNonNull(signature);
+		this.timeoutSignature = timeoutSignature;
+		this.highestQC = Objects.requireNonNull(highestQC);
+		this.committedQC = committedQC;
+		this.highestTC = highestTC;
+	}
+
+	byte[] getAuthor() {
+		return author;
+	}
+
+	TimestampedVoteData getVoteData() {
+		return voteData;
+	}
+
+	ECDSASignature getSignature() {
+		return signature;
+	}
+
+	Optional<ECDSASignature> getTimeoutSignature() {
+		return Optional.ofNullable(timeoutSignature);
+	}
+
+	CompactQuorumCertificate getHighestQC() {
+		return highestQC;
+	}
+
+	Optional<CompactQuorumCertificate> getCommittedQC() {
+		return Optional.ofNullable(committedQC);
+	}
+
+	Optional<TimeoutCertificate> getHighestTC() {
+		return Optional.ofNullable(highestTC);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s{voteData=%s highestQC=%s committedQC=%s}", getClass().getSimpleName(), voteData, highestQC, committedQC);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(Arrays.hashCode(author), voteData, signature, timeoutSignature, highestQC, committedQC, highestTC);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (o == this) {
+			return true;
+		}
+		if (o instanceof CompactVote) {
+			CompactVote that = (CompactVote) o;
+			return Arrays.equals(this.author, that.author)
+				&& Objects.equals(this.voteData, that.voteData)
+				&& Objects.equals(this.signature, that.signature)
+				&& Objects.equals(this.timeoutSignature, that.timeoutSignature)
+				&& Objects.equals(this.highestQC, that.highestQC)
+				&& Objects.equals(this.committedQC, that.committedQC)
+				&& Objects.equals(this.highestTC, that.highestTC);
+		}
+		return false;
+	}
+}
@@ -27,6 +27,7 @@ import com.radixdlt.serialization.SerializerId2;
 import org.radix.network.messaging.Message;
 
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * The Data Transfer Object for Consensus messages. Each type of consensus message currently needs to be
@@ -43,31 +44,75 @@ public final class ConsensusEventMessage extends Message {
 	@DsonOutput(Output.ALL)
 	private final Vote vote;
 
+	@JsonProperty("compact_proposal")
+	@DsonOutput(Output.ALL)
+	private final CompactProposal compactProposal;
+
+	@JsonProperty("compact_vote")
+	@DsonOutput(Output.ALL)
+	private final CompactVote compactVote;
+
 	ConsensusEventMessage() {
 		// Serializer only
 		super(0);
 		this.proposal = null;
 		this.vote = null;
+		this.compactProposal = null;
+		this.compactVote = null;
 	}
 
 	ConsensusEventMessage(int magic) {
 		super(magic);
 		this.proposal = null;
 		this.vote = null;
+		this.compactProposal = null;
+		this.compactVote = null;
 	}
 
 	ConsensusEventMessage(int magic, Proposal proposal) {
 		super(magic);
 		this.proposal = proposal;
 		this.vote = null;
+		this.compactProposal = null;
+		this.compactVote = null;
 	}
 
 	ConsensusEventMessage(int magic, Vote vote) {
 		super(magic);
 		this.proposal = null;
 		this.vote = vote;
+		this.compactProposal = null;
+		this.compactVote = null;
+	}
+
+	ConsensusEventMessage(int magic, CompactProposal compactProposal) {
+		super(magic);
+		this.proposal = null;
+		this.vote = null;
+		this.compactProposal = compactProposal;
+		this.compactVote = null;
+	}
+
+	ConsensusEventMessage(int magic, CompactVote compactVote) {
+		super(magic);
+		this.proposal = null;
+		this.vote = null;
+		this.compactProposal = null;
+		this.compactVote = compactVote;
+	}
+
+	Optional<CompactProposal> getCompactProposal() {
+		return Optional.ofNullable(this.compactProposal);
+	}
+
+	Optional<CompactVote> getCompactVote() {
+		return Optional.ofNullable(this.compactVote);
 	}
 
+	/**
+	 * Returns the consensus event if sent in full, see {@link CompactConsensusEventCodec}
+	 * for events sent in compact form.
+	 */
 	public ConsensusEvent getConsensusMessage() {
 		ConsensusEvent event = consensusMessageInternal();
 		if (event == null) {
@@ -90,7 +135,8 @@ public final class ConsensusEventMessage extends Message {
 
 	@Override
 	public String toString() {
-		return String.format("%s[%s]", getClass().getSimpleName(), consensusMessageInternal());
+		final Object event = this.compactProposal != null ? this.compactProposal : this.compactVote;
+		return String.format("%s[%s]", getClass().getSimpleName(), event != null ? event : consensusMessageInternal());
 	}
 
 	@Override
@@ -104,12 +150,14 @@ public final class ConsensusEventMessage extends Message {
 		ConsensusEventMessage that = (ConsensusEventMessage) o;
 		return Objects.equals(proposal, that.proposal)
 				&& Objects.equals(vote, that.vote)
+				&& Objects.equals(compactProposal, that.compactProposal)
+				&& Objects.equals(compactVote, that.compactVote)
 				&& Objects.equals(getTimestamp(), that.getTimestamp())
 				&& Objects.equals(getMagic(), that.getMagic());
 	}
 
 	@Override
 	public int hashCode() {
-		return Objects.hash(proposal, vote, getTimestamp(), getMagic());
+		return Objects.hash(proposal, vote, compactProposal, compactVote, getTimestamp(), getMagic());
 	}
 }
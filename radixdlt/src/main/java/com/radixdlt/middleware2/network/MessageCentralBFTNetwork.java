@@ -31,7 +31,6 @@ import java.util.Set;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.radix.network.messaging.Message;
 
 import com.radixdlt.consensus.ConsensusEvent;
 import com.radixdlt.consensus.BFTEventsRx;
@@ -57,6 +56,7 @@ public final class MessageCentralBFTNetwork implements ProposalBroadcaster, BFTE
 	private final int magic;
 	private final AddressBook addressBook;
 	private final MessageCentral messageCentral;
+	private final CompactConsensusEventCodec codec;
 	private final PublishSubject<ConsensusEvent> localMessages;
 
 	@Inject
@@ -64,22 +64,27 @@ public final class MessageCentralBFTNetwork implements ProposalBroadcaster, BFTE
 		@Self BFTNode self,
 		Universe universe,
 		AddressBook addressBook,
-		MessageCentral messageCentral
+		MessageCentral messageCentral,
+		CompactConsensusEventCodec codec
 	) {
 		this.magic = universe.getMagic();
 		this.self = Objects.requireNonNull(self);
 		this.addressBook = Objects.requireNonNull(addressBook);
 		this.messageCentral = Objects.requireNonNull(messageCentral);
+		this.codec = Objects.requireNonNull(codec);
 		this.localMessages = PublishSubject.create();
 	}
 
 	@Override
 	public Observable<ConsensusEvent> bftEvents() {
 		return Observable.<ConsensusEvent>create(emitter -> {
-			MessageListener<ConsensusEventMessage> listener = (src, msg) -> emitter.onNext(msg.getConsensusMessage());
+			MessageListener<ConsensusEventMessage> listener = (src, msg) -> {
+				BFTNode sender = BFTNode.create(src.getSystem().getKey());
+				this.codec.decode(msg, sender).ifPresent(emitter::onNext);
+			};
 			this.messageCentral.addListener(ConsensusEventMessage.class, listener);
 			emitter.setCancellable(() -> this.messageCentral.removeListener(listener));
-		}).mergeWith(localMessages.observeOn(Schedulers.io()));
+		}).mergeWith(this.codec.deferredEvents()).mergeWith(localMessages.observeOn(Schedulers.io()));
 	}
 
 	@Override
@@ -88,8 +93,7 @@ public final class MessageCentralBFTNetwork implements ProposalBroadcaster, BFTE
 			if (this.self.equals(node)) {
 				this.localMessages.onNext(proposal);
 			} else {
-				ConsensusEventMessage message = new ConsensusEventMessage(this.magic, proposal);
-				send(message, node);
+				send(proposal, node);
 			}
 		}
 	}
@@ -102,18 +106,19 @@ public final class MessageCentralBFTNetwork implements ProposalBroadcaster, BFTE
 		if (this.self.equals(receiver)) {
 			this.localMessages.onNext(vote);
 		} else {
-			ConsensusEventMessage message = new ConsensusEventMessage(this.magic, vote);
-			send(message, receiver);
+			send(vote, receiver);
 		}
 	}
 
-	private boolean send(Message message, BFTNode recipient) {
+	private boolean send(ConsensusEvent event, BFTNode recipient) {
 		Optional<PeerWithSystem> peer = this.addressBook.peer(recipient.getKey().euid());
 
 		if (!peer.isPresent()) {
 			log.error("{}: Peer {} not present", this.self, recipient);
 			return false;
 		} else {
+			// Only encode once the peer is known to be present, as the encoding depends on what was sent before
+			ConsensusEventMessage message = this.codec.encode(this.magic, event, recipient);
 			this.messageCentral.send(peer.get(), message);
 			return true;
 		}
@@ -17,7 +17,12 @@
 
 package com.radixdlt.middleware2.network;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.radixdlt.consensus.Command;
 import com.radixdlt.consensus.bft.BFTNode;
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
 import com.radixdlt.environment.RemoteEventDispatcher;
 import com.radixdlt.environment.rx.RemoteEvent;
 import com.radixdlt.ledger.DtoLedgerHeaderAndProof;
@@ -28,25 +33,43 @@ import com.radixdlt.ledger.DtoCommandsAndProof;
 import com.radixdlt.universe.Universe;
 import io.reactivex.rxjava3.core.Observable;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.inject.Inject;
 
 /**
- * Network interface for syncing committed state using the MessageCentral
+ * Network interface for syncing committed state using the MessageCentral.
+ * <p>
+ * Sync responses too large to fit comfortably in a single message are sent
+ * as a sequence of {@link SyncResponseChunkMessage}s, each serialized
+ * independently, and reassembled by the receiver.
  */
 public final class MessageCentralLedgerSync {
+	// Maximum estimated size of commands in a single sync response message.
+	// Leaves room within the transport's maximum packet size for proofs and encoding overhead.
+	@VisibleForTesting
+	static final int MAX_CHUNK_BYTES = 512 * 1024;
+	// Estimated encoding overhead per command
+	private static final int COMMAND_OVERHEAD_BYTES = 8;
+
 	private final int magic;
 	private final MessageCentral messageCentral;
 	private final AddressBook addressBook;
+	private final SystemCounters counters;
+	private final SyncResponseAssembler assembler;
+	private final AtomicLong streamCounter = new AtomicLong();
 
 	@Inject
 	public MessageCentralLedgerSync(
 		Universe universe,
 		AddressBook addressBook,
-		MessageCentral messageCentral
+		MessageCentral messageCentral,
+		SystemCounters counters
 	) {
 		this.magic = universe.getMagic();
 		this.addressBook = addressBook;
 		this.messageCentral = Objects.requireNonNull(messageCentral);
+		this.counters = Objects.requireNonNull(counters);
+		this.assembler = new SyncResponseAssembler(counters);
 	}
 
 	public Observable<RemoteEvent<DtoCommandsAndProof>> syncResponses() {
@@ -57,8 +80,19 @@ public final class MessageCentralLedgerSync {
 					emitter.onNext(RemoteEvent.create(node, msg.getCommands(), DtoCommandsAndProof.class));
 				}
 			};
+			MessageListener<SyncResponseChunkMessage> chunkListener = (src, msg) -> {
+				if (src.hasSystem()) {
+					BFTNode node = BFTNode.create(src.getSystem().getKey());
+					this.assembler.add(node, msg)
+						.ifPresent(commands -> emitter.onNext(RemoteEvent.create(node, commands, DtoCommandsAndProof.class)));
+				}
+			};
 			this.messageCentral.addListener(SyncResponseMessage.class, listener);
-			emitter.setCancellable(() -> this.messageCentral.removeListener(listener));
+			this.messageCentral.addListener(SyncResponseChunkMessage.class, chunkListener);
+			emitter.setCancellable(() -> {
+				this.messageCentral.removeListener(listener);
+				this.messageCentral.removeListener(chunkListener);
+			});
 		});
 	}
 
@@ -96,9 +130,49 @@ public final class MessageCentralLedgerSync {
 	private void sendSyncResponse(BFTNode node, DtoCommandsAndProof commands) {
 		addressBook.peer(node.getKey().euid()).ifPresent(peer -> {
 			if (peer.hasSystem()) {
-				final SyncResponseMessage syncResponseMessage = new SyncResponseMessage(this.magic, commands);
-				this.messageCentral.send(peer, syncResponseMessage);
+				final ImmutableList<ImmutableList<Command>> chunks = chunk(commands.getCommands(), MAX_CHUNK_BYTES);
+				if (chunks.size() <= 1) {
+					final SyncResponseMessage syncResponseMessage = new SyncResponseMessage(this.magic, commands);
+					this.messageCentral.send(peer, syncResponseMessage);
+				} else {
+					final long stream = this.streamCounter.incrementAndGet();
+					final int count = chunks.size();
+					for (int i = 0; i < count; i++) {
+						final SyncResponseChunkMessage chunkMessage = new SyncResponseChunkMessage(
+							this.magic,
+							stream,
+							i,
+							count,
+							chunks.get(i),
+							i == 0 ? commands.getHead() : null,
+							i == 0 ? commands.getTail() : null
+						);
+						this.messageCentral.send(peer, chunkMessage);
+					}
+					this.counters.add(CounterType.SYNC_RESPONSE_CHUNKS_SENT, count);
+				}
 			}
 		});
 	}
+
+	@VisibleForTesting
+	static ImmutableList<ImmutableList<Command>> chunk(ImmutableList<Command> commands, int maxChunkBytes) {
+		if (commands == null || commands.isEmpty()) {
+			return ImmutableList.of();
+		}
+		final ImmutableList.Builder<ImmutableList<Command>> chunks = ImmutableList.builder();
+		int start = 0;
+		long chunkBytes = 0L;
+		for (int i = 0; i < commands.size(); i++) {
+			final long commandBytes = (long) commands.get(i).getPayload().length + COMMAND_OVERHEAD_BYTES;
+			if (i > start && chunkBytes + commandBytes > maxChunkBytes) {
+				chunks.add(commands.subList(start, i));
+				start = i;
+				chunkBytes = 0L;
+			}
+			chunkBytes += commandBytes;
+		}
+		chunks.add(commands.subList(start, commands.size()));
+		return chunks.build();
+	}
 }
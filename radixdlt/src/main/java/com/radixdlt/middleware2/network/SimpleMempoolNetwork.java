@@ -17,13 +17,37 @@
 
 package com.radixdlt.middleware2.network;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
 import com.radixdlt.consensus.Command;
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.crypto.Hasher;
 import com.radixdlt.mempool.MempoolNetworkRx;
 import com.radixdlt.mempool.MempoolNetworkTx;
+import com.radixdlt.mempool.messages.MempoolAnnounceMessage;
+import com.radixdlt.mempool.messages.MempoolCommandsMessage;
+import com.radixdlt.mempool.messages.MempoolFetchMessage;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
+import javax.annotation.concurrent.GuardedBy;
 import javax.inject.Inject;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.radix.universe.system.LocalSystem;
 
 import com.radixdlt.identifiers.EUID;
@@ -31,6 +55,7 @@ import com.radixdlt.mempool.messages.MempoolAtomAddedMessage;
 import com.radixdlt.network.addressbook.AddressBook;
 import com.radixdlt.network.addressbook.Peer;
 import com.radixdlt.network.addressbook.PeerWithSystem;
+import com.radixdlt.network.TimeSupplier;
 import com.radixdlt.network.messaging.MessageCentral;
 import com.radixdlt.universe.Universe;
 
@@ -38,43 +63,115 @@ import io.reactivex.rxjava3.core.Observable;
 import io.reactivex.rxjava3.subjects.PublishSubject;
 
 /**
- * Overly simplistic network implementation that does absolutely nothing right now.
+ * Inventory based mempool gossip.
+ * <p>
+ * Rather than pushing full commands to every peer, hashes of commands added to
+ * the local mempool are batched and announced to a random subset of peers.
+ * Peers fetch only those commands they have not already seen, and relay them
+ * in turn once the command has been accepted into their own mempool.  Only
+ * commands which were fetched from the sending peer are accepted, and fetches
+ * which are not answered in time are retried from other peers that announced
+ * the same command.
+ * <p>
+ * Full commands received via the legacy {@link MempoolAtomAddedMessage} are
+ * still accepted.
  */
 public class SimpleMempoolNetwork implements MempoolNetworkRx, MempoolNetworkTx {
+	private static final Logger log = LogManager.getLogger();
+
+	// Number of peers each batch of hashes is announced to
+	static final int FANOUT = 8;
+	// Maximum number of hashes in a single announcement
+	static final int MAX_BATCH_SIZE = 256;
+	// Maximum time an announcement is delayed to allow batching
+	static final long ANNOUNCE_DELAY_MS = 100L;
+	// Time after which an unanswered fetch may be retried from another peer
+	static final long FETCH_TIMEOUT_MS = 2_000L;
+	// Number of hashes remembered for duplicate suppression
+	static final int MAX_KNOWN = 65_536;
+	// Number of commands retained for answering fetches
+	static final int MAX_RETAINED = 4_096;
+	// Maximum number of outstanding fetches, beyond which the oldest are dropped
+	static final int MAX_IN_FLIGHT = 4_096;
+
 	private final PeerWithSystem localPeer;
 	private final int magic;
 	private final AddressBook addressBook;
 	private final MessageCentral messageCentral;
+	private final Hasher hasher;
+	private final SystemCounters counters;
+	private final ScheduledExecutorService ses;
+	private final TimeSupplier timeSupplier;
 
 	private final PublishSubject<Command> commands;
 
+	private final Object lock = new Object();
+	@GuardedBy("lock")
+	private final Map<HashCode, Boolean> known = lruMap(MAX_KNOWN);
+	@GuardedBy("lock")
+	private final Map<HashCode, Command> retained = lruMap(MAX_RETAINED);
+	@GuardedBy("lock")
+	private final LinkedHashMap<HashCode, PendingFetch> inFlight = new LinkedHashMap<>();
+	@GuardedBy("lock")
+	private boolean retryScheduled;
+	@GuardedBy("lock")
+	private final List<HashCode> pendingAnnouncements = new ArrayList<>();
+	@GuardedBy("lock")
+	private boolean announceScheduled;
+
 	@Inject
 	public SimpleMempoolNetwork(
 		LocalSystem system,
 		Universe universe,
 		AddressBook addressBook,
-		MessageCentral messageCentral
+		MessageCentral messageCentral,
+		Hasher hasher,
+		SystemCounters counters,
+		ScheduledExecutorService ses,
+		TimeSupplier timeSupplier
 	) {
 		this.magic = universe.getMagic();
 		this.addressBook = Objects.requireNonNull(addressBook);
 		this.messageCentral = Objects.requireNonNull(messageCentral);
+		this.hasher = Objects.requireNonNull(hasher);
+		this.counters = Objects.requireNonNull(counters);
+		this.ses = Objects.requireNonNull(ses);
+		this.timeSupplier = Objects.requireNonNull(timeSupplier);
 		this.localPeer = new PeerWithSystem(system);
 
 		this.commands = PublishSubject.create();
 
 		// TODO: Should be handled in start()/stop() once we have lifetimes sorted out
 		this.messageCentral.addListener(MempoolAtomAddedMessage.class, this::handleMempoolAtomMessage);
+		this.messageCentral.addListener(MempoolAnnounceMessage.class, this::handleMempoolAnnounceMessage);
+		this.messageCentral.addListener(MempoolFetchMessage.class, this::handleMempoolFetchMessage);
+		this.messageCentral.addListener(MempoolCommandsMessage.class, this::handleMempoolCommandsMessage);
 	}
 
-
+	/**
+	 * Queues the hash of the specified command for announcement to peers.
+	 * Called once the command has been accepted into the local mempool, so
+	 * this is also the point at which commands received from peers are relayed.
+	 *
+	 * @param command the command to announce
+	 */
 	@Override
 	public void sendMempoolSubmission(Command command) {
-		MempoolAtomAddedMessage message = new MempoolAtomAddedMessage(this.magic, command);
-		final EUID self = this.localPeer.getNID();
-		this.addressBook.peers()
-			.filter(Peer::hasSystem) // Only peers with systems (and therefore transports)
-			.filter(p -> !self.equals(p.getNID())) // Exclude self, already sent
-			.forEach(peer -> this.messageCentral.send(peer, message));
+		final HashCode hash = hash(command);
+		final boolean flushNow;
+		synchronized (this.lock) {
+			this.known.put(hash, Boolean.TRUE);
+			this.retained.put(hash, command);
+			this.pendingAnnouncements.add(hash);
+			flushNow = this.pendingAnnouncements.size() >= MAX_BATCH_SIZE;
+			if (!flushNow && !this.announceScheduled) {
+				this.announceScheduled = true;
+				this.ses.schedule(this::flushAnnouncements, ANNOUNCE_DELAY_MS, TimeUnit.MILLISECONDS);
+			}
+		}
+		if (flushNow) {
+			flushAnnouncements();
+		}
 	}
 
 	@Override
@@ -82,7 +179,249 @@ public class SimpleMempoolNetwork implements MempoolNetworkRx, MempoolNetworkTx
 		return this.commands;
 	}
 
+	void flushAnnouncements() {
+		final ImmutableList<HashCode> hashes;
+		synchronized (this.lock) {
+			this.announceScheduled = false;
+			if (this.pendingAnnouncements.isEmpty()) {
+				return;
+			}
+			hashes = ImmutableList.copyOf(this.pendingAnnouncements);
+			this.pendingAnnouncements.clear();
+		}
+
+		final List<Peer> peers = selectPeers();
+		if (peers.isEmpty()) {
+			return;
+		}
+		final MempoolAnnounceMessage message = new MempoolAnnounceMessage(this.magic, hashes);
+		peers.forEach(peer -> this.messageCentral.send(peer, message));
+		this.counters.add(CounterType.MEMPOOL_GOSSIP_ANNOUNCED, hashes.size());
+	}
+
+	private List<Peer> selectPeers() {
+		final EUID self = this.localPeer.getNID();
+		final List<Peer> peers = this.addressBook.peers()
+			.filter(Peer::hasSystem) // Only peers with systems (and therefore transports)
+			.filter(p -> !self.equals(p.getNID())) // Exclude self, already sent
+			.collect(Collectors.toList());
+		if (peers.size() <= FANOUT) {
+			return peers;
+		}
+		Collections.shuffle(peers);
+		return peers.subList(0, FANOUT);
+	}
+
+	private void handleMempoolAnnounceMessage(Peer source, MempoolAnnounceMessage message) {
+		if (message.hashes().size() > MAX_BATCH_SIZE) {
+			log.warn("Ignoring announcement of {} hashes from {}", message.hashes().size(), source);
+			return;
+		}
+		final long now = this.timeSupplier.currentTime();
+		final ImmutableList.Builder<HashCode> toFetch = ImmutableList.builder();
+		int suppressed = 0;
+		long bytesSaved = 0L;
+		synchronized (this.lock) {
+			for (HashCode hash : message.hashes()) {
+				if (this.known.containsKey(hash)) {
+					suppressed += 1;
+					// Only count payloads of known size, which would have been pushed in full
+					final Command command = this.retained.get(hash);
+					if (command != null) {
+						bytesSaved += Math.max(0L, payloadSize(command) - hash.bits() / Byte.SIZE);
+					}
+					continue;
+				}
+				final PendingFetch fetch = this.inFlight.get(hash);
+				if (fetch != null) {
+					// Already being fetched, but remember this peer in case the fetch is not answered
+					fetch.addAnnouncer(source);
+					suppressed += 1;
+				} else {
+					if (this.inFlight.size() >= MAX_IN_FLIGHT) {
+						// Drop the oldest fetch, which can be made again on a later announcement
+						final Iterator<HashCode> oldest = this.inFlight.keySet().iterator();
+						oldest.next();
+						oldest.remove();
+					}
+					this.inFlight.put(hash, new PendingFetch(source, now));
+					toFetch.add(hash);
+				}
+			}
+			if (!this.inFlight.isEmpty()) {
+				scheduleRetry(FETCH_TIMEOUT_MS);
+			}
+		}
+		if (suppressed > 0) {
+			this.counters.add(CounterType.MEMPOOL_GOSSIP_DUPLICATES_SUPPRESSED, suppressed);
+		}
+		if (bytesSaved > 0L) {
+			this.counters.add(CounterType.MEMPOOL_GOSSIP_BYTES_SAVED, bytesSaved);
+		}
+		final ImmutableList<HashCode> hashes = toFetch.build();
+		if (!hashes.isEmpty()) {
+			this.messageCentral.send(source, new MempoolFetchMessage(this.magic, hashes));
+		}
+	}
+
+	private void handleMempoolFetchMessage(Peer source, MempoolFetchMessage message) {
+		if (message.hashes().size() > MAX_BATCH_SIZE) {
+			log.warn("Ignoring fetch of {} hashes from {}", message.hashes().size(), source);
+			return;
+		}
+		final ImmutableList.Builder<Command> found = ImmutableList.builder();
+		synchronized (this.lock) {
+			for (HashCode hash : message.hashes()) {
+				final Command command = this.retained.get(hash);
+				if (command != null) {
+					found.add(command);
+				}
+			}
+		}
+		final ImmutableList<Command> response = found.build();
+		if (!response.isEmpty()) {
+			this.messageCentral.send(source, new MempoolCommandsMessage(this.magic, response));
+		}
+	}
+
+	private void handleMempoolCommandsMessage(Peer source, MempoolCommandsMessage message) {
+		for (Command command : message.commands()) {
+			final HashCode hash = hash(command);
+			final boolean requested;
+			synchronized (this.lock) {
+				final PendingFetch fetch = this.inFlight.get(hash);
+				requested = fetch != null && fetch.wasRequestedFrom(source);
+				if (requested) {
+					this.inFlight.remove(hash);
+				}
+			}
+			if (!requested) {
+				this.counters.increment(CounterType.MEMPOOL_GOSSIP_UNSOLICITED);
+			} else if (receive(hash)) {
+				this.counters.increment(CounterType.MEMPOOL_GOSSIP_FETCHED);
+				this.commands.onNext(command);
+			}
+		}
+	}
+
 	private void handleMempoolAtomMessage(Peer source, MempoolAtomAddedMessage message) {
-		this.commands.onNext(message.command());
+		final Command command = message.command();
+		if (receive(hash(command))) {
+			this.commands.onNext(command);
+		}
+	}
+
+	private boolean receive(HashCode hash) {
+		synchronized (this.lock) {
+			if (this.known.put(hash, Boolean.TRUE) == null) {
+				return true;
+			}
+		}
+		this.counters.increment(CounterType.MEMPOOL_GOSSIP_DUPLICATES_SUPPRESSED);
+		return false;
+	}
+
+	/**
+	 * Retries fetches which have not been answered within {@link #FETCH_TIMEOUT_MS}
+	 * from the next peer that announced the same command.  Fetches with no other
+	 * announcers are dropped, so the command can be fetched again on its next announcement.
+	 */
+	void retryFetches() {
+		final long now = this.timeSupplier.currentTime();
+		final Map<Peer, List<HashCode>> retries = new LinkedHashMap<>();
+		synchronized (this.lock) {
+			this.retryScheduled = false;
+			final List<Map.Entry<HashCode, PendingFetch>> retried = new ArrayList<>();
+			final Iterator<Map.Entry<HashCode, PendingFetch>> i = this.inFlight.entrySet().iterator();
+			while (i.hasNext()) {
+				final Map.Entry<HashCode, PendingFetch> entry = i.next();
+				final PendingFetch fetch = entry.getValue();
+				// Entries are in order of request time
+				if (now - fetch.requestTime < FETCH_TIMEOUT_MS) {
+					break;
+				}
+				i.remove();
+				final Peer next = fetch.nextAnnouncer(now);
+				if (next != null) {
+					retried.add(entry);
+					retries.computeIfAbsent(next, p -> new ArrayList<>()).add(entry.getKey());
+				}
+			}
+			// Re-insert at the end to keep entries in order of request time
+			retried.forEach(entry -> this.inFlight.put(entry.getKey(), entry.getValue()));
+			if (!this.inFlight.isEmpty()) {
+				final long oldest = this.inFlight.values().iterator().next().requestTime;
+				scheduleRetry(Math.max(0L, oldest + FETCH_TIMEOUT_MS - now));
+			}
+		}
+		retries.forEach((peer, hashes) -> {
+			this.messageCentral.send(peer, new MempoolFetchMessage(this.magic, ImmutableList.copyOf(hashes)));
+			this.counters.add(CounterType.MEMPOOL_GOSSIP_FETCH_RETRIES, hashes.size());
+		});
+	}
+
+	@GuardedBy("lock")
+	private void scheduleRetry(long delayMs) {
+		if (!this.retryScheduled) {
+			this.retryScheduled = true;
+			this.ses.schedule(this::retryFetches, delayMs, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private HashCode hash(Command command) {
+		return this.hasher.hashBytes(command.getPayload());
+	}
+
+	private static long payloadSize(Command command) {
+		final byte[] payload = command.getPayload();
+		return payload == null ? 0L : payload.length;
+	}
+
+	/**
+	 * A fetch of a command in progress, together with other peers that
+	 * announced the same command and can be asked if the fetch is not answered.
+	 */
+	private static final class PendingFetch {
+		private final Set<EUID> requestedFrom = new HashSet<>();
+		private final Deque<Peer> announcers = new ArrayDeque<>();
+		private long requestTime;
+
+		PendingFetch(Peer peer, long requestTime) {
+			this.requestedFrom.add(peer.getNID());
+			this.requestTime = requestTime;
+		}
+
+		void addAnnouncer(Peer peer) {
+			if (this.announcers.size() < FANOUT
+				&& !this.requestedFrom.contains(peer.getNID())
+				&& this.announcers.stream().noneMatch(p -> p.getNID().equals(peer.getNID()))) {
+				this.announcers.add(peer);
+			}
+		}
+
+		Peer nextAnnouncer(long now) {
+			final Peer next = this.announcers.poll();
+			if (next != null) {
+				this.requestedFrom.add(next.getNID());
+				this.requestTime = now;
+			}
+			return next;
+		}
+
+		// Late answers from peers asked earlier are still accepted
+		boolean wasRequestedFrom(Peer peer) {
+			return this.requestedFrom.contains(peer.getNID());
+		}
+	}
+
+	private static <K, V> Map<K, V> lruMap(int maxSize) {
+		return new LinkedHashMap<K, V>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+				return size() > maxSize;
+			}
+		};
 	}
 }
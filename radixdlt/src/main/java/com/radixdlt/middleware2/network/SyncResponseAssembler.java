@@ -0,0 +1,200 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.middleware2.network;
+
+import com.google.common.collect.ImmutableList;
+import com.radixdlt.consensus.Command;
+import com.radixdlt.consensus.bft.BFTNode;
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.ledger.DtoCommandsAndProof;
+import com.radixdlt.ledger.DtoLedgerHeaderAndProof;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Reassembles sync responses sent as a sequence of {@link SyncResponseChunkMessage}s.
+ * <p>
+ * Chunks are routed independently and may arrive in any order, so they are placed
+ * by index.  At most one partial response is held per sender, and a chunk of a
+ * different stream from the same sender replaces it.  Chunks are checked as they
+ * arrive so that streams which carry more commands than the head and tail proofs
+ * allow, or exceed the memory budget, are dropped without waiting for the
+ * remaining chunks.
+ */
+@ThreadSafe
+final class SyncResponseAssembler {
+	private static final Logger log = LogManager.getLogger();
+
+	// Maximum number of senders with partial responses
+	static final int MAX_STREAMS = 4;
+	// Maximum total payload size of a reassembled response
+	static final long MAX_STREAM_BYTES = 16L * 1024L * 1024L;
+	// Maximum number of chunks in a response, each chunk holds at least one command of a sync batch
+	static final int MAX_STREAM_CHUNKS = 1024;
+
+	private static final class PartialResponse {
+		private final long stream;
+		private final int count;
+		private final List<ImmutableList<Command>> chunks;
+		private DtoLedgerHeaderAndProof head;
+		private DtoLedgerHeaderAndProof tail;
+		private int receivedChunks;
+		private long receivedCommands;
+		private long receivedBytes;
+
+		private PartialResponse(long stream, int count) {
+			this.stream = stream;
+			this.count = count;
+			this.chunks = new ArrayList<>(Collections.nCopies(count, null));
+		}
+
+		private boolean hasProofs() {
+			return this.head != null;
+		}
+
+		private long expectedCommands() {
+			return stateVersion(this.tail) - stateVersion(this.head);
+		}
+	}
+
+	private final SystemCounters counters;
+	// Insertion ordered, so the oldest stream is dropped first when full
+	private final LinkedHashMap<BFTNode, PartialResponse> partialResponses = new LinkedHashMap<>();
+
+	SyncResponseAssembler(SystemCounters counters) {
+		this.counters = Objects.requireNonNull(counters);
+	}
+
+	/**
+	 * Adds a chunk received from the specified sender.
+	 *
+	 * @param sender the node that sent the chunk
+	 * @param chunk the received chunk
+	 * @return the complete response, if this was the last missing chunk of a valid stream
+	 */
+	synchronized Optional<DtoCommandsAndProof> add(BFTNode sender, SyncResponseChunkMessage chunk) {
+		this.counters.increment(CounterType.SYNC_RESPONSE_CHUNKS_RECEIVED);
+
+		if (chunk.getCount() <= 0 || chunk.getCount() > MAX_STREAM_CHUNKS
+			|| chunk.getIndex() < 0 || chunk.getIndex() >= chunk.getCount()) {
+			return drop(sender, chunk, "invalid index");
+		}
+
+		PartialResponse partial = this.partialResponses.get(sender);
+		if (partial == null || partial.stream != chunk.getStream()) {
+			if (partial != null) {
+				// Superseded by a newer response from the same sender
+				this.partialResponses.remove(sender);
+				this.counters.increment(CounterType.SYNC_RESPONSE_CHUNKS_STREAMS_DROPPED);
+			}
+			partial = new PartialResponse(chunk.getStream(), chunk.getCount());
+			this.partialResponses.put(sender, partial);
+			evictOldest();
+		} else if (partial.count != chunk.getCount()) {
+			return drop(sender, chunk, "inconsistent chunk count");
+		}
+
+		if (partial.chunks.get(chunk.getIndex()) != null) {
+			// Duplicate delivery, keep the chunk already received
+			return Optional.empty();
+		}
+
+		if (chunk.getIndex() == 0) {
+			if (chunk.getHead() == null || chunk.getTail() == null) {
+				return drop(sender, chunk, "missing proofs");
+			}
+			partial.head = chunk.getHead();
+			partial.tail = chunk.getTail();
+			if (partial.expectedCommands() < 0) {
+				return drop(sender, chunk, "tail before head");
+			}
+		}
+
+		partial.chunks.set(chunk.getIndex(), chunk.getCommands());
+		partial.receivedChunks += 1;
+		partial.receivedCommands += chunk.getCommands().size();
+		for (Command command : chunk.getCommands()) {
+			partial.receivedBytes += command.getPayload().length;
+		}
+		if (partial.hasProofs() && partial.receivedCommands > partial.expectedCommands()) {
+			return drop(sender, chunk, "too many commands");
+		}
+		if (partial.receivedBytes > MAX_STREAM_BYTES) {
+			return drop(sender, chunk, "too large");
+		}
+
+		if (partial.receivedChunks < partial.count) {
+			return Optional.empty();
+		}
+		this.partialResponses.remove(sender);
+		if (partial.receivedCommands != partial.expectedCommands()) {
+			this.counters.increment(CounterType.SYNC_RESPONSE_CHUNKS_STREAMS_DROPPED);
+			log.warn("Dropping sync response {} from {}: expected {} commands but received {}",
+				partial.stream, sender, partial.expectedCommands(), partial.receivedCommands);
+			return Optional.empty();
+		}
+		final ImmutableList.Builder<Command> commands = ImmutableList.builder();
+		for (ImmutableList<Command> chunkCommands : partial.chunks) {
+			commands.addAll(chunkCommands);
+		}
+		return Optional.of(new DtoCommandsAndProof(commands.build(), partial.head, partial.tail));
+	}
+
+	/**
+	 * @return the number of senders with partially received responses
+	 */
+	synchronized int pending() {
+		return this.partialResponses.size();
+	}
+
+	// Requires lock to be held
+	private Optional<DtoCommandsAndProof> drop(BFTNode sender, SyncResponseChunkMessage chunk, String reason) {
+		PartialResponse partial = this.partialResponses.get(sender);
+		if (partial != null && partial.stream == chunk.getStream()) {
+			this.partialResponses.remove(sender);
+		}
+		this.counters.increment(CounterType.SYNC_RESPONSE_CHUNKS_STREAMS_DROPPED);
+		log.warn("Dropping sync response {} from {}: {}", chunk, sender, reason);
+		return Optional.empty();
+	}
+
+	// Requires lock to be held
+	private void evictOldest() {
+		Iterator<Map.Entry<BFTNode, PartialResponse>> i = this.partialResponses.entrySet().iterator();
+		while (this.partialResponses.size() > MAX_STREAMS && i.hasNext()) {
+			Map.Entry<BFTNode, PartialResponse> eldest = i.next();
+			i.remove();
+			this.counters.increment(CounterType.SYNC_RESPONSE_CHUNKS_STREAMS_DROPPED);
+			log.warn("Dropping sync response {} from {}: too many partial responses", eldest.getValue().stream, eldest.getKey());
+		}
+	}
+
+	private static long stateVersion(DtoLedgerHeaderAndProof proof) {
+		return proof.getLedgerHeader().getAccumulatorState().getStateVersion();
+	}
+}
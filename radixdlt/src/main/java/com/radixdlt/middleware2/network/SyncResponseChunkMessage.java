@@ -0,0 +1,148 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.middleware2.network;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import com.radixdlt.consensus.Command;
+import com.radixdlt.ledger.DtoLedgerHeaderAndProof;
+import com.radixdlt.serialization.DsonOutput;
+import com.radixdlt.serialization.DsonOutput.Output;
+import com.radixdlt.serialization.SerializerId2;
+import org.radix.network.messaging.Message;
+
+import java.util.Objects;
+
+/**
+ * One of a sequence of messages making up a sync response too large to
+ * be sent as a single {@link SyncResponseMessage}.
+ * <p>
+ * The head and tail proofs are only included in the first chunk of a stream.
+ */
+@SerializerId2("message.sync.response_chunk")
+public final class SyncResponseChunkMessage extends Message {
+	@JsonProperty("stream")
+	@DsonOutput(Output.ALL)
+	private final long stream;
+
+	@JsonProperty("index")
+	@DsonOutput(Output.ALL)
+	private final int index;
+
+	@JsonProperty("count")
+	@DsonOutput(Output.ALL)
+	private final int count;
+
+	@JsonProperty("commands")
+	@DsonOutput(Output.ALL)
+	private final ImmutableList<Command> commands;
+
+	@JsonProperty("head")
+	@DsonOutput(Output.ALL)
+	private final DtoLedgerHeaderAndProof head;
+
+	@JsonProperty("tail")
+	@DsonOutput(Output.ALL)
+	private final DtoLedgerHeaderAndProof tail;
+
+	SyncResponseChunkMessage() {
+		// Serializer only
+		super(0);
+		this.stream = 0L;
+		this.index = 0;
+		this.count = 0;
+		this.commands = null;
+		this.head = null;
+		this.tail = null;
+	}
+
+	public SyncResponseChunkMessage(
+		int magic,
+		long stream,
+		int index,
+		int count,
+		ImmutableList<Command> commands,
+		DtoLedgerHeaderAndProof head,
+		DtoLedgerHeaderAndProof tail
+	) {
+		super(magic);
+		if (index < 0 || index >= count) {
+			throw new IllegalArgumentException(String.format("Invalid chunk index %s of %s", index, count));
+		}
+		this.stream = stream;
+		this.index = index;
+		this.count = count;
+		this.commands = Objects.requireNonNull(commands);
+		this.head = head;
+		this.tail = tail;
+	}
+
+	public long getStream() {
+		return stream;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public ImmutableList<Command> getCommands() {
+		return commands == null ? ImmutableList.of() : commands;
+	}
+
+	public DtoLedgerHeaderAndProof getHead() {
+		return head;
+	}
+
+	public DtoLedgerHeaderAndProof getTail() {
+		return tail;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s{stream=%s chunk=%s/%s commands=%s}",
+			getClass().getSimpleName(), stream, index + 1, count, commands == null ? 0 : commands.size());
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		SyncResponseChunkMessage that = (SyncResponseChunkMessage) o;
+		return stream == that.stream
+				&& index == that.index
+				&& count == that.count
+				&& Objects.equals(commands, that.commands)
+				&& Objects.equals(head, that.head)
+				&& Objects.equals(tail, that.tail)
+				&& Objects.equals(getTimestamp(), that.getTimestamp())
+				&& Objects.equals(getMagic(), that.getMagic());
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(stream, index, count, commands, head, tail, getTimestamp(), getMagic());
+	}
+}
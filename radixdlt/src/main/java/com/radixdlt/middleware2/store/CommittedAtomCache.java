@@ -0,0 +1,259 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.middleware2.store;
+
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.identifiers.AID;
+import com.radixdlt.middleware2.ClientAtom;
+import com.radixdlt.statecomputer.ClientAtomToBinaryConverter;
+import com.radixdlt.store.LedgerEntry;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A memory bounded, least recently used cache of decoded committed atoms,
+ * keyed by atom ID and validated against the state version of the ledger entry.
+ * <p>
+ * The ledger database is configured not to cache record data, so without this
+ * cache every read of a recently committed atom requires both a log read and
+ * two levels of deserialization.  Readers that only have an atom ID should use
+ * {@link #get(AID)} before reading the store, so that a hit avoids the log read.
+ */
+@ThreadSafe
+public final class CommittedAtomCache {
+	// Rough ratio of in-memory size of decoded objects to serialized size
+	private static final int DECODED_SIZE_FACTOR = 4;
+
+	/**
+	 * A decoded committed atom.
+	 */
+	public static final class CachedAtom {
+		private final long stateVersion;
+		private final StoredCommittedCommand committedCommand;
+		private final ClientAtom clientAtom;
+		private final long size;
+
+		private CachedAtom(long stateVersion, StoredCommittedCommand committedCommand, ClientAtom clientAtom, long size) {
+			this.stateVersion = stateVersion;
+			this.committedCommand = committedCommand;
+			this.clientAtom = clientAtom;
+			this.size = size;
+		}
+
+		public long getStateVersion() {
+			return this.stateVersion;
+		}
+
+		public StoredCommittedCommand getCommittedCommand() {
+			return this.committedCommand;
+		}
+
+		public ClientAtom getClientAtom() {
+			return this.clientAtom;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s[%s %s]", getClass().getSimpleName(), this.stateVersion, this.clientAtom.getAID());
+		}
+	}
+
+	private final long maxBytes;
+	private final CommandToBinaryConverter commandToBinaryConverter;
+	private final ClientAtomToBinaryConverter clientAtomToBinaryConverter;
+	private final SystemCounters counters;
+
+	private final Object lock = new Object();
+	// Access ordered, so iteration order is least recently used first
+	private final LinkedHashMap<AID, CachedAtom> cache = new LinkedHashMap<>(16, 0.75f, true);
+	private long bytes;
+
+	/**
+	 * Creates a new cache.
+	 *
+	 * @param maxBytes estimated maximum size of cached atoms in bytes, zero or less disables caching
+	 * @param commandToBinaryConverter converter used to decode ledger entries
+	 * @param clientAtomToBinaryConverter converter used to decode atoms
+	 * @param counters counters for cache statistics
+	 */
+	public CommittedAtomCache(
+		long maxBytes,
+		CommandToBinaryConverter commandToBinaryConverter,
+		ClientAtomToBinaryConverter clientAtomToBinaryConverter,
+		SystemCounters counters
+	) {
+		this.maxBytes = maxBytes;
+		this.commandToBinaryConverter = Objects.requireNonNull(commandToBinaryConverter);
+		this.clientAtomToBinaryConverter = Objects.requireNonNull(clientAtomToBinaryConverter);
+		this.counters = Objects.requireNonNull(counters);
+	}
+
+	/**
+	 * Returns the decoded atom for the specified ledger entry, decoding and
+	 * caching it if it is not already cached.
+	 *
+	 * @param entry the ledger entry to decode
+	 * @return the decoded atom
+	 */
+	public CachedAtom get(LedgerEntry entry) {
+		final Optional<CachedAtom> cached = lookup(entry.getAID(), entry.getStateVersion());
+		if (cached.isPresent()) {
+			return cached.get();
+		}
+		final StoredCommittedCommand committedCommand = this.commandToBinaryConverter.toCommand(entry.getContent());
+		final ClientAtom clientAtom = committedCommand.getCommand().map(this.clientAtomToBinaryConverter::toAtom);
+		return put(entry, committedCommand, clientAtom);
+	}
+
+	/**
+	 * Returns the cached decoded atom for the specified atom ID, if present.
+	 * Committed atoms are immutable, so a cached atom can be returned without
+	 * first reading its ledger entry from the store.
+	 * <p>
+	 * Only hits are counted here.  On a miss the caller is expected to read the
+	 * ledger entry and decode it with {@link #get(LedgerEntry)}, which counts the miss.
+	 *
+	 * @param aid the ID of the atom to look up
+	 * @return the cached atom, or empty if the atom is not cached
+	 */
+	public Optional<CachedAtom> get(AID aid) {
+		final CachedAtom cachedAtom;
+		synchronized (this.lock) {
+			cachedAtom = this.cache.get(aid);
+		}
+		if (cachedAtom == null) {
+			return Optional.empty();
+		}
+		this.counters.increment(CounterType.LEDGER_ATOM_CACHE_HITS);
+		return Optional.of(cachedAtom);
+	}
+
+	/**
+	 * Returns the committed command for the specified ledger entry, from the cache
+	 * if present.  On a cache miss only the command is decoded, and the result is not
+	 * cached, so that sequential scans such as sync reads do not flush the cache.
+	 *
+	 * @param entry the ledger entry to decode
+	 * @return the decoded committed command
+	 */
+	public StoredCommittedCommand getCommittedCommand(LedgerEntry entry) {
+		return lookup(entry.getAID(), entry.getStateVersion())
+			.map(CachedAtom::getCommittedCommand)
+			.orElseGet(() -> this.commandToBinaryConverter.toCommand(entry.getContent()));
+	}
+
+	/**
+	 * Adds an already decoded atom to the cache, replacing any existing entry for the atom.
+	 *
+	 * @param entry the ledger entry the atom was stored as
+	 * @param committedCommand the decoded ledger entry content
+	 * @param clientAtom the decoded atom
+	 * @return the cached atom
+	 */
+	public CachedAtom put(LedgerEntry entry, StoredCommittedCommand committedCommand, ClientAtom clientAtom) {
+		final long size = (long) entry.getContent().length * DECODED_SIZE_FACTOR;
+		final CachedAtom cachedAtom = new CachedAtom(entry.getStateVersion(), committedCommand, clientAtom, size);
+		if (size > this.maxBytes) {
+			return cachedAtom;
+		}
+		synchronized (this.lock) {
+			final CachedAtom previous = this.cache.put(entry.getAID(), cachedAtom);
+			if (previous != null) {
+				this.bytes -= previous.size;
+			}
+			this.bytes += size;
+			evict();
+			updateCounters();
+		}
+		return cachedAtom;
+	}
+
+	/**
+	 * Removes the specified atom from the cache, if present.
+	 *
+	 * @param aid the ID of the atom to remove
+	 */
+	public void invalidate(AID aid) {
+		synchronized (this.lock) {
+			final CachedAtom removed = this.cache.remove(aid);
+			if (removed != null) {
+				this.bytes -= removed.size;
+				updateCounters();
+			}
+		}
+	}
+
+	/**
+	 * @return the number of atoms currently cached
+	 */
+	public int size() {
+		synchronized (this.lock) {
+			return this.cache.size();
+		}
+	}
+
+	/**
+	 * @return the estimated size in bytes of atoms currently cached
+	 */
+	public long bytes() {
+		synchronized (this.lock) {
+			return this.bytes;
+		}
+	}
+
+	private Optional<CachedAtom> lookup(AID aid, long stateVersion) {
+		final CachedAtom cachedAtom;
+		synchronized (this.lock) {
+			cachedAtom = this.cache.get(aid);
+		}
+		if (cachedAtom != null && cachedAtom.stateVersion == stateVersion) {
+			this.counters.increment(CounterType.LEDGER_ATOM_CACHE_HITS);
+			return Optional.of(cachedAtom);
+		}
+		this.counters.increment(CounterType.LEDGER_ATOM_CACHE_MISSES);
+		return Optional.empty();
+	}
+
+	// Requires lock to be held
+	private void evict() {
+		final Iterator<Map.Entry<AID, CachedAtom>> i = this.cache.entrySet().iterator();
+		while (this.bytes > this.maxBytes && i.hasNext()) {
+			this.bytes -= i.next().getValue().size;
+			i.remove();
+			this.counters.increment(CounterType.LEDGER_ATOM_CACHE_EVICTIONS);
+		}
+	}
+
+	// Requires lock to be held
+	private void updateCounters() {
+		this.counters.set(CounterType.LEDGER_ATOM_CACHE_ENTRIES, this.cache.size());
+		this.counters.set(CounterType.LEDGER_ATOM_CACHE_BYTES, this.bytes);
+	}
+
+	@Override
+	public String toString() {
+		synchronized (this.lock) {
+			return String.format("%s[%s atoms, %s/%s bytes]", getClass().getSimpleName(), this.cache.size(), this.bytes, this.maxBytes);
+		}
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.middleware2.store;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.identifiers.EUID;
+import com.radixdlt.statecomputer.CommittedAtom;
+import com.radixdlt.statecomputer.CommittedAtoms;
+import com.radixdlt.statecomputer.RadixEngineStateComputer.CommittedAtomSender;
+import com.radixdlt.statecomputer.RadixEngineStateComputer.CommittedAtomWithResult;
+import com.radixdlt.utils.Pair;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Publishes the atoms of committed transactions to a {@link CommittedAtomSender}, one
+ * event per transaction, outside of the committing thread.
+ * <p>
+ * Subscribers are expected to process batches on the publishing thread, so that a batch
+ * counts towards the backlog until it has been processed.  At most a fixed number of
+ * batches may be waiting.  Once that limit is reached, further batches are merged into a
+ * single overflow batch which is published in order once the backlog has room again, as
+ * publishing happens while committing and must never stall consensus, but subscribers
+ * must still see every committed atom.
+ */
+public final class CommittedAtomsPublisher {
+	private static final Logger log = LogManager.getLogger();
+
+	private final CommittedAtomSender committedAtomSender;
+	private final SystemCounters counters;
+	private final Executor executor;
+	private final int maxPendingBatches;
+	private final Object lock = new Object();
+	private int pendingBatches;
+	private ImmutableList.Builder<Pair<CommittedAtom, EngineAtomIndices>> overflow;
+
+	/**
+	 * Creates a new publisher.
+	 *
+	 * @param committedAtomSender the sender to publish batches to
+	 * @param counters counters for the publishing backlog
+	 * @param executor the executor to publish on, which must run tasks in submission order
+	 * @param maxPendingBatches the maximum number of batches waiting to be published
+	 */
+	public CommittedAtomsPublisher(
+		CommittedAtomSender committedAtomSender,
+		SystemCounters counters,
+		Executor executor,
+		int maxPendingBatches
+	) {
+		if (maxPendingBatches <= 0) {
+			throw new IllegalArgumentException("Maximum pending batches must be positive: " + maxPendingBatches);
+		}
+		this.committedAtomSender = Objects.requireNonNull(committedAtomSender);
+		this.counters = Objects.requireNonNull(counters);
+		this.executor = Objects.requireNonNull(executor);
+		this.maxPendingBatches = maxPendingBatches;
+	}
+
+	/**
+	 * Queues the atoms of a committed transaction for publishing, without waiting.  If the
+	 * maximum number of batches are already waiting, the atoms are merged with any other
+	 * atoms waiting for room in the backlog.
+	 *
+	 * @param committedAtoms the committed atoms with their engine indices, in commit order
+	 */
+	public void publish(ImmutableList<Pair<CommittedAtom, EngineAtomIndices>> committedAtoms) {
+		if (committedAtoms.isEmpty()) {
+			return;
+		}
+		synchronized (this.lock) {
+			// Atoms already waiting in the overflow batch were committed first, so have to be published first
+			if (this.overflow != null || this.pendingBatches >= this.maxPendingBatches) {
+				if (this.overflow == null) {
+					this.overflow = ImmutableList.builder();
+					log.warn("{} committed atom batches waiting to be published, merging further batches", this.maxPendingBatches);
+				}
+				this.overflow.addAll(committedAtoms);
+				this.counters.increment(CounterType.LEDGER_PUBLISH_MERGED_BATCHES);
+				return;
+			}
+			this.pendingBatches += 1;
+		}
+		execute(committedAtoms);
+	}
+
+	private void execute(ImmutableList<Pair<CommittedAtom, EngineAtomIndices>> committedAtoms) {
+		updateQueueSize();
+		try {
+			this.executor.execute(() -> send(committedAtoms));
+		} catch (RuntimeException e) {
+			log.error("Publishing {} committed atoms failed", committedAtoms.size(), e);
+			release();
+		}
+	}
+
+	private void send(ImmutableList<Pair<CommittedAtom, EngineAtomIndices>> committedAtoms) {
+		try {
+			final ImmutableList<CommittedAtomWithResult> batch = committedAtoms.stream()
+				.map(p -> CommittedAtoms.success(p.getFirst(), destinations(p.getSecond())))
+				.collect(ImmutableList.toImmutableList());
+			this.committedAtomSender.sendCommittedAtoms(batch);
+			this.counters.increment(CounterType.LEDGER_PUBLISH_BATCHES);
+			this.counters.add(CounterType.LEDGER_PUBLISH_ATOMS, batch.size());
+		} catch (RuntimeException e) {
+			log.error("Publishing {} committed atoms failed", committedAtoms.size(), e);
+		} finally {
+			release();
+		}
+	}
+
+	private void release() {
+		final ImmutableList<Pair<CommittedAtom, EngineAtomIndices>> merged;
+		synchronized (this.lock) {
+			if (this.overflow == null) {
+				this.pendingBatches -= 1;
+				merged = null;
+			} else {
+				// Hand the released slot straight to the overflow batch
+				merged = this.overflow.build();
+				this.overflow = null;
+				log.info("Publishing {} committed atoms merged while the backlog was full", merged.size());
+			}
+		}
+		if (merged == null) {
+			updateQueueSize();
+		} else {
+			execute(merged);
+		}
+	}
+
+	private void updateQueueSize() {
+		final long queueSize;
+		synchronized (this.lock) {
+			queueSize = this.pendingBatches + (this.overflow == null ? 0L : 1L);
+		}
+		this.counters.set(CounterType.LEDGER_PUBLISH_QUEUE_SIZE, queueSize);
+	}
+
+	private static ImmutableSet<EUID> destinations(EngineAtomIndices engineAtomIndices) {
+		return engineAtomIndices.getDuplicateIndices().stream()
+			.filter(e -> e.getPrefix() == EngineAtomIndices.IndexType.DESTINATION.getValue())
+			.map(e -> EngineAtomIndices.toEUID(e.asKey()))
+			.collect(ImmutableSet.toImmutableSet());
+	}
+}
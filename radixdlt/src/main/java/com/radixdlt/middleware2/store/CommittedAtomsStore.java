@@ -18,7 +18,6 @@
 package com.radixdlt.middleware2.store;
 
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSet;
 import com.radixdlt.consensus.Command;
 import com.radixdlt.consensus.VerifiedLedgerHeaderAndProof;
 import com.radixdlt.consensus.bft.PersistentVertexStore;
@@ -32,14 +31,13 @@ import com.radixdlt.identifiers.EUID;
 import com.radixdlt.ledger.DtoLedgerHeaderAndProof;
 import com.radixdlt.ledger.VerifiedCommandsAndProof;
 import com.radixdlt.middleware2.ClientAtom;
+import com.radixdlt.middleware2.store.CommittedAtomCache.CachedAtom;
 import com.radixdlt.middleware2.store.EngineAtomIndices.IndexType;
 import com.radixdlt.serialization.Serialization;
 import com.radixdlt.serialization.SerializationUtils;
 import com.radixdlt.statecomputer.ClientAtomToBinaryConverter;
 import com.radixdlt.statecomputer.CommittedAtom;
 import com.radixdlt.middleware2.LedgerAtom;
-import com.radixdlt.statecomputer.CommittedAtoms;
-import com.radixdlt.statecomputer.RadixEngineStateComputer.CommittedAtomSender;
 import com.radixdlt.store.LedgerEntryStoreResult;
 import com.radixdlt.store.SearchCursor;
 import com.radixdlt.store.StoreIndex;
@@ -47,12 +45,15 @@ import com.radixdlt.store.LedgerSearchMode;
 import com.radixdlt.store.EngineStore;
 import com.radixdlt.store.LedgerEntry;
 import com.radixdlt.store.LedgerEntryStore;
+import com.radixdlt.store.LedgerTransaction;
 
 import com.radixdlt.store.StoreIndex.LedgerIndexType;
 import com.radixdlt.store.berkeley.NextCommittedLimitReachedException;
 import com.radixdlt.sync.CommittedReader;
 import com.radixdlt.utils.Longs;
-import com.sleepycat.je.Transaction;
+import com.radixdlt.utils.Pair;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.BiFunction;
 import java.util.Optional;
@@ -64,29 +65,36 @@ public final class CommittedAtomsStore implements EngineStore<CommittedAtom>, Co
 	private final PersistentVertexStore persistentVertexStore;
 	private final CommandToBinaryConverter commandToBinaryConverter;
 	private final ClientAtomToBinaryConverter clientAtomToBinaryConverter;
-	private final CommittedAtomSender committedAtomSender;
+	private final CommittedAtomCache atomCache;
+	private final CommittedAtomsPublisher committedAtomsPublisher;
 	private final Hasher hasher;
-	private Transaction transaction;
+	private LedgerTransaction transaction;
+	// Cache updates for atoms stored in the current transaction
+	private final List<Runnable> pendingCacheUpdates = new ArrayList<>();
+	// Atoms stored in the current transaction, published once it is committed
+	private final List<Pair<CommittedAtom, EngineAtomIndices>> pendingCommittedAtoms = new ArrayList<>();
 
 	public interface AtomIndexer {
 		EngineAtomIndices getIndices(LedgerAtom atom);
 	}
 
 	public CommittedAtomsStore(
-		CommittedAtomSender committedAtomSender,
+		CommittedAtomsPublisher committedAtomsPublisher,
 		LedgerEntryStore store,
 		PersistentVertexStore persistentVertexStore,
 		CommandToBinaryConverter commandToBinaryConverter,
 		ClientAtomToBinaryConverter clientAtomToBinaryConverter,
+		CommittedAtomCache atomCache,
 		AtomIndexer atomIndexer,
 		Serialization serialization,
 		Hasher hasher
 	) {
-		this.committedAtomSender = Objects.requireNonNull(committedAtomSender);
+		this.committedAtomsPublisher = Objects.requireNonNull(committedAtomsPublisher);
 		this.store = Objects.requireNonNull(store);
 		this.persistentVertexStore = Objects.requireNonNull(persistentVertexStore);
 		this.commandToBinaryConverter = Objects.requireNonNull(commandToBinaryConverter);
 		this.clientAtomToBinaryConverter = Objects.requireNonNull(clientAtomToBinaryConverter);
+		this.atomCache = Objects.requireNonNull(atomCache);
 		this.atomIndexer = Objects.requireNonNull(atomIndexer);
 		this.serialization = Objects.requireNonNull(serialization);
 		this.hasher = hasher;
@@ -109,12 +117,18 @@ public final class CommittedAtomsStore implements EngineStore<CommittedAtom>, Co
 	public void commitTransaction() {
 		this.transaction.commit();
 		this.transaction = null;
+		this.pendingCacheUpdates.forEach(Runnable::run);
+		this.pendingCacheUpdates.clear();
+		this.committedAtomsPublisher.publish(ImmutableList.copyOf(this.pendingCommittedAtoms));
+		this.pendingCommittedAtoms.clear();
 	}
 
 	@Override
 	public void abortTransaction() {
 		this.transaction.abort();
 		this.transaction = null;
+		this.pendingCacheUpdates.clear();
+		this.pendingCommittedAtoms.clear();
 	}
 
 	@Override
@@ -152,13 +166,16 @@ public final class CommittedAtomsStore implements EngineStore<CommittedAtom>, Co
 			throw new IllegalStateException("Unable to store atom");
 		}
 
-		final ImmutableSet<EUID> indicies = engineAtomIndices.getDuplicateIndices().stream()
-			.filter(e -> e.getPrefix() == EngineAtomIndices.IndexType.DESTINATION.getValue())
-			.map(e -> EngineAtomIndices.toEUID(e.asKey()))
-			.collect(ImmutableSet.toImmutableSet());
-
-		committedAtomSender.sendCommittedAtom(CommittedAtoms.success(committedAtom, indicies));
-    }
+		// Only cache and publish once committed, so that aborted atoms are never visible
+		final Runnable cacheUpdate = () -> atomCache.put(ledgerEntry, storedCommittedCommand, committedAtom.getClientAtom());
+		if (this.transaction == null) {
+			cacheUpdate.run();
+			this.committedAtomsPublisher.publish(ImmutableList.of(Pair.of(committedAtom, engineAtomIndices)));
+		} else {
+			this.pendingCacheUpdates.add(cacheUpdate);
+			this.pendingCommittedAtoms.add(Pair.of(committedAtom, engineAtomIndices));
+		}
+	}
 
 	@Override
 	public <U extends Particle, V> V compute(
@@ -176,11 +193,11 @@ public final class CommittedAtomsStore implements EngineStore<CommittedAtom>, Co
 		V v = initial;
 		while (cursor != null) {
 			AID aid = cursor.get();
-			Optional<LedgerEntry> ledgerEntry = store.get(aid);
-			if (ledgerEntry.isPresent()) {
-				LedgerEntry entry = ledgerEntry.get();
-				StoredCommittedCommand committedCommand = commandToBinaryConverter.toCommand(entry.getContent());
-				ClientAtom clientAtom = committedCommand.getCommand().map(clientAtomToBinaryConverter::toAtom);
+			Optional<ClientAtom> atom = atomCache.get(aid)
+				.or(() -> store.get(aid).map(atomCache::get))
+				.map(CachedAtom::getClientAtom);
+			if (atom.isPresent()) {
+				ClientAtom clientAtom = atom.get();
 				for (CMMicroInstruction cmMicroInstruction : clientAtom.getCMInstruction().getMicroInstructions()) {
 					if (particleClass.isInstance(cmMicroInstruction.getParticle())
 						&& cmMicroInstruction.isCheckSpin()) {
@@ -200,7 +217,7 @@ public final class CommittedAtomsStore implements EngineStore<CommittedAtom>, Co
 	public Optional<VerifiedLedgerHeaderAndProof> getLastVerifiedHeader() {
 		return store.getLastCommitted()
 			.flatMap(store::get)
-			.map(e -> commandToBinaryConverter.toCommand(e.getContent()).getStateAndProof());
+			.map(e -> atomCache.getCommittedCommand(e).getStateAndProof());
 	}
 
 	@Override
@@ -212,7 +229,7 @@ public final class CommittedAtomsStore implements EngineStore<CommittedAtom>, Co
 		);
 		if (cursor != null) {
 			return store.get(cursor.get())
-				.map(e -> commandToBinaryConverter.toCommand(e.getContent()).getStateAndProof());
+				.map(e -> atomCache.getCommittedCommand(e).getStateAndProof());
 		} else {
 			return Optional.empty();
 		}
@@ -220,7 +237,7 @@ public final class CommittedAtomsStore implements EngineStore<CommittedAtom>, Co
 
 	public VerifiedCommandsAndProof getNextCommittedCommands(long stateVersion, int batchSize) throws NextCommittedLimitReachedException {
 		ImmutableList<StoredCommittedCommand> storedCommittedCommands = store.getNextCommittedLedgerEntries(stateVersion, batchSize).stream()
-			.map(e -> commandToBinaryConverter.toCommand(e.getContent()))
+			.map(atomCache::getCommittedCommand)
 			.collect(ImmutableList.toImmutableList());
 
 		if (storedCommittedCommands.isEmpty()) {
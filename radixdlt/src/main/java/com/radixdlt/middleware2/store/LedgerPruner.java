@@ -0,0 +1,141 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.middleware2.store;
+
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.store.LedgerEntry;
+import com.radixdlt.store.StoreIndex;
+import com.radixdlt.store.berkeley.BerkeleyLedgerEntryStore;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Periodically moves committed ledger entries older than a horizon of state versions
+ * from the live database to cold storage, in segments of a fixed number of entries.
+ * <p>
+ * Particle spin and epoch change indices, which are unique indices, and particle class
+ * indices, which are used to compute engine state, stay in the live database, so that
+ * validation of new atoms does not search cold storage.
+ */
+public final class LedgerPruner {
+	private static final Logger log = LogManager.getLogger();
+
+	// Time to wait for a running prune to finish its current segment when stopping
+	private static final long STOP_TIMEOUT_MS = 60_000L;
+
+	static final Predicate<StoreIndex> LIVE_DUPLICATE_INDICES =
+		index -> index.getPrefix() == EngineAtomIndices.IndexType.PARTICLE_CLASS.getValue();
+
+	private final BerkeleyLedgerEntryStore store;
+	private final SystemCounters counters;
+	private final ScheduledExecutorService executor;
+	private final long horizon;
+	private final long segmentSize;
+	private final long intervalMs;
+	private volatile boolean stopped = false;
+
+	/**
+	 * Creates a new pruner.
+	 *
+	 * @param store the store to prune
+	 * @param counters counters for the pruned state version
+	 * @param executor the executor to prune on
+	 * @param horizon the number of most recent state versions to keep in the live database
+	 * @param segmentSize the number of entries moved to each cold storage segment
+	 * @param intervalMs the interval between checks for entries to prune in milliseconds
+	 */
+	public LedgerPruner(
+		BerkeleyLedgerEntryStore store,
+		SystemCounters counters,
+		ScheduledExecutorService executor,
+		long horizon,
+		long segmentSize,
+		long intervalMs
+	) {
+		if (horizon <= 0L || segmentSize <= 0L || intervalMs <= 0L) {
+			throw new IllegalArgumentException(String.format(
+				"Horizon %s, segment size %s and interval %s must be positive", horizon, segmentSize, intervalMs
+			));
+		}
+		this.store = Objects.requireNonNull(store);
+		this.counters = Objects.requireNonNull(counters);
+		this.executor = Objects.requireNonNull(executor);
+		this.horizon = horizon;
+		this.segmentSize = segmentSize;
+		this.intervalMs = intervalMs;
+	}
+
+	public void start() {
+		this.executor.execute(this::completePruning);
+		this.executor.scheduleWithFixedDelay(this::prune, this.intervalMs, this.intervalMs, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops pruning, waiting for a segment which is being pruned to be completed.
+	 * The executor is not interrupted, as interrupting database operations
+	 * invalidates the database environment.
+	 */
+	public void stop() {
+		this.stopped = true;
+		this.executor.shutdown();
+		try {
+			if (!this.executor.awaitTermination(STOP_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+				log.warn("Ledger pruning did not stop within {}ms", STOP_TIMEOUT_MS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void completePruning() {
+		try {
+			this.store.completePruning(LIVE_DUPLICATE_INDICES);
+			this.counters.set(CounterType.LEDGER_PRUNED_STATE_VERSION, this.store.getLastPrunedStateVersion());
+		} catch (RuntimeException e) {
+			log.error("Completing interrupted ledger pruning failed", e);
+		}
+	}
+
+	/**
+	 * Moves full segments of entries beyond the horizon to cold storage.
+	 */
+	void prune() {
+		try {
+			final long lastStateVersion = this.store.getLastCommitted()
+				.flatMap(this.store::get)
+				.map(LedgerEntry::getStateVersion)
+				.orElse(-1L);
+			long prunedStateVersion = this.store.getLastPrunedStateVersion();
+			while (!this.stopped && lastStateVersion - this.horizon - prunedStateVersion >= this.segmentSize) {
+				final long toStateVersion = prunedStateVersion + this.segmentSize;
+				this.store.prune(toStateVersion, LIVE_DUPLICATE_INDICES);
+				log.info("Moved ledger entries {} to {} to cold storage", prunedStateVersion + 1, toStateVersion);
+				prunedStateVersion = toStateVersion;
+				this.counters.set(CounterType.LEDGER_PRUNED_STATE_VERSION, prunedStateVersion);
+			}
+		} catch (RuntimeException e) {
+			// Keep the schedule running, pruning is retried at the next interval
+			log.error("Ledger pruning failed", e);
+		}
+	}
+}
@@ -0,0 +1,338 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.middleware2.store;
+
+import com.radixdlt.consensus.Command;
+import com.radixdlt.consensus.VerifiedLedgerHeaderAndProof;
+import com.radixdlt.crypto.Hasher;
+import com.radixdlt.identifiers.AID;
+import com.radixdlt.ledger.AccumulatorState;
+import com.radixdlt.ledger.LedgerAccumulator;
+import com.radixdlt.middleware2.ClientAtom;
+import com.radixdlt.serialization.DeserializeException;
+import com.radixdlt.serialization.DsonOutput.Output;
+import com.radixdlt.serialization.Serialization;
+import com.radixdlt.statecomputer.CommittedAtom;
+import com.radixdlt.store.LedgerEntry;
+import com.radixdlt.store.LedgerEntryStoreResult;
+import com.radixdlt.store.LedgerSearchMode;
+import com.radixdlt.store.LedgerTransaction;
+import com.radixdlt.store.SearchCursor;
+import com.radixdlt.store.StoreIndex;
+import com.radixdlt.store.berkeley.BerkeleyLedgerEntryStore;
+import com.radixdlt.store.berkeley.BerkeleyLedgerEntryStore.CommittedEntryVisitor;
+import com.radixdlt.store.berkeley.BerkeleyStoreException;
+import com.radixdlt.utils.Longs;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports and imports the committed content of a {@link BerkeleyLedgerEntryStore} as a
+ * snapshot, so that a node can start from a verified ledger instead of syncing all of it.
+ * <p>
+ * A snapshot is taken at the proof ending an epoch, so that a node starting from it begins
+ * with a fresh vertex store in the next epoch.  It is a gzip compressed stream of:
+ * <ul>
+ *     <li>the magic number and format version,</li>
+ *     <li>the length and DSON of the proof the snapshot was taken at,</li>
+ *     <li>for each ledger entry, its state version, AID and the length and persisted form
+ *     of the entry and of its indices,</li>
+ *     <li>an end marker, the number of entries, and the CRC32 of everything before it.</li>
+ * </ul>
+ * The last proof and the epoch proofs are part of the ledger entries, so are restored with them.
+ * Only the ledger entries are covered by the proof, so the indices in a snapshot are not
+ * trusted, and are recomputed from the ledger entries on import.
+ */
+public final class LedgerSnapshot {
+	private static final int MAGIC = 0x52445853; // "RDXS"
+	private static final int FORMAT_VERSION = 1;
+	private static final long END_MARKER = -1L;
+	private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+
+	private final Serialization serialization;
+	private final CommandToBinaryConverter commandToBinaryConverter;
+	private final Hasher hasher;
+	private final LedgerAccumulator accumulator;
+
+	public LedgerSnapshot(Serialization serialization, Hasher hasher, LedgerAccumulator accumulator) {
+		this.serialization = Objects.requireNonNull(serialization);
+		this.commandToBinaryConverter = new CommandToBinaryConverter(serialization);
+		this.hasher = Objects.requireNonNull(hasher);
+		this.accumulator = Objects.requireNonNull(accumulator);
+	}
+
+	/**
+	 * Retrieves the proof ending the specified epoch from the store.
+	 *
+	 * @param store the store to search
+	 * @param epoch the epoch
+	 * @return the proof ending the epoch
+	 * @throws IllegalStateException if the epoch has not ended in the store
+	 */
+	public VerifiedLedgerHeaderAndProof epochProof(BerkeleyLedgerEntryStore store, long epoch) {
+		SearchCursor cursor = store.search(
+			StoreIndex.LedgerIndexType.UNIQUE,
+			new StoreIndex(EngineAtomIndices.IndexType.EPOCH_CHANGE.getValue(), Longs.toByteArray(epoch)),
+			LedgerSearchMode.EXACT
+		);
+		if (cursor == null) {
+			throw new IllegalStateException("No proof for end of epoch " + epoch);
+		}
+		return store.get(cursor.get())
+			.map(this::toStoredCommand)
+			.map(StoredCommittedCommand::getStateAndProof)
+			.orElseThrow(() -> new IllegalStateException("No proof for end of epoch " + epoch));
+	}
+
+	/**
+	 * Retrieves the latest proof ending an epoch from the store.
+	 *
+	 * @param store the store to search
+	 * @return the latest proof ending an epoch
+	 * @throws IllegalStateException if the store is empty
+	 */
+	public VerifiedLedgerHeaderAndProof latestEpochProof(BerkeleyLedgerEntryStore store) {
+		VerifiedLedgerHeaderAndProof lastProof = store.getLastCommitted()
+			.flatMap(store::get)
+			.map(this::toStoredCommand)
+			.map(StoredCommittedCommand::getStateAndProof)
+			.orElseThrow(() -> new IllegalStateException("Ledger is empty"));
+		return lastProof.isEndOfEpoch() ? lastProof : epochProof(store, lastProof.getEpoch());
+	}
+
+	/**
+	 * Writes a snapshot of the store up to the specified epoch proof.
+	 *
+	 * @param store the store to export
+	 * @param proof the proof ending an epoch to take the snapshot at
+	 * @param output the stream to write the snapshot to, which is not closed
+	 * @return the number of ledger entries written
+	 * @throws IOException if writing fails
+	 */
+	public long export(BerkeleyLedgerEntryStore store, VerifiedLedgerHeaderAndProof proof, OutputStream output) throws IOException {
+		if (!proof.isEndOfEpoch()) {
+			throw new IllegalArgumentException("Snapshot proof must end an epoch: " + proof);
+		}
+		GZIPOutputStream gzip = new GZIPOutputStream(output, 1 << 16);
+		CheckedOutputStream checked = new CheckedOutputStream(gzip, new CRC32());
+		DataOutputStream data = new DataOutputStream(checked);
+		data.writeInt(MAGIC);
+		data.writeInt(FORMAT_VERSION);
+		writeBytes(data, serialization.toDson(proof, Output.ALL));
+
+		long[] count = new long[1];
+		store.forEachCommitted(proof.getStateVersion(), (stateVersion, aid, ledgerEntryData, indicesData) -> {
+			data.writeLong(stateVersion);
+			data.write(aid.getBytes());
+			writeBytes(data, ledgerEntryData);
+			writeBytes(data, indicesData);
+			count[0] += 1;
+		});
+		data.writeLong(END_MARKER);
+		data.writeLong(count[0]);
+		data.flush();
+		new DataOutputStream(gzip).writeLong(checked.getChecksum().getValue());
+		gzip.finish();
+		return count[0];
+	}
+
+	/**
+	 * Reads a snapshot, checking its checksum and that its ledger entries are complete
+	 * and accumulate to the proof it was taken at.
+	 *
+	 * @param input the stream to read the snapshot from, which is not closed
+	 * @return the proof the snapshot was taken at
+	 * @throws IOException if the snapshot is invalid or cannot be read
+	 */
+	public VerifiedLedgerHeaderAndProof verify(InputStream input) throws IOException {
+		AccumulatorState[] state = new AccumulatorState[1];
+		VerifiedLedgerHeaderAndProof proof = read(input, (stateVersion, aid, ledgerEntryData, indicesData) -> {
+			SnapshotEntry entry = decode(stateVersion, aid, ledgerEntryData);
+			Command command = entry.command;
+			if (state[0] == null) {
+				if (stateVersion != 0L) {
+					throw new IOException("Snapshot does not start with genesis");
+				}
+				state[0] = new AccumulatorState(0L, hasher.hash(command));
+			} else if (stateVersion != state[0].getStateVersion() + 1) {
+				throw new IOException(String.format("Missing ledger entries between %s and %s", state[0].getStateVersion(), stateVersion));
+			} else {
+				state[0] = accumulator.accumulate(state[0], hasher.hash(command));
+			}
+			VerifiedLedgerHeaderAndProof entryProof = entry.committedAtom.getStateAndProof();
+			if (entryProof.getStateVersion() == stateVersion && !entryProof.getAccumulatorState().equals(state[0])) {
+				throw new IOException("Ledger entries do not accumulate to proof at state version " + stateVersion);
+			}
+		});
+		if (state[0] == null || !proof.getAccumulatorState().equals(state[0])) {
+			throw new IOException("Ledger entries do not accumulate to snapshot proof " + proof);
+		}
+		return proof;
+	}
+
+	/**
+	 * Imports a snapshot into an empty store.  The snapshot should have been checked
+	 * with {@link #verify(InputStream)} first.  The indices of the ledger entries are
+	 * recomputed from the entries rather than taken from the snapshot.
+	 * <p>
+	 * Ledger entries are committed in batches, so if the import fails the store is reset
+	 * to remove the batches already committed, and the import can be retried.  A store
+	 * left partially imported by a process which did not complete the import has to be
+	 * reset before importing again.
+	 *
+	 * @param store the store to import into
+	 * @param input the stream to read the snapshot from, which is not closed
+	 * @param batchSize the number of ledger entries to store per transaction
+	 * @return the proof the snapshot was taken at
+	 * @throws IOException if the snapshot is invalid or cannot be read
+	 */
+	public VerifiedLedgerHeaderAndProof importInto(BerkeleyLedgerEntryStore store, InputStream input, int batchSize) throws IOException {
+		if (store.getLastCommitted().isPresent()) {
+			throw new IllegalStateException("Ledger is not empty");
+		}
+		LedgerTransaction[] transaction = {store.createTransaction()};
+		int[] pending = new int[1];
+		try {
+			VerifiedLedgerHeaderAndProof proof = read(input, (stateVersion, aid, ledgerEntryData, indicesData) -> {
+				SnapshotEntry entry = decode(stateVersion, aid, ledgerEntryData);
+				EngineAtomIndices indices = EngineAtomIndices.from(entry.committedAtom, serialization, hasher);
+				LedgerEntryStoreResult result = store.store(
+					transaction[0],
+					entry.ledgerEntry,
+					indices.getUniqueIndices(),
+					indices.getDuplicateIndices()
+				);
+				if (!result.isSuccess()) {
+					throw new BerkeleyStoreException("Conflicting indices for atom " + aid);
+				}
+				pending[0] += 1;
+				if (pending[0] >= batchSize) {
+					transaction[0].commit();
+					transaction[0] = store.createTransaction();
+					pending[0] = 0;
+				}
+			});
+			transaction[0].commit();
+			return proof;
+		} catch (IOException | RuntimeException e) {
+			transaction[0].abort();
+			try {
+				store.reset();
+			} catch (RuntimeException resetException) {
+				e.addSuppressed(resetException);
+			}
+			throw e;
+		}
+	}
+
+	private VerifiedLedgerHeaderAndProof read(InputStream input, CommittedEntryVisitor visitor) throws IOException {
+		GZIPInputStream gzip = new GZIPInputStream(input, 1 << 16);
+		CheckedInputStream checked = new CheckedInputStream(gzip, new CRC32());
+		DataInputStream data = new DataInputStream(checked);
+		if (data.readInt() != MAGIC) {
+			throw new IOException("Not a ledger snapshot");
+		}
+		int formatVersion = data.readInt();
+		if (formatVersion != FORMAT_VERSION) {
+			throw new IOException("Unsupported snapshot format version " + formatVersion);
+		}
+		final VerifiedLedgerHeaderAndProof proof;
+		try {
+			proof = serialization.fromDson(readBytes(data), VerifiedLedgerHeaderAndProof.class);
+		} catch (DeserializeException e) {
+			throw new IOException("Invalid snapshot proof", e);
+		}
+
+		long count = 0;
+		long stateVersion;
+		byte[] aidBytes = new byte[AID.BYTES];
+		while ((stateVersion = data.readLong()) != END_MARKER) {
+			data.readFully(aidBytes);
+			visitor.visit(stateVersion, AID.from(aidBytes), readBytes(data), readBytes(data));
+			count += 1;
+		}
+		long expectedCount = data.readLong();
+		long checksum = checked.getChecksum().getValue();
+		if (new DataInputStream(gzip).readLong() != checksum) {
+			throw new IOException("Snapshot checksum mismatch");
+		}
+		if (expectedCount != count) {
+			throw new IOException(String.format("Snapshot has %s entries, expected %s", count, expectedCount));
+		}
+		return proof;
+	}
+
+	private SnapshotEntry decode(long stateVersion, AID aid, byte[] ledgerEntryData) throws IOException {
+		final LedgerEntry ledgerEntry;
+		final StoredCommittedCommand storedCommand;
+		final ClientAtom clientAtom;
+		try {
+			ledgerEntry = serialization.fromDson(ledgerEntryData, LedgerEntry.class);
+			storedCommand = toStoredCommand(ledgerEntry);
+			clientAtom = serialization.fromDson(storedCommand.getCommand().getPayload(), ClientAtom.class);
+		} catch (DeserializeException | IllegalStateException e) {
+			// Checksum is only known at the end, so corrupt content has to be caught here
+			throw new IOException("Invalid ledger entry at state version " + stateVersion, e);
+		}
+		if (ledgerEntry.getStateVersion() != stateVersion || !ledgerEntry.getAID().equals(aid) || !clientAtom.getAID().equals(aid)) {
+			throw new IOException("Ledger entry does not match state version " + stateVersion);
+		}
+		CommittedAtom committedAtom = new CommittedAtom(clientAtom, stateVersion, storedCommand.getStateAndProof());
+		return new SnapshotEntry(ledgerEntry, storedCommand.getCommand(), committedAtom);
+	}
+
+	private StoredCommittedCommand toStoredCommand(LedgerEntry ledgerEntry) {
+		return commandToBinaryConverter.toCommand(ledgerEntry.getContent());
+	}
+
+	private static final class SnapshotEntry {
+		private final LedgerEntry ledgerEntry;
+		private final Command command;
+		private final CommittedAtom committedAtom;
+
+		private SnapshotEntry(LedgerEntry ledgerEntry, Command command, CommittedAtom committedAtom) {
+			this.ledgerEntry = ledgerEntry;
+			this.command = command;
+			this.committedAtom = committedAtom;
+		}
+	}
+
+	private static void writeBytes(DataOutputStream data, byte[] bytes) throws IOException {
+		data.writeInt(bytes.length);
+		data.write(bytes);
+	}
+
+	private static byte[] readBytes(DataInputStream data) throws IOException {
+		int length = data.readInt();
+		if (length < 0 || length > MAX_RECORD_SIZE) {
+			throw new IOException("Invalid snapshot record length " + length);
+		}
+		byte[] bytes = new byte[length];
+		data.readFully(bytes);
+		return bytes;
+	}
+}
@@ -19,6 +19,8 @@ package com.radixdlt.network.addressbook;
 
 import com.radixdlt.counters.SystemCounters;
 import com.radixdlt.properties.RuntimeProperties;
+import com.radixdlt.utils.ThreadFactories;
+import java.util.concurrent.Executors;
 import org.radix.database.DatabaseEnvironment;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
@@ -29,6 +31,9 @@ import com.radixdlt.serialization.Serialization;
  * Guice configuration for {@link AddressBook}.
  */
 public final class AddressBookModule extends AbstractModule {
+	// Interval between writes of queued peer updates to the database
+	private static final long PERSISTENCE_FLUSH_INTERVAL_MS = 1_000L;
+
 	@Override
 	protected void configure() {
 		// The main target
@@ -46,6 +51,11 @@ public final class AddressBookModule extends AbstractModule {
 	PeerPersistence addressBookPersistenceProvider(Serialization serialization, DatabaseEnvironment dbEnv, SystemCounters systemCounters) {
 		AddressBookPersistence persistence = new AddressBookPersistence(serialization, dbEnv, systemCounters);
 		persistence.start();
-		return persistence;
+		return new WriteBehindPeerPersistence(
+			persistence,
+			systemCounters,
+			Executors.newSingleThreadScheduledExecutor(ThreadFactories.daemonThreads("AddressBookPersistence")),
+			PERSISTENCE_FLUSH_INTERVAL_MS
+		);
 	}
 }
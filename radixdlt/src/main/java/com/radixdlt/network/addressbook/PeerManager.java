@@ -20,11 +20,13 @@ package com.radixdlt.network.addressbook;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
+import com.radixdlt.consensus.bft.BFTNode;
 import com.radixdlt.identifiers.EUID;
 import com.radixdlt.network.messaging.MessageCentral;
 import com.radixdlt.network.transport.TransportException;
 import com.radixdlt.network.transport.TransportInfo;
 import com.radixdlt.properties.RuntimeProperties;
+import com.radixdlt.sync.PeerPerformanceTracker;
 import com.radixdlt.universe.Universe;
 import com.radixdlt.utils.ThreadFactories;
 
@@ -85,6 +87,7 @@ public class PeerManager {
 	private final SecureRandom rng;
 	private final Whitelist whitelist;
 	private final LocalSystem localSystem;
+	private final PeerPerformanceTracker peerPerformance;
 
 	private ScheduledExecutorService executor; // Ideally would be injected at some point
 
@@ -131,7 +134,8 @@ public class PeerManager {
 		SecureRandom rng,
 		LocalSystem localSystem,
 		RuntimeProperties properties,
-		Universe universe
+		Universe universe,
+		PeerPerformanceTracker peerPerformance
 	) {
 		super();
 
@@ -140,6 +144,7 @@ public class PeerManager {
 		this.bootstrapDiscovery = Objects.requireNonNull(bootstrapDiscovery);
 		this.rng = Objects.requireNonNull(rng);
 		this.localSystem = localSystem;
+		this.peerPerformance = Objects.requireNonNull(peerPerformance);
 		this.recencyThreshold = properties.get("network.peers.recency_ms", 60L * 1000L);
 		this.whitelist = Whitelist.from(properties);
 		this.universeMagic = universe.getMagic();
@@ -294,6 +299,9 @@ public class PeerManager {
 					if (ourNonce.longValue() == nonce) {
 						this.probes.remove(peer);
 						log.trace("Got good peer.pong from {}:{}:{}ns", () -> peer, () -> formatNonce(nonce), () -> rtt);
+						if (peer.hasSystem()) {
+							this.peerPerformance.rttMeasured(BFTNode.create(peer.getSystem().getKey()), TimeUnit.NANOSECONDS.toMillis(rtt));
+						}
 					} else {
 						if (nonce != 0L) {
 							log.warn("Got mismatched peer.pong from {} with nonce '{}', ours '{}' ({}ns)",
@@ -320,6 +328,11 @@ public class PeerManager {
 					log.info(String.format("Failed to request peer information from %s",  peer), ioex);
 				}
 			}
+			// Drop performance statistics for peers we no longer hear from
+			int evicted = this.peerPerformance.evictStale();
+			if (evicted > 0) {
+				log.debug("Dropped performance statistics for {} stale peers", evicted);
+			}
 		} catch (Exception t) {
 			log.error("Peers update failed", t);
 		}
@@ -368,6 +381,7 @@ public class PeerManager {
 				log.info("Removing peer {}:{} because of probe timeout", () -> peer, () -> formatNonce(nonce));
 				this.probes.remove(peer);
 				this.addressbook.removePeer(peer.getNID());
+				this.peerPerformance.remove(BFTNode.create(peer.getSystem().getKey()));
 			}
 		}
 	}
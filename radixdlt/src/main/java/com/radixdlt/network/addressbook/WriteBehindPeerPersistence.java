@@ -0,0 +1,168 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.network.addressbook;
+
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.identifiers.EUID;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * {@link PeerPersistence} that queues writes and periodically flushes them to
+ * an underlying {@link PeerPersistence}, so that frequent updates to the same
+ * peer are coalesced into a single database write, and database writes happen
+ * off the message processing thread.
+ * <p>
+ * Because writes are queued, {@link #savePeer(PeerWithSystem)} and
+ * {@link #deletePeer(EUID)} always return {@code true}, and failures are logged
+ * when the write is flushed.
+ */
+@ThreadSafe
+public final class WriteBehindPeerPersistence implements PeerPersistence {
+	private static final Logger log = LogManager.getLogger();
+
+	private static final long SHUTDOWN_TIMEOUT_MS = 10_000L;
+
+	private final PeerPersistence delegate;
+	private final SystemCounters counters;
+	private final ScheduledExecutorService executor;
+
+	private final Object lock = new Object();
+	// Pending writes, with an empty value for a pending delete
+	@GuardedBy("lock")
+	private final Map<EUID, Optional<PeerWithSystem>> pending = new LinkedHashMap<>();
+	// Serialises flushes to the underlying persistence
+	private final Object flushLock = new Object();
+
+	/**
+	 * Creates a new write-behind persistence, and schedules periodic flushes on the specified executor.
+	 *
+	 * @param delegate the underlying persistence to write to
+	 * @param counters counters for coalesced writes
+	 * @param executor the executor to flush on, which is shut down when this persistence is closed
+	 * @param flushIntervalMs the interval between flushes in milliseconds
+	 */
+	public WriteBehindPeerPersistence(
+		PeerPersistence delegate,
+		SystemCounters counters,
+		ScheduledExecutorService executor,
+		long flushIntervalMs
+	) {
+		if (flushIntervalMs <= 0L) {
+			throw new IllegalArgumentException("Flush interval must be positive: " + flushIntervalMs);
+		}
+		this.delegate = Objects.requireNonNull(delegate);
+		this.counters = Objects.requireNonNull(counters);
+		this.executor = Objects.requireNonNull(executor);
+		this.executor.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public boolean savePeer(PeerWithSystem peer) {
+		enqueue(peer.getNID(), Optional.of(peer));
+		return true;
+	}
+
+	@Override
+	public boolean deletePeer(EUID nid) {
+		enqueue(nid, Optional.empty());
+		return true;
+	}
+
+	@Override
+	public void forEachPersistedPeer(Consumer<PeerWithSystem> c) {
+		flush();
+		this.delegate.forEachPersistedPeer(c);
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.executor.shutdown();
+		try {
+			if (!this.executor.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+				log.warn("Timed out waiting for address book flush to complete");
+			}
+		} catch (InterruptedException e) {
+			// Flush anyway, but preserve interrupt status
+			Thread.currentThread().interrupt();
+		}
+		flush();
+		this.delegate.close();
+	}
+
+	/**
+	 * Writes all pending updates to the underlying persistence.
+	 */
+	void flush() {
+		synchronized (this.flushLock) {
+			final Map<EUID, Optional<PeerWithSystem>> writes;
+			synchronized (this.lock) {
+				if (this.pending.isEmpty()) {
+					return;
+				}
+				writes = new LinkedHashMap<>(this.pending);
+				this.pending.clear();
+			}
+			writes.forEach(this::write);
+		}
+	}
+
+	/**
+	 * @return the number of pending writes
+	 */
+	int pending() {
+		synchronized (this.lock) {
+			return this.pending.size();
+		}
+	}
+
+	private void enqueue(EUID nid, Optional<PeerWithSystem> write) {
+		final Optional<PeerWithSystem> previous;
+		synchronized (this.lock) {
+			previous = this.pending.put(nid, write);
+		}
+		if (previous != null) {
+			this.counters.increment(CounterType.PERSISTENCE_ADDRESS_BOOK_WRITES_COALESCED);
+		}
+	}
+
+	private void write(EUID nid, Optional<PeerWithSystem> write) {
+		try {
+			if (write.isPresent()) {
+				if (!this.delegate.savePeer(write.get())) {
+					log.error("Failure saving peer {}", nid);
+				}
+			} else if (!this.delegate.deletePeer(nid)) {
+				log.debug("Peer {} not deleted", nid);
+			}
+		} catch (RuntimeException e) {
+			log.error(String.format("Failure writing peer %s", nid), e);
+		}
+	}
+}
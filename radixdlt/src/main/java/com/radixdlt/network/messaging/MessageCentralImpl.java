@@ -39,6 +39,7 @@ import com.google.common.util.concurrent.RateLimiter;
 import com.google.inject.Inject;
 import com.radixdlt.counters.SystemCounters;
 import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.counters.SystemCounters.HistogramType;
 import com.radixdlt.network.TimeSupplier;
 import com.radixdlt.network.addressbook.AddressBook;
 import com.radixdlt.network.addressbook.Peer;
@@ -211,12 +212,16 @@ final class MessageCentralImpl implements MessageCentral {
 	private void inboundMessageProcessor(InboundMessageEvent inbound) {
 		this.counters.set(CounterType.MESSAGES_INBOUND_PENDING, inboundQueue.size());
 		MessageListenerList ls = this.listeners.getOrDefault(inbound.message().getClass(), EMPTY_MESSAGE_LISTENER_LIST);
+		final long start = System.nanoTime();
 		messageDispatcher.receive(ls, inbound);
+		this.counters.record(HistogramType.LATENCY_MESSAGES_INBOUND_PROCESS, (System.nanoTime() - start + 500L) / 1000L);
 	}
 
 	private void outboundMessageProcessor(OutboundMessageEvent outbound) {
 		this.counters.set(CounterType.MESSAGES_OUTBOUND_PENDING, outboundQueue.size());
+		final long start = System.nanoTime();
 		messageDispatcher.send(connectionManager, outbound);
+		this.counters.record(HistogramType.LATENCY_MESSAGES_OUTBOUND_SEND, (System.nanoTime() - start + 500L) / 1000L);
 	}
 
 	private Message deserialize(byte[] in) {
@@ -20,6 +20,7 @@ package com.radixdlt.network.messaging;
 import com.radixdlt.consensus.HashSigner;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
@@ -59,6 +60,10 @@ import org.xerial.snappy.Snappy;
 class MessageDispatcher {
 	private static final Logger log = LogManager.getLogger();
 
+	// Time after which unchanged system information is verified again
+	private static final long VERIFIED_SYSTEM_TTL_MS = 60_000L;
+	private static final int VERIFIED_SYSTEM_MAX_ENTRIES = 4096;
+
 	private final long messageTtlMs;
 	private final SystemCounters counters;
 	private final Serialization serialization;
@@ -67,6 +72,7 @@ class MessageDispatcher {
 	private final AddressBook addressBook;
 	private final Hasher hasher;
 	private final HashSigner hashSigner;
+	private final VerifiedSystemCache verifiedSystems = new VerifiedSystemCache(VERIFIED_SYSTEM_TTL_MS, VERIFIED_SYSTEM_MAX_ENTRIES);
 
 	MessageDispatcher(
 		SystemCounters counters,
@@ -173,7 +179,19 @@ class MessageDispatcher {
 	) {
 		String messageType = systemMessage.getClass().getSimpleName();
 		RadixSystem system = systemMessage.getSystem();
-		if (checkSignature(systemMessage, system)) {
+		long now = this.timeSource.currentTime();
+		HashCode hash = this.hasher.hash(systemMessage);
+		if (oldPeer.isPresent()
+			&& Objects.equals(oldPeer.get().getSystem(), system)
+			&& this.verifiedSystems.isVerified(source, system, hash, systemMessage.getSignature(), now)) {
+			// Identical message already verified from this source, and already in the address book
+			this.counters.increment(CounterType.MESSAGES_INBOUND_SYSTEM_VERIFICATIONS_AVOIDED);
+			if (checkPeerBanned(system.getNID(), messageType)) {
+				return Optional.empty();
+			}
+			return oldPeer;
+		}
+		if (system.getKey().verify(hash, systemMessage.getSignature())) {
 			PeerWithSystem peer = this.addressBook.addOrUpdatePeer(oldPeer, system, source);
 			log.trace("Good signature on {} from {}", messageType, peer);
 			if (system.getNID() == null || EUID.ZERO.equals(system.getNID())) {
@@ -192,8 +210,10 @@ class MessageDispatcher {
 			if (checkPeerBanned(system.getNID(), messageType)) {
 				return Optional.empty();
 			}
+			this.verifiedSystems.put(source, system, hash, systemMessage.getSignature(), now);
 			return Optional.of(peer);
 		}
+		this.verifiedSystems.invalidate(source);
 		log.warn("Ignoring {} message from {} - bad signature", messageType, oldPeer);
 		this.counters.increment(CounterType.MESSAGES_INBOUND_BADSIGNATURE);
 		return Optional.empty();
@@ -0,0 +1,120 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.network.messaging;
+
+import com.google.common.hash.HashCode;
+import com.radixdlt.crypto.ECDSASignature;
+import com.radixdlt.network.transport.TransportInfo;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.concurrent.ThreadSafe;
+import org.radix.universe.system.RadixSystem;
+
+/**
+ * Remembers system messages that have recently been received with a valid
+ * signature from a transport source, so that an identical message, with the
+ * same signed hash and signature, subsequently received over the same source
+ * can be accepted without verifying the signature again.  Any other message
+ * from the source is verified as usual, even if it carries the same system.
+ * <p>
+ * Entries expire after a fixed time, after which system information is
+ * verified again.
+ */
+@ThreadSafe
+final class VerifiedSystemCache {
+	private static final class Entry {
+		private final RadixSystem system;
+		private final HashCode hash;
+		private final ECDSASignature signature;
+		private final long expiresAt;
+
+		private Entry(RadixSystem system, HashCode hash, ECDSASignature signature, long expiresAt) {
+			this.system = system;
+			this.hash = hash;
+			this.signature = signature;
+			this.expiresAt = expiresAt;
+		}
+
+		private boolean matches(RadixSystem system, HashCode hash, ECDSASignature signature) {
+			return Objects.equals(this.system, system)
+				&& Objects.equals(this.hash, hash)
+				&& Objects.equals(this.signature, signature);
+		}
+	}
+
+	private final long ttlMs;
+	private final int maxEntries;
+	private final Map<TransportInfo, Entry> entries = new ConcurrentHashMap<>();
+
+	VerifiedSystemCache(long ttlMs, int maxEntries) {
+		if (ttlMs < 0L || maxEntries <= 0) {
+			throw new IllegalArgumentException(String.format("Invalid TTL %s or max entries %s", ttlMs, maxEntries));
+		}
+		this.ttlMs = ttlMs;
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Returns {@code true} if a message with the specified system, signed hash and
+	 * signature has been verified from the specified source, and the verification
+	 * has not expired.
+	 *
+	 * @param source the transport the message was received from
+	 * @param system the received system
+	 * @param hash the signed hash of the received message
+	 * @param signature the signature of the received message
+	 * @param now the current time in milliseconds
+	 * @return {@code true} if the message is already verified, {@code false} otherwise
+	 */
+	boolean isVerified(TransportInfo source, RadixSystem system, HashCode hash, ECDSASignature signature, long now) {
+		Entry entry = this.entries.get(source);
+		return entry != null && now < entry.expiresAt && entry.matches(system, hash, signature);
+	}
+
+	/**
+	 * Records a message with the specified system, signed hash and signature as
+	 * verified from the specified source.
+	 *
+	 * @param source the transport the message was received from
+	 * @param system the verified system
+	 * @param hash the signed hash of the verified message
+	 * @param signature the verified signature
+	 * @param now the current time in milliseconds
+	 */
+	void put(TransportInfo source, RadixSystem system, HashCode hash, ECDSASignature signature, long now) {
+		if (this.entries.size() >= this.maxEntries && !this.entries.containsKey(source)) {
+			// Rarely reached, so just start again rather than tracking usage
+			this.entries.clear();
+		}
+		this.entries.put(source, new Entry(system, hash, signature, now + this.ttlMs));
+	}
+
+	/**
+	 * Removes any verified system for the specified source.
+	 *
+	 * @param source the transport to remove
+	 */
+	void invalidate(TransportInfo source) {
+		this.entries.remove(source);
+	}
+
+	int size() {
+		return this.entries.size();
+	}
+}
@@ -42,14 +42,21 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.AdaptiveRecvByteBufAllocator;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.LengthFieldPrepender;
+import io.netty.handler.flush.FlushConsolidationHandler;
 
 final class NettyTCPTransportImpl implements NettyTCPTransport {
 	private static final Logger log = LogManager.getLogger();
@@ -73,9 +80,22 @@ final class NettyTCPTransportImpl implements NettyTCPTransport {
 
 	private static final int BACKLOG_SIZE = 100;
 
+	// Receive buffers start small and grow towards this size as required,
+	// with frames larger than this assembled from multiple reads
+	private static final int MIN_RCV_ALLOC_SIZE = 64;
+	private static final int INITIAL_RCV_ALLOC_SIZE = 2 * 1024;
+	private static final int MAX_RCV_ALLOC_SIZE = 64 * 1024;
+
+	// Default number of writes that may be coalesced into one flush
+	@VisibleForTesting
+	static final int DEFAULT_FLUSH_BATCH_SIZE = 256;
+
 	private final TransportMetadata localMetadata;
 
 	private final int priority;
+	private final int workerThreads;
+	private final boolean nativeTransport;
+	private final int flushBatchSize;
 	private final AtomicInteger threadCounter = new AtomicInteger(0);
 	private final InetSocketAddress bindAddress;
 	private final Object channelLock = new Object();
@@ -110,6 +130,9 @@ final class NettyTCPTransportImpl implements NettyTCPTransport {
 		);
 		this.priority = config.priority(0);
 		this.debugData = config.debugData(false);
+		this.workerThreads = Math.max(0, config.workerThreads(0));
+		this.nativeTransport = config.nativeTransport(true) && Epoll.isAvailable();
+		this.flushBatchSize = config.flushBatchSize(DEFAULT_FLUSH_BATCH_SIZE);
 		this.control = controlFactory.create(config, outboundFactory, this);
 		this.bindAddress = new InetSocketAddress(providedHost, port);
 	}
@@ -142,17 +165,32 @@ final class NettyTCPTransportImpl implements NettyTCPTransport {
 	@Override
 	public void start(InboundMessageConsumer messageSink) {
 		if (log.isInfoEnabled()) {
-			log.info("TCP transport {}", localAddress());
+			log.info("TCP transport {} using {} with {} worker threads", localAddress(),
+				this.nativeTransport ? "epoll" : "NIO", this.workerThreads == 0 ? "default" : this.workerThreads);
 		}
 
-		EventLoopGroup serverGroup = new NioEventLoopGroup(1);
-		EventLoopGroup workerGroup = new NioEventLoopGroup(1, this::createThread);
+		final EventLoopGroup serverGroup;
+		final EventLoopGroup workerGroup;
+		final Class<? extends ServerChannel> serverChannelClass;
+		final Class<? extends SocketChannel> channelClass;
+		if (this.nativeTransport) {
+			serverGroup = new EpollEventLoopGroup(1);
+			workerGroup = new EpollEventLoopGroup(this.workerThreads, this::createThread);
+			serverChannelClass = EpollServerSocketChannel.class;
+			channelClass = EpollSocketChannel.class;
+		} else {
+			serverGroup = new NioEventLoopGroup(1);
+			workerGroup = new NioEventLoopGroup(this.workerThreads, this::createThread);
+			serverChannelClass = NioServerSocketChannel.class;
+			channelClass = NioSocketChannel.class;
+		}
 
 		this.outboundBootstrap = new Bootstrap();
 		this.outboundBootstrap.group(workerGroup)
-			.channel(NioSocketChannel.class)
+			.channel(channelClass)
 			.option(ChannelOption.TCP_NODELAY, true)
 			.option(ChannelOption.SO_KEEPALIVE, true)
+			.option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
 			.handler(new ChannelInitializer<SocketChannel>() {
 				@Override
 				public void initChannel(SocketChannel ch) throws Exception {
@@ -162,10 +200,11 @@ final class NettyTCPTransportImpl implements NettyTCPTransport {
 
 		ServerBootstrap b = new ServerBootstrap();
 		b.group(serverGroup, workerGroup)
-			.channel(NioServerSocketChannel.class)
+			.channel(serverChannelClass)
 			.option(ChannelOption.SO_BACKLOG, BACKLOG_SIZE)
 			.childOption(ChannelOption.TCP_NODELAY, true)
 			.childOption(ChannelOption.SO_KEEPALIVE, true)
+			.childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
 			.childHandler(new ChannelInitializer<SocketChannel>() {
 				@Override
 				public void initChannel(SocketChannel ch) throws Exception {
@@ -195,8 +234,13 @@ final class NettyTCPTransportImpl implements NettyTCPTransport {
 		ch.config()
 			.setReceiveBufferSize(rcvBufSize)
 			.setSendBufferSize(sndBufSize)
-			.setOption(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(packetLength));
+			.setOption(ChannelOption.RCVBUF_ALLOCATOR,
+				new AdaptiveRecvByteBufAllocator(MIN_RCV_ALLOC_SIZE, INITIAL_RCV_ALLOC_SIZE, MAX_RCV_ALLOC_SIZE));
 
+		if (this.flushBatchSize > 0) {
+			// Coalesce flushes from writes queued to the event loop, flushing at most every flushBatchSize writes
+			ch.pipeline().addLast("flush", new FlushConsolidationHandler(this.flushBatchSize, true));
+		}
 		if (log.isDebugEnabled()) {
 			ch.pipeline().addLast(new LoggingHandler(LogSink.using(log), debugData));
 		}
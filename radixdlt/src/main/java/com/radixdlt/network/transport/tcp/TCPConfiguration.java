@@ -70,6 +70,34 @@ public interface TCPConfiguration {
 	 */
 	boolean debugData(boolean defaultValue);
 
+	/**
+	 * Get the number of threads used to handle I/O for established channels.
+	 * A value of zero or less uses the Netty default of twice the number of
+	 * available processors.
+	 *
+	 * @param defaultValue a default value if no special configuration value is set
+	 * @return the number of I/O worker threads
+	 */
+	int workerThreads(int defaultValue);
+
+	/**
+	 * Use the native Linux epoll transport, if available on this platform.
+	 * If not available, the NIO transport is used.
+	 *
+	 * @param defaultValue a default value if no special configuration value is set
+	 * @return {@code true} if the native transport should be used when available
+	 */
+	boolean nativeTransport(boolean defaultValue);
+
+	/**
+	 * Get the maximum number of writes that may be coalesced into a single
+	 * flush to the socket.  A value of zero or less flushes every write.
+	 *
+	 * @param defaultValue a default value if no special configuration value is set
+	 * @return the maximum number of writes per flush
+	 */
+	int flushBatchSize(int defaultValue);
+
 	/**
 	 * Create a configuration from specified {@link RuntimeProperties}.
 	 *
@@ -102,6 +130,21 @@ public interface TCPConfiguration {
 			public boolean debugData(boolean defaultValue) {
 				return properties.get("network.tcp.debug_data", defaultValue);
 			}
+
+			@Override
+			public int workerThreads(int defaultValue) {
+				return properties.get("network.tcp.worker_threads", defaultValue);
+			}
+
+			@Override
+			public boolean nativeTransport(boolean defaultValue) {
+				return properties.get("network.tcp.native_transport", defaultValue);
+			}
+
+			@Override
+			public int flushBatchSize(int defaultValue) {
+				return properties.get("network.tcp.flush_batch_size", defaultValue);
+			}
 		};
 	}
 
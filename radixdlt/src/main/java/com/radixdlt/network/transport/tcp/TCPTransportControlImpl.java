@@ -19,12 +19,12 @@ package com.radixdlt.network.transport.tcp;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -33,7 +33,6 @@ import org.apache.logging.log4j.Logger;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.RateLimiter;
 import com.radixdlt.counters.SystemCounters;
 import com.radixdlt.counters.SystemCounters.CounterType;
@@ -65,10 +64,11 @@ final class TCPTransportControlImpl implements TCPTransportControl {
 		private final RateLimiter droppedChannelRateLimiter = RateLimiter.create(1.0);
 		private final AtomicLong droppedChannelCount = new AtomicLong();
 
-		private final Object lock = new Object();
 		private final AtomicInteger channelCount = new AtomicInteger();
-		private final Map<String, LinkedList<SocketChannel>> channelMap = Maps.newHashMap();
-		private final Map<String, CompletableFuture<TransportOutboundConnection>> pendingMap = Maps.newHashMap();
+		// Channels by remote host, most recently opened first.  Lists are only replaced or
+		// removed atomically via compute, and are read without locking by outbound sends.
+		private final ConcurrentMap<String, CopyOnWriteArrayList<SocketChannel>> channelMap = new ConcurrentHashMap<>();
+		private final ConcurrentMap<String, CompletableFuture<TransportOutboundConnection>> pendingMap = new ConcurrentHashMap<>();
 		private final int maxChannelCount;
 		private final SystemCounters counters;
 
@@ -102,10 +102,8 @@ final class TCPTransportControlImpl implements TCPTransportControl {
 					InetSocketAddress remote = sch.remoteAddress();
 					String host = remote.getAddress().getHostAddress();
 					int port = remote.getPort();
-					synchronized (lock) {
-						removePending(formatAddress(host, port));
-						addChannel(host, sch);
-					}
+					addChannel(host, sch);
+					removePending(formatAddress(host, port));
 				} else {
 					// Too many channels, we just close and exit.
 					// Include rate limited log of total dropped channels.
@@ -127,9 +125,7 @@ final class TCPTransportControlImpl implements TCPTransportControl {
 			if (ch instanceof SocketChannel) {
 				this.counters.increment(CounterType.NETWORKING_TCP_CLOSED);
 				this.channelCount.decrementAndGet();
-				synchronized (lock) {
-					cleanChannels("Remove");
-				}
+				removeChannel((SocketChannel) ch);
 			}
 		}
 
@@ -141,100 +137,124 @@ final class TCPTransportControlImpl implements TCPTransportControl {
 			String host = metadata.get(TCPConstants.METADATA_HOST);
 			String port = metadata.get(TCPConstants.METADATA_PORT);
 			String hostAndPort = formatAddress(host, port);
-			synchronized (lock) {
-				cleanChannels("Clean");
 
-				CompletableFuture<TransportOutboundConnection> pending = this.pendingMap.get(hostAndPort);
-				if (pending != null) {
-					log.trace("Reuse pending {}", hostAndPort);
-					return pending;
-				}
+			CompletableFuture<TransportOutboundConnection> pending = this.pendingMap.get(hostAndPort);
+			if (pending != null) {
+				log.trace("Reuse pending {}", hostAndPort);
+				return pending;
+			}
 
-				LinkedList<SocketChannel> items = this.channelMap.get(host);
+			SocketChannel channel = findActiveChannel(host);
+			if (channel != null) {
+				return CompletableFuture.completedFuture(outboundFactory.create(channel, metadata));
+			}
 
-				final SocketChannel channel;
-				if (items != null && !items.isEmpty()) {
-					channel = items.stream().filter(SocketChannel::isActive).findFirst().orElse(null);
-				} else {
-					channel = null;
-				}
-				if (channel == null) {
-					ChannelFuture cf = transport.createChannel(host, Integer.parseInt(port));
-					final CompletableFuture<TransportOutboundConnection> cfsr0 = new CompletableFuture<>();
-					final CompletableFuture<TransportOutboundConnection> cfsr = cfsr0.whenComplete((obc, t) -> {
-						log.trace("Completed");
-						if (t != null) {
-							// If we are completing exceptionally, then we need to remove the pending connection
-							synchronized (lock) {
-								removePending(hostAndPort);
-							}
-						}
-					});
-					log.trace("Add pending {}", hostAndPort);
-					this.pendingMap.put(hostAndPort, cfsr);
-					cf.addListener(f -> {
-						Throwable cause = f.cause();
-						if (cause == null) {
-							log.trace("Listener completed");
-							cfsr0.complete(outboundFactory.create(cf.channel(), metadata));
-						} else {
-							log.trace("Listener completed exceptionally");
-							cfsr0.completeExceptionally(cause);
-						}
-					});
-					return cfsr;
+			final CompletableFuture<TransportOutboundConnection> cfsr0 = new CompletableFuture<>();
+			final CompletableFuture<TransportOutboundConnection> cfsr = cfsr0.whenComplete((obc, t) -> log.trace("Completed"));
+			pending = this.pendingMap.putIfAbsent(hostAndPort, cfsr);
+			if (pending != null) {
+				// Lost a race with another sender
+				log.trace("Reuse pending {}", hostAndPort);
+				return pending;
+			}
+			log.trace("Add pending {}", hostAndPort);
+			cfsr0.whenComplete((obc, t) -> {
+				if (t != null) {
+					// If we are completing exceptionally, then we need to remove the pending connection
+					removePending(hostAndPort, cfsr);
 				}
-				return CompletableFuture.completedFuture(outboundFactory.create(channel, metadata));
+			});
+			// A connection may have become active since we last looked
+			channel = findActiveChannel(host);
+			if (channel != null) {
+				this.pendingMap.remove(hostAndPort, cfsr);
+				cfsr0.complete(outboundFactory.create(channel, metadata));
+				return cfsr;
 			}
+			ChannelFuture cf = transport.createChannel(host, Integer.parseInt(port));
+			cf.addListener(f -> {
+				Throwable cause = f.cause();
+				if (cause == null) {
+					log.trace("Listener completed");
+					cfsr0.complete(outboundFactory.create(cf.channel(), metadata));
+				} else {
+					log.trace("Listener completed exceptionally");
+					cfsr0.completeExceptionally(cause);
+				}
+			});
+			return cfsr;
 		}
 
 		void closeAll() {
 			final List<ChannelFuture> futures = Lists.newArrayList();
-			synchronized (lock) {
-				for (LinkedList<SocketChannel> channels : this.channelMap.values()) {
+			for (String host : this.channelMap.keySet()) {
+				List<SocketChannel> channels = this.channelMap.remove(host);
+				if (channels != null) {
 					channels.stream()
 						.map(Channel::close)
 						.filter(Objects::nonNull)
 						.forEachOrdered(futures::add);
-					channels.clear();
 				}
 			}
 			futures.forEach(ChannelFuture::syncUninterruptibly);
 		}
 
-		// Requires "lock" to be held
 		void removePending(String host) {
 			if (null != this.pendingMap.remove(host)) {
 				log.trace("Remove pending {}", host);
 			}
 		}
 
-		// Requires "lock" to be held
-		private void addChannel(String host, SocketChannel ch) {
-			this.channelMap.computeIfAbsent(host, k -> Lists.newLinkedList()).addFirst(ch);
-			channelDebug("Add", ch);
+		private void removePending(String host, CompletableFuture<TransportOutboundConnection> pending) {
+			// Only remove the pending connection if it has not already been replaced
+			if (this.pendingMap.remove(host, pending)) {
+				log.trace("Remove pending {}", host);
+			}
 		}
 
-		// Requires "lock" to be held
-		private void cleanChannels(String where) {
-			Iterator<Map.Entry<String, LinkedList<SocketChannel>>> i = this.channelMap.entrySet().iterator();
-			while (i.hasNext()) {
-				Map.Entry<String, LinkedList<SocketChannel>> entry = i.next();
-				Iterator<SocketChannel> j = entry.getValue().iterator();
-				while (j.hasNext()) {
-					SocketChannel ch = j.next();
-					if (!ch.isOpen()) {
-						channelDebug(where, ch);
-						j.remove();
+		private SocketChannel findActiveChannel(String host) {
+			List<SocketChannel> items = this.channelMap.get(host);
+			if (items != null) {
+				for (SocketChannel ch : items) {
+					if (ch.isActive()) {
+						return ch;
 					}
 				}
-				if (entry.getValue().isEmpty()) {
-					// Remove dangling empty lists from map
-					i.remove();
+			}
+			return null;
+		}
+
+		private void addChannel(String host, SocketChannel ch) {
+			this.channelMap.compute(host, (k, v) -> {
+				CopyOnWriteArrayList<SocketChannel> channels = v == null ? new CopyOnWriteArrayList<>() : v;
+				channels.add(0, ch);
+				return channels;
+			});
+			channelDebug("Add", ch);
+		}
+
+		private void removeChannel(SocketChannel ch) {
+			InetSocketAddress remote = ch.remoteAddress();
+			if (remote != null && remote.getAddress() != null) {
+				removeChannel(remote.getAddress().getHostAddress(), ch);
+			} else {
+				// Remote address no longer available, so check all hosts
+				for (String host : this.channelMap.keySet()) {
+					removeChannel(host, ch);
 				}
 			}
 		}
 
+		private void removeChannel(String host, SocketChannel ch) {
+			this.channelMap.computeIfPresent(host, (k, channels) -> {
+				if (channels.remove(ch)) {
+					channelDebug("Remove", ch);
+				}
+				// Remove dangling empty lists from map
+				return channels.isEmpty() ? null : channels;
+			});
+		}
+
 		private void channelDebug(String what, SocketChannel c) {
 			if (log.isDebugEnabled()) {
 				log.debug("{} channel from {} to {}", what, formatAddress(c.localAddress()), formatAddress(c.remoteAddress()));
@@ -21,6 +21,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.hash.HashCode;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.radixdlt.atommodel.system.SystemParticle;
 import com.radixdlt.consensus.Command;
 import com.radixdlt.consensus.VerifiedLedgerHeaderAndProof;
@@ -46,8 +47,13 @@ import com.radixdlt.serialization.Serialization;
 import com.radixdlt.middleware2.LedgerAtom;
 import com.radixdlt.ledger.VerifiedCommandsAndProof;
 import com.radixdlt.ledger.StateComputerLedger.StateComputer;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 /**
  * Wraps the Radix Engine and emits messages based on success or failure
@@ -63,7 +69,7 @@ public final class RadixEngineStateComputer implements StateComputer {
 
 	// TODO: Remove this temporary interface
 	public interface CommittedAtomSender {
-		void sendCommittedAtom(CommittedAtomWithResult committedAtomWithResult);
+		void sendCommittedAtoms(ImmutableList<CommittedAtomWithResult> committedAtomsWithResult);
 	}
 
 	private final Serialization serialization;
@@ -72,6 +78,7 @@ public final class RadixEngineStateComputer implements StateComputer {
 	private final ValidatorSetBuilder validatorSetBuilder;
 	private final Hasher hasher;
 	private final RadixEngineAtomicCommitManager atomicCommitManager;
+	private final Executor commitExecutor;
 
 	private RadixEngineStateComputer(
 		Serialization serialization,
@@ -79,7 +86,8 @@ public final class RadixEngineStateComputer implements StateComputer {
 		RadixEngineAtomicCommitManager atomicCommitManager,
 		View epochCeilingView,
 		ValidatorSetBuilder validatorSetBuilder,
-		Hasher hasher
+		Hasher hasher,
+		Executor commitExecutor
 	) {
 		this.serialization = Objects.requireNonNull(serialization);
 		this.radixEngine = Objects.requireNonNull(radixEngine);
@@ -87,6 +95,7 @@ public final class RadixEngineStateComputer implements StateComputer {
 		this.validatorSetBuilder = Objects.requireNonNull(validatorSetBuilder);
 		this.hasher = Objects.requireNonNull(hasher);
 		this.atomicCommitManager = Objects.requireNonNull(atomicCommitManager);
+		this.commitExecutor = Objects.requireNonNull(commitExecutor);
 	}
 
 	public static RadixEngineStateComputer create(
@@ -96,6 +105,31 @@ public final class RadixEngineStateComputer implements StateComputer {
 		@EpochCeilingView View epochCeilingView,
 		ValidatorSetBuilder validatorSetBuilder,
 		Hasher hasher
+	) {
+		return create(
+			serialization,
+			radixEngine,
+			atomicCommitManager,
+			epochCeilingView,
+			validatorSetBuilder,
+			hasher,
+			MoreExecutors.directExecutor()
+		);
+	}
+
+	/**
+	 * Creates a state computer which decodes the atoms of committed batches on the
+	 * specified executor.  Atoms are still executed by the radix engine one at a time
+	 * in ledger order, overlapped with the decoding of the atoms which follow them.
+	 */
+	public static RadixEngineStateComputer create(
+		Serialization serialization,
+		RadixEngine<LedgerAtom> radixEngine,
+		RadixEngineAtomicCommitManager atomicCommitManager,
+		@EpochCeilingView View epochCeilingView,
+		ValidatorSetBuilder validatorSetBuilder,
+		Hasher hasher,
+		Executor commitExecutor
 	) {
 		if (epochCeilingView.isGenesis()) {
 			throw new IllegalArgumentException("Epoch change view must not be genesis.");
@@ -107,7 +141,8 @@ public final class RadixEngineStateComputer implements StateComputer {
 			atomicCommitManager,
 			epochCeilingView,
 			validatorSetBuilder,
-			hasher
+			hasher,
+			commitExecutor
 		);
 	}
 
@@ -251,14 +286,34 @@ public final class RadixEngineStateComputer implements StateComputer {
 		return serialization.fromDson(command.getPayload(), ClientAtom.class);
 	}
 
-	private void commitCommand(long version, Command command, VerifiedLedgerHeaderAndProof proof) {
-		final ClientAtom clientAtom;
+	private ClientAtom mapCommittedCommand(Command command) {
 		try {
-			clientAtom = this.mapCommand(command);
+			return this.mapCommand(command);
 		} catch (DeserializeException e) {
 			throw new ByzantineQuorumException("Trying to commit bad atom", e);
 		}
+	}
+
+	// Decoding is independent of engine state, so for batches it is started for all commands up front
+	private List<CompletableFuture<ClientAtom>> decodeCommands(ImmutableList<Command> commands) {
+		final Executor executor = commands.size() > 1 ? this.commitExecutor : MoreExecutors.directExecutor();
+		return commands.stream()
+			.map(command -> CompletableFuture.supplyAsync(() -> mapCommittedCommand(command), executor))
+			.collect(Collectors.toList());
+	}
+
+	private static ClientAtom awaitDecoded(CompletableFuture<ClientAtom> decoded) {
+		try {
+			return decoded.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
 
+	private void commitCommand(long version, ClientAtom clientAtom, VerifiedLedgerHeaderAndProof proof) {
 		try {
 			final CommittedAtom committedAtom = new CommittedAtom(clientAtom, version, proof);
 			// TODO: execute list of commands instead
@@ -278,17 +333,23 @@ public final class RadixEngineStateComputer implements StateComputer {
 		long stateVersion = headerAndProof.getAccumulatorState().getStateVersion();
 		long firstVersion = stateVersion - verifiedCommandsAndProof.getCommands().size() + 1;
 
-		for (int i = 0; i < verifiedCommandsAndProof.getCommands().size(); i++) {
-			this.commitCommand(firstVersion + i, verifiedCommandsAndProof.getCommands().get(i), headerAndProof);
-
-			final long nextEpoch = radixEngine.getComputedState(SystemParticle.class).getEpoch();
-			final boolean isLastCommand = i == verifiedCommandsAndProof.getCommands().size() - 1;
-			final boolean changingEpoch = nextEpoch > currentEpoch;
-			if (isLastCommand && changingEpoch) {
-				epochChange = true;
-			} else if (changingEpoch) {
-				throw new ByzantineQuorumException("change of epoch did not occur on last command");
+		final List<CompletableFuture<ClientAtom>> decoded = decodeCommands(verifiedCommandsAndProof.getCommands());
+		try {
+			for (int i = 0; i < decoded.size(); i++) {
+				this.commitCommand(firstVersion + i, awaitDecoded(decoded.get(i)), headerAndProof);
+
+				final long nextEpoch = radixEngine.getComputedState(SystemParticle.class).getEpoch();
+				final boolean isLastCommand = i == decoded.size() - 1;
+				final boolean changingEpoch = nextEpoch > currentEpoch;
+				if (isLastCommand && changingEpoch) {
+					epochChange = true;
+				} else if (changingEpoch) {
+					throw new ByzantineQuorumException("change of epoch did not occur on last command");
+				}
 			}
+		} finally {
+			// Don't decode any remaining commands if the batch failed
+			decoded.forEach(d -> d.cancel(false));
 		}
 
 		// Verify that output of radix engine and signed output match
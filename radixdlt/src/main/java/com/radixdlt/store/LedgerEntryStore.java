@@ -19,17 +19,16 @@ package com.radixdlt.store;
 
 import com.radixdlt.identifiers.AID;
 
-import com.sleepycat.je.Transaction;
 import java.util.Set;
 
 /**
  * A read/write instance of a ledger store containing ledger entries.
  */
 public interface LedgerEntryStore extends LedgerEntryStoreView {
-	Transaction createTransaction();
+	LedgerTransaction createTransaction();
 
 	LedgerEntryStoreResult store(
-		Transaction tx,
+		LedgerTransaction tx,
 		LedgerEntry atom,
 		Set<StoreIndex> uniqueIndices,
 		Set<StoreIndex> duplicateIndices
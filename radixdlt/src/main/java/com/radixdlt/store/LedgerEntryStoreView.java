@@ -21,7 +21,6 @@ import com.google.common.collect.ImmutableList;
 import com.radixdlt.identifiers.AID;
 
 import com.radixdlt.store.berkeley.NextCommittedLimitReachedException;
-import com.sleepycat.je.Transaction;
 import java.util.Optional;
 
 /**
@@ -66,7 +65,7 @@ public interface LedgerEntryStoreView {
 	 * @param mode The mode
 	 * @return The resulting ledger cursor
 	 */
-	boolean contains(Transaction tx, StoreIndex.LedgerIndexType type, StoreIndex index, LedgerSearchMode mode);
+	boolean contains(LedgerTransaction tx, StoreIndex.LedgerIndexType type, StoreIndex index, LedgerSearchMode mode);
 
 	/**
 	 * Retrieve a chunk of {@link LedgerEntry} with state version greater than the given one
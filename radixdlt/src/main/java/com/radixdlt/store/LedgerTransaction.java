@@ -0,0 +1,34 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.store;
+
+/**
+ * A transaction of a {@link LedgerEntryStore}, within which entries and the vertex store
+ * state are stored atomically.  A transaction may only be used with the store which created it.
+ */
+public interface LedgerTransaction {
+	/**
+	 * Makes all changes of this transaction durable and visible to readers of the store.
+	 */
+	void commit();
+
+	/**
+	 * Discards all changes of this transaction.
+	 */
+	void abort();
+}
@@ -0,0 +1,1005 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.store.appendlog;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.radixdlt.consensus.bft.PersistentVertexStore;
+import com.radixdlt.consensus.bft.VerifiedVertexStoreState;
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.identifiers.AID;
+import com.radixdlt.serialization.DeserializeException;
+import com.radixdlt.serialization.DsonOutput.Output;
+import com.radixdlt.serialization.Serialization;
+import com.radixdlt.store.LedgerEntry;
+import com.radixdlt.store.LedgerEntryConflict;
+import com.radixdlt.store.LedgerEntryStore;
+import com.radixdlt.store.LedgerEntryStoreResult;
+import com.radixdlt.store.LedgerSearchMode;
+import com.radixdlt.store.LedgerTransaction;
+import com.radixdlt.store.SearchCursor;
+import com.radixdlt.store.StoreIndex;
+import com.radixdlt.store.StoreIndex.LedgerIndexType;
+import com.radixdlt.store.berkeley.NextCommittedLimitReachedException;
+import com.radixdlt.store.berkeley.SerializedVertexStoreState;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import static com.radixdlt.store.berkeley.LedgerEntryIndices.ENTRY_INDEX_PREFIX;
+import static com.radixdlt.store.berkeley.LedgerEntryIndices.SHARD_INDEX_PREFIX;
+
+/**
+ * A {@link LedgerEntryStore} and {@link PersistentVertexStore} on an append-only log.
+ * <p>
+ * Each committed transaction is appended to the active segment of the log as a single
+ * checksummed batch holding its entries, with the keys of their indices.  Once the active
+ * segment reaches its size limit it is sealed: its table of entry locations is written
+ * next to it and the keys of its entries are written to a {@link KeyRun} sorted by key,
+ * while the keys of the active segment are kept in memory.
+ * Key runs of adjacent segments are merged in the background, so that index lookups search
+ * a number of runs logarithmic in the number of segments.
+ * <p>
+ * The last saved vertex store state is kept outside the log in {@link VertexStoreStateSlots},
+ * so that the frequent saves of consensus do not grow the log.  A batch committed along with
+ * a state records only the sequence of the state.
+ * <p>
+ * Like the Berkeley store, batches are written without forcing them to storage, so that
+ * the most recent commits may be lost on a crash of the machine, but not of the process.
+ * A torn batch at the end of the log is discarded on open.
+ */
+@ThreadSafe
+public final class AppendLogLedgerEntryStore implements LedgerEntryStore, PersistentVertexStore {
+	private static final Logger log = LogManager.getLogger();
+
+	static final byte UNIQUE_KIND = 0;
+	static final byte DUPLICATE_KIND = 1;
+
+	private static final long COMPACTION_TIMEOUT_SECONDS = 10L;
+
+	private final Path directory;
+	private final Serialization serialization;
+	private final SystemCounters systemCounters;
+	private final long segmentSize;
+	private final ExecutorService compactionExecutor;
+
+	// Guards all of the following state, which is written when committing
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	// Held while merging runs, so that a reset does not delete runs being merged
+	private final ReentrantLock compactionLock = new ReentrantLock();
+
+	// Segments of the log in order, the last of which is active
+	private final List<LogSegment> segments = new ArrayList<>();
+	// Segments holding entries by the state version of their first entry
+	private final NavigableMap<Long, LogSegment> segmentsByStateVersion = new TreeMap<>();
+	// Key runs of the sealed segments in order
+	private final List<KeyRun> runs = new ArrayList<>();
+	// State versions of the entries of the active segment by composite key
+	private NavigableMap<byte[], List<Long>> activeKeys = new TreeMap<>(KeyRun.KEY_ORDER);
+	private long lastStateVersion = -1L;
+	private AID lastCommitted = null;
+	private VertexStoreStateSlots vertexStoreStateSlots = null;
+	private boolean closed = false;
+
+	/**
+	 * Opens the log in the specified directory, creating it if needed.
+	 *
+	 * @param directory the directory of the log
+	 * @param serialization serialization of vertex store state
+	 * @param systemCounters counters for commits and compactions
+	 * @param segmentSize the size in bytes at which a segment is sealed
+	 * @param compactionExecutor the executor merging key runs, which is shut down when this store is closed
+	 */
+	public AppendLogLedgerEntryStore(
+		Path directory,
+		Serialization serialization,
+		SystemCounters systemCounters,
+		long segmentSize,
+		ExecutorService compactionExecutor
+	) {
+		if (segmentSize <= 0L) {
+			throw new IllegalArgumentException("Segment size must be positive: " + segmentSize);
+		}
+		this.directory = Objects.requireNonNull(directory);
+		this.serialization = Objects.requireNonNull(serialization);
+		this.systemCounters = Objects.requireNonNull(systemCounters);
+		this.segmentSize = segmentSize;
+		this.compactionExecutor = Objects.requireNonNull(compactionExecutor);
+
+		try {
+			open();
+		} catch (IOException e) {
+			closeFiles();
+			throw new AppendLogStoreException("Error while opening ledger log in " + directory, e);
+		}
+		scheduleCompaction();
+	}
+
+	static byte[] compositeKey(byte kind, byte[] key) {
+		final byte[] compositeKey = new byte[key.length + 1];
+		compositeKey[0] = kind;
+		System.arraycopy(key, 0, compositeKey, 1, key.length);
+		return compositeKey;
+	}
+
+	private static byte kindOf(LedgerIndexType type) {
+		if (type == LedgerIndexType.UNIQUE) {
+			return UNIQUE_KIND;
+		} else if (type == LedgerIndexType.DUPLICATE) {
+			return DUPLICATE_KIND;
+		} else {
+			throw new IllegalStateException("Index type " + type + " not supported");
+		}
+	}
+
+	private void open() throws IOException {
+		Files.createDirectories(this.directory);
+		final NavigableMap<Long, Path> segmentFiles = new TreeMap<>();
+		final List<Path> runFiles = new ArrayList<>();
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory)) {
+			for (Path file : files) {
+				final String name = file.getFileName().toString();
+				if (name.endsWith(LogSegment.TEMP_SUFFIX)) {
+					// Left behind by an interrupted seal or compaction
+					Files.delete(file);
+				} else if (name.endsWith(LogSegment.SUFFIX)) {
+					segmentFiles.put(Long.parseLong(name.substring(0, name.length() - LogSegment.SUFFIX.length())), file);
+				} else if (name.endsWith(KeyRun.SUFFIX)) {
+					runFiles.add(file);
+				}
+			}
+		} catch (NumberFormatException e) {
+			throw new IOException("Unexpected log segment in " + this.directory, e);
+		}
+
+		if (segmentFiles.isEmpty()) {
+			for (Path file : runFiles) {
+				Files.delete(file);
+			}
+			addSegment(LogSegment.create(this.directory, 0L));
+			this.vertexStoreStateSlots = VertexStoreStateSlots.open(this.directory, -1L);
+			return;
+		}
+
+		long expectedSequence = segmentFiles.firstKey();
+		for (Map.Entry<Long, Path> segmentFile : segmentFiles.entrySet()) {
+			if (segmentFile.getKey() != expectedSequence) {
+				throw new IOException(String.format("Ledger log in %s is missing segment %s", this.directory, expectedSequence));
+			}
+			addSegment(LogSegment.open(segmentFile.getValue(), segmentFile.getKey()));
+			expectedSequence += 1;
+		}
+
+		final LogSegment active = activeSegment();
+		for (LogSegment segment : this.segments) {
+			if (segment != active && !segment.loadTable()) {
+				log.info("Rebuilding table of ledger log segment {}", segment.getFile());
+				replay(segment, true, null);
+				segment.writeTable();
+			}
+		}
+		openRuns(runFiles, active.getSequence());
+
+		final long end = replay(active, true, this.activeKeys);
+		if (end < active.getSize()) {
+			log.warn("Discarding {} bytes of incomplete batch at end of ledger log segment {}", active.getSize() - end, active.getFile());
+			active.truncate(end);
+		}
+
+		long lastMarkerSequence = -1L;
+		for (LogSegment segment : this.segments) {
+			if (segment.getEntryCount() > 0) {
+				this.segmentsByStateVersion.put(segment.getStateVersion(0), segment);
+			}
+			lastMarkerSequence = Math.max(lastMarkerSequence, segment.getVertexStoreStateSequence());
+		}
+		this.vertexStoreStateSlots = VertexStoreStateSlots.open(this.directory, lastMarkerSequence);
+		final Map.Entry<Long, LogSegment> last = this.segmentsByStateVersion.lastEntry();
+		if (last != null) {
+			final LogSegment segment = last.getValue();
+			final int index = segment.getEntryCount() - 1;
+			this.lastStateVersion = segment.getStateVersion(index);
+			this.lastCommitted = readEntry(segment, index).getAID();
+		}
+	}
+
+	// Chooses runs covering the sealed segments without overlap, rebuilding the runs of any uncovered segments
+	private void openRuns(List<Path> runFiles, long activeSequence) throws IOException {
+		final List<KeyRun> candidates = new ArrayList<>();
+		for (Path file : runFiles) {
+			try {
+				candidates.add(KeyRun.open(file));
+			} catch (IOException e) {
+				log.warn("Deleting invalid key run {}", file, e);
+				Files.delete(file);
+			}
+		}
+		candidates.sort(Comparator.comparingLong(KeyRun::getFirstSequence)
+			.thenComparing(Comparator.comparingLong(KeyRun::getLastSequence).reversed()));
+
+		final long firstSequence = this.segments.get(0).getSequence();
+		long expectedSequence = firstSequence;
+		for (KeyRun run : candidates) {
+			if (run.getFirstSequence() < expectedSequence || run.getLastSequence() >= activeSequence) {
+				// Merged into another run, or written before the segment was sealed
+				run.delete();
+				continue;
+			}
+			while (expectedSequence < run.getFirstSequence()) {
+				this.runs.add(rebuildRun(this.segments.get((int) (expectedSequence - firstSequence))));
+				expectedSequence += 1;
+			}
+			this.runs.add(run);
+			expectedSequence = run.getLastSequence() + 1;
+		}
+		while (expectedSequence < activeSequence) {
+			this.runs.add(rebuildRun(this.segments.get((int) (expectedSequence - firstSequence))));
+			expectedSequence += 1;
+		}
+	}
+
+	private KeyRun rebuildRun(LogSegment segment) throws IOException {
+		log.info("Rebuilding key run of ledger log segment {}", segment.getFile());
+		final NavigableMap<byte[], List<Long>> keys = new TreeMap<>(KeyRun.KEY_ORDER);
+		replay(segment, false, keys);
+		return writeRun(segment.getSequence(), keys);
+	}
+
+	private KeyRun writeRun(long sequence, NavigableMap<byte[], List<Long>> keys) throws IOException {
+		final Iterator<KeyRun.KeyEntry> entries = keys.entrySet().stream()
+			.flatMap(key -> key.getValue().stream().map(stateVersion -> new KeyRun.KeyEntry(key.getKey(), stateVersion)))
+			.iterator();
+		return KeyRun.write(this.directory, sequence, sequence, keys.size(), entries);
+	}
+
+	// Replays a segment into its table and the specified keys, returning the end of the last complete batch
+	private long replay(LogSegment segment, boolean loadTable, NavigableMap<byte[], List<Long>> keys) throws IOException {
+		final long end = segment.replay(new LogSegment.RecordVisitor() {
+			@Override
+			public void entry(long offset, int length, long stateVersion, AID aid, List<byte[]> uniqueKeys, List<byte[]> duplicateKeys) {
+				if (loadTable) {
+					segment.addEntry(stateVersion, offset, length);
+				}
+				if (keys != null) {
+					addKeys(keys, UNIQUE_KIND, uniqueKeys, stateVersion);
+					addKeys(keys, DUPLICATE_KIND, duplicateKeys, stateVersion);
+				}
+			}
+
+			@Override
+			public void vertexStoreState(long offset, int length, long sequence) {
+				if (loadTable) {
+					segment.setVertexStoreState(offset, length, sequence);
+				}
+			}
+		});
+		if (segment != activeSegment() && end < segment.getSize()) {
+			throw new IOException("Sealed ledger log segment " + segment.getFile() + " is incomplete");
+		}
+		return end;
+	}
+
+	private static void addKeys(NavigableMap<byte[], List<Long>> keys, byte kind, List<byte[]> indexKeys, long stateVersion) {
+		for (byte[] indexKey : indexKeys) {
+			keys.computeIfAbsent(compositeKey(kind, indexKey), k -> new ArrayList<>(1)).add(stateVersion);
+		}
+	}
+
+	private void addSegment(LogSegment segment) {
+		this.segments.add(segment);
+	}
+
+	private LogSegment activeSegment() {
+		return this.segments.get(this.segments.size() - 1);
+	}
+
+	@Override
+	public void reset() {
+		this.compactionLock.lock();
+		try {
+			this.lock.writeLock().lock();
+			try {
+				checkOpen();
+				closeFiles();
+				for (LogSegment segment : this.segments) {
+					segment.delete();
+				}
+				for (KeyRun run : this.runs) {
+					run.delete();
+				}
+				this.segments.clear();
+				this.segmentsByStateVersion.clear();
+				this.runs.clear();
+				this.activeKeys = new TreeMap<>(KeyRun.KEY_ORDER);
+				this.lastStateVersion = -1L;
+				this.lastCommitted = null;
+				addSegment(LogSegment.create(this.directory, 0L));
+				this.vertexStoreStateSlots = VertexStoreStateSlots.open(this.directory, -1L);
+				this.vertexStoreStateSlots.clear();
+			} catch (IOException e) {
+				throw new AppendLogStoreException("Error while resetting ledger log", e);
+			} finally {
+				this.lock.writeLock().unlock();
+			}
+		} finally {
+			this.compactionLock.unlock();
+		}
+	}
+
+	@Override
+	public void close() {
+		this.compactionExecutor.shutdown();
+		try {
+			if (!this.compactionExecutor.awaitTermination(COMPACTION_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				log.warn("Key run compaction did not finish within {} seconds", COMPACTION_TIMEOUT_SECONDS);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		this.lock.writeLock().lock();
+		try {
+			if (this.closed) {
+				return;
+			}
+			this.closed = true;
+			if (!this.segments.isEmpty()) {
+				activeSegment().force();
+			}
+			if (this.vertexStoreStateSlots != null) {
+				this.vertexStoreStateSlots.force();
+			}
+		} catch (IOException e) {
+			log.warn("Error while forcing ledger log to storage", e);
+		} finally {
+			closeFiles();
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	private void closeFiles() {
+		for (LogSegment segment : this.segments) {
+			try {
+				segment.close();
+			} catch (IOException e) {
+				log.warn("Error while closing ledger log segment {}", segment.getFile(), e);
+			}
+		}
+		for (KeyRun run : this.runs) {
+			try {
+				run.close();
+			} catch (IOException e) {
+				log.warn("Error while closing key run {}", run.getFile(), e);
+			}
+		}
+		if (this.vertexStoreStateSlots != null) {
+			try {
+				this.vertexStoreStateSlots.close();
+			} catch (IOException e) {
+				log.warn("Error while closing vertex store state of ledger log in {}", this.directory, e);
+			}
+		}
+	}
+
+	private void checkOpen() {
+		if (this.closed) {
+			throw new AppendLogStoreException("Ledger log in " + this.directory + " is closed");
+		}
+	}
+
+	@Override
+	public boolean contains(AID aid) {
+		return lookupFirst(entryKey(aid)) >= 0L;
+	}
+
+	@Override
+	public Optional<LedgerEntry> get(AID aid) {
+		this.lock.readLock().lock();
+		try {
+			final long stateVersion = lookupFirst(entryKey(aid));
+			return stateVersion < 0L ? Optional.empty() : Optional.of(readEntry(stateVersion));
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	private static byte[] entryKey(AID aid) {
+		return compositeKey(UNIQUE_KIND, StoreIndex.from(ENTRY_INDEX_PREFIX, aid.getBytes()));
+	}
+
+	@Override
+	public Optional<AID> getLastCommitted() {
+		this.lock.readLock().lock();
+		try {
+			return Optional.ofNullable(this.lastCommitted);
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public LedgerTransaction createTransaction() {
+		return new AppendLogTransaction(this);
+	}
+
+	@Override
+	public LedgerEntryStoreResult store(
+		LedgerTransaction tx,
+		LedgerEntry atom,
+		Set<StoreIndex> uniqueIndices,
+		Set<StoreIndex> duplicateIndices
+	) {
+		final List<StoreIndex> offendingIndices = new ArrayList<>();
+		for (StoreIndex index : uniqueIndices) {
+			if (index.getPrefix() == ENTRY_INDEX_PREFIX || index.getPrefix() == SHARD_INDEX_PREFIX) {
+				offendingIndices.add(index);
+			}
+		}
+		for (StoreIndex index : duplicateIndices) {
+			if (index.getPrefix() == ENTRY_INDEX_PREFIX || index.getPrefix() == SHARD_INDEX_PREFIX) {
+				offendingIndices.add(index);
+			}
+		}
+		if (!offendingIndices.isEmpty()) {
+			throw new AppendLogStoreException(String.format(
+				"Prefixes %s and %s are reserved for internal use but are used by %s",
+				ENTRY_INDEX_PREFIX, SHARD_INDEX_PREFIX, offendingIndices));
+		}
+
+		if (tx == null) {
+			final AppendLogTransaction autoCommit = new AppendLogTransaction(this);
+			final LedgerEntryStoreResult result = store(autoCommit, atom, uniqueIndices, duplicateIndices);
+			if (result.isSuccess()) {
+				autoCommit.commit();
+			}
+			return result;
+		}
+
+		final AppendLogTransaction transaction = unwrap(tx);
+		final List<byte[]> uniqueKeys = new ArrayList<>(uniqueIndices.size() + 1);
+		for (StoreIndex index : uniqueIndices) {
+			uniqueKeys.add(index.asKey());
+		}
+		uniqueKeys.add(StoreIndex.from(ENTRY_INDEX_PREFIX, atom.getAID().getBytes()));
+		final List<byte[]> duplicateKeys = new ArrayList<>(duplicateIndices.size());
+		for (StoreIndex index : duplicateIndices) {
+			duplicateKeys.add(index.asKey());
+		}
+
+		final ImmutableMap.Builder<StoreIndex, LedgerEntry> conflictingEntries = ImmutableMap.builder();
+		boolean conflict = false;
+		this.lock.readLock().lock();
+		try {
+			for (byte[] key : uniqueKeys) {
+				final byte[] compositeKey = compositeKey(UNIQUE_KIND, key);
+				Optional<LedgerEntry> pending = transaction.getUnique(compositeKey);
+				final long stateVersion = pending.isPresent() ? -1L : lookupFirst(compositeKey);
+				if (pending.isPresent() || stateVersion >= 0L) {
+					conflict = true;
+					conflictingEntries.put(new StoreIndex(key), pending.isPresent() ? pending.get() : readEntry(stateVersion));
+				}
+			}
+		} finally {
+			this.lock.readLock().unlock();
+		}
+		if (conflict) {
+			log.error("Unique indices of ledgerEntry '" + atom.getAID() + "' are in conflict, aborting transaction");
+			transaction.abort();
+			return LedgerEntryStoreResult.conflict(new LedgerEntryConflict(atom, conflictingEntries.build()));
+		}
+
+		transaction.add(atom, uniqueKeys, duplicateKeys);
+		return LedgerEntryStoreResult.success();
+	}
+
+	private AppendLogTransaction unwrap(LedgerTransaction tx) {
+		if (tx instanceof AppendLogTransaction && ((AppendLogTransaction) tx).isOwnedBy(this)) {
+			return (AppendLogTransaction) tx;
+		}
+		throw new IllegalArgumentException("Transaction " + tx + " was not created by this store");
+	}
+
+	/**
+	 * Entries of the append-only log can never be deleted or replaced, so that all stored
+	 * entries are committed.
+	 */
+	@Override
+	public void commit(AID aid) {
+		if (!contains(aid)) {
+			throw new AppendLogStoreException("Ledger entry '" + aid + "' is not stored");
+		}
+	}
+
+	/**
+	 * Appends the content of the specified transaction to the log.
+	 *
+	 * @param transaction the transaction to commit
+	 */
+	void commit(AppendLogTransaction transaction) {
+		final var start = System.nanoTime();
+		final List<AppendLogTransaction.PendingEntry> entries = transaction.getEntries();
+		final Optional<byte[]> vertexStoreState = transaction.getVertexStoreState();
+		boolean sealed = false;
+		this.lock.writeLock().lock();
+		try {
+			checkOpen();
+			long previousStateVersion = this.lastStateVersion;
+			for (AppendLogTransaction.PendingEntry pending : entries) {
+				final LedgerEntry entry = pending.getEntry();
+				if (entry.getStateVersion() <= previousStateVersion) {
+					throw new AppendLogStoreException(String.format(
+						"State version %s of ledger entry '%s' does not follow %s", entry.getStateVersion(), entry.getAID(), previousStateVersion
+					));
+				}
+				previousStateVersion = entry.getStateVersion();
+				for (byte[] key : pending.getUniqueKeys()) {
+					if (lookupFirst(compositeKey(UNIQUE_KIND, key)) >= 0L) {
+						throw new AppendLogStoreException("Unique index of ledger entry '" + entry.getAID() + "' was committed concurrently");
+					}
+				}
+			}
+			if (entries.isEmpty() && vertexStoreState.isEmpty()) {
+				return;
+			}
+			if (entries.isEmpty()) {
+				// Nothing to append to the log
+				final long sequence = this.vertexStoreStateSlots.nextSequence();
+				final int slot = this.vertexStoreStateSlots.write(sequence, vertexStoreState.get(), false);
+				this.vertexStoreStateSlots.setCurrent(slot, vertexStoreState.get());
+				return;
+			}
+
+			int payloadLength = 0;
+			for (AppendLogTransaction.PendingEntry pending : entries) {
+				payloadLength += entryRecordLength(pending);
+			}
+			if (vertexStoreState.isPresent()) {
+				payloadLength += LogSegment.VERTEX_STORE_STATE_HEADER_SIZE;
+			}
+			final ByteBuffer batch = LogSegment.allocateBatch(payloadLength);
+			final int[] positions = new int[entries.size()];
+			for (int i = 0; i < entries.size(); i++) {
+				positions[i] = batch.position();
+				putEntryRecord(batch, entries.get(i));
+			}
+			final int vertexStoreStatePosition = batch.position();
+			long vertexStoreStateSequence = -1L;
+			int vertexStoreStateSlot = -1;
+			if (vertexStoreState.isPresent()) {
+				// The state is written first, and only becomes valid once the batch recording its sequence is appended
+				vertexStoreStateSequence = this.vertexStoreStateSlots.nextSequence();
+				vertexStoreStateSlot = this.vertexStoreStateSlots.write(vertexStoreStateSequence, vertexStoreState.get(), true);
+				batch.put(LogSegment.VERTEX_STORE_STATE_RECORD)
+					.putLong(vertexStoreStateSequence)
+					.putInt(0);
+			}
+
+			if (!activeSegment().isEmpty() && activeSegment().getSize() + batch.capacity() > this.segmentSize) {
+				seal();
+				sealed = true;
+			}
+			final LogSegment active = activeSegment();
+			final long base = active.getSize();
+			active.append(batch);
+
+			for (int i = 0; i < entries.size(); i++) {
+				final AppendLogTransaction.PendingEntry pending = entries.get(i);
+				final LedgerEntry entry = pending.getEntry();
+				active.addEntry(entry.getStateVersion(), base + positions[i], LogSegment.ENTRY_HEADER_SIZE + entry.getContent().length);
+				if (active.getEntryCount() == 1) {
+					this.segmentsByStateVersion.put(entry.getStateVersion(), active);
+				}
+				addKeys(this.activeKeys, UNIQUE_KIND, pending.getUniqueKeys(), entry.getStateVersion());
+				addKeys(this.activeKeys, DUPLICATE_KIND, pending.getDuplicateKeys(), entry.getStateVersion());
+				this.lastStateVersion = entry.getStateVersion();
+				this.lastCommitted = entry.getAID();
+			}
+			if (vertexStoreState.isPresent()) {
+				active.setVertexStoreState(base + vertexStoreStatePosition, batch.limit() - vertexStoreStatePosition, vertexStoreStateSequence);
+				this.vertexStoreStateSlots.setCurrent(vertexStoreStateSlot, vertexStoreState.get());
+			}
+			this.systemCounters.add(CounterType.LEDGER_LOG_BYTES_WRITTEN, batch.limit());
+		} catch (IOException e) {
+			throw new AppendLogStoreException("Commit of ledger transaction failed", e);
+		} finally {
+			this.lock.writeLock().unlock();
+			this.systemCounters.add(CounterType.ELAPSED_LOG_LEDGER_COMMIT, (System.nanoTime() - start + 500L) / 1000L);
+			this.systemCounters.increment(CounterType.COUNT_LOG_LEDGER_COMMIT);
+		}
+		if (sealed) {
+			scheduleCompaction();
+		}
+	}
+
+	private static int entryRecordLength(AppendLogTransaction.PendingEntry pending) {
+		int length = LogSegment.ENTRY_HEADER_SIZE + pending.getEntry().getContent().length + 2 * Integer.BYTES;
+		for (byte[] key : pending.getUniqueKeys()) {
+			length += Integer.BYTES + key.length;
+		}
+		for (byte[] key : pending.getDuplicateKeys()) {
+			length += Integer.BYTES + key.length;
+		}
+		return length;
+	}
+
+	private static void putEntryRecord(ByteBuffer batch, AppendLogTransaction.PendingEntry pending) {
+		final LedgerEntry entry = pending.getEntry();
+		batch.put(LogSegment.ENTRY_RECORD)
+			.putLong(entry.getStateVersion())
+			.putLong(entry.getProofVersion())
+			.put(entry.getAID().getBytes())
+			.putInt(entry.getContent().length)
+			.put(entry.getContent());
+		batch.putInt(pending.getUniqueKeys().size());
+		for (byte[] key : pending.getUniqueKeys()) {
+			batch.putInt(key.length).put(key);
+		}
+		batch.putInt(pending.getDuplicateKeys().size());
+		for (byte[] key : pending.getDuplicateKeys()) {
+			batch.putInt(key.length).put(key);
+		}
+	}
+
+	// Seals the active segment and starts a new one, called with the write lock held
+	private void seal() throws IOException {
+		final LogSegment sealed = activeSegment();
+		sealed.force();
+		sealed.writeTable();
+		this.runs.add(writeRun(sealed.getSequence(), this.activeKeys));
+		this.activeKeys = new TreeMap<>(KeyRun.KEY_ORDER);
+		addSegment(LogSegment.create(this.directory, sealed.getSequence() + 1));
+		log.debug("Sealed ledger log segment {}", sealed);
+	}
+
+	private void scheduleCompaction() {
+		try {
+			this.compactionExecutor.execute(this::compact);
+		} catch (RejectedExecutionException e) {
+			// Closed, runs are compacted on next open
+		}
+	}
+
+	/**
+	 * Merges adjacent key runs until no run covers fewer segments than the run following it.
+	 */
+	private void compact() {
+		this.compactionLock.lock();
+		try {
+			while (true) {
+				KeyRun older = null;
+				KeyRun newer = null;
+				this.lock.readLock().lock();
+				try {
+					if (this.closed) {
+						return;
+					}
+					for (int i = this.runs.size() - 1; i > 0; i--) {
+						if (this.runs.get(i).getSegmentCount() >= this.runs.get(i - 1).getSegmentCount()) {
+							older = this.runs.get(i - 1);
+							newer = this.runs.get(i);
+							break;
+						}
+					}
+				} finally {
+					this.lock.readLock().unlock();
+				}
+				if (older == null) {
+					return;
+				}
+
+				final KeyRun merged = KeyRun.merge(this.directory, older, newer);
+				this.lock.writeLock().lock();
+				try {
+					final int index = this.runs.indexOf(older);
+					this.runs.set(index, merged);
+					this.runs.remove(index + 1);
+					// No reads are in progress while the write lock is held
+					older.delete();
+					newer.delete();
+				} finally {
+					this.lock.writeLock().unlock();
+				}
+				this.systemCounters.increment(CounterType.LEDGER_LOG_COMPACTIONS);
+				log.debug("Merged key runs into {}", merged);
+			}
+		} catch (IOException | RuntimeException e) {
+			log.error("Key run compaction failed", e);
+		} finally {
+			this.compactionLock.unlock();
+		}
+	}
+
+	@Override
+	public Optional<SerializedVertexStoreState> loadLastVertexStoreState() {
+		final byte[] data;
+		this.lock.readLock().lock();
+		try {
+			checkOpen();
+			data = this.vertexStoreStateSlots.getData();
+		} finally {
+			this.lock.readLock().unlock();
+		}
+		if (data == null) {
+			return Optional.empty();
+		}
+		try {
+			return Optional.of(this.serialization.fromDson(data, SerializedVertexStoreState.class));
+		} catch (DeserializeException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	@Override
+	public void save(LedgerTransaction transaction, VerifiedVertexStoreState vertexStoreState) {
+		if (transaction == null) {
+			save(vertexStoreState);
+		} else {
+			unwrap(transaction).setVertexStoreState(this.serialization.toDson(vertexStoreState.toSerialized(), Output.ALL));
+		}
+	}
+
+	@Override
+	public void save(VerifiedVertexStoreState vertexStoreState) {
+		final AppendLogTransaction transaction = new AppendLogTransaction(this);
+		transaction.setVertexStoreState(this.serialization.toDson(vertexStoreState.toSerialized(), Output.ALL));
+		transaction.commit();
+	}
+
+	@Override
+	public ImmutableList<LedgerEntry> getNextCommittedLedgerEntries(long stateVersion, int limit) throws NextCommittedLimitReachedException {
+		final ImmutableList.Builder<LedgerEntry> ledgerEntries = ImmutableList.builder();
+		int size = 0;
+		long proofVersion = -1L;
+		this.lock.readLock().lock();
+		try {
+			final Map.Entry<Long, LogSegment> floor = this.segmentsByStateVersion.floorEntry(stateVersion + 1);
+			Map.Entry<Long, LogSegment> current = floor != null ? floor : this.segmentsByStateVersion.firstEntry();
+			int index = current == null ? 0 : current.getValue().ceilingIndex(stateVersion + 1);
+			boolean proofVersionChanged = false;
+			while (current != null && size <= limit && !proofVersionChanged) {
+				final LogSegment segment = current.getValue();
+				// Entries of a segment are read with a single read of the records they span
+				final int end = (int) Math.min(segment.getEntryCount(), (long) index + limit + 1 - size);
+				if (index < end) {
+					final long offset = segment.getOffset(index);
+					final long endOffset = segment.getOffset(end - 1) + segment.getLength(end - 1);
+					final ByteBuffer records = segment.read(offset, (int) (endOffset - offset));
+					for (int i = index; i < end && !proofVersionChanged; i++) {
+						records.position((int) (segment.getOffset(i) - offset));
+						final LedgerEntry ledgerEntry = decodeEntry(records);
+						if (proofVersion == -1L) {
+							proofVersion = ledgerEntry.getProofVersion();
+						} else if (ledgerEntry.getProofVersion() != proofVersion) {
+							proofVersionChanged = true;
+							continue;
+						}
+						ledgerEntries.add(ledgerEntry);
+						size += 1;
+					}
+				}
+				current = this.segmentsByStateVersion.higherEntry(current.getKey());
+				index = 0;
+			}
+		} catch (IOException e) {
+			throw new AppendLogStoreException("Error while reading ledger entries after state version " + stateVersion, e);
+		} finally {
+			this.lock.readLock().unlock();
+		}
+
+		if (size > limit) {
+			throw new NextCommittedLimitReachedException(limit);
+		}
+		return ledgerEntries.build();
+	}
+
+	@Override
+	public SearchCursor search(LedgerIndexType type, StoreIndex index, LedgerSearchMode mode) {
+		Objects.requireNonNull(type, "type is required");
+		Objects.requireNonNull(index, "index is required");
+		Objects.requireNonNull(mode, "mode is required");
+		final byte kind = kindOf(type);
+		byte[] compositeKey = compositeKey(kind, index.asKey());
+		this.lock.readLock().lock();
+		try {
+			if (mode == LedgerSearchMode.RANGE) {
+				compositeKey = ceiling(compositeKey);
+				if (compositeKey == null || compositeKey[0] != kind) {
+					return null;
+				}
+			}
+			final long[] stateVersions = collect(compositeKey);
+			return stateVersions.length == 0 ? null : cursorAt(type, compositeKey, stateVersions, 0);
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public boolean contains(LedgerTransaction tx, LedgerIndexType type, StoreIndex index, LedgerSearchMode mode) {
+		Objects.requireNonNull(type, "type is required");
+		Objects.requireNonNull(index, "index is required");
+		Objects.requireNonNull(mode, "mode is required");
+		final AppendLogTransaction transaction = tx == null ? null : unwrap(tx);
+		final byte kind = kindOf(type);
+		final byte[] compositeKey = compositeKey(kind, index.asKey());
+		if (mode == LedgerSearchMode.EXACT) {
+			if (transaction != null
+				&& (kind == UNIQUE_KIND ? transaction.getUnique(compositeKey).isPresent() : transaction.containsDuplicate(compositeKey))) {
+				return true;
+			}
+			return lookupFirst(compositeKey) >= 0L;
+		} else if (mode == LedgerSearchMode.RANGE) {
+			final byte[] pending = transaction == null ? null : transaction.ceiling(compositeKey);
+			if (pending != null && pending[0] == kind) {
+				return true;
+			}
+			this.lock.readLock().lock();
+			try {
+				final byte[] committed = ceiling(compositeKey);
+				return committed != null && committed[0] == kind;
+			} finally {
+				this.lock.readLock().unlock();
+			}
+		}
+		return false;
+	}
+
+	AppendLogSearchCursor cursorAt(LedgerIndexType type, byte[] compositeKey, long[] stateVersions, int position) {
+		this.lock.readLock().lock();
+		try {
+			return new AppendLogSearchCursor(this, type, compositeKey, stateVersions, position, readEntry(stateVersions[position]).getAID());
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	AppendLogSearchCursor searchAfter(LedgerIndexType type, byte[] compositeKey, long stateVersion) {
+		this.lock.readLock().lock();
+		try {
+			final long[] stateVersions = collect(compositeKey);
+			for (int i = 0; i < stateVersions.length; i++) {
+				if (stateVersions[i] > stateVersion) {
+					return cursorAt(type, compositeKey, stateVersions, i);
+				}
+			}
+			return null;
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	AppendLogSearchCursor searchLast(LedgerIndexType type, byte[] compositeKey) {
+		this.lock.readLock().lock();
+		try {
+			final long[] stateVersions = collect(compositeKey);
+			return stateVersions.length == 0 ? null : cursorAt(type, compositeKey, stateVersions, stateVersions.length - 1);
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	// Retrieves the state version of the first entry with a composite key, or -1 if there is none
+	private long lookupFirst(byte[] compositeKey) {
+		this.lock.readLock().lock();
+		try {
+			for (KeyRun run : this.runs) {
+				final long stateVersion = run.getFirst(compositeKey);
+				if (stateVersion >= 0L) {
+					return stateVersion;
+				}
+			}
+			final List<Long> active = this.activeKeys.get(compositeKey);
+			return active == null ? -1L : active.get(0);
+		} catch (IOException e) {
+			throw new AppendLogStoreException("Error while reading key runs", e);
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	// Retrieves the state versions of all entries with a composite key in ledger order, called with the read lock held
+	private long[] collect(byte[] compositeKey) {
+		final List<Long> stateVersions = new ArrayList<>();
+		try {
+			for (KeyRun run : this.runs) {
+				run.forEach(compositeKey, stateVersions::add);
+			}
+		} catch (IOException e) {
+			throw new AppendLogStoreException("Error while reading key runs", e);
+		}
+		final List<Long> active = this.activeKeys.get(compositeKey);
+		if (active != null) {
+			stateVersions.addAll(active);
+		}
+		return stateVersions.stream().mapToLong(Long::longValue).toArray();
+	}
+
+	// Retrieves the lowest committed composite key greater than or equal to the specified one, called with the read lock held
+	private byte[] ceiling(byte[] compositeKey) {
+		byte[] lowest = this.activeKeys.ceilingKey(compositeKey);
+		try {
+			for (KeyRun run : this.runs) {
+				final byte[] key = run.ceiling(compositeKey);
+				if (key != null && (lowest == null || KeyRun.KEY_ORDER.compare(key, lowest) < 0)) {
+					lowest = key;
+				}
+			}
+		} catch (IOException e) {
+			throw new AppendLogStoreException("Error while reading key runs", e);
+		}
+		return lowest;
+	}
+
+	// Called with the read lock held
+	private LedgerEntry readEntry(long stateVersion) {
+		final Map.Entry<Long, LogSegment> segment = this.segmentsByStateVersion.floorEntry(stateVersion);
+		if (segment != null) {
+			final int index = segment.getValue().ceilingIndex(stateVersion);
+			if (index < segment.getValue().getEntryCount() && segment.getValue().getStateVersion(index) == stateVersion) {
+				try {
+					return readEntry(segment.getValue(), index);
+				} catch (IOException e) {
+					throw new AppendLogStoreException("Error while reading ledger entry at state version " + stateVersion, e);
+				}
+			}
+		}
+		throw new AppendLogStoreException("Ledger entry at state version " + stateVersion + " not in ledger log");
+	}
+
+	private static LedgerEntry readEntry(LogSegment segment, int index) throws IOException {
+		return decodeEntry(segment.read(segment.getOffset(index), segment.getLength(index)));
+	}
+
+	private static LedgerEntry decodeEntry(ByteBuffer record) {
+		record.get(); // Record type
+		final long stateVersion = record.getLong();
+		final long proofVersion = record.getLong();
+		final AID aid = AID.from(record.array(), record.position());
+		record.position(record.position() + AID.BYTES);
+		final byte[] content = new byte[record.getInt()];
+		record.get(content);
+		return new LedgerEntry(content, stateVersion, proofVersion, aid);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s{directory=%s}", getClass().getSimpleName(), this.directory);
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.store.appendlog;
+
+import com.radixdlt.identifiers.AID;
+import com.radixdlt.store.SearchCursor;
+import com.radixdlt.store.StoreIndex;
+import java.util.Objects;
+
+/**
+ * A {@link SearchCursor} over the entries with an index key of an {@link AppendLogLedgerEntryStore}.
+ * <p>
+ * The cursor holds the state versions of the matching entries at the time of the search.
+ * As entries are only ever appended, moving past the last of them searches again for
+ * entries committed since.
+ */
+final class AppendLogSearchCursor implements SearchCursor {
+	private final AppendLogLedgerEntryStore store;
+	private final StoreIndex.LedgerIndexType type;
+	private final byte[] compositeKey;
+	private final long[] stateVersions;
+	private final int position;
+	private final AID aid;
+
+	AppendLogSearchCursor(
+		AppendLogLedgerEntryStore store,
+		StoreIndex.LedgerIndexType type,
+		byte[] compositeKey,
+		long[] stateVersions,
+		int position,
+		AID aid
+	) {
+		if (position < 0 || position >= stateVersions.length) {
+			throw new IllegalArgumentException(String.format("Position %s out of %s entries", position, stateVersions.length));
+		}
+		this.store = Objects.requireNonNull(store);
+		this.type = Objects.requireNonNull(type);
+		this.compositeKey = Objects.requireNonNull(compositeKey);
+		this.stateVersions = stateVersions;
+		this.position = position;
+		this.aid = Objects.requireNonNull(aid);
+	}
+
+	@Override
+	public StoreIndex.LedgerIndexType getType() {
+		return this.type;
+	}
+
+	@Override
+	public AID get() {
+		return this.aid;
+	}
+
+	@Override
+	public SearchCursor next() {
+		if (this.position + 1 < this.stateVersions.length) {
+			return this.store.cursorAt(this.type, this.compositeKey, this.stateVersions, this.position + 1);
+		}
+		return this.store.searchAfter(this.type, this.compositeKey, this.stateVersions[this.position]);
+	}
+
+	@Override
+	public SearchCursor previous() {
+		return this.position > 0 ? this.store.cursorAt(this.type, this.compositeKey, this.stateVersions, this.position - 1) : null;
+	}
+
+	@Override
+	public SearchCursor first() {
+		return this.position == 0 ? this : this.store.cursorAt(this.type, this.compositeKey, this.stateVersions, 0);
+	}
+
+	@Override
+	public SearchCursor last() {
+		return this.store.searchLast(this.type, this.compositeKey);
+	}
+}
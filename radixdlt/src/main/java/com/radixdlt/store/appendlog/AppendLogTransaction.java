@@ -0,0 +1,157 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.store.appendlog;
+
+import com.radixdlt.store.LedgerEntry;
+import com.radixdlt.store.LedgerTransaction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * A {@link LedgerTransaction} of an {@link AppendLogLedgerEntryStore}, which buffers stored
+ * entries and vertex store state until it is committed as a single batch of the log.
+ * <p>
+ * Like the transactions of the other stores, a transaction is used by a single thread.
+ */
+final class AppendLogTransaction implements LedgerTransaction {
+	/**
+	 * An entry stored in a transaction, along with the keys of its indices.
+	 */
+	static final class PendingEntry {
+		private final LedgerEntry entry;
+		private final List<byte[]> uniqueKeys;
+		private final List<byte[]> duplicateKeys;
+
+		PendingEntry(LedgerEntry entry, List<byte[]> uniqueKeys, List<byte[]> duplicateKeys) {
+			this.entry = entry;
+			this.uniqueKeys = uniqueKeys;
+			this.duplicateKeys = duplicateKeys;
+		}
+
+		LedgerEntry getEntry() {
+			return entry;
+		}
+
+		List<byte[]> getUniqueKeys() {
+			return uniqueKeys;
+		}
+
+		List<byte[]> getDuplicateKeys() {
+			return duplicateKeys;
+		}
+	}
+
+	private final AppendLogLedgerEntryStore store;
+	private final List<PendingEntry> entries = new ArrayList<>();
+	// Stored entries by the composite keys of their indices, to be seen by searches within this transaction
+	private final NavigableMap<byte[], LedgerEntry> uniqueKeys = new TreeMap<>(KeyRun.KEY_ORDER);
+	private final NavigableSet<byte[]> duplicateKeys = new TreeSet<>(KeyRun.KEY_ORDER);
+	private byte[] vertexStoreState;
+	private boolean finished = false;
+
+	AppendLogTransaction(AppendLogLedgerEntryStore store) {
+		this.store = Objects.requireNonNull(store);
+	}
+
+	void add(LedgerEntry entry, List<byte[]> uniqueKeys, List<byte[]> duplicateKeys) {
+		checkNotFinished();
+		this.entries.add(new PendingEntry(entry, uniqueKeys, duplicateKeys));
+		for (byte[] key : uniqueKeys) {
+			this.uniqueKeys.put(AppendLogLedgerEntryStore.compositeKey(AppendLogLedgerEntryStore.UNIQUE_KIND, key), entry);
+		}
+		for (byte[] key : duplicateKeys) {
+			this.duplicateKeys.add(AppendLogLedgerEntryStore.compositeKey(AppendLogLedgerEntryStore.DUPLICATE_KIND, key));
+		}
+	}
+
+	void setVertexStoreState(byte[] vertexStoreState) {
+		checkNotFinished();
+		this.vertexStoreState = Objects.requireNonNull(vertexStoreState);
+	}
+
+	List<PendingEntry> getEntries() {
+		return this.entries;
+	}
+
+	Optional<byte[]> getVertexStoreState() {
+		return Optional.ofNullable(this.vertexStoreState);
+	}
+
+	Optional<LedgerEntry> getUnique(byte[] compositeKey) {
+		return Optional.ofNullable(this.uniqueKeys.get(compositeKey));
+	}
+
+	boolean containsDuplicate(byte[] compositeKey) {
+		return this.duplicateKeys.contains(compositeKey);
+	}
+
+	/**
+	 * Retrieves the lowest composite key stored in this transaction which is greater than
+	 * or equal to the specified one.
+	 *
+	 * @param compositeKey the composite key
+	 * @return the lowest matching key, or {@code null} if there is none
+	 */
+	byte[] ceiling(byte[] compositeKey) {
+		final byte[] unique = this.uniqueKeys.ceilingKey(compositeKey);
+		final byte[] duplicate = this.duplicateKeys.ceiling(compositeKey);
+		if (unique == null) {
+			return duplicate;
+		} else if (duplicate == null) {
+			return unique;
+		}
+		return KeyRun.KEY_ORDER.compare(unique, duplicate) <= 0 ? unique : duplicate;
+	}
+
+	boolean isOwnedBy(AppendLogLedgerEntryStore store) {
+		return this.store == store;
+	}
+
+	@Override
+	public void commit() {
+		checkNotFinished();
+		this.finished = true;
+		this.store.commit(this);
+	}
+
+	@Override
+	public void abort() {
+		this.finished = true;
+		this.entries.clear();
+		this.uniqueKeys.clear();
+		this.duplicateKeys.clear();
+		this.vertexStoreState = null;
+	}
+
+	private void checkNotFinished() {
+		if (this.finished) {
+			throw new IllegalStateException("Transaction has already been committed or aborted");
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s{entries=%s finished=%s}", getClass().getSimpleName(), this.entries.size(), this.finished);
+	}
+}
@@ -0,0 +1,487 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.store.appendlog;
+
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterators;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.primitives.UnsignedBytes;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.LongConsumer;
+import java.util.zip.CRC32;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Immutable file of the index keys of the entries in a contiguous range of log segments,
+ * sorted by key and then by state version.
+ * <p>
+ * Keys are stored in blocks, of which the first key is kept in memory as a sparse index
+ * along with a Bloom filter of all keys, so that looking up a key which is not in the run
+ * rarely reads the file.  Runs of adjacent segments are merged into a single run as the
+ * log grows, which keeps the number of runs searched by a lookup low.
+ */
+@ThreadSafe
+final class KeyRun implements Closeable {
+	static final String SUFFIX = ".keys";
+	static final Comparator<byte[]> KEY_ORDER = UnsignedBytes.lexicographicalComparator();
+
+	private static final int MAGIC = 0x5244584B; // "RDXK"
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 2 * Integer.BYTES;
+	private static final int BLOCK_HEADER_SIZE = 2 * Integer.BYTES;
+	private static final int TRAILER_SIZE = 3 * Long.BYTES + Integer.BYTES;
+	// Size at which a block is closed
+	private static final int BLOCK_SIZE = 16 * 1024;
+	private static final double KEY_FILTER_FALSE_POSITIVE_RATE = 0.01;
+
+	/**
+	 * An index key with the state version of an entry it indexes.
+	 */
+	static final class KeyEntry {
+		private final byte[] key;
+		private final long stateVersion;
+
+		KeyEntry(byte[] key, long stateVersion) {
+			this.key = key;
+			this.stateVersion = stateVersion;
+		}
+
+		byte[] getKey() {
+			return key;
+		}
+
+		long getStateVersion() {
+			return stateVersion;
+		}
+	}
+
+	static final Comparator<KeyEntry> KEY_ENTRY_ORDER = Comparator.comparing(KeyEntry::getKey, KEY_ORDER)
+		.thenComparingLong(KeyEntry::getStateVersion);
+
+	private final Path file;
+	private final FileChannel channel;
+	private final long firstSequence;
+	private final long lastSequence;
+	private final long keyCount;
+	private final byte[][] blockKeys;
+	private final long[] blockOffsets;
+	private final long footerOffset;
+	private final BloomFilter<byte[]> keyFilter;
+
+	private KeyRun(
+		Path file,
+		FileChannel channel,
+		long firstSequence,
+		long lastSequence,
+		long keyCount,
+		byte[][] blockKeys,
+		long[] blockOffsets,
+		long footerOffset,
+		BloomFilter<byte[]> keyFilter
+	) {
+		this.file = file;
+		this.channel = channel;
+		this.firstSequence = firstSequence;
+		this.lastSequence = lastSequence;
+		this.keyCount = keyCount;
+		this.blockKeys = blockKeys;
+		this.blockOffsets = blockOffsets;
+		this.footerOffset = footerOffset;
+		this.keyFilter = keyFilter;
+	}
+
+	static String fileName(long firstSequence, long lastSequence) {
+		return String.format("%010d-%010d%s", firstSequence, lastSequence, SUFFIX);
+	}
+
+	/**
+	 * Writes a new run.
+	 *
+	 * @param directory the directory of the log
+	 * @param firstSequence the sequence number of the first segment indexed by the run
+	 * @param lastSequence the sequence number of the last segment indexed by the run
+	 * @param expectedKeys the expected number of distinct keys, used to size the key filter
+	 * @param entries the keys, in {@link #KEY_ENTRY_ORDER}
+	 * @return the written run
+	 * @throws IOException if writing fails
+	 */
+	static KeyRun write(Path directory, long firstSequence, long lastSequence, long expectedKeys, Iterator<KeyEntry> entries) throws IOException {
+		final Path target = directory.resolve(fileName(firstSequence, lastSequence));
+		final Path temp = directory.resolve(fileName(firstSequence, lastSequence) + LogSegment.TEMP_SUFFIX);
+		final BloomFilter<byte[]> filter = BloomFilter.create(
+			Funnels.byteArrayFunnel(), Math.max(1L, expectedKeys), KEY_FILTER_FALSE_POSITIVE_RATE
+		);
+		final List<byte[]> blockKeys = new ArrayList<>();
+		final List<Long> blockOffsets = new ArrayList<>();
+		long keyCount = 0L;
+		try (FileChannel output = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			final CountingOutputStream counting = new CountingOutputStream(new BufferedOutputStream(Channels.newOutputStream(output), BLOCK_SIZE));
+			final DataOutputStream data = new DataOutputStream(counting);
+			data.writeInt(MAGIC);
+			data.writeInt(FORMAT_VERSION);
+
+			final ByteArrayOutputStream blockBuffer = new ByteArrayOutputStream(BLOCK_SIZE * 2);
+			final DataOutputStream block = new DataOutputStream(blockBuffer);
+			KeyEntry previous = null;
+			while (entries.hasNext()) {
+				final KeyEntry entry = entries.next();
+				final int order = previous == null ? 1 : KEY_ORDER.compare(entry.key, previous.key);
+				if (order < 0 || (order == 0 && entry.stateVersion <= previous.stateVersion)) {
+					throw new IllegalArgumentException("Keys of run " + target + " are not sorted");
+				}
+				if (order > 0) {
+					filter.put(entry.key);
+					keyCount += 1;
+				}
+				if (blockBuffer.size() == 0) {
+					blockKeys.add(entry.key);
+				}
+				block.writeInt(entry.key.length);
+				block.write(entry.key);
+				block.writeLong(entry.stateVersion);
+				if (blockBuffer.size() >= BLOCK_SIZE) {
+					blockOffsets.add(writeBlock(data, counting, blockBuffer));
+				}
+				previous = entry;
+			}
+			if (blockBuffer.size() > 0) {
+				blockOffsets.add(writeBlock(data, counting, blockBuffer));
+			}
+
+			final long footerOffset = counting.getCount();
+			data.writeInt(blockKeys.size());
+			for (int i = 0; i < blockKeys.size(); i++) {
+				data.writeInt(blockKeys.get(i).length);
+				data.write(blockKeys.get(i));
+				data.writeLong(blockOffsets.get(i));
+			}
+			data.writeLong(keyCount);
+			final ByteArrayOutputStream filterBytes = new ByteArrayOutputStream();
+			filter.writeTo(filterBytes);
+			data.writeInt(filterBytes.size());
+			filterBytes.writeTo(data);
+			data.writeLong(firstSequence);
+			data.writeLong(lastSequence);
+			data.writeLong(footerOffset);
+			data.writeInt(MAGIC);
+			data.flush();
+			output.force(true);
+		} catch (IOException | RuntimeException e) {
+			Files.deleteIfExists(temp);
+			throw e;
+		}
+		Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+		return open(target);
+	}
+
+	private static long writeBlock(DataOutputStream data, CountingOutputStream counting, ByteArrayOutputStream blockBuffer) throws IOException {
+		final long offset = counting.getCount();
+		final byte[] block = blockBuffer.toByteArray();
+		blockBuffer.reset();
+		CRC32 crc = new CRC32();
+		crc.update(block);
+		data.writeInt(block.length);
+		data.writeInt((int) crc.getValue());
+		data.write(block);
+		return offset;
+	}
+
+	/**
+	 * Writes a new run with the keys of two adjacent runs.  The merged runs are left unchanged.
+	 *
+	 * @param directory the directory of the log
+	 * @param older the run of the preceding segments
+	 * @param newer the run of the following segments
+	 * @return the merged run
+	 * @throws IOException if reading or writing fails
+	 */
+	static KeyRun merge(Path directory, KeyRun older, KeyRun newer) throws IOException {
+		if (older.lastSequence + 1 != newer.firstSequence) {
+			throw new IllegalArgumentException(String.format("Runs %s and %s are not adjacent", older, newer));
+		}
+		final Iterator<KeyEntry> entries = Iterators.mergeSorted(ImmutableList.of(older.iterator(), newer.iterator()), KEY_ENTRY_ORDER);
+		try {
+			return write(directory, older.firstSequence, newer.lastSequence, older.keyCount + newer.keyCount, entries);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Opens an existing run, reading its sparse index and key filter.
+	 *
+	 * @param file the run file
+	 * @return the opened run
+	 * @throws IOException if the file cannot be read or is not a valid run
+	 */
+	static KeyRun open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			final long size = channel.size();
+			if (size < HEADER_SIZE + TRAILER_SIZE) {
+				throw new IOException("Key run " + file + " is truncated");
+			}
+			ByteBuffer header = LogSegment.read(channel, 0L, HEADER_SIZE);
+			if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+				throw new IOException("Key run " + file + " has an unsupported format");
+			}
+			ByteBuffer trailer = LogSegment.read(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+			final long firstSequence = trailer.getLong();
+			final long lastSequence = trailer.getLong();
+			final long footerOffset = trailer.getLong();
+			if (trailer.getInt() != MAGIC || footerOffset < HEADER_SIZE || footerOffset > size - TRAILER_SIZE) {
+				throw new IOException("Key run " + file + " is corrupt");
+			}
+
+			ByteBuffer footer = LogSegment.read(channel, footerOffset, (int) (size - TRAILER_SIZE - footerOffset));
+			final int blocks = footer.getInt();
+			final byte[][] blockKeys = new byte[blocks][];
+			final long[] blockOffsets = new long[blocks];
+			for (int i = 0; i < blocks; i++) {
+				blockKeys[i] = new byte[footer.getInt()];
+				footer.get(blockKeys[i]);
+				blockOffsets[i] = footer.getLong();
+			}
+			final long keyCount = footer.getLong();
+			final int filterLength = footer.getInt();
+			if (filterLength < 0 || filterLength > footer.remaining()) {
+				throw new IOException("Key run " + file + " is corrupt");
+			}
+			final BloomFilter<byte[]> keyFilter = BloomFilter.readFrom(
+				new ByteArrayInputStream(footer.array(), footer.position(), filterLength), Funnels.byteArrayFunnel()
+			);
+			return new KeyRun(file, channel, firstSequence, lastSequence, keyCount, blockKeys, blockOffsets, footerOffset, keyFilter);
+		} catch (BufferUnderflowException | NegativeArraySizeException e) {
+			channel.close();
+			throw new IOException("Key run " + file + " is corrupt", e);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	Path getFile() {
+		return file;
+	}
+
+	long getFirstSequence() {
+		return firstSequence;
+	}
+
+	long getLastSequence() {
+		return lastSequence;
+	}
+
+	long getSegmentCount() {
+		return lastSequence - firstSequence + 1;
+	}
+
+	/**
+	 * Retrieves the state version of the first entry with the specified key.
+	 *
+	 * @param key the key
+	 * @return the state version, or -1 if no entry in this run has the key
+	 * @throws IOException if the run cannot be read
+	 */
+	long getFirst(byte[] key) throws IOException {
+		if (!this.keyFilter.mightContain(key)) {
+			return -1L;
+		}
+		final int startBlock = Math.max(0, lastBlockBefore(key));
+		for (int i = startBlock; i < this.blockOffsets.length; i++) {
+			if (i > startBlock && KEY_ORDER.compare(this.blockKeys[i], key) > 0) {
+				break;
+			}
+			ByteBuffer block = readBlock(i);
+			while (block.hasRemaining()) {
+				final int order = KEY_ORDER.compare(readKey(block), key);
+				final long stateVersion = block.getLong();
+				if (order == 0) {
+					return stateVersion;
+				} else if (order > 0) {
+					return -1L;
+				}
+			}
+		}
+		return -1L;
+	}
+
+	/**
+	 * Passes the state versions of all entries with the specified key to a consumer, in ledger order.
+	 *
+	 * @param key the key
+	 * @param consumer the consumer of the state versions
+	 * @throws IOException if the run cannot be read
+	 */
+	void forEach(byte[] key, LongConsumer consumer) throws IOException {
+		if (!this.keyFilter.mightContain(key)) {
+			return;
+		}
+		final int startBlock = Math.max(0, lastBlockBefore(key));
+		for (int i = startBlock; i < this.blockOffsets.length; i++) {
+			if (i > startBlock && KEY_ORDER.compare(this.blockKeys[i], key) > 0) {
+				break;
+			}
+			ByteBuffer block = readBlock(i);
+			while (block.hasRemaining()) {
+				final int order = KEY_ORDER.compare(readKey(block), key);
+				final long stateVersion = block.getLong();
+				if (order == 0) {
+					consumer.accept(stateVersion);
+				} else if (order > 0) {
+					return;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Retrieves the lowest key in this run which is greater than or equal to the specified key.
+	 *
+	 * @param key the key
+	 * @return the lowest matching key, or {@code null} if there is none
+	 * @throws IOException if the run cannot be read
+	 */
+	byte[] ceiling(byte[] key) throws IOException {
+		for (int i = Math.max(0, lastBlockBefore(key)); i < this.blockOffsets.length; i++) {
+			ByteBuffer block = readBlock(i);
+			while (block.hasRemaining()) {
+				final byte[] entryKey = readKey(block);
+				block.getLong();
+				if (KEY_ORDER.compare(entryKey, key) >= 0) {
+					return entryKey;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Creates an iterator over all keys of this run, in {@link #KEY_ENTRY_ORDER}.
+	 * Read failures are thrown as {@link UncheckedIOException}.
+	 *
+	 * @return the iterator
+	 */
+	Iterator<KeyEntry> iterator() {
+		return new AbstractIterator<KeyEntry>() {
+			private int nextBlock = 0;
+			private ByteBuffer block = null;
+
+			@Override
+			protected KeyEntry computeNext() {
+				try {
+					while (this.block == null || !this.block.hasRemaining()) {
+						if (this.nextBlock >= blockOffsets.length) {
+							return endOfData();
+						}
+						this.block = readBlock(this.nextBlock);
+						this.nextBlock += 1;
+					}
+					final byte[] key = readKey(this.block);
+					return new KeyEntry(key, this.block.getLong());
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Closes and deletes this run.
+	 *
+	 * @throws IOException if the file cannot be deleted
+	 */
+	void delete() throws IOException {
+		close();
+		Files.deleteIfExists(this.file);
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s{file=%s keys=%s}", getClass().getSimpleName(), this.file, this.keyCount);
+	}
+
+	// Index of the last block starting with a key lower than the specified one, or -1 if none
+	private int lastBlockBefore(byte[] key) {
+		int low = 0;
+		int high = this.blockKeys.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (KEY_ORDER.compare(this.blockKeys[mid], key) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return high;
+	}
+
+	private ByteBuffer readBlock(int index) throws IOException {
+		final long offset = this.blockOffsets[index];
+		final long end = index + 1 < this.blockOffsets.length ? this.blockOffsets[index + 1] : this.footerOffset;
+		ByteBuffer block = LogSegment.read(this.channel, offset, (int) (end - offset));
+		final int length = block.getInt();
+		final int checksum = block.getInt();
+		if (length != block.remaining()) {
+			throw new IOException("Invalid block at offset " + offset + " in key run " + this.file);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(block.array(), BLOCK_HEADER_SIZE, length);
+		if ((int) crc.getValue() != checksum) {
+			throw new IOException("Corrupt block at offset " + offset + " in key run " + this.file);
+		}
+		return block;
+	}
+
+	private static byte[] readKey(ByteBuffer block) throws IOException {
+		final int length = block.getInt();
+		if (length < 0 || length > block.remaining()) {
+			throw new IOException("Invalid key length " + length);
+		}
+		final byte[] key = new byte[length];
+		block.get(key);
+		return key;
+	}
+
+}
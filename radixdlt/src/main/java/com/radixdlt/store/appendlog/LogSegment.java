@@ -0,0 +1,515 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.store.appendlog;
+
+import com.radixdlt.identifiers.AID;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * A file of the ledger log, holding the batches of records appended by committed transactions.
+ * <p>
+ * Each batch is written as its length and checksum followed by its records, so that a batch
+ * torn by a crash is detected and dropped when the log is reopened.  The location of each
+ * ledger entry in the file is kept in memory, and is written to a table file when the segment
+ * is sealed, so that sealed segments do not need to be read in full on startup.
+ * <p>
+ * Records are read concurrently, while the entry table is guarded by the owning store.
+ */
+final class LogSegment implements Closeable {
+	private static final Logger log = LogManager.getLogger();
+
+	static final String SUFFIX = ".log";
+	static final String TABLE_SUFFIX = ".idx";
+	static final String TEMP_SUFFIX = ".tmp";
+
+	private static final int MAGIC = 0x5244584C; // "RDXL"
+	private static final int TABLE_MAGIC = 0x52445854; // "RDXT"
+	private static final int FORMAT_VERSION = 1;
+	private static final int HEADER_SIZE = 2 * Integer.BYTES;
+	private static final int BATCH_HEADER_SIZE = 2 * Integer.BYTES;
+	private static final int INITIAL_CAPACITY = 1024;
+
+	static final byte ENTRY_RECORD = 1;
+	static final byte VERTEX_STORE_STATE_RECORD = 2;
+	// Type, state version, proof version, AID and content length of an entry record
+	static final int ENTRY_HEADER_SIZE = 1 + 2 * Long.BYTES + AID.BYTES + Integer.BYTES;
+	// Type, sequence and data length of a vertex store state record, which marks a state saved with the batch
+	// in VertexStoreStateSlots, and has no data
+	static final int VERTEX_STORE_STATE_HEADER_SIZE = 1 + Long.BYTES + Integer.BYTES;
+
+	/**
+	 * Visitor of the records of a segment.
+	 */
+	interface RecordVisitor {
+		/**
+		 * Visits a ledger entry.
+		 *
+		 * @param offset the offset of the record in the segment
+		 * @param length the length of the record up to the end of the entry content
+		 * @param stateVersion the state version of the entry
+		 * @param aid the AID of the entry
+		 * @param uniqueKeys the unique index keys of the entry
+		 * @param duplicateKeys the duplicate index keys of the entry
+		 */
+		void entry(long offset, int length, long stateVersion, AID aid, List<byte[]> uniqueKeys, List<byte[]> duplicateKeys);
+
+		/**
+		 * Visits the marker of a vertex store state saved with the batch.
+		 *
+		 * @param offset the offset of the record in the segment
+		 * @param length the length of the record
+		 * @param sequence the sequence number of the vertex store state
+		 */
+		void vertexStoreState(long offset, int length, long sequence);
+	}
+
+	private final long sequence;
+	private final Path file;
+	private final FileChannel channel;
+	private long size;
+
+	// Location of entries by state version, in ledger order
+	private long[] stateVersions = new long[INITIAL_CAPACITY];
+	private long[] offsets = new long[INITIAL_CAPACITY];
+	private int[] lengths = new int[INITIAL_CAPACITY];
+	private int count = 0;
+
+	// Location of the last vertex store state marker in this segment
+	private long vertexStoreStateOffset = -1L;
+	private int vertexStoreStateLength = 0;
+	private long vertexStoreStateSequence = -1L;
+
+	private LogSegment(long sequence, Path file, FileChannel channel, long size) {
+		this.sequence = sequence;
+		this.file = file;
+		this.channel = channel;
+		this.size = size;
+	}
+
+	/**
+	 * Creates a new empty segment.
+	 *
+	 * @param directory the directory of the log
+	 * @param sequence the sequence number of the segment in the log
+	 * @return the created segment
+	 * @throws IOException if the file cannot be created
+	 */
+	static LogSegment create(Path directory, long sequence) throws IOException {
+		Path file = directory.resolve(fileName(sequence, SUFFIX));
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			writeHeader(channel);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		return new LogSegment(sequence, file, channel, HEADER_SIZE);
+	}
+
+	/**
+	 * Opens an existing segment, without reading its entries.
+	 *
+	 * @param file the segment file
+	 * @param sequence the sequence number of the segment in the log
+	 * @return the opened segment
+	 * @throws IOException if the file cannot be read or is not a segment
+	 */
+	static LogSegment open(Path file, long sequence) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			long size = channel.size();
+			if (size < HEADER_SIZE) {
+				// Created just before a crash, before any batch was appended
+				channel.truncate(0L);
+				writeHeader(channel);
+				size = HEADER_SIZE;
+			}
+			ByteBuffer header = read(channel, 0L, HEADER_SIZE);
+			if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+				throw new IOException("Log segment " + file + " has an unsupported format");
+			}
+			return new LogSegment(sequence, file, channel, size);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	static String fileName(long sequence, String suffix) {
+		return String.format("%010d%s", sequence, suffix);
+	}
+
+	long getSequence() {
+		return this.sequence;
+	}
+
+	Path getFile() {
+		return this.file;
+	}
+
+	long getSize() {
+		return this.size;
+	}
+
+	boolean isEmpty() {
+		return this.size <= HEADER_SIZE;
+	}
+
+	/**
+	 * Allocates a buffer for a batch with a payload of the specified length, positioned
+	 * at the start of the payload.  Records in the payload are located at the current size
+	 * of this segment plus their position in the buffer once the batch is appended.
+	 *
+	 * @param payloadLength the length of the records in the batch
+	 * @return the buffer for the batch
+	 */
+	static ByteBuffer allocateBatch(int payloadLength) {
+		ByteBuffer batch = ByteBuffer.allocate(BATCH_HEADER_SIZE + payloadLength);
+		batch.position(BATCH_HEADER_SIZE);
+		return batch;
+	}
+
+	/**
+	 * Appends a batch allocated by {@link #allocateBatch(int)} with its payload filled in.
+	 * The batch is not forced to storage.
+	 *
+	 * @param batch the batch to append
+	 * @throws IOException if writing fails
+	 */
+	void append(ByteBuffer batch) throws IOException {
+		if (batch.hasRemaining()) {
+			throw new IllegalArgumentException("Batch payload is incomplete");
+		}
+		final int payloadLength = batch.capacity() - BATCH_HEADER_SIZE;
+		CRC32 crc = new CRC32();
+		crc.update(batch.array(), BATCH_HEADER_SIZE, payloadLength);
+		batch.putInt(0, payloadLength);
+		batch.putInt(Integer.BYTES, (int) crc.getValue());
+		batch.flip();
+		write(this.channel, batch, this.size);
+		this.size += batch.limit();
+	}
+
+	/**
+	 * Reads the records of all complete batches in the order they were appended.
+	 *
+	 * @param visitor the visitor of the records
+	 * @return the end of the last complete batch, which is lower than the size of the file if the last batch was torn
+	 * @throws IOException if the file cannot be read, or a complete batch is invalid
+	 */
+	long replay(RecordVisitor visitor) throws IOException {
+		final long fileSize = this.channel.size();
+		long position = HEADER_SIZE;
+		while (position + BATCH_HEADER_SIZE <= fileSize) {
+			ByteBuffer header = read(this.channel, position, BATCH_HEADER_SIZE);
+			final int payloadLength = header.getInt();
+			final int checksum = header.getInt();
+			final long payloadOffset = position + BATCH_HEADER_SIZE;
+			if (payloadLength < 0 || payloadOffset + payloadLength > fileSize) {
+				break;
+			}
+			ByteBuffer payload = read(this.channel, payloadOffset, payloadLength);
+			CRC32 crc = new CRC32();
+			crc.update(payload.array(), 0, payloadLength);
+			if ((int) crc.getValue() != checksum) {
+				break;
+			}
+			try {
+				replayBatch(payloadOffset, payload, visitor);
+			} catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+				throw new IOException("Invalid batch at offset " + position + " in log segment " + this.file, e);
+			}
+			position = payloadOffset + payloadLength;
+		}
+		return position;
+	}
+
+	private void replayBatch(long payloadOffset, ByteBuffer payload, RecordVisitor visitor) throws IOException {
+		while (payload.hasRemaining()) {
+			final int start = payload.position();
+			final long offset = payloadOffset + start;
+			final byte type = payload.get();
+			if (type == ENTRY_RECORD) {
+				final long stateVersion = payload.getLong();
+				payload.getLong(); // Proof version
+				final AID aid = AID.from(payload.array(), payload.position());
+				payload.position(payload.position() + AID.BYTES);
+				final int contentLength = payload.getInt();
+				if (contentLength < 0) {
+					throw new IOException("Invalid entry at offset " + offset + " in log segment " + this.file);
+				}
+				payload.position(payload.position() + contentLength);
+				final int length = payload.position() - start;
+				final List<byte[]> uniqueKeys = readKeys(payload);
+				final List<byte[]> duplicateKeys = readKeys(payload);
+				visitor.entry(offset, length, stateVersion, aid, uniqueKeys, duplicateKeys);
+			} else if (type == VERTEX_STORE_STATE_RECORD) {
+				final long vertexSequence = payload.getLong();
+				final int dataLength = payload.getInt();
+				if (dataLength < 0) {
+					throw new IOException("Invalid vertex store state at offset " + offset + " in log segment " + this.file);
+				}
+				payload.position(payload.position() + dataLength);
+				visitor.vertexStoreState(offset, payload.position() - start, vertexSequence);
+			} else {
+				throw new IOException("Unknown record type " + type + " at offset " + offset + " in log segment " + this.file);
+			}
+		}
+	}
+
+	private static List<byte[]> readKeys(ByteBuffer payload) throws IOException {
+		final int keyCount = payload.getInt();
+		if (keyCount < 0) {
+			throw new IOException("Invalid key count " + keyCount);
+		}
+		final List<byte[]> keys = new ArrayList<>(keyCount);
+		for (int i = 0; i < keyCount; i++) {
+			final int keyLength = payload.getInt();
+			if (keyLength < 0 || keyLength > payload.remaining()) {
+				throw new IOException("Invalid key length " + keyLength);
+			}
+			final byte[] key = new byte[keyLength];
+			payload.get(key);
+			keys.add(key);
+		}
+		return keys;
+	}
+
+	/**
+	 * Discards everything following the specified offset, such as a torn batch.
+	 *
+	 * @param newSize the new size of the segment
+	 * @throws IOException if the file cannot be truncated
+	 */
+	void truncate(long newSize) throws IOException {
+		this.channel.truncate(newSize);
+		this.size = newSize;
+	}
+
+	/**
+	 * Forces all appended batches to storage.
+	 *
+	 * @throws IOException if forcing fails
+	 */
+	void force() throws IOException {
+		this.channel.force(true);
+	}
+
+	ByteBuffer read(long offset, int length) throws IOException {
+		return read(this.channel, offset, length);
+	}
+
+	void addEntry(long stateVersion, long offset, int length) {
+		if (this.count > 0 && stateVersion <= this.stateVersions[this.count - 1]) {
+			throw new IllegalArgumentException(String.format(
+				"State version %s does not follow %s in log segment %s", stateVersion, this.stateVersions[this.count - 1], this.file
+			));
+		}
+		if (this.count == this.stateVersions.length) {
+			final int capacity = this.count * 2;
+			this.stateVersions = Arrays.copyOf(this.stateVersions, capacity);
+			this.offsets = Arrays.copyOf(this.offsets, capacity);
+			this.lengths = Arrays.copyOf(this.lengths, capacity);
+		}
+		this.stateVersions[this.count] = stateVersion;
+		this.offsets[this.count] = offset;
+		this.lengths[this.count] = length;
+		this.count += 1;
+	}
+
+	int getEntryCount() {
+		return this.count;
+	}
+
+	long getStateVersion(int index) {
+		return this.stateVersions[index];
+	}
+
+	long getOffset(int index) {
+		return this.offsets[index];
+	}
+
+	int getLength(int index) {
+		return this.lengths[index];
+	}
+
+	/**
+	 * Retrieves the index of the first entry with a state version greater than or equal to the specified one.
+	 *
+	 * @param stateVersion the state version to search for
+	 * @return the index of the entry, or the number of entries if there is none
+	 */
+	int ceilingIndex(long stateVersion) {
+		final int index = Arrays.binarySearch(this.stateVersions, 0, this.count, stateVersion);
+		return index >= 0 ? index : -index - 1;
+	}
+
+	void setVertexStoreState(long offset, int length, long vertexSequence) {
+		this.vertexStoreStateOffset = offset;
+		this.vertexStoreStateLength = length;
+		this.vertexStoreStateSequence = vertexSequence;
+	}
+
+	long getVertexStoreStateSequence() {
+		return this.vertexStoreStateSequence;
+	}
+
+	/**
+	 * Writes the entry table of this segment to its table file, replacing any previous one.
+	 *
+	 * @throws IOException if writing fails
+	 */
+	void writeTable() throws IOException {
+		final int tableSize = 3 * Integer.BYTES + Long.BYTES
+			+ this.count * (2 * Long.BYTES + Integer.BYTES)
+			+ 2 * Long.BYTES + Integer.BYTES
+			+ Integer.BYTES;
+		ByteBuffer table = ByteBuffer.allocate(tableSize);
+		table.putInt(TABLE_MAGIC).putInt(FORMAT_VERSION).putLong(this.size).putInt(this.count);
+		for (int i = 0; i < this.count; i++) {
+			table.putLong(this.stateVersions[i]).putLong(this.offsets[i]).putInt(this.lengths[i]);
+		}
+		table.putLong(this.vertexStoreStateOffset).putInt(this.vertexStoreStateLength).putLong(this.vertexStoreStateSequence);
+		CRC32 crc = new CRC32();
+		crc.update(table.array(), 0, table.position());
+		table.putInt((int) crc.getValue());
+		table.flip();
+
+		final Path tableFile = tableFile();
+		final Path tempFile = tableFile.resolveSibling(tableFile.getFileName() + TEMP_SUFFIX);
+		try (FileChannel tableChannel = FileChannel.open(
+			tempFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE
+		)) {
+			write(tableChannel, table, 0L);
+			tableChannel.force(true);
+		}
+		Files.move(tempFile, tableFile, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * Loads the entry table of this segment from its table file.
+	 *
+	 * @return {@code true} if the table was loaded, {@code false} if the table file is missing or does not match the segment
+	 * @throws IOException if the table file cannot be read
+	 */
+	boolean loadTable() throws IOException {
+		final byte[] data;
+		try {
+			data = Files.readAllBytes(tableFile());
+		} catch (NoSuchFileException e) {
+			return false;
+		}
+		try {
+			ByteBuffer table = ByteBuffer.wrap(data);
+			CRC32 crc = new CRC32();
+			crc.update(data, 0, Math.max(0, data.length - Integer.BYTES));
+			if (table.getInt() != TABLE_MAGIC
+				|| table.getInt() != FORMAT_VERSION
+				|| table.getLong() != this.size
+				|| table.getInt(data.length - Integer.BYTES) != (int) crc.getValue()) {
+				log.warn("Ignoring table of log segment {} which does not match the segment", this.file);
+				return false;
+			}
+			final int entries = table.getInt();
+			if (entries < 0) {
+				throw new IllegalArgumentException("Invalid entry count " + entries);
+			}
+			final int capacity = Math.max(INITIAL_CAPACITY, entries);
+			this.stateVersions = new long[capacity];
+			this.offsets = new long[capacity];
+			this.lengths = new int[capacity];
+			for (int i = 0; i < entries; i++) {
+				this.stateVersions[i] = table.getLong();
+				this.offsets[i] = table.getLong();
+				this.lengths[i] = table.getInt();
+			}
+			this.count = entries;
+			setVertexStoreState(table.getLong(), table.getInt(), table.getLong());
+			return true;
+		} catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+			log.warn("Ignoring invalid table of log segment {}", this.file, e);
+			this.count = 0;
+			return false;
+		}
+	}
+
+	private Path tableFile() {
+		return this.file.resolveSibling(fileName(this.sequence, TABLE_SUFFIX));
+	}
+
+	/**
+	 * Closes and deletes this segment and its table file.
+	 *
+	 * @throws IOException if a file cannot be deleted
+	 */
+	void delete() throws IOException {
+		close();
+		Files.deleteIfExists(this.file);
+		Files.deleteIfExists(tableFile());
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s{file=%s entries=%s size=%s}", getClass().getSimpleName(), this.file, this.count, this.size);
+	}
+
+	private static void writeHeader(FileChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+		write(channel, header, 0L);
+	}
+
+	static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Unexpected end of file at " + (position + buffer.position()));
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		final long start = position - buffer.position();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer, start + buffer.position());
+		}
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.store.appendlog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The last saved vertex store state of a ledger log, kept in two files outside the log
+ * which are overwritten in turn, so that saving a state does not grow the log.
+ * <p>
+ * A state is written to the file not holding the current state, so that a write torn by a
+ * crash leaves the previous state intact.  A state saved with committed ledger entries is
+ * marked as transactional, and is only valid if the batch holding those entries, which
+ * records the sequence of the state, was appended to the log.  Such a state is forced to
+ * storage before the batch is appended, so that the log never holds entries committed with
+ * a state that was lost on a crash of the machine.
+ * <p>
+ * Guarded by the owning store.
+ */
+final class VertexStoreStateSlots implements Closeable {
+	private static final Logger log = LogManager.getLogger();
+
+	static final String FILE_PREFIX = "vertex_store_state.";
+
+	private static final int MAGIC = 0x52445856; // "RDXV"
+	private static final byte TRANSACTIONAL = 1;
+	// Magic, sequence, flags, data length and checksum of a slot
+	private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES + 1 + 2 * Integer.BYTES;
+
+	private final FileChannel[] channels;
+	private int current = -1;
+	private long sequence = -1L;
+	private byte[] data = null;
+
+	private VertexStoreStateSlots(FileChannel[] channels) {
+		this.channels = channels;
+	}
+
+	/**
+	 * Opens the slots in the specified directory, creating them if needed.
+	 *
+	 * @param directory the directory of the log
+	 * @param lastMarkerSequence the highest sequence of a state recorded in the log, or -1 if none
+	 * @return the opened slots
+	 * @throws IOException if a file cannot be opened or read
+	 */
+	static VertexStoreStateSlots open(Path directory, long lastMarkerSequence) throws IOException {
+		final FileChannel[] channels = new FileChannel[2];
+		final VertexStoreStateSlots slots = new VertexStoreStateSlots(channels);
+		try {
+			for (int i = 0; i < channels.length; i++) {
+				channels[i] = FileChannel.open(
+					directory.resolve(FILE_PREFIX + i), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE
+				);
+			}
+			slots.load(lastMarkerSequence);
+		} catch (IOException e) {
+			slots.close();
+			throw e;
+		}
+		return slots;
+	}
+
+	private void load(long lastMarkerSequence) throws IOException {
+		this.sequence = lastMarkerSequence;
+		for (int i = 0; i < this.channels.length; i++) {
+			final FileChannel channel = this.channels[i];
+			if (channel.size() < HEADER_SIZE) {
+				continue;
+			}
+			try {
+				final ByteBuffer header = LogSegment.read(channel, 0L, HEADER_SIZE);
+				final int magic = header.getInt();
+				final long slotSequence = header.getLong();
+				final byte flags = header.get();
+				final int length = header.getInt();
+				final int checksum = header.getInt();
+				if (magic != MAGIC || length < 0 || length > channel.size() - HEADER_SIZE) {
+					log.warn("Ignoring invalid vertex store state in slot {}", i);
+					continue;
+				}
+				final byte[] slotData = LogSegment.read(channel, HEADER_SIZE, length).array();
+				if (checksum != checksum(slotSequence, flags, slotData)) {
+					log.warn("Ignoring torn vertex store state in slot {}", i);
+					continue;
+				}
+				// Sequences of discarded states are not reused
+				this.sequence = Math.max(this.sequence, slotSequence);
+				if ((flags & TRANSACTIONAL) != 0 && slotSequence > lastMarkerSequence) {
+					log.warn("Ignoring vertex store state {} saved with ledger entries missing from the log", slotSequence);
+					continue;
+				}
+				if (this.current < 0 || slotSequence > sequenceOf(this.current)) {
+					this.current = i;
+					this.data = slotData;
+				}
+			} catch (BufferUnderflowException e) {
+				log.warn("Ignoring invalid vertex store state in slot {}", i, e);
+			}
+		}
+	}
+
+	private long sequenceOf(int slot) throws IOException {
+		return LogSegment.read(this.channels[slot], Integer.BYTES, Long.BYTES).getLong();
+	}
+
+	/**
+	 * Reserves the sequence of the next state to be written.
+	 *
+	 * @return the sequence of the next state
+	 */
+	long nextSequence() {
+		this.sequence += 1;
+		return this.sequence;
+	}
+
+	/**
+	 * Writes a state to the slot not holding the current state, without making it current.
+	 *
+	 * @param stateSequence the sequence of the state, as reserved by {@link #nextSequence()}
+	 * @param stateData the serialized state
+	 * @param transactional whether the state is only valid once its sequence is recorded in the log
+	 * @return the slot written
+	 * @throws IOException if writing fails
+	 */
+	int write(long stateSequence, byte[] stateData, boolean transactional) throws IOException {
+		final int slot = this.current == 0 ? 1 : 0;
+		final byte flags = transactional ? TRANSACTIONAL : 0;
+		final ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + stateData.length);
+		buffer.putInt(MAGIC)
+			.putLong(stateSequence)
+			.put(flags)
+			.putInt(stateData.length)
+			.putInt(checksum(stateSequence, flags, stateData))
+			.put(stateData)
+			.flip();
+		final FileChannel channel = this.channels[slot];
+		LogSegment.write(channel, buffer, 0L);
+		channel.truncate(buffer.limit());
+		if (transactional) {
+			channel.force(false);
+		}
+		return slot;
+	}
+
+	/**
+	 * Makes a written state current.
+	 *
+	 * @param slot the slot written
+	 * @param stateData the serialized state written to the slot
+	 */
+	void setCurrent(int slot, byte[] stateData) {
+		this.current = slot;
+		this.data = stateData;
+	}
+
+	/**
+	 * Gets the current state.
+	 *
+	 * @return the serialized current state, or {@code null} if none was saved
+	 */
+	byte[] getData() {
+		return this.data;
+	}
+
+	/**
+	 * Discards all saved states.
+	 *
+	 * @throws IOException if the files cannot be truncated
+	 */
+	void clear() throws IOException {
+		for (FileChannel channel : this.channels) {
+			channel.truncate(0L);
+		}
+		this.current = -1;
+		this.sequence = -1L;
+		this.data = null;
+	}
+
+	/**
+	 * Forces the saved states to storage.
+	 *
+	 * @throws IOException if forcing fails
+	 */
+	void force() throws IOException {
+		for (FileChannel channel : this.channels) {
+			channel.force(true);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		IOException failure = null;
+		for (FileChannel channel : this.channels) {
+			if (channel != null) {
+				try {
+					channel.close();
+				} catch (IOException e) {
+					failure = e;
+				}
+			}
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	private static int checksum(long stateSequence, byte flags, byte[] stateData) {
+		final CRC32 crc = new CRC32();
+		crc.update(ByteBuffer.allocate(Long.BYTES + 1).putLong(stateSequence).put(flags).flip());
+		crc.update(stateData);
+		return (int) crc.getValue();
+	}
+}
@@ -17,6 +17,7 @@
 
 package com.radixdlt.store.berkeley;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.primitives.UnsignedBytes;
@@ -26,6 +27,7 @@ import com.radixdlt.consensus.bft.PersistentVertexStore;
 import com.radixdlt.consensus.bft.VerifiedVertexStoreState;
 import com.radixdlt.counters.SystemCounters;
 import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.counters.SystemCounters.HistogramType;
 import com.radixdlt.identifiers.AID;
 import com.radixdlt.store.SearchCursor;
 import com.radixdlt.store.StoreIndex;
@@ -38,6 +40,7 @@ import com.radixdlt.store.LedgerEntry;
 import com.radixdlt.store.LedgerEntryConflict;
 import com.radixdlt.store.LedgerEntryStoreResult;
 import com.radixdlt.store.LedgerEntryStore;
+import com.radixdlt.store.LedgerTransaction;
 import com.radixdlt.utils.Longs;
 import com.sleepycat.je.Cursor;
 import com.sleepycat.je.Database;
@@ -59,14 +62,18 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.radix.database.DatabaseEnvironment;
 
+import java.io.IOException;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import static com.radixdlt.store.berkeley.LedgerEntryIndices.ENTRY_INDEX_PREFIX;
@@ -80,6 +87,12 @@ public class BerkeleyLedgerEntryStore implements LedgerEntryStore, PersistentVer
 	private static final String UNIQUE_INDICES_DB_NAME = "tempo2.unique_indices";
 	private static final String PENDING_DB_NAME = "tempo2.pending";
 	private static final String ATOMS_DB_NAME = "tempo2.atoms";
+	private static final String COLD_DIRECTORY_NAME = "cold";
+
+	// Content of committed entries which have been moved to cold storage
+	private static final byte[] PRUNED_CONTENT = new byte[0];
+	// Number of entries removed from the live database per transaction when pruning
+	private static final int PRUNE_BATCH_SIZE = 1000;
 
 	// TODO: Remove
 	private static final byte PREFIX_COMMITTED = 0b0000_0000;
@@ -95,6 +108,7 @@ public class BerkeleyLedgerEntryStore implements LedgerEntryStore, PersistentVer
 	private SecondaryDatabase duplicatedIndices; // TempoAtoms by secondary duplicate indices (with prefixes)
 	private Database atomIndices; // TempoAtomIndices by same primary keys
 	private Database pendingDatabase; // AIDs marked as 'pending'
+	private ColdLedgerStore coldStore; // Committed entries pruned from the live databases
 
 	@Inject
 	public BerkeleyLedgerEntryStore(
@@ -147,6 +161,7 @@ public class BerkeleyLedgerEntryStore implements LedgerEntryStore, PersistentVer
 			this.duplicatedIndices = env.openSecondaryDatabase(null, DUPLICATE_INDICES_DB_NAME, this.atoms, duplicateIndicesConfig);
 			this.atomIndices = env.openDatabase(null, ATOM_INDICES_DB_NAME, primaryConfig);
 			this.pendingDatabase = env.openDatabase(null, PENDING_DB_NAME, pendingConfig);
+			this.coldStore = new ColdLedgerStore(env.getHome().toPath().resolve(COLD_DIRECTORY_NAME));
 		} catch (Exception e) {
 			throw new BerkeleyStoreException("Error while opening databases", e);
 		}
@@ -185,6 +200,12 @@ public class BerkeleyLedgerEntryStore implements LedgerEntryStore, PersistentVer
 
 				throw new BerkeleyStoreException("Error while resetting databases", e);
 			}
+
+			try {
+				this.coldStore.clear();
+			} catch (IOException e) {
+				throw new BerkeleyStoreException("Error while deleting cold ledger segments", e);
+			}
 		});
 	}
 
@@ -205,6 +226,13 @@ public class BerkeleyLedgerEntryStore implements LedgerEntryStore, PersistentVer
 		if (this.pendingDatabase != null) {
 			this.pendingDatabase.close();
 		}
+		if (this.coldStore != null) {
+			try {
+				this.coldStore.close();
+			} catch (IOException e) {
+				log.warn("Error while closing cold ledger segments", e);
+			}
+		}
 	}
 
 	private void fail(String message) {
@@ -234,10 +262,11 @@ public class BerkeleyLedgerEntryStore implements LedgerEntryStore, PersistentVer
 		try {
 			try {
 				DatabaseEntry key = new DatabaseEntry(StoreIndex.from(ENTRY_INDEX_PREFIX, aid.getBytes()));
+				DatabaseEntry pKey = new DatabaseEntry();
 				DatabaseEntry value = new DatabaseEntry();
 
-				if (this.uniqueIndices.get(null, key, value, LockMode.DEFAULT) == OperationStatus.SUCCESS) {
-					return Optional.of(serialization.fromDson(value.getData(), LedgerEntry.class));
+				if (this.uniqueIndices.get(null, key, pKey, value, LockMode.DEFAULT) == OperationStatus.SUCCESS) {
+					return Optional.of(toLedgerEntry(pKey, value));
 				}
 			} catch (Exception e) {
 				fail("Get of atom '" + aid + "' failed", e);
@@ -250,10 +279,10 @@ public class BerkeleyLedgerEntryStore implements LedgerEntryStore, PersistentVer
 	}
 
 	@Override
-	public Transaction createTransaction() {
+	public LedgerTransaction createTransaction() {
 		final var start = System.nanoTime();
 		try {
-			return dbEnv.getEnvironment().beginTransaction(null, null);
+			return new BerkeleyTransaction(dbEnv.getEnvironment().beginTransaction(null, null));
 		} finally {
 			addTime(start, CounterType.ELAPSED_BDB_LEDGER_CREATE_TX, CounterType.COUNT_BDB_LEDGER_CREATE_TX);
 		}
@@ -261,7 +290,7 @@ public class BerkeleyLedgerEntryStore implements LedgerEntryStore, PersistentVer
 
 	@Override
 	public LedgerEntryStoreResult store(
-		Transaction tx,
+		LedgerTransaction tx,
 		LedgerEntry atom,
 		Set<StoreIndex> uniqueIndices,
 		Set<StoreIndex> duplicateIndices
@@ -271,7 +300,7 @@ public class BerkeleyLedgerEntryStore implements LedgerEntryStore, PersistentVer
 		byte[] atomData = serialization.toDson(atom, Output.PERSIST);
 
 		try {
-			return doStore(PREFIX_COMMITTED, atom.getStateVersion(), atom.getAID(), atomData, indices, tx);
+			return doStore(PREFIX_COMMITTED, atom.getStateVersion(), atom.getAID(), atomData, indices, BerkeleyTransaction.unwrap(tx));
 		} catch (Exception e) {
 			throw new BerkeleyStoreException("Commit of atom failed", e);
 		} finally {
@@ -309,10 +338,12 @@ public class BerkeleyLedgerEntryStore implements LedgerEntryStore, PersistentVer
 				fail("Commit of pending atom '" + aid + "' failed", e);
 			}
 		} finally {
-			addTime(start, CounterType.ELAPSED_BDB_LEDGER_COMMIT, CounterType.COUNT_BDB_LEDGER_COMMIT);
+			final var elapsed = addTime(start, CounterType.ELAPSED_BDB_LEDGER_COMMIT, CounterType.COUNT_BDB_LEDGER_COMMIT);
+			this.systemCounters.record(HistogramType.LATENCY_BDB_LEDGER_COMMIT, elapsed);
 		}
 	}
 
+	@Override
 	public Optional<SerializedVertexStoreState> loadLastVertexStoreState() {
 		final var start = System.nanoTime();
 		try {
@@ -337,10 +368,10 @@ public class BerkeleyLedgerEntryStore implements LedgerEntryStore, PersistentVer
 	}
 
 	@Override
-	public void save(Transaction transaction, VerifiedVertexStoreState vertexStoreState) {
+	public void save(LedgerTransaction transaction, VerifiedVertexStoreState vertexStoreState) {
 		final var start = System.nanoTime();
 		try {
-			doSave(transaction, vertexStoreState);
+			doSave(BerkeleyTransaction.unwrap(transaction), vertexStoreState);
 		} finally {
 			addTime(start, CounterType.ELAPSED_BDB_LEDGER_SAVE_TX, CounterType.COUNT_BDB_LEDGER_SAVE_TX);
 		}
@@ -421,11 +452,12 @@ public class BerkeleyLedgerEntryStore implements LedgerEntryStore, PersistentVer
 		ImmutableMap.Builder<StoreIndex, LedgerEntry> conflictingAtoms = ImmutableMap.builder();
 		try {
 			DatabaseEntry key = new DatabaseEntry();
+			DatabaseEntry pKey = new DatabaseEntry();
 			DatabaseEntry value = new DatabaseEntry();
 			for (StoreIndex uniqueIndex : uniqueIndices) {
 				key.setData(uniqueIndex.asKey());
-				if (this.uniqueIndices.get(transaction, key, value, LockMode.DEFAULT) == OperationStatus.SUCCESS) {
-					LedgerEntry conflictingAtom = serialization.fromDson(value.getData(), LedgerEntry.class);
+				if (this.uniqueIndices.get(transaction, key, pKey, value, LockMode.DEFAULT) == OperationStatus.SUCCESS) {
+					LedgerEntry conflictingAtom = toLedgerEntry(pKey, value);
 					conflictingAtoms.put(uniqueIndex, conflictingAtom);
 				}
 			}
@@ -496,7 +528,7 @@ public class BerkeleyLedgerEntryStore implements LedgerEntryStore, PersistentVer
 
 						// TODO when uqCursor fails to fetch value, which means some form of DB corruption has occurred, how should we handle it?
 						if (uqCursorStatus == OperationStatus.SUCCESS) {
-							LedgerEntry ledgerEntry = serialization.fromDson(value.getData(), LedgerEntry.class);
+							LedgerEntry ledgerEntry = toLedgerEntry(atomSearchKey, value);
 							if (proofVersion == -1) {
 								proofVersion = ledgerEntry.getProofVersion();
 							} else if (ledgerEntry.getProofVersion() != proofVersion) {
@@ -524,12 +556,241 @@ public class BerkeleyLedgerEntryStore implements LedgerEntryStore, PersistentVer
 		}
 	}
 
+	/**
+	 * Visitor of the raw content of committed ledger entries.
+	 */
+	@FunctionalInterface
+	public interface CommittedEntryVisitor {
+		void visit(long stateVersion, AID aid, byte[] ledgerEntryData, byte[] indicesData) throws IOException;
+	}
+
+	/**
+	 * Visits the persisted form of all committed ledger entries and their indices up to and
+	 * including the specified state version, in ledger order.
+	 *
+	 * @param toStateVersion the state version of the last entry to visit
+	 * @param visitor the visitor to call for each entry
+	 * @throws IOException if the visitor throws
+	 */
+	public void forEachCommitted(long toStateVersion, CommittedEntryVisitor visitor) throws IOException {
+		forEachCommitted(0L, toStateVersion, visitor);
+	}
+
+	private void forEachCommitted(long fromStateVersion, long toStateVersion, CommittedEntryVisitor visitor) throws IOException {
+		try (Cursor atomCursor = this.atoms.openCursor(null, null)) {
+			DatabaseEntry pKey = toPKey(PREFIX_COMMITTED, fromStateVersion);
+			DatabaseEntry value = new DatabaseEntry();
+			DatabaseEntry indices = new DatabaseEntry();
+			OperationStatus status = atomCursor.getSearchKeyRange(pKey, value, LockMode.READ_COMMITTED);
+			while (status == OperationStatus.SUCCESS && pKey.getData()[0] == PREFIX_COMMITTED) {
+				long stateVersion = lcFromPKey(pKey.getData());
+				if (stateVersion > toStateVersion) {
+					break;
+				}
+				AID aid = getAidFromPKey(pKey);
+				if (value.getSize() == 0) {
+					ColdLedgerSegment.Record record = getPruned(stateVersion);
+					visitor.visit(stateVersion, aid, record.getLedgerEntryData(), record.getIndicesData());
+				} else {
+					if (this.atomIndices.get(null, pKey, indices, LockMode.READ_COMMITTED) != OperationStatus.SUCCESS) {
+						fail("Getting indices of atom '" + aid + "' failed");
+					}
+					visitor.visit(stateVersion, aid, value.getData(), indices.getData());
+				}
+				status = atomCursor.getNext(pKey, value, LockMode.READ_COMMITTED);
+			}
+		}
+	}
+
+	/**
+	 * Retrieves the state version up to which committed entries have been moved to cold storage.
+	 *
+	 * @return the last pruned state version, or -1 if no entries have been pruned
+	 */
+	public long getLastPrunedStateVersion() {
+		return this.coldStore.getLastStateVersion();
+	}
+
+	/**
+	 * Moves the committed entries following the last pruned state version, up to and including
+	 * the specified state version, to a new cold storage segment.
+	 * <p>
+	 * The pruned entries keep their primary keys and unique indices in the live database, with
+	 * empty content, so that conflict checks and lookups by AID are unaffected and reads of the
+	 * content are served from cold storage.  Duplicate indices not retained by the specified
+	 * predicate are removed from the live database and searched in cold storage instead.
+	 *
+	 * @param toStateVersion the state version of the last entry to prune
+	 * @param liveDuplicateIndices the duplicate indices to keep in the live database
+	 */
+	public void prune(long toStateVersion, Predicate<StoreIndex> liveDuplicateIndices) {
+		final long fromStateVersion = this.coldStore.getLastStateVersion() + 1;
+		if (toStateVersion < fromStateVersion) {
+			throw new IllegalArgumentException(String.format("Entries up to %s are already pruned", fromStateVersion - 1));
+		}
+		final var start = System.nanoTime();
+		try {
+			writeSegment(fromStateVersion, toStateVersion, liveDuplicateIndices);
+			removePruned(fromStateVersion, toStateVersion, liveDuplicateIndices);
+		} finally {
+			addTime(start, CounterType.ELAPSED_BDB_LEDGER_PRUNE, CounterType.COUNT_BDB_LEDGER_PRUNE);
+		}
+	}
+
+	@VisibleForTesting
+	void writeSegment(long fromStateVersion, long toStateVersion, Predicate<StoreIndex> liveDuplicateIndices) {
+		try {
+			final ColdLedgerSegment.Writer writer = this.coldStore.createWriter();
+			try {
+				forEachCommitted(fromStateVersion, toStateVersion, (stateVersion, aid, ledgerEntryData, indicesData) -> {
+					final LedgerEntryIndices indices;
+					try {
+						indices = serialization.fromDson(indicesData, LedgerEntryIndices.class);
+					} catch (DeserializeException e) {
+						throw new IOException("Invalid indices of atom '" + aid + "'", e);
+					}
+					List<byte[]> prunedIndexKeys = indices.getDuplicateIndices().stream()
+						.filter(liveDuplicateIndices.negate())
+						.map(StoreIndex::asKey)
+						.collect(Collectors.toList());
+					writer.add(stateVersion, aid, ledgerEntryData, indicesData, prunedIndexKeys);
+				});
+				if (writer.getCount() == 0 || writer.getLastStateVersion() != toStateVersion) {
+					throw new IllegalStateException(String.format("Ledger has no committed entries up to %s", toStateVersion));
+				}
+			} catch (IOException | RuntimeException e) {
+				this.coldStore.discard(writer);
+				throw e;
+			}
+			this.coldStore.publish(writer);
+		} catch (IOException e) {
+			throw new BerkeleyStoreException("Writing of cold ledger segment up to " + toStateVersion + " failed", e);
+		}
+	}
+
+	/**
+	 * Removes from the live database any content of entries in the last cold storage segment
+	 * which is still there, as happens when the node stopped while pruning.
+	 *
+	 * @param liveDuplicateIndices the duplicate indices to keep in the live database
+	 */
+	public void completePruning(Predicate<StoreIndex> liveDuplicateIndices) {
+		this.coldStore.getLastSegment().ifPresent(
+			segment -> removePruned(segment.getFirstStateVersion(), segment.getLastStateVersion(), liveDuplicateIndices)
+		);
+	}
+
+	private void removePruned(long fromStateVersion, long toStateVersion, Predicate<StoreIndex> liveDuplicateIndices) {
+		long nextStateVersion = fromStateVersion;
+		boolean done = false;
+		while (!done) {
+			final List<byte[]> batch = new ArrayList<>();
+			done = true;
+			try (Cursor atomCursor = this.atoms.openCursor(null, null)) {
+				DatabaseEntry pKey = toPKey(PREFIX_COMMITTED, nextStateVersion);
+				DatabaseEntry value = new DatabaseEntry();
+				OperationStatus status = atomCursor.getSearchKeyRange(pKey, value, LockMode.READ_COMMITTED);
+				while (status == OperationStatus.SUCCESS
+					&& pKey.getData()[0] == PREFIX_COMMITTED
+					&& lcFromPKey(pKey.getData()) <= toStateVersion) {
+					if (batch.size() >= PRUNE_BATCH_SIZE) {
+						nextStateVersion = lcFromPKey(pKey.getData());
+						done = false;
+						break;
+					}
+					if (value.getSize() > 0) {
+						batch.add(pKey.getData().clone());
+					}
+					status = atomCursor.getNext(pKey, value, LockMode.READ_COMMITTED);
+				}
+			}
+			removePrunedBatch(batch, liveDuplicateIndices);
+		}
+	}
+
+	private void removePrunedBatch(List<byte[]> pKeys, Predicate<StoreIndex> liveDuplicateIndices) {
+		if (pKeys.isEmpty()) {
+			return;
+		}
+		final Transaction transaction = dbEnv.getEnvironment().beginTransaction(null, null);
+		final Optional<AID> conflict;
+		try {
+			conflict = doRemovePruned(transaction, pKeys, liveDuplicateIndices);
+		} catch (Exception e) {
+			transaction.abort();
+			throw new BerkeleyStoreException("Removal of pruned atoms failed", e);
+		}
+		// transaction is aborted in doStore in case of conflict
+		if (conflict.isPresent()) {
+			fail("Unique indices of pruned atom '" + conflict.get() + "' are in conflict");
+		}
+		transaction.commit();
+	}
+
+	private Optional<AID> doRemovePruned(
+		Transaction transaction,
+		List<byte[]> pKeys,
+		Predicate<StoreIndex> liveDuplicateIndices
+	) throws DeserializeException {
+		DatabaseEntry indicesData = new DatabaseEntry();
+		for (byte[] key : pKeys) {
+			DatabaseEntry pKey = new DatabaseEntry(key);
+			AID aid = getAidFromPKey(pKey);
+			OperationStatus status = this.atomIndices.get(transaction, pKey, indicesData, LockMode.RMW);
+			if (status != OperationStatus.SUCCESS) {
+				fail("Getting indices of atom '" + aid + "' failed with status " + status);
+			}
+			LedgerEntryIndices indices = serialization.fromDson(indicesData.getData(), LedgerEntryIndices.class);
+			if (!doDelete(aid, transaction, pKey, indices)) {
+				fail("Delete of pruned atom '" + aid + "' failed");
+			}
+			LedgerEntryIndices liveIndices = indices.retainDuplicateIndices(liveDuplicateIndices);
+			if (!doStore(PREFIX_COMMITTED, lcFromPKey(key), aid, PRUNED_CONTENT, liveIndices, transaction).isSuccess()) {
+				return Optional.of(aid);
+			}
+		}
+		return Optional.empty();
+	}
+
+	// Entries moved to cold storage are kept in the live database with empty content
+	private LedgerEntry toLedgerEntry(DatabaseEntry pKey, DatabaseEntry value) throws DeserializeException, IOException {
+		if (value.getSize() > 0) {
+			return serialization.fromDson(value.getData(), LedgerEntry.class);
+		}
+		ColdLedgerSegment.Record record = getPruned(lcFromPKey(pKey.getData()));
+		return serialization.fromDson(record.getLedgerEntryData(), LedgerEntry.class);
+	}
+
+	private ColdLedgerSegment.Record getPruned(long stateVersion) throws IOException {
+		this.systemCounters.increment(CounterType.COUNT_BDB_LEDGER_GET_PRUNED);
+		return this.coldStore.get(stateVersion)
+			.orElseThrow(() -> new BerkeleyStoreException("Pruned ledger entry at state version " + stateVersion + " not in cold storage"));
+	}
+
 	@Override
 	public SearchCursor search(LedgerIndexType type, StoreIndex index, LedgerSearchMode mode) {
 		final var start = System.nanoTime();
 		Objects.requireNonNull(type, "type is required");
 		Objects.requireNonNull(index, "index is required");
 		Objects.requireNonNull(mode, "mode is required");
+		try {
+			if (type == LedgerIndexType.DUPLICATE && mode == LedgerSearchMode.EXACT && this.coldStore.getLastStateVersion() >= 0L) {
+				// Entries moved to cold storage precede those in the live database.  Segments are
+				// only read if they may hold the key, so indices kept live are not searched there.
+				ImmutableList<AID> prunedAids = ImmutableList.copyOf(this.coldStore.search(index.asKey()));
+				if (!prunedAids.isEmpty()) {
+					return new ColdSearchCursor(this, index, prunedAids, 0);
+				}
+			}
+			return searchLive(type, index, mode);
+		} catch (IOException e) {
+			throw new BerkeleyStoreException("Search of cold ledger segments failed", e);
+		} finally {
+			addTime(start, CounterType.ELAPSED_BDB_LEDGER_SEARCH, CounterType.COUNT_BDB_LEDGER_SEARCH);
+		}
+	}
+
+	SearchCursor searchLive(LedgerIndexType type, StoreIndex index, LedgerSearchMode mode) {
 		try (SecondaryCursor databaseCursor = toSecondaryCursor(type)) {
 			DatabaseEntry pKey = new DatabaseEntry();
 			DatabaseEntry key = new DatabaseEntry(index.asKey());
@@ -544,18 +805,16 @@ public class BerkeleyLedgerEntryStore implements LedgerEntryStore, PersistentVer
 			}
 
 			return null;
-		} finally {
-			addTime(start, CounterType.ELAPSED_BDB_LEDGER_SEARCH, CounterType.COUNT_BDB_LEDGER_SEARCH);
 		}
 	}
 
 	@Override
-	public boolean contains(Transaction tx, LedgerIndexType type, StoreIndex index, LedgerSearchMode mode) {
+	public boolean contains(LedgerTransaction tx, LedgerIndexType type, StoreIndex index, LedgerSearchMode mode) {
 		final var start = System.nanoTime();
 		Objects.requireNonNull(type, "type is required");
 		Objects.requireNonNull(index, "index is required");
 		Objects.requireNonNull(mode, "mode is required");
-		try (SecondaryCursor databaseCursor = toSecondaryCursor(tx, type)) {
+		try (SecondaryCursor databaseCursor = toSecondaryCursor(BerkeleyTransaction.unwrap(tx), type)) {
 			DatabaseEntry pKey = new DatabaseEntry();
 			DatabaseEntry key = new DatabaseEntry(index.asKey());
 			if (mode == LedgerSearchMode.EXACT) {
@@ -755,11 +1014,13 @@ public class BerkeleyLedgerEntryStore implements LedgerEntryStore, PersistentVer
 		}
 	}
 
-	private void addTime(long start, CounterType detailTime, CounterType detailCounter) {
+	private long addTime(long start, CounterType detailTime, CounterType detailCounter) {
 		final var elapsed = (System.nanoTime() - start + 500L) / 1000L;
 		this.systemCounters.add(CounterType.ELAPSED_BDB_LEDGER_TOTAL, elapsed);
 		this.systemCounters.increment(CounterType.COUNT_BDB_LEDGER_TOTAL);
 		this.systemCounters.add(detailTime, elapsed);
 		this.systemCounters.increment(detailCounter);
+		this.systemCounters.record(HistogramType.LATENCY_BDB_LEDGER, elapsed);
+		return elapsed;
 	}
 }
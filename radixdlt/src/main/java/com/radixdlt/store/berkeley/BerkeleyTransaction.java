@@ -0,0 +1,65 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.store.berkeley;
+
+import com.radixdlt.store.LedgerTransaction;
+import com.sleepycat.je.Transaction;
+import java.util.Objects;
+
+/**
+ * A {@link LedgerTransaction} of a {@link BerkeleyLedgerEntryStore}, backed by a database transaction.
+ */
+final class BerkeleyTransaction implements LedgerTransaction {
+	private final Transaction transaction;
+
+	BerkeleyTransaction(Transaction transaction) {
+		this.transaction = Objects.requireNonNull(transaction);
+	}
+
+	@Override
+	public void commit() {
+		this.transaction.commit();
+	}
+
+	@Override
+	public void abort() {
+		this.transaction.abort();
+	}
+
+	/**
+	 * Retrieves the database transaction of the specified ledger transaction.
+	 *
+	 * @param transaction the ledger transaction, or {@code null} for no transaction
+	 * @return the database transaction, or {@code null} for no transaction
+	 * @throws IllegalArgumentException if the transaction was not created by a {@link BerkeleyLedgerEntryStore}
+	 */
+	static Transaction unwrap(LedgerTransaction transaction) {
+		if (transaction == null) {
+			return null;
+		}
+		if (!(transaction instanceof BerkeleyTransaction)) {
+			throw new IllegalArgumentException("Transaction " + transaction + " was not created by a Berkeley ledger store");
+		}
+		return ((BerkeleyTransaction) transaction).transaction;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s[%s]", getClass().getSimpleName(), this.transaction.getId());
+	}
+}
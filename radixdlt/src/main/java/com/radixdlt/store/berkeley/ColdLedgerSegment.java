@@ -0,0 +1,630 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.store.berkeley;
+
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.google.common.io.CountingOutputStream;
+import com.google.common.primitives.UnsignedBytes;
+import com.radixdlt.identifiers.AID;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Read-only file holding the committed ledger entries of a contiguous range of state
+ * versions which have been pruned from the live database.
+ * <p>
+ * Entries are written in ledger order in compressed blocks, followed by blocks of the
+ * duplicate index keys which were dropped from the live database, sorted by key.  The
+ * first state version and first key of each block are kept in memory as a sparse index,
+ * so that a lookup reads and inflates a single block.  The range, index prefixes and a
+ * Bloom filter of the keys are also kept in memory, so that most searches for keys which
+ * are not in the segment do not read it.
+ */
+@ThreadSafe
+final class ColdLedgerSegment implements Closeable {
+	private static final int MAGIC = 0x52445843; // "RDXC"
+	private static final int FORMAT_VERSION = 1;
+	// Uncompressed size at which a block is closed
+	private static final int BLOCK_SIZE = 64 * 1024;
+	private static final int HEADER_SIZE = 2 * Integer.BYTES;
+	private static final int BLOCK_HEADER_SIZE = 3 * Integer.BYTES;
+	private static final int TRAILER_SIZE = 3 * Long.BYTES + Integer.BYTES;
+	private static final Comparator<byte[]> KEY_ORDER = UnsignedBytes.lexicographicalComparator();
+	private static final double KEY_FILTER_FALSE_POSITIVE_RATE = 0.01;
+
+	/**
+	 * A pruned ledger entry in its persisted form, with all its indices.
+	 */
+	static final class Record {
+		private final long stateVersion;
+		private final AID aid;
+		private final byte[] ledgerEntryData;
+		private final byte[] indicesData;
+
+		private Record(long stateVersion, AID aid, byte[] ledgerEntryData, byte[] indicesData) {
+			this.stateVersion = stateVersion;
+			this.aid = aid;
+			this.ledgerEntryData = ledgerEntryData;
+			this.indicesData = indicesData;
+		}
+
+		long getStateVersion() {
+			return stateVersion;
+		}
+
+		AID getAID() {
+			return aid;
+		}
+
+		byte[] getLedgerEntryData() {
+			return ledgerEntryData;
+		}
+
+		byte[] getIndicesData() {
+			return indicesData;
+		}
+	}
+
+	private static final class Block {
+		private final int index;
+		private final byte[] data;
+
+		private Block(int index, byte[] data) {
+			this.index = index;
+			this.data = data;
+		}
+	}
+
+	private final Path file;
+	private final FileChannel channel;
+	private final long firstStateVersion;
+	private final long lastStateVersion;
+	private final long[] recordBlockVersions;
+	private final long[] recordBlockOffsets;
+	private final byte[][] keyBlockKeys;
+	private final long[] keyBlockOffsets;
+	private final byte[] lastKey;
+	private final BitSet indexPrefixes;
+	private final BloomFilter<byte[]> keyFilter;
+	// Most recently read block of entries, as consecutive entries are usually read together
+	private volatile Block lastRecordBlock;
+
+	private ColdLedgerSegment(
+		Path file,
+		FileChannel channel,
+		long firstStateVersion,
+		long lastStateVersion,
+		long[] recordBlockVersions,
+		long[] recordBlockOffsets,
+		byte[][] keyBlockKeys,
+		long[] keyBlockOffsets,
+		byte[] lastKey,
+		BitSet indexPrefixes,
+		BloomFilter<byte[]> keyFilter
+	) {
+		this.file = file;
+		this.channel = channel;
+		this.firstStateVersion = firstStateVersion;
+		this.lastStateVersion = lastStateVersion;
+		this.recordBlockVersions = recordBlockVersions;
+		this.recordBlockOffsets = recordBlockOffsets;
+		this.keyBlockKeys = keyBlockKeys;
+		this.keyBlockOffsets = keyBlockOffsets;
+		this.lastKey = lastKey;
+		this.indexPrefixes = indexPrefixes;
+		this.keyFilter = keyFilter;
+	}
+
+	/**
+	 * Opens an existing segment file, reading its sparse index and key filter.
+	 *
+	 * @param file the segment file
+	 * @return the opened segment
+	 * @throws IOException if the file cannot be read or is not a valid segment
+	 */
+	static ColdLedgerSegment open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			final long size = channel.size();
+			if (size < HEADER_SIZE + TRAILER_SIZE) {
+				throw new IOException("Segment " + file + " is truncated");
+			}
+			ByteBuffer header = read(channel, 0L, HEADER_SIZE);
+			if (header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION) {
+				throw new IOException("Segment " + file + " has an unsupported format");
+			}
+			ByteBuffer trailer = read(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+			final long firstStateVersion = trailer.getLong();
+			final long lastStateVersion = trailer.getLong();
+			final long footerOffset = trailer.getLong();
+			if (trailer.getInt() != MAGIC || footerOffset < HEADER_SIZE || footerOffset > size - TRAILER_SIZE) {
+				throw new IOException("Segment " + file + " is corrupt");
+			}
+
+			ByteBuffer footer = read(channel, footerOffset, (int) (size - TRAILER_SIZE - footerOffset));
+			final int recordBlocks = footer.getInt();
+			final long[] recordBlockVersions = new long[recordBlocks];
+			final long[] recordBlockOffsets = new long[recordBlocks];
+			for (int i = 0; i < recordBlocks; i++) {
+				recordBlockVersions[i] = footer.getLong();
+				recordBlockOffsets[i] = footer.getLong();
+			}
+			final int keyBlocks = footer.getInt();
+			final byte[][] keyBlockKeys = new byte[keyBlocks][];
+			final long[] keyBlockOffsets = new long[keyBlocks];
+			for (int i = 0; i < keyBlocks; i++) {
+				keyBlockKeys[i] = new byte[footer.getInt()];
+				footer.get(keyBlockKeys[i]);
+				keyBlockOffsets[i] = footer.getLong();
+			}
+			final byte[] lastKey = new byte[footer.getInt()];
+			footer.get(lastKey);
+			final long[] prefixWords = new long[footer.getInt()];
+			for (int i = 0; i < prefixWords.length; i++) {
+				prefixWords[i] = footer.getLong();
+			}
+			final int filterLength = footer.getInt();
+			if (filterLength < 0 || filterLength > footer.remaining()) {
+				throw new IOException("Segment " + file + " is corrupt");
+			}
+			final BloomFilter<byte[]> keyFilter = BloomFilter.readFrom(
+				new ByteArrayInputStream(footer.array(), footer.position(), filterLength), Funnels.byteArrayFunnel()
+			);
+			return new ColdLedgerSegment(
+				file,
+				channel,
+				firstStateVersion,
+				lastStateVersion,
+				recordBlockVersions,
+				recordBlockOffsets,
+				keyBlockKeys,
+				keyBlockOffsets,
+				lastKey,
+				BitSet.valueOf(prefixWords),
+				keyFilter
+			);
+		} catch (BufferUnderflowException | NegativeArraySizeException e) {
+			channel.close();
+			throw new IOException("Segment " + file + " is corrupt", e);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	Path getFile() {
+		return file;
+	}
+
+	long getFirstStateVersion() {
+		return firstStateVersion;
+	}
+
+	long getLastStateVersion() {
+		return lastStateVersion;
+	}
+
+	/**
+	 * @return the first bytes of the index keys searched in this segment, as unsigned values
+	 */
+	BitSet getIndexPrefixes() {
+		return (BitSet) indexPrefixes.clone();
+	}
+
+	/**
+	 * Retrieves the entry at the specified state version.
+	 *
+	 * @param stateVersion the state version of the entry
+	 * @return the entry, or empty if it is not in this segment
+	 * @throws IOException if the segment cannot be read
+	 */
+	Optional<Record> get(long stateVersion) throws IOException {
+		if (stateVersion < firstStateVersion || stateVersion > lastStateVersion) {
+			return Optional.empty();
+		}
+		int blockIndex = Arrays.binarySearch(recordBlockVersions, stateVersion);
+		if (blockIndex < 0) {
+			// Block preceding the insertion point
+			blockIndex = -blockIndex - 2;
+		}
+		if (blockIndex < 0) {
+			return Optional.empty();
+		}
+
+		Block block = this.lastRecordBlock;
+		if (block == null || block.index != blockIndex) {
+			block = new Block(blockIndex, readBlock(recordBlockOffsets[blockIndex]));
+			this.lastRecordBlock = block;
+		}
+		DataInputStream data = new DataInputStream(new ByteArrayInputStream(block.data));
+		while (data.available() > 0) {
+			Record record = readRecord(data);
+			if (record.getStateVersion() == stateVersion) {
+				return Optional.of(record);
+			} else if (record.getStateVersion() > stateVersion) {
+				break;
+			}
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * Retrieves the AIDs of the entries with the specified pruned duplicate index key, in ledger order.
+	 *
+	 * @param key the index key
+	 * @return the AIDs of the matching entries
+	 * @throws IOException if the segment cannot be read
+	 */
+	List<AID> search(byte[] key) throws IOException {
+		if (keyBlockKeys.length == 0
+			|| KEY_ORDER.compare(key, keyBlockKeys[0]) < 0
+			|| KEY_ORDER.compare(key, lastKey) > 0
+			|| !keyFilter.mightContain(key)) {
+			return List.of();
+		}
+		final List<AID> aids = new ArrayList<>();
+		// Entries with the key can start in the last block whose first key is lower
+		final int startBlock = Math.max(0, lastBlockBefore(key));
+		final byte[] aidBytes = new byte[AID.BYTES];
+		for (int i = startBlock; i < keyBlockOffsets.length; i++) {
+			if (i > startBlock && KEY_ORDER.compare(keyBlockKeys[i], key) > 0) {
+				break;
+			}
+			DataInputStream data = new DataInputStream(new ByteArrayInputStream(readBlock(keyBlockOffsets[i])));
+			while (data.available() > 0) {
+				byte[] entryKey = readBytes(data);
+				data.readLong(); // State version, which orders entries with the same key
+				data.readFully(aidBytes);
+				int compare = KEY_ORDER.compare(entryKey, key);
+				if (compare == 0) {
+					aids.add(AID.from(aidBytes));
+				} else if (compare > 0) {
+					return aids;
+				}
+			}
+		}
+		return aids;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s{file=%s versions=%s..%s}", getClass().getSimpleName(), file, firstStateVersion, lastStateVersion);
+	}
+
+	// Index of the last key block starting with a key lower than the specified one, or -1 if none
+	private int lastBlockBefore(byte[] key) {
+		int low = 0;
+		int high = keyBlockKeys.length - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			if (KEY_ORDER.compare(keyBlockKeys[mid], key) < 0) {
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		return high;
+	}
+
+	private byte[] readBlock(long offset) throws IOException {
+		ByteBuffer header = read(channel, offset, BLOCK_HEADER_SIZE);
+		final int uncompressedLength = header.getInt();
+		final int compressedLength = header.getInt();
+		final int checksum = header.getInt();
+		if (uncompressedLength < 0 || compressedLength < 0) {
+			throw new IOException("Invalid block at offset " + offset + " in segment " + file);
+		}
+		ByteBuffer compressed = read(channel, offset + BLOCK_HEADER_SIZE, compressedLength);
+
+		final byte[] data = new byte[uncompressedLength];
+		final Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed.array(), 0, compressedLength);
+			int length = 0;
+			while (length < uncompressedLength) {
+				int inflated = inflater.inflate(data, length, uncompressedLength - length);
+				if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+					break;
+				}
+				length += inflated;
+			}
+			CRC32 crc = new CRC32();
+			crc.update(data, 0, length);
+			if (length != uncompressedLength || (int) crc.getValue() != checksum) {
+				throw new IOException("Corrupt block at offset " + offset + " in segment " + file);
+			}
+			return data;
+		} catch (DataFormatException e) {
+			throw new IOException("Corrupt block at offset " + offset + " in segment " + file, e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new EOFException("Unexpected end of segment at " + (position + buffer.position()));
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private static Record readRecord(DataInputStream data) throws IOException {
+		long stateVersion = data.readLong();
+		byte[] aidBytes = new byte[AID.BYTES];
+		data.readFully(aidBytes);
+		byte[] ledgerEntryData = readBytes(data);
+		byte[] indicesData = readBytes(data);
+		return new Record(stateVersion, AID.from(aidBytes), ledgerEntryData, indicesData);
+	}
+
+	private static byte[] readBytes(DataInputStream data) throws IOException {
+		int length = data.readInt();
+		if (length < 0 || length > data.available()) {
+			throw new IOException("Invalid record length " + length);
+		}
+		byte[] bytes = new byte[length];
+		data.readFully(bytes);
+		return bytes;
+	}
+
+	private static void writeBytes(DataOutputStream data, byte[] bytes) throws IOException {
+		data.writeInt(bytes.length);
+		data.write(bytes);
+	}
+
+	/**
+	 * Writes a new segment file.  Entries must be added in ledger order without gaps.
+	 * Keys of pruned duplicate indices are held in memory until {@link #finish()}, so the
+	 * number of entries in a segment should be bounded.
+	 */
+	static final class Writer implements Closeable {
+		private static final class KeyEntry {
+			private final byte[] key;
+			private final long stateVersion;
+			private final AID aid;
+
+			private KeyEntry(byte[] key, long stateVersion, AID aid) {
+				this.key = key;
+				this.stateVersion = stateVersion;
+				this.aid = aid;
+			}
+		}
+
+		private static final Comparator<KeyEntry> KEY_ENTRY_ORDER = Comparator.<KeyEntry, byte[]>comparing(e -> e.key, KEY_ORDER)
+			.thenComparingLong(e -> e.stateVersion);
+
+		private final Path file;
+		private final FileChannel channel;
+		private final CountingOutputStream counting;
+		private final DataOutputStream output;
+		private final ByteArrayOutputStream blockBuffer = new ByteArrayOutputStream(BLOCK_SIZE * 2);
+		private final DataOutputStream block = new DataOutputStream(blockBuffer);
+		private final List<Long> recordBlockVersions = new ArrayList<>();
+		private final List<Long> recordBlockOffsets = new ArrayList<>();
+		private final List<byte[]> keyBlockKeys = new ArrayList<>();
+		private final List<Long> keyBlockOffsets = new ArrayList<>();
+		private final List<KeyEntry> keys = new ArrayList<>();
+		private long count = 0L;
+		private long firstStateVersion = 0L;
+		private long lastStateVersion = 0L;
+		private long blockFirstStateVersion = 0L;
+
+		Writer(Path file) throws IOException {
+			this.file = Objects.requireNonNull(file);
+			this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+			this.counting = new CountingOutputStream(new BufferedOutputStream(Channels.newOutputStream(this.channel), BLOCK_SIZE));
+			this.output = new DataOutputStream(this.counting);
+			this.output.writeInt(MAGIC);
+			this.output.writeInt(FORMAT_VERSION);
+		}
+
+		Path getFile() {
+			return file;
+		}
+
+		long getCount() {
+			return count;
+		}
+
+		long getFirstStateVersion() {
+			return firstStateVersion;
+		}
+
+		long getLastStateVersion() {
+			return lastStateVersion;
+		}
+
+		/**
+		 * Adds an entry to the segment.
+		 *
+		 * @param stateVersion the state version of the entry, following the previous entry
+		 * @param aid the AID of the entry
+		 * @param ledgerEntryData the persisted ledger entry
+		 * @param indicesData the persisted indices of the ledger entry
+		 * @param coldIndexKeys the keys of the duplicate indices of the entry which are searched in this segment
+		 * @throws IOException if writing fails
+		 */
+		void add(long stateVersion, AID aid, byte[] ledgerEntryData, byte[] indicesData, Collection<byte[]> coldIndexKeys) throws IOException {
+			if (count > 0 && stateVersion != lastStateVersion + 1) {
+				throw new IllegalArgumentException(String.format("State version %s does not follow %s", stateVersion, lastStateVersion));
+			}
+			if (count == 0) {
+				firstStateVersion = stateVersion;
+			}
+			if (blockBuffer.size() == 0) {
+				blockFirstStateVersion = stateVersion;
+			}
+			block.writeLong(stateVersion);
+			block.write(aid.getBytes());
+			writeBytes(block, ledgerEntryData);
+			writeBytes(block, indicesData);
+			for (byte[] key : coldIndexKeys) {
+				keys.add(new KeyEntry(key, stateVersion, aid));
+			}
+			lastStateVersion = stateVersion;
+			count += 1;
+
+			if (blockBuffer.size() >= BLOCK_SIZE) {
+				flushRecordBlock();
+			}
+		}
+
+		/**
+		 * Writes the index keys, sparse index and key filter, and forces the file to storage.
+		 *
+		 * @throws IOException if writing fails
+		 */
+		void finish() throws IOException {
+			if (count == 0) {
+				throw new IllegalStateException("Segment " + file + " has no entries");
+			}
+			flushRecordBlock();
+
+			keys.sort(KEY_ENTRY_ORDER);
+			long distinctKeys = 0L;
+			for (int i = 0; i < keys.size(); i++) {
+				if (i == 0 || KEY_ORDER.compare(keys.get(i - 1).key, keys.get(i).key) != 0) {
+					distinctKeys += 1;
+				}
+			}
+			final BloomFilter<byte[]> keyFilter = BloomFilter.create(
+				Funnels.byteArrayFunnel(), Math.max(1L, distinctKeys), KEY_FILTER_FALSE_POSITIVE_RATE
+			);
+			final BitSet indexPrefixes = new BitSet();
+			byte[] blockFirstKey = null;
+			byte[] lastKey = new byte[0];
+			for (KeyEntry entry : keys) {
+				keyFilter.put(entry.key);
+				if (entry.key.length > 0) {
+					indexPrefixes.set(Byte.toUnsignedInt(entry.key[0]));
+				}
+				lastKey = entry.key;
+				if (blockBuffer.size() == 0) {
+					blockFirstKey = entry.key;
+				}
+				writeBytes(block, entry.key);
+				block.writeLong(entry.stateVersion);
+				block.write(entry.aid.getBytes());
+				if (blockBuffer.size() >= BLOCK_SIZE) {
+					keyBlockKeys.add(blockFirstKey);
+					keyBlockOffsets.add(writeBlock());
+				}
+			}
+			if (blockBuffer.size() > 0) {
+				keyBlockKeys.add(blockFirstKey);
+				keyBlockOffsets.add(writeBlock());
+			}
+			keys.clear();
+
+			final long footerOffset = counting.getCount();
+			output.writeInt(recordBlockVersions.size());
+			for (int i = 0; i < recordBlockVersions.size(); i++) {
+				output.writeLong(recordBlockVersions.get(i));
+				output.writeLong(recordBlockOffsets.get(i));
+			}
+			output.writeInt(keyBlockKeys.size());
+			for (int i = 0; i < keyBlockKeys.size(); i++) {
+				writeBytes(output, keyBlockKeys.get(i));
+				output.writeLong(keyBlockOffsets.get(i));
+			}
+			writeBytes(output, lastKey);
+			final long[] prefixWords = indexPrefixes.toLongArray();
+			output.writeInt(prefixWords.length);
+			for (long word : prefixWords) {
+				output.writeLong(word);
+			}
+			final ByteArrayOutputStream filterBytes = new ByteArrayOutputStream();
+			keyFilter.writeTo(filterBytes);
+			output.writeInt(filterBytes.size());
+			filterBytes.writeTo(output);
+			output.writeLong(firstStateVersion);
+			output.writeLong(lastStateVersion);
+			output.writeLong(footerOffset);
+			output.writeInt(MAGIC);
+			output.flush();
+			channel.force(true);
+		}
+
+		@Override
+		public void close() throws IOException {
+			output.close();
+		}
+
+		private void flushRecordBlock() throws IOException {
+			if (blockBuffer.size() > 0) {
+				recordBlockVersions.add(blockFirstStateVersion);
+				recordBlockOffsets.add(writeBlock());
+			}
+		}
+
+		// Writes the current block, returning its offset in the file
+		private long writeBlock() throws IOException {
+			final long offset = counting.getCount();
+			final byte[] data = blockBuffer.toByteArray();
+			blockBuffer.reset();
+
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(data.length / 2);
+			try (DeflaterOutputStream deflater = new DeflaterOutputStream(compressed)) {
+				deflater.write(data);
+			}
+			CRC32 crc = new CRC32();
+			crc.update(data);
+
+			output.writeInt(data.length);
+			output.writeInt(compressed.size());
+			output.writeInt((int) crc.getValue());
+			compressed.writeTo(output);
+			return offset;
+		}
+	}
+}
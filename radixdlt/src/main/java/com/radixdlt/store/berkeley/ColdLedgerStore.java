@@ -0,0 +1,224 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.store.berkeley;
+
+import com.radixdlt.identifiers.AID;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import javax.annotation.concurrent.ThreadSafe;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Cold tier of the ledger: a directory of {@link ColdLedgerSegment}s which together
+ * hold the committed entries pruned from the live database, from genesis up to
+ * {@link #getLastStateVersion()} without gaps.
+ */
+@ThreadSafe
+final class ColdLedgerStore implements Closeable {
+	private static final Logger log = LogManager.getLogger();
+
+	private static final String SEGMENT_SUFFIX = ".segment";
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private final Path directory;
+	// Segments by first state version
+	private final ConcurrentNavigableMap<Long, ColdLedgerSegment> segments = new ConcurrentSkipListMap<>();
+	// Index prefixes of the keys in any segment, replaced whenever segments change
+	private volatile BitSet indexPrefixes = new BitSet();
+
+	/**
+	 * Opens the segments in the specified directory, creating it if needed.
+	 *
+	 * @param directory the directory of the segments
+	 * @throws IOException if a segment cannot be read, or segments are missing
+	 */
+	ColdLedgerStore(Path directory) throws IOException {
+		this.directory = Objects.requireNonNull(directory);
+		Files.createDirectories(directory);
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				String name = file.getFileName().toString();
+				if (name.endsWith(TEMP_SUFFIX)) {
+					// Left behind by interrupted pruning, entries are still in the live database
+					log.info("Deleting incomplete ledger segment {}", file);
+					Files.delete(file);
+				} else if (name.endsWith(SEGMENT_SUFFIX)) {
+					ColdLedgerSegment segment = ColdLedgerSegment.open(file);
+					this.segments.put(segment.getFirstStateVersion(), segment);
+				}
+			}
+		}
+
+		long expectedStateVersion = 0L;
+		for (ColdLedgerSegment segment : this.segments.values()) {
+			if (segment.getFirstStateVersion() != expectedStateVersion) {
+				close();
+				throw new IOException(String.format(
+					"Ledger segments in %s are missing state versions %s to %s",
+					directory, expectedStateVersion, segment.getFirstStateVersion() - 1
+				));
+			}
+			expectedStateVersion = segment.getLastStateVersion() + 1;
+		}
+		updateIndexPrefixes();
+	}
+
+	/**
+	 * Retrieves the state version of the last entry in cold storage.
+	 *
+	 * @return the last state version, or -1 if there are no entries in cold storage
+	 */
+	long getLastStateVersion() {
+		Map.Entry<Long, ColdLedgerSegment> last = this.segments.lastEntry();
+		return last == null ? -1L : last.getValue().getLastStateVersion();
+	}
+
+	Optional<ColdLedgerSegment> getLastSegment() {
+		Map.Entry<Long, ColdLedgerSegment> last = this.segments.lastEntry();
+		return last == null ? Optional.empty() : Optional.of(last.getValue());
+	}
+
+	/**
+	 * Retrieves the entry at the specified state version.
+	 *
+	 * @param stateVersion the state version of the entry
+	 * @return the entry, or empty if it is not in cold storage
+	 * @throws IOException if the segment holding the entry cannot be read
+	 */
+	Optional<ColdLedgerSegment.Record> get(long stateVersion) throws IOException {
+		Map.Entry<Long, ColdLedgerSegment> segment = this.segments.floorEntry(stateVersion);
+		return segment == null ? Optional.empty() : segment.getValue().get(stateVersion);
+	}
+
+	/**
+	 * Retrieves the AIDs of the entries in cold storage with the specified duplicate index key, in ledger order.
+	 * Keys of indices which are kept in the live database are not in any segment, and are not searched.
+	 *
+	 * @param key the index key
+	 * @return the AIDs of the matching entries
+	 * @throws IOException if a segment cannot be read
+	 */
+	List<AID> search(byte[] key) throws IOException {
+		if (key.length == 0 || !this.indexPrefixes.get(Byte.toUnsignedInt(key[0]))) {
+			return List.of();
+		}
+		List<AID> aids = new ArrayList<>();
+		for (ColdLedgerSegment segment : this.segments.values()) {
+			aids.addAll(segment.search(key));
+		}
+		return aids;
+	}
+
+	/**
+	 * Creates a writer for a new segment following the last segment.
+	 *
+	 * @return the writer, which should be passed to {@link #publish(ColdLedgerSegment.Writer)} once all entries are added
+	 * @throws IOException if the segment file cannot be created
+	 */
+	ColdLedgerSegment.Writer createWriter() throws IOException {
+		long firstStateVersion = getLastStateVersion() + 1;
+		Path file = this.directory.resolve(String.format("%019d%s", firstStateVersion, TEMP_SUFFIX));
+		Files.deleteIfExists(file);
+		return new ColdLedgerSegment.Writer(file);
+	}
+
+	/**
+	 * Finishes the specified segment and adds it to cold storage.  The writer is closed,
+	 * and its file deleted if the segment cannot be added.
+	 *
+	 * @param writer the writer of the segment
+	 * @throws IOException if the segment cannot be written
+	 */
+	void publish(ColdLedgerSegment.Writer writer) throws IOException {
+		try {
+			writer.finish();
+			writer.close();
+			if (writer.getFirstStateVersion() != getLastStateVersion() + 1) {
+				throw new IllegalStateException(String.format(
+					"Segment starting at %s does not follow state version %s", writer.getFirstStateVersion(), getLastStateVersion()
+				));
+			}
+			Path file = this.directory.resolve(
+				String.format("%019d-%019d%s", writer.getFirstStateVersion(), writer.getLastStateVersion(), SEGMENT_SUFFIX)
+			);
+			Files.move(writer.getFile(), file, StandardCopyOption.ATOMIC_MOVE);
+			ColdLedgerSegment segment = ColdLedgerSegment.open(file);
+			this.segments.put(segment.getFirstStateVersion(), segment);
+			updateIndexPrefixes();
+		} catch (IOException | RuntimeException e) {
+			discard(writer);
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes the specified writer and deletes its file.
+	 *
+	 * @param writer the writer to discard
+	 */
+	void discard(ColdLedgerSegment.Writer writer) {
+		try {
+			writer.close();
+			Files.deleteIfExists(writer.getFile());
+		} catch (IOException e) {
+			log.warn("Unable to delete incomplete ledger segment {}", writer.getFile(), e);
+		}
+	}
+
+	/**
+	 * Closes and deletes all segments.
+	 *
+	 * @throws IOException if a segment cannot be deleted
+	 */
+	void clear() throws IOException {
+		close();
+		for (ColdLedgerSegment segment : this.segments.values()) {
+			Files.deleteIfExists(segment.getFile());
+		}
+		this.segments.clear();
+		updateIndexPrefixes();
+	}
+
+	private void updateIndexPrefixes() {
+		BitSet prefixes = new BitSet();
+		for (ColdLedgerSegment segment : this.segments.values()) {
+			prefixes.or(segment.getIndexPrefixes());
+		}
+		this.indexPrefixes = prefixes;
+	}
+
+	@Override
+	public void close() throws IOException {
+		for (ColdLedgerSegment segment : this.segments.values()) {
+			segment.close();
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.store.berkeley;
+
+import com.google.common.collect.ImmutableList;
+import com.radixdlt.identifiers.AID;
+import com.radixdlt.store.LedgerSearchMode;
+import com.radixdlt.store.SearchCursor;
+import com.radixdlt.store.StoreIndex;
+import java.util.Objects;
+
+/**
+ * A {@link SearchCursor} over the entries with a duplicate index which have been moved
+ * to cold storage, continuing with the matching entries in the live database.
+ * <p>
+ * As entries in cold storage precede those in the live database, moving back from
+ * an entry in the live database does not return to entries in cold storage.
+ */
+final class ColdSearchCursor implements SearchCursor {
+	private final BerkeleyLedgerEntryStore store;
+	private final StoreIndex index;
+	private final ImmutableList<AID> aids;
+	private final int position;
+
+	ColdSearchCursor(BerkeleyLedgerEntryStore store, StoreIndex index, ImmutableList<AID> aids, int position) {
+		if (position < 0 || position >= aids.size()) {
+			throw new IllegalArgumentException(String.format("Position %s out of %s entries", position, aids.size()));
+		}
+		this.store = Objects.requireNonNull(store);
+		this.index = Objects.requireNonNull(index);
+		this.aids = aids;
+		this.position = position;
+	}
+
+	@Override
+	public StoreIndex.LedgerIndexType getType() {
+		return StoreIndex.LedgerIndexType.DUPLICATE;
+	}
+
+	@Override
+	public AID get() {
+		return this.aids.get(this.position);
+	}
+
+	@Override
+	public SearchCursor next() {
+		if (this.position + 1 < this.aids.size()) {
+			return new ColdSearchCursor(this.store, this.index, this.aids, this.position + 1);
+		}
+		return this.store.searchLive(StoreIndex.LedgerIndexType.DUPLICATE, this.index, LedgerSearchMode.EXACT);
+	}
+
+	@Override
+	public SearchCursor previous() {
+		return this.position > 0 ? new ColdSearchCursor(this.store, this.index, this.aids, this.position - 1) : null;
+	}
+
+	@Override
+	public SearchCursor first() {
+		return this.position == 0 ? this : new ColdSearchCursor(this.store, this.index, this.aids, 0);
+	}
+
+	@Override
+	public SearchCursor last() {
+		SearchCursor live = this.store.searchLive(StoreIndex.LedgerIndexType.DUPLICATE, this.index, LedgerSearchMode.EXACT);
+		if (live != null) {
+			return live.last();
+		}
+		return new ColdSearchCursor(this.store, this.index, this.aids, this.aids.size() - 1);
+	}
+}
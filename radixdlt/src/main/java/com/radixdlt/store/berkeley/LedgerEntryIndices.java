@@ -28,6 +28,7 @@ import com.radixdlt.store.LedgerEntry;
 
 import java.util.List;
 import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -68,6 +69,13 @@ public final class LedgerEntryIndices {
 		return this.duplicateIndices;
 	}
 
+	LedgerEntryIndices retainDuplicateIndices(Predicate<StoreIndex> retain) {
+		return new LedgerEntryIndices(
+			this.uniqueIndices,
+			this.duplicateIndices.stream().filter(retain).collect(ImmutableSet.toImmutableSet())
+		);
+	}
+
 	static LedgerEntryIndices from(LedgerEntry ledgerEntry, Set<StoreIndex> uniqueIndices, Set<StoreIndex> duplicateIndices) {
 		List<StoreIndex> offendingIndices = Stream.concat(uniqueIndices.stream(), duplicateIndices.stream())
 			.filter(index -> index.getPrefix() == ENTRY_INDEX_PREFIX || index.getPrefix() == SHARD_INDEX_PREFIX)
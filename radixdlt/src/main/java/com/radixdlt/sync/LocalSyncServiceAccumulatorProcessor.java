@@ -30,9 +30,10 @@ import com.radixdlt.ledger.AccumulatorState;
 import com.radixdlt.ledger.DtoLedgerHeaderAndProof;
 import com.radixdlt.ledger.LedgerUpdate;
 import com.radixdlt.store.LastProof;
+import com.radixdlt.sync.PeerPerformanceTracker.RequestType;
 import java.util.Comparator;
 import java.util.Objects;
-import java.util.concurrent.ThreadLocalRandom;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -46,9 +47,14 @@ public final class LocalSyncServiceAccumulatorProcessor {
 	public static final class SyncInProgress {
 		private final VerifiedLedgerHeaderAndProof targetHeader;
 		private final ImmutableList<BFTNode> targetNodes;
-		private SyncInProgress(VerifiedLedgerHeaderAndProof targetHeader, ImmutableList<BFTNode> targetNodes) {
+		// Node the latest request was sent to, if any
+		@Nullable
+		private final BFTNode requestedNode;
+
+		private SyncInProgress(VerifiedLedgerHeaderAndProof targetHeader, ImmutableList<BFTNode> targetNodes, @Nullable BFTNode requestedNode) {
 			this.targetHeader = targetHeader;
 			this.targetNodes = targetNodes;
+			this.requestedNode = requestedNode;
 		}
 
 		public ImmutableList<BFTNode> getTargetNodes() {
@@ -67,6 +73,7 @@ public final class LocalSyncServiceAccumulatorProcessor {
 	private final RemoteEventDispatcher<DtoLedgerHeaderAndProof> requestDispatcher;
 	private final Comparator<AccumulatorState> accComparator;
 	private final SystemCounters systemCounters;
+	private final PeerPerformanceTracker peerPerformance;
 	private VerifiedLedgerHeaderAndProof targetHeader;
 	private VerifiedLedgerHeaderAndProof currentHeader;
 
@@ -77,7 +84,8 @@ public final class LocalSyncServiceAccumulatorProcessor {
 		Comparator<AccumulatorState> accComparator,
 		@LastProof VerifiedLedgerHeaderAndProof current,
 		@SyncPatienceMillis int patienceMilliseconds,
-		SystemCounters systemCounters
+		SystemCounters systemCounters,
+		PeerPerformanceTracker peerPerformance
 	) {
 		if (patienceMilliseconds <= 0) {
 			throw new IllegalArgumentException();
@@ -86,6 +94,7 @@ public final class LocalSyncServiceAccumulatorProcessor {
 		this.requestDispatcher = Objects.requireNonNull(requestDispatcher);
 		this.timeoutScheduler = Objects.requireNonNull(timeoutScheduler);
 		this.systemCounters = Objects.requireNonNull(systemCounters);
+		this.peerPerformance = Objects.requireNonNull(peerPerformance);
 		this.patienceMilliseconds = patienceMilliseconds;
 		this.accComparator = Objects.requireNonNull(accComparator);
 		this.currentHeader = current;
@@ -114,12 +123,19 @@ public final class LocalSyncServiceAccumulatorProcessor {
 		}
 
 		this.targetHeader = nextTargetHeader;
-		SyncInProgress syncInProgress = new SyncInProgress(request.getTarget(), request.getTargetNodes());
+		SyncInProgress syncInProgress = new SyncInProgress(request.getTarget(), request.getTargetNodes(), null);
 		this.refreshRequest(syncInProgress);
 	}
 
 	public EventProcessor<SyncInProgress> syncTimeoutProcessor() {
-		return this::refreshRequest;
+		return this::processSyncTimeout;
+	}
+
+	private void processSyncTimeout(SyncInProgress syncInProgress) {
+		if (syncInProgress.requestedNode != null && this.peerPerformance.requestTimedOut(RequestType.LEDGER_SYNC, syncInProgress.requestedNode)) {
+			systemCounters.increment(CounterType.SYNC_REQUEST_TIMEOUTS);
+		}
+		refreshRequest(syncInProgress);
 	}
 
 	private void refreshRequest(SyncInProgress syncInProgress) {
@@ -130,10 +146,9 @@ public final class LocalSyncServiceAccumulatorProcessor {
 
 		systemCounters.set(CounterType.SYNC_TARGET_CURRENT_DIFF, requestTargetHeader.getStateVersion() - this.currentHeader.getStateVersion());
 
-		ImmutableList<BFTNode> targetNodes = syncInProgress.getTargetNodes();
-		// TODO: remove thread local random
-		BFTNode node = targetNodes.get(ThreadLocalRandom.current().nextInt(targetNodes.size()));
+		BFTNode node = this.peerPerformance.select(syncInProgress.getTargetNodes());
+		this.peerPerformance.requestSent(RequestType.LEDGER_SYNC, node);
 		requestDispatcher.dispatch(node, this.currentHeader.toDto());
-		timeoutScheduler.dispatch(syncInProgress, patienceMilliseconds);
+		timeoutScheduler.dispatch(new SyncInProgress(requestTargetHeader, syncInProgress.getTargetNodes(), node), patienceMilliseconds);
 	}
 }
@@ -0,0 +1,361 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.sync;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.radixdlt.consensus.bft.BFTNode;
+import com.radixdlt.network.TimeSupplier;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Tracks the responsiveness of peers, and selects request targets
+ * preferring peers that respond quickly and reliably.
+ * <p>
+ * Peers are scored on a moving average of observed request latency, or of
+ * probe round trip time when no requests have completed, plus a penalty for
+ * each consecutive failure.  A fraction of selections are made at random so
+ * that the scores of peers that are not currently preferred stay current.
+ * <p>
+ * Requests are tracked separately for each {@link RequestType}, and a response
+ * is only credited to a peer if a request of the same type to that peer is
+ * outstanding, so that unsolicited responses cannot clear a failure penalty.
+ * <p>
+ * Statistics are dropped for peers that are removed, and for peers with no
+ * recorded activity for {@link #STALE_AFTER_MS}.
+ */
+@Singleton
+@ThreadSafe
+public final class PeerPerformanceTracker {
+	// Weight given to each new sample in the moving averages
+	private static final double SAMPLE_WEIGHT = 0.2;
+	// Latency assumed for peers with no samples
+	static final double UNKNOWN_LATENCY_MS = 200.0;
+	// Added to the score for each consecutive failure
+	static final double FAILURE_PENALTY_MS = 1_000.0;
+	// Fraction of selections made uniformly at random
+	static final double EXPLORATION_RATE = 0.1;
+	// Time without any recorded activity after which statistics for a peer are dropped
+	static final long STALE_AFTER_MS = 10L * 60L * 1_000L;
+
+	/**
+	 * Types of requests, which are tracked independently of each other.
+	 */
+	public enum RequestType {
+		/** Requests for vertices made by BFT sync. */
+		BFT_SYNC,
+		/** Requests for committed commands made by ledger sync. */
+		LEDGER_SYNC
+	}
+
+	/**
+	 * Snapshot of the performance of a peer.
+	 */
+	public static final class PeerScore {
+		private final double latencyMs;
+		private final double rttMs;
+		private final long responses;
+		private final long failures;
+		private final int consecutiveFailures;
+
+		private PeerScore(double latencyMs, double rttMs, long responses, long failures, int consecutiveFailures) {
+			this.latencyMs = latencyMs;
+			this.rttMs = rttMs;
+			this.responses = responses;
+			this.failures = failures;
+			this.consecutiveFailures = consecutiveFailures;
+		}
+
+		/**
+		 * @return moving average of request latency in milliseconds, or {@code NaN} if unknown
+		 */
+		public double getLatencyMs() {
+			return this.latencyMs;
+		}
+
+		/**
+		 * @return moving average of probe round trip time in milliseconds, or {@code NaN} if unknown
+		 */
+		public double getRttMs() {
+			return this.rttMs;
+		}
+
+		public long getResponses() {
+			return this.responses;
+		}
+
+		public long getFailures() {
+			return this.failures;
+		}
+
+		public int getConsecutiveFailures() {
+			return this.consecutiveFailures;
+		}
+
+		/**
+		 * @return the score of the peer, lower is better
+		 */
+		public double getScore() {
+			final double latency;
+			if (!Double.isNaN(this.latencyMs)) {
+				latency = this.latencyMs;
+			} else if (!Double.isNaN(this.rttMs)) {
+				latency = this.rttMs;
+			} else {
+				latency = UNKNOWN_LATENCY_MS;
+			}
+			return latency + this.consecutiveFailures * FAILURE_PENALTY_MS;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s[latency=%.1fms rtt=%.1fms responses=%s failures=%s/%s]",
+				getClass().getSimpleName(), this.latencyMs, this.rttMs, this.responses, this.consecutiveFailures, this.failures);
+		}
+	}
+
+	private static final class PeerStats {
+		@GuardedBy("this")
+		private double latencyMs = Double.NaN;
+		@GuardedBy("this")
+		private double rttMs = Double.NaN;
+		@GuardedBy("this")
+		private long responses;
+		@GuardedBy("this")
+		private long failures;
+		@GuardedBy("this")
+		private int consecutiveFailures;
+		// Time the oldest unanswered request of each type was sent, or -1 if none
+		@GuardedBy("this")
+		private final long[] outstandingSince = new long[RequestType.values().length];
+		// Time of the most recent recorded activity
+		@GuardedBy("this")
+		private long lastActivity;
+
+		PeerStats(long now) {
+			this.lastActivity = now;
+			Arrays.fill(this.outstandingSince, -1L);
+		}
+
+		synchronized void requestSent(RequestType type, long now) {
+			this.lastActivity = now;
+			if (this.outstandingSince[type.ordinal()] < 0L) {
+				this.outstandingSince[type.ordinal()] = now;
+			}
+		}
+
+		synchronized boolean responseReceived(RequestType type, long now) {
+			final long sentAt = this.outstandingSince[type.ordinal()];
+			if (sentAt < 0L) {
+				return false;
+			}
+			this.lastActivity = now;
+			this.latencyMs = average(this.latencyMs, Math.max(0L, now - sentAt));
+			this.outstandingSince[type.ordinal()] = -1L;
+			this.responses += 1;
+			this.consecutiveFailures = 0;
+			return true;
+		}
+
+		synchronized boolean requestTimedOut(RequestType type) {
+			if (this.outstandingSince[type.ordinal()] < 0L) {
+				return false;
+			}
+			failed(type);
+			return true;
+		}
+
+		synchronized void failed(RequestType type) {
+			this.outstandingSince[type.ordinal()] = -1L;
+			this.failures += 1;
+			this.consecutiveFailures += 1;
+		}
+
+		synchronized void rttMeasured(long now, long rttMs) {
+			this.lastActivity = now;
+			this.rttMs = average(this.rttMs, rttMs);
+		}
+
+		synchronized boolean isStale(long now) {
+			return now - this.lastActivity >= STALE_AFTER_MS;
+		}
+
+		synchronized PeerScore score() {
+			return new PeerScore(this.latencyMs, this.rttMs, this.responses, this.failures, this.consecutiveFailures);
+		}
+
+		private static double average(double current, long sample) {
+			return Double.isNaN(current) ? sample : current + SAMPLE_WEIGHT * (sample - current);
+		}
+	}
+
+	private final Random random;
+	private final TimeSupplier timeSupplier;
+	private final Map<BFTNode, PeerStats> stats = new ConcurrentHashMap<>();
+
+	@Inject
+	public PeerPerformanceTracker(Random random, TimeSupplier timeSupplier) {
+		this.random = Objects.requireNonNull(random);
+		this.timeSupplier = Objects.requireNonNull(timeSupplier);
+	}
+
+	/**
+	 * Selects a target from the specified candidates, preferring the best scoring
+	 * candidate, with ties resolved in favour of the earliest in the list.
+	 *
+	 * @param candidates the candidates to select from, must not be empty
+	 * @return the selected candidate
+	 */
+	public BFTNode select(List<BFTNode> candidates) {
+		if (candidates.isEmpty()) {
+			throw new IllegalArgumentException("No candidates to select from");
+		}
+		if (candidates.size() == 1) {
+			return candidates.get(0);
+		}
+		if (this.random.nextDouble() < EXPLORATION_RATE) {
+			return candidates.get(this.random.nextInt(candidates.size()));
+		}
+		BFTNode best = null;
+		double bestScore = Double.MAX_VALUE;
+		for (BFTNode candidate : candidates) {
+			double score = score(candidate).getScore();
+			if (best == null || score < bestScore) {
+				best = candidate;
+				bestScore = score;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Records that a request of the specified type has been sent to the specified node.
+	 *
+	 * @param type the type of the request
+	 * @param node the node the request was sent to
+	 */
+	public void requestSent(RequestType type, BFTNode node) {
+		stats(node).requestSent(type, this.timeSupplier.currentTime());
+	}
+
+	/**
+	 * Records that a valid response has been received from the specified node,
+	 * if there is an unanswered request of the specified type to the node.
+	 *
+	 * @param type the type of the request the response answers
+	 * @param node the node the response was received from
+	 * @return {@code true} if the response was credited, {@code false} otherwise
+	 */
+	public boolean responseReceived(RequestType type, BFTNode node) {
+		final PeerStats peerStats = this.stats.get(node);
+		return peerStats != null && peerStats.responseReceived(type, this.timeSupplier.currentTime());
+	}
+
+	/**
+	 * Records that a request of the specified type to the specified node timed out,
+	 * if there is still an unanswered request of that type to the node.
+	 *
+	 * @param type the type of the request
+	 * @param node the node the request was sent to
+	 * @return {@code true} if a failure was recorded, {@code false} otherwise
+	 */
+	public boolean requestTimedOut(RequestType type, BFTNode node) {
+		final PeerStats peerStats = this.stats.get(node);
+		return peerStats != null && peerStats.requestTimedOut(type);
+	}
+
+	/**
+	 * Records that the specified node responded to a request of the specified
+	 * type with an invalid response.
+	 *
+	 * @param type the type of the request
+	 * @param node the node the response was received from
+	 */
+	public void requestFailed(RequestType type, BFTNode node) {
+		stats(node).failed(type);
+	}
+
+	/**
+	 * Records a probe round trip time for the specified node.
+	 *
+	 * @param node the node that was probed
+	 * @param rttMs the round trip time in milliseconds
+	 */
+	public void rttMeasured(BFTNode node, long rttMs) {
+		stats(node).rttMeasured(this.timeSupplier.currentTime(), rttMs);
+	}
+
+	/**
+	 * Drops recorded performance for the specified node, for example
+	 * when the node has been removed from the address book.
+	 *
+	 * @param node the node to drop performance for
+	 */
+	public void remove(BFTNode node) {
+		this.stats.remove(node);
+	}
+
+	/**
+	 * Drops recorded performance for all nodes with no recorded
+	 * activity for {@link #STALE_AFTER_MS}.
+	 *
+	 * @return the number of nodes dropped
+	 */
+	public int evictStale() {
+		final long now = this.timeSupplier.currentTime();
+		int evicted = 0;
+		for (Map.Entry<BFTNode, PeerStats> entry : this.stats.entrySet()) {
+			if (entry.getValue().isStale(now) && this.stats.remove(entry.getKey(), entry.getValue())) {
+				evicted += 1;
+			}
+		}
+		return evicted;
+	}
+
+	/**
+	 * Returns the current score of the specified node.
+	 *
+	 * @param node the node to return the score for
+	 * @return the score for the node
+	 */
+	public PeerScore score(BFTNode node) {
+		PeerStats peerStats = this.stats.get(node);
+		return peerStats == null ? new PeerStats(0L).score() : peerStats.score();
+	}
+
+	/**
+	 * @return the current scores of all nodes with recorded performance
+	 */
+	public ImmutableMap<BFTNode, PeerScore> scores() {
+		ImmutableMap.Builder<BFTNode, PeerScore> builder = ImmutableMap.builder();
+		this.stats.forEach((node, peerStats) -> builder.put(node, peerStats.score()));
+		return builder.build();
+	}
+
+	private PeerStats stats(BFTNode node) {
+		return this.stats.computeIfAbsent(node, n -> new PeerStats(this.timeSupplier.currentTime()));
+	}
+}
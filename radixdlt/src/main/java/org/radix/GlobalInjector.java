@@ -113,12 +113,20 @@ public class GlobalInjector {
 		};
 
 		final int mempoolMaxSize = properties.get("mempool.maxSize", 1000);
+		// Either "rx" (default) or "disruptor"
+		final boolean useDisruptor = "disruptor".equals(properties.get("consensus.event_loop", "rx"));
+		// Either "hash_chain" (default) or "merkle"
+		final boolean merkleAccumulator = "merkle".equals(properties.get("ledger.accumulator", "hash_chain"));
+		// Either "berkeley" (default) or "append_log"
+		final boolean appendLogLedger = "append_log".equals(properties.get("db.ledger_store", "berkeley"));
+		final int commitWorkers = Math.max(1, properties.get("ledger.commit.workers", Runtime.getRuntime().availableProcessors()));
+		final boolean compactConsensusEvents = properties.get("consensus.compact_events", true);
 
 		injector = Guice.createInjector(
 			// System (e.g. time, random)
 			new SystemModule(),
 
-			new RxEnvironmentModule(),
+			new RxEnvironmentModule(useDisruptor),
 
 			new DispatcherModule(),
 
@@ -127,10 +135,10 @@ public class GlobalInjector {
 			new CryptoModule(),
 			new ConsensusModule(),
 			new ConsensusRxModule(),
-			new ConsensusRunnerModule(),
+			new ConsensusRunnerModule(useDisruptor),
 
 			// Ledger
-			new LedgerModule(),
+			new LedgerModule(merkleAccumulator),
 			new LedgerRxModule(),
 			new LedgerCommandGeneratorModule(),
 			new LedgerLocalMempoolModule(mempoolMaxSize),
@@ -149,7 +157,7 @@ public class GlobalInjector {
 			new EpochsSyncModule(),
 
 			// State Computer
-			new RadixEngineModule(),
+			new RadixEngineModule(commitWorkers),
 			new RadixEngineValidatorComputersModule(),
 			new RadixEngineRxModule(),
 			new RadixEngineStoreModule(),
@@ -163,7 +171,7 @@ public class GlobalInjector {
 			// Fees
 			new TokenFeeModule(),
 
-			new PersistenceModule(),
+			new PersistenceModule(appendLogLedger),
 
 			new RecoveryModule(),
 
@@ -171,7 +179,7 @@ public class GlobalInjector {
 			new SystemInfoModule(),
 
 			// Network
-			new NetworkModule(),
+			new NetworkModule(compactConsensusEvents),
 			new MessageCentralModule(properties),
 			new UDPTransportModule(properties),
 			new TCPTransportModule(properties),
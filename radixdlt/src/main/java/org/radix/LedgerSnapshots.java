@@ -0,0 +1,196 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package org.radix;
+
+import com.radixdlt.DefaultSerialization;
+import com.radixdlt.consensus.Sha256Hasher;
+import com.radixdlt.consensus.VerifiedLedgerHeaderAndProof;
+import com.radixdlt.counters.SystemCountersImpl;
+import com.radixdlt.crypto.Hasher;
+import com.radixdlt.ledger.LedgerAccumulator;
+import com.radixdlt.ledger.MerkleLedgerAccumulatorAndVerifier;
+import com.radixdlt.ledger.SimpleLedgerAccumulatorAndVerifier;
+import com.radixdlt.middleware2.store.LedgerSnapshot;
+import com.radixdlt.properties.RuntimeProperties;
+import com.radixdlt.serialization.Serialization;
+import com.radixdlt.store.berkeley.BerkeleyLedgerEntryStore;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.DefaultParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.json.JSONObject;
+import org.radix.database.DatabaseEnvironment;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.Security;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Exports the ledger of a stopped node to a snapshot file, and verifies
+ * and imports snapshot files into the empty ledger of a new node.
+ */
+public final class LedgerSnapshots {
+	private static final String DEFAULT_BATCH_SIZE = "1000";
+	// Present in the database directory while an import is in progress
+	private static final String IMPORT_MARKER = "ledger_snapshot_import.incomplete";
+	private static final String RECOVERY_HELP = String.format(
+		"%nIf an import fails, the ledger entries imported so far are removed. If the import process is killed, "
+			+ "the %s file is left in the database directory, and the next import removes the partially imported "
+			+ "ledger before importing. Alternatively, delete the database directory and import again.",
+		IMPORT_MARKER
+	);
+
+	private LedgerSnapshots() {
+		throw new IllegalStateException("Can't construct");
+	}
+
+	public static void main(String[] args) {
+		Security.insertProviderAt(new BouncyCastleProvider(), 1);
+
+		Options options = new Options();
+		options.addOption("h", "help",            false, "Show usage information (this message)");
+		options.addOption("x", "export",          true,  "Export the ledger to the specified snapshot file");
+		options.addOption("i", "import",          true,  "Verify and import the specified snapshot file into an empty ledger");
+		options.addOption("v", "verify",          true,  "Verify the specified snapshot file");
+		options.addOption("d", "db-location",     true,  "Specify the ledger database location (default: db.location from default.config)");
+		options.addOption("e", "epoch",           true,  "Export at the end of the specified epoch (default: latest completed epoch)");
+		options.addOption("b", "batch-size",      true,  "Number of ledger entries per import transaction (default: " + DEFAULT_BATCH_SIZE + ")");
+
+		CommandLineParser parser = new DefaultParser();
+		try {
+			CommandLine cmd = parser.parse(options, args);
+			if (!cmd.getArgList().isEmpty()) {
+				System.err.println("Extra arguments: " + cmd.getArgList().stream().collect(Collectors.joining(" ")));
+				usage(options);
+				return;
+			}
+
+			long commands = Stream.of("x", "i", "v").filter(cmd::hasOption).count();
+			if (cmd.hasOption('h') || commands != 1) {
+				usage(options);
+				return;
+			}
+
+			final RuntimeProperties properties = new RuntimeProperties(new JSONObject(), new String[0]);
+			getOption(cmd, 'd').ifPresent(location -> properties.set("db.location", location));
+			final Serialization serialization = DefaultSerialization.getInstance();
+			final Hasher hasher = Sha256Hasher.withDefaultSerialization();
+			final LedgerAccumulator accumulator = "merkle".equals(properties.get("ledger.accumulator", "hash_chain"))
+				? new MerkleLedgerAccumulatorAndVerifier(hasher)
+				: new SimpleLedgerAccumulatorAndVerifier(hasher);
+			final LedgerSnapshot snapshot = new LedgerSnapshot(serialization, hasher, accumulator);
+
+			if (cmd.hasOption('v')) {
+				VerifiedLedgerHeaderAndProof proof = verify(snapshot, Paths.get(cmd.getOptionValue('v')));
+				System.out.format("Snapshot is valid at epoch %s, state version %s%n", proof.getEpoch(), proof.getStateVersion());
+				return;
+			}
+
+			final DatabaseEnvironment dbEnv = new DatabaseEnvironment(properties);
+			final BerkeleyLedgerEntryStore store = new BerkeleyLedgerEntryStore(serialization, dbEnv, new SystemCountersImpl());
+			try {
+				if (cmd.hasOption('x')) {
+					final Optional<Long> epoch = getOption(cmd, 'e').map(Long::parseLong);
+					final VerifiedLedgerHeaderAndProof proof = epoch.isPresent()
+						? snapshot.epochProof(store, epoch.get())
+						: snapshot.latestEpochProof(store);
+					exportSnapshot(snapshot, store, Paths.get(cmd.getOptionValue('x')), proof);
+				} else {
+					int batchSize = Integer.parseInt(getOption(cmd, 'b').orElse(DEFAULT_BATCH_SIZE));
+					final Path marker = dbEnv.getEnvironment().getHome().toPath().resolve(IMPORT_MARKER);
+					importSnapshot(snapshot, store, Paths.get(cmd.getOptionValue('i')), batchSize, marker);
+				}
+			} finally {
+				store.close();
+				dbEnv.stop();
+			}
+		} catch (ParseException e) {
+			System.err.println(e.getMessage());
+			usage(options);
+		} catch (IOException | IllegalStateException e) {
+			System.err.println("Error: " + e.getMessage());
+		}
+	}
+
+	private static void exportSnapshot(
+		LedgerSnapshot snapshot,
+		BerkeleyLedgerEntryStore store,
+		Path file,
+		VerifiedLedgerHeaderAndProof proof
+	) throws IOException {
+		// Write to a temporary file first, so that an interrupted export does not leave a truncated snapshot
+		final Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+		final long count;
+		try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(tempFile))) {
+			count = snapshot.export(store, proof, output);
+		}
+		Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+		System.out.format("Exported %s ledger entries at epoch %s, state version %s%n", count, proof.getEpoch(), proof.getStateVersion());
+	}
+
+	private static void importSnapshot(
+		LedgerSnapshot snapshot,
+		BerkeleyLedgerEntryStore store,
+		Path file,
+		int batchSize,
+		Path marker
+	) throws IOException {
+		final VerifiedLedgerHeaderAndProof verified = verify(snapshot, file);
+		if (Files.exists(marker)) {
+			System.out.println("Removing ledger entries of an interrupted import");
+			store.reset();
+		}
+		Files.write(marker, file.toAbsolutePath().toString().getBytes(StandardCharsets.UTF_8));
+		try (InputStream input = new BufferedInputStream(Files.newInputStream(file))) {
+			snapshot.importInto(store, input, batchSize);
+		}
+		Files.delete(marker);
+		System.out.format("Imported snapshot at epoch %s, state version %s%n", verified.getEpoch(), verified.getStateVersion());
+	}
+
+	private static VerifiedLedgerHeaderAndProof verify(LedgerSnapshot snapshot, Path file) throws IOException {
+		try (InputStream input = new BufferedInputStream(Files.newInputStream(file))) {
+			return snapshot.verify(input);
+		}
+	}
+
+	private static void usage(Options options) {
+		HelpFormatter formatter = new HelpFormatter();
+		formatter.printHelp(LedgerSnapshots.class.getSimpleName(), "", options, RECOVERY_HELP, true);
+	}
+
+	private static Optional<String> getOption(CommandLine cmd, char opt) {
+		String value = cmd.getOptionValue(opt);
+		return Optional.ofNullable(value);
+	}
+}
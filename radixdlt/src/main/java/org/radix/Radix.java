@@ -26,6 +26,7 @@ import com.radixdlt.ModuleRunner;
 import com.radixdlt.consensus.bft.BFTNode;
 import com.radixdlt.systeminfo.SystemInfoRunner;
 import com.radixdlt.mempool.MempoolReceiver;
+import com.radixdlt.middleware2.store.LedgerPruner;
 import com.radixdlt.network.addressbook.PeerManager;
 import com.radixdlt.properties.RuntimeProperties;
 
@@ -147,6 +148,16 @@ public final class Radix {
 		final SystemInfoRunner infoStateRunner = globalInjector.getInjector().getInstance(SystemInfoRunner.class);
 		infoStateRunner.start();
 
+		if (properties.get("ledger.pruning.enabled", false)) {
+			if ("append_log".equals(properties.get("db.ledger_store", "berkeley"))) {
+				log.warn("Ledger pruning is not supported by the append-only ledger log and is disabled");
+			} else {
+				final LedgerPruner ledgerPruner = globalInjector.getInjector().getInstance(LedgerPruner.class);
+				ledgerPruner.start();
+				Runtime.getRuntime().addShutdownHook(new Thread(ledgerPruner::stop, "LedgerPruner shutdown"));
+			}
+		}
+
 		final Map<String, ModuleRunner> moduleRunners = globalInjector.getInjector()
 			.getInstance(Key.get(new TypeLiteral<Map<String, ModuleRunner>>() { }));
 		final ModuleRunner consensusRunner = moduleRunners.get("consensus");
@@ -22,6 +22,7 @@ import com.radixdlt.ModuleRunner;
 import com.radixdlt.consensus.bft.BFTCommittedUpdate;
 import com.radixdlt.crypto.Hasher;
 import com.radixdlt.consensus.bft.VerifiedVertex;
+import com.radixdlt.counters.SystemCounters;
 import com.radixdlt.statecomputer.ClientAtomToBinaryConverter;
 import com.radixdlt.systeminfo.InMemorySystemInfo;
 import com.google.common.io.CharStreams;
@@ -29,13 +30,15 @@ import com.radixdlt.api.CommittedAtomsRx;
 import com.radixdlt.api.SubmissionErrorsRx;
 import com.radixdlt.consensus.QuorumCertificate;
 import com.radixdlt.mempool.SubmissionControl;
-import com.radixdlt.middleware2.store.CommandToBinaryConverter;
+import com.radixdlt.middleware2.store.CommittedAtomCache;
 import com.radixdlt.network.addressbook.AddressBook;
 import com.radixdlt.properties.RuntimeProperties;
 import com.radixdlt.serialization.DsonOutput;
 import com.radixdlt.serialization.Serialization;
 import com.radixdlt.store.LedgerEntryStore;
+import com.radixdlt.sync.PeerPerformanceTracker;
 import com.radixdlt.universe.Universe;
+import com.radixdlt.utils.ThreadFactories;
 import com.stijndewitt.undertow.cors.AllowAll;
 import com.stijndewitt.undertow.cors.Filter;
 
@@ -55,11 +58,14 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.json.JSONArray;
 import org.json.JSONObject;
+import org.radix.api.http.WebSocketOutboundQueue.SlowConsumerPolicy;
 import org.radix.api.jsonrpc.RadixJsonRpcPeer;
 import org.radix.api.jsonrpc.RadixJsonRpcServer;
 import org.radix.api.services.AtomsService;
 import org.radix.api.services.InternalService;
+import org.radix.api.services.MetricsService;
 import org.radix.api.services.NetworkService;
+import org.radix.database.DatabaseEnvironment;
 import org.radix.time.Time;
 import org.radix.universe.system.LocalSystem;
 
@@ -71,10 +77,13 @@ import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * TODO: Document me!
@@ -82,6 +91,9 @@ import java.util.concurrent.ConcurrentHashMap;
 public final class RadixHttpServer {
 	public static final int DEFAULT_PORT = 8080;
 	public static final String CONTENT_TYPE_JSON = "application/json";
+	public static final int DEFAULT_WEBSOCKET_MAX_QUEUED_MESSAGES = 1000;
+	public static final int DEFAULT_WEBSOCKET_MAX_PENDING_REQUESTS = 100;
+	public static final String DEFAULT_WEBSOCKET_SLOW_CONSUMER_POLICY = "disconnect";
 
 	private static final Logger logger = LogManager.getLogger();
 
@@ -91,13 +103,20 @@ public final class RadixHttpServer {
 	private final RadixJsonRpcServer jsonRpcServer;
 	private final InternalService internalService;
 	private final NetworkService networkService;
+	private final MetricsService metricsService;
 	private final Universe universe;
 	private final JSONObject apiSerializedUniverse;
 	private final LocalSystem localSystem;
 	private final Serialization serialization;
 	private final InMemorySystemInfo inMemorySystemInfo;
+	private final SystemCounters counters;
 	private final int port;
+	private final int websocketWorkerThreads;
+	private final int websocketMaxQueuedMessages;
+	private final int websocketMaxPendingRequests;
+	private final SlowConsumerPolicy websocketSlowConsumerPolicy;
 	private Undertow server;
+	private ExecutorService websocketWorkers;
 
 	@Inject
 	public RadixHttpServer(
@@ -108,14 +127,17 @@ public final class RadixHttpServer {
 		Map<String, ModuleRunner> moduleRunners,
 		LedgerEntryStore store,
 		SubmissionControl submissionControl,
-		CommandToBinaryConverter commandToBinaryConverter,
+		CommittedAtomCache atomCache,
 		ClientAtomToBinaryConverter clientAtomToBinaryConverter,
 		Universe universe,
 		Serialization serialization,
 		RuntimeProperties properties,
 		LocalSystem localSystem,
 		AddressBook addressBook,
-		Hasher hasher
+		Hasher hasher,
+		SystemCounters counters,
+		DatabaseEnvironment dbEnv,
+		PeerPerformanceTracker peerPerformance
 	) {
 		this.inMemorySystemInfo = Objects.requireNonNull(inMemorySystemInfo);
 		this.consensusRunner = Objects.requireNonNull(moduleRunners.get("consensus"));
@@ -130,7 +152,7 @@ public final class RadixHttpServer {
 			committedUpdates,
 			store,
 			submissionControl,
-			commandToBinaryConverter,
+			atomCache,
 			clientAtomToBinaryConverter,
 			hasher
 		);
@@ -144,8 +166,31 @@ public final class RadixHttpServer {
 			universe
 		);
 		this.internalService = new InternalService(submissionControl, properties, universe, hasher);
-		this.networkService = new NetworkService(serialization, localSystem, addressBook, hasher);
+		this.networkService = new NetworkService(serialization, localSystem, addressBook, hasher, peerPerformance);
+		this.metricsService = new MetricsService(counters, dbEnv);
+		this.counters = Objects.requireNonNull(counters);
 		this.port = properties.get("cp.port", DEFAULT_PORT);
+		this.websocketWorkerThreads = Math.max(1,
+			properties.get("api.websocket.worker_threads", Runtime.getRuntime().availableProcessors())
+		);
+		this.websocketMaxQueuedMessages = Math.max(1,
+			properties.get("api.websocket.max_queued_messages", DEFAULT_WEBSOCKET_MAX_QUEUED_MESSAGES)
+		);
+		this.websocketMaxPendingRequests = Math.max(1,
+			properties.get("api.websocket.max_pending_requests", DEFAULT_WEBSOCKET_MAX_PENDING_REQUESTS)
+		);
+		this.websocketSlowConsumerPolicy = slowConsumerPolicy(
+			properties.get("api.websocket.slow_consumer_policy", DEFAULT_WEBSOCKET_SLOW_CONSUMER_POLICY)
+		);
+	}
+
+	private static SlowConsumerPolicy slowConsumerPolicy(String name) {
+		try {
+			return SlowConsumerPolicy.valueOf(name.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			logger.warn("Unknown websocket slow consumer policy '{}', using {}", name, SlowConsumerPolicy.DISCONNECT);
+			return SlowConsumerPolicy.DISCONNECT;
+		}
 	}
 
     /**
@@ -159,6 +204,7 @@ public final class RadixHttpServer {
 
 	public final void start() {
 		this.atomsService.start();
+		this.websocketWorkers = Executors.newFixedThreadPool(this.websocketWorkerThreads, ThreadFactories.daemonThreads("WebsocketWorker-%d"));
 
 		RoutingHandler handler = Handlers.routing(true); // add path params to query params with this flag
 
@@ -172,7 +218,18 @@ public final class RadixHttpServer {
 		handler.add(
 			Methods.GET,
 			"/rpc",
-			Handlers.websocket(new RadixHttpWebsocketHandler( this, jsonRpcServer, peers, atomsService, serialization))
+			Handlers.websocket(new RadixHttpWebsocketHandler(
+				this,
+				jsonRpcServer,
+				peers,
+				atomsService,
+				serialization,
+				websocketWorkers,
+				websocketMaxQueuedMessages,
+				websocketSlowConsumerPolicy,
+				websocketMaxPendingRequests,
+				counters
+			))
 		);
 
 		// add appropriate error handlers for meaningful error messages (undertow is silent by default)
@@ -209,6 +266,7 @@ public final class RadixHttpServer {
 	public final void stop() {
 		this.atomsService.stop();
 		this.server.stop();
+		this.websocketWorkers.shutdown();
 	}
 
 	private void addDevelopmentOnlyRoutesTo(RoutingHandler handler) {
@@ -263,10 +321,20 @@ public final class RadixHttpServer {
 
 				exchange.getResponseHeaders().put(Headers.CONTENT_TYPE, CONTENT_TYPE_JSON);
 				try {
-					exchange.getResponseSender().send(jsonRpcServer.handleChecked(exchange));
+					jsonRpcServer.handleChecked(exchange);
 				} catch (IOException e) {
-					exchange.setStatusCode(400);
-					exchange.getResponseSender().send("Invalid request: " + e.getMessage());
+					if (exchange.isResponseStarted()) {
+						logger.debug("Error while sending JSON-RPC response", e);
+						// Close the connection so that a partially written response is not taken as complete
+						try {
+							exchange.getConnection().close();
+						} catch (IOException closeException) {
+							logger.debug("Error while closing JSON-RPC connection", closeException);
+						}
+					} else {
+						exchange.setStatusCode(400);
+						exchange.getResponseSender().send("Invalid request: " + e.getMessage());
+					}
 				}
 			}
 		};
@@ -306,6 +374,10 @@ public final class RadixHttpServer {
 
 		addRoute("/api/bft/0", Methods.PUT_STRING, this::handleBftState, handler);
 
+		// metrics for scraping by Prometheus
+		addRoute("/metrics", Methods.GET_STRING, MetricsService.CONTENT_TYPE, exchange
+			-> respond(this.metricsService.getMetrics(), exchange), handler);
+
 		// keep-alive
 		addGetRoute("/api/ping", exchange -> {
 			JSONObject obj = new JSONObject();
@@ -322,6 +394,8 @@ public final class RadixHttpServer {
 				-> respond(this.networkService.getLivePeers().toString(), exchange), handler);
 		addGetRoute("/api/network/peers", exchange
 				-> respond(this.networkService.getPeers().toString(), exchange), handler);
+		addGetRoute("/api/network/performance", exchange
+				-> respond(this.networkService.getPeerPerformance(), exchange), handler);
 		addGetRoute("/api/network/peers/{id}", exchange
 				-> respond(this.networkService.getPeer(getParameter(exchange, "id").orElse(null)), exchange), handler);
 
@@ -19,8 +19,15 @@ package org.radix.api.http;
 
 import java.io.IOException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import com.google.common.util.concurrent.MoreExecutors;
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
 import com.radixdlt.serialization.Serialization;
+import org.radix.api.http.WebSocketOutboundQueue.SlowConsumerPolicy;
 import org.radix.api.jsonrpc.RadixJsonRpcPeer;
 import org.radix.api.jsonrpc.RadixJsonRpcServer;
 import org.radix.api.services.AtomsService;
@@ -28,6 +35,7 @@ import org.radix.api.services.AtomsService;
 import io.undertow.websockets.WebSocketConnectionCallback;
 import io.undertow.websockets.core.AbstractReceiveListener;
 import io.undertow.websockets.core.BufferedTextMessage;
+import io.undertow.websockets.core.WebSocketCallback;
 import io.undertow.websockets.core.WebSocketChannel;
 import io.undertow.websockets.core.WebSockets;
 import io.undertow.websockets.spi.WebSocketHttpExchange;
@@ -36,7 +44,11 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 /**
- * A handler for websockets on the Radix HTTP API that establishes and maintains connections and forwards the messages for processing
+ * A handler for websockets on the Radix HTTP API that establishes and maintains connections and forwards the messages for processing.
+ * <p>
+ * Messages are processed off the I/O thread on a shared worker pool, one at a time and in order for each connection.
+ * A connection with more requests waiting to be processed than the pending request limit is closed.
+ * Outbound messages are queued per connection up to a limit, beyond which the slow consumer policy applies.
  */
 /*package*/ final class RadixHttpWebsocketHandler implements WebSocketConnectionCallback {
     private static final Logger logger = LogManager.getLogger();
@@ -45,31 +57,60 @@ import org.apache.logging.log4j.Logger;
 	private final RadixHttpServer radixHttpServer;
 	private final AtomsService atomsService;
 	private final Serialization serialization;
+	private final Executor workerPool;
+	private final int maxQueuedMessages;
+	private final SlowConsumerPolicy slowConsumerPolicy;
+	private final int maxPendingRequests;
+	private final SystemCounters counters;
 
     RadixHttpWebsocketHandler(
         RadixHttpServer radixHttpServer,
         RadixJsonRpcServer jsonRpcServer,
         ConcurrentHashMap<RadixJsonRpcPeer, WebSocketChannel> peers,
         AtomsService atomsService,
-        Serialization serialization) {
+        Serialization serialization,
+        Executor workerPool,
+        int maxQueuedMessages,
+        SlowConsumerPolicy slowConsumerPolicy,
+        int maxPendingRequests,
+        SystemCounters counters) {
         this.radixHttpServer = radixHttpServer;
         this.jsonRpcServer = jsonRpcServer;
         this.peers = peers;
         this.atomsService = atomsService;
         this.serialization = serialization;
+        this.workerPool = workerPool;
+        this.maxQueuedMessages = maxQueuedMessages;
+        this.slowConsumerPolicy = slowConsumerPolicy;
+        this.maxPendingRequests = maxPendingRequests;
+        this.counters = counters;
     }
 
     @Override
     public void onConnect(WebSocketHttpExchange exchange, WebSocketChannel channel) {
+        // Closing the channel runs the close task below, which removes the peer
+        final WebSocketOutboundQueue outbound = new WebSocketOutboundQueue(
+            (msg, sent, failed) -> WebSockets.sendText(msg, channel, new WebSocketCallback<Void>() {
+                @Override
+                public void complete(WebSocketChannel c, Void context) {
+                    sent.run();
+                }
+
+                @Override
+                public void onError(WebSocketChannel c, Void context, Throwable throwable) {
+                    failed.accept(throwable);
+                }
+            }),
+            this.maxQueuedMessages,
+            this.slowConsumerPolicy,
+            this.counters,
+            () -> closeChannel(channel)
+        );
+
         final RadixJsonRpcPeer peer = new RadixJsonRpcPeer(
             jsonRpcServer, atomsService, this.serialization, (p, msg) -> {
             if (channel.isOpen()) {
-                try {
-                    WebSockets.sendText(msg, channel, null);
-                } catch (Exception e) {
-                    logger.error("Websocket connection send error: " + e, e);
-                    radixHttpServer.closeAndRemovePeer(p);
-                }
+                outbound.send(msg);
             } else {
                 logger.error("Websocket connection no longer open.");
                 radixHttpServer.closeAndRemovePeer(p);
@@ -78,14 +119,52 @@ import org.apache.logging.log4j.Logger;
 
         peers.put(peer, channel);
 
-        channel.addCloseTask(webSocketChannel -> radixHttpServer.closeAndRemovePeer(peer));
+        final Executor requests = MoreExecutors.newSequentialExecutor(this.workerPool);
+        final AtomicInteger pendingRequests = new AtomicInteger();
+        channel.addCloseTask(webSocketChannel -> {
+            outbound.close();
+            radixHttpServer.closeAndRemovePeer(peer);
+        });
         channel.getReceiveSetter().set(new AbstractReceiveListener() {
             @Override
-            protected void onFullTextMessage(WebSocketChannel channel, BufferedTextMessage message) throws IOException {
-                peer.onMessage(message);
+            protected void onFullTextMessage(WebSocketChannel channel, BufferedTextMessage message) {
+                final String data = message.getData();
+                if (pendingRequests.incrementAndGet() > maxPendingRequests) {
+                    pendingRequests.decrementAndGet();
+                    if (channel.isOpen()) {
+                        counters.increment(CounterType.API_WEBSOCKET_FLOODING_CLIENTS);
+                        logger.warn("Closing websocket connection with more than {} pending requests", maxPendingRequests);
+                        closeChannel(channel);
+                    }
+                    return;
+                }
+                counters.increment(CounterType.API_WEBSOCKET_PENDING_REQUESTS);
+                try {
+                    requests.execute(() -> {
+                        pendingRequests.decrementAndGet();
+                        counters.add(CounterType.API_WEBSOCKET_PENDING_REQUESTS, -1L);
+                        try {
+                            peer.onMessage(data);
+                        } catch (RuntimeException e) {
+                            logger.error("Error processing websocket message", e);
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    pendingRequests.decrementAndGet();
+                    counters.add(CounterType.API_WEBSOCKET_PENDING_REQUESTS, -1L);
+                    logger.warn("Websocket message rejected, API is shutting down");
+                }
             }
         });
 
         channel.resumeReceives();
     }
+
+    private static void closeChannel(WebSocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.error("Error while closing web socket", e);
+        }
+    }
 }
@@ -0,0 +1,200 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package org.radix.api.http;
+
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Objects;
+import java.util.function.Consumer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Bounded queue of messages to send to a websocket client, sending one message
+ * at a time so that a slow client cannot cause unbounded buffering of outbound data.
+ */
+/*package*/ final class WebSocketOutboundQueue {
+	private static final Logger logger = LogManager.getLogger();
+
+	/**
+	 * What to do when a message is sent to a client whose queue is full.
+	 */
+	enum SlowConsumerPolicy {
+		/** Close the connection to the client. */
+		DISCONNECT,
+		/** Discard the oldest queued message to make room for the new one. */
+		DROP_OLDEST,
+		/** Discard the new message. */
+		DROP_NEWEST
+	}
+
+	/**
+	 * Sends a text message to the client asynchronously.
+	 */
+	@FunctionalInterface
+	interface TextSender {
+		void send(String message, Runnable onSent, Consumer<Throwable> onError);
+	}
+
+	private final TextSender sender;
+	private final int maxQueuedMessages;
+	private final SlowConsumerPolicy policy;
+	private final SystemCounters counters;
+	private final Runnable onClose;
+
+	private final Object lock = new Object();
+	private final Deque<String> queue = new ArrayDeque<>();
+	private boolean sending;
+	private boolean draining;
+	private boolean closed;
+
+	WebSocketOutboundQueue(
+		TextSender sender,
+		int maxQueuedMessages,
+		SlowConsumerPolicy policy,
+		SystemCounters counters,
+		Runnable onClose
+	) {
+		if (maxQueuedMessages <= 0) {
+			throw new IllegalArgumentException("maxQueuedMessages must be positive: " + maxQueuedMessages);
+		}
+		this.sender = Objects.requireNonNull(sender);
+		this.maxQueuedMessages = maxQueuedMessages;
+		this.policy = Objects.requireNonNull(policy);
+		this.counters = Objects.requireNonNull(counters);
+		this.onClose = Objects.requireNonNull(onClose);
+	}
+
+	/**
+	 * Queues a message for sending, applying the slow consumer policy if the queue is full.
+	 *
+	 * @param message the message to send
+	 */
+	void send(String message) {
+		boolean disconnect = false;
+		synchronized (this.lock) {
+			if (this.closed) {
+				return;
+			}
+			if (this.queue.size() >= this.maxQueuedMessages) {
+				switch (this.policy) {
+					case DROP_NEWEST:
+						this.counters.increment(CounterType.API_WEBSOCKET_DROPPED_MESSAGES);
+						return;
+					case DROP_OLDEST:
+						this.queue.pollFirst();
+						this.counters.add(CounterType.API_WEBSOCKET_QUEUED_MESSAGES, -1L);
+						this.counters.increment(CounterType.API_WEBSOCKET_DROPPED_MESSAGES);
+						break;
+					case DISCONNECT:
+					default:
+						logger.warn("Disconnecting websocket client with {} queued messages", this.queue.size());
+						this.counters.increment(CounterType.API_WEBSOCKET_DROPPED_CLIENTS);
+						closeInternal();
+						disconnect = true;
+						break;
+				}
+			}
+			if (!disconnect) {
+				this.queue.addLast(message);
+				this.counters.add(CounterType.API_WEBSOCKET_QUEUED_MESSAGES, 1L);
+			}
+		}
+		if (disconnect) {
+			this.onClose.run();
+		} else {
+			drain();
+		}
+	}
+
+	/**
+	 * Discards any queued messages and stops sending.
+	 */
+	void close() {
+		synchronized (this.lock) {
+			closeInternal();
+		}
+	}
+
+	boolean isClosed() {
+		synchronized (this.lock) {
+			return this.closed;
+		}
+	}
+
+	int size() {
+		synchronized (this.lock) {
+			return this.queue.size();
+		}
+	}
+
+	private void closeInternal() {
+		if (!this.closed) {
+			this.closed = true;
+			this.counters.add(CounterType.API_WEBSOCKET_QUEUED_MESSAGES, -this.queue.size());
+			this.queue.clear();
+		}
+	}
+
+	// Sends queued messages in a loop rather than from the completion callback, as the
+	// callback may be invoked on the sending thread and would otherwise recurse.
+	private void drain() {
+		synchronized (this.lock) {
+			if (this.draining) {
+				return;
+			}
+			this.draining = true;
+		}
+		while (true) {
+			final String next;
+			synchronized (this.lock) {
+				if (this.sending || this.closed || this.queue.isEmpty()) {
+					this.draining = false;
+					return;
+				}
+				next = this.queue.pollFirst();
+				this.counters.add(CounterType.API_WEBSOCKET_QUEUED_MESSAGES, -1L);
+				this.sending = true;
+			}
+			try {
+				this.sender.send(next, this::onSent, this::onError);
+			} catch (RuntimeException e) {
+				synchronized (this.lock) {
+					this.draining = false;
+				}
+				onError(e);
+				return;
+			}
+		}
+	}
+
+	private void onSent() {
+		synchronized (this.lock) {
+			this.sending = false;
+		}
+		drain();
+	}
+
+	private void onError(Throwable e) {
+		logger.error("Websocket connection send error: " + e, e);
+		close();
+		this.onClose.run();
+	}
+}
@@ -27,6 +27,8 @@ public final class JsonRpcUtil {
 	/**
 	 * The following found at: https://www.jsonrpc.org/specification
 	 */
+	public static final int PARSE_ERROR_CODE = -32700;
+
 	public static final int INVALID_REQUEST_CODE = -32600;
 
 	public static final int OVERSIZED_REQUEST = -32001;
@@ -17,20 +17,21 @@
 
 package org.radix.api.jsonrpc;
 
+import java.util.Optional;
 import java.util.function.BiConsumer;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 import org.radix.api.AtomQuery;
 import org.radix.api.services.AtomsService;
 
 import com.radixdlt.identifiers.RadixAddress;
 import com.radixdlt.serialization.Serialization;
 
-import io.undertow.websockets.core.BufferedTextMessage;
-
 /**
  * A Stateful JSON RPC 2.0 Server and Client for duplex communication
  */
@@ -72,23 +73,65 @@ public class RadixJsonRpcPeer {
 	}
 
 	/**
-	 * Handle the text message and send a corresponding response
+	 * Handle the text message and send a corresponding response.
+	 * Messages from a client are expected to be handled one at a time, in the order received.
+	 * <p>
+	 * A message may contain a batch of requests.  Subscription requests within a batch are
+	 * handled individually and respond with separate messages, the remaining requests are
+	 * answered together with a single batch response.
 	 *
-	 * @param message The message
+	 * @param msg The message
 	 */
-	// TODO: multithreading issues - should get resolved once we use a better async framework
-	public void onMessage(BufferedTextMessage message) {
-
-		final String msg = message.getData();
+	public void onMessage(String msg) {
+		Optional<JSONObject> oversized = server.checkSize(msg);
+		if (oversized.isPresent()) {
+			callback.accept(this, oversized.get().toString());
+			return;
+		}
 
-		final JSONObject jsonRpcRequest;
+		final Object jsonRpcRequest;
 		try {
-			jsonRpcRequest = new JSONObject(msg);
+			jsonRpcRequest = new JSONTokener(msg).nextValue();
 		} catch (JSONException e) {
 			callback.accept(this, JsonRpcUtil.errorResponse(null, -32000, e.getMessage()).toString());
 			return;
 		}
 
+		if (jsonRpcRequest instanceof JSONArray) {
+			JSONArray batch = (JSONArray) jsonRpcRequest;
+			JSONArray serverRequests = new JSONArray();
+			for (int i = 0; i < batch.length(); i++) {
+				Object request = batch.get(i);
+				if (request instanceof JSONObject && isPeerMethod((JSONObject) request)) {
+					onRequest((JSONObject) request);
+				} else {
+					serverRequests.put(request);
+				}
+			}
+			if (serverRequests.length() > 0 || batch.length() == 0) {
+				callback.accept(this, server.handle(serverRequests));
+			}
+		} else if (jsonRpcRequest instanceof JSONObject) {
+			onRequest((JSONObject) jsonRpcRequest);
+		} else {
+			callback.accept(this, JsonRpcUtil.errorResponse(null, JsonRpcUtil.INVALID_REQUEST_CODE, "JSON-RPC: Not a request").toString());
+		}
+	}
+
+	private static boolean isPeerMethod(JSONObject jsonRpcRequest) {
+		switch (jsonRpcRequest.optString("method")) {
+			case "Atoms.subscribe":
+			case "Atoms.cancel":
+			case "Universe.submitAtomAndSubscribe":
+			case "Atoms.getAtomStatusNotifications":
+			case "Atoms.closeAtomStatusNotifications":
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private void onRequest(JSONObject jsonRpcRequest) {
 		if (!jsonRpcRequest.has("id")) {
 			callback.accept(this, JsonRpcUtil.errorResponse(null, -32000, "JSON-RPC: No id").toString());
 			return;
@@ -128,7 +171,7 @@ public class RadixJsonRpcPeer {
 				atomStatusEpic.action(jsonRpcRequest);
 				break;
 			default:
-				callback.accept(this, server.handleChecked(msg));
+				callback.accept(this, server.handle(jsonRpcRequest));
 				break;
 		}
 	}
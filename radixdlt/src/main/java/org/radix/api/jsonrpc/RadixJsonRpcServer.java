@@ -17,7 +17,6 @@
 
 package org.radix.api.jsonrpc;
 
-import com.google.common.io.CharStreams;
 import com.radixdlt.ModuleRunner;
 import com.radixdlt.identifiers.RadixAddress;
 import com.radixdlt.store.SearchCursor;
@@ -32,24 +31,36 @@ import com.radixdlt.serialization.Serialization;
 import com.radixdlt.store.LedgerEntryStore;
 import io.undertow.server.HttpServerExchange;
 
-import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.Objects;
+import java.util.Optional;
 import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 import org.radix.api.services.AtomsService;
 
 import com.radixdlt.universe.Universe;
 import org.radix.universe.system.LocalSystem;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * Stateless Json Rpc 2.0 Server
+ * <p>
+ * Requests are parsed once, and may be either a single request object or a batch array of
+ * requests.  Responses are written out as they are produced rather than built up as a
+ * single document, with the elements of list results serialized and written one at a time.
+ * If an element fails after part of its response has been written, a buffered response
+ * replaces the partial response with an error, while a streamed response is aborted.
  */
 public final class RadixJsonRpcServer {
 	private static final long DEFAULT_MAX_REQUEST_SIZE = 1024L * 1024L;
@@ -112,17 +123,29 @@ public final class RadixJsonRpcServer {
 	}
 
     /**
-     * Extract a JSON RPC API request from an HttpServerExchange, handle it as usual and return the response
+     * Read a JSON RPC API request from an HttpServerExchange, handle it as usual and write the response
+     * to the exchange.
      *
      * @param exchange The JSON RPC API request
-     * @return The response
+     * @throws IOException if the request could not be read
      */
-    public String handleChecked(HttpServerExchange exchange) throws IOException {
+    public void handleChecked(HttpServerExchange exchange) throws IOException {
 	    exchange.setMaxEntitySize(maxRequestSizeBytes);
 	    exchange.startBlocking();
-        String requestBody = CharStreams.toString(new InputStreamReader(exchange.getInputStream(), StandardCharsets.UTF_8));
+		final Object jsonRpcRequest;
+		try {
+			jsonRpcRequest = parse(new JSONTokener(new InputStreamReader(exchange.getInputStream(), StandardCharsets.UTF_8)));
+		} catch (JSONException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			exchange.getResponseSender().send(parseErrorResponse(e).toString());
+			return;
+		}
 
-        return this.handleChecked(requestBody);
+		Writer writer = new BufferedWriter(new OutputStreamWriter(exchange.getOutputStream(), StandardCharsets.UTF_8));
+		handle(jsonRpcRequest, writer);
+		writer.flush();
     }
 
 	/**
@@ -131,33 +154,113 @@ public final class RadixJsonRpcServer {
 	 * @return The response to the request, could be a JSON-RPC error
 	 */
 	String handleChecked(String jsonRpcRequest) {
+		Optional<JSONObject> oversized = checkSize(jsonRpcRequest);
+		if (oversized.isPresent()) {
+			return oversized.get().toString();
+		}
+
+		final Object request;
+		try {
+			request = parse(new JSONTokener(jsonRpcRequest));
+		} catch (JSONException e) {
+			return parseErrorResponse(e).toString();
+		}
+		return handle(request);
+	}
+
+	// Parses a single JSON value, rejecting anything following it
+	private static Object parse(JSONTokener tokener) {
+		final Object value = tokener.nextValue();
+		if (tokener.nextClean() != 0) {
+			throw tokener.syntaxError("Unexpected data after JSON-RPC request");
+		}
+		return value;
+	}
+
+	static JSONObject parseErrorResponse(JSONException e) {
+		return JsonRpcUtil.errorResponse(JSONObject.NULL, JsonRpcUtil.PARSE_ERROR_CODE, e.getMessage());
+	}
+
+	/**
+	 * Check the size of a string JSON-RPC request.
+	 *
+	 * @param jsonRpcRequest The string JSON-RPC request
+	 * @return An error response if the request is oversized, otherwise empty
+	 */
+	Optional<JSONObject> checkSize(String jsonRpcRequest) {
 		// one char is 2 bytes
-	    if (jsonRpcRequest.length() * 2 > maxRequestSizeBytes) {
-		    return JsonRpcUtil.errorResponse(
+	    if (jsonRpcRequest.length() * 2L > maxRequestSizeBytes) {
+		    return Optional.of(JsonRpcUtil.errorResponse(
 		        JSONObject.NULL,
 			    JsonRpcUtil.OVERSIZED_REQUEST,
-			    "request too big: " + jsonRpcRequest.length() * 2 + " > " + maxRequestSizeBytes
-		    ).toString();
+			    "request too big: " + jsonRpcRequest.length() * 2L + " > " + maxRequestSizeBytes
+		    ));
 	    }
+		return Optional.empty();
+	}
 
-	    return handle(new JSONObject(jsonRpcRequest)).toString();
+	/**
+	 * Handle an already parsed JSON-RPC request, which may be a single request or a batch.
+	 *
+	 * @param jsonRpcRequest The parsed request, a {@link JSONObject} or {@link JSONArray}
+	 * @return The response to the request
+	 */
+	String handle(Object jsonRpcRequest) {
+		StringWriter writer = new StringWriter();
+		try {
+			handle(jsonRpcRequest, writer);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return writer.toString();
+	}
+
+	private void handle(Object jsonRpcRequest, Writer writer) throws IOException {
+		if (jsonRpcRequest instanceof JSONArray) {
+			JSONArray batch = (JSONArray) jsonRpcRequest;
+			if (batch.length() == 0) {
+				write(JsonRpcUtil.errorResponse(JSONObject.NULL, JsonRpcUtil.INVALID_REQUEST_CODE, "empty batch"), writer);
+				return;
+			}
+			writer.write('[');
+			for (int i = 0; i < batch.length(); i++) {
+				if (i > 0) {
+					writer.write(',');
+				}
+				handleSingle(batch.get(i), writer);
+			}
+			writer.write(']');
+		} else {
+			handleSingle(jsonRpcRequest, writer);
+		}
+	}
+
+	private void handleSingle(Object jsonRpcRequest, Writer writer) throws IOException {
+		if (jsonRpcRequest instanceof JSONObject) {
+			handleRequest((JSONObject) jsonRpcRequest, writer);
+		} else {
+			write(JsonRpcUtil.errorResponse(JSONObject.NULL, JsonRpcUtil.INVALID_REQUEST_CODE, "request should be a JSONObject"), writer);
+		}
 	}
 
     /**
-     * Handle a certain JSON RPC request and return the response
+     * Handle a certain JSON RPC request and write the response
      *
      * @param jsonRpcRequest The JSON RPC API request
-     * @return The response
+     * @param writer The writer to write the response to
      */
-    private JSONObject handle(JSONObject jsonRpcRequest) {
+    private void handleRequest(JSONObject jsonRpcRequest, Writer writer) throws IOException {
         Object id = null;
+		final Object result;
+		final Iterator<?> elements;
+		final JSONObject serializedResult;
         try {
         	if (!jsonRpcRequest.has("id")) {
-        		return JsonRpcUtil.errorResponse(JSONObject.NULL, JsonRpcUtil.INVALID_REQUEST_CODE, "id missing");
+        		write(JsonRpcUtil.errorResponse(JSONObject.NULL, JsonRpcUtil.INVALID_REQUEST_CODE, "id missing"), writer);
+        		return;
 			}
 
             id = jsonRpcRequest.get("id");
-			final Object result;
 			final String method = jsonRpcRequest.getString("method");
 			final Object paramsObject = jsonRpcRequest.get("params");
 			switch (method) {
@@ -173,42 +276,38 @@ public final class RadixJsonRpcServer {
 					break;
 				case "Ledger.getAtom":
 					if (!(paramsObject instanceof JSONObject)) {
-						return JsonRpcUtil.errorResponse(id, -32000, "params should be a JSONObject" , new JSONObject());
+						write(JsonRpcUtil.errorResponse(id, -32000, "params should be a JSONObject", new JSONObject()), writer);
+						return;
 					} else {
 						JSONObject params = (JSONObject) paramsObject;
 						if (!params.has("aid")) {
-							return JsonRpcUtil.errorResponse(id, -32000, "aid not present", new JSONObject());
+							write(JsonRpcUtil.errorResponse(id, -32000, "aid not present", new JSONObject()), writer);
+							return;
 						}
 
 						String aidString = params.getString("aid");
 						try {
 							result = atomsService.getAtomsByAtomId(AID.from(aidString));
 						} catch (RuntimeException e) {
-							return JsonRpcUtil.errorResponse(id, -32000, "Atom not found", new JSONObject());
+							write(JsonRpcUtil.errorResponse(id, -32000, "Atom not found", new JSONObject()), writer);
+							return;
 						}
 					}
 
 					break;
 				case "Ledger.getAtoms":
-					if (!(paramsObject instanceof JSONObject)) {
-						return JsonRpcUtil.errorResponse(id, -32000, "No address present", new JSONObject());
+					if (!(paramsObject instanceof JSONObject) || !((JSONObject) paramsObject).has("address")) {
+						write(JsonRpcUtil.errorResponse(id, -32000, "No address present", new JSONObject()), writer);
+						return;
 					} else {
 						JSONObject params = (JSONObject) paramsObject;
-						if (!params.has("address")) {
-							return JsonRpcUtil.errorResponse(id, -32000, "No address present", new JSONObject());
-						}
-
 						final String addressString = params.getString("address");
 						final RadixAddress address = RadixAddress.from(addressString);
 
 						StoreIndex index = new StoreIndex(EngineAtomIndices.IndexType.DESTINATION.getValue(), address.euid().toByteArray());
-						List<AID> collectedAids = new ArrayList<>();
 						SearchCursor cursor = ledger.search(StoreIndex.LedgerIndexType.DUPLICATE, index, LedgerSearchMode.EXACT);
-						while (cursor != null) {
-							collectedAids.add(cursor.get());
-							cursor = cursor.next();
-						}
-						result = collectedAids;
+						// Walked while writing the response
+						result = Stream.iterate(cursor, Objects::nonNull, SearchCursor::next).map(SearchCursor::get).iterator();
 					}
 
 					break;
@@ -216,10 +315,10 @@ public final class RadixJsonRpcServer {
 					result = this.universe;
 					break;
                 case "Network.getLivePeers":
-                    result = selfAndOthers(this.addressBook.recentPeers()).collect(Collectors.toList());
+                    result = selfAndOthers(this.addressBook.recentPeers()).iterator();
                     break;
                 case "Network.getPeers":
-                    result = selfAndOthers(this.addressBook.peers()).collect(Collectors.toList());
+                    result = selfAndOthers(this.addressBook.peers()).iterator();
                     break;
                 case "Network.getInfo":
                     result = localSystem;
@@ -231,7 +330,8 @@ public final class RadixJsonRpcServer {
                     break;
 				case "Atoms.submitAtom":
 					if (!(paramsObject instanceof JSONObject)) {
-						return JsonRpcUtil.errorResponse(id, -32000, "No atom present", new JSONObject());
+						write(JsonRpcUtil.errorResponse(id, -32000, "No atom present", new JSONObject()), writer);
+						return;
 					} else {
 						JSONObject jsonAtom = (JSONObject) paramsObject;
 						final AID atomId = atomsService.submitAtom(jsonAtom, null);
@@ -243,7 +343,8 @@ public final class RadixJsonRpcServer {
 					break;
 				case "Atoms.getAtomStatus":
 					if (!(paramsObject instanceof JSONObject) || !((JSONObject) paramsObject).has("aid")) {
-						return JsonRpcUtil.errorResponse(id, -32000, "No aid present", new JSONObject());
+						write(JsonRpcUtil.errorResponse(id, -32000, "No aid present", new JSONObject()), writer);
+						return;
 					} else {
 						String aidString = ((JSONObject) paramsObject).getString("aid");
 						final AID aid = AID.from(aidString);
@@ -257,30 +358,84 @@ public final class RadixJsonRpcServer {
 					}
 					break;
                 default:
-                    return JsonRpcUtil.methodNotFoundResponse(id);
+                    write(JsonRpcUtil.methodNotFoundResponse(id), writer);
+                    return;
             }
 
-            JSONObject response = new JSONObject();
-			response.put("id", id);
-			response.put("jsonrpc", "2.0");
-
-			// FIXME: Bit of a hack for now
-			if (result instanceof List) {
-				List<?> list = (List<?>) result;
-				JSONArray resultArray = new JSONArray();
-				list.stream().map(o -> serialization.toJsonObject(o, Output.API)).forEach(resultArray::put);
-				response.put("result", resultArray);
+			// Single results are serialized before any of the response is written, so that a failure is reported as an error
+			if (result instanceof Iterator) {
+				elements = (Iterator<?>) result;
+				serializedResult = null;
 			} else {
-				response.put("result", serialization.toJsonObject(result, Output.API));
+				elements = null;
+				serializedResult = serialization.toJsonObject(result, Output.API);
 			}
-
-			return response;
-
 		} catch (Exception e) {
 			if (jsonRpcRequest.has("params") && jsonRpcRequest.get("params") instanceof JSONObject) {
-				return JsonRpcUtil.errorResponse(id,-32000, e.getMessage(), jsonRpcRequest.getJSONObject("params"));
+				write(JsonRpcUtil.errorResponse(id, -32000, e.getMessage(), jsonRpcRequest.getJSONObject("params")), writer);
 			} else {
-				return JsonRpcUtil.errorResponse(id,-32000, e.getMessage());
+				write(JsonRpcUtil.errorResponse(id, -32000, e.getMessage()), writer);
+			}
+			return;
+		}
+
+		if (elements == null) {
+			writeResult(id, serializedResult, writer);
+			return;
+		}
+
+		// A response written to a string can still be replaced if an element fails
+		final int mark = writer instanceof StringWriter ? ((StringWriter) writer).getBuffer().length() : -1;
+		try {
+			writeElements(id, elements, writer);
+		} catch (RuntimeException e) {
+			if (mark < 0) {
+				// Part of the response has been sent, abort rather than leave a truncated result
+				throw new IOException("Writing result of JSON-RPC request " + id + " failed", e);
+			}
+			((StringWriter) writer).getBuffer().setLength(mark);
+			write(JsonRpcUtil.errorResponse(id, -32000, e.getMessage()), writer);
+		}
+	}
+
+	private static void writeResult(Object id, JSONObject result, Writer writer) throws IOException {
+		writeResultStart(id, writer);
+		write(result, writer);
+		writer.write('}');
+	}
+
+	private void writeElements(Object id, Iterator<?> elements, Writer writer) throws IOException {
+		writeResultStart(id, writer);
+		writer.write('[');
+		boolean first = true;
+		while (elements.hasNext()) {
+			JSONObject element = serialization.toJsonObject(elements.next(), Output.API);
+			if (!first) {
+				writer.write(',');
+			}
+			write(element, writer);
+			first = false;
+		}
+		writer.write("]}");
+	}
+
+	private static void writeResultStart(Object id, Writer writer) throws IOException {
+		writer.write("{\"id\":");
+		writer.write(JSONObject.valueToString(id));
+		writer.write(",\"jsonrpc\":\"2.0\",\"result\":");
+	}
+
+	private static void write(JSONObject json, Writer writer) throws IOException {
+		if (json == null) {
+			writer.write("null");
+		} else {
+			try {
+				json.write(writer);
+			} catch (JSONException e) {
+				if (e.getCause() instanceof IOException) {
+					throw (IOException) e.getCause();
+				}
+				throw e;
 			}
 		}
 	}
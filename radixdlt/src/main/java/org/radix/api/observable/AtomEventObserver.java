@@ -25,17 +25,15 @@ import com.radixdlt.crypto.Hasher;
 import com.radixdlt.identifiers.AID;
 import com.radixdlt.identifiers.EUID;
 import com.radixdlt.middleware2.ClientAtom;
-import com.radixdlt.middleware2.store.StoredCommittedCommand;
-import com.radixdlt.statecomputer.ClientAtomToBinaryConverter;
 import com.radixdlt.statecomputer.CommittedAtom;
 import com.radixdlt.store.SearchCursor;
 import com.radixdlt.store.StoreIndex;
 import com.radixdlt.utils.Pair;
 import com.radixdlt.store.LedgerSearchMode;
-import com.radixdlt.middleware2.store.CommandToBinaryConverter;
+import com.radixdlt.middleware2.store.CommittedAtomCache;
+import com.radixdlt.middleware2.store.CommittedAtomCache.CachedAtom;
 import com.radixdlt.middleware2.store.EngineAtomIndices;
 
-import com.radixdlt.store.LedgerEntry;
 import com.radixdlt.store.LedgerEntryStore;
 
 import org.apache.logging.log4j.LogManager;
@@ -67,8 +65,7 @@ public class AtomEventObserver {
 	private CompletableFuture<?> firstRunnable;
 	private final ExecutorService executorService;
 	private final LedgerEntryStore store;
-	private final CommandToBinaryConverter commandToBinaryConverter;
-	private final ClientAtomToBinaryConverter clientAtomToBinaryConverter;
+	private final CommittedAtomCache atomCache;
 	private final Hasher hasher;
 
 	private final Object syncLock = new Object();
@@ -80,16 +77,14 @@ public class AtomEventObserver {
 		Consumer<ObservedAtomEvents> onNext,
 		ExecutorService executorService,
 		LedgerEntryStore store,
-		CommandToBinaryConverter commandToBinaryConverter,
-		ClientAtomToBinaryConverter clientAtomToBinaryConverter,
+		CommittedAtomCache atomCache,
 		Hasher hasher
 	) {
 		this.atomQuery = atomQuery;
 		this.onNext = onNext;
 		this.executorService = executorService;
 		this.store = store;
-		this.commandToBinaryConverter = commandToBinaryConverter;
-		this.clientAtomToBinaryConverter = clientAtomToBinaryConverter;
+		this.atomCache = atomCache;
 		this.hasher = hasher;
 	}
 
@@ -160,13 +155,11 @@ public class AtomEventObserver {
 				while (cursor != null && atoms.size() < BATCH_SIZE) {
 					AID aid = cursor.get();
 					processedAtomIds.add(aid);
-					Optional<LedgerEntry> ledgerEntry = store.get(aid);
-					ledgerEntry.ifPresent(
-						entry -> {
-							StoredCommittedCommand committedCommand = commandToBinaryConverter.toCommand(entry.getContent());
-							long timestamp = committedCommand.getStateAndProof().timestamp();
-							ClientAtom clientAtom = committedCommand.getCommand().map(clientAtomToBinaryConverter::toAtom);
-							atoms.add(Pair.of(clientAtom, timestamp));
+					Optional<CachedAtom> cached = atomCache.get(aid).or(() -> store.get(aid).map(atomCache::get));
+					cached.ifPresent(
+						cachedAtom -> {
+							long timestamp = cachedAtom.getCommittedCommand().getStateAndProof().timestamp();
+							atoms.add(Pair.of(cachedAtom.getClientAtom(), timestamp));
 						}
 					);
 					cursor = cursor.next();
@@ -30,7 +30,6 @@ import com.radixdlt.crypto.Hasher;
 import com.radixdlt.mempool.MempoolRejectedException;
 import com.radixdlt.mempool.SubmissionControl;
 
-import com.radixdlt.middleware2.store.StoredCommittedCommand;
 import com.radixdlt.statecomputer.ClientAtomToBinaryConverter;
 import com.radixdlt.statecomputer.CommittedAtom;
 import com.radixdlt.statecomputer.RadixEngineStateComputer.CommittedAtomWithResult;
@@ -46,10 +45,10 @@ import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
-import com.radixdlt.middleware2.store.CommandToBinaryConverter;
+import com.radixdlt.middleware2.store.CommittedAtomCache;
+import com.radixdlt.middleware2.store.CommittedAtomCache.CachedAtom;
 import com.radixdlt.serialization.DsonOutput;
 import com.radixdlt.serialization.Serialization;
-import com.radixdlt.store.LedgerEntry;
 import com.radixdlt.store.LedgerEntryStore;
 
 import java.util.concurrent.atomic.AtomicReference;
@@ -87,7 +86,7 @@ public class AtomsService {
 	private final Serialization serialization = DefaultSerialization.getInstance();
 
 	private final SubmissionControl submissionControl;
-	private final CommandToBinaryConverter commandToBinaryConverter;
+	private final CommittedAtomCache atomCache;
 	private final ClientAtomToBinaryConverter clientAtomToBinaryConverter;
 	private final LedgerEntryStore store;
 	private final CompositeDisposable disposable;
@@ -104,14 +103,14 @@ public class AtomsService {
 		Observable<BFTCommittedUpdate> committedUpdates,
 		LedgerEntryStore store,
 		SubmissionControl submissionControl,
-		CommandToBinaryConverter commandToBinaryConverter,
+		CommittedAtomCache atomCache,
 		ClientAtomToBinaryConverter clientAtomToBinaryConverter,
 		Hasher hasher
 	) {
 		this.submissionErrorsRx = Objects.requireNonNull(submissionErrorsRx);
 		this.submissionControl = Objects.requireNonNull(submissionControl);
 		this.store = Objects.requireNonNull(store);
-		this.commandToBinaryConverter = Objects.requireNonNull(commandToBinaryConverter);
+		this.atomCache = Objects.requireNonNull(atomCache);
 		this.clientAtomToBinaryConverter = Objects.requireNonNull(clientAtomToBinaryConverter);
 		this.disposable = new CompositeDisposable();
 		this.committedAtomsRx = committedAtomsRx;
@@ -148,9 +147,9 @@ public class AtomsService {
 	}
 
 	public void start() {
+		// Processed on the publishing thread, so that its bounded backlog covers atoms not yet processed here
 		var lastStoredAtomDisposable = committedAtomsRx.committedAtoms()
-			.observeOn(Schedulers.io())
-			.subscribe(this::processExecutedCommand);
+			.subscribe(committedAtoms -> committedAtoms.forEach(this::processExecutedCommand));
 		this.disposable.add(lastStoredAtomDisposable);
 
 		var committedUpdatesDisposable = committedUpdates
@@ -214,7 +213,7 @@ public class AtomsService {
 
 	public org.radix.api.observable.Observable<ObservedAtomEvents> getAtomEvents(AtomQuery atomQuery) {
 		return observer -> {
-			final AtomEventObserver atomEventObserver = new AtomEventObserver(atomQuery, observer, executorService, store, commandToBinaryConverter, clientAtomToBinaryConverter, hasher);
+			final AtomEventObserver atomEventObserver = new AtomEventObserver(atomQuery, observer, executorService, store, atomCache, hasher);
 			atomEventObserver.start();
 			this.atomEventObservers.add(atomEventObserver);
 
@@ -230,11 +229,11 @@ public class AtomsService {
 	}
 
 	public JSONObject getAtomsByAtomId(AID atomId) throws JSONException {
-		Optional<LedgerEntry> ledgerEntryOptional = store.get(atomId);
-		if (ledgerEntryOptional.isPresent()) {
-			LedgerEntry ledgerEntry = ledgerEntryOptional.get();
-			StoredCommittedCommand committedCommand = commandToBinaryConverter.toCommand(ledgerEntry.getContent());
-			ClientAtom clientAtom = committedCommand.getCommand().map(clientAtomToBinaryConverter::toAtom);
+		Optional<ClientAtom> clientAtomOptional = atomCache.get(atomId)
+			.or(() -> store.get(atomId).map(atomCache::get))
+			.map(CachedAtom::getClientAtom);
+		if (clientAtomOptional.isPresent()) {
+			ClientAtom clientAtom = clientAtomOptional.get();
 			Atom apiAtom = ClientAtom.convertToApiAtom(clientAtom);
 			return serialization.toJsonObject(apiAtom, DsonOutput.Output.API);
 		}
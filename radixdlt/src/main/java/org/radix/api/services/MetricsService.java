@@ -0,0 +1,210 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package org.radix.api.services;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.Objects;
+
+import com.radixdlt.counters.LogHistogram;
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.counters.SystemCounters.HistogramType;
+import com.sleepycat.je.EnvironmentStats;
+import com.sleepycat.je.StatsConfig;
+
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocatorMetric;
+import org.radix.database.DatabaseEnvironment;
+
+/**
+ * Renders node metrics in the Prometheus text exposition format.
+ * <p>
+ * Metric names and type headers are computed once on construction, so that a
+ * scrape only needs to read current values and append them to a buffer.
+ * Monotonic counters are exported with a {@code _total} suffix, as per the
+ * Prometheus naming conventions.
+ */
+public final class MetricsService {
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private static final String PREFIX = "radixdlt_";
+	private static final String COUNTER_SUFFIX = "_total";
+	private static final double[] QUANTILES = { 0.5, 0.99, 0.999 };
+	private static final String[] QUANTILE_LABELS = { "{quantile=\"0.5\"} ", "{quantile=\"0.99\"} ", "{quantile=\"0.999\"} " };
+
+	private final SystemCounters counters;
+	private final DatabaseEnvironment dbEnv;
+	private final StatsConfig statsConfig;
+
+	private final CounterType[] counterTypes = CounterType.values();
+	private final String[] counterHeaders;
+	private final String[] counterNames;
+
+	private final HistogramType[] histogramTypes = HistogramType.values();
+	private final String[] histogramHeaders;
+	private final String[] histogramNames;
+
+	private final MemoryMXBean memoryBean;
+	private final List<GarbageCollectorMXBean> gcBeans;
+	private final String[] gcLabels;
+
+	// Size of last output, used to presize the output buffer
+	private volatile int lastOutputSize = 16 * 1024;
+
+	public MetricsService(SystemCounters counters, DatabaseEnvironment dbEnv) {
+		this.counters = Objects.requireNonNull(counters);
+		this.dbEnv = Objects.requireNonNull(dbEnv);
+		this.statsConfig = new StatsConfig().setFast(true);
+
+		this.counterHeaders = new String[this.counterTypes.length];
+		this.counterNames = new String[this.counterTypes.length];
+		for (CounterType counterType : this.counterTypes) {
+			final boolean monotonic = counterType.kind() == CounterType.Kind.STRIPED;
+			final String name = monotonic ? counterName(counterType.jsonPath()) : metricName(counterType.jsonPath());
+			final String type = monotonic ? "counter" : "untyped";
+			this.counterNames[counterType.ordinal()] = name + " ";
+			this.counterHeaders[counterType.ordinal()] = "# TYPE " + name + " " + type + "\n";
+		}
+
+		this.histogramHeaders = new String[this.histogramTypes.length];
+		this.histogramNames = new String[this.histogramTypes.length];
+		for (HistogramType histogramType : this.histogramTypes) {
+			final String name = metricName(histogramType.jsonPath()) + "_microseconds";
+			this.histogramNames[histogramType.ordinal()] = name;
+			this.histogramHeaders[histogramType.ordinal()] = "# TYPE " + name + " summary\n";
+		}
+
+		this.memoryBean = ManagementFactory.getMemoryMXBean();
+		this.gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+		this.gcLabels = new String[this.gcBeans.size()];
+		for (int i = 0; i < this.gcLabels.length; ++i) {
+			this.gcLabels[i] = "{gc=\"" + escapeLabelValue(this.gcBeans.get(i).getName()) + "\"} ";
+		}
+	}
+
+	/**
+	 * Returns all current metrics in Prometheus text format.
+	 *
+	 * @return the current metrics
+	 */
+	public String getMetrics() {
+		final StringBuilder output = new StringBuilder(this.lastOutputSize);
+		appendCounters(output);
+		appendHistograms(output);
+		appendDatabaseStats(output);
+		appendNettyStats(output);
+		appendJvmStats(output);
+		this.lastOutputSize = output.length() + output.length() / 8;
+		return output.toString();
+	}
+
+	private void appendCounters(StringBuilder output) {
+		for (CounterType counterType : this.counterTypes) {
+			final int i = counterType.ordinal();
+			output.append(this.counterHeaders[i]);
+			output.append(this.counterNames[i]).append(this.counters.get(counterType)).append('\n');
+		}
+	}
+
+	private void appendHistograms(StringBuilder output) {
+		for (HistogramType histogramType : this.histogramTypes) {
+			final int i = histogramType.ordinal();
+			final String name = this.histogramNames[i];
+			final LogHistogram histogram = this.counters.histogram(histogramType);
+			output.append(this.histogramHeaders[i]);
+			for (int q = 0; q < QUANTILES.length; ++q) {
+				output.append(name).append(QUANTILE_LABELS[q]).append(histogram.percentile(QUANTILES[q])).append('\n');
+			}
+			output.append(name).append("_sum ").append(histogram.sum()).append('\n');
+			output.append(name).append("_count ").append(histogram.count()).append('\n');
+		}
+	}
+
+	private void appendDatabaseStats(StringBuilder output) {
+		final EnvironmentStats stats = this.dbEnv.getEnvironment().getStats(this.statsConfig);
+		appendGauge(output, "bdb_cache_total_bytes", stats.getCacheTotalBytes());
+		appendGauge(output, "bdb_data_bytes", stats.getDataBytes());
+		appendGauge(output, "bdb_total_log_size_bytes", stats.getTotalLogSize());
+		appendCounter(output, "bdb_cache_miss_total", stats.getNCacheMiss());
+		appendCounter(output, "bdb_checkpoints_total", stats.getNCheckpoints());
+		appendCounter(output, "bdb_cleaner_runs_total", stats.getNCleanerRuns());
+		appendCounter(output, "bdb_random_reads_total", stats.getNRandomReads());
+		appendCounter(output, "bdb_random_writes_total", stats.getNRandomWrites());
+		appendCounter(output, "bdb_sequential_reads_total", stats.getNSequentialReads());
+		appendCounter(output, "bdb_sequential_writes_total", stats.getNSequentialWrites());
+	}
+
+	private void appendNettyStats(StringBuilder output) {
+		final PooledByteBufAllocatorMetric metric = PooledByteBufAllocator.DEFAULT.metric();
+		appendGauge(output, "netty_pooled_used_heap_bytes", metric.usedHeapMemory());
+		appendGauge(output, "netty_pooled_used_direct_bytes", metric.usedDirectMemory());
+		appendGauge(output, "netty_pooled_heap_arenas", metric.numHeapArenas());
+		appendGauge(output, "netty_pooled_direct_arenas", metric.numDirectArenas());
+		appendGauge(output, "netty_pooled_thread_local_caches", metric.numThreadLocalCaches());
+	}
+
+	private void appendJvmStats(StringBuilder output) {
+		final MemoryUsage heap = this.memoryBean.getHeapMemoryUsage();
+		final MemoryUsage nonHeap = this.memoryBean.getNonHeapMemoryUsage();
+		appendGauge(output, "jvm_heap_used_bytes", heap.getUsed());
+		appendGauge(output, "jvm_heap_committed_bytes", heap.getCommitted());
+		appendGauge(output, "jvm_heap_max_bytes", heap.getMax());
+		appendGauge(output, "jvm_non_heap_used_bytes", nonHeap.getUsed());
+
+		output.append("# TYPE ").append(PREFIX).append("jvm_gc_collections_total counter\n");
+		for (int i = 0; i < this.gcLabels.length; ++i) {
+			output.append(PREFIX).append("jvm_gc_collections_total").append(this.gcLabels[i])
+				.append(this.gcBeans.get(i).getCollectionCount()).append('\n');
+		}
+		output.append("# TYPE ").append(PREFIX).append("jvm_gc_collection_millis_total counter\n");
+		for (int i = 0; i < this.gcLabels.length; ++i) {
+			output.append(PREFIX).append("jvm_gc_collection_millis_total").append(this.gcLabels[i])
+				.append(this.gcBeans.get(i).getCollectionTime()).append('\n');
+		}
+	}
+
+	private static void appendGauge(StringBuilder output, String name, long value) {
+		appendMetric(output, name, "gauge", value);
+	}
+
+	private static void appendCounter(StringBuilder output, String name, long value) {
+		appendMetric(output, name, "counter", value);
+	}
+
+	private static void appendMetric(StringBuilder output, String name, String type, long value) {
+		output.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+		output.append(PREFIX).append(name).append(' ').append(value).append('\n');
+	}
+
+	private static String metricName(String jsonPath) {
+		return PREFIX + jsonPath.replace('.', '_');
+	}
+
+	private static String counterName(String jsonPath) {
+		final String name = metricName(jsonPath);
+		return name.endsWith(COUNTER_SUFFIX) ? name : name + COUNTER_SUFFIX;
+	}
+
+	private static String escapeLabelValue(String value) {
+		return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+	}
+}
@@ -36,6 +36,7 @@ import com.radixdlt.network.addressbook.Peer;
 import com.radixdlt.network.addressbook.PeerWithSystem;
 import com.radixdlt.serialization.DsonOutput.Output;
 import com.radixdlt.serialization.Serialization;
+import com.radixdlt.sync.PeerPerformanceTracker;
 import org.radix.universe.system.LocalSystem;
 
 public class NetworkService {
@@ -44,11 +45,19 @@ public class NetworkService {
 	private final AddressBook addressBook;
 	private final PeerWithSystem localPeer;
 	private final HashCode localPeerHash;
-
-	public NetworkService(Serialization serialization, LocalSystem localSystem, AddressBook addressBook, Hasher hasher) {
+	private final PeerPerformanceTracker peerPerformance;
+
+	public NetworkService(
+		Serialization serialization,
+		LocalSystem localSystem,
+		AddressBook addressBook,
+		Hasher hasher,
+		PeerPerformanceTracker peerPerformance
+	) {
 		this.serialization = serialization;
 		this.localSystem = localSystem;
 		this.addressBook = addressBook;
+		this.peerPerformance = peerPerformance;
 
 		this.localPeer = new PeerWithSystem(this.localSystem);
 		this.localPeerHash = hasher.hash(localPeer);
@@ -118,6 +127,26 @@ public class NetworkService {
 		return new JSONObject();
 	}
 
+	public JSONObject getPeerPerformance() {
+		JSONObject result = new JSONObject();
+		this.peerPerformance.scores().forEach((node, score) -> {
+			JSONObject peer = new JSONObject();
+			peer.put("name", node.getSimpleName());
+			if (!Double.isNaN(score.getLatencyMs())) {
+				peer.put("latency_ms", score.getLatencyMs());
+			}
+			if (!Double.isNaN(score.getRttMs())) {
+				peer.put("rtt_ms", score.getRttMs());
+			}
+			peer.put("responses", score.getResponses());
+			peer.put("failures", score.getFailures());
+			peer.put("consecutive_failures", score.getConsecutiveFailures());
+			peer.put("score", score.getScore());
+			result.put(node.getKey().euid().toString(), peer);
+		});
+		return result;
+	}
+
 	private Stream<PeerWithSystem> selfAndOthers(Stream<PeerWithSystem> others) {
 		return Stream.concat(Stream.of(this.localPeer), others).distinct();
 	}
@@ -19,10 +19,12 @@ package com.radixdlt;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.radixdlt.consensus.BFTConfiguration;
 import com.radixdlt.consensus.BFTEventsRx;
 import com.radixdlt.consensus.bft.Self;
 import com.radixdlt.counters.SystemCounters;
@@ -30,13 +32,18 @@ import com.radixdlt.crypto.Hasher;
 import com.radixdlt.consensus.SyncEpochsRPCRx;
 import com.radixdlt.consensus.SyncVerticesRPCRx;
 import com.radixdlt.consensus.bft.BFTNode;
+import com.radixdlt.consensus.bft.BFTValidatorSet;
+import com.radixdlt.consensus.epoch.EpochChange;
 import com.radixdlt.consensus.epoch.EpochManager.SyncEpochsRPCSender;
 import com.radixdlt.consensus.liveness.ProposalBroadcaster;
+import com.radixdlt.network.TimeSupplier;
 import com.radixdlt.network.addressbook.AddressBook;
 import com.radixdlt.network.messaging.MessageCentral;
 import com.radixdlt.universe.Universe;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Stream;
 import org.junit.Test;
 
 public class NetworkModuleTest {
@@ -49,6 +56,13 @@ public class NetworkModuleTest {
 			bind(MessageCentral.class).toInstance(mock(MessageCentral.class));
 			bind(Hasher.class).toInstance(mock(Hasher.class));
 			bind(SystemCounters.class).toInstance(mock(SystemCounters.class));
+			bind(ScheduledExecutorService.class).toInstance(mock(ScheduledExecutorService.class));
+			bind(TimeSupplier.class).toInstance(System::currentTimeMillis);
+			BFTConfiguration bftConfiguration = mock(BFTConfiguration.class);
+			when(bftConfiguration.getValidatorSet()).thenReturn(BFTValidatorSet.from(Stream.empty()));
+			EpochChange initialEpoch = mock(EpochChange.class);
+			when(initialEpoch.getBFTConfiguration()).thenReturn(bftConfiguration);
+			bind(EpochChange.class).toInstance(initialEpoch);
 		}
 	}
 
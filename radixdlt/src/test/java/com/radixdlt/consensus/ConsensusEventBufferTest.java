@@ -0,0 +1,151 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.consensus;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.radixdlt.consensus.bft.BFTNode;
+import org.junit.Test;
+
+public class ConsensusEventBufferTest {
+	private static final int EVENT_SIZE = 100;
+
+	private static ConsensusEvent event(BFTNode author) {
+		ConsensusEvent event = mock(ConsensusEvent.class);
+		when(event.getAuthor()).thenReturn(author);
+		return event;
+	}
+
+	private static ConsensusEventBuffer<Long> buffer(int maxKeys, int maxPerAuthor, long maxBytes) {
+		return new ConsensusEventBuffer<>(maxKeys, maxPerAuthor, maxBytes, e -> EVENT_SIZE);
+	}
+
+	@Test
+	public void when_events_added__then_they_are_accounted_and_removed_in_order() {
+		ConsensusEventBuffer<Long> buffer = buffer(10, 10, 10_000);
+		ConsensusEvent event1 = event(BFTNode.random());
+		ConsensusEvent event2 = event(BFTNode.random());
+
+		assertThat(buffer.add(1L, event1)).isTrue();
+		assertThat(buffer.add(1L, event2)).isTrue();
+		assertThat(buffer.add(1L, event1)).isFalse();
+
+		assertThat(buffer.size()).isEqualTo(2);
+		assertThat(buffer.bytes()).isEqualTo(2L * EVENT_SIZE);
+		assertThat(buffer.remove(1L)).containsExactly(event1, event2);
+		assertThat(buffer.size()).isZero();
+		assertThat(buffer.bytes()).isZero();
+		assertThat(buffer.remove(1L)).isEmpty();
+	}
+
+	@Test
+	public void when_too_many_keys__then_highest_key_is_evicted_or_new_key_rejected() {
+		ConsensusEventBuffer<Long> buffer = buffer(2, 10, 10_000);
+		ConsensusEvent event1 = event(BFTNode.random());
+		ConsensusEvent event3 = event(BFTNode.random());
+		ConsensusEvent event2 = event(BFTNode.random());
+		ConsensusEvent event4 = event(BFTNode.random());
+
+		buffer.add(1L, event1);
+		buffer.add(3L, event3);
+		assertThat(buffer.add(4L, event4)).isFalse();
+		assertThat(buffer.add(2L, event2)).isTrue();
+
+		assertThat(buffer.size()).isEqualTo(2);
+		assertThat(buffer.evicted()).isEqualTo(2L);
+		assertThat(buffer.remove(3L)).isEmpty();
+		assertThat(buffer.remove(2L)).containsExactly(event2);
+	}
+
+	@Test
+	public void when_too_many_events_from_author__then_oldest_event_from_author_is_evicted() {
+		ConsensusEventBuffer<Long> buffer = buffer(10, 2, 10_000);
+		BFTNode author = BFTNode.random();
+		ConsensusEvent event1 = event(author);
+		ConsensusEvent event2 = event(author);
+		ConsensusEvent event3 = event(author);
+		ConsensusEvent other = event(BFTNode.random());
+
+		buffer.add(1L, event1);
+		buffer.add(1L, other);
+		buffer.add(1L, event2);
+		buffer.add(1L, event3);
+
+		assertThat(buffer.evicted()).isEqualTo(1L);
+		assertThat(buffer.remove(1L)).containsExactly(other, event2, event3);
+	}
+
+	@Test
+	public void when_too_many_bytes__then_newest_events_of_highest_key_are_evicted() {
+		ConsensusEventBuffer<Long> buffer = buffer(10, 10, 2L * EVENT_SIZE);
+		ConsensusEvent low = event(BFTNode.random());
+		ConsensusEvent high = event(BFTNode.random());
+		ConsensusEvent higher = event(BFTNode.random());
+
+		assertThat(buffer.add(1L, low)).isTrue();
+		assertThat(buffer.add(5L, high)).isTrue();
+		assertThat(buffer.add(6L, higher)).isFalse();
+		assertThat(buffer.add(2L, event(BFTNode.random()))).isTrue();
+
+		assertThat(buffer.bytes()).isEqualTo(2L * EVENT_SIZE);
+		assertThat(buffer.evicted()).isEqualTo(2L);
+		assertThat(buffer.remove(5L)).isEmpty();
+		assertThat(buffer.remove(1L)).containsExactly(low);
+	}
+
+	@Test
+	public void when_remove_up_to_and_below__then_correct_keys_are_removed() {
+		ConsensusEventBuffer<Long> buffer = buffer(10, 10, 10_000);
+		for (long key = 1; key <= 5; key++) {
+			buffer.add(key, event(BFTNode.random()));
+		}
+
+		buffer.removeBelow(2L);
+		assertThat(buffer.size()).isEqualTo(4);
+		buffer.removeUpTo(3L);
+		assertThat(buffer.size()).isEqualTo(2);
+		assertThat(buffer.bytes()).isEqualTo(2L * EVENT_SIZE);
+		assertThat(buffer.evicted()).isZero();
+	}
+
+	@Test
+	public void when_remove_if__then_matching_events_are_returned_and_removed() {
+		ConsensusEventBuffer<Long> buffer = buffer(10, 10, 10_000);
+		BFTNode author = BFTNode.random();
+		ConsensusEvent event1 = event(author);
+		ConsensusEvent event2 = event(author);
+		ConsensusEvent other = event(BFTNode.random());
+		buffer.add(2L, event2);
+		buffer.add(1L, other);
+		buffer.add(1L, event1);
+
+		assertThat(buffer.removeIf(e -> e.getAuthor().equals(author))).containsExactly(event1, event2);
+		assertThat(buffer.size()).isEqualTo(1);
+		assertThat(buffer.remove(1L)).containsExactly(other);
+	}
+
+	@Test
+	public void when_creating_with_bad_bounds__then_exception_is_thrown() {
+		assertThatThrownBy(() -> buffer(0, 1, 1)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> buffer(1, 0, 1)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> buffer(1, 1, 0)).isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -0,0 +1,65 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.counters;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.Test;
+
+public class LogHistogramTest {
+	@Test
+	public void when_value_recorded__then_it_is_within_its_bucket_bounds() {
+		long[] values = { 0L, 1L, 15L, 16L, 17L, 1_000L, 123_456_789L, Long.MAX_VALUE };
+		for (long value : values) {
+			int index = LogHistogram.bucketIndex(value);
+			long upper = LogHistogram.bucketUpperBound(index);
+			long lower = index == 0 ? 0L : LogHistogram.bucketUpperBound(index - 1) + 1L;
+			assertThat(value).isBetween(lower, upper);
+		}
+	}
+
+	@Test
+	public void when_no_values_recorded__then_percentiles_are_zero() {
+		LogHistogram histogram = new LogHistogram();
+		assertThat(histogram.percentile(0.5)).isZero();
+		assertThat(histogram.count()).isZero();
+		assertThat(histogram.max()).isZero();
+	}
+
+	@Test
+	public void when_values_recorded__then_statistics_are_correct() {
+		LogHistogram histogram = new LogHistogram();
+		histogram.record(-5L);
+		histogram.record(10L);
+		histogram.record(20L);
+
+		assertThat(histogram.count()).isEqualTo(3L);
+		assertThat(histogram.sum()).isEqualTo(30L);
+		assertThat(histogram.max()).isEqualTo(20L);
+		assertThat(histogram.percentile(0.0)).isZero();
+		assertThat(histogram.percentile(0.5)).isEqualTo(10L);
+		assertThat(histogram.percentile(1.0)).isEqualTo(20L);
+	}
+
+	@Test
+	public void when_percentile_out_of_range__then_exception_is_thrown() {
+		LogHistogram histogram = new LogHistogram();
+		assertThatThrownBy(() -> histogram.percentile(1.5)).isInstanceOf(IllegalArgumentException.class);
+	}
+}
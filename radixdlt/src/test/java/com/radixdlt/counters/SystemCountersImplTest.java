@@ -24,6 +24,7 @@ import org.junit.Test;
 
 import com.google.common.collect.ImmutableMap;
 import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.counters.SystemCounters.HistogramType;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.Assert.assertNotNull;
@@ -88,9 +89,42 @@ public class SystemCountersImplTest {
 		// Ensure writeable
 		Map<String, Object> m = new TreeMap<>(counters.toMap());
 		assertNotNull(m.remove("time"));
+		// Histograms are tested separately
+		assertNotNull(m.remove("latency"));
 		testMap("", m);
 	}
 
+	@Test
+	public void when_striped_counter_updated__then_value_is_correct() {
+		SystemCounters counters = new SystemCountersImpl();
+		assertThat(CounterType.HASHED_BYTES.kind()).isEqualTo(CounterType.Kind.STRIPED);
+		assertThat(counters.add(CounterType.HASHED_BYTES, 10)).isEqualTo(-1L);
+		assertThat(counters.increment(CounterType.HASHED_BYTES)).isEqualTo(-1L);
+		assertThat(counters.get(CounterType.HASHED_BYTES)).isEqualTo(11L);
+		assertThat(counters.set(CounterType.HASHED_BYTES, 5)).isEqualTo(11L);
+		assertThat(counters.get(CounterType.HASHED_BYTES)).isEqualTo(5L);
+	}
+
+	@Test
+	public void when_record_histogram__then_tomap_contains_percentiles() {
+		SystemCounters counters = new SystemCountersImpl();
+		for (int i = 1; i <= 1000; ++i) {
+			counters.record(HistogramType.LATENCY_BDB_LEDGER, i);
+		}
+		Map<String, Object> m = counters.toMap();
+		@SuppressWarnings("unchecked")
+		Map<String, Object> bdb = (Map<String, Object>) ((Map<String, Object>) m.get("latency")).get("bdb");
+		@SuppressWarnings("unchecked")
+		Map<String, Object> ledger = (Map<String, Object>) bdb.get("ledger");
+		assertThat(ledger.get("count")).isEqualTo(1000L);
+		assertThat(ledger.get("max")).isEqualTo(1000L);
+		// Buckets have a relative error of at most 1/16
+		assertThat((Long) ledger.get("p50")).isBetween(500L, 532L);
+		assertThat((Long) ledger.get("p99")).isBetween(990L, 1000L);
+		assertThat((Long) ledger.get("p999")).isBetween(999L, 1000L);
+		assertThat(counters.histogram(HistogramType.LATENCY_BDB_LEDGER).sum()).isEqualTo(500500L);
+	}
+
 	@Test
 	public void sensible_tostring() {
 		SystemCounters counters = new SystemCountersImpl();
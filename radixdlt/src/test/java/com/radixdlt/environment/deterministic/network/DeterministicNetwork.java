@@ -44,7 +44,7 @@ import org.apache.logging.log4j.Logger;
  */
 public final class DeterministicNetwork {
 	private static final Logger log = LogManager.getLogger();
-	private static final long DEFAULT_LATENCY = 50L; // virtual milliseconds
+	public static final long DEFAULT_LATENCY = 50L; // virtual milliseconds
 
 	public interface DeterministicSender extends
 		ProposalBroadcaster,
@@ -60,6 +60,7 @@ public final class DeterministicNetwork {
 	private final MessageMutator messageMutator;
 
 	private final ImmutableBiMap<BFTNode, Integer> nodeLookup;
+	private final long latency;
 
 	private long currentTime = 0L;
 
@@ -74,6 +75,26 @@ public final class DeterministicNetwork {
 		MessageSelector messageSelector,
 		MessageMutator messageMutator
 	) {
+		this(nodes, messageSelector, messageMutator, DEFAULT_LATENCY);
+	}
+
+	/**
+	 * Create a BFT test network for deterministic tests.
+	 * @param nodes The nodes on the network
+	 * @param messageSelector A {@link MessageSelector} for choosing messages to process next
+	 * @param messageMutator A {@link MessageMutator} for mutating and queueing messages
+	 * @param latency The latency in virtual milliseconds of messages between different nodes
+	 */
+	public DeterministicNetwork(
+		List<BFTNode> nodes,
+		MessageSelector messageSelector,
+		MessageMutator messageMutator,
+		long latency
+	) {
+		if (latency < 0) {
+			throw new IllegalArgumentException("Latency must not be negative: " + latency);
+		}
+		this.latency = latency;
 		this.messageSelector = Objects.requireNonNull(messageSelector);
 		this.messageMutator = Objects.requireNonNull(messageMutator);
 		this.nodeLookup = Streams.mapWithIndex(
@@ -126,6 +147,14 @@ public final class DeterministicNetwork {
 		this.messageQueue.remove(controlledMessagePredicate);
 	}
 
+	/**
+	 * Returns the current virtual time of the network in milliseconds.  Virtual time
+	 * starts at zero and advances to the arrival time of each message as it is
+	 * processed, so that time spent waiting for timeouts and message latency is
+	 * skipped rather than elapsed.
+	 *
+	 * @return the current virtual time in milliseconds
+	 */
 	public long currentTime() {
 		return this.currentTime;
 	}
@@ -142,7 +171,7 @@ public final class DeterministicNetwork {
 		if (channelId.receiverIndex() == channelId.senderIndex()) {
 			return 0L;
 		}
-		return DEFAULT_LATENCY;
+		return this.latency;
 	}
 
 	void handleMessage(ControlledMessage controlledMessage) {
@@ -0,0 +1,112 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.environment.disruptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.collect.ImmutableSet;
+import com.radixdlt.environment.rx.RxEnvironment;
+import com.radixdlt.utils.ThreadFactories;
+import io.reactivex.rxjava3.observers.TestObserver;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DisruptorEnvironmentTest {
+	private RxEnvironment rxEnvironment;
+	private DisruptorEventLoop eventLoop;
+	private DisruptorEnvironment environment;
+
+	@Before
+	public void setUp() {
+		ScheduledExecutorService ses = mock(ScheduledExecutorService.class);
+		this.rxEnvironment = new RxEnvironment(ImmutableSet.of(String.class, Long.class), ses, ImmutableSet.of());
+		this.eventLoop = new DisruptorEventLoop(16, ThreadFactories.daemonThreads("DisruptorEnvironmentTest"), e -> { });
+		this.environment = new DisruptorEnvironment(
+			ImmutableSet.of(String.class, Long.class),
+			ImmutableSet.of(Long.class),
+			this.rxEnvironment,
+			this.eventLoop,
+			ses
+		);
+		this.eventLoop.start();
+	}
+
+	@After
+	public void tearDown() {
+		this.eventLoop.shutdown();
+	}
+
+	@Test
+	public void when_no_processor_set__then_event_is_dispatched_to_rx_environment() {
+		TestObserver<String> observer = this.rxEnvironment.getObservable(String.class).test();
+
+		this.environment.getDispatcher(String.class).dispatch("event");
+
+		observer.awaitCount(1);
+		observer.assertValue("event");
+	}
+
+	@Test
+	public void when_processor_set__then_event_is_only_processed_on_event_loop() throws InterruptedException {
+		TestObserver<String> observer = this.rxEnvironment.getObservable(String.class).test();
+		CountDownLatch latch = new CountDownLatch(1);
+		AtomicReference<String> received = new AtomicReference<>();
+		this.environment.setProcessor(String.class, e -> {
+			received.set(e);
+			latch.countDown();
+		});
+
+		this.environment.getDispatcher(String.class).dispatch("event");
+
+		assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(received.get()).isEqualTo("event");
+		observer.assertNoValues();
+	}
+
+	@Test
+	public void when_processor_set_for_shared_event__then_event_is_processed_on_event_loop_and_dispatched_to_rx_environment()
+		throws InterruptedException {
+		TestObserver<Long> observer = this.rxEnvironment.getObservable(Long.class).test();
+		CountDownLatch latch = new CountDownLatch(1);
+		AtomicReference<Long> received = new AtomicReference<>();
+		this.environment.setProcessor(Long.class, e -> {
+			received.set(e);
+			latch.countDown();
+		});
+
+		this.environment.getDispatcher(Long.class).dispatch(1L);
+
+		assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(received.get()).isEqualTo(1L);
+		observer.awaitCount(1);
+		observer.assertValue(1L);
+	}
+
+	@Test
+	public void when_unsupported_event_class__then_exception_is_thrown() {
+		assertThatThrownBy(() -> this.environment.getDispatcher(Integer.class))
+			.isInstanceOf(IllegalStateException.class);
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.environment.disruptor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.radixdlt.environment.EventProcessor;
+import com.radixdlt.utils.ThreadFactories;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DisruptorEventLoopTest {
+	private AtomicReference<Throwable> error;
+	private DisruptorEventLoop eventLoop;
+
+	@Before
+	public void setUp() {
+		this.error = new AtomicReference<>();
+		this.eventLoop = new DisruptorEventLoop(4, ThreadFactories.daemonThreads("DisruptorEventLoopTest"), this.error::set);
+	}
+
+	@After
+	public void tearDown() {
+		this.eventLoop.shutdown();
+	}
+
+	@Test
+	public void when_events_published__then_they_are_processed_in_order_on_one_thread() throws InterruptedException {
+		final int count = 100;
+		final List<Integer> processed = new CopyOnWriteArrayList<>();
+		final List<Thread> threads = new CopyOnWriteArrayList<>();
+		final CountDownLatch latch = new CountDownLatch(count);
+		final EventProcessor<Integer> processor = i -> {
+			processed.add(i);
+			threads.add(Thread.currentThread());
+			latch.countDown();
+		};
+
+		this.eventLoop.start();
+		for (int i = 0; i < count; i++) {
+			this.eventLoop.publish(processor, i);
+		}
+
+		assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(processed).hasSize(count).isSorted();
+		assertThat(threads).containsOnly(threads.get(0));
+		assertThat(this.error.get()).isNull();
+	}
+
+	@Test
+	public void when_more_events_published_from_consumer_than_buffer_size__then_all_are_processed() throws InterruptedException {
+		final int count = 16;
+		final CountDownLatch latch = new CountDownLatch(count);
+		final EventProcessor<Integer> processor = i -> latch.countDown();
+
+		this.eventLoop.start();
+		this.eventLoop.execute(() -> {
+			for (int i = 0; i < count; i++) {
+				this.eventLoop.publish(processor, i);
+			}
+		});
+
+		assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+	}
+
+	@Test
+	public void when_processor_throws__then_error_handler_is_called_and_processing_continues() throws InterruptedException {
+		final CountDownLatch latch = new CountDownLatch(1);
+		final RuntimeException exception = new RuntimeException("test");
+
+		this.eventLoop.start();
+		this.eventLoop.execute(() -> {
+			throw exception;
+		});
+		this.eventLoop.execute(latch::countDown);
+
+		assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+		assertThat(this.error.get()).isSameAs(exception);
+	}
+
+	@Test
+	public void when_creating_with_bad_buffer_size__then_exception_is_thrown() {
+		assertThatThrownBy(() -> new DisruptorEventLoop(3, ThreadFactories.daemonThreads("test"), e -> { }))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.ledger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.radixdlt.consensus.Command;
+import com.radixdlt.consensus.Sha256Hasher;
+import com.radixdlt.crypto.HashUtils;
+import com.radixdlt.crypto.Hasher;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MerkleLedgerAccumulatorAndVerifierTest {
+	private MerkleLedgerAccumulatorAndVerifier accumulatorAndVerifier;
+	private Hasher hasher;
+	private List<HashCode> leaves;
+	private List<AccumulatorState> states;
+
+	@Before
+	public void setup() {
+		hasher = Sha256Hasher.withDefaultSerialization();
+		accumulatorAndVerifier = new MerkleLedgerAccumulatorAndVerifier(hasher);
+
+		AccumulatorState genesis = new AccumulatorState(0, HashUtils.random256());
+		leaves = new ArrayList<>();
+		leaves.add(genesis.getAccumulatorHash());
+		states = new ArrayList<>();
+		states.add(genesis);
+		for (int i = 0; i < 600; i++) {
+			HashCode hash = HashUtils.random256();
+			leaves.add(hash);
+			states.add(accumulatorAndVerifier.accumulate(states.get(i), hash));
+		}
+	}
+
+	private ImmutableList<HashCode> leaves(int fromVersion, int toVersion) {
+		return ImmutableList.copyOf(leaves.subList(fromVersion + 1, toVersion + 1));
+	}
+
+	@Test
+	public void when_accumulate__then_frontier_has_a_peak_per_perfect_subtree() {
+		assertThat(states.get(0).getFrontier()).isEmpty();
+		assertThat(states.get(1).getFrontier()).hasSize(1);
+		assertThat(states.get(2).getFrontier()).hasSize(2);
+		assertThat(states.get(6).getFrontier()).hasSize(3);
+		assertThat(states.get(7).getFrontier()).hasSize(1);
+	}
+
+	@Test
+	public void when_accumulate__then_should_verify() {
+		AccumulatorState headState = states.get(345);
+		AccumulatorState nextState = accumulatorAndVerifier.accumulate(headState, HashUtils.zero256());
+		assertThat(accumulatorAndVerifier.verify(headState, ImmutableList.of(HashUtils.zero256()), nextState)).isTrue();
+	}
+
+	@Test
+	public void when_verify_batches_of_any_size__then_should_match_accumulate() {
+		int[][] ranges = {{0, 1}, {0, 600}, {3, 4}, {5, 17}, {7, 8}, {31, 300}, {100, 599}, {255, 511}, {300, 300}};
+		for (int[] range : ranges) {
+			assertThat(accumulatorAndVerifier.verify(states.get(range[0]), leaves(range[0], range[1]), states.get(range[1])))
+				.as("Range %s to %s", range[0], range[1])
+				.isTrue();
+		}
+	}
+
+	@Test
+	public void when_verify_with_wrong_end__then_should_fail() {
+		ImmutableList<HashCode> hashes = leaves(10, 400);
+		AccumulatorState end = states.get(400);
+		AccumulatorState wrongHash = new AccumulatorState(end.getStateVersion(), HashUtils.random256(), end.getFrontier());
+		AccumulatorState wrongFrontier = new AccumulatorState(end.getStateVersion(), end.getAccumulatorHash(), ImmutableList.of());
+
+		assertThat(accumulatorAndVerifier.verify(states.get(10), hashes, wrongHash)).isFalse();
+		assertThat(accumulatorAndVerifier.verify(states.get(10), hashes, wrongFrontier)).isFalse();
+		assertThat(accumulatorAndVerifier.verify(states.get(10), hashes, states.get(399))).isFalse();
+	}
+
+	@Test
+	public void when_verify_from_state_without_valid_frontier__then_should_fail() {
+		AccumulatorState start = new AccumulatorState(10, states.get(10).getAccumulatorHash());
+		assertThat(accumulatorAndVerifier.verify(start, leaves(10, 11), states.get(11))).isFalse();
+	}
+
+	@Test
+	public void when_accumulate_onto_state_without_valid_frontier__then_should_throw_exception() {
+		AccumulatorState parent = new AccumulatorState(10, states.get(10).getAccumulatorHash());
+		assertThatThrownBy(() -> accumulatorAndVerifier.accumulate(parent, HashUtils.random256()))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void when_extension_overlaps_current__then_should_return_new_commands() {
+		ImmutableList<Command> commands = IntStream.range(0, 300)
+			.mapToObj(i -> new Command(new byte[] {(byte) i, (byte) (i >> 8)}))
+			.collect(ImmutableList.toImmutableList());
+		AccumulatorState start = states.get(50);
+		List<AccumulatorState> extended = new ArrayList<>();
+		AccumulatorState state = start;
+		for (Command command : commands) {
+			state = accumulatorAndVerifier.accumulate(state, hasher.hash(command));
+			extended.add(state);
+		}
+
+		assertThat(accumulatorAndVerifier.verifyAndGetExtension(extended.get(9), commands, hasher::hash, state))
+			.hasValue(commands.subList(10, 300));
+		assertThat(accumulatorAndVerifier.verifyAndGetExtension(start, commands, hasher::hash, state))
+			.hasValue(commands);
+		assertThat(accumulatorAndVerifier.verifyAndGetExtension(start, commands.reverse(), hasher::hash, state))
+			.isEmpty();
+	}
+
+	@Test
+	public void when_prove_inclusion__then_should_verify_for_every_version() {
+		AccumulatorState state = states.get(300);
+		List<HashCode> stateLeaves = leaves.subList(0, 301);
+		for (int version = 0; version <= 300; version++) {
+			AccumulatorInclusionProof proof = accumulatorAndVerifier.proveInclusion(stateLeaves, version);
+			assertThat(accumulatorAndVerifier.verifyInclusion(state, leaves.get(version), proof))
+				.as("Version %s", version)
+				.isTrue();
+		}
+	}
+
+	@Test
+	public void when_verify_inclusion_of_wrong_leaf_or_state__then_should_fail() {
+		AccumulatorInclusionProof proof = accumulatorAndVerifier.proveInclusion(leaves.subList(0, 301), 123);
+
+		assertThat(accumulatorAndVerifier.verifyInclusion(states.get(300), leaves.get(124), proof)).isFalse();
+		assertThat(accumulatorAndVerifier.verifyInclusion(states.get(301), leaves.get(123), proof)).isFalse();
+		AccumulatorInclusionProof wrongVersion = new AccumulatorInclusionProof(300, 122, proof.getSiblings());
+		assertThat(accumulatorAndVerifier.verifyInclusion(states.get(300), leaves.get(123), wrongVersion)).isFalse();
+	}
+
+	@Test
+	public void when_prove_inclusion_of_missing_version__then_should_throw_exception() {
+		assertThatThrownBy(() -> accumulatorAndVerifier.proveInclusion(leaves.subList(0, 11), 11))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -22,6 +22,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -64,6 +65,7 @@ import java.util.Optional;
 import java.util.stream.Stream;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 
 public class StateComputerLedgerTest {
 
@@ -261,4 +263,34 @@ public class StateComputerLedgerTest {
 		verify(mempool, never()).removeCommitted(any());
 		verify(ledgerUpdateSender, never()).sendLedgerUpdate(any());
 	}
+
+	@Test
+	public void when_commit__then_committed_command_is_removed_from_mempool_before_ledger_update() {
+		// Arrange
+		genesisIsEndOfEpoch(false);
+		when(headerComparator.compare(any(), any())).thenReturn(1);
+		final AccumulatorState accumulatorState = accumulator.accumulate(
+			currentLedgerHeader.getAccumulatorState(),
+			hasher.hash(nextCommand)
+		);
+		final LedgerHeader ledgerHeader = LedgerHeader.create(genesisEpoch, View.of(6), accumulatorState, 1234);
+		final VerifiedLedgerHeaderAndProof header = new VerifiedLedgerHeaderAndProof(
+			mock(BFTHeader.class),
+			mock(BFTHeader.class),
+			12345,
+			mock(HashCode.class),
+			ledgerHeader,
+			new TimestampedECDSASignatures()
+		);
+		VerifiedCommandsAndProof verified = new VerifiedCommandsAndProof(ImmutableList.of(nextCommand), header);
+
+		// Act
+		sut.syncEventProcessor().process(verified);
+
+		// Assert
+		InOrder inOrder = inOrder(stateComputer, mempool, ledgerUpdateSender);
+		inOrder.verify(stateComputer).commit(any(), any());
+		inOrder.verify(mempool).removeCommitted(hasher.hash(nextCommand));
+		inOrder.verify(ledgerUpdateSender).sendLedgerUpdate(any());
+	}
 }
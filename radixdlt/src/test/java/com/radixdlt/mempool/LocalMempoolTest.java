@@ -83,6 +83,17 @@ public class LocalMempoolTest {
 		assertEquals(0, this.mempool.count());
 	}
 
+	@Test
+	public void when_atom_is_added_and_removed__then_contains_reflects_membership()
+		throws MempoolFullException, MempoolDuplicateException {
+		Command command = makeCommand(1234);
+		assertFalse(this.mempool.contains(hasher.hash(command)));
+		this.mempool.add(command);
+		assertTrue(this.mempool.contains(hasher.hash(command)));
+		this.mempool.removeRejected(hasher.hash(command));
+		assertFalse(this.mempool.contains(hasher.hash(command)));
+	}
+
 	@Test
 	public void when_rejected_atom_is_removed__then_mempool_size_decreases()
 		throws MempoolFullException, MempoolDuplicateException {
@@ -20,14 +20,20 @@ package com.radixdlt.mempool;
 import com.radixdlt.atommodel.system.SystemParticle;
 import com.radixdlt.consensus.Command;
 import com.radixdlt.consensus.Sha256Hasher;
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.counters.SystemCountersImpl;
+import com.radixdlt.crypto.HashUtils;
 import com.radixdlt.crypto.Hasher;
 import com.radixdlt.engine.RadixEngineException;
+import com.radixdlt.identifiers.AID;
 import com.radixdlt.mempool.SubmissionControlImpl.SubmissionControlSender;
 import com.radixdlt.middleware.ParticleGroup;
 import com.radixdlt.middleware.SpunParticle;
 import com.radixdlt.middleware2.ClientAtom;
 import com.radixdlt.middleware2.LedgerAtom;
 import com.radixdlt.serialization.DeserializeException;
+import com.google.common.util.concurrent.MoreExecutors;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import org.json.JSONObject;
@@ -52,6 +58,7 @@ public class SubmissionControlImplTest {
 	private SubmissionControlSender sender;
 	private SubmissionControlImpl submissionControl;
 	private Hasher hasher;
+	private SystemCounters counters;
 
 	@Before
 	public void setUp() {
@@ -61,9 +68,22 @@ public class SubmissionControlImplTest {
 		RadixEngine<LedgerAtom> re = throwingMock(RadixEngine.class);
 		this.radixEngine = re;
 		this.serialization = mock(Serialization.class);
+		when(this.serialization.toDson(any(), any())).thenReturn(new byte[] {});
+		doReturn(false).when(this.mempool).contains(any());
 		this.sender = mock(SubmissionControlSender.class);
 		this.hasher = Sha256Hasher.withDefaultSerialization();
-		this.submissionControl = new SubmissionControlImpl(this.mempool, this.radixEngine, this.serialization, this.sender, this.hasher);
+		this.counters = new SystemCountersImpl();
+		this.submissionControl = new SubmissionControlImpl(
+			this.mempool,
+			this.radixEngine,
+			this.serialization,
+			this.sender,
+			this.hasher,
+			this.counters,
+			MoreExecutors.directExecutor(),
+			10,
+			4
+		);
 	}
 
 	@Test
@@ -79,11 +99,89 @@ public class SubmissionControlImplTest {
 	}
 
 	@Test
-	public void when_command_deserialization_fails__then_throw_exception() throws Exception {
+	public void when_command_deserialization_fails__then_command_rejected() throws Exception {
 		Command command = new Command(new byte[] {});
 		when(serialization.fromDson(any(), eq(ClientAtom.class))).thenThrow(new DeserializeException(""));
-		assertThatThrownBy(() -> submissionControl.submitCommand(command))
-			.isInstanceOf(MempoolRejectedException.class);
+		submissionControl.submitCommand(command);
+		verify(this.mempool, never()).add(any());
+		assertEquals(1L, this.counters.get(CounterType.MEMPOOL_ADMISSION_REJECTED));
+	}
+
+	@Test
+	public void when_intake_queue_full__then_command_rejected() throws Exception {
+		SubmissionControlImpl queueing = new SubmissionControlImpl(
+			this.mempool,
+			this.radixEngine,
+			this.serialization,
+			this.sender,
+			this.hasher,
+			this.counters,
+			r -> { },
+			1,
+			1
+		);
+		queueing.submitCommand(new Command(new byte[] {0}));
+		assertThatThrownBy(() -> queueing.submitCommand(new Command(new byte[] {1})))
+			.isInstanceOf(MempoolFullException.class);
+		assertEquals(1L, this.counters.get(CounterType.MEMPOOL_ADMISSION_QUEUED));
+		assertEquals(1L, this.counters.get(CounterType.MEMPOOL_ADMISSION_REJECTED));
+	}
+
+	@Test
+	public void when_atom_already_in_mempool__then_duplicate_rejected_without_validation() throws Exception {
+		doReturn(true).when(this.mempool).contains(any());
+
+		ClientAtom atom = mock(ClientAtom.class);
+		when(atom.getAID()).thenReturn(AID.from(HashUtils.random256().asBytes()));
+
+		assertThatThrownBy(() -> this.submissionControl.submitAtom(atom))
+			.isInstanceOf(MempoolDuplicateException.class);
+		verify(this.radixEngine, never()).staticCheck(any());
+		verify(this.mempool, never()).add(any());
+		assertEquals(1L, this.counters.get(CounterType.MEMPOOL_ADMISSION_DUPLICATES));
+	}
+
+	@Test
+	public void when_command_already_in_mempool__then_duplicate_rejected_without_decoding() throws Exception {
+		Command command = new Command(new byte[] {1, 2, 3});
+		doReturn(true).when(this.mempool).contains(eq(this.hasher.hash(command)));
+
+		this.submissionControl.submitCommand(command);
+
+		verify(this.serialization, never()).fromDson(any(), eq(ClientAtom.class));
+		verify(this.serialization, never()).toDson(any(), any());
+		verify(this.mempool, never()).add(any());
+		assertEquals(1L, this.counters.get(CounterType.MEMPOOL_ADMISSION_DUPLICATES));
+	}
+
+	@Test
+	public void when_atom_has_left_mempool__then_resubmission_is_admitted() throws Exception {
+		doNothing().when(this.radixEngine).staticCheck(any());
+		doNothing().when(this.mempool).add(any());
+
+		ClientAtom atom = mock(ClientAtom.class);
+		when(atom.getAID()).thenReturn(AID.from(HashUtils.random256().asBytes()));
+		this.submissionControl.submitAtom(atom);
+		this.submissionControl.submitAtom(atom);
+
+		verify(this.radixEngine, times(2)).staticCheck(any());
+		verify(this.mempool, times(2)).add(any());
+		assertEquals(0L, this.counters.get(CounterType.MEMPOOL_ADMISSION_DUPLICATES));
+	}
+
+	@Test
+	public void when_atom_rejected__then_resubmission_is_validated_again() throws Exception {
+		RadixEngineException e = mock(RadixEngineException.class);
+		when(e.getDataPointer()).thenReturn(DataPointer.ofAtom());
+		doThrow(e).when(this.radixEngine).staticCheck(any());
+
+		ClientAtom atom = mock(ClientAtom.class);
+		when(atom.getAID()).thenReturn(AID.from(HashUtils.random256().asBytes()));
+		this.submissionControl.submitAtom(atom);
+		this.submissionControl.submitAtom(atom);
+
+		verify(this.radixEngine, times(2)).staticCheck(any());
+		verify(this.sender, times(2)).sendRadixEngineFailure(any(), any());
 	}
 
 	@Test
@@ -0,0 +1,240 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.middleware2.network;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.radixdlt.consensus.BFTHeader;
+import com.radixdlt.consensus.Command;
+import com.radixdlt.consensus.ConsensusEvent;
+import com.radixdlt.consensus.HighQC;
+import com.radixdlt.consensus.LedgerHeader;
+import com.radixdlt.consensus.Proposal;
+import com.radixdlt.consensus.QuorumCertificate;
+import com.radixdlt.consensus.Sha256Hasher;
+import com.radixdlt.consensus.TimestampedECDSASignature;
+import com.radixdlt.consensus.TimestampedECDSASignatures;
+import com.radixdlt.consensus.TimestampedVoteData;
+import com.radixdlt.consensus.UnverifiedVertex;
+import com.radixdlt.consensus.Vote;
+import com.radixdlt.consensus.VoteData;
+import com.radixdlt.consensus.bft.BFTNode;
+import com.radixdlt.consensus.bft.BFTValidator;
+import com.radixdlt.consensus.bft.BFTValidatorSet;
+import com.radixdlt.consensus.bft.View;
+import com.radixdlt.crypto.ECDSASignature;
+import com.radixdlt.crypto.ECKeyPair;
+import com.radixdlt.crypto.HashUtils;
+import com.radixdlt.ledger.AccumulatorState;
+import com.radixdlt.utils.UInt256;
+import io.reactivex.rxjava3.observers.TestObserver;
+import java.math.BigInteger;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CompactConsensusEventCodecTest {
+	private static final long EPOCH = 3L;
+
+	private ImmutableList<BFTValidator> validators;
+	private BFTNode sender;
+	private BFTNode receiver;
+	private CompactConsensusEventCodec senderCodec;
+	private CompactConsensusEventCodec receiverCodec;
+
+	@Before
+	public void setUp() {
+		this.validators = IntStream.range(0, 10)
+			.mapToObj(i -> BFTValidator.from(BFTNode.create(ECKeyPair.generateNew().getPublicKey()), UInt256.from(i + 1L)))
+			.collect(ImmutableList.toImmutableList());
+		BFTValidatorSet validatorSet = BFTValidatorSet.from(this.validators);
+		this.sender = this.validators.get(0).getNode();
+		this.receiver = this.validators.get(1).getNode();
+		this.senderCodec = new CompactConsensusEventCodec(Sha256Hasher.withDefaultSerialization());
+		this.senderCodec.addValidatorSet(EPOCH, validatorSet);
+		this.receiverCodec = new CompactConsensusEventCodec(Sha256Hasher.withDefaultSerialization());
+		this.receiverCodec.addValidatorSet(EPOCH, validatorSet);
+	}
+
+	private QuorumCertificate qc(long epoch, long view, ImmutableList<BFTValidator> signers) {
+		LedgerHeader ledgerHeader = LedgerHeader.create(epoch, View.of(view), new AccumulatorState(view, HashUtils.zero256()), view);
+		BFTHeader proposed = new BFTHeader(View.of(view), HashUtils.random256(), ledgerHeader);
+		BFTHeader parent = new BFTHeader(View.of(view - 1), HashUtils.random256(), ledgerHeader);
+		ImmutableMap<BFTNode, TimestampedECDSASignature> signatures = IntStream.range(0, signers.size())
+			.boxed()
+			.collect(ImmutableMap.toImmutableMap(
+				i -> signers.get(i).getNode(),
+				i -> TimestampedECDSASignature.from(
+					view * 100 + i,
+					signers.get(i).getPower(),
+					new ECDSASignature(BigInteger.valueOf(i + 1L), BigInteger.ONE)
+				)
+			));
+		return new QuorumCertificate(new VoteData(proposed, parent, null), new TimestampedECDSASignatures(signatures));
+	}
+
+	private Proposal proposal(QuorumCertificate qc, QuorumCertificate committedQC) {
+		UnverifiedVertex vertex = new UnverifiedVertex(qc, qc.getView().next(), new Command(new byte[] {0, 1, 2}));
+		return new Proposal(vertex, committedQC, this.sender, new ECDSASignature(BigInteger.TEN, BigInteger.ONE), Optional.empty());
+	}
+
+	private Vote vote(QuorumCertificate highestQC) {
+		BFTHeader proposed = highestQC.getProposed();
+		TimestampedVoteData voteData = new TimestampedVoteData(new VoteData(proposed, highestQC.getParent(), null), 1L);
+		return new Vote(
+			this.sender,
+			voteData,
+			new ECDSASignature(BigInteger.TWO, BigInteger.ONE),
+			HighQC.from(highestQC),
+			Optional.empty()
+		);
+	}
+
+	@Test
+	public void when_sending_proposal__then_signers_are_encoded_as_bitmap_and_decoded() {
+		QuorumCertificate qc = qc(EPOCH, 10L, this.validators.subList(2, 9));
+		QuorumCertificate committedQC = qc(EPOCH, 8L, this.validators.subList(0, 7));
+		Proposal proposal = proposal(qc, committedQC);
+
+		ConsensusEventMessage message = this.senderCodec.encode(0, proposal, this.receiver);
+
+		CompactProposal compactProposal = message.getCompactProposal().orElseThrow();
+		assertThat(compactProposal.getQC().getVoteData()).contains(qc.getVoteData());
+		assertThat(compactProposal.getQC().getSigners()).hasSize(2);
+		assertThat(compactProposal.getQC().getSignatures()).hasSize(7);
+		assertThat(this.receiverCodec.decode(message, this.sender)).contains(proposal);
+	}
+
+	@Test
+	public void when_sending_proposal_with_same_committed_qc__then_committed_qc_is_omitted() {
+		QuorumCertificate qc = qc(EPOCH, 10L, this.validators.subList(2, 9));
+		Proposal proposal = proposal(qc, qc);
+
+		ConsensusEventMessage message = this.senderCodec.encode(0, proposal, this.receiver);
+
+		assertThat(message.getCompactProposal().orElseThrow().getCommittedQC()).isEmpty();
+		assertThat(this.receiverCodec.decode(message, this.sender)).contains(proposal);
+	}
+
+	@Test
+	public void when_sending_qc_previously_received_from_recipient__then_qc_is_referenced_by_hash() {
+		QuorumCertificate qc = qc(EPOCH, 10L, this.validators.subList(0, 7));
+		ConsensusEventMessage first = this.receiverCodec.encode(0, vote(qc), this.sender);
+		assertThat(this.senderCodec.decode(first, this.receiver)).isPresent();
+
+		Proposal proposal = proposal(qc(EPOCH, 11L, this.validators.subList(0, 7)), qc);
+		ConsensusEventMessage message = this.senderCodec.encode(0, proposal, this.receiver);
+
+		CompactQuorumCertificate committedQC = message.getCompactProposal().orElseThrow().getCommittedQC().orElseThrow();
+		assertThat(committedQC.getHash()).isPresent();
+		assertThat(committedQC.getQC()).isEmpty();
+		assertThat(committedQC.getVoteData()).isEmpty();
+		assertThat(this.receiverCodec.decode(message, this.sender)).contains(proposal);
+	}
+
+	@Test
+	public void when_sending_qc_previously_sent_to_recipient__then_qc_is_sent_again() {
+		QuorumCertificate qc = qc(EPOCH, 10L, this.validators.subList(0, 7));
+		// First message is lost
+		this.senderCodec.encode(0, vote(qc), this.receiver);
+
+		ConsensusEventMessage message = this.senderCodec.encode(0, vote(qc), this.receiver);
+
+		CompactQuorumCertificate highestQC = message.getCompactVote().orElseThrow().getHighestQC();
+		assertThat(highestQC.getHash()).isEmpty();
+		assertThat(highestQC.getVoteData()).contains(qc.getVoteData());
+		assertThat(this.receiverCodec.decode(message, this.sender)).isPresent();
+	}
+
+	@Test
+	public void when_compact_encoding_disabled__then_events_are_sent_in_full() {
+		CompactConsensusEventCodec fullCodec = new CompactConsensusEventCodec(Sha256Hasher.withDefaultSerialization(), false);
+		fullCodec.addValidatorSet(EPOCH, BFTValidatorSet.from(this.validators));
+		QuorumCertificate qc = qc(EPOCH, 10L, this.validators.subList(0, 7));
+		Proposal proposal = proposal(qc, qc);
+
+		ConsensusEventMessage message = fullCodec.encode(0, proposal, this.receiver);
+
+		assertThat(message.getCompactProposal()).isEmpty();
+		assertThat(message.getConsensusMessage()).isEqualTo(proposal);
+		assertThat(this.receiverCodec.decode(message, this.sender)).contains(proposal);
+	}
+
+	@Test
+	public void when_sending_qc_of_unknown_epoch__then_qc_is_sent_in_full() {
+		QuorumCertificate qc = qc(EPOCH + 1, 10L, this.validators.subList(0, 7));
+		Vote vote = vote(qc);
+
+		ConsensusEventMessage message = this.senderCodec.encode(0, vote, this.receiver);
+
+		assertThat(message.getCompactVote().orElseThrow().getHighestQC().getQC()).contains(qc);
+		assertThat(this.receiverCodec.decode(message, this.sender)).contains(vote);
+	}
+
+	@Test
+	public void when_receiving_reference_to_unknown_qc__then_nothing_is_decoded() {
+		QuorumCertificate qc = qc(EPOCH, 10L, this.validators.subList(0, 7));
+		ConsensusEventMessage first = this.receiverCodec.encode(0, vote(qc), this.sender);
+		assertThat(this.senderCodec.decode(first, this.receiver)).isPresent();
+		Proposal proposal = proposal(qc(EPOCH, 11L, this.validators.subList(0, 7)), qc);
+		ConsensusEventMessage message = this.senderCodec.encode(0, proposal, this.receiver);
+
+		CompactConsensusEventCodec otherCodec = new CompactConsensusEventCodec(Sha256Hasher.withDefaultSerialization());
+		otherCodec.addValidatorSet(EPOCH, BFTValidatorSet.from(this.validators));
+
+		assertThat(otherCodec.decode(message, this.sender)).isEmpty();
+	}
+
+	@Test
+	public void when_receiving_qc_of_future_epoch__then_event_is_deferred_until_validators_are_known() {
+		BFTValidatorSet validatorSet = BFTValidatorSet.from(this.validators);
+		this.senderCodec.addValidatorSet(EPOCH + 1, validatorSet);
+		Proposal proposal = proposal(qc(EPOCH + 1, 10L, this.validators.subList(0, 7)), qc(EPOCH + 1, 9L, this.validators.subList(1, 8)));
+		ConsensusEventMessage message = this.senderCodec.encode(0, proposal, this.receiver);
+		TestObserver<ConsensusEvent> deferred = this.receiverCodec.deferredEvents().test();
+
+		assertThat(this.receiverCodec.decode(message, this.sender)).isEmpty();
+		deferred.assertEmpty();
+
+		this.receiverCodec.addValidatorSet(EPOCH + 1, validatorSet);
+		deferred.assertValue(proposal);
+	}
+
+	@Test
+	public void when_receiving_qc_of_past_epoch_with_unknown_validators__then_event_is_dropped() {
+		BFTValidatorSet validatorSet = BFTValidatorSet.from(this.validators);
+		this.senderCodec.addValidatorSet(EPOCH - 1, validatorSet);
+		Vote vote = vote(qc(EPOCH - 1, 10L, this.validators.subList(0, 7)));
+		ConsensusEventMessage message = this.senderCodec.encode(0, vote, this.receiver);
+		TestObserver<ConsensusEvent> deferred = this.receiverCodec.deferredEvents().test();
+
+		assertThat(this.receiverCodec.decode(message, this.sender)).isEmpty();
+		this.receiverCodec.addValidatorSet(EPOCH + 1, validatorSet);
+		deferred.assertEmpty();
+	}
+
+	@Test
+	public void when_receiving_full_message__then_event_is_passed_through() {
+		Vote vote = vote(qc(EPOCH, 10L, this.validators.subList(0, 7)));
+
+		assertThat(this.receiverCodec.decode(new ConsensusEventMessage(0, vote), this.sender)).contains(vote);
+	}
+}
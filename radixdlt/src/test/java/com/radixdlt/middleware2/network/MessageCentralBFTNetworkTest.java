@@ -18,6 +18,7 @@
 package com.radixdlt.middleware2.network;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -32,6 +33,7 @@ import com.radixdlt.network.messaging.MessageCentral;
 import com.radixdlt.consensus.Vote;
 import com.radixdlt.universe.Universe;
 import io.reactivex.rxjava3.observers.TestObserver;
+import io.reactivex.rxjava3.subjects.PublishSubject;
 
 import java.util.Collections;
 import java.util.Optional;
@@ -42,6 +44,8 @@ public class MessageCentralBFTNetworkTest {
 	private BFTNode self;
 	private AddressBook addressBook;
 	private MessageCentral messageCentral;
+	private CompactConsensusEventCodec codec;
+	private PublishSubject<ConsensusEvent> deferredEvents;
 	private MessageCentralBFTNetwork network;
 
 	@Before
@@ -50,7 +54,10 @@ public class MessageCentralBFTNetworkTest {
 		Universe universe = mock(Universe.class);
 		this.addressBook = mock(AddressBook.class);
 		this.messageCentral = mock(MessageCentral.class);
-		this.network = new MessageCentralBFTNetwork(self, universe, addressBook, messageCentral);
+		this.codec = mock(CompactConsensusEventCodec.class);
+		this.deferredEvents = PublishSubject.create();
+		when(this.codec.deferredEvents()).thenReturn(this.deferredEvents);
+		this.network = new MessageCentralBFTNetwork(self, universe, addressBook, messageCentral, codec);
 	}
 
 	@Test
@@ -73,12 +80,23 @@ public class MessageCentralBFTNetworkTest {
 		testObserver.assertValue(proposal);
 	}
 
+	@Test
+	public void when_codec_emits_deferred_event__then_should_receive_event() {
+		TestObserver<ConsensusEvent> testObserver = TestObserver.create();
+		network.bftEvents().subscribe(testObserver);
+		Proposal proposal = mock(Proposal.class);
+		this.deferredEvents.onNext(proposal);
+		testObserver.awaitCount(1);
+		testObserver.assertValue(proposal);
+	}
+
 	@Test
 	public void when_send_vote_to_nonexistent__then_no_message_sent() {
 		Vote vote = mock(Vote.class);
 		BFTNode node = mock(BFTNode.class);
 		when(node.getKey()).thenReturn(mock(ECPublicKey.class));
 		network.voteDispatcher().dispatch(node, vote);
+		verify(codec, never()).encode(anyInt(), any(), any());
 		verify(messageCentral, never()).send(any(), any());
 	}
 
@@ -91,8 +109,10 @@ public class MessageCentralBFTNetworkTest {
 		PeerWithSystem peer = mock(PeerWithSystem.class);
 		when(peer.getNID()).thenReturn(leaderPk.euid());
 		when(addressBook.peer(leaderPk.euid())).thenReturn(Optional.of(peer));
+		ConsensusEventMessage message = mock(ConsensusEventMessage.class);
+		when(codec.encode(anyInt(), eq(vote), eq(leader))).thenReturn(message);
 
 		network.voteDispatcher().dispatch(leader, vote);
-		verify(messageCentral, times(1)).send(eq(peer), any(ConsensusEventMessage.class));
+		verify(messageCentral, times(1)).send(eq(peer), eq(message));
 	}
 }
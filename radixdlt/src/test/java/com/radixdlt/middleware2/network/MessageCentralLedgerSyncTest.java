@@ -17,6 +17,7 @@
 
 package com.radixdlt.middleware2.network;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
@@ -26,7 +27,10 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.common.collect.ImmutableList;
+import com.radixdlt.consensus.Command;
 import com.radixdlt.consensus.bft.BFTNode;
+import com.radixdlt.counters.SystemCounters;
 import com.radixdlt.crypto.ECPublicKey;
 import com.radixdlt.environment.rx.RemoteEvent;
 import com.radixdlt.identifiers.EUID;
@@ -56,7 +60,7 @@ public class MessageCentralLedgerSyncTest {
 		when(universe.getMagic()).thenReturn(123);
 		this.messageCentral = mock(MessageCentral.class);
 		this.addressBook = mock(AddressBook.class);
-		this.messageCentralLedgerSync = new MessageCentralLedgerSync(universe, addressBook, messageCentral);
+		this.messageCentralLedgerSync = new MessageCentralLedgerSync(universe, addressBook, messageCentral, mock(SystemCounters.class));
 	}
 
 	@Test
@@ -85,6 +89,40 @@ public class MessageCentralLedgerSyncTest {
 		verify(messageCentral, times(1)).send(eq(peer), argThat(msg -> msg.getMagic() == 123));
 	}
 
+	@Test
+	public void when_send_large_sync_response__then_it_is_sent_in_chunks() {
+		BFTNode node = mock(BFTNode.class);
+		ECPublicKey key = mock(ECPublicKey.class);
+		when(key.euid()).thenReturn(EUID.ONE);
+		when(node.getKey()).thenReturn(key);
+		PeerWithSystem peer = mock(PeerWithSystem.class);
+		when(peer.hasSystem()).thenReturn(true);
+		when(addressBook.peer(any(EUID.class))).thenReturn(Optional.of(peer));
+		Command command = new Command(new byte[MessageCentralLedgerSync.MAX_CHUNK_BYTES / 2]);
+		DtoCommandsAndProof commands = new DtoCommandsAndProof(
+			ImmutableList.of(command, command, command),
+			mock(DtoLedgerHeaderAndProof.class),
+			mock(DtoLedgerHeaderAndProof.class)
+		);
+
+		messageCentralLedgerSync.syncResponseDispatcher().dispatch(node, commands);
+
+		verify(messageCentral, times(3)).send(eq(peer), argThat(msg -> msg instanceof SyncResponseChunkMessage
+			&& ((SyncResponseChunkMessage) msg).getCount() == 3
+			&& ((SyncResponseChunkMessage) msg).getCommands().size() == 1));
+	}
+
+	@Test
+	public void when_chunking_commands__then_chunks_respect_size_limit() {
+		ImmutableList<Command> commands = ImmutableList.of(
+			new Command(new byte[40]), new Command(new byte[40]), new Command(new byte[200]), new Command(new byte[10])
+		);
+
+		ImmutableList<ImmutableList<Command>> chunks = MessageCentralLedgerSync.chunk(commands, 100);
+
+		assertThat(chunks).containsExactly(commands.subList(0, 2), commands.subList(2, 3), commands.subList(3, 4));
+	}
+
 	@Test
 	public void when_receive_sync_request__then_should_receive_it() {
 		AtomicReference<MessageListener<SyncRequestMessage>> messageListenerAtomicReference = new AtomicReference<>();
@@ -17,15 +17,30 @@
 
 package com.radixdlt.middleware2.network;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
 import com.radixdlt.consensus.Command;
-import java.util.concurrent.atomic.AtomicReference;
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.counters.SystemCountersImpl;
+import com.radixdlt.crypto.Hasher;
+import com.radixdlt.mempool.messages.MempoolAnnounceMessage;
+import com.radixdlt.mempool.messages.MempoolCommandsMessage;
+import com.radixdlt.mempool.messages.MempoolFetchMessage;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.radix.network.messaging.Message;
 import org.radix.universe.system.LocalSystem;
 
 import com.radixdlt.identifiers.EUID;
 import com.radixdlt.mempool.messages.MempoolAtomAddedMessage;
+import com.radixdlt.network.TimeSupplier;
 import com.radixdlt.network.addressbook.AddressBook;
 import com.radixdlt.network.addressbook.Peer;
 import com.radixdlt.network.addressbook.PeerWithSystem;
@@ -33,59 +48,243 @@ import com.radixdlt.network.messaging.MessageCentral;
 import com.radixdlt.network.messaging.MessageListener;
 import com.radixdlt.universe.Universe;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertNotNull;
 import static org.mockito.Mockito.*;
 
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
 import io.reactivex.rxjava3.observers.TestObserver;
 
 public class SimpleMempoolNetworkTest {
+	private PeerWithSystem peer1;
+	private PeerWithSystem peer3;
+	private AddressBook addressBook;
+	private MessageCentral messageCentral;
+	private Hasher hasher;
+	private SystemCounters counters;
+	private ScheduledExecutorService ses;
+	private long currentTime;
+	private Map<Class<?>, MessageListener<?>> listeners;
+	private SimpleMempoolNetwork smn;
 
-	@Test
-	public void testSendMempoolSubmission() {
-		PeerWithSystem peer1 = mock(PeerWithSystem.class);
+	@Before
+	public void setUp() {
+		this.peer1 = mock(PeerWithSystem.class);
 		when(peer1.hasSystem()).thenReturn(true);
 		when(peer1.getNID()).thenReturn(EUID.ONE);
 		PeerWithSystem peer2 = mock(PeerWithSystem.class);
 		when(peer2.hasSystem()).thenReturn(true);
 		when(peer2.getNID()).thenReturn(EUID.TWO);
+		this.peer3 = mock(PeerWithSystem.class);
+		when(peer3.hasSystem()).thenReturn(true);
+		when(peer3.getNID()).thenReturn(new EUID(3));
 		LocalSystem system = mock(LocalSystem.class);
 		when(system.getNID()).thenReturn(EUID.TWO);
 		Universe universe = mock(Universe.class);
-		AddressBook addressBook = mock(AddressBook.class);
-		when(addressBook.peers()).thenReturn(Stream.of(peer1, peer2));
-		MessageCentral messageCentral = mock(MessageCentral.class);
-		SimpleMempoolNetwork smn = new SimpleMempoolNetwork(system, universe, addressBook, messageCentral);
+		this.addressBook = mock(AddressBook.class);
+		when(addressBook.peers()).thenAnswer(inv -> Stream.of(peer1, peer2));
+		this.messageCentral = mock(MessageCentral.class);
+		this.listeners = new HashMap<>();
+		doAnswer(inv -> {
+			listeners.put(inv.getArgument(0), inv.getArgument(1));
+			return null;
+		}).when(messageCentral).addListener(any(), any());
+		this.hasher = mock(Hasher.class);
+		when(hasher.hashBytes(any())).thenAnswer(inv -> HashCode.fromBytes(inv.<byte[]>getArgument(0)));
+		this.counters = new SystemCountersImpl();
+		this.ses = mock(ScheduledExecutorService.class);
+
+		this.currentTime = 0L;
+		TimeSupplier timeSupplier = () -> this.currentTime;
+
+		this.smn = new SimpleMempoolNetwork(system, universe, addressBook, messageCentral, hasher, counters, ses, timeSupplier);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T extends Message> void receive(Peer source, T message) {
+		MessageListener<T> listener = (MessageListener<T>) listeners.get(message.getClass());
+		assertNotNull(listener);
+		listener.handleMessage(source, message);
+	}
 
-		Command command = mock(Command.class);
+	private static Command command(int i) {
+		return new Command(new byte[] {(byte) i, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0});
+	}
+
+	@Test
+	public void testSendMempoolSubmission() {
+		Command command = command(1);
 		smn.sendMempoolSubmission(command);
 
-		verify(messageCentral, times(1)).send(any(), any());
+		verify(ses, times(1)).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+		verify(messageCentral, never()).send(any(), any());
+
+		smn.flushAnnouncements();
+
+		ArgumentCaptor<Message> captor = ArgumentCaptor.forClass(Message.class);
+		verify(messageCentral, times(1)).send(eq(peer1), captor.capture());
+		assertThat(captor.getValue()).isInstanceOf(MempoolAnnounceMessage.class);
+		assertThat(((MempoolAnnounceMessage) captor.getValue()).hashes()).containsExactly(hasher.hashBytes(command.getPayload()));
+		assertThat(counters.get(CounterType.MEMPOOL_GOSSIP_ANNOUNCED)).isEqualTo(1L);
 	}
 
 	@Test
-	public void testCommandMessages() {
-		LocalSystem system = mock(LocalSystem.class);
-		when(system.getNID()).thenReturn(EUID.TWO);
-		Universe universe = mock(Universe.class);
-		AddressBook addressBook = mock(AddressBook.class);
-		MessageCentral messageCentral = mock(MessageCentral.class);
-		AtomicReference<MessageListener<MempoolAtomAddedMessage>> callbackRef = new AtomicReference<>();
-		doAnswer(inv -> {
-			callbackRef.set(inv.getArgument(1));
-			return null;
-		}).when(messageCentral).addListener(eq(MempoolAtomAddedMessage.class), any());
+	public void when_batch_is_full__then_announcement_is_sent_immediately() {
+		for (int i = 0; i < SimpleMempoolNetwork.MAX_BATCH_SIZE; i++) {
+			smn.sendMempoolSubmission(command(i));
+		}
+
+		verify(messageCentral, times(1)).send(eq(peer1), any(MempoolAnnounceMessage.class));
+	}
 
-		SimpleMempoolNetwork smn = new SimpleMempoolNetwork(system, universe, addressBook, messageCentral);
+	@Test
+	public void when_announced_unknown_hashes__then_only_unknown_hashes_are_fetched() {
+		Command known = command(1);
+		Command unknown = command(2);
+		smn.sendMempoolSubmission(known);
+		HashCode knownHash = hasher.hashBytes(known.getPayload());
+		HashCode unknownHash = hasher.hashBytes(unknown.getPayload());
+
+		receive(peer1, new MempoolAnnounceMessage(0, ImmutableList.of(knownHash, unknownHash)));
+		receive(peer1, new MempoolAnnounceMessage(0, ImmutableList.of(unknownHash)));
 
-		assertNotNull(callbackRef.get());
-		MessageListener<MempoolAtomAddedMessage> callback = callbackRef.get();
+		verify(messageCentral, times(1)).send(eq(peer1), argThat(m -> m instanceof MempoolFetchMessage
+			&& ((MempoolFetchMessage) m).hashes().equals(ImmutableList.of(unknownHash))));
+		assertThat(counters.get(CounterType.MEMPOOL_GOSSIP_DUPLICATES_SUPPRESSED)).isEqualTo(2L);
+	}
+
+	@Test
+	public void when_announcement_too_large__then_it_is_ignored() {
+		ImmutableList<HashCode> hashes = IntStream.range(0, SimpleMempoolNetwork.MAX_BATCH_SIZE + 1)
+			.mapToObj(HashCode::fromInt)
+			.collect(ImmutableList.toImmutableList());
 
+		receive(peer1, new MempoolAnnounceMessage(0, hashes));
+
+		verify(messageCentral, never()).send(any(), any());
+		verify(ses, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+	}
+
+	@Test
+	public void when_too_many_fetches_in_flight__then_oldest_are_dropped() {
+		for (int i = 0; i < SimpleMempoolNetwork.MAX_IN_FLIGHT; i += SimpleMempoolNetwork.MAX_BATCH_SIZE) {
+			ImmutableList<HashCode> hashes = IntStream.range(i, i + SimpleMempoolNetwork.MAX_BATCH_SIZE)
+				.mapToObj(HashCode::fromInt)
+				.collect(ImmutableList.toImmutableList());
+			receive(peer1, new MempoolAnnounceMessage(0, hashes));
+		}
+		HashCode oldest = HashCode.fromInt(0);
+		receive(peer1, new MempoolAnnounceMessage(0, ImmutableList.of(HashCode.fromInt(-1))));
+		receive(peer3, new MempoolAnnounceMessage(0, ImmutableList.of(oldest)));
+
+		// Oldest fetch was dropped, so can be fetched again
+		verify(messageCentral, times(1)).send(eq(peer3), argThat(m -> m instanceof MempoolFetchMessage
+			&& ((MempoolFetchMessage) m).hashes().equals(ImmutableList.of(oldest))));
+	}
+
+	@Test
+	public void when_known_command_announced__then_payload_bytes_saved_are_counted() {
+		Command command = new Command(new byte[100]);
+		HashCode hash = HashCode.fromLong(1L);
+		when(hasher.hashBytes(command.getPayload())).thenReturn(hash);
+		smn.sendMempoolSubmission(command);
+
+		receive(peer1, new MempoolAnnounceMessage(0, ImmutableList.of(hash)));
+
+		assertThat(counters.get(CounterType.MEMPOOL_GOSSIP_BYTES_SAVED)).isEqualTo(92L);
+	}
+
+	@Test
+	public void when_fetched__then_retained_commands_are_returned() {
+		Command command = command(1);
+		smn.sendMempoolSubmission(command);
+		HashCode hash = hasher.hashBytes(command.getPayload());
+
+		receive(peer1, new MempoolFetchMessage(0, ImmutableList.of(hash, HashCode.fromInt(1))));
+
+		verify(messageCentral, times(1)).send(eq(peer1), argThat(m -> m instanceof MempoolCommandsMessage
+			&& ((MempoolCommandsMessage) m).commands().equals(ImmutableList.of(command))));
+		assertThat(counters.get(CounterType.MEMPOOL_GOSSIP_BYTES_SAVED)).isZero();
+	}
+
+	@Test
+	public void when_commands_received__then_new_commands_are_emitted_once() {
+		TestObserver<Command> obs = smn.commands().test();
+		Command command = command(1);
+		receive(peer1, new MempoolAnnounceMessage(0, ImmutableList.of(hasher.hashBytes(command.getPayload()))));
+
+		receive(peer1, new MempoolCommandsMessage(0, ImmutableList.of(command)));
+		receive(peer1, new MempoolCommandsMessage(0, ImmutableList.of(command)));
+
+		obs.assertValue(command);
+		assertThat(counters.get(CounterType.MEMPOOL_GOSSIP_FETCHED)).isEqualTo(1L);
+		assertThat(counters.get(CounterType.MEMPOOL_GOSSIP_UNSOLICITED)).isEqualTo(1L);
+	}
+
+	@Test
+	public void when_commands_received_without_request__then_commands_are_ignored() {
+		TestObserver<Command> obs = smn.commands().test();
+		Command command = command(1);
+		receive(peer1, new MempoolAnnounceMessage(0, ImmutableList.of(hasher.hashBytes(command.getPayload()))));
+
+		receive(peer3, new MempoolCommandsMessage(0, ImmutableList.of(command)));
+		receive(peer1, new MempoolCommandsMessage(0, ImmutableList.of(command(2))));
+
+		obs.assertNoValues();
+		assertThat(counters.get(CounterType.MEMPOOL_GOSSIP_FETCHED)).isZero();
+		assertThat(counters.get(CounterType.MEMPOOL_GOSSIP_UNSOLICITED)).isEqualTo(2L);
+	}
+
+	@Test
+	public void when_fetch_times_out__then_fetch_is_retried_from_another_announcer() {
+		TestObserver<Command> obs = smn.commands().test();
+		Command command = command(1);
+		HashCode hash = hasher.hashBytes(command.getPayload());
+		receive(peer1, new MempoolAnnounceMessage(0, ImmutableList.of(hash)));
+		receive(peer3, new MempoolAnnounceMessage(0, ImmutableList.of(hash)));
+		verify(messageCentral, never()).send(eq(peer3), any());
+		verify(ses, times(1)).schedule(any(Runnable.class), eq(SimpleMempoolNetwork.FETCH_TIMEOUT_MS), eq(TimeUnit.MILLISECONDS));
+
+		this.currentTime = SimpleMempoolNetwork.FETCH_TIMEOUT_MS;
+		smn.retryFetches();
+
+		verify(messageCentral, times(1)).send(eq(peer3), argThat(m -> m instanceof MempoolFetchMessage
+			&& ((MempoolFetchMessage) m).hashes().equals(ImmutableList.of(hash))));
+		assertThat(counters.get(CounterType.MEMPOOL_GOSSIP_FETCH_RETRIES)).isEqualTo(1L);
+
+		receive(peer3, new MempoolCommandsMessage(0, ImmutableList.of(command)));
+
+		obs.assertValue(command);
+		assertThat(counters.get(CounterType.MEMPOOL_GOSSIP_FETCHED)).isEqualTo(1L);
+	}
+
+	@Test
+	public void when_fetch_times_out_without_other_announcers__then_hash_can_be_fetched_again() {
+		Command command = command(1);
+		HashCode hash = hasher.hashBytes(command.getPayload());
+		receive(peer1, new MempoolAnnounceMessage(0, ImmutableList.of(hash)));
+
+		this.currentTime = SimpleMempoolNetwork.FETCH_TIMEOUT_MS;
+		smn.retryFetches();
+		receive(peer3, new MempoolAnnounceMessage(0, ImmutableList.of(hash)));
+
+		verify(messageCentral, times(1)).send(eq(peer3), any(MempoolFetchMessage.class));
+		assertThat(counters.get(CounterType.MEMPOOL_GOSSIP_FETCH_RETRIES)).isZero();
+	}
+
+	@Test
+	public void testCommandMessages() {
 		TestObserver<Command> obs = smn.commands().test();
 
 		Peer peer = mock(Peer.class);
-		Command command = mock(Command.class);
+		Command command = command(1);
 		MempoolAtomAddedMessage message = mock(MempoolAtomAddedMessage.class);
 		when(message.command()).thenReturn(command);
+		@SuppressWarnings("unchecked")
+		MessageListener<MempoolAtomAddedMessage> callback = (MessageListener<MempoolAtomAddedMessage>) listeners.get(MempoolAtomAddedMessage.class);
+		assertNotNull(callback);
 		callback.handleMessage(peer, message);
 
 		obs.awaitCount(1);
@@ -0,0 +1,157 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.middleware2.network;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.radixdlt.consensus.Command;
+import com.radixdlt.consensus.LedgerHeader;
+import com.radixdlt.consensus.bft.BFTNode;
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.counters.SystemCountersImpl;
+import com.radixdlt.ledger.AccumulatorState;
+import com.radixdlt.ledger.DtoCommandsAndProof;
+import com.radixdlt.ledger.DtoLedgerHeaderAndProof;
+import java.util.Optional;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SyncResponseAssemblerTest {
+	private SystemCounters counters;
+	private SyncResponseAssembler assembler;
+	private BFTNode sender;
+	private DtoLedgerHeaderAndProof head;
+	private DtoLedgerHeaderAndProof tail;
+
+	@Before
+	public void setUp() {
+		this.counters = new SystemCountersImpl();
+		this.assembler = new SyncResponseAssembler(this.counters);
+		this.sender = mock(BFTNode.class);
+		this.head = proof(10L);
+		this.tail = proof(14L);
+	}
+
+	private static DtoLedgerHeaderAndProof proof(long stateVersion) {
+		DtoLedgerHeaderAndProof proof = mock(DtoLedgerHeaderAndProof.class);
+		LedgerHeader ledgerHeader = mock(LedgerHeader.class);
+		when(ledgerHeader.getAccumulatorState()).thenReturn(new AccumulatorState(stateVersion, HashCode.fromInt(1)));
+		when(proof.getLedgerHeader()).thenReturn(ledgerHeader);
+		return proof;
+	}
+
+	private static ImmutableList<Command> commands(int first, int count) {
+		ImmutableList.Builder<Command> builder = ImmutableList.builder();
+		for (int i = first; i < first + count; i++) {
+			builder.add(new Command(new byte[] {(byte) i}));
+		}
+		return builder.build();
+	}
+
+	private SyncResponseChunkMessage chunk(long stream, int index, int count, ImmutableList<Command> commands) {
+		return new SyncResponseChunkMessage(0, stream, index, count, commands,
+			index == 0 ? this.head : null, index == 0 ? this.tail : null);
+	}
+
+	@Test
+	public void when_all_chunks_received_in_order__then_response_is_assembled() {
+		assertThat(this.assembler.add(this.sender, chunk(1L, 0, 2, commands(0, 2)))).isEmpty();
+		assertThat(this.assembler.pending()).isEqualTo(1);
+
+		Optional<DtoCommandsAndProof> response = this.assembler.add(this.sender, chunk(1L, 1, 2, commands(2, 2)));
+
+		assertThat(response).contains(new DtoCommandsAndProof(commands(0, 4), this.head, this.tail));
+		assertThat(this.assembler.pending()).isZero();
+		assertThat(this.counters.get(CounterType.SYNC_RESPONSE_CHUNKS_RECEIVED)).isEqualTo(2L);
+	}
+
+	@Test
+	public void when_chunks_received_out_of_order__then_response_is_assembled_by_index() {
+		assertThat(this.assembler.add(this.sender, chunk(1L, 2, 3, commands(3, 1)))).isEmpty();
+		assertThat(this.assembler.add(this.sender, chunk(1L, 0, 3, commands(0, 2)))).isEmpty();
+
+		Optional<DtoCommandsAndProof> response = this.assembler.add(this.sender, chunk(1L, 1, 3, commands(2, 1)));
+
+		assertThat(response).contains(new DtoCommandsAndProof(commands(0, 4), this.head, this.tail));
+		assertThat(this.counters.get(CounterType.SYNC_RESPONSE_CHUNKS_STREAMS_DROPPED)).isZero();
+	}
+
+	@Test
+	public void when_chunk_received_twice__then_duplicate_is_ignored() {
+		this.assembler.add(this.sender, chunk(1L, 0, 2, commands(0, 2)));
+		this.assembler.add(this.sender, chunk(1L, 0, 2, commands(0, 2)));
+
+		Optional<DtoCommandsAndProof> response = this.assembler.add(this.sender, chunk(1L, 1, 2, commands(2, 2)));
+
+		assertThat(response).contains(new DtoCommandsAndProof(commands(0, 4), this.head, this.tail));
+	}
+
+	@Test
+	public void when_chunk_of_new_stream_received__then_partial_stream_is_replaced() {
+		this.assembler.add(this.sender, chunk(1L, 0, 3, commands(0, 1)));
+
+		assertThat(this.assembler.add(this.sender, chunk(2L, 1, 2, commands(2, 2)))).isEmpty();
+		Optional<DtoCommandsAndProof> response = this.assembler.add(this.sender, chunk(2L, 0, 2, commands(0, 2)));
+
+		assertThat(response).contains(new DtoCommandsAndProof(commands(0, 4), this.head, this.tail));
+		assertThat(this.counters.get(CounterType.SYNC_RESPONSE_CHUNKS_STREAMS_DROPPED)).isEqualTo(1L);
+	}
+
+	@Test
+	public void when_chunk_count_too_large__then_chunk_is_dropped() {
+		SyncResponseChunkMessage chunk = chunk(1L, 1, SyncResponseAssembler.MAX_STREAM_CHUNKS + 1, commands(0, 1));
+
+		assertThat(this.assembler.add(this.sender, chunk)).isEmpty();
+
+		assertThat(this.assembler.pending()).isZero();
+		assertThat(this.counters.get(CounterType.SYNC_RESPONSE_CHUNKS_STREAMS_DROPPED)).isEqualTo(1L);
+	}
+
+	@Test
+	public void when_too_many_commands__then_stream_is_dropped_before_completion() {
+		this.assembler.add(this.sender, chunk(1L, 0, 3, commands(0, 3)));
+
+		assertThat(this.assembler.add(this.sender, chunk(1L, 1, 3, commands(3, 2)))).isEmpty();
+
+		assertThat(this.assembler.pending()).isZero();
+		assertThat(this.counters.get(CounterType.SYNC_RESPONSE_CHUNKS_STREAMS_DROPPED)).isEqualTo(1L);
+	}
+
+	@Test
+	public void when_too_few_commands__then_response_is_dropped() {
+		this.assembler.add(this.sender, chunk(1L, 0, 2, commands(0, 1)));
+
+		assertThat(this.assembler.add(this.sender, chunk(1L, 1, 2, commands(1, 1)))).isEmpty();
+		assertThat(this.counters.get(CounterType.SYNC_RESPONSE_CHUNKS_STREAMS_DROPPED)).isEqualTo(1L);
+	}
+
+	@Test
+	public void when_too_many_senders__then_oldest_stream_is_dropped() {
+		for (int i = 0; i <= SyncResponseAssembler.MAX_STREAMS; i++) {
+			this.assembler.add(mock(BFTNode.class), chunk(1L, 0, 2, commands(0, 1)));
+		}
+
+		assertThat(this.assembler.pending()).isEqualTo(SyncResponseAssembler.MAX_STREAMS);
+		assertThat(this.counters.get(CounterType.SYNC_RESPONSE_CHUNKS_STREAMS_DROPPED)).isEqualTo(1L);
+	}
+}
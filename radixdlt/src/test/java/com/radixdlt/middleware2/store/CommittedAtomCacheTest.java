@@ -0,0 +1,151 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.middleware2.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.radixdlt.consensus.Command;
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.counters.SystemCountersImpl;
+import com.radixdlt.identifiers.AID;
+import com.radixdlt.middleware2.ClientAtom;
+import com.radixdlt.statecomputer.ClientAtomToBinaryConverter;
+import com.radixdlt.store.LedgerEntry;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CommittedAtomCacheTest {
+	private CommandToBinaryConverter commandToBinaryConverter;
+	private ClientAtomToBinaryConverter clientAtomToBinaryConverter;
+	private SystemCounters counters;
+	private ClientAtom clientAtom;
+
+	@Before
+	public void setUp() {
+		this.commandToBinaryConverter = mock(CommandToBinaryConverter.class);
+		this.clientAtomToBinaryConverter = mock(ClientAtomToBinaryConverter.class);
+		this.counters = new SystemCountersImpl();
+		this.clientAtom = mock(ClientAtom.class);
+
+		StoredCommittedCommand committedCommand = mock(StoredCommittedCommand.class);
+		Command command = mock(Command.class);
+		when(command.map(any())).thenReturn(this.clientAtom);
+		when(committedCommand.getCommand()).thenReturn(command);
+		when(this.commandToBinaryConverter.toCommand(any())).thenReturn(committedCommand);
+	}
+
+	private CommittedAtomCache cache(long maxBytes) {
+		return new CommittedAtomCache(maxBytes, this.commandToBinaryConverter, this.clientAtomToBinaryConverter, this.counters);
+	}
+
+	private static LedgerEntry entry(long stateVersion, int size) {
+		return new LedgerEntry(new byte[size], stateVersion, stateVersion, AID.from(new byte[AID.BYTES]));
+	}
+
+	@Test
+	public void when_get_twice__then_entry_is_decoded_once() {
+		CommittedAtomCache cache = cache(1000L);
+		LedgerEntry entry = entry(1L, 10);
+
+		assertThat(cache.get(entry).getClientAtom()).isSameAs(this.clientAtom);
+		assertThat(cache.get(entry).getClientAtom()).isSameAs(this.clientAtom);
+
+		verify(this.commandToBinaryConverter, times(1)).toCommand(any());
+		assertThat(this.counters.get(CounterType.LEDGER_ATOM_CACHE_HITS)).isEqualTo(1L);
+		assertThat(this.counters.get(CounterType.LEDGER_ATOM_CACHE_MISSES)).isEqualTo(1L);
+		assertThat(cache.size()).isEqualTo(1);
+	}
+
+	@Test
+	public void when_get_by_aid__then_only_cached_atoms_are_returned() {
+		CommittedAtomCache cache = cache(1000L);
+		LedgerEntry entry = entry(1L, 10);
+
+		assertThat(cache.get(entry.getAID())).isEmpty();
+		cache.get(entry);
+		assertThat(cache.get(entry.getAID())).hasValueSatisfying(a -> assertThat(a.getClientAtom()).isSameAs(this.clientAtom));
+
+		verify(this.commandToBinaryConverter, times(1)).toCommand(any());
+		assertThat(this.counters.get(CounterType.LEDGER_ATOM_CACHE_HITS)).isEqualTo(1L);
+		// The miss is counted once, when the entry is decoded
+		assertThat(this.counters.get(CounterType.LEDGER_ATOM_CACHE_MISSES)).isEqualTo(1L);
+	}
+
+	@Test
+	public void when_state_version_differs__then_entry_is_decoded_again() {
+		CommittedAtomCache cache = cache(1000L);
+		cache.get(entry(1L, 10));
+		cache.get(entry(2L, 10));
+
+		verify(this.commandToBinaryConverter, times(2)).toCommand(any());
+		assertThat(this.counters.get(CounterType.LEDGER_ATOM_CACHE_HITS)).isZero();
+	}
+
+	@Test
+	public void when_put__then_get_committed_command_does_not_decode() {
+		CommittedAtomCache cache = cache(1000L);
+		LedgerEntry entry = entry(1L, 10);
+		StoredCommittedCommand committedCommand = mock(StoredCommittedCommand.class);
+
+		cache.put(entry, committedCommand, this.clientAtom);
+
+		assertThat(cache.getCommittedCommand(entry)).isSameAs(committedCommand);
+		verify(this.commandToBinaryConverter, never()).toCommand(any());
+	}
+
+	@Test
+	public void when_over_budget__then_least_recently_used_entries_are_evicted() {
+		// Each entry is estimated at 40 bytes
+		CommittedAtomCache cache = cache(100L);
+		LedgerEntry entry1 = new LedgerEntry(new byte[10], 1L, 1L, AID.from(new byte[AID.BYTES]));
+		byte[] aid2 = new byte[AID.BYTES];
+		aid2[0] = 2;
+		LedgerEntry entry2 = new LedgerEntry(new byte[10], 2L, 2L, AID.from(aid2));
+		byte[] aid3 = new byte[AID.BYTES];
+		aid3[0] = 3;
+		LedgerEntry entry3 = new LedgerEntry(new byte[10], 3L, 3L, AID.from(aid3));
+
+		cache.get(entry1);
+		cache.get(entry2);
+		cache.get(entry1);
+		cache.get(entry3);
+
+		assertThat(cache.size()).isEqualTo(2);
+		assertThat(cache.bytes()).isEqualTo(80L);
+		assertThat(this.counters.get(CounterType.LEDGER_ATOM_CACHE_EVICTIONS)).isEqualTo(1L);
+		assertThat(this.counters.get(CounterType.LEDGER_ATOM_CACHE_BYTES)).isEqualTo(80L);
+		cache.getCommittedCommand(entry2);
+		assertThat(this.counters.get(CounterType.LEDGER_ATOM_CACHE_MISSES)).isEqualTo(4L);
+	}
+
+	@Test
+	public void when_budget_is_zero__then_nothing_is_cached() {
+		CommittedAtomCache cache = cache(0L);
+		cache.get(entry(1L, 10));
+
+		assertThat(cache.size()).isZero();
+		assertThat(cache.bytes()).isZero();
+	}
+}
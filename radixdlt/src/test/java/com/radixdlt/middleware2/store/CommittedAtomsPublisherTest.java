@@ -0,0 +1,167 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.middleware2.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.counters.SystemCountersImpl;
+import com.radixdlt.identifiers.EUID;
+import com.radixdlt.middleware2.store.EngineAtomIndices.IndexType;
+import com.radixdlt.statecomputer.CommittedAtom;
+import com.radixdlt.statecomputer.RadixEngineStateComputer.CommittedAtomSender;
+import com.radixdlt.statecomputer.RadixEngineStateComputer.CommittedAtomWithResult;
+import com.radixdlt.store.StoreIndex;
+import com.radixdlt.utils.Pair;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CommittedAtomsPublisherTest {
+	private List<ImmutableList<CommittedAtomWithResult>> sent;
+	private SystemCounters counters;
+
+	@Before
+	public void setUp() {
+		this.sent = new CopyOnWriteArrayList<>();
+		this.counters = new SystemCountersImpl();
+	}
+
+	private static Pair<CommittedAtom, EngineAtomIndices> atom(EUID destination) {
+		EngineAtomIndices indices = new EngineAtomIndices(
+			ImmutableSet.of(),
+			ImmutableSet.of(
+				new StoreIndex(EngineAtomIndices.toByteArray(IndexType.DESTINATION, destination)),
+				new StoreIndex(EngineAtomIndices.toByteArray(IndexType.PARTICLE_CLASS, new EUID(99)))
+			)
+		);
+		return Pair.of(mock(CommittedAtom.class), indices);
+	}
+
+	@Test
+	public void when_publish__then_one_batch_with_destinations_is_sent() {
+		CommittedAtomsPublisher publisher = new CommittedAtomsPublisher(this.sent::add, this.counters, Runnable::run, 4);
+		Pair<CommittedAtom, EngineAtomIndices> first = atom(new EUID(1));
+		Pair<CommittedAtom, EngineAtomIndices> second = atom(new EUID(2));
+
+		publisher.publish(ImmutableList.of(first, second));
+
+		assertThat(this.sent).hasSize(1);
+		ImmutableList<CommittedAtomWithResult> batch = this.sent.get(0);
+		assertThat(batch.get(0).getCommittedAtom()).isSameAs(first.getFirst());
+		assertThat(batch.get(1).getCommittedAtom()).isSameAs(second.getFirst());
+		List<ImmutableSet<EUID>> destinations = new ArrayList<>();
+		batch.forEach(c -> c.ifSuccess(destinations::add));
+		assertThat(destinations).containsExactly(ImmutableSet.of(new EUID(1)), ImmutableSet.of(new EUID(2)));
+		assertThat(this.counters.get(CounterType.LEDGER_PUBLISH_BATCHES)).isEqualTo(1L);
+		assertThat(this.counters.get(CounterType.LEDGER_PUBLISH_ATOMS)).isEqualTo(2L);
+		assertThat(this.counters.get(CounterType.LEDGER_PUBLISH_QUEUE_SIZE)).isZero();
+	}
+
+	@Test
+	public void when_publish_empty_batch__then_nothing_is_sent() {
+		CommittedAtomSender sender = mock(CommittedAtomSender.class);
+		CommittedAtomsPublisher publisher = new CommittedAtomsPublisher(sender, this.counters, Runnable::run, 4);
+
+		publisher.publish(ImmutableList.of());
+
+		verify(sender, never()).sendCommittedAtoms(any());
+	}
+
+	@Test
+	public void when_publish_and_sender_fails__then_next_batch_is_still_sent() {
+		List<Integer> sizes = new ArrayList<>();
+		CommittedAtomsPublisher publisher = new CommittedAtomsPublisher(
+			batch -> {
+				sizes.add(batch.size());
+				if (sizes.size() == 1) {
+					throw new IllegalStateException("Subscriber failure");
+				}
+			},
+			this.counters,
+			Runnable::run,
+			1
+		);
+
+		publisher.publish(ImmutableList.of(atom(new EUID(1))));
+		publisher.publish(ImmutableList.of(atom(new EUID(2)), atom(new EUID(3))));
+
+		assertThat(sizes).containsExactly(1, 2);
+		assertThat(this.counters.get(CounterType.LEDGER_PUBLISH_BATCHES)).isEqualTo(1L);
+	}
+
+	@Test
+	public void when_backlog_is_full__then_publish_merges_batches_without_waiting() {
+		Queue<Runnable> tasks = new ArrayDeque<>();
+		CommittedAtomsPublisher publisher = new CommittedAtomsPublisher(this.sent::add, this.counters, tasks::add, 1);
+		Pair<CommittedAtom, EngineAtomIndices> first = atom(new EUID(1));
+		Pair<CommittedAtom, EngineAtomIndices> second = atom(new EUID(2));
+		Pair<CommittedAtom, EngineAtomIndices> third = atom(new EUID(3));
+		Pair<CommittedAtom, EngineAtomIndices> fourth = atom(new EUID(4));
+
+		publisher.publish(ImmutableList.of(first));
+		assertThat(this.counters.get(CounterType.LEDGER_PUBLISH_QUEUE_SIZE)).isEqualTo(1L);
+		publisher.publish(ImmutableList.of(second, third));
+		publisher.publish(ImmutableList.of(fourth));
+
+		assertThat(tasks).hasSize(1);
+		assertThat(this.counters.get(CounterType.LEDGER_PUBLISH_MERGED_BATCHES)).isEqualTo(2L);
+
+		tasks.poll().run();
+		assertThat(tasks).hasSize(1);
+		tasks.poll().run();
+
+		assertThat(this.sent).hasSize(2);
+		assertThat(this.sent.get(0)).extracting(CommittedAtomWithResult::getCommittedAtom).containsExactly(first.getFirst());
+		assertThat(this.sent.get(1)).extracting(CommittedAtomWithResult::getCommittedAtom)
+			.containsExactly(second.getFirst(), third.getFirst(), fourth.getFirst());
+		assertThat(this.counters.get(CounterType.LEDGER_PUBLISH_ATOMS)).isEqualTo(4L);
+		assertThat(this.counters.get(CounterType.LEDGER_PUBLISH_QUEUE_SIZE)).isZero();
+	}
+
+	@Test
+	public void when_backlog_has_room_after_overflow__then_later_batches_follow_merged_batch() {
+		Queue<Runnable> tasks = new ArrayDeque<>();
+		CommittedAtomsPublisher publisher = new CommittedAtomsPublisher(this.sent::add, this.counters, tasks::add, 1);
+		Pair<CommittedAtom, EngineAtomIndices> second = atom(new EUID(2));
+		Pair<CommittedAtom, EngineAtomIndices> third = atom(new EUID(3));
+
+		publisher.publish(ImmutableList.of(atom(new EUID(1))));
+		publisher.publish(ImmutableList.of(second));
+		tasks.poll().run();
+		publisher.publish(ImmutableList.of(third));
+		assertThat(tasks).hasSize(1);
+		tasks.poll().run();
+		tasks.poll().run();
+
+		assertThat(this.sent).hasSize(3);
+		assertThat(this.sent.get(1)).extracting(CommittedAtomWithResult::getCommittedAtom).containsExactly(second.getFirst());
+		assertThat(this.sent.get(2)).extracting(CommittedAtomWithResult::getCommittedAtom).containsExactly(third.getFirst());
+	}
+}
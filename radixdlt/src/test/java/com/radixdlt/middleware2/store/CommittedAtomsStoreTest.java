@@ -32,6 +32,7 @@ import com.radixdlt.constraintmachine.CMInstruction;
 import com.radixdlt.constraintmachine.CMMicroInstruction;
 import com.radixdlt.constraintmachine.Particle;
 import com.radixdlt.constraintmachine.Spin;
+import com.radixdlt.counters.SystemCountersImpl;
 import com.radixdlt.crypto.Hasher;
 import com.radixdlt.identifiers.AID;
 import com.radixdlt.middleware2.ClientAtom;
@@ -68,11 +69,12 @@ public class CommittedAtomsStoreTest {
 		this.hasher = Sha256Hasher.withDefaultSerialization();
 
 		this.committedAtomsStore = new CommittedAtomsStore(
-			committedAtomSender,
+			new CommittedAtomsPublisher(committedAtomSender, new SystemCountersImpl(), Runnable::run, 16),
 			store,
 			mock(PersistentVertexStore.class),
 			commandToBinaryConverter,
 			clientAtomToBinaryConverter,
+			new CommittedAtomCache(1024L * 1024L, commandToBinaryConverter, clientAtomToBinaryConverter, new SystemCountersImpl()),
 			atomIndexer,
 			serialization,
 			hasher
@@ -103,6 +105,7 @@ public class CommittedAtomsStoreTest {
 		AID aid = mock(AID.class);
 		when(searchCursor.get()).thenReturn(aid);
 		LedgerEntry ledgerEntry = mock(LedgerEntry.class);
+		when(ledgerEntry.getContent()).thenReturn(new byte[0]);
 		when(store.get(eq(aid))).thenReturn(Optional.of(ledgerEntry));
 		StoredCommittedCommand committedCommand = mock(StoredCommittedCommand.class);
 		Command command = mock(Command.class);
@@ -0,0 +1,295 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.middleware2.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.radixdlt.DefaultSerialization;
+import com.radixdlt.atommodel.system.SystemParticle;
+import com.radixdlt.consensus.BFTHeader;
+import com.radixdlt.consensus.Command;
+import com.radixdlt.consensus.LedgerHeader;
+import com.radixdlt.consensus.Sha256Hasher;
+import com.radixdlt.consensus.TimestampedECDSASignatures;
+import com.radixdlt.consensus.VerifiedLedgerHeaderAndProof;
+import com.radixdlt.consensus.bft.BFTNode;
+import com.radixdlt.consensus.bft.BFTValidator;
+import com.radixdlt.consensus.bft.BFTValidatorSet;
+import com.radixdlt.consensus.bft.View;
+import com.radixdlt.constraintmachine.CMMicroInstruction;
+import com.radixdlt.constraintmachine.Spin;
+import com.radixdlt.crypto.HashUtils;
+import com.radixdlt.crypto.Hasher;
+import com.radixdlt.identifiers.AID;
+import com.radixdlt.ledger.AccumulatorState;
+import com.radixdlt.ledger.SimpleLedgerAccumulatorAndVerifier;
+import com.radixdlt.middleware2.ClientAtom;
+import com.radixdlt.serialization.DsonOutput.Output;
+import com.radixdlt.serialization.Serialization;
+import com.radixdlt.statecomputer.CommittedAtom;
+import com.radixdlt.store.LedgerEntry;
+import com.radixdlt.store.LedgerEntryStoreResult;
+import com.radixdlt.store.LedgerTransaction;
+import com.radixdlt.store.berkeley.BerkeleyLedgerEntryStore;
+import com.radixdlt.store.berkeley.BerkeleyLedgerEntryStore.CommittedEntryVisitor;
+import com.radixdlt.store.berkeley.BerkeleyStoreException;
+import com.radixdlt.utils.UInt256;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LedgerSnapshotTest {
+	private static final byte[] INDICES = new byte[] {1, 2, 3};
+
+	private Serialization serialization;
+	private Hasher hasher;
+	private SimpleLedgerAccumulatorAndVerifier accumulator;
+	private CommandToBinaryConverter commandToBinaryConverter;
+	private LedgerSnapshot snapshot;
+	private List<ClientAtom> atoms;
+	private List<AccumulatorState> states;
+	private VerifiedLedgerHeaderAndProof epochProof;
+
+	@Before
+	public void setup() {
+		serialization = DefaultSerialization.getInstance();
+		hasher = Sha256Hasher.withDefaultSerialization();
+		accumulator = new SimpleLedgerAccumulatorAndVerifier(hasher);
+		commandToBinaryConverter = new CommandToBinaryConverter(serialization);
+		snapshot = new LedgerSnapshot(serialization, hasher, accumulator);
+
+		atoms = new ArrayList<>();
+		states = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			ClientAtom atom = atom(i);
+			Command command = command(atom);
+			atoms.add(atom);
+			states.add(i == 0
+				? new AccumulatorState(0, hasher.hash(command))
+				: accumulator.accumulate(states.get(i - 1), hasher.hash(command)));
+		}
+		BFTValidatorSet validatorSet = BFTValidatorSet.from(Stream.of(BFTValidator.from(BFTNode.random(), UInt256.ONE)));
+		epochProof = proof(states.get(4), validatorSet);
+	}
+
+	private static VerifiedLedgerHeaderAndProof proof(AccumulatorState state, BFTValidatorSet nextValidators) {
+		LedgerHeader ledgerHeader = LedgerHeader.create(1, View.of(5), state, 0L, nextValidators);
+		BFTHeader header = new BFTHeader(View.of(5), HashUtils.random256(), ledgerHeader);
+		return new VerifiedLedgerHeaderAndProof(header, header, 1L, HashUtils.random256(), ledgerHeader, new TimestampedECDSASignatures());
+	}
+
+	private ClientAtom atom(long epoch) {
+		return ClientAtom.create(
+			ImmutableList.of(CMMicroInstruction.checkSpinAndPush(new SystemParticle(epoch, 0, 0), Spin.UP)),
+			hasher
+		);
+	}
+
+	private Command command(ClientAtom atom) {
+		return new Command(serialization.toDson(atom, Output.ALL));
+	}
+
+	private VerifiedLedgerHeaderAndProof proof(int stateVersion) {
+		return stateVersion == 0 ? VerifiedLedgerHeaderAndProof.genesis(states.get(0).getAccumulatorHash(), null) : epochProof;
+	}
+
+	private byte[] ledgerEntry(ClientAtom atom, AID aid, long stateVersion, VerifiedLedgerHeaderAndProof proof) {
+		byte[] content = commandToBinaryConverter.toLedgerEntryContent(new StoredCommittedCommand(command(atom), proof));
+		LedgerEntry ledgerEntry = new LedgerEntry(content, stateVersion, proof.getStateVersion(), aid);
+		return serialization.toDson(ledgerEntry, Output.PERSIST);
+	}
+
+	private BerkeleyLedgerEntryStore storeWith(List<ClientAtom> storedAtoms) throws IOException {
+		BerkeleyLedgerEntryStore store = mock(BerkeleyLedgerEntryStore.class);
+		doAnswer(invocation -> {
+			CommittedEntryVisitor visitor = invocation.getArgument(1);
+			for (int i = 0; i < storedAtoms.size(); i++) {
+				ClientAtom atom = storedAtoms.get(i);
+				visitor.visit(i, atom.getAID(), ledgerEntry(atom, atom.getAID(), i, proof(i)), INDICES);
+			}
+			return null;
+		}).when(store).forEachCommitted(anyLong(), any());
+		return store;
+	}
+
+	private BerkeleyLedgerEntryStore emptyTarget(LedgerTransaction transaction) {
+		BerkeleyLedgerEntryStore target = mock(BerkeleyLedgerEntryStore.class);
+		when(target.getLastCommitted()).thenReturn(Optional.empty());
+		when(target.createTransaction()).thenReturn(transaction);
+		when(target.store(any(), any(), any(), any())).thenReturn(LedgerEntryStoreResult.success());
+		return target;
+	}
+
+	private byte[] export(BerkeleyLedgerEntryStore store) throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		assertThat(snapshot.export(store, epochProof, output)).isEqualTo(5L);
+		return output.toByteArray();
+	}
+
+	@Test
+	public void when_export_and_verify__then_should_return_snapshot_proof() throws IOException {
+		byte[] bytes = export(storeWith(atoms));
+
+		assertThat(snapshot.verify(new ByteArrayInputStream(bytes))).isEqualTo(epochProof);
+	}
+
+	@Test
+	public void when_export_proof_not_ending_epoch__then_should_throw_exception() throws IOException {
+		BerkeleyLedgerEntryStore store = storeWith(atoms);
+		VerifiedLedgerHeaderAndProof proof = proof(states.get(4), null);
+
+		assertThatThrownBy(() -> snapshot.export(store, proof, new ByteArrayOutputStream()))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	public void when_verify_truncated_snapshot__then_should_throw_exception() throws IOException {
+		byte[] bytes = export(storeWith(atoms));
+		byte[] truncated = Arrays.copyOf(bytes, bytes.length - 16);
+
+		assertThatThrownBy(() -> snapshot.verify(new ByteArrayInputStream(truncated)))
+			.isInstanceOf(IOException.class);
+	}
+
+	@Test
+	public void when_verify_snapshot_with_altered_command__then_should_throw_exception() throws IOException {
+		List<ClientAtom> altered = new ArrayList<>(atoms);
+		altered.set(2, atom(42));
+		byte[] bytes = export(storeWith(altered));
+
+		assertThatThrownBy(() -> snapshot.verify(new ByteArrayInputStream(bytes)))
+			.isInstanceOf(IOException.class)
+			.hasMessageContaining("accumulate");
+	}
+
+	@Test
+	public void when_verify_snapshot_with_entry_not_matching_command__then_should_throw_exception() throws IOException {
+		BerkeleyLedgerEntryStore store = mock(BerkeleyLedgerEntryStore.class);
+		doAnswer(invocation -> {
+			CommittedEntryVisitor visitor = invocation.getArgument(1);
+			for (int i = 0; i < atoms.size(); i++) {
+				AID aid = atoms.get(i == 2 ? 3 : i).getAID();
+				visitor.visit(i, aid, ledgerEntry(atoms.get(i), aid, i, proof(i)), INDICES);
+			}
+			return null;
+		}).when(store).forEachCommitted(anyLong(), any());
+		byte[] bytes = export(store);
+
+		assertThatThrownBy(() -> snapshot.verify(new ByteArrayInputStream(bytes)))
+			.isInstanceOf(IOException.class)
+			.hasMessageContaining("does not match");
+	}
+
+	@Test
+	public void when_verify_snapshot_with_missing_entries__then_should_throw_exception() throws IOException {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		snapshot.export(storeWith(atoms.subList(0, 3)), epochProof, output);
+
+		assertThatThrownBy(() -> snapshot.verify(new ByteArrayInputStream(output.toByteArray())))
+			.isInstanceOf(IOException.class);
+	}
+
+	@Test
+	public void when_import__then_should_store_entries_in_batches() throws IOException {
+		byte[] bytes = export(storeWith(atoms));
+		LedgerTransaction transaction = mock(LedgerTransaction.class);
+		BerkeleyLedgerEntryStore target = emptyTarget(transaction);
+
+		assertThat(snapshot.importInto(target, new ByteArrayInputStream(bytes), 2)).isEqualTo(epochProof);
+
+		for (int i = 0; i < 5; i++) {
+			long stateVersion = i;
+			AID aid = atoms.get(i).getAID();
+			verify(target, times(1)).store(
+				eq(transaction),
+				argThat(entry -> entry.getStateVersion() == stateVersion && entry.getAID().equals(aid)),
+				any(),
+				any()
+			);
+		}
+		verify(transaction, times(3)).commit();
+		verify(transaction, never()).abort();
+	}
+
+	@Test
+	public void when_import__then_should_store_indices_computed_from_entries() throws IOException {
+		byte[] bytes = export(storeWith(atoms));
+		LedgerTransaction transaction = mock(LedgerTransaction.class);
+		BerkeleyLedgerEntryStore target = emptyTarget(transaction);
+
+		snapshot.importInto(target, new ByteArrayInputStream(bytes), 2);
+
+		for (int i = 0; i < 5; i++) {
+			AID aid = atoms.get(i).getAID();
+			EngineAtomIndices indices = EngineAtomIndices.from(new CommittedAtom(atoms.get(i), i, proof(i)), serialization, hasher);
+			verify(target, times(1)).store(
+				any(),
+				argThat(entry -> entry.getAID().equals(aid)),
+				eq(indices.getUniqueIndices()),
+				eq(indices.getDuplicateIndices())
+			);
+		}
+	}
+
+	@Test
+	public void when_import_into_non_empty_ledger__then_should_throw_exception() throws IOException {
+		byte[] bytes = export(storeWith(atoms));
+		BerkeleyLedgerEntryStore target = mock(BerkeleyLedgerEntryStore.class);
+		when(target.getLastCommitted()).thenReturn(Optional.of(atoms.get(0).getAID()));
+
+		assertThatThrownBy(() -> snapshot.importInto(target, new ByteArrayInputStream(bytes), 2))
+			.isInstanceOf(IllegalStateException.class);
+		verify(target, never()).createTransaction();
+		verify(target, never()).reset();
+	}
+
+	@Test
+	public void when_import_fails__then_should_reset_store() throws IOException {
+		byte[] bytes = export(storeWith(atoms));
+		LedgerTransaction transaction = mock(LedgerTransaction.class);
+		BerkeleyLedgerEntryStore target = emptyTarget(transaction);
+		doThrow(new BerkeleyStoreException("Conflicting indices"))
+			.when(target).store(any(), argThat(entry -> entry.getStateVersion() == 3L), any(), any());
+
+		assertThatThrownBy(() -> snapshot.importInto(target, new ByteArrayInputStream(bytes), 2))
+			.isInstanceOf(BerkeleyStoreException.class);
+		verify(transaction, times(1)).commit();
+		verify(transaction, times(1)).abort();
+		verify(target, times(1)).reset();
+	}
+}
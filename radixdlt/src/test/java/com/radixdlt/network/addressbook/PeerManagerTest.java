@@ -28,6 +28,7 @@ import com.radixdlt.network.transport.TransportInfo;
 import com.radixdlt.network.transport.TransportMetadata;
 import com.radixdlt.network.transport.udp.UDPConstants;
 import com.radixdlt.properties.RuntimeProperties;
+import com.radixdlt.sync.PeerPerformanceTracker;
 
 import org.assertj.core.api.SoftAssertions;
 import org.junit.After;
@@ -177,7 +178,8 @@ public class PeerManagerTest extends RadixTest {
 			rng,
 			getLocalSystem(),
 			properties,
-			getUniverse()
+			getUniverse(),
+			mock(PeerPerformanceTracker.class)
 		);
 
 		// Ignore interrupted flag from other tests
@@ -0,0 +1,146 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.network.addressbook;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.counters.SystemCountersImpl;
+import com.radixdlt.identifiers.EUID;
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+public class WriteBehindPeerPersistenceTest {
+	private PeerPersistence delegate;
+	private SystemCounters counters;
+	private ScheduledExecutorService executor;
+	private WriteBehindPeerPersistence persistence;
+
+	@Before
+	public void setUp() {
+		this.delegate = mock(PeerPersistence.class);
+		when(this.delegate.savePeer(any())).thenReturn(true);
+		when(this.delegate.deletePeer(any())).thenReturn(true);
+		this.counters = new SystemCountersImpl();
+		this.executor = mock(ScheduledExecutorService.class);
+		this.persistence = new WriteBehindPeerPersistence(this.delegate, this.counters, this.executor, 1_000L);
+	}
+
+	private static PeerWithSystem peer(EUID nid) {
+		PeerWithSystem peer = mock(PeerWithSystem.class);
+		when(peer.getNID()).thenReturn(nid);
+		return peer;
+	}
+
+	@Test
+	public void when_created__then_flush_is_scheduled() {
+		verify(this.executor, times(1)).scheduleWithFixedDelay(any(), eq(1_000L), eq(1_000L), eq(TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void when_saved__then_write_is_deferred_until_flush() {
+		PeerWithSystem peer = peer(EUID.ONE);
+
+		assertThat(this.persistence.savePeer(peer)).isTrue();
+		verify(this.delegate, never()).savePeer(any());
+		assertThat(this.persistence.pending()).isEqualTo(1);
+
+		this.persistence.flush();
+		verify(this.delegate, times(1)).savePeer(peer);
+		assertThat(this.persistence.pending()).isZero();
+	}
+
+	@Test
+	public void when_same_peer_written_repeatedly__then_only_last_write_is_flushed() {
+		PeerWithSystem peer1 = peer(EUID.ONE);
+		PeerWithSystem peer2 = peer(EUID.ONE);
+		PeerWithSystem peer3 = peer(EUID.TWO);
+
+		this.persistence.savePeer(peer1);
+		this.persistence.savePeer(peer2);
+		this.persistence.savePeer(peer3);
+		this.persistence.deletePeer(EUID.TWO);
+		this.persistence.flush();
+
+		verify(this.delegate, never()).savePeer(peer1);
+		verify(this.delegate, times(1)).savePeer(peer2);
+		verify(this.delegate, never()).savePeer(peer3);
+		verify(this.delegate, times(1)).deletePeer(EUID.TWO);
+		assertThat(this.counters.get(CounterType.PERSISTENCE_ADDRESS_BOOK_WRITES_COALESCED)).isEqualTo(2L);
+	}
+
+	@Test
+	public void when_iterating__then_pending_writes_are_flushed_first() {
+		PeerWithSystem peer = peer(EUID.ONE);
+		this.persistence.savePeer(peer);
+
+		this.persistence.forEachPersistedPeer(p -> { });
+
+		InOrder inOrder = inOrder(this.delegate);
+		inOrder.verify(this.delegate).savePeer(peer);
+		inOrder.verify(this.delegate).forEachPersistedPeer(any());
+	}
+
+	@Test
+	public void when_delegate_throws__then_remaining_writes_are_flushed() {
+		PeerWithSystem peer1 = peer(EUID.ONE);
+		PeerWithSystem peer2 = peer(EUID.TWO);
+		when(this.delegate.savePeer(peer1)).thenThrow(new IllegalStateException("test"));
+
+		this.persistence.savePeer(peer1);
+		this.persistence.savePeer(peer2);
+		this.persistence.flush();
+
+		verify(this.delegate, times(1)).savePeer(peer2);
+	}
+
+	@Test
+	public void when_closed__then_pending_writes_are_flushed_and_delegate_closed() throws IOException, InterruptedException {
+		when(this.executor.awaitTermination(anyLong(), any())).thenReturn(true);
+		PeerWithSystem peer = peer(EUID.ONE);
+		this.persistence.savePeer(peer);
+
+		this.persistence.close();
+
+		InOrder inOrder = inOrder(this.executor, this.delegate);
+		inOrder.verify(this.executor).shutdown();
+		inOrder.verify(this.delegate).savePeer(peer);
+		inOrder.verify(this.delegate).close();
+	}
+
+	@Test
+	public void when_created_with_bad_interval__then_exception_is_thrown() {
+		assertThatThrownBy(() -> new WriteBehindPeerPersistence(this.delegate, this.counters, this.executor, 0L))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+}
@@ -212,6 +212,60 @@ public class MessageDispatcherTest extends RadixTest {
 		assertThat(messages.get(0), Matchers.equalTo(testMessage));
 	}
 
+	@Test
+	public void receiveUnchangedSystemSkipsVerification() throws InterruptedException {
+		SystemMessage testMessage = spy(new SystemMessage(getLocalSystem(), 0));
+		testMessage.setSignature(getKeyPair().sign(hasher.hash(testMessage)));
+
+		RadixSystem radixSystem = spy(testMessage.getSystem());
+		doReturn(radixSystem).when(testMessage).getSystem();
+		doReturn(EUID.ONE).when(radixSystem).getNID();
+		doReturn(radixSystem).when(peer1).getSystem();
+
+		InboundMessageEvent messageEvent = new InboundMessageEvent(transportInfo1, testMessage, 10_000);
+
+		Semaphore receivedFlag = new Semaphore(0);
+		MessageListenerList messageListenerList = new MessageListenerList();
+		messageListenerList.addMessageListener((source, message) -> receivedFlag.release());
+
+		when(this.addressBook.addOrUpdatePeer(any(), any(), any())).thenReturn(peer1);
+
+		messageDispatcher.receive(messageListenerList, messageEvent);
+		messageDispatcher.receive(messageListenerList, messageEvent);
+
+		assertTrue(receivedFlag.tryAcquire(2, 10, TimeUnit.SECONDS));
+		verify(this.addressBook, times(1)).addOrUpdatePeer(any(), any(), any());
+		verify(counters, times(1)).increment(CounterType.MESSAGES_INBOUND_SYSTEM_VERIFICATIONS_AVOIDED);
+	}
+
+	@Test
+	public void receiveAlteredMessageWithVerifiedSystemIsVerified() throws InterruptedException {
+		SystemMessage testMessage = spy(new SystemMessage(getLocalSystem(), 0));
+		testMessage.setSignature(getKeyPair().sign(hasher.hash(testMessage)));
+		// Same system, different content, reusing the signature of the first message
+		SystemMessage alteredMessage = spy(new SystemMessage(getLocalSystem(), 1));
+		alteredMessage.setSignature(testMessage.getSignature());
+
+		RadixSystem radixSystem = spy(testMessage.getSystem());
+		doReturn(radixSystem).when(testMessage).getSystem();
+		doReturn(radixSystem).when(alteredMessage).getSystem();
+		doReturn(EUID.ONE).when(radixSystem).getNID();
+		doReturn(radixSystem).when(peer1).getSystem();
+
+		Semaphore receivedFlag = new Semaphore(0);
+		MessageListenerList messageListenerList = new MessageListenerList();
+		messageListenerList.addMessageListener((source, message) -> receivedFlag.release());
+
+		when(this.addressBook.addOrUpdatePeer(any(), any(), any())).thenReturn(peer1);
+
+		messageDispatcher.receive(messageListenerList, new InboundMessageEvent(transportInfo1, testMessage, 10_000));
+		messageDispatcher.receive(messageListenerList, new InboundMessageEvent(transportInfo1, alteredMessage, 10_000));
+
+		assertTrue(receivedFlag.tryAcquire(1, 10, TimeUnit.SECONDS));
+		verify(counters, never()).increment(CounterType.MESSAGES_INBOUND_SYSTEM_VERIFICATIONS_AVOIDED);
+		verify(counters, times(1)).increment(CounterType.MESSAGES_INBOUND_BADSIGNATURE);
+	}
+
 	@Test
 	public void receiveExpiredMessage() {
 		SystemMessage testMessage = spy(new SystemMessage(getLocalSystem(), 0));
@@ -77,6 +77,21 @@ public class TCPTransportControlImplTest {
 			public boolean debugData(boolean defaultValue) {
 				return false;
 			}
+
+			@Override
+			public int workerThreads(int defaultValue) {
+				return defaultValue;
+			}
+
+			@Override
+			public boolean nativeTransport(boolean defaultValue) {
+				return defaultValue;
+			}
+
+			@Override
+			public int flushBatchSize(int defaultValue) {
+				return defaultValue;
+			}
 		};
 
 		transportOutboundConnection = mock(TransportOutboundConnection.class);
@@ -167,6 +182,48 @@ public class TCPTransportControlImplTest {
 		}
 	}
 
+	@Test
+	public void findOrCreateActiveChannelFailed() throws Exception {
+		ChannelFuture cf = mock(ChannelFuture.class);
+		when(cf.cause()).thenReturn(new IOException("test"));
+		when(cf.addListener(any())).thenAnswer(a -> {
+			GenericFutureListener<Future<Void>> listener = a.getArgument(0);
+			listener.operationComplete(cf);
+			return cf;
+		});
+		when(transport.createChannel(any(), anyInt())).thenReturn(cf);
+		try (TCPTransportControlImpl tcpTransportControl = new TCPTransportControlImpl(config, outboundFactory, transport, counters)) {
+			TransportMetadata metadata = StaticTransportMetadata.of(
+				TCPConstants.METADATA_HOST, "127.0.0.1",
+				TCPConstants.METADATA_PORT, "1234"
+			);
+			TCPConnectionHandlerChannelInbound handler = (TCPConnectionHandlerChannelInbound) tcpTransportControl.handler();
+
+			CompletableFuture<TransportOutboundConnection> result = handler.findOrCreateActiveChannel(metadata, transport, outboundFactory);
+			assertTrue(result.isCompletedExceptionally());
+			assertEquals(0, handler.pendingMapSize());
+		}
+	}
+
+	@Test
+	public void findOrCreateActiveChannelExisting() throws Exception {
+		try (TCPTransportControlImpl tcpTransportControl = new TCPTransportControlImpl(config, outboundFactory, transport, counters)) {
+			TransportMetadata metadata = StaticTransportMetadata.of(
+				TCPConstants.METADATA_HOST, "127.0.0.1",
+				TCPConstants.METADATA_PORT, "1234"
+			);
+			TCPConnectionHandlerChannelInbound handler = (TCPConnectionHandlerChannelInbound) tcpTransportControl.handler();
+			ChannelHandlerContext ctx = createContext("127.0.0.1", 1234);
+			when(ctx.channel().isActive()).thenReturn(true);
+			handler.channelActive(ctx);
+
+			CompletableFuture<TransportOutboundConnection> result = handler.findOrCreateActiveChannel(metadata, transport, outboundFactory);
+			assertThat(result.get()).isEqualTo(transportOutboundConnection);
+			verify(outboundFactory, times(1)).create(ctx.channel(), metadata);
+			verify(transport, never()).createChannel(any(), anyInt());
+		}
+	}
+
 	ChannelHandlerContext createContext(String host, int port) {
 		InetSocketAddress isa = new InetSocketAddress(host, port);
 		SocketChannel sch = mock(SocketChannel.class);
@@ -89,7 +89,7 @@ public final class ModuleForRecoveryTests {
 					bind(TimeSupplier.class).toInstance(System::currentTimeMillis);
 
 					// TODO: Move these into DeterministicSender
-					bind(CommittedAtomSender.class).toInstance(atom -> {
+					bind(CommittedAtomSender.class).toInstance(atoms -> {
 					});
 				}
 			},
@@ -17,9 +17,12 @@
 
 package com.radixdlt.statecomputer;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -35,15 +38,25 @@ import com.radixdlt.crypto.Hasher;
 import com.radixdlt.engine.RadixEngine;
 import com.radixdlt.identifiers.AID;
 import com.radixdlt.ledger.AccumulatorState;
+import com.radixdlt.ledger.ByzantineQuorumException;
 import com.radixdlt.ledger.VerifiedCommandsAndProof;
 import com.radixdlt.middleware2.ClientAtom;
 import com.radixdlt.middleware2.LedgerAtom;
 import com.radixdlt.middleware2.store.RadixEngineAtomicCommitManager;
+import com.radixdlt.serialization.DeserializeException;
 import com.radixdlt.serialization.Serialization;
 import com.radixdlt.utils.TypedMocks;
 
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 public class RadixEngineStateComputerTest {
 	private Serialization serialization;
@@ -53,6 +66,7 @@ public class RadixEngineStateComputerTest {
 	private View epochHighView;
 	private ValidatorSetBuilder validatorSetBuilder;
 	private Hasher hasher;
+	private ExecutorService commitExecutor;
 
 	@Before
 	public void setup() {
@@ -70,6 +84,39 @@ public class RadixEngineStateComputerTest {
 			validatorSetBuilder,
 			hasher
 		);
+		this.commitExecutor = Executors.newFixedThreadPool(4);
+	}
+
+	@After
+	public void tearDown() {
+		this.commitExecutor.shutdownNow();
+	}
+
+	private VerifiedCommandsAndProof commandsAndProof(int count) {
+		VerifiedLedgerHeaderAndProof proof = mock(VerifiedLedgerHeaderAndProof.class);
+		AccumulatorState accumulatorState = mock(AccumulatorState.class);
+		when(accumulatorState.getStateVersion()).thenReturn((long) count);
+		when(proof.getAccumulatorState()).thenReturn(accumulatorState);
+		VerifiedCommandsAndProof commandsAndProof = mock(VerifiedCommandsAndProof.class);
+		when(commandsAndProof.getHeader()).thenReturn(proof);
+		when(commandsAndProof.getCommands()).thenReturn(
+			IntStream.range(0, count)
+				.mapToObj(i -> new Command(new byte[] {(byte) i}))
+				.collect(ImmutableList.toImmutableList())
+		);
+		return commandsAndProof;
+	}
+
+	private RadixEngineStateComputer parallelStateComputer() {
+		return RadixEngineStateComputer.create(
+			serialization,
+			radixEngine,
+			commitManager,
+			epochHighView,
+			validatorSetBuilder,
+			hasher,
+			commitExecutor
+		);
 	}
 
 	@Test
@@ -96,4 +143,47 @@ public class RadixEngineStateComputerTest {
 
 		verify(radixEngine, times(1)).checkAndStore(any(), any());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void when_commit_batch_decoded_in_parallel__then_atoms_are_stored_in_ledger_order() throws Exception {
+		List<ClientAtom> clientAtoms = IntStream.range(0, 20)
+			.mapToObj(i -> mock(ClientAtom.class))
+			.collect(Collectors.toList());
+		when(serialization.fromDson(any(), eq(ClientAtom.class)))
+			.thenAnswer(invocation -> clientAtoms.get(invocation.<byte[]>getArgument(0)[0]));
+		when(radixEngine.getComputedState(any())).thenReturn(mock(SystemParticle.class));
+
+		parallelStateComputer().commit(commandsAndProof(20), null);
+
+		ArgumentCaptor<LedgerAtom> stored = ArgumentCaptor.forClass(LedgerAtom.class);
+		verify(radixEngine, times(20)).checkAndStore(stored.capture(), any());
+		List<CommittedAtom> committedAtoms = stored.getAllValues().stream()
+			.map(CommittedAtom.class::cast)
+			.collect(Collectors.toList());
+		assertThat(committedAtoms.stream().map(CommittedAtom::getClientAtom))
+			.containsExactlyElementsOf(clientAtoms);
+		assertThat(committedAtoms.stream().map(CommittedAtom::getStateVersion))
+			.containsExactlyElementsOf(LongStream.rangeClosed(1, 20).boxed().collect(Collectors.toList()));
+		verify(commitManager, times(1)).commitTransaction();
+	}
+
+	@Test
+	public void when_commit_batch_with_bad_command__then_transaction_is_aborted() throws Exception {
+		ClientAtom clientAtom = mock(ClientAtom.class);
+		when(serialization.fromDson(any(), eq(ClientAtom.class))).thenAnswer(invocation -> {
+			if (invocation.<byte[]>getArgument(0)[0] == 2) {
+				throw new DeserializeException("bad");
+			}
+			return clientAtom;
+		});
+		when(radixEngine.getComputedState(any())).thenReturn(mock(SystemParticle.class));
+
+		RadixEngineStateComputer computer = parallelStateComputer();
+		assertThatThrownBy(() -> computer.commit(commandsAndProof(5), null))
+			.isInstanceOf(ByzantineQuorumException.class);
+
+		verify(radixEngine, times(2)).checkAndStore(any(), any());
+		verify(commitManager, times(1)).abortTransaction();
+		verify(commitManager, never()).commitTransaction();
+	}
+}
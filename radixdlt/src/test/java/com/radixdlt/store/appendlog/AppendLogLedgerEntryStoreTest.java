@@ -0,0 +1,384 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.store.appendlog;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.radixdlt.DefaultSerialization;
+import com.radixdlt.consensus.HighQC;
+import com.radixdlt.consensus.LedgerHeader;
+import com.radixdlt.consensus.QuorumCertificate;
+import com.radixdlt.consensus.UnverifiedVertex;
+import com.radixdlt.consensus.bft.VerifiedVertex;
+import com.radixdlt.consensus.bft.VerifiedVertexStoreState;
+import com.radixdlt.crypto.HashUtils;
+import com.radixdlt.counters.SystemCountersImpl;
+import com.radixdlt.identifiers.AID;
+import com.radixdlt.store.LedgerEntry;
+import com.radixdlt.store.LedgerEntryStoreResult;
+import com.radixdlt.store.LedgerSearchMode;
+import com.radixdlt.store.LedgerTransaction;
+import com.radixdlt.store.SearchCursor;
+import com.radixdlt.store.StoreIndex;
+import com.radixdlt.store.StoreIndex.LedgerIndexType;
+import com.radixdlt.store.berkeley.NextCommittedLimitReachedException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AppendLogLedgerEntryStoreTest {
+	private static final int ENTRIES_PER_TRANSACTION = 10;
+	private static final int SHARED_KEYS = 4;
+	// Small enough for a segment to be sealed every few transactions
+	private static final long SEGMENT_SIZE = 8 * 1024L;
+
+	private static final byte UNIQUE_PREFIX = 2;
+	private static final byte SHARED_PREFIX = 3;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final Random random = new Random(12345L);
+	private final List<LedgerEntry> committed = new ArrayList<>();
+	private Path directory;
+	private AppendLogLedgerEntryStore store;
+
+	@Before
+	public void setUp() {
+		this.directory = folder.getRoot().toPath().resolve("ledger_log");
+		this.store = openStore();
+	}
+
+	@After
+	public void tearDown() {
+		this.store.close();
+	}
+
+	@Test
+	public void when_entries_are_committed__then_they_can_be_retrieved() {
+		commitTransactions(3);
+
+		for (LedgerEntry entry : committed) {
+			assertThat(store.contains(entry.getAID())).isTrue();
+			LedgerEntry stored = store.get(entry.getAID()).orElseThrow();
+			assertThat(stored.getStateVersion()).isEqualTo(entry.getStateVersion());
+			assertThat(stored.getProofVersion()).isEqualTo(entry.getProofVersion());
+			assertThat(stored.getContent()).isEqualTo(entry.getContent());
+		}
+		assertThat(store.getLastCommitted()).contains(last().getAID());
+		assertThat(store.contains(null, LedgerIndexType.UNIQUE, uniqueIndex(5), LedgerSearchMode.EXACT)).isTrue();
+		assertThat(store.contains(null, LedgerIndexType.UNIQUE, uniqueIndex(1000), LedgerSearchMode.EXACT)).isFalse();
+		assertThat(store.contains(null, LedgerIndexType.DUPLICATE, uniqueIndex(5), LedgerSearchMode.EXACT)).isFalse();
+		assertThat(store.get(aid())).isEmpty();
+	}
+
+	@Test
+	public void when_a_unique_index_is_stored_twice__then_the_transaction_is_aborted() {
+		commitTransactions(1);
+
+		LedgerTransaction tx = store.createTransaction();
+		LedgerEntry conflicting = entry(committed.size(), committed.size());
+		LedgerEntryStoreResult result = store.store(tx, conflicting, ImmutableSet.of(uniqueIndex(3)), ImmutableSet.of());
+
+		assertThat(result.isSuccess()).isFalse();
+		assertThat(result.getConflictInfo().getConflictingAids()).containsExactly(committed.get(3).getAID());
+		assertThatThrownBy(tx::commit).isInstanceOf(IllegalStateException.class);
+		assertThat(store.contains(conflicting.getAID())).isFalse();
+	}
+
+	@Test
+	public void when_a_transaction_is_aborted__then_its_entries_are_discarded() {
+		LedgerTransaction tx = store.createTransaction();
+		LedgerEntry entry = entry(0, 0);
+		assertThat(store.store(tx, entry, ImmutableSet.of(uniqueIndex(0)), ImmutableSet.of()).isSuccess()).isTrue();
+		assertThat(store.contains(tx, LedgerIndexType.UNIQUE, uniqueIndex(0), LedgerSearchMode.EXACT)).isTrue();
+		tx.abort();
+
+		assertThat(store.contains(entry.getAID())).isFalse();
+		assertThat(store.contains(null, LedgerIndexType.UNIQUE, uniqueIndex(0), LedgerSearchMode.EXACT)).isFalse();
+		assertThat(store.getLastCommitted()).isEmpty();
+	}
+
+	@Test
+	public void when_entries_span_several_segments__then_duplicate_search_returns_them_in_ledger_order() throws IOException {
+		commitTransactions(20);
+
+		for (int k = 0; k < SHARED_KEYS; k++) {
+			final int key = k;
+			List<AID> expected = committed.stream()
+				.filter(entry -> entry.getStateVersion() % SHARED_KEYS == key)
+				.map(LedgerEntry::getAID)
+				.collect(Collectors.toList());
+			List<AID> found = new ArrayList<>();
+			SearchCursor cursor = store.search(LedgerIndexType.DUPLICATE, sharedIndex(key), LedgerSearchMode.EXACT);
+			assertThat(cursor.previous()).isNull();
+			while (cursor != null) {
+				found.add(cursor.get());
+				cursor = cursor.next();
+			}
+			assertThat(found).containsExactlyElementsOf(expected);
+			assertThat(store.search(LedgerIndexType.DUPLICATE, sharedIndex(key), LedgerSearchMode.EXACT).last().get())
+				.isEqualTo(expected.get(expected.size() - 1));
+		}
+
+		// Key runs of sealed segments have been merged
+		assertThat(countFiles(LogSegment.SUFFIX)).isGreaterThan(3L);
+		assertThat(countFiles(KeyRun.SUFFIX)).isLessThan(countFiles(LogSegment.SUFFIX) - 1);
+	}
+
+	@Test
+	public void when_searching_a_range__then_the_next_key_of_the_same_type_is_found() {
+		commitTransactions(1);
+
+		SearchCursor cursor = store.search(LedgerIndexType.UNIQUE, new StoreIndex(UNIQUE_PREFIX, new byte[0]), LedgerSearchMode.RANGE);
+		assertThat(cursor.get()).isEqualTo(committed.get(0).getAID());
+		assertThat(cursor.next()).isNull();
+		assertThat(store.search(LedgerIndexType.DUPLICATE, new StoreIndex(SHARED_PREFIX, new byte[] {(byte) 0xFF}), LedgerSearchMode.RANGE))
+			.isNull();
+	}
+
+	@Test
+	public void when_reading_next_committed_entries__then_entries_of_one_proof_are_returned() throws NextCommittedLimitReachedException {
+		commitTransactions(20);
+
+		for (int tx = 0; tx < 20; tx++) {
+			ImmutableList<LedgerEntry> entries = store.getNextCommittedLedgerEntries(tx * ENTRIES_PER_TRANSACTION - 1L, ENTRIES_PER_TRANSACTION);
+			assertThat(entries).extracting(LedgerEntry::getAID)
+				.containsExactlyElementsOf(committed.subList(tx * ENTRIES_PER_TRANSACTION, (tx + 1) * ENTRIES_PER_TRANSACTION).stream()
+					.map(LedgerEntry::getAID)
+					.collect(Collectors.toList()));
+		}
+		assertThat(store.getNextCommittedLedgerEntries(last().getStateVersion(), ENTRIES_PER_TRANSACTION)).isEmpty();
+		assertThatThrownBy(() -> store.getNextCommittedLedgerEntries(-1L, ENTRIES_PER_TRANSACTION - 1))
+			.isInstanceOf(NextCommittedLimitReachedException.class);
+	}
+
+	@Test
+	public void when_reopened_after_a_torn_write__then_committed_entries_are_recovered() throws IOException {
+		commitTransactions(20);
+		store.close();
+
+		final Path activeSegment;
+		try (Stream<Path> files = Files.list(directory)) {
+			activeSegment = files.filter(file -> file.getFileName().toString().endsWith(LogSegment.SUFFIX)).max(Path::compareTo).orElseThrow();
+		}
+		// Partial batch header, and lost table and key runs of sealed segments
+		Files.write(activeSegment, new byte[] {0, 0, 1}, StandardOpenOption.APPEND);
+		Files.delete(directory.resolve(LogSegment.fileName(0L, LogSegment.TABLE_SUFFIX)));
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path file : files.filter(file -> file.getFileName().toString().endsWith(KeyRun.SUFFIX)).collect(Collectors.toList())) {
+				Files.delete(file);
+			}
+		}
+
+		store = openStore();
+		assertThat(store.getLastCommitted()).contains(last().getAID());
+		for (LedgerEntry entry : committed) {
+			assertThat(store.get(entry.getAID()).orElseThrow().getStateVersion()).isEqualTo(entry.getStateVersion());
+		}
+		SearchCursor cursor = store.search(LedgerIndexType.DUPLICATE, sharedIndex(0), LedgerSearchMode.EXACT);
+		int found = 0;
+		while (cursor != null) {
+			found += 1;
+			cursor = cursor.next();
+		}
+		assertThat(found).isEqualTo(committed.size() / SHARED_KEYS);
+
+		commitTransactions(1);
+		assertThat(store.getLastCommitted()).contains(last().getAID());
+	}
+
+	@Test
+	public void when_an_entry_does_not_follow_the_last__then_commit_fails() {
+		commitTransactions(1);
+
+		LedgerTransaction tx = store.createTransaction();
+		store.store(tx, entry(0, 0), ImmutableSet.of(), ImmutableSet.of());
+		assertThatThrownBy(tx::commit).isInstanceOf(AppendLogStoreException.class);
+	}
+
+	@Test
+	public void when_no_vertex_store_state_was_saved__then_none_is_loaded() {
+		commitTransactions(1);
+
+		assertThat(store.loadLastVertexStoreState()).isEmpty();
+	}
+
+	@Test
+	public void when_vertex_store_state_is_saved_alone__then_the_log_does_not_grow() throws IOException {
+		commitTransactions(1);
+		final Path segment = directory.resolve(LogSegment.fileName(0L, LogSegment.SUFFIX));
+		final long size = Files.size(segment);
+		VerifiedVertexStoreState vertexStoreState = null;
+		for (int i = 0; i < 10; i++) {
+			vertexStoreState = vertexStoreState();
+			store.save(vertexStoreState);
+		}
+
+		assertThat(Files.size(segment)).isEqualTo(size);
+		assertThat(store.loadLastVertexStoreState()).contains(vertexStoreState.toSerialized());
+		store.close();
+		store = openStore();
+		assertThat(store.loadLastVertexStoreState()).contains(vertexStoreState.toSerialized());
+	}
+
+	@Test
+	public void when_vertex_store_state_is_committed_with_entries__then_it_is_loaded_after_reopen() {
+		store.save(vertexStoreState());
+		final VerifiedVertexStoreState vertexStoreState = vertexStoreState();
+		commitTransaction(vertexStoreState);
+
+		assertThat(store.loadLastVertexStoreState()).contains(vertexStoreState.toSerialized());
+		store.close();
+		store = openStore();
+		assertThat(store.loadLastVertexStoreState()).contains(vertexStoreState.toSerialized());
+	}
+
+	@Test
+	public void when_batch_of_committed_vertex_store_state_is_lost__then_the_previous_state_is_loaded() throws IOException {
+		commitTransactions(1);
+		final VerifiedVertexStoreState previous = vertexStoreState();
+		store.save(previous);
+		final Path segment = directory.resolve(LogSegment.fileName(0L, LogSegment.SUFFIX));
+		final long size = Files.size(segment);
+		commitTransaction(vertexStoreState());
+		store.close();
+
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			channel.truncate(size);
+		}
+		store = openStore();
+		assertThat(store.loadLastVertexStoreState()).contains(previous.toSerialized());
+	}
+
+	@Test
+	public void when_reset__then_vertex_store_state_is_deleted() {
+		store.save(vertexStoreState());
+		store.reset();
+
+		assertThat(store.loadLastVertexStoreState()).isEmpty();
+		store.close();
+		store = openStore();
+		assertThat(store.loadLastVertexStoreState()).isEmpty();
+	}
+
+	@Test
+	public void when_reset__then_all_entries_are_deleted() throws IOException {
+		commitTransactions(20);
+		store.reset();
+
+		assertThat(store.getLastCommitted()).isEmpty();
+		assertThat(store.contains(committed.get(0).getAID())).isFalse();
+		assertThat(countFiles(LogSegment.SUFFIX)).isEqualTo(1L);
+		assertThat(countFiles(KeyRun.SUFFIX)).isZero();
+	}
+
+	private AppendLogLedgerEntryStore openStore() {
+		return new AppendLogLedgerEntryStore(
+			directory,
+			DefaultSerialization.getInstance(),
+			new SystemCountersImpl(),
+			SEGMENT_SIZE,
+			MoreExecutors.newDirectExecutorService()
+		);
+	}
+
+	private void commitTransactions(int count) {
+		for (int t = 0; t < count; t++) {
+			final int first = committed.size();
+			final long proofVersion = first + ENTRIES_PER_TRANSACTION - 1L;
+			LedgerTransaction tx = store.createTransaction();
+			List<LedgerEntry> entries = new ArrayList<>();
+			for (int i = first; i < first + ENTRIES_PER_TRANSACTION; i++) {
+				LedgerEntry entry = entry(i, proofVersion);
+				LedgerEntryStoreResult result = store.store(
+					tx, entry, ImmutableSet.of(uniqueIndex(i)), ImmutableSet.of(sharedIndex(i % SHARED_KEYS))
+				);
+				assertThat(result.isSuccess()).isTrue();
+				entries.add(entry);
+			}
+			tx.commit();
+			committed.addAll(entries);
+		}
+	}
+
+	private void commitTransaction(VerifiedVertexStoreState vertexStoreState) {
+		final LedgerEntry entry = entry(committed.size(), committed.size());
+		LedgerTransaction tx = store.createTransaction();
+		assertThat(store.store(tx, entry, ImmutableSet.of(), ImmutableSet.of()).isSuccess()).isTrue();
+		store.save(tx, vertexStoreState);
+		tx.commit();
+		committed.add(entry);
+	}
+
+	// A vertex store state holding only a root, distinct for each call
+	private static VerifiedVertexStoreState vertexStoreState() {
+		final LedgerHeader header = LedgerHeader.genesis(HashUtils.random256(), null);
+		final VerifiedVertex root = new VerifiedVertex(UnverifiedVertex.createGenesis(header), HashUtils.random256());
+		final QuorumCertificate rootQC = QuorumCertificate.ofGenesis(root, header);
+		return VerifiedVertexStoreState.create(HighQC.from(rootQC), root, Optional.empty());
+	}
+
+	private LedgerEntry entry(long stateVersion, long proofVersion) {
+		byte[] content = new byte[200];
+		random.nextBytes(content);
+		return new LedgerEntry(content, stateVersion, proofVersion, aid());
+	}
+
+	private AID aid() {
+		byte[] aidBytes = new byte[AID.BYTES];
+		random.nextBytes(aidBytes);
+		return AID.from(aidBytes);
+	}
+
+	private LedgerEntry last() {
+		return committed.get(committed.size() - 1);
+	}
+
+	private long countFiles(String suffix) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(file -> file.getFileName().toString().endsWith(suffix)).count();
+		}
+	}
+
+	private static StoreIndex uniqueIndex(int i) {
+		return new StoreIndex(UNIQUE_PREFIX, Longs.toByteArray(i));
+	}
+
+	private static StoreIndex sharedIndex(int key) {
+		return new StoreIndex(SHARED_PREFIX, new byte[] {(byte) key});
+	}
+}
@@ -0,0 +1,208 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.store.berkeley;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.common.collect.ImmutableSet;
+import com.radixdlt.DefaultSerialization;
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.counters.SystemCountersImpl;
+import com.radixdlt.identifiers.AID;
+import com.radixdlt.properties.RuntimeProperties;
+import com.radixdlt.store.LedgerEntry;
+import com.radixdlt.store.LedgerSearchMode;
+import com.radixdlt.store.LedgerTransaction;
+import com.radixdlt.store.SearchCursor;
+import com.radixdlt.store.StoreIndex;
+import com.radixdlt.store.StoreIndex.LedgerIndexType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.commons.cli.ParseException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.radix.database.DatabaseEnvironment;
+
+public class BerkeleyLedgerEntryStorePruningTest {
+	private static final int ENTRY_COUNT = 10;
+	private static final byte PARTICLE_CLASS_PREFIX = 4;
+	private static final byte DESTINATION_PREFIX = 6;
+	private static final Predicate<StoreIndex> LIVE_DUPLICATE_INDICES = index -> index.getPrefix() == PARTICLE_CLASS_PREFIX;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private SystemCounters counters;
+	private DatabaseEnvironment dbEnv;
+	private BerkeleyLedgerEntryStore store;
+
+	@Before
+	public void setUp() throws ParseException {
+		open();
+		for (int i = 0; i < ENTRY_COUNT; i++) {
+			LedgerTransaction tx = store.createTransaction();
+			assertThat(store.store(tx, entry(i), ImmutableSet.of(), ImmutableSet.of(destination(i % 2), particleClass())).isSuccess()).isTrue();
+			tx.commit();
+		}
+	}
+
+	@After
+	public void tearDown() {
+		close();
+	}
+
+	private void open() throws ParseException {
+		RuntimeProperties properties = new RuntimeProperties(new JSONObject(), new String[0]);
+		properties.set("db.location", folder.getRoot().getAbsolutePath() + "/RADIXDB");
+		this.counters = new SystemCountersImpl();
+		this.dbEnv = new DatabaseEnvironment(properties);
+		this.store = new BerkeleyLedgerEntryStore(DefaultSerialization.getInstance(), this.dbEnv, this.counters);
+	}
+
+	private void close() {
+		this.store.close();
+		this.dbEnv.stop();
+	}
+
+	@Test
+	public void when_pruned__then_entries_are_read_from_cold_storage() throws Exception {
+		store.prune(4L, LIVE_DUPLICATE_INDICES);
+
+		assertThat(store.getLastPrunedStateVersion()).isEqualTo(4L);
+		for (int i = 0; i < ENTRY_COUNT; i++) {
+			assertThat(store.contains(aid(i))).isTrue();
+			assertThat(store.get(aid(i))).hasValueSatisfying(e -> assertThat(e.getContent()).isEqualTo(entry(e.getStateVersion()).getContent()));
+		}
+		assertThat(counters.get(CounterType.COUNT_BDB_LEDGER_GET_PRUNED)).isEqualTo(5L);
+		assertThat(store.getNextCommittedLedgerEntries(-1L, ENTRY_COUNT))
+			.extracting(LedgerEntry::getAID)
+			.containsExactlyElementsOf(aids(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+	}
+
+	@Test
+	public void when_searching_pruned_index__then_cursor_moves_from_cold_to_live_entries() {
+		store.prune(4L, LIVE_DUPLICATE_INDICES);
+
+		assertThat(searchAll(destination(0))).containsExactlyElementsOf(aids(0, 2, 4, 6, 8));
+		assertThat(searchAll(destination(1))).containsExactlyElementsOf(aids(1, 3, 5, 7, 9));
+		assertThat(searchAll(destination(2))).isEmpty();
+
+		SearchCursor cursor = store.search(LedgerIndexType.DUPLICATE, destination(0), LedgerSearchMode.EXACT);
+		assertThat(cursor).isInstanceOf(ColdSearchCursor.class);
+		assertThat(cursor.previous()).isNull();
+		assertThat(cursor.next().previous().get()).isEqualTo(aid(0));
+		assertThat(cursor.last().get()).isEqualTo(aid(8));
+	}
+
+	@Test
+	public void when_searching_live_index__then_cold_storage_is_not_searched() {
+		store.prune(4L, LIVE_DUPLICATE_INDICES);
+
+		SearchCursor cursor = store.search(LedgerIndexType.DUPLICATE, particleClass(), LedgerSearchMode.EXACT);
+		assertThat(cursor).isInstanceOf(BerkeleySearchCursor.class);
+		assertThat(searchAll(particleClass())).containsExactlyElementsOf(aids(0, 1, 2, 3, 4, 5, 6, 7, 8, 9));
+	}
+
+	@Test
+	public void when_pruning_is_interrupted__then_it_is_completed_after_reopening() throws ParseException {
+		// Segment written, but the node stopped before entries were removed from the live database
+		store.writeSegment(0L, 4L, LIVE_DUPLICATE_INDICES);
+		close();
+		open();
+
+		store.completePruning(LIVE_DUPLICATE_INDICES);
+
+		assertThat(store.getLastPrunedStateVersion()).isEqualTo(4L);
+		assertThat(searchAll(destination(0))).containsExactlyElementsOf(aids(0, 2, 4, 6, 8));
+		assertThat(store.get(aid(2))).hasValueSatisfying(e -> assertThat(e.getContent()).isEqualTo(entry(2).getContent()));
+		assertThat(counters.get(CounterType.COUNT_BDB_LEDGER_GET_PRUNED)).isEqualTo(1L);
+	}
+
+	@Test
+	public void when_reopened__then_pruned_entries_are_still_found() throws ParseException {
+		store.prune(4L, LIVE_DUPLICATE_INDICES);
+		store.prune(7L, LIVE_DUPLICATE_INDICES);
+		close();
+		open();
+
+		assertThat(store.getLastPrunedStateVersion()).isEqualTo(7L);
+		assertThat(searchAll(destination(1))).containsExactlyElementsOf(aids(1, 3, 5, 7, 9));
+		assertThat(store.get(aid(6))).hasValueSatisfying(e -> assertThat(e.getContent()).isEqualTo(entry(6).getContent()));
+	}
+
+	@Test
+	public void when_already_pruned__then_pruning_again_fails() {
+		store.prune(4L, LIVE_DUPLICATE_INDICES);
+
+		assertThatThrownBy(() -> store.prune(3L, LIVE_DUPLICATE_INDICES)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> store.prune(ENTRY_COUNT, LIVE_DUPLICATE_INDICES)).isInstanceOf(IllegalStateException.class);
+		assertThat(store.getLastPrunedStateVersion()).isEqualTo(4L);
+	}
+
+	@Test
+	public void when_reset__then_cold_storage_is_cleared() {
+		store.prune(4L, LIVE_DUPLICATE_INDICES);
+
+		store.reset();
+
+		assertThat(store.getLastPrunedStateVersion()).isEqualTo(-1L);
+		assertThat(store.get(aid(0))).isEmpty();
+		assertThat(searchAll(destination(0))).isEmpty();
+	}
+
+	private List<AID> searchAll(StoreIndex index) {
+		List<AID> found = new ArrayList<>();
+		SearchCursor cursor = store.search(LedgerIndexType.DUPLICATE, index, LedgerSearchMode.EXACT);
+		while (cursor != null) {
+			found.add(cursor.get());
+			cursor = cursor.next();
+		}
+		return found;
+	}
+
+	private static LedgerEntry entry(long stateVersion) {
+		return new LedgerEntry(new byte[] {(byte) stateVersion, 1, 2, 3}, stateVersion, ENTRY_COUNT - 1L, aid(stateVersion));
+	}
+
+	private static AID aid(long stateVersion) {
+		byte[] bytes = new byte[AID.BYTES];
+		bytes[0] = (byte) (stateVersion + 1);
+		return AID.from(bytes);
+	}
+
+	private static List<AID> aids(int... stateVersions) {
+		return IntStream.of(stateVersions).mapToObj(BerkeleyLedgerEntryStorePruningTest::aid).collect(Collectors.toList());
+	}
+
+	private static StoreIndex destination(int destination) {
+		return new StoreIndex(DESTINATION_PREFIX, new byte[] {(byte) destination});
+	}
+
+	private static StoreIndex particleClass() {
+		return new StoreIndex(PARTICLE_CLASS_PREFIX, new byte[] {1});
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.store.berkeley;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.Longs;
+import com.radixdlt.identifiers.AID;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ColdLedgerSegmentTest {
+	private static final int ENTRY_COUNT = 1000;
+	private static final int SHARED_KEYS = 8;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private final Random random = new Random(12345L);
+	private List<AID> aids;
+	private List<byte[]> entries;
+
+	@Before
+	public void setUp() {
+		this.aids = new ArrayList<>();
+		this.entries = new ArrayList<>();
+		for (int i = 0; i < ENTRY_COUNT; i++) {
+			byte[] aidBytes = new byte[AID.BYTES];
+			random.nextBytes(aidBytes);
+			aids.add(AID.from(aidBytes));
+			byte[] entry = new byte[200];
+			random.nextBytes(entry);
+			entries.add(entry);
+		}
+	}
+
+	@Test
+	public void when_entries_span_several_blocks__then_each_can_be_retrieved() throws IOException {
+		try (ColdLedgerSegment segment = writeSegment(folder.getRoot().toPath().resolve("test.segment"), 0, ENTRY_COUNT)) {
+			assertThat(segment.getFirstStateVersion()).isEqualTo(0L);
+			assertThat(segment.getLastStateVersion()).isEqualTo(ENTRY_COUNT - 1L);
+			// Read backwards so that the cached block rarely matches
+			for (int i = ENTRY_COUNT - 1; i >= 0; i--) {
+				ColdLedgerSegment.Record record = segment.get(i).orElseThrow();
+				assertThat(record.getStateVersion()).isEqualTo(i);
+				assertThat(record.getAID()).isEqualTo(aids.get(i));
+				assertThat(record.getLedgerEntryData()).isEqualTo(entries.get(i));
+				assertThat(record.getIndicesData()).isEqualTo(Longs.toByteArray(i));
+			}
+			assertThat(segment.get(-1L)).isEmpty();
+			assertThat(segment.get(ENTRY_COUNT)).isEmpty();
+		}
+	}
+
+	@Test
+	public void when_searching_keys__then_matching_aids_are_returned_in_ledger_order() throws IOException {
+		try (ColdLedgerSegment segment = writeSegment(folder.getRoot().toPath().resolve("test.segment"), 0, ENTRY_COUNT)) {
+			for (int k = 0; k < SHARED_KEYS; k++) {
+				final int key = k;
+				List<AID> expected = Stream.iterate(key, i -> i < ENTRY_COUNT, i -> i + SHARED_KEYS)
+					.map(aids::get)
+					.collect(Collectors.toList());
+				assertThat(segment.search(sharedKey(key))).containsExactlyElementsOf(expected);
+			}
+			assertThat(segment.search(uniqueKey(500))).containsExactly(aids.get(500));
+			assertThat(segment.search(new byte[] {(byte) 0xFF})).isEmpty();
+			assertThat(segment.search(new byte[0])).isEmpty();
+			assertThat(segment.getIndexPrefixes()).isEqualTo(BitSet.valueOf(new long[] {0b110L}));
+		}
+	}
+
+	@Test
+	public void when_state_versions_are_not_contiguous__then_adding_fails() throws IOException {
+		try (ColdLedgerSegment.Writer writer = new ColdLedgerSegment.Writer(folder.getRoot().toPath().resolve("test.tmp"))) {
+			writer.add(0L, aids.get(0), entries.get(0), new byte[0], ImmutableList.of());
+			assertThatThrownBy(() -> writer.add(2L, aids.get(2), entries.get(2), new byte[0], ImmutableList.of()))
+				.isInstanceOf(IllegalArgumentException.class);
+		}
+	}
+
+	@Test
+	public void when_segments_are_published__then_they_are_found_after_reopening() throws IOException {
+		final Path directory = folder.getRoot().toPath().resolve("cold");
+		try (ColdLedgerStore store = new ColdLedgerStore(directory)) {
+			assertThat(store.getLastStateVersion()).isEqualTo(-1L);
+			publish(store, 0, 400);
+			publish(store, 400, ENTRY_COUNT);
+			assertThat(store.getLastStateVersion()).isEqualTo(ENTRY_COUNT - 1L);
+		}
+		// Left behind by an interrupted segment write
+		Files.write(directory.resolve(String.format("%019d.tmp", ENTRY_COUNT)), new byte[] {1, 2, 3});
+
+		try (ColdLedgerStore store = new ColdLedgerStore(directory)) {
+			assertThat(store.getLastStateVersion()).isEqualTo(ENTRY_COUNT - 1L);
+			assertThat(store.get(399L).orElseThrow().getAID()).isEqualTo(aids.get(399));
+			assertThat(store.get(400L).orElseThrow().getAID()).isEqualTo(aids.get(400));
+			assertThat(store.get(ENTRY_COUNT)).isEmpty();
+			assertThat(store.search(sharedKey(0))).hasSize(ENTRY_COUNT / SHARED_KEYS);
+			assertThat(store.search(uniqueKey(700))).containsExactly(aids.get(700));
+			assertThat(store.search(new byte[] {3, 0})).isEmpty();
+		}
+		try (Stream<Path> files = Files.list(directory)) {
+			assertThat(files.map(file -> file.getFileName().toString())).noneMatch(name -> name.endsWith(".tmp"));
+		}
+	}
+
+	@Test
+	public void when_a_segment_is_missing__then_opening_fails() throws IOException {
+		final Path directory = folder.getRoot().toPath().resolve("cold");
+		try (ColdLedgerStore store = new ColdLedgerStore(directory)) {
+			publish(store, 0, 400);
+			publish(store, 400, ENTRY_COUNT);
+		}
+		try (Stream<Path> files = Files.list(directory)) {
+			Files.delete(files.filter(file -> file.getFileName().toString().startsWith(String.format("%019d-", 0))).findFirst().orElseThrow());
+		}
+
+		assertThatThrownBy(() -> new ColdLedgerStore(directory)).isInstanceOf(IOException.class);
+	}
+
+	@Test
+	public void when_a_segment_does_not_follow_the_last__then_it_is_discarded() throws IOException {
+		final Path directory = folder.getRoot().toPath().resolve("cold");
+		try (ColdLedgerStore store = new ColdLedgerStore(directory)) {
+			ColdLedgerSegment.Writer writer = store.createWriter();
+			addEntries(writer, 1, 10);
+
+			assertThatThrownBy(() -> store.publish(writer)).isInstanceOf(IllegalStateException.class);
+			assertThat(Files.exists(writer.getFile())).isFalse();
+			assertThat(store.getLastStateVersion()).isEqualTo(-1L);
+		}
+	}
+
+	private ColdLedgerSegment writeSegment(Path file, int from, int to) throws IOException {
+		try (ColdLedgerSegment.Writer writer = new ColdLedgerSegment.Writer(file)) {
+			addEntries(writer, from, to);
+			writer.finish();
+		}
+		return ColdLedgerSegment.open(file);
+	}
+
+	private void publish(ColdLedgerStore store, int from, int to) throws IOException {
+		ColdLedgerSegment.Writer writer = store.createWriter();
+		addEntries(writer, from, to);
+		store.publish(writer);
+	}
+
+	private void addEntries(ColdLedgerSegment.Writer writer, int from, int to) throws IOException {
+		for (int i = from; i < to; i++) {
+			writer.add(i, aids.get(i), entries.get(i), Longs.toByteArray(i), ImmutableList.of(sharedKey(i % SHARED_KEYS), uniqueKey(i)));
+		}
+	}
+
+	private static byte[] sharedKey(int key) {
+		byte[] bytes = new byte[32];
+		bytes[0] = 1;
+		bytes[31] = (byte) key;
+		return bytes;
+	}
+
+	private static byte[] uniqueKey(int i) {
+		byte[] bytes = new byte[32];
+		bytes[0] = 2;
+		System.arraycopy(Longs.toByteArray(i), 0, bytes, 24, Long.BYTES);
+		return bytes;
+	}
+}
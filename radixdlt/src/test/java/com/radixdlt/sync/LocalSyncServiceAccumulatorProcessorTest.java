@@ -20,6 +20,7 @@ package com.radixdlt.sync;
 import static com.radixdlt.utils.TypedMocks.rmock;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -31,6 +32,7 @@ import com.google.common.collect.ImmutableList;
 import com.radixdlt.consensus.VerifiedLedgerHeaderAndProof;
 import com.radixdlt.consensus.bft.BFTNode;
 import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
 import com.radixdlt.environment.RemoteEventDispatcher;
 import com.radixdlt.environment.ScheduledEventDispatcher;
 import com.radixdlt.ledger.AccumulatorState;
@@ -39,6 +41,7 @@ import com.radixdlt.ledger.LedgerUpdate;
 import com.radixdlt.sync.LocalSyncServiceAccumulatorProcessor.SyncInProgress;
 
 import java.util.Comparator;
+import java.util.Random;
 import java.util.concurrent.atomic.AtomicReference;
 import org.junit.Before;
 import org.junit.Test;
@@ -50,6 +53,7 @@ public class LocalSyncServiceAccumulatorProcessorTest {
 	private VerifiedLedgerHeaderAndProof currentHeader;
 	private Comparator<AccumulatorState> accumulatorComparator;
 	private AccumulatorState currentAccumulatorState;
+	private SystemCounters counters;
 
 	@Before
 	public void setUp() {
@@ -60,13 +64,18 @@ public class LocalSyncServiceAccumulatorProcessorTest {
 		when(this.currentHeader.toDto()).thenReturn(mock(DtoLedgerHeaderAndProof.class));
 		this.accumulatorComparator = rmock(Comparator.class);
 		this.requestDispatcher = rmock(RemoteEventDispatcher.class);
+		this.counters = mock(SystemCounters.class);
+		// Never explore, so that target selection is predictable
+		Random random = mock(Random.class);
+		when(random.nextDouble()).thenReturn(1.0);
 		this.syncServiceProcessor = new LocalSyncServiceAccumulatorProcessor(
 			requestDispatcher,
 			syncTimeoutScheduler,
 			accumulatorComparator,
 			currentHeader,
 			1,
-			mock(SystemCounters.class)
+			this.counters,
+			new PeerPerformanceTracker(random, () -> 0L)
 		);
 	}
 
@@ -125,4 +134,29 @@ public class LocalSyncServiceAccumulatorProcessorTest {
 		verify(requestDispatcher, times(1)).dispatch(any(BFTNode.class), any());
 		verify(syncTimeoutScheduler, times(1)).dispatch(any(), anyLong());
 	}
+
+	@Test
+	public void given_some_sync_in_progress_without_response__when_sync_timeout__then_should_request_from_another_node() {
+		AtomicReference<SyncInProgress> sync = new AtomicReference<>();
+		doAnswer(invocation -> {
+			sync.set(invocation.getArgument(0));
+			return null;
+		}).when(syncTimeoutScheduler).dispatch(any(), anyLong());
+		VerifiedLedgerHeaderAndProof targetHeader = mock(VerifiedLedgerHeaderAndProof.class);
+		AccumulatorState target = mock(AccumulatorState.class);
+		when(targetHeader.getAccumulatorState()).thenReturn(target);
+		when(accumulatorComparator.compare(target, currentAccumulatorState)).thenReturn(1);
+		BFTNode node1 = mock(BFTNode.class);
+		BFTNode node2 = mock(BFTNode.class);
+		LocalSyncRequest request = mock(LocalSyncRequest.class);
+		when(request.getTarget()).thenReturn(targetHeader);
+		when(request.getTargetNodes()).thenReturn(ImmutableList.of(node1, node2));
+
+		syncServiceProcessor.localSyncRequestEventProcessor().process(request);
+		syncServiceProcessor.syncTimeoutProcessor().process(sync.get());
+
+		verify(requestDispatcher, times(1)).dispatch(eq(node1), any());
+		verify(requestDispatcher, times(1)).dispatch(eq(node2), any());
+		verify(counters, times(1)).increment(CounterType.SYNC_REQUEST_TIMEOUTS);
+	}
 }
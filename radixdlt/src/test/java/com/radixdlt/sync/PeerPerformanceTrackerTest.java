@@ -0,0 +1,173 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package com.radixdlt.sync;
+
+import static com.radixdlt.sync.PeerPerformanceTracker.RequestType.BFT_SYNC;
+import static com.radixdlt.sync.PeerPerformanceTracker.RequestType.LEDGER_SYNC;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.radixdlt.consensus.bft.BFTNode;
+import com.radixdlt.sync.PeerPerformanceTracker.PeerScore;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PeerPerformanceTrackerTest {
+	private Random random;
+	private AtomicLong time;
+	private PeerPerformanceTracker tracker;
+	private BFTNode node1;
+	private BFTNode node2;
+
+	@Before
+	public void setUp() {
+		this.random = mock(Random.class);
+		when(this.random.nextDouble()).thenReturn(1.0);
+		this.time = new AtomicLong();
+		this.tracker = new PeerPerformanceTracker(this.random, this.time::get);
+		this.node1 = mock(BFTNode.class);
+		this.node2 = mock(BFTNode.class);
+	}
+
+	@Test
+	public void when_no_samples__then_first_candidate_is_selected() {
+		assertThat(this.tracker.select(ImmutableList.of(this.node1, this.node2))).isEqualTo(this.node1);
+		assertThat(this.tracker.score(this.node1).getScore()).isEqualTo(PeerPerformanceTracker.UNKNOWN_LATENCY_MS);
+	}
+
+	@Test
+	public void when_one_peer_responds_faster__then_it_is_preferred() {
+		this.tracker.requestSent(BFT_SYNC, this.node1);
+		this.tracker.requestSent(BFT_SYNC, this.node2);
+		this.time.set(50L);
+		this.tracker.responseReceived(BFT_SYNC, this.node2);
+		this.time.set(500L);
+		this.tracker.responseReceived(BFT_SYNC, this.node1);
+
+		assertThat(this.tracker.select(ImmutableList.of(this.node1, this.node2))).isEqualTo(this.node2);
+		PeerScore score = this.tracker.score(this.node1);
+		assertThat(score.getLatencyMs()).isEqualTo(500.0);
+		assertThat(score.getResponses()).isEqualTo(1L);
+	}
+
+	@Test
+	public void when_request_times_out__then_peer_is_penalised() {
+		this.tracker.rttMeasured(this.node1, 10L);
+		this.tracker.rttMeasured(this.node2, 100L);
+		this.tracker.requestSent(BFT_SYNC, this.node1);
+
+		assertThat(this.tracker.requestTimedOut(BFT_SYNC, this.node1)).isTrue();
+		assertThat(this.tracker.requestTimedOut(BFT_SYNC, this.node1)).isFalse();
+
+		assertThat(this.tracker.select(ImmutableList.of(this.node1, this.node2))).isEqualTo(this.node2);
+		assertThat(this.tracker.score(this.node1).getConsecutiveFailures()).isEqualTo(1);
+	}
+
+	@Test
+	public void when_response_received_after_failure__then_penalty_is_cleared() {
+		this.tracker.requestFailed(BFT_SYNC, this.node1);
+		this.tracker.requestSent(BFT_SYNC, this.node1);
+		this.tracker.responseReceived(BFT_SYNC, this.node1);
+
+		PeerScore score = this.tracker.score(this.node1);
+		assertThat(score.getConsecutiveFailures()).isZero();
+		assertThat(score.getFailures()).isEqualTo(1L);
+		assertThat(score.getScore()).isZero();
+	}
+
+	@Test
+	public void when_unsolicited_response_received__then_penalty_is_not_cleared() {
+		this.tracker.requestFailed(BFT_SYNC, this.node1);
+
+		assertThat(this.tracker.responseReceived(BFT_SYNC, this.node1)).isFalse();
+		assertThat(this.tracker.responseReceived(BFT_SYNC, this.node2)).isFalse();
+
+		PeerScore score = this.tracker.score(this.node1);
+		assertThat(score.getConsecutiveFailures()).isEqualTo(1);
+		assertThat(score.getResponses()).isZero();
+		assertThat(this.tracker.scores()).containsOnlyKeys(this.node1);
+	}
+
+	@Test
+	public void when_requests_of_different_types_outstanding__then_they_are_tracked_separately() {
+		this.tracker.requestSent(BFT_SYNC, this.node1);
+		this.time.set(100L);
+		this.tracker.requestSent(LEDGER_SYNC, this.node1);
+		this.time.set(150L);
+
+		assertThat(this.tracker.responseReceived(LEDGER_SYNC, this.node1)).isTrue();
+		assertThat(this.tracker.score(this.node1).getLatencyMs()).isEqualTo(50.0);
+		assertThat(this.tracker.responseReceived(LEDGER_SYNC, this.node1)).isFalse();
+		assertThat(this.tracker.requestTimedOut(BFT_SYNC, this.node1)).isTrue();
+	}
+
+	@Test
+	public void when_exploring__then_random_candidate_is_selected() {
+		when(this.random.nextDouble()).thenReturn(0.0);
+		when(this.random.nextInt(2)).thenReturn(1);
+		this.tracker.rttMeasured(this.node1, 1L);
+
+		assertThat(this.tracker.select(ImmutableList.of(this.node1, this.node2))).isEqualTo(this.node2);
+	}
+
+	@Test
+	public void when_rtt_measured_repeatedly__then_moving_average_is_used() {
+		this.tracker.rttMeasured(this.node1, 100L);
+		this.tracker.rttMeasured(this.node1, 200L);
+
+		assertThat(this.tracker.score(this.node1).getRttMs()).isEqualTo(120.0);
+		assertThat(this.tracker.scores()).containsOnlyKeys(this.node1);
+	}
+
+	@Test
+	public void when_peer_removed__then_its_statistics_are_dropped() {
+		this.tracker.rttMeasured(this.node1, 100L);
+		this.tracker.rttMeasured(this.node2, 100L);
+
+		this.tracker.remove(this.node1);
+
+		assertThat(this.tracker.scores()).containsOnlyKeys(this.node2);
+		assertThat(this.tracker.score(this.node1).getRttMs()).isNaN();
+	}
+
+	@Test
+	public void when_peer_inactive__then_its_statistics_are_evicted() {
+		this.tracker.rttMeasured(this.node1, 100L);
+		this.tracker.rttMeasured(this.node2, 100L);
+		this.time.set(PeerPerformanceTracker.STALE_AFTER_MS - 1L);
+		this.tracker.requestSent(BFT_SYNC, this.node2);
+
+		assertThat(this.tracker.evictStale()).isZero();
+
+		this.time.set(PeerPerformanceTracker.STALE_AFTER_MS);
+
+		assertThat(this.tracker.evictStale()).isEqualTo(1);
+		assertThat(this.tracker.scores()).containsOnlyKeys(this.node2);
+	}
+
+	@Test
+	public void when_no_candidates__then_exception_is_thrown() {
+		assertThatThrownBy(() -> this.tracker.select(ImmutableList.of()))
+			.isInstanceOf(IllegalArgumentException.class);
+	}
+}
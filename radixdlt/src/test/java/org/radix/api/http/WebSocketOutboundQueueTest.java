@@ -0,0 +1,182 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package org.radix.api.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.counters.SystemCountersImpl;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Before;
+import org.junit.Test;
+import org.radix.api.http.WebSocketOutboundQueue.SlowConsumerPolicy;
+
+public class WebSocketOutboundQueueTest {
+	private SystemCounters counters;
+	private List<String> sent;
+	private List<Runnable> pendingCallbacks;
+	private AtomicInteger closes;
+
+	@Before
+	public void setUp() {
+		this.counters = new SystemCountersImpl();
+		this.sent = new ArrayList<>();
+		this.pendingCallbacks = new ArrayList<>();
+		this.closes = new AtomicInteger();
+	}
+
+	private WebSocketOutboundQueue blockingQueue(SlowConsumerPolicy policy) {
+		return new WebSocketOutboundQueue(
+			(msg, onSent, onError) -> {
+				this.sent.add(msg);
+				this.pendingCallbacks.add(onSent);
+			},
+			2,
+			policy,
+			this.counters,
+			this.closes::incrementAndGet
+		);
+	}
+
+	private void completeNextSend() {
+		this.pendingCallbacks.remove(0).run();
+	}
+
+	@Test
+	public void when_send_completes_synchronously__then_all_messages_are_sent_in_order() {
+		WebSocketOutboundQueue queue = new WebSocketOutboundQueue(
+			(msg, onSent, onError) -> {
+				this.sent.add(msg);
+				onSent.run();
+			},
+			1,
+			SlowConsumerPolicy.DISCONNECT,
+			this.counters,
+			this.closes::incrementAndGet
+		);
+
+		for (int i = 0; i < 100; i++) {
+			queue.send(Integer.toString(i));
+		}
+
+		assertThat(this.sent).hasSize(100).startsWith("0", "1").endsWith("99");
+		assertThat(this.closes.get()).isZero();
+		assertThat(this.counters.get(CounterType.API_WEBSOCKET_QUEUED_MESSAGES)).isZero();
+	}
+
+	@Test
+	public void when_client_is_slow__then_messages_are_queued_until_sent() {
+		WebSocketOutboundQueue queue = blockingQueue(SlowConsumerPolicy.DISCONNECT);
+
+		queue.send("a");
+		queue.send("b");
+		queue.send("c");
+
+		assertThat(this.sent).containsExactly("a");
+		assertThat(queue.size()).isEqualTo(2);
+		assertThat(this.counters.get(CounterType.API_WEBSOCKET_QUEUED_MESSAGES)).isEqualTo(2L);
+
+		completeNextSend();
+		completeNextSend();
+
+		assertThat(this.sent).containsExactly("a", "b", "c");
+		assertThat(this.counters.get(CounterType.API_WEBSOCKET_QUEUED_MESSAGES)).isZero();
+	}
+
+	@Test
+	public void when_queue_full_with_disconnect_policy__then_client_is_closed() {
+		WebSocketOutboundQueue queue = blockingQueue(SlowConsumerPolicy.DISCONNECT);
+
+		queue.send("a");
+		queue.send("b");
+		queue.send("c");
+		queue.send("d");
+
+		assertThat(queue.isClosed()).isTrue();
+		assertThat(this.closes.get()).isEqualTo(1);
+		assertThat(this.counters.get(CounterType.API_WEBSOCKET_DROPPED_CLIENTS)).isEqualTo(1L);
+		assertThat(this.counters.get(CounterType.API_WEBSOCKET_QUEUED_MESSAGES)).isZero();
+
+		completeNextSend();
+		assertThat(this.sent).containsExactly("a");
+	}
+
+	@Test
+	public void when_queue_full_with_drop_oldest_policy__then_oldest_message_is_discarded() {
+		WebSocketOutboundQueue queue = blockingQueue(SlowConsumerPolicy.DROP_OLDEST);
+
+		queue.send("a");
+		queue.send("b");
+		queue.send("c");
+		queue.send("d");
+		completeNextSend();
+		completeNextSend();
+
+		assertThat(this.sent).containsExactly("a", "c", "d");
+		assertThat(this.closes.get()).isZero();
+		assertThat(this.counters.get(CounterType.API_WEBSOCKET_DROPPED_MESSAGES)).isEqualTo(1L);
+	}
+
+	@Test
+	public void when_queue_full_with_drop_newest_policy__then_new_message_is_discarded() {
+		WebSocketOutboundQueue queue = blockingQueue(SlowConsumerPolicy.DROP_NEWEST);
+
+		queue.send("a");
+		queue.send("b");
+		queue.send("c");
+		queue.send("d");
+		completeNextSend();
+		completeNextSend();
+
+		assertThat(this.sent).containsExactly("a", "b", "c");
+		assertThat(this.closes.get()).isZero();
+		assertThat(this.counters.get(CounterType.API_WEBSOCKET_DROPPED_MESSAGES)).isEqualTo(1L);
+	}
+
+	@Test
+	public void when_send_fails__then_client_is_closed() {
+		WebSocketOutboundQueue queue = new WebSocketOutboundQueue(
+			(msg, onSent, onError) -> onError.accept(new IllegalStateException("test")),
+			2,
+			SlowConsumerPolicy.DROP_NEWEST,
+			this.counters,
+			this.closes::incrementAndGet
+		);
+
+		queue.send("a");
+		queue.send("b");
+
+		assertThat(queue.isClosed()).isTrue();
+		assertThat(this.closes.get()).isEqualTo(1);
+	}
+
+	@Test
+	public void when_constructed_with_non_positive_limit__then_exception_is_thrown() {
+		assertThatThrownBy(() -> new WebSocketOutboundQueue(
+			(msg, onSent, onError) -> { },
+			0,
+			SlowConsumerPolicy.DISCONNECT,
+			this.counters,
+			() -> { }
+		)).isInstanceOf(IllegalArgumentException.class);
+	}
+}
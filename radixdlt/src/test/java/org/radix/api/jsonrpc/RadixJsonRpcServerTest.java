@@ -25,6 +25,8 @@ import static org.mockito.Mockito.when;
 import com.radixdlt.consensus.EpochManagerRunner;
 import com.radixdlt.store.LedgerEntryStore;
 import com.radixdlt.universe.Universe;
+import java.util.stream.Stream;
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.junit.Test;
 import org.radix.api.services.AtomsService;
@@ -109,4 +111,148 @@ public class RadixJsonRpcServerTest {
 		assertThat(response.getJSONObject("error").get("code")).isEqualTo(JsonRpcUtil.OVERSIZED_REQUEST);
 		assertThat(response.getJSONObject("error").getString("message")).isNotEmpty();
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void when_send_json_rpc_batch_request__return_batch_response() {
+		JSONArray request = new JSONArray()
+			.put(new JSONObject().put("id", 0).put("method", "Ping").put("params", new JSONObject()))
+			.put(new JSONObject().put("id", 1).put("method", "Nonesuch").put("params", new JSONObject()))
+			.put(new JSONObject().put("id", 2).put("method", "Ping").put("params", new JSONObject()));
+
+		Serialization serializer = mock(Serialization.class);
+		when(serializer.toJsonObject(any(), any())).thenAnswer(i -> i.getArguments()[0]);
+
+		RadixJsonRpcServer server = new RadixJsonRpcServer(
+			mock(EpochManagerRunner.class),
+			serializer,
+			mock(LedgerEntryStore.class),
+			mock(AtomsService.class),
+			mock(LocalSystem.class),
+			mock(AddressBook.class),
+			mock(Universe.class));
+
+		JSONArray response = new JSONArray(server.handleChecked(request.toString()));
+		assertThat(response.length()).isEqualTo(3);
+		assertThat(response.getJSONObject(0).get("id")).isEqualTo(0);
+		assertThat(response.getJSONObject(0).getJSONObject("result").get("response")).isEqualTo("pong");
+		assertThat(response.getJSONObject(1).get("id")).isEqualTo(1);
+		assertThat(response.getJSONObject(1).has("error")).isTrue();
+		assertThat(response.getJSONObject(2).get("id")).isEqualTo(2);
+		assertThat(response.getJSONObject(2).getJSONObject("result").get("response")).isEqualTo("pong");
+	}
+
+	@Test
+	public void when_send_empty_json_rpc_batch_request__return_json_error_response() {
+		RadixJsonRpcServer server = new RadixJsonRpcServer(
+			mock(EpochManagerRunner.class),
+			mock(Serialization.class),
+			mock(LedgerEntryStore.class),
+			mock(AtomsService.class),
+			mock(LocalSystem.class),
+			mock(AddressBook.class),
+			mock(Universe.class)
+		);
+
+		JSONObject response = new JSONObject(server.handleChecked("[]"));
+		assertThat(response.isNull("id")).isTrue();
+		assertThat(response.getJSONObject("error").get("code")).isEqualTo(JsonRpcUtil.INVALID_REQUEST_CODE);
+	}
+
+	@Test
+	public void when_send_malformed_json_rpc_request__return_json_parse_error_response() {
+		RadixJsonRpcServer server = new RadixJsonRpcServer(
+			mock(EpochManagerRunner.class),
+			mock(Serialization.class),
+			mock(LedgerEntryStore.class),
+			mock(AtomsService.class),
+			mock(LocalSystem.class),
+			mock(AddressBook.class),
+			mock(Universe.class)
+		);
+
+		JSONObject response = new JSONObject(server.handleChecked("{\"id\": 0, "));
+		assertThat(response.isNull("id")).isTrue();
+		assertThat(response.getJSONObject("error").get("code")).isEqualTo(JsonRpcUtil.PARSE_ERROR_CODE);
+	}
+
+	@Test
+	public void when_send_json_rpc_request_with_trailing_data__return_json_parse_error_response() {
+		RadixJsonRpcServer server = new RadixJsonRpcServer(
+			mock(EpochManagerRunner.class),
+			mock(Serialization.class),
+			mock(LedgerEntryStore.class),
+			mock(AtomsService.class),
+			mock(LocalSystem.class),
+			mock(AddressBook.class),
+			mock(Universe.class)
+		);
+
+		JSONObject response = new JSONObject(server.handleChecked("{\"id\": 0, \"method\": \"Ping\"} {\"id\": 1}"));
+		assertThat(response.isNull("id")).isTrue();
+		assertThat(response.getJSONObject("error").get("code")).isEqualTo(JsonRpcUtil.PARSE_ERROR_CODE);
+	}
+
+	@Test
+	public void when_result_serialization_fails__return_json_error_response() {
+		JSONObject request = new JSONObject()
+			.put("id", 0)
+			.put("method", "Network.getLivePeers")
+			.put("params", new JSONObject());
+
+		Serialization serializer = mock(Serialization.class);
+		when(serializer.toJsonObject(any(), any())).thenThrow(new IllegalStateException("Not serializable"));
+		AddressBook addressBook = mock(AddressBook.class);
+		when(addressBook.recentPeers()).thenReturn(Stream.empty());
+
+		RadixJsonRpcServer server = new RadixJsonRpcServer(
+			mock(EpochManagerRunner.class),
+			serializer,
+			mock(LedgerEntryStore.class),
+			mock(AtomsService.class),
+			mock(LocalSystem.class),
+			addressBook,
+			mock(Universe.class)
+		);
+
+		JSONObject response = new JSONObject(server.handleChecked(request.toString()));
+		assertThat(response.get("id")).isEqualTo(0);
+		assertThat(response.has("result")).isFalse();
+		assertThat(response.getJSONObject("error").get("code")).isEqualTo(-32000);
+	}
+
+	@Test
+	public void when_list_element_serialization_fails_in_batch__return_error_for_that_request_only() {
+		JSONArray request = new JSONArray()
+			.put(new JSONObject().put("id", 0).put("method", "Ping").put("params", new JSONObject()))
+			.put(new JSONObject().put("id", 1).put("method", "Network.getLivePeers").put("params", new JSONObject()))
+			.put(new JSONObject().put("id", 2).put("method", "Ping").put("params", new JSONObject()));
+
+		Serialization serializer = mock(Serialization.class);
+		when(serializer.toJsonObject(any(), any())).thenAnswer(i -> {
+			if (i.getArguments()[0] instanceof JSONObject) {
+				return i.getArguments()[0];
+			}
+			throw new IllegalStateException("Not serializable");
+		});
+		AddressBook addressBook = mock(AddressBook.class);
+		when(addressBook.recentPeers()).thenReturn(Stream.empty());
+
+		RadixJsonRpcServer server = new RadixJsonRpcServer(
+			mock(EpochManagerRunner.class),
+			serializer,
+			mock(LedgerEntryStore.class),
+			mock(AtomsService.class),
+			mock(LocalSystem.class),
+			addressBook,
+			mock(Universe.class)
+		);
+
+		JSONArray response = new JSONArray(server.handleChecked(request.toString()));
+		assertThat(response.length()).isEqualTo(3);
+		assertThat(response.getJSONObject(0).getJSONObject("result").get("response")).isEqualTo("pong");
+		assertThat(response.getJSONObject(1).get("id")).isEqualTo(1);
+		assertThat(response.getJSONObject(1).has("result")).isFalse();
+		assertThat(response.getJSONObject(1).getJSONObject("error").get("code")).isEqualTo(-32000);
+		assertThat(response.getJSONObject(2).getJSONObject("result").get("response")).isEqualTo("pong");
+	}
+}
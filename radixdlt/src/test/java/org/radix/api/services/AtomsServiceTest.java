@@ -25,7 +25,7 @@ import com.radixdlt.consensus.Sha256Hasher;
 import com.radixdlt.crypto.Hasher;
 import com.radixdlt.mempool.SubmissionControl;
 import com.radixdlt.statecomputer.ClientAtomToBinaryConverter;
-import com.radixdlt.middleware2.store.CommandToBinaryConverter;
+import com.radixdlt.middleware2.store.CommittedAtomCache;
 import com.radixdlt.statecomputer.RadixEngineStateComputer.CommittedAtomWithResult;
 import com.radixdlt.store.LedgerEntryStore;
 import io.reactivex.rxjava3.core.Observable;
@@ -39,7 +39,7 @@ public class AtomsServiceTest {
 	private PublishSubject<CommittedAtomWithResult> committedAtomsSubject;
 	private LedgerEntryStore store;
 	private SubmissionControl submissionControl;
-	private CommandToBinaryConverter commandToBinaryConverter;
+	private CommittedAtomCache atomCache;
 	private ClientAtomToBinaryConverter clientAtomToBinaryConverter;
 	private Hasher hasher;
 
@@ -52,7 +52,7 @@ public class AtomsServiceTest {
 
 		this.submissionControl = mock(SubmissionControl.class);
 		this.store = mock(LedgerEntryStore.class);
-		this.commandToBinaryConverter = mock(CommandToBinaryConverter.class);
+		this.atomCache = mock(CommittedAtomCache.class);
 		this.clientAtomToBinaryConverter = mock(ClientAtomToBinaryConverter.class);
 		this.hasher = Sha256Hasher.withDefaultSerialization();
 
@@ -62,7 +62,7 @@ public class AtomsServiceTest {
 			PublishSubject.create(),
 			this.store,
 			this.submissionControl,
-			this.commandToBinaryConverter,
+			this.atomCache,
 			this.clientAtomToBinaryConverter,
 			this.hasher
 		);
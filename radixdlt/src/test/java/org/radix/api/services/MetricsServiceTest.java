@@ -0,0 +1,99 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package org.radix.api.services;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.radix.database.DatabaseEnvironment;
+
+import com.radixdlt.counters.SystemCounters;
+import com.radixdlt.counters.SystemCounters.CounterType;
+import com.radixdlt.counters.SystemCounters.HistogramType;
+import com.radixdlt.counters.SystemCountersImpl;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.EnvironmentStats;
+import com.sleepycat.je.StatsConfig;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class MetricsServiceTest {
+	private SystemCounters counters;
+	private MetricsService metricsService;
+
+	@Before
+	public void setUp() {
+		this.counters = new SystemCountersImpl();
+		DatabaseEnvironment dbEnv = mock(DatabaseEnvironment.class);
+		Environment environment = mock(Environment.class);
+		EnvironmentStats stats = mock(EnvironmentStats.class);
+		when(stats.getCacheTotalBytes()).thenReturn(1234L);
+		when(environment.getStats(any(StatsConfig.class))).thenReturn(stats);
+		when(dbEnv.getEnvironment()).thenReturn(environment);
+		this.metricsService = new MetricsService(this.counters, dbEnv);
+	}
+
+	@Test
+	public void when_get_metrics__then_counters_are_in_prometheus_format() {
+		this.counters.set(CounterType.BFT_TIMEOUT, 42L);
+		this.counters.add(CounterType.HASHED_BYTES, 100L);
+
+		String metrics = this.metricsService.getMetrics();
+
+		assertThat(metrics)
+			.contains("# TYPE radixdlt_bft_timeout untyped\nradixdlt_bft_timeout 42\n")
+			.contains("# TYPE radixdlt_hashed_bytes_total counter\nradixdlt_hashed_bytes_total 100\n")
+			.contains("radixdlt_bdb_cache_total_bytes 1234\n")
+			.contains("radixdlt_jvm_heap_used_bytes ");
+	}
+
+	@Test
+	public void when_get_metrics__then_counter_names_end_with_total_once() {
+		this.counters.add(CounterType.COUNT_BDB_LEDGER_TOTAL, 3L);
+
+		String metrics = this.metricsService.getMetrics();
+
+		assertThat(metrics)
+			.contains("# TYPE radixdlt_count_bdb_ledger_total counter\nradixdlt_count_bdb_ledger_total 3\n")
+			.doesNotContain("_total_total");
+	}
+
+	@Test
+	public void when_get_metrics__then_histograms_are_summaries() {
+		this.counters.record(HistogramType.LATENCY_LEDGER_COMMIT, 10L);
+
+		String metrics = this.metricsService.getMetrics();
+
+		assertThat(metrics)
+			.contains("# TYPE radixdlt_latency_ledger_commit_microseconds summary\n")
+			.contains("radixdlt_latency_ledger_commit_microseconds{quantile=\"0.99\"} 10\n")
+			.contains("radixdlt_latency_ledger_commit_microseconds_sum 10\n")
+			.contains("radixdlt_latency_ledger_commit_microseconds_count 1\n");
+	}
+
+	@Test
+	public void when_get_metrics__then_every_line_is_well_formed() {
+		String metrics = this.metricsService.getMetrics();
+
+		for (String line : metrics.split("\n")) {
+			assertThat(line).matches("(# TYPE [a-z0-9_]+ (counter|gauge|summary|untyped))|([a-z0-9_]+(\\{.+\\})? -?[0-9]+)");
+		}
+	}
+}
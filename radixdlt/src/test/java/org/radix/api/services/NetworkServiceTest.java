@@ -30,6 +30,7 @@ import com.radixdlt.network.addressbook.AddressBook;
 import com.radixdlt.network.addressbook.PeerWithSystem;
 import com.radixdlt.serialization.DsonOutput.Output;
 import com.radixdlt.serialization.Serialization;
+import com.radixdlt.sync.PeerPerformanceTracker;
 
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.*;
@@ -46,7 +47,13 @@ public class NetworkServiceTest {
 		this.serialization = mock(Serialization.class);
 		this.localSystem = mock(LocalSystem.class);
 		this.addressBook = mock(AddressBook.class);
-		this.services = new NetworkService(serialization, localSystem, addressBook, Sha256Hasher.withDefaultSerialization());
+		this.services = new NetworkService(
+			serialization,
+			localSystem,
+			addressBook,
+			Sha256Hasher.withDefaultSerialization(),
+			mock(PeerPerformanceTracker.class)
+		);
 	}
 
 	@Test
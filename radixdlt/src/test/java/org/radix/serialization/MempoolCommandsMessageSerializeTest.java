@@ -0,0 +1,32 @@
+/*
+ * (C) Copyright 2020 Radix DLT Ltd
+ *
+ * Radix DLT Ltd licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except in
+ * compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+
+package org.radix.serialization;
+
+import com.google.common.collect.ImmutableList;
+import com.radixdlt.consensus.Command;
+import com.radixdlt.mempool.messages.MempoolCommandsMessage;
+
+public class MempoolCommandsMessageSerializeTest extends SerializeMessageObject<MempoolCommandsMessage> {
+	public MempoolCommandsMessageSerializeTest() {
+		super(MempoolCommandsMessage.class, MempoolCommandsMessageSerializeTest::get);
+	}
+
+	private static MempoolCommandsMessage get() {
+		return new MempoolCommandsMessage(1, ImmutableList.of(new Command(new byte[] {0, 1}), new Command(new byte[] {2, 3})));
+	}
+}